@@ -1,42 +1,5 @@
 #version 420 core
 
-struct Material {
-    bool isThereDiffuseMap;
-    sampler2D diffuse;
-    vec2 diffuseTile;
-    vec2 diffuseOffset;
-    vec3 diffuseColor;
-
-    bool isThereSpecularMap;
-    sampler2D specular;
-    vec2 specularTile;
-    vec2 specularOffset;
-    vec4 specularColor;
-
-    bool isThereGlossiness;
-
-    bool isThereNormalMap;
-    sampler2D normal;
-    vec2 normalTile;
-    vec2 normalOffset;
-
-    bool isTherePOM;
-    float POMScale;
-    float POMMinLayers;
-    float POMMaxLayers;
-
-    bool isThereReflectionMap;
-    samplerCube reflection;
-    bool isThereRefractionMap;
-    samplerCube refraction;
-    float refractionIndex;
-    bool isThereEnvironmentIntensityMap;
-    sampler2D environmentIntensity;
-    vec2 environmentIntensityTile;
-    vec2 environmentIntensityOffset;
-    vec3 environmentIntensityColor;
-}; 
-
 struct Light {              //base alignment        alignment offset
     vec3 position;          //16                    0
     vec3 direction;         //16                    16
@@ -52,29 +15,78 @@ struct Light {              //base alignment        alignment offset
 #define DIRECTIONAL_LIGHT 0
 #define POINT_LIGHT 1
 #define SPOT_LIGHT 2
-#define lightNumber 16
 layout (std140, binding = 1) uniform LightSources {
-    Light lights[lightNumber];                      //i * 112
-    Light directionalLight;                         //1792
-    int maxLightSources;                            //1904
-};                                                  //1908
+    Light directionalLight;                         //0
+};                                                  //112
 
 in vec3 fragmentPositionF;
 in vec3 normalF;
 in vec2 textureCoordinatesF;
 in vec3 viewPositionF;
-in mat4 shadowProjectionViewMatrixF;
-in vec4 fragmentPositionLightSpace;
+in float viewDepthF;
 in mat3 TBN;
 in mat3 inverseModelMatrix3x3F;
 
 out vec4 color;
 
-uniform Material material;
+#define MAX_SHADOW_CASCADES 4
+layout (std140, binding = 3) uniform Frame {
+    mat4 shadowProjectionViewMatrices[MAX_SHADOW_CASCADES];   //i * 64
+    vec4 shadowCascadeFarDistances;                 //256
+    vec3 viewPosition;                              //272
+    bool gamma;                                     //284
+    bool wireframe;                                 //288
+    int numberOfShadowCascades;                     //292
+    float clusterDepthScale;                        //296
+    float clusterDepthBias;                         //300
+    vec2 clusterTileScale;                          //304
+    int clusterGridWidth;                           //312
+    int clusterGridHeight;                          //316
+    int clusterGridDepth;                           //320
+};                                                  //336
+
+layout (std140, binding = 4) uniform Object {
+    mat4 modelMatrix;                               //0
+    mat4 inverseModelMatrix;                        //64
+    bool receiveShadow;                             //128
+    bool instanced;                                 //132
+};                                                  //144
+
+layout (std140, binding = 5) uniform Material {
+    vec4 diffuseColor;                              //0
+    vec4 specularColor;                             //16
+    vec4 environmentIntensityColor;                 //32
+    vec2 diffuseTile;                               //48
+    vec2 diffuseOffset;                             //56
+    vec2 specularTile;                              //64
+    vec2 specularOffset;                            //72
+    vec2 normalTile;                                //80
+    vec2 normalOffset;                              //88
+    vec2 environmentIntensityTile;                  //96
+    vec2 environmentIntensityOffset;                //104
+    float POMScale;                                 //112
+    float POMMinLayers;                             //116
+    float POMMaxLayers;                             //120
+    float refractionIndex;                          //124
+    bool isThereDiffuseMap;                         //128
+    bool isThereSpecularMap;                        //132
+    bool isThereGlossiness;                         //136
+    bool isThereNormalMap;                          //140
+    bool isTherePOM;                                //144
+    bool isThereReflectionMap;                      //148
+    bool isThereRefractionMap;                      //152
+    bool isThereEnvironmentIntensityMap;            //156
+} material;                                         //160
+
 uniform sampler2D shadowMap;
-uniform bool receiveShadow;
-uniform bool gamma;
-uniform bool wireframe;
+uniform sampler2D diffuseMap;
+uniform sampler2D specularMap;
+uniform sampler2D normalMap;
+uniform samplerCube reflectionMap;
+uniform samplerCube refractionMap;
+uniform sampler2D environmentIntensityMap;
+uniform samplerBuffer lightData;
+uniform isamplerBuffer lightClusters;
 
 //lighting
 vec3 calculateLight(vec3 materialDiffuseColor, vec4 materialSpecularColor, vec3 viewDirection, vec3 normalVector, vec3 fragmentPosition, Light light);
@@ -83,6 +95,8 @@ vec3 calculateSpecularColor(vec4 materialSpecularColor, vec3 lightSpecularColor,
 vec3 calculateAmbientColor(vec3 materialDiffuseColor, vec3 lightAmbientColor);
 float calculateAttenuation(vec3 fragmentPosition, vec3 lightPosition, vec3 lightAttenuation);
 float calculateCutOff(vec3 lightToFragmentDirection, vec3 lightDirection, vec2 lightCutOff);
+Light getLight(int index);
+int getCluster();
 //data collection
 vec3 getDiffuseColor(vec2 textureCoordinates, vec3 viewDirection, vec3 normalVector);
 vec4 getSpecularColor(vec2 textureCoordinates);
@@ -91,7 +105,7 @@ vec2 getTextureCoordinates();
 vec3 getIntensity(vec2 textureCoordinates);
 //misc
 vec2 parallaxMapping(in vec3 textureCoordinates, in vec2 tangentViewDirection);
-float calculateShadow(bool receiveShadow, vec4 fragmentPositionLightSpace, vec3 normalVector);
+float calculateShadow(bool receiveShadow, vec3 fragmentPosition, vec3 normalVector);
 
 void main(){
     if(wireframe){
@@ -108,12 +122,14 @@ void main(){
     //directional light
     vec3 result = calculateLight(diffuseColor, specularColor, viewDirection, normalVector, fragmentPosition, directionalLight);
     //shadows
-    result *= calculateShadow(receiveShadow, fragmentPositionLightSpace, normalVector);
-    //point and spotlights
-    for(int i=0; i<maxLightSources; i++){
-        if(lights[i].active2){
-            result += calculateLight(diffuseColor, specularColor, viewDirection, normalVector, fragmentPosition, lights[i]);
-        }
+    result *= calculateShadow(receiveShadow, fragmentPosition, normalVector);
+    //point and spotlights of the fragment's cluster
+    int cluster = getCluster();
+    int firstLight = clusterGridWidth * clusterGridHeight * clusterGridDepth * 2 + texelFetch(lightClusters, cluster * 2).r;
+    int numberOfLights = texelFetch(lightClusters, cluster * 2 + 1).r;
+    for(int i=0; i<numberOfLights; i++){
+        int lightIndex = texelFetch(lightClusters, firstLight + i).r;
+        result += calculateLight(diffuseColor, specularColor, viewDirection, normalVector, fragmentPosition, getLight(lightIndex));
     }
 
     color = vec4(result, 1);
@@ -161,24 +177,59 @@ float calculateCutOff(vec3 lightToFragmentDirection, vec3 lightDirection, vec2 l
     return clamp((theta - lightCutOff.y) / epsilon, 0.0, 1.0);
 }
 
+//
+//light clusters----------------------------------------------------------------
+//
+int getCluster(){
+    ivec3 cluster = ivec3(gl_FragCoord.xy * clusterTileScale, floor(log(max(viewDepthF, 0.0001)) * clusterDepthScale + clusterDepthBias));
+    cluster = clamp(cluster, ivec3(0), ivec3(clusterGridWidth, clusterGridHeight, clusterGridDepth) - 1);
+    return (cluster.z * clusterGridHeight + cluster.y) * clusterGridWidth + cluster.x;
+}
+
+Light getLight(int index){
+    vec4 positionType = texelFetch(lightData, index * 6);
+    vec4 directionActive = texelFetch(lightData, index * 6 + 1);
+    vec4 attenuationRange = texelFetch(lightData, index * 6 + 2);
+    vec4 ambientCutOff = texelFetch(lightData, index * 6 + 3);
+    vec4 diffuseOuterCutOff = texelFetch(lightData, index * 6 + 4);
+    vec4 specular = texelFetch(lightData, index * 6 + 5);
+    return Light(positionType.xyz, directionActive.xyz, attenuationRange.xyz, ambientCutOff.rgb, diffuseOuterCutOff.rgb, specular.rgb,
+            vec2(ambientCutOff.a, diffuseOuterCutOff.a), int(positionType.w), directionActive.w != 0);
+}
+
 //
 //misc--------------------------------------------------------------------------
 //
-float calculateShadow(bool receiveShadow, vec4 fragmentPositionLightSpace, vec3 normalVector){
+float calculateShadow(bool receiveShadow, vec3 fragmentPosition, vec3 normalVector){
     if(!receiveShadow){
         return 1;
     }else if(dot(normalVector, -directionalLight.direction) < 0){
         return 0.3f;
     }
+    //cascade selection
+    int cascade = 0;
+    while(cascade < numberOfShadowCascades && viewDepthF > shadowCascadeFarDistances[cascade]){
+        cascade++;
+    }
+    if(cascade == numberOfShadowCascades){
+        return 1;
+    }
+    //the cascades are stored in a 2 columns wide atlas
+    vec2 atlasTiles = numberOfShadowCascades == 1 ? vec2(1, 1) : vec2(2, (numberOfShadowCascades + 1) / 2);
+    vec2 tileOffset = vec2(cascade % 2, cascade / 2);
     vec2 texelSize = 1.0 / textureSize(shadowMap, 0);
+    vec2 tileTexelSize = texelSize * atlasTiles;
+    vec4 fragmentPositionLightSpace = shadowProjectionViewMatrices[cascade] * vec4(fragmentPosition, 1.0);
     vec3 projectionCoordinates = fragmentPositionLightSpace.xyz / fragmentPositionLightSpace.w;
     projectionCoordinates = projectionCoordinates * 0.5 + 0.5;
     float currentDepth = projectionCoordinates.z;
-    float bias = max(0.00005 * (1.0 - dot(normalVector, directionalLight.direction)    ), 0.000005f)  * texelSize.x * 3500;
+    float bias = max(0.00005 * (1.0 - dot(normalVector, directionalLight.direction)    ), 0.000005f)  * tileTexelSize.x * 3500;
     float shadow = 0.0;
     for(int x = -1; x <= 1; ++x){
         for(int y = -1; y <= 1; ++y){
-            float pcfDepth = texture(shadowMap, projectionCoordinates.xy + vec2(x, y) * texelSize).r; 
+            //the samples can't leave the cascade's tile
+            vec2 tileCoordinates = clamp(projectionCoordinates.xy + vec2(x, y) * tileTexelSize, tileTexelSize * 0.5, 1.0 - tileTexelSize * 0.5);
+            float pcfDepth = texture(shadowMap, (tileOffset + tileCoordinates) / atlasTiles).r; 
             shadow += currentDepth - bias > pcfDepth  ? 0.3 : 1.0;        
         }    
     }
@@ -192,16 +243,16 @@ vec2 parallaxMapping(in vec3 tangentViewDirection, in vec2 textureCoordinates){
     float curLayerHeight = 0;
     vec2 dtex = material.POMScale * tangentViewDirection.xy / numLayers;
     vec2 currentTextureCoords = textureCoordinates;
-    float heightFromTexture = texture(material.normal, currentTextureCoords).a;
+    float heightFromTexture = texture(normalMap, currentTextureCoords).a;
     while(heightFromTexture > curLayerHeight){
         curLayerHeight += layerHeight; 
         currentTextureCoords -= dtex;
-        heightFromTexture = texture(material.normal, currentTextureCoords).a;
+        heightFromTexture = texture(normalMap, currentTextureCoords).a;
     }
 
     vec2 prevTCoords = currentTextureCoords + dtex;
     float nextH	= heightFromTexture - curLayerHeight;
-    float prevH	= texture(material.normal, prevTCoords).a - curLayerHeight + layerHeight;
+    float prevH	= texture(normalMap, prevTCoords).a - curLayerHeight + layerHeight;
     float weight = nextH / (nextH - prevH);
     vec2 finalTexCoords = prevTCoords * weight + currentTextureCoords * (1.0-weight);
     if(finalTexCoords.x > 1.0 || finalTexCoords.y > 1.0 || finalTexCoords.x < 0.0 || finalTexCoords.y < 0.0){
@@ -216,28 +267,28 @@ vec2 parallaxMapping(in vec3 tangentViewDirection, in vec2 textureCoordinates){
 vec3 getDiffuseColor(vec2 textureCoordinates, vec3 viewDirection, vec3 normalVector){
     vec3 diffuse;
     if(material.isThereDiffuseMap){
-        vec4 tex = texture(material.diffuse, textureCoordinates * material.diffuseTile + material.diffuseOffset);
+        vec4 tex = texture(diffuseMap, textureCoordinates * material.diffuseTile + material.diffuseOffset);
         if(tex.a == 0){
             discard;
         }
         diffuse = tex.rgb;
     }else{
         if(gamma){
-            diffuse = pow(material.diffuseColor, vec3(2.2f));
+            diffuse = pow(material.diffuseColor.rgb, vec3(2.2f));
         }else{
-            diffuse = material.diffuseColor;
+            diffuse = material.diffuseColor.rgb;
         }
     }
 
     vec3 reflectionColor;
     if(material.isThereReflectionMap){
         vec3 reflectionVector = reflect(-viewDirection, normalVector);
-        reflectionColor = texture(material.reflection, reflectionVector).rgb;
+        reflectionColor = texture(reflectionMap, reflectionVector).rgb;
     }
     vec3 refractionColor;
     if(material.isThereRefractionMap){
         vec3 refractionVector = refract(-viewDirection, normalVector, material.refractionIndex);
-        refractionColor = texture(material.refraction, refractionVector).rgb;
+        refractionColor = texture(refractionMap, refractionVector).rgb;
     }
     vec3 intensity = getIntensity(textureCoordinates);
     return diffuse * intensity.r + reflectionColor * intensity.g + refractionColor * intensity.b;
@@ -247,9 +298,9 @@ vec3 getIntensity(vec2 textureCoordinates){
     vec3 intensity;
     float sum;
     if(material.isThereEnvironmentIntensityMap){
-        intensity = texture(material.environmentIntensity, textureCoordinates * material.environmentIntensityTile + material.environmentIntensityOffset).rgb;
+        intensity = texture(environmentIntensityMap, textureCoordinates * material.environmentIntensityTile + material.environmentIntensityOffset).rgb;
     }else{
-        intensity = material.environmentIntensityColor;
+        intensity = material.environmentIntensityColor.rgb;
     }
     if(!material.isThereReflectionMap){
         intensity.g = 0;
@@ -269,7 +320,7 @@ vec3 getIntensity(vec2 textureCoordinates){
 vec4 getSpecularColor(vec2 textureCoordinates){
     vec4 ret;
     if(material.isThereSpecularMap){
-        ret = texture(material.specular, textureCoordinates * material.specularTile + material.specularOffset);
+        ret = texture(specularMap, textureCoordinates * material.specularTile + material.specularOffset);
         if(material.isThereGlossiness){
             ret.a = material.specularColor.a;
         }
@@ -282,7 +333,7 @@ vec4 getSpecularColor(vec2 textureCoordinates){
 
 vec3 getNormalVector(vec2 textureCoordinates){
     if(material.isThereNormalMap){
-        vec3 normal = texture(material.normal, textureCoordinates * material.normalTile + material.normalOffset).rgb;
+        vec3 normal = texture(normalMap, textureCoordinates * material.normalTile + material.normalOffset).rgb;
         normal = normalize(normal * 2.0 - 1.0);
         normal = TBN * normal;
         return normalize(normal * inverseModelMatrix3x3F);
@@ -4,42 +4,88 @@ layout (location = 0) in vec3 position;
 layout (location = 1) in vec2 textureCoordinates;
 layout (location = 2) in vec3 normal;
 layout (location = 3) in vec3 tangent;
+layout (location = 4) in mat4 instanceModelMatrix;
+layout (location = 8) in mat4 instanceInverseModelMatrix;
 
 out vec3 normalF;
 out vec3 fragmentPositionF;
 out vec2 textureCoordinatesF;
-out vec4 fragmentPositionLightSpace;
+out float viewDepthF;
 out vec3 viewPositionF;
 out mat3 TBN;
 out mat3 inverseModelMatrix3x3F;
-out mat4 shadowProjectionViewMatrixF;
 
 layout (std140, binding = 2) uniform Matrices {
     mat4 viewMatrix;                                //0
     mat4 projectionMatrix;                          //64
 };                                                  //128
 
-uniform vec3 viewPosition;
-uniform float useNormalMap;
-uniform mat4 modelMatrix;
-uniform mat3 inverseModelMatrix3x3;
-uniform mat4 shadowProjectionViewMatrix;
+#define MAX_SHADOW_CASCADES 4
+layout (std140, binding = 3) uniform Frame {
+    mat4 shadowProjectionViewMatrices[MAX_SHADOW_CASCADES];   //i * 64
+    vec4 shadowCascadeFarDistances;                 //256
+    vec3 viewPosition;                              //272
+    bool gamma;                                     //284
+    bool wireframe;                                 //288
+    int numberOfShadowCascades;                     //292
+    float clusterDepthScale;                        //296
+    float clusterDepthBias;                         //300
+    vec2 clusterTileScale;                          //304
+    int clusterGridWidth;                           //312
+    int clusterGridHeight;                          //316
+    int clusterGridDepth;                           //320
+};                                                  //336
+
+layout (std140, binding = 4) uniform Object {
+    mat4 modelMatrix;                               //0
+    mat4 inverseModelMatrix;                        //64
+    bool receiveShadow;                             //128
+    bool instanced;                                 //132
+};                                                  //144
+
+layout (std140, binding = 5) uniform Material {
+    vec4 diffuseColor;                              //0
+    vec4 specularColor;                             //16
+    vec4 environmentIntensityColor;                 //32
+    vec2 diffuseTile;                               //48
+    vec2 diffuseOffset;                             //56
+    vec2 specularTile;                              //64
+    vec2 specularOffset;                            //72
+    vec2 normalTile;                                //80
+    vec2 normalOffset;                              //88
+    vec2 environmentIntensityTile;                  //96
+    vec2 environmentIntensityOffset;                //104
+    float POMScale;                                 //112
+    float POMMinLayers;                             //116
+    float POMMaxLayers;                             //120
+    float refractionIndex;                          //124
+    bool isThereDiffuseMap;                         //128
+    bool isThereSpecularMap;                        //132
+    bool isThereGlossiness;                         //136
+    bool isThereNormalMap;                          //140
+    bool isTherePOM;                                //144
+    bool isThereReflectionMap;                      //148
+    bool isThereRefractionMap;                      //152
+    bool isThereEnvironmentIntensityMap;            //156
+} material;                                         //160
 
 void main(){
-    gl_Position = projectionMatrix * viewMatrix * modelMatrix * vec4(position, 1.0f);
-    fragmentPositionF = vec3(modelMatrix * vec4(position, 1.0f));
-    normalF = normalize(normal * inverseModelMatrix3x3);
+    mat4 objectModelMatrix = instanced ? instanceModelMatrix : modelMatrix;
+    mat3 objectInverseModelMatrix3x3 = instanced ? mat3(instanceInverseModelMatrix) : mat3(inverseModelMatrix);
+    vec4 viewSpacePosition = viewMatrix * objectModelMatrix * vec4(position, 1.0f);
+    gl_Position = projectionMatrix * viewSpacePosition;
+    fragmentPositionF = vec3(objectModelMatrix * vec4(position, 1.0f));
+    viewDepthF = -viewSpacePosition.z;
+    normalF = normalize(normal * objectInverseModelMatrix3x3);
     textureCoordinatesF = textureCoordinates;
-    fragmentPositionLightSpace = shadowProjectionViewMatrix * vec4(fragmentPositionF, 1.0);
-    shadowProjectionViewMatrixF = shadowProjectionViewMatrix;
     viewPositionF = viewPosition;
-    if(useNormalMap == 1){
-        vec3 tangentColumn = normalize(mat3(modelMatrix) * tangent);
-        vec3 normalColumn = normalize(mat3(modelMatrix) * normal);
+    if(material.isThereNormalMap){
+        vec3 tangentColumn = normalize(mat3(objectModelMatrix) * tangent);
+        vec3 normalColumn = normalize(mat3(objectModelMatrix) * normal);
         tangentColumn = normalize(tangentColumn - dot(tangentColumn, normalColumn) * normalColumn);
         vec3 bitangentColumn = cross(normalColumn, tangentColumn);
         TBN = mat3(tangentColumn, bitangentColumn, normalColumn);
-        inverseModelMatrix3x3F = inverseModelMatrix3x3;
+        inverseModelMatrix3x3F = objectInverseModelMatrix3x3;
     }
 
-} 
\ No newline at end of file
+} 
\ No newline at end of file
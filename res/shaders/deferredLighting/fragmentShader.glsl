@@ -0,0 +1,200 @@
+#version 420 core
+
+struct Light {              //base alignment        alignment offset
+    vec3 position;          //16                    0
+    vec3 direction;         //16                    16
+    vec3 attenuation;       //16                    32
+    vec3 ambient;           //16                    48
+    vec3 diffuse;           //16                    64
+    vec3 specular;          //16                    80
+    vec2 cutOff;            //8                     96
+    int type;               //4                     104
+    bool active2;            //4                     108
+};                          //                      112
+
+#define DIRECTIONAL_LIGHT 0
+#define POINT_LIGHT 1
+#define SPOT_LIGHT 2
+layout (std140, binding = 1) uniform LightSources {
+    Light directionalLight;                         //0
+};                                                  //112
+
+layout (std140, binding = 2) uniform Matrices {
+    mat4 viewMatrix;                                //0
+    mat4 projectionMatrix;                          //64
+};                                                  //128
+
+#define MAX_SHADOW_CASCADES 4
+layout (std140, binding = 3) uniform Frame {
+    mat4 shadowProjectionViewMatrices[MAX_SHADOW_CASCADES];   //i * 64
+    vec4 shadowCascadeFarDistances;                 //256
+    vec3 viewPosition;                              //272
+    bool gamma;                                     //284
+    bool wireframe;                                 //288
+    int numberOfShadowCascades;                     //292
+    float clusterDepthScale;                        //296
+    float clusterDepthBias;                         //300
+    vec2 clusterTileScale;                          //304
+    int clusterGridWidth;                           //312
+    int clusterGridHeight;                          //316
+    int clusterGridDepth;                           //320
+};                                                  //336
+
+in vec2 textureCoordinatesF;
+
+out vec4 color;
+
+uniform sampler2D shadowMap;
+uniform sampler2D albedoBuffer;
+uniform sampler2D normalBuffer;
+uniform sampler2D specularBuffer;
+uniform sampler2D depthBuffer;
+uniform samplerBuffer lightData;
+uniform isamplerBuffer lightClusters;
+uniform mat4 inverseProjectionViewMatrix;
+
+//lighting
+vec3 calculateLight(vec3 materialDiffuseColor, vec4 materialSpecularColor, vec3 viewDirection, vec3 normalVector, vec3 fragmentPosition, Light light);
+vec3 calculateDiffuseColor(vec3 materialDiffuseColor, vec3 lightDiffuseColor, vec3 normalVector, vec3 lightDirection);
+vec3 calculateSpecularColor(vec4 materialSpecularColor, vec3 lightSpecularColor, vec3 normalVector, vec3 lightDirection, vec3 viewDirection);
+vec3 calculateAmbientColor(vec3 materialDiffuseColor, vec3 lightAmbientColor);
+float calculateAttenuation(vec3 fragmentPosition, vec3 lightPosition, vec3 lightAttenuation);
+float calculateCutOff(vec3 lightToFragmentDirection, vec3 lightDirection, vec2 lightCutOff);
+Light getLight(int index);
+int getCluster(float viewDepth);
+//misc
+float calculateShadow(bool receiveShadow, vec3 fragmentPosition, vec3 normalVector, float viewDepth);
+
+void main(){
+    float depth = texture(depthBuffer, textureCoordinatesF).r;
+    if(depth == 1){
+        discard;
+    }
+    gl_FragDepth = depth;
+    //collecting data from the G-buffer
+    vec4 clipSpacePosition = vec4(vec3(textureCoordinatesF, depth) * 2.0 - 1.0, 1);
+    vec4 worldSpacePosition = inverseProjectionViewMatrix * clipSpacePosition;
+    vec3 fragmentPosition = worldSpacePosition.xyz / worldSpacePosition.w;
+    float viewDepth = -(viewMatrix * vec4(fragmentPosition, 1)).z;
+    vec3 viewDirection = normalize(viewPosition - fragmentPosition);
+    vec3 diffuseColor = texture(albedoBuffer, textureCoordinatesF).rgb;
+    vec4 normalAndShadow = texture(normalBuffer, textureCoordinatesF);
+    vec3 normalVector = normalize(normalAndShadow.xyz);
+    vec4 specularColor = texture(specularBuffer, textureCoordinatesF);
+    //directional light
+    vec3 result = calculateLight(diffuseColor, specularColor, viewDirection, normalVector, fragmentPosition, directionalLight);
+    //shadows
+    result *= calculateShadow(normalAndShadow.a != 0, fragmentPosition, normalVector, viewDepth);
+    //point and spotlights of the fragment's cluster
+    int cluster = getCluster(viewDepth);
+    int firstLight = clusterGridWidth * clusterGridHeight * clusterGridDepth * 2 + texelFetch(lightClusters, cluster * 2).r;
+    int numberOfLights = texelFetch(lightClusters, cluster * 2 + 1).r;
+    for(int i=0; i<numberOfLights; i++){
+        int lightIndex = texelFetch(lightClusters, firstLight + i).r;
+        result += calculateLight(diffuseColor, specularColor, viewDirection, normalVector, fragmentPosition, getLight(lightIndex));
+    }
+
+    color = vec4(result, 1);
+}
+
+//
+//lighting----------------------------------------------------------------------
+//
+vec3 calculateLight(vec3 materialDiffuseColor, vec4 materialSpecularColor, vec3 viewDirection, vec3 normalVector, vec3 fragmentPosition, Light light){
+    vec3 lightDirection = light.type == POINT_LIGHT ? normalize(fragmentPosition - light.position) : light.direction;
+    vec3 lightToFragmentDirection = light.type == DIRECTIONAL_LIGHT ? light.direction : normalize(fragmentPosition - light.position);
+
+    vec3 diffuse = calculateDiffuseColor(materialDiffuseColor, light.diffuse, normalVector, lightDirection);
+    vec3 specular = calculateSpecularColor(materialSpecularColor, light.specular, normalVector, lightToFragmentDirection, viewDirection);
+    vec3 ambient = calculateAmbientColor(materialDiffuseColor, light.ambient);
+    float attenuation = light.type == DIRECTIONAL_LIGHT ? 1 : calculateAttenuation(fragmentPosition, light.position, light.attenuation);
+    float cutOff = light.type == SPOT_LIGHT ? calculateCutOff(lightToFragmentDirection, lightDirection, light.cutOff) : 1;
+    return (ambient + diffuse + specular) * attenuation * cutOff;
+}
+
+vec3 calculateDiffuseColor(vec3 materialDiffuseColor, vec3 lightDiffuseColor, vec3 normalVector, vec3 lightDirection){
+    float diffuseStrength = max(dot(normalVector, -lightDirection), 0.0);
+    vec3 diffuse = lightDiffuseColor * diffuseStrength * materialDiffuseColor;
+    return diffuse;
+}
+
+vec3 calculateSpecularColor(vec4 materialSpecularColor, vec3 lightSpecularColor, vec3 normalVector, vec3 lightToFragmentDirection, vec3 viewDirection){
+    vec3 halfwayDirection = normalize(-lightToFragmentDirection + viewDirection);  
+    float specularStrength = pow(max(dot(normalVector, halfwayDirection), 0.0), materialSpecularColor.a);
+    return lightSpecularColor * specularStrength * materialSpecularColor.rgb;
+}
+
+vec3 calculateAmbientColor(vec3 materialDiffuseColor, vec3 lightAmbientColor){
+    return lightAmbientColor * materialDiffuseColor;
+}
+
+float calculateAttenuation(vec3 fragmentPosition, vec3 lightPosition, vec3 lightAttenuation){
+    float lightFragmentDistance = length(lightPosition - fragmentPosition);
+    return 1.0f / (lightAttenuation.x + lightAttenuation.y * lightFragmentDistance + lightAttenuation.z * (lightFragmentDistance * lightFragmentDistance));    
+}
+
+float calculateCutOff(vec3 lightToFragmentDirection, vec3 lightDirection, vec2 lightCutOff){
+    float theta = dot(-lightToFragmentDirection, -lightDirection); 
+    float epsilon = lightCutOff.x - lightCutOff.y;
+    return clamp((theta - lightCutOff.y) / epsilon, 0.0, 1.0);
+}
+
+//
+//light clusters----------------------------------------------------------------
+//
+int getCluster(float viewDepth){
+    ivec3 cluster = ivec3(gl_FragCoord.xy * clusterTileScale, floor(log(max(viewDepth, 0.0001)) * clusterDepthScale + clusterDepthBias));
+    cluster = clamp(cluster, ivec3(0), ivec3(clusterGridWidth, clusterGridHeight, clusterGridDepth) - 1);
+    return (cluster.z * clusterGridHeight + cluster.y) * clusterGridWidth + cluster.x;
+}
+
+Light getLight(int index){
+    vec4 positionType = texelFetch(lightData, index * 6);
+    vec4 directionActive = texelFetch(lightData, index * 6 + 1);
+    vec4 attenuationRange = texelFetch(lightData, index * 6 + 2);
+    vec4 ambientCutOff = texelFetch(lightData, index * 6 + 3);
+    vec4 diffuseOuterCutOff = texelFetch(lightData, index * 6 + 4);
+    vec4 specular = texelFetch(lightData, index * 6 + 5);
+    return Light(positionType.xyz, directionActive.xyz, attenuationRange.xyz, ambientCutOff.rgb, diffuseOuterCutOff.rgb, specular.rgb,
+            vec2(ambientCutOff.a, diffuseOuterCutOff.a), int(positionType.w), directionActive.w != 0);
+}
+
+//
+//misc--------------------------------------------------------------------------
+//
+float calculateShadow(bool receiveShadow, vec3 fragmentPosition, vec3 normalVector, float viewDepth){
+    if(!receiveShadow){
+        return 1;
+    }else if(dot(normalVector, -directionalLight.direction) < 0){
+        return 0.3f;
+    }
+    //cascade selection
+    int cascade = 0;
+    while(cascade < numberOfShadowCascades && viewDepth > shadowCascadeFarDistances[cascade]){
+        cascade++;
+    }
+    if(cascade == numberOfShadowCascades){
+        return 1;
+    }
+    //the cascades are stored in a 2 columns wide atlas
+    vec2 atlasTiles = numberOfShadowCascades == 1 ? vec2(1, 1) : vec2(2, (numberOfShadowCascades + 1) / 2);
+    vec2 tileOffset = vec2(cascade % 2, cascade / 2);
+    vec2 texelSize = 1.0 / textureSize(shadowMap, 0);
+    vec2 tileTexelSize = texelSize * atlasTiles;
+    vec4 fragmentPositionLightSpace = shadowProjectionViewMatrices[cascade] * vec4(fragmentPosition, 1.0);
+    vec3 projectionCoordinates = fragmentPositionLightSpace.xyz / fragmentPositionLightSpace.w;
+    projectionCoordinates = projectionCoordinates * 0.5 + 0.5;
+    float currentDepth = projectionCoordinates.z;
+    float bias = max(0.00005 * (1.0 - dot(normalVector, directionalLight.direction)    ), 0.000005f)  * tileTexelSize.x * 3500;
+    float shadow = 0.0;
+    for(int x = -1; x <= 1; ++x){
+        for(int y = -1; y <= 1; ++y){
+            //the samples can't leave the cascade's tile
+            vec2 tileCoordinates = clamp(projectionCoordinates.xy + vec2(x, y) * tileTexelSize, tileTexelSize * 0.5, 1.0 - tileTexelSize * 0.5);
+            float pcfDepth = texture(shadowMap, (tileOffset + tileCoordinates) / atlasTiles).r; 
+            shadow += currentDepth - bias > pcfDepth  ? 0.3 : 1.0;        
+        }    
+    }
+    shadow /= 9.0;
+    return shadow;
+}
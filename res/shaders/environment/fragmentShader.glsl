@@ -21,12 +21,9 @@ struct Light {              //base alignment        alignment offset
 };                          //                      112
 
 #define DIRECTIONAL_LIGHT 0
-#define lightNumber 16
 layout (std140, binding = 1) uniform LightSources {
-    Light lights[lightNumber];                      //i * 112
-    Light directionalLight;                         //1792
-    int maxLightSources;                            //1904
-};                                                  //1908
+    Light directionalLight;                         //0
+};                                                  //112
 
 in vec3 normalF;
 in vec2 textureCoordinatesF;
@@ -0,0 +1,30 @@
+#version 420 core
+
+layout (triangles) in;
+layout (triangle_strip, max_vertices = 18) out;
+
+in vec3 normalG[];
+in vec2 textureCoordinatesG[];
+
+out vec3 normalF;
+out vec2 textureCoordinatesF;
+
+uniform mat4 projectionViewMatrices[6];
+uniform int faceMask;
+
+void main(){
+    for(int face = 0; face < 6; face++){
+        //the object isn't inside the face's frustum
+        if((faceMask & (1 << face)) == 0){
+            continue;
+        }
+        for(int i = 0; i < 3; i++){
+            gl_Layer = face;
+            gl_Position = projectionViewMatrices[face] * gl_in[i].gl_Position;
+            normalF = normalG[i];
+            textureCoordinatesF = textureCoordinatesG[i];
+            EmitVertex();
+        }
+        EndPrimitive();
+    }
+}
@@ -0,0 +1,17 @@
+#version 420 core
+
+layout (location = 0) in vec3 position;
+layout (location = 1) in vec2 textureCoordinates;
+layout (location = 2) in vec3 normal;
+
+out vec3 normalG;
+out vec2 textureCoordinatesG;
+
+uniform mat4 modelMatrix;
+uniform mat3 inverseModelMatrix3x3;
+
+void main(){
+    gl_Position = modelMatrix * vec4(position, 1.0f);
+    normalG = normalize(normal * inverseModelMatrix3x3);
+    textureCoordinatesG = textureCoordinates;
+}
@@ -0,0 +1,211 @@
+#version 420 core
+
+in vec3 fragmentPositionF;
+in vec3 normalF;
+in vec2 textureCoordinatesF;
+in vec3 viewPositionF;
+in float viewDepthF;
+in mat3 TBN;
+in mat3 inverseModelMatrix3x3F;
+
+layout (location = 0) out vec4 albedo;
+layout (location = 1) out vec4 normalAndShadow;
+layout (location = 2) out vec4 specularAndGlossiness;
+
+#define MAX_SHADOW_CASCADES 4
+layout (std140, binding = 3) uniform Frame {
+    mat4 shadowProjectionViewMatrices[MAX_SHADOW_CASCADES];   //i * 64
+    vec4 shadowCascadeFarDistances;                 //256
+    vec3 viewPosition;                              //272
+    bool gamma;                                     //284
+    bool wireframe;                                 //288
+    int numberOfShadowCascades;                     //292
+    float clusterDepthScale;                        //296
+    float clusterDepthBias;                         //300
+    vec2 clusterTileScale;                          //304
+    int clusterGridWidth;                           //312
+    int clusterGridHeight;                          //316
+    int clusterGridDepth;                           //320
+};                                                  //336
+
+layout (std140, binding = 4) uniform Object {
+    mat4 modelMatrix;                               //0
+    mat4 inverseModelMatrix;                        //64
+    bool receiveShadow;                             //128
+    bool instanced;                                 //132
+};                                                  //144
+
+layout (std140, binding = 5) uniform Material {
+    vec4 diffuseColor;                              //0
+    vec4 specularColor;                             //16
+    vec4 environmentIntensityColor;                 //32
+    vec2 diffuseTile;                               //48
+    vec2 diffuseOffset;                             //56
+    vec2 specularTile;                              //64
+    vec2 specularOffset;                            //72
+    vec2 normalTile;                                //80
+    vec2 normalOffset;                              //88
+    vec2 environmentIntensityTile;                  //96
+    vec2 environmentIntensityOffset;                //104
+    float POMScale;                                 //112
+    float POMMinLayers;                             //116
+    float POMMaxLayers;                             //120
+    float refractionIndex;                          //124
+    bool isThereDiffuseMap;                         //128
+    bool isThereSpecularMap;                        //132
+    bool isThereGlossiness;                         //136
+    bool isThereNormalMap;                          //140
+    bool isTherePOM;                                //144
+    bool isThereReflectionMap;                      //148
+    bool isThereRefractionMap;                      //152
+    bool isThereEnvironmentIntensityMap;            //156
+} material;                                         //160
+
+uniform sampler2D diffuseMap;
+uniform sampler2D specularMap;
+uniform sampler2D normalMap;
+uniform samplerCube reflectionMap;
+uniform samplerCube refractionMap;
+uniform sampler2D environmentIntensityMap;
+
+//data collection
+vec3 getDiffuseColor(vec2 textureCoordinates, vec3 viewDirection, vec3 normalVector);
+vec4 getSpecularColor(vec2 textureCoordinates);
+vec3 getNormalVector(vec2 textureCoordinates);
+vec2 getTextureCoordinates();
+vec3 getIntensity(vec2 textureCoordinates);
+//misc
+vec2 parallaxMapping(in vec3 textureCoordinates, in vec2 tangentViewDirection);
+
+void main(){
+    if(wireframe){
+        albedo = vec4(0, 0, 0, 1);
+        normalAndShadow = vec4(0, 0, 1, 0);
+        specularAndGlossiness = vec4(0, 0, 0, 1);
+        return;
+    }
+    vec3 viewDirection = normalize(viewPositionF - fragmentPositionF);
+    vec2 textureCoordinates = getTextureCoordinates();
+    vec3 normalVector = getNormalVector(textureCoordinates);
+    albedo = vec4(getDiffuseColor(textureCoordinates, viewDirection, normalVector), 1);
+    normalAndShadow = vec4(normalVector, receiveShadow ? 1 : 0);
+    specularAndGlossiness = getSpecularColor(textureCoordinates);
+}
+
+//
+//misc--------------------------------------------------------------------------
+//
+vec2 parallaxMapping(in vec3 tangentViewDirection, in vec2 textureCoordinates){
+    float numLayers = mix(material.POMMaxLayers, material.POMMinLayers, abs(dot(vec3(0, 0, 1), tangentViewDirection)));
+    float layerHeight = 1.0 / numLayers;
+    float curLayerHeight = 0;
+    vec2 dtex = material.POMScale * tangentViewDirection.xy / numLayers;
+    vec2 currentTextureCoords = textureCoordinates;
+    float heightFromTexture = texture(normalMap, currentTextureCoords).a;
+    while(heightFromTexture > curLayerHeight){
+        curLayerHeight += layerHeight; 
+        currentTextureCoords -= dtex;
+        heightFromTexture = texture(normalMap, currentTextureCoords).a;
+    }
+
+    vec2 prevTCoords = currentTextureCoords + dtex;
+    float nextH	= heightFromTexture - curLayerHeight;
+    float prevH	= texture(normalMap, prevTCoords).a - curLayerHeight + layerHeight;
+    float weight = nextH / (nextH - prevH);
+    vec2 finalTexCoords = prevTCoords * weight + currentTextureCoords * (1.0-weight);
+    if(finalTexCoords.x > 1.0 || finalTexCoords.y > 1.0 || finalTexCoords.x < 0.0 || finalTexCoords.y < 0.0){
+        discard;
+    }
+    return finalTexCoords;
+}
+
+//
+//data collection---------------------------------------------------------------
+//
+vec3 getDiffuseColor(vec2 textureCoordinates, vec3 viewDirection, vec3 normalVector){
+    vec3 diffuse;
+    if(material.isThereDiffuseMap){
+        vec4 tex = texture(diffuseMap, textureCoordinates * material.diffuseTile + material.diffuseOffset);
+        if(tex.a == 0){
+            discard;
+        }
+        diffuse = tex.rgb;
+    }else{
+        if(gamma){
+            diffuse = pow(material.diffuseColor.rgb, vec3(2.2f));
+        }else{
+            diffuse = material.diffuseColor.rgb;
+        }
+    }
+
+    vec3 reflectionColor;
+    if(material.isThereReflectionMap){
+        vec3 reflectionVector = reflect(-viewDirection, normalVector);
+        reflectionColor = texture(reflectionMap, reflectionVector).rgb;
+    }
+    vec3 refractionColor;
+    if(material.isThereRefractionMap){
+        vec3 refractionVector = refract(-viewDirection, normalVector, material.refractionIndex);
+        refractionColor = texture(refractionMap, refractionVector).rgb;
+    }
+    vec3 intensity = getIntensity(textureCoordinates);
+    return diffuse * intensity.r + reflectionColor * intensity.g + refractionColor * intensity.b;
+}
+
+vec3 getIntensity(vec2 textureCoordinates){
+    vec3 intensity;
+    float sum;
+    if(material.isThereEnvironmentIntensityMap){
+        intensity = texture(environmentIntensityMap, textureCoordinates * material.environmentIntensityTile + material.environmentIntensityOffset).rgb;
+    }else{
+        intensity = material.environmentIntensityColor.rgb;
+    }
+    if(!material.isThereReflectionMap){
+        intensity.g = 0;
+    }
+    if(!material.isThereRefractionMap){
+        intensity.b = 0;
+    }
+    sum = intensity.r + intensity.g + intensity.b;
+    if(sum == 0){
+        return vec3(1, 0, 0);
+    }else{
+        intensity /= sum;
+        return intensity;
+    }
+}
+
+vec4 getSpecularColor(vec2 textureCoordinates){
+    vec4 ret;
+    if(material.isThereSpecularMap){
+        ret = texture(specularMap, textureCoordinates * material.specularTile + material.specularOffset);
+        if(material.isThereGlossiness){
+            ret.a = material.specularColor.a;
+        }
+    }else{
+        ret = material.specularColor;
+    }
+    ret.a *= 255.0f;
+    return ret;
+}
+
+vec3 getNormalVector(vec2 textureCoordinates){
+    if(material.isThereNormalMap){
+        vec3 normal = texture(normalMap, textureCoordinates * material.normalTile + material.normalOffset).rgb;
+        normal = normalize(normal * 2.0 - 1.0);
+        normal = TBN * normal;
+        return normalize(normal * inverseModelMatrix3x3F);
+    }else{
+        return normalize(normalF);
+    }
+}
+
+vec2 getTextureCoordinates(){
+    if(material.isThereNormalMap && material.isTherePOM){
+        vec3 tangentViewPosition = viewPositionF * TBN;
+        vec3 tangentFragmentPosition = fragmentPositionF * TBN;
+        return parallaxMapping(normalize(tangentViewPosition - tangentFragmentPosition), textureCoordinatesF * material.normalTile + material.normalOffset);
+    }else{
+        return textureCoordinatesF;
+    }
+}
\ No newline at end of file
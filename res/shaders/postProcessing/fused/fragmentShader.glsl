@@ -0,0 +1,41 @@
+#version 330 core
+
+//the generated defines (the active effects and the EFFECTS macro) are inserted here
+
+out vec4 color;
+in vec2 textureCoordinatesF;
+
+uniform sampler2D image;
+#ifdef GAMMA_CORRECTION
+uniform float gamma;
+#endif
+
+#ifdef INVERT
+vec4 invert(vec4 color){
+    return vec4(vec3(1.0 - color), 1.0);
+}
+#endif
+
+#ifdef GRAYSCALE
+vec4 grayscale(vec4 color){
+    float average = 0.2126 * color.r + 0.7152 * color.g + 0.0722 * color.b;
+    return vec4(average, average, average, 1.0);
+}
+#endif
+
+#ifdef REINHARD_TONE_MAPPING
+vec4 reinhardToneMapping(vec4 color){
+    return vec4(color.rgb / (color.rgb + vec3(1)), color.a);
+}
+#endif
+
+#ifdef GAMMA_CORRECTION
+vec4 gammaCorrection(vec4 color){
+    return vec4(pow(color.rgb, vec3(1.0f / gamma)), 1);
+}
+#endif
+
+void main(){
+    color = texture(image, textureCoordinatesF);
+    EFFECTS
+}
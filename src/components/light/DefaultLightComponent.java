@@ -6,13 +6,18 @@ import java.nio.*;
 import java.util.*;
 import org.joml.*;
 import org.lwjgl.*;
+import org.lwjgl.opengl.*;
 import resources.*;
 import toolbox.*;
 import toolbox.annotations.*;
 
 /**
  * This abstract class stores the light's diffuse, specular and ambient
- * components.
+ * components. The directional light is stored in the LightSources UBO, while
+ * the point and spot lights are stored in the light data buffer texture. The
+ * number of the point and spot lights isn't limited, the renderers assign them
+ * to the view frustum's clusters, so the shaders only compute the lights which
+ * affect the given fragment.
  *
  * @see GameObject
  * @see DirectionalLight
@@ -34,23 +39,43 @@ public abstract class DefaultLightComponent extends Component {
      */
     private final Vector3f ambientColor = new Vector3f(0.1f);
     /**
-     * The LightSources UBO's lights.
+     * A point or spot light's data size in the light data (in bytes). It's 6
+     * vec4s: position and type, direction and active, attenuation and range,
+     * ambient color and cutoff, diffuse color and outer cutoff, specular
+     * color.
      */
-    private static DefaultLightComponent[] lights = new DefaultLightComponent[16];
+    public static final int LIGHT_DATA_SIZE = 96;
     /**
-     * The highest valid UBO index.
+     * The light intensity (relative to the light's brightest color component)
+     * where the point and spot lights' range ends.
+     */
+    public static final float ATTENUATION_THRESHOLD = 1f / 256f;
+    /**
+     * The point and spot lights in their light data slots.
+     */
+    private static List<DefaultLightComponent> lights = new ArrayList<>();
+    /**
+     * The highest valid light index.
      */
     private static int maxLightIndex = -1;
     /**
-     * The maximum number of lights that the UBO can store.
+     * The point and spot lights' data.
+     */
+    private static ByteBuffer lightData;
+    /**
+     * The light data buffer texture.
+     */
+    private static TextureBuffer lightDataBuffer;
+    /**
+     * Determines whether the light data changed since the last upload.
      */
-    protected static final int maxLights = 16;
+    private static boolean lightDataChanged = true;
     /**
      * The LightSources UBO.
      */
     protected static Ubo ubo;
     /**
-     * The light's index in the UBO.
+     * The light's index in the UBO or in the light data.
      */
     private int uboIndex = -1;
     /**
@@ -64,6 +89,7 @@ public abstract class DefaultLightComponent extends Component {
 
     static {
         createUbo();
+        lightData = BufferUtils.createByteBuffer(16 * LIGHT_DATA_SIZE);
         floatBuffer = BufferUtils.createFloatBuffer(26);
         intBuffer = BufferUtils.createIntBuffer(2);
     }
@@ -174,92 +200,213 @@ public abstract class DefaultLightComponent extends Component {
     }
 
     /**
-     * Adds the light to the UBO.
+     * Adds the light to the light data.
      */
     protected void addLightToUbo() {
-        if (getGameObject() == null || getUboIndex() != -1 || ubo == null || !ubo.isUsable()) {
+        if (getGameObject() == null || getUboIndex() != -1 || lights == null) {
             return;
         }
-        int free = -1;
-        for (int i = 0; i < lights.length; i++) {
-            if (lights[i] == null) {
-                free = i;
-                break;
-            }
+        int free = lights.indexOf(null);
+        if (free == -1) {
+            free = lights.size();
+            lights.add(this);
+        } else {
+            lights.set(free, this);
         }
-        if (free != -1) {
-            if (free > maxLightIndex) {
-                maxLightIndex = free;
-            }
-            setUboIndex(free);
-            lights[free] = this;
-            updateUbo();
-            updateMaxLightSources();
+        if (free > maxLightIndex) {
+            maxLightIndex = free;
         }
+        ensureLightDataCapacity(free + 1);
+        setUboIndex(free);
+        updateUbo();
     }
 
     /**
-     * Removes the light from the UBO.
+     * Removes the light from the light data.
      */
     protected void removeLightFromUbo() {
         int index = getUboIndex();
-        if (getGameObject() != null || index == -1 || ubo == null || !ubo.isUsable()) {
+        if (getGameObject() != null || index == -1 || lights == null) {
             return;
         }
-        lights[index] = null;
-        intBuffer.limit(1);
-        intBuffer.position(0);
-        intBuffer.put(0);
-        intBuffer.position(0);
-        ubo.bind();
-        ubo.storeData(intBuffer, index * 112 + 108);
-        ubo.unbind();
+        lights.set(index, null);
+        lightData.putFloat(index * LIGHT_DATA_SIZE + 28, 0);
+        lightDataChanged = true;
         setUboIndex(-1);
         if (index == getMaxLightIndex()) {
-            for (int i = getMaxLightIndex() - 1; i >= 0; i--) {
-                if (lights[i] != null) {
+            maxLightIndex = -1;
+            for (int i = index - 1; i >= 0; i--) {
+                if (lights.get(i) != null) {
                     maxLightIndex = i;
                     break;
                 }
             }
-            if (maxLightIndex == index) {
-                maxLightIndex = -1;
-            }
         }
-        updateMaxLightSources();
     }
 
     /**
-     * Updates the max light sources number in the UBO.
+     * Grows the light data to be able to store the given number of lights.
+     *
+     * @param numberOfLights number of lights
      */
-    private static void updateMaxLightSources() {
-        intBuffer.limit(1);
-        intBuffer.position(0);
-        intBuffer.put(getMaxLightIndex() + 1);
-        intBuffer.position(0);
-        ubo.bind();
-        ubo.storeData(intBuffer, 1904);
-        ubo.unbind();
+    private static void ensureLightDataCapacity(int numberOfLights) {
+        int size = numberOfLights * LIGHT_DATA_SIZE;
+        if (lightData.capacity() >= size) {
+            return;
+        }
+        ByteBuffer newLightData = BufferUtils.createByteBuffer(java.lang.Math.max(size, lightData.capacity() * 2));
+        lightData.clear();
+        newLightData.put(lightData);
+        newLightData.clear();
+        lightData = newLightData;
     }
 
     /**
-     * Returns the maximum number of lights that the UBO can store.
+     * Stores a point or spot light's data in the light data.
      *
-     * @return the maximum number of lights that the UBO can store
+     * @param type        the light's type (1 for point and 2 for spot lights)
+     * @param direction   the light's direction
+     * @param constant    attenuation's constant component
+     * @param linear      attenuation's linear component
+     * @param quadratic   attenuation's quadratic component
+     * @param cutoff      cosine of the cutoff component
+     * @param outerCutoff cosine of the outer cutoff component
      */
-    public static int getMaxNumberOfLights() {
-        return maxLights;
+    protected void storeLightData(int type, @NotNull Vector3f direction, float constant, float linear, float quadratic, float cutoff, float outerCutoff) {
+        int offset = getUboIndex() * LIGHT_DATA_SIZE;
+        Vector3f position = getGameObject().getTransform().getAbsolutePosition();
+        putVector(offset, position, type);
+        putVector(offset + 16, direction, isActive() ? 1 : 0);
+        putVector(offset + 32, constant, linear, quadratic, computeRange(constant, linear, quadratic));
+        putVector(offset + 48, ambientColor, cutoff);
+        putVector(offset + 64, diffuseColor, outerCutoff);
+        putVector(offset + 80, specularColor, 0);
+        lightDataChanged = true;
     }
 
     /**
-     * The highest valid UBO index.
+     * Stores the given vector in the light data.
      *
-     * @return the highest valid UBO index
+     * @param offset offset (in bytes)
+     * @param vector the vector's x, y and z coordinates
+     * @param w      the vector's w coordinate
+     */
+    private static void putVector(int offset, @NotNull Vector3f vector, float w) {
+        putVector(offset, vector.x, vector.y, vector.z, w);
+    }
+
+    /**
+     * Stores the given vector in the light data.
+     *
+     * @param offset offset (in bytes)
+     * @param x      x coordinate
+     * @param y      y coordinate
+     * @param z      z coordinate
+     * @param w      w coordinate
+     */
+    private static void putVector(int offset, float x, float y, float z, float w) {
+        lightData.putFloat(offset, x);
+        lightData.putFloat(offset + 4, y);
+        lightData.putFloat(offset + 8, z);
+        lightData.putFloat(offset + 12, w);
+    }
+
+    /**
+     * Returns the distance where the light's attenuated intensity falls below
+     * the attenuation threshold. It returns infinity if the light doesn't
+     * attenuate.
+     *
+     * @param constant  attenuation's constant component
+     * @param linear    attenuation's linear component
+     * @param quadratic attenuation's quadratic component
+     *
+     * @return the light's range
+     *
+     * @see #ATTENUATION_THRESHOLD
+     */
+    protected float computeRange(float constant, float linear, float quadratic) {
+        float brightest = java.lang.Math.max(ambientColor.get(ambientColor.maxComponent()),
+                java.lang.Math.max(diffuseColor.get(diffuseColor.maxComponent()), specularColor.get(specularColor.maxComponent())));
+        float limit = brightest / ATTENUATION_THRESHOLD - constant;
+        if (limit <= 0) {
+            return 0;
+        } else if (quadratic > 0) {
+            return (float) ((-linear + java.lang.Math.sqrt(linear * linear + 4 * quadratic * limit)) / (2 * quadratic));
+        } else if (linear > 0) {
+            return limit / linear;
+        } else {
+            return Float.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Returns the point and spot lights' data. It contains the slots from 0
+     * to the highest valid light index, each of them is LIGHT_DATA_SIZE bytes
+     * long. The empty slots and the inactive lights' active value is 0.
+     *
+     * @return the point and spot lights' data
+     *
+     * @see #LIGHT_DATA_SIZE
+     * @see #getMaxLightIndex()
+     */
+    @NotNull @ReadOnly
+    public static ByteBuffer getLightData() {
+        return lightData;
+    }
+
+    /**
+     * Uploads the light data to the light data buffer texture (if it changed
+     * since the last upload) and binds the buffer texture to the given
+     * texture unit.
+     *
+     * @param textureUnit texture unit
+     *
+     * @throws IllegalArgumentException texture unit must be in the [0;31]
+     *                                  interval
+     */
+    public static void bindLightData(int textureUnit) {
+        if (lightDataBuffer == null || !lightDataBuffer.isUsable()) {
+            lightDataBuffer = new TextureBuffer(GL30.GL_RGBA32F);
+            lightDataChanged = true;
+        }
+        if (lightDataChanged) {
+            lightData.position(0);
+            lightData.limit(java.lang.Math.max(1, getMaxLightIndex() + 1) * LIGHT_DATA_SIZE);
+            lightDataBuffer.storeData(lightData);
+            lightData.clear();
+            lightDataChanged = false;
+        }
+        lightDataBuffer.bindToTextureUnit(textureUnit);
+    }
+
+    /**
+     * Returns the highest valid light index. The point and spot lights' light
+     * indices are in the [0;getMaxLightIndex()] interval.
+     *
+     * @return the highest valid light index
      */
     public static int getMaxLightIndex() {
         return maxLightIndex;
     }
 
+    /**
+     * Returns the point or spot light in the given light data slot.
+     *
+     * @param index light index
+     *
+     * @return the light (or null if the slot is empty)
+     *
+     * @throws IndexOutOfBoundsException index must be in the
+     *                                   [0;getMaxLightIndex()] interval
+     */
+    @Nullable
+    public static DefaultLightComponent getLight(int index) {
+        if (index < 0 || index > getMaxLightIndex()) {
+            throw new IndexOutOfBoundsException("Index must be in the [0;" + getMaxLightIndex() + "] interval");
+        }
+        return lights.get(index);
+    }
+
     /**
      * Returns the light's UBO index.
      *
@@ -280,7 +427,8 @@ public abstract class DefaultLightComponent extends Component {
     }
 
     /**
-     * Updates the light in the UBO.
+     * Updates the light in the UBO (directional light) or in the light data
+     * (point and spot lights).
      */
     protected abstract void updateUbo();
 
@@ -291,7 +439,7 @@ public abstract class DefaultLightComponent extends Component {
         if (ubo == null || !ubo.isUsable()) {
             ubo = new Ubo();
             ubo.bind();
-            ubo.allocateMemory(1908, false);
+            ubo.allocateMemory(112, false);
             ubo.unbind();
             ubo.bindToBindingPoint(1);
         }
@@ -299,13 +447,17 @@ public abstract class DefaultLightComponent extends Component {
 
     /**
      * Releases the UBO. After calling this mathod, you can't use the
-     * LightSources UBO and can't recreate it. Note that some renderers (like
-     * the BlinnPhongRenderer) may expect to access to the LightSources UBO
-     * (which isn't possible after calling this method).
+     * LightSources UBO and the light data and can't recreate them. Note that
+     * some renderers (like the BlinnPhongRenderer) may expect to access to the
+     * LightSources UBO (which isn't possible after calling this method).
      */
     public static void releaseUbo() {
         ubo.release();
         ubo = null;
+        if (lightDataBuffer != null && lightDataBuffer.isUsable()) {
+            lightDataBuffer.release();
+        }
+        lightDataBuffer = null;
         maxLightIndex = -1;
         for (DefaultLightComponent light : lights) {
             if (light != null) {
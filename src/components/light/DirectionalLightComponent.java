@@ -1,6 +1,7 @@
 package components.light;
 
 import static components.light.DefaultLightComponent.ubo;
+import components.camera.*;
 import components.light.lightTypes.*;
 import core.*;
 import org.joml.*;
@@ -28,6 +29,14 @@ public class DirectionalLightComponent extends DefaultLightComponent implements
      * Performs the frustum intersection tests for shadow mapping.
      */
     private final FrustumIntersection frustum = new FrustumIntersection();
+    /**
+     * The shadow cascades.
+     */
+    private final ShadowCascades shadowCascades = new ShadowCascades();
+    /**
+     * Determines wheter the shadow cascades are valid.
+     */
+    private boolean shadowCascadesValid;
 
     /**
      * Initializes a new DirectionalLightComponent.
@@ -117,9 +126,58 @@ public class DirectionalLightComponent extends DefaultLightComponent implements
                 frustum.set(projectionViewMatrix);
             }
             valid = true;
+            shadowCascadesValid = false;
         }
     }
 
+    /**
+     * Returns the light's shadow cascades fitted to the scene's camera. If
+     * this Component isn't connected to a GameObject, or the scene doesn't
+     * have a camera, this method returns null. Note that the returned object
+     * is reused when the camera, the light or the shadow settings change.
+     *
+     * @return the light's shadow cascades
+     *
+     * @see Settings#getNumberOfShadowCascades()
+     * @see Settings#getShadowCascadeSplitScheme()
+     * @see Settings#getShadowCascadeSplitLambda()
+     * @see Settings#getShadowMapResolution()
+     */
+    @Nullable @ReadOnly
+    public ShadowCascades getShadowCascades() {
+        if (getGameObject() == null || Scene.getCamera() == null) {
+            return null;
+        }
+        refresh();
+        if (!shadowCascadesValid || areShadowSettingsChanged()) {
+            shadowCascades.setNumberOfCascades(Settings.getNumberOfShadowCascades());
+            shadowCascades.setSplitScheme(Settings.getShadowCascadeSplitScheme());
+            shadowCascades.setSplitLambda(Settings.getShadowCascadeSplitLambda());
+            shadowCascades.setResolution(Settings.getShadowMapResolution());
+            shadowCascades.setCasterDistance(Settings.getShadowCameraDistance());
+            Camera camera = Scene.getCamera();
+            Matrix4f lightViewMatrix = Utility.computeViewMatrix(new Vector3f(), getGameObject().getTransform().getAbsoluteRotation());
+            shadowCascades.update(camera.getViewMatrix(), camera.getProjectionMatrix(), lightViewMatrix);
+            shadowCascadesValid = true;
+        }
+        return shadowCascades;
+    }
+
+    /**
+     * Determines whether the shadow cascades' settings are changed since the
+     * last update.
+     *
+     * @return true if the shadow cascades' settings are changed, false
+     *         otherwise
+     */
+    private boolean areShadowSettingsChanged() {
+        return shadowCascades.getNumberOfCascades() != Settings.getNumberOfShadowCascades()
+                || shadowCascades.getSplitScheme() != Settings.getShadowCascadeSplitScheme()
+                || shadowCascades.getSplitLambda() != Settings.getShadowCascadeSplitLambda()
+                || shadowCascades.getResolution() != Settings.getShadowMapResolution()
+                || shadowCascades.getCasterDistance() != Settings.getShadowCameraDistance();
+    }
+
     /**
      * Returns the light's projection view matrix. If this Component isn't
      * connected to a GameObject, this method returns null.
@@ -147,7 +205,7 @@ public class DirectionalLightComponent extends DefaultLightComponent implements
         if (Scene.getDirectionalLight() != this || getUboIndex() != -1 || ubo == null || !ubo.isUsable()) {
             return;
         }
-        setUboIndex(getMaxNumberOfLights());
+        setUboIndex(0);
         updateUbo();
     }
 
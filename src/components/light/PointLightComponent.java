@@ -1,8 +1,8 @@
 package components.light;
 
-import static components.light.DefaultLightComponent.ubo;
 import components.light.lightTypes.*;
 import core.*;
+import org.joml.*;
 
 /**
  * Basic implementation of a point light source.
@@ -12,6 +12,10 @@ import core.*;
 //TODO shadow mapping, frustum culling
 public class PointLightComponent extends DefaultLightComponent implements PointLight {
 
+    /**
+     * The point lights don't have direction.
+     */
+    private static final Vector3f NO_DIRECTION = new Vector3f(-1);
     /**
      * Attenuation's constant component.
      */
@@ -71,52 +75,25 @@ public class PointLightComponent extends DefaultLightComponent implements PointL
         updateUbo();
     }
 
+    /**
+     * Returns the distance where the light's attenuated intensity falls below
+     * the attenuation threshold. The light doesn't affect the objects beyond
+     * this distance.
+     *
+     * @return the light's range
+     *
+     * @see #ATTENUATION_THRESHOLD
+     */
+    public float getRange() {
+        return computeRange(getConstant(), getLinear(), getQuadratic());
+    }
+
     @Override
     protected void updateUbo() {
-        if (getUboIndex() == -1 || getGameObject() == null || ubo == null || !ubo.isUsable()) {
+        if (getUboIndex() == -1 || getGameObject() == null) {
             return;
         }
-        floatBuffer.position(0);
-        //position
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getGameObject().getTransform().getAbsolutePosition().get(i));
-        }
-        floatBuffer.put(-1);
-        //direction
-        floatBuffer.put(-1);
-        floatBuffer.put(-1);
-        floatBuffer.put(-1);
-        floatBuffer.put(-1);
-        //attenutation
-        floatBuffer.put(getConstant());
-        floatBuffer.put(getLinear());
-        floatBuffer.put(getQuadratic());
-        floatBuffer.put(-1);
-        //ambient
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getAmbientColor().get(i));
-        }
-        floatBuffer.put(-1);
-        //diffuse
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getDiffuseColor().get(i));
-        }
-        floatBuffer.put(-1);
-        //specular
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getSpecularColor().get(i));
-        }
-        floatBuffer.position(0);
-        //type, active
-        intBuffer.limit(2);
-        intBuffer.position(0);
-        intBuffer.put(1);
-        intBuffer.put(isActive() ? 1 : 0);
-        intBuffer.position(0);
-        ubo.bind();
-        ubo.storeData(floatBuffer, getUboIndex() * 112);
-        ubo.storeData(intBuffer, getUboIndex() * 112 + 104);
-        ubo.unbind();
+        storeLightData(1, NO_DIRECTION, getConstant(), getLinear(), getQuadratic(), -1, -1);
     }
 
     @Override
@@ -1,6 +1,5 @@
 package components.light;
 
-import static components.light.DefaultLightComponent.ubo;
 import components.light.lightTypes.*;
 import core.*;
 
@@ -134,56 +133,27 @@ public class SpotLightComponent extends DefaultLightComponent implements SpotLig
         updateUbo();
     }
 
+    /**
+     * Returns the distance where the light's attenuated intensity falls below
+     * the attenuation threshold. The light doesn't affect the objects beyond
+     * this distance.
+     *
+     * @return the light's range
+     *
+     * @see #ATTENUATION_THRESHOLD
+     */
+    public float getRange() {
+        return computeRange(getConstant(), getLinear(), getQuadratic());
+    }
+
     @Override
     protected void updateUbo() {
-        if (getUboIndex() == -1 || getGameObject() == null || ubo == null || !ubo.isUsable()) {
+        if (getUboIndex() == -1 || getGameObject() == null) {
             return;
         }
-        floatBuffer.position(0);
-        //position
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getGameObject().getTransform().getAbsolutePosition().get(i));
-        }
-        floatBuffer.put(-1);
-        //direction
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getGameObject().getTransform().getForwardVector().get(i));
-        }
-        floatBuffer.put(-1);
-        //attenutation
-        floatBuffer.put(getConstant());
-        floatBuffer.put(getLinear());
-        floatBuffer.put(getQuadratic());
-        floatBuffer.put(-1);
-        //ambient
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getAmbientColor().get(i));
-        }
-        floatBuffer.put(-1);
-        //diffuse
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getDiffuseColor().get(i));
-        }
-        floatBuffer.put(-1);
-        //specular
-        for (int i = 0; i < 3; i++) {
-            floatBuffer.put(getSpecularColor().get(i));
-        }
-        floatBuffer.put(-1);
-        //cutoff
-        floatBuffer.put((float) java.lang.Math.cos(java.lang.Math.toRadians(getCutoff())));
-        floatBuffer.put((float) java.lang.Math.cos(java.lang.Math.toRadians(getOuterCutoff())));
-        floatBuffer.position(0);
-        //type, active
-        intBuffer.limit(2);
-        intBuffer.position(0);
-        intBuffer.put(2);
-        intBuffer.put(isActive() ? 1 : 0);
-        intBuffer.position(0);
-        ubo.bind();
-        ubo.storeData(floatBuffer, getUboIndex() * 112);
-        ubo.storeData(intBuffer, getUboIndex() * 112 + 104);
-        ubo.unbind();
+        float cosCutoff = (float) java.lang.Math.cos(java.lang.Math.toRadians(getCutoff()));
+        float cosOuterCutoff = (float) java.lang.Math.cos(java.lang.Math.toRadians(getOuterCutoff()));
+        storeLightData(2, getGameObject().getTransform().getForwardVector(), getConstant(), getLinear(), getQuadratic(), cosCutoff, cosOuterCutoff);
     }
 
     @Override
@@ -16,6 +16,7 @@ import toolbox.annotations.*;
  * @see Renderer
  *
  */
+@ThreadSafe
 public class MeshComponent extends Component {
 
     /**
@@ -50,6 +51,16 @@ public class MeshComponent extends Component {
      * Determines whether the Mesh rendered two sided.
      */
     private boolean twoSided = false;
+    /**
+     * Determines whether the Mesh's shadow can be cached.
+     */
+    private boolean staticShadowCaster = false;
+    /**
+     * The occluder which hides the other MeshComponents behind this one.
+     *
+     * @see Settings#isOcclusionCulling()
+     */
+    private Occluder occluder;
     /**
      * The mesh's original axis alligned bouning box's minimum values.
      */
@@ -78,6 +89,28 @@ public class MeshComponent extends Component {
      * Determines whether the Component is valid.
      */
     private boolean valid;
+    /**
+     * Temporary storage for the Mesh's axis alligned bounding box's minimum
+     * values.
+     */
+    private final Vector3f meshAabbMin = new Vector3f();
+    /**
+     * Temporary storage for the Mesh's axis alligned bounding box's maximum
+     * values.
+     */
+    private final Vector3f meshAabbMax = new Vector3f();
+    /**
+     * Temporary storage for the GameObject's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Temporary storage for the GameObject's absolute scale.
+     */
+    private final Vector3f absoluteScale = new Vector3f();
+    /**
+     * The level of detail selected for the camera.
+     */
+    private int lod;
 
     private boolean reflectable;
 
@@ -161,54 +194,44 @@ public class MeshComponent extends Component {
         Material old = this.material;
         this.material = material;
         Scene.refreshMeshComponent(this, old);
+        invalidateCachedRenderings();
     }
 
     @Override
     public void invalidate() {
         super.invalidate();
         valid = false;
+        invalidateCachedRenderings();
+    }
+
+    /**
+     * Signs that the renderings cached from the Scene are invalid: the
+     * environment probes' faces which contain the MeshComponent (the Scene
+     * records it's old and new bounding box), and the cached shadows if the
+     * Mesh is a static shadow caster.
+     */
+    private void invalidateCachedRenderings() {
+        Scene.invalidateMeshComponent(this);
+        if (staticShadowCaster) {
+            Scene.invalidateStaticShadowCasters();
+        }
     }
 
     /**
-     * Refreshes the Component's data.
+     * Refreshes the Component's data. It doesn't allocate any memory.
      */
     private void refresh() {
-        if (!valid || !originalAabbMin.equals(mesh.getAabbMin()) || !originalAabbMax.equals(mesh.getAabbMax()) || originalFurthestVertexDistance != mesh.getFurthestVertexDistance()) {
-            originalAabbMin.set(mesh.getAabbMin());
-            originalAabbMax.set(mesh.getAabbMax());
+        mesh.getAabbMin(meshAabbMin);
+        mesh.getAabbMax(meshAabbMax);
+        if (!valid || !originalAabbMin.equals(meshAabbMin) || !originalAabbMax.equals(meshAabbMax) || originalFurthestVertexDistance != mesh.getFurthestVertexDistance()) {
+            originalAabbMin.set(meshAabbMin);
+            originalAabbMax.set(meshAabbMax);
             originalFurthestVertexDistance = mesh.getFurthestVertexDistance();
 
-            Matrix4f modelMatrix = getGameObject().getTransform().getModelMatrix();
-            Vector4f[] cornerPoints = new Vector4f[8];
-            cornerPoints[0] = new Vector4f(originalAabbMax.x, originalAabbMax.y, originalAabbMax.z, 1);//right-top-front
-            cornerPoints[1] = new Vector4f(originalAabbMax.x, originalAabbMin.y, originalAabbMax.z, 1);//right-bottom-front
-            cornerPoints[2] = new Vector4f(originalAabbMax.x, originalAabbMax.y, originalAabbMin.z, 1);//right-top-back
-            cornerPoints[3] = new Vector4f(originalAabbMax.x, originalAabbMin.y, originalAabbMin.z, 1);//right-bottom-back
-            cornerPoints[4] = new Vector4f(originalAabbMin.x, originalAabbMax.y, originalAabbMax.z, 1);//left-top-front
-            cornerPoints[5] = new Vector4f(originalAabbMin.x, originalAabbMin.y, originalAabbMax.z, 1);//left-bottom-front
-            cornerPoints[6] = new Vector4f(originalAabbMin.x, originalAabbMax.y, originalAabbMin.z, 1);//left-top-back
-            cornerPoints[7] = new Vector4f(originalAabbMin.x, originalAabbMin.y, originalAabbMin.z, 1);//left-bottom-back
-
-            Vector3f min = new Vector3f();
-            Vector3f max = new Vector3f();
-            cornerPoints[0].mul(modelMatrix);
-            min.set(cornerPoints[0].x, cornerPoints[0].y, cornerPoints[0].z);
-            max.set(cornerPoints[0].x, cornerPoints[0].y, cornerPoints[0].z);
-
-            for (int i = 1; i < cornerPoints.length; i++) {
-                cornerPoints[i].mul(modelMatrix);
-                for (int j = 0; j < 3; j++) {
-                    if (cornerPoints[i].get(j) < min.get(j)) {
-                        min.setComponent(j, cornerPoints[i].get(j));
-                    }
-                    if (cornerPoints[i].get(j) > max.get(j)) {
-                        max.setComponent(j, cornerPoints[i].get(j));
-                    }
-                }
-            }
-            aabbMin.set(min);
-            aabbMax.set(max);
-            furthestVertexDistance = originalFurthestVertexDistance * getGameObject().getTransform().getAbsoluteScale().get(getGameObject().getTransform().getAbsoluteScale().maxComponent());
+            Transform transform = getGameObject().getTransform();
+            transform.getModelMatrix(modelMatrix).transformAab(originalAabbMin, originalAabbMax, aabbMin, aabbMax);
+            transform.getAbsoluteScale(absoluteScale);
+            furthestVertexDistance = originalFurthestVertexDistance * absoluteScale.get(absoluteScale.maxComponent());
             valid = true;
         }
     }
@@ -294,11 +317,27 @@ public class MeshComponent extends Component {
      */
     @NotNull @ReadOnly
     public Vector3f getRealAabbMin() {
+        return getRealAabbMin(new Vector3f());
+    }
+
+    /**
+     * Stores the axis alligned bounding box's minimum x, y and z values in the
+     * given vector. This value depends on the GameObject's position, rotation
+     * and scale (world space).
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     *
+     * @see #getRealAabbMin()
+     */
+    @NotNull
+    public Vector3f getRealAabbMin(@NotNull Vector3f dest) {
         if (getGameObject() == null) {
-            return getOriginalAabbMin();
+            return mesh.getAabbMin(dest);
         } else {
             refresh();
-            return new Vector3f(aabbMin);
+            return dest.set(aabbMin);
         }
     }
 
@@ -340,12 +379,101 @@ public class MeshComponent extends Component {
      */
     @NotNull @ReadOnly
     public Vector3f getRealAabbMax() {
+        return getRealAabbMax(new Vector3f());
+    }
+
+    /**
+     * Stores the axis alligned bounding box's maximum x, y and z values in the
+     * given vector. This value depends on the GameObject's position, rotation
+     * and scale (world space).
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     *
+     * @see #getRealAabbMax()
+     */
+    @NotNull
+    public Vector3f getRealAabbMax(@NotNull Vector3f dest) {
         if (getGameObject() == null) {
-            return getOriginalAabbMax();
+            return mesh.getAabbMax(dest);
         } else {
             refresh();
-            return new Vector3f(aabbMax);
+            return dest.set(aabbMax);
+        }
+    }
+
+    //
+    //levels of detail----------------------------------------------------------
+    //
+    /**
+     * Returns the Mesh's level of detail selected for the camera. If the level
+     * of detail selection is disabled, it returns 0.
+     *
+     * @return the Mesh's level of detail
+     *
+     * @see #updateLod(float)
+     * @see Settings#isLevelOfDetail()
+     */
+    public int getLod() {
+        if (!Settings.isLevelOfDetail()) {
+            return 0;
+        }
+        return java.lang.Math.min(lod, mesh.getNumberOfLods() - 1);
+    }
+
+    /**
+     * Selects the Mesh's level of detail for the camera by the given screen
+     * size. It changes the level of detail only if the screen size is out of
+     * the actual level's range by the hysteresis, so the Mesh doesn't switch
+     * back and forth around a level's screen size.
+     *
+     * @param screenSize the Mesh's bounding sphere's projected radius divided
+     *                   by the half of the screen's height
+     *
+     * @see Mesh#getLodScreenSize(int)
+     * @see Settings#getLodHysteresis()
+     */
+    public void updateLod(float screenSize) {
+        float hysteresis = Settings.getLodHysteresis();
+        int numberOfLods = mesh.getNumberOfLods();
+        int newLod = java.lang.Math.min(lod, numberOfLods - 1);
+        while (newLod + 1 < numberOfLods && screenSize < mesh.getLodScreenSize(newLod + 1) * (1 - hysteresis)) {
+            newLod++;
+        }
+        while (newLod > 0 && screenSize > mesh.getLodScreenSize(newLod) * (1 + hysteresis)) {
+            newLod--;
+        }
+        lod = newLod;
+    }
+
+    /**
+     * Returns the Mesh's level of detail for the given screen size. Unlike the
+     * updateLod method, it doesn't use hysteresis and doesn't change the
+     * level of detail selected for the camera, so you can use it for the
+     * shadow maps and the environment probes. If the level of detail
+     * selection is disabled, it returns 0.
+     *
+     * @param screenSize the Mesh's bounding sphere's projected radius divided
+     *                   by the half of the screen's height
+     * @param bias       the number of levels the result is coarser than the
+     *                   screen size would require
+     *
+     * @return the Mesh's level of detail
+     *
+     * @see Mesh#getLodScreenSize(int)
+     * @see Settings#isLevelOfDetail()
+     */
+    public int computeLod(float screenSize, int bias) {
+        if (!Settings.isLevelOfDetail()) {
+            return 0;
+        }
+        int numberOfLods = mesh.getNumberOfLods();
+        int result = 0;
+        while (result + 1 < numberOfLods && screenSize < mesh.getLodScreenSize(result + 1)) {
+            result++;
         }
+        return java.lang.Math.min(result + bias, numberOfLods - 1);
     }
 
     /**
@@ -367,7 +495,70 @@ public class MeshComponent extends Component {
      * @see Settings#isShadowMapping()
      */
     public void setCastShadow(boolean castShadow) {
-        this.castShadow = castShadow;
+        if (this.castShadow != castShadow) {
+            this.castShadow = castShadow;
+            invalidateCachedRenderings();
+        }
+    }
+
+    /**
+     * Determines whether the Mesh is a static shadow caster. The static shadow
+     * casters' shadows are cached and rendered again only if a static shadow
+     * caster or the directional light's shadow cascade changes, so you should
+     * use it for the objects which don't move.
+     *
+     * @return true if the Mesh is a static shadow caster, false otherwise
+     *
+     * @see Settings#isShadowMapping()
+     */
+    public boolean isStaticShadowCaster() {
+        return staticShadowCaster;
+    }
+
+    /**
+     * Sets whether or not the Mesh is a static shadow caster. Note that moving
+     * a static shadow caster invalidates all the cached shadows.
+     *
+     * @param staticShadowCaster true if the Mesh should be a static shadow
+     *                           caster, false otherwise
+     *
+     * @see Settings#isShadowMapping()
+     */
+    public void setStaticShadowCaster(boolean staticShadowCaster) {
+        if (this.staticShadowCaster != staticShadowCaster) {
+            this.staticShadowCaster = staticShadowCaster;
+            Scene.invalidateStaticShadowCasters();
+        }
+    }
+
+    /**
+     * Returns the occluder which hides the other MeshComponents behind this
+     * one. It's null if this MeshComponent isn't an occluder.
+     *
+     * @return the occluder
+     *
+     * @see Settings#isOcclusionCulling()
+     */
+    @Nullable
+    public Occluder getOccluder() {
+        return occluder;
+    }
+
+    /**
+     * Sets the occluder which hides the other MeshComponents behind this one.
+     * The occluder is in the Mesh's object space and it must not be larger
+     * than the Mesh. You should use it for large objects, like buildings or
+     * walls. The occluders themselves are never culled.
+     *
+     * @param occluder the occluder or null if this MeshComponent shouldn't
+     *                 be an occluder
+     *
+     * @see Settings#isOcclusionCulling()
+     * @see StaticMesh#createOccluder()
+     * @see Occluder#createBox(Vector3fc, Vector3fc)
+     */
+    public void setOccluder(@Nullable Occluder occluder) {
+        this.occluder = occluder;
     }
 
     /**
@@ -409,7 +600,10 @@ public class MeshComponent extends Component {
      *                 otherwise
      */
     public void setTwoSided(boolean twoSided) {
-        this.twoSided = twoSided;
+        if (this.twoSided != twoSided) {
+            this.twoSided = twoSided;
+            invalidateCachedRenderings();
+        }
     }
 
     /**
@@ -427,7 +621,18 @@ public class MeshComponent extends Component {
      * @param renderableActive true if the Mesh is active, false otherwise
      */
     public void setMeshActive(boolean renderableActive) {
-        this.meshActive = renderableActive;
+        if (this.meshActive != renderableActive) {
+            this.meshActive = renderableActive;
+            invalidateCachedRenderings();
+        }
+    }
+
+    @Override
+    public void setActive(boolean active) {
+        if (isActive() != active) {
+            super.setActive(active);
+            invalidateCachedRenderings();
+        }
     }
 
     /**
@@ -16,6 +16,7 @@ import toolbox.annotations.*;
  * @see Renderer
  *
  */
+@ThreadSafe
 public class SplineComponent extends Component {
 
     /**
@@ -76,6 +77,24 @@ public class SplineComponent extends Component {
      * Determines whether the Component is valid.
      */
     private boolean valid;
+    /**
+     * Temporary storage for the Spline's axis alligned bounding box's minimum
+     * values.
+     */
+    private final Vector3f splineAabbMin = new Vector3f();
+    /**
+     * Temporary storage for the Spline's axis alligned bounding box's maximum
+     * values.
+     */
+    private final Vector3f splineAabbMax = new Vector3f();
+    /**
+     * Temporary storage for the GameObject's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Temporary storage for the GameObject's absolute scale.
+     */
+    private final Vector3f absoluteScale = new Vector3f();
 
     /**
      * Initializes a new SplineComponent to the given value.
@@ -158,45 +177,21 @@ public class SplineComponent extends Component {
     }
 
     /**
-     * Refreshes the Component's data.
+     * Refreshes the Component's data. It doesn't allocate any memory.
      */
     private void refresh() {
-        if (!valid || !originalAabbMin.equals(spline.getAabbMin()) || !originalAabbMax.equals(spline.getAabbMax()) || originalFurthestVertexDistance != spline.getFurthestVertexDistance()) {
-            originalAabbMin.set(spline.getAabbMin());
-            originalAabbMax.set(spline.getAabbMax());
+        if (spline.getAabbMin(splineAabbMin) == null || spline.getAabbMax(splineAabbMax) == null) {
+            return;
+        }
+        if (!valid || !originalAabbMin.equals(splineAabbMin) || !originalAabbMax.equals(splineAabbMax) || originalFurthestVertexDistance != spline.getFurthestVertexDistance()) {
+            originalAabbMin.set(splineAabbMin);
+            originalAabbMax.set(splineAabbMax);
             originalFurthestVertexDistance = spline.getFurthestVertexDistance();
 
-            Matrix4f modelMatrix = getGameObject().getTransform().getModelMatrix();
-            Vector4f[] cornerPoints = new Vector4f[8];
-            cornerPoints[0] = new Vector4f(originalAabbMax.x, originalAabbMax.y, originalAabbMax.z, 1);//right-top-front
-            cornerPoints[1] = new Vector4f(originalAabbMax.x, originalAabbMin.y, originalAabbMax.z, 1);//right-bottom-front
-            cornerPoints[2] = new Vector4f(originalAabbMax.x, originalAabbMax.y, originalAabbMin.z, 1);//right-top-back
-            cornerPoints[3] = new Vector4f(originalAabbMax.x, originalAabbMin.y, originalAabbMin.z, 1);//right-bottom-back
-            cornerPoints[4] = new Vector4f(originalAabbMin.x, originalAabbMax.y, originalAabbMax.z, 1);//left-top-front
-            cornerPoints[5] = new Vector4f(originalAabbMin.x, originalAabbMin.y, originalAabbMax.z, 1);//left-bottom-front
-            cornerPoints[6] = new Vector4f(originalAabbMin.x, originalAabbMax.y, originalAabbMin.z, 1);//left-top-back
-            cornerPoints[7] = new Vector4f(originalAabbMin.x, originalAabbMin.y, originalAabbMin.z, 1);//left-bottom-back
-
-            Vector3f min = new Vector3f();
-            Vector3f max = new Vector3f();
-            cornerPoints[0].mul(modelMatrix);
-            min.set(cornerPoints[0].x, cornerPoints[0].y, cornerPoints[0].z);
-            max.set(cornerPoints[0].x, cornerPoints[0].y, cornerPoints[0].z);
-
-            for (int i = 1; i < cornerPoints.length; i++) {
-                cornerPoints[i].mul(modelMatrix);
-                for (int j = 0; j < 3; j++) {
-                    if (cornerPoints[i].get(j) < min.get(j)) {
-                        min.setComponent(j, cornerPoints[i].get(j));
-                    }
-                    if (cornerPoints[i].get(j) > max.get(j)) {
-                        max.setComponent(j, cornerPoints[i].get(j));
-                    }
-                }
-            }
-            aabbMin.set(min);
-            aabbMax.set(max);
-            furthestVertexDistance = originalFurthestVertexDistance * getGameObject().getTransform().getAbsoluteScale().get(getGameObject().getTransform().getAbsoluteScale().maxComponent());
+            Transform transform = getGameObject().getTransform();
+            transform.getModelMatrix(modelMatrix).transformAab(originalAabbMin, originalAabbMax, aabbMin, aabbMax);
+            transform.getAbsoluteScale(absoluteScale);
+            furthestVertexDistance = originalFurthestVertexDistance * absoluteScale.get(absoluteScale.maxComponent());
             valid = true;
         }
     }
@@ -0,0 +1,731 @@
+package core;
+
+import components.renderables.*;
+import java.util.*;
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * Dynamic bounding volume hierarchy of MeshComponents. It's a balanced axis
+ * alligned bounding box tree, where the leaves store the MeshComponents'
+ * slightly enlarged world space AABBs, so slowly moving objects don't have to
+ * be reinserted in every frame. Invalidated MeshComponents are refreshed
+ * lazily, before the next query. Frustum queries skip the subtrees which are
+ * fully outside the frustum and accept the subtrees which are fully inside it
+ * without testing their leaves one by one.
+ * <br>
+ * Note that changing the hierarchy (adding, removing or invalidating
+ * MeshComponents and refreshing the hierarchy) isn't thread safe. The queries
+ * refresh the hierarchy first, so if you want to run queries parallel, call
+ * the refresh method before.
+ *
+ * @see Scene#getMeshComponentsInsideFrustum(FrustumIntersection,
+ * MeshComponentGroups)
+ */
+public class BoundingVolumeHierarchy {
+
+    /**
+     * Determines how much the leaves' AABBs are enlarged compared to the
+     * MeshComponents' AABBs (relative to the AABB's size).
+     */
+    private static final float AABB_MARGIN = 0.1f;
+    /**
+     * The maximum number of the recorded changed AABBs. If more
+     * MeshComponents change, the hierarchy only signs that the recorded
+     * changes are incomplete.
+     */
+    public static final int MAX_CHANGED_AABBS = 1024;
+    /**
+     * The hierarchy's root node.
+     */
+    private Node root;
+    /**
+     * The MeshComponents' leaf nodes.
+     */
+    private final Map<MeshComponent, Node> leaves = new IdentityHashMap<>();
+    /**
+     * The leaves which have to be refreshed before the next query.
+     */
+    private final List<Node> invalidLeaves = new ArrayList<>();
+    /**
+     * Released inner nodes, reused when inserting leaves, so reinserting moving
+     * MeshComponents doesn't allocate any memory.
+     */
+    private final List<Node> freeNodes = new ArrayList<>();
+    /**
+     * The world space AABBs of the changed MeshComponents since the last
+     * clearChanges call (the minimum and the maximum x, y and z values, 6
+     * floats per AABB).
+     */
+    private final float[] changedAabbs = new float[MAX_CHANGED_AABBS * 6];
+    /**
+     * The number of the recorded changed AABBs.
+     */
+    private int numberOfChangedAabbs;
+    /**
+     * Determines whether more AABBs changed than MAX_CHANGED_AABBS.
+     */
+    private boolean changedAabbsOverflow;
+
+    /**
+     * A node of the hierarchy.
+     */
+    private static class Node {
+
+        /**
+         * The node's (enlarged) AABB's minimum x, y and z values.
+         */
+        private final Vector3f min = new Vector3f();
+        /**
+         * The node's (enlarged) AABB's maximum x, y and z values.
+         */
+        private final Vector3f max = new Vector3f();
+        /**
+         * The MeshComponent's exact AABB's minimum x, y and z values (only
+         * used in leaves).
+         */
+        private final Vector3f exactMin = new Vector3f();
+        /**
+         * The MeshComponent's exact AABB's maximum x, y and z values (only
+         * used in leaves).
+         */
+        private final Vector3f exactMax = new Vector3f();
+        /**
+         * Parent node.
+         */
+        private Node parent;
+        /**
+         * Left child.
+         */
+        private Node left;
+        /**
+         * Right child.
+         */
+        private Node right;
+        /**
+         * The leaf's MeshComponent.
+         */
+        private MeshComponent meshComponent;
+        /**
+         * The node's height in the hierarchy (leaves' height is 0).
+         */
+        private int height;
+        /**
+         * Determines whether the leaf is waiting for refreshing.
+         */
+        private boolean invalid;
+
+        /**
+         * Determines whether the node is a leaf.
+         *
+         * @return true if the node is a leaf, false otherwise
+         */
+        private boolean isLeaf() {
+            return left == null;
+        }
+    }
+
+    /**
+     * Adds the given MeshComponent to the hierarchy. Note that the
+     * MeshComponent have to be connected to a GameObject.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return true if the MeshComponent added successfully, false if it's
+     *         already in the hierarchy
+     *
+     * @throws NullPointerException the MeshComponent and it's GameObject can't
+     *                              be null
+     */
+    public boolean addMeshComponent(@NotNull MeshComponent meshComponent) {
+        if (meshComponent == null || meshComponent.getGameObject() == null) {
+            throw new NullPointerException();
+        }
+        if (leaves.containsKey(meshComponent)) {
+            return false;
+        }
+        Node leaf = new Node();
+        leaf.meshComponent = meshComponent;
+        refreshLeafAabb(leaf);
+        insertLeaf(leaf);
+        leaves.put(meshComponent, leaf);
+        addChangedAabb(leaf.exactMin, leaf.exactMax);
+        return true;
+    }
+
+    /**
+     * Removes the given MeshComponent from the hierarchy.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return true if the MeshComponent removed successfully, false if it
+     *         wasn't in the hierarchy
+     */
+    public boolean removeMeshComponent(@Nullable MeshComponent meshComponent) {
+        Node leaf = leaves.remove(meshComponent);
+        if (leaf == null) {
+            return false;
+        }
+        removeLeaf(leaf);
+        addChangedAabb(leaf.exactMin, leaf.exactMax);
+        return true;
+    }
+
+    /**
+     * Signs that the given MeshComponent's bounding box may have changed. The
+     * hierarchy will refresh it before the next query. It's synchronized,
+     * because the MeshComponents may be invalidated by the parallel updates.
+     *
+     * @param meshComponent MeshComponent
+     */
+    public synchronized void invalidateMeshComponent(@Nullable MeshComponent meshComponent) {
+        Node leaf = leaves.get(meshComponent);
+        if (leaf != null && !leaf.invalid) {
+            leaf.invalid = true;
+            invalidLeaves.add(leaf);
+        }
+    }
+
+    /**
+     * Returns the number of MeshComponents stored in the hierarchy.
+     *
+     * @return the number of MeshComponents stored in the hierarchy
+     */
+    public int getNumberOfMeshComponents() {
+        return leaves.size();
+    }
+
+    /**
+     * Returns the height of the hierarchy. It's 0 if the hierarchy is empty or
+     * it contains only one MeshComponent.
+     *
+     * @return the height of the hierarchy
+     */
+    public int getHeight() {
+        return root == null ? 0 : root.height;
+    }
+
+    /**
+     * Refreshes the invalidated MeshComponents' bounding boxes. A leaf is only
+     * reinserted if the MeshComponent's AABB left the leaf's enlarged AABB.
+     * Both the old and the new AABB of the refreshed MeshComponents are
+     * recorded as changed. The queries call this method automatically.
+     */
+    public void refresh() {
+        if (invalidLeaves.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < invalidLeaves.size(); i++) {
+            Node leaf = invalidLeaves.get(i);
+            if (leaves.get(leaf.meshComponent) == leaf) {
+                addChangedAabb(leaf.exactMin, leaf.exactMax);
+                computeExactAabb(leaf);
+                addChangedAabb(leaf.exactMin, leaf.exactMax);
+                if (!contains(leaf.min, leaf.max, leaf.exactMin, leaf.exactMax)) {
+                    removeLeaf(leaf);
+                    refreshLeafAabb(leaf);
+                    insertLeaf(leaf);
+                }
+            }
+            leaf.invalid = false;
+        }
+        invalidLeaves.clear();
+    }
+
+    //
+    //changes-------------------------------------------------------------------
+    //
+    /**
+     * Records the given AABB as changed.
+     *
+     * @param min the AABB's minimum x, y and z values
+     * @param max the AABB's maximum x, y and z values
+     */
+    private void addChangedAabb(@NotNull Vector3f min, @NotNull Vector3f max) {
+        if (numberOfChangedAabbs == MAX_CHANGED_AABBS) {
+            changedAabbsOverflow = true;
+            return;
+        }
+        int index = numberOfChangedAabbs * 6;
+        changedAabbs[index] = min.x;
+        changedAabbs[index + 1] = min.y;
+        changedAabbs[index + 2] = min.z;
+        changedAabbs[index + 3] = max.x;
+        changedAabbs[index + 4] = max.y;
+        changedAabbs[index + 5] = max.z;
+        numberOfChangedAabbs++;
+    }
+
+    /**
+     * Returns the number of the recorded changed AABBs. The added and the
+     * removed MeshComponents' AABBs, and the refreshed MeshComponents' old and
+     * new AABBs are recorded. Note that the invalidated MeshComponents are
+     * recorded only when the hierarchy is refreshed.
+     *
+     * @return the number of the recorded changed AABBs
+     *
+     * @see #isChangedAabbsOverflow()
+     */
+    public int getNumberOfChangedAabbs() {
+        return numberOfChangedAabbs;
+    }
+
+    /**
+     * Returns the given changed AABB.
+     *
+     * @param index the changed AABB's index
+     * @param min   the AABB's minimum x, y and z values will be stored here
+     * @param max   the AABB's maximum x, y and z values will be stored here
+     *
+     * @throws IndexOutOfBoundsException the changed AABB doesn't exist
+     */
+    public void getChangedAabb(int index, @NotNull Vector3f min, @NotNull Vector3f max) {
+        if (index < 0 || index >= numberOfChangedAabbs) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = index * 6;
+        min.set(changedAabbs[i], changedAabbs[i + 1], changedAabbs[i + 2]);
+        max.set(changedAabbs[i + 3], changedAabbs[i + 4], changedAabbs[i + 5]);
+    }
+
+    /**
+     * Determines whether more AABBs changed since the last clearChanges call
+     * than MAX_CHANGED_AABBS. In this case the recorded changes are incomplete,
+     * so anything may have changed.
+     *
+     * @return true if the recorded changes are incomplete, false otherwise
+     */
+    public boolean isChangedAabbsOverflow() {
+        return changedAabbsOverflow;
+    }
+
+    /**
+     * Removes the recorded changes.
+     */
+    public void clearChanges() {
+        numberOfChangedAabbs = 0;
+        changedAabbsOverflow = false;
+    }
+
+    //
+    //queries-------------------------------------------------------------------
+    //
+    /**
+     * Adds all the MeshComponents to the given result which are inside, or
+     * intersect the given frustum.
+     *
+     * @param frustum frustum
+     * @param result  result
+     *
+     * @throws NullPointerException the parameters can't be null
+     */
+    public void getMeshComponentsInsideFrustum(@NotNull FrustumIntersection frustum, @NotNull MeshComponentGroups result) {
+        if (frustum == null || result == null) {
+            throw new NullPointerException();
+        }
+        refresh();
+        if (root != null) {
+            addMeshComponentsInsideFrustum(root, frustum, result);
+        }
+    }
+
+    /**
+     * Adds all the MeshComponents to the given result which AABB intersects the
+     * sphere determined by the given parameters.
+     *
+     * @param center the sphere's center
+     * @param radius the sphere's radius
+     * @param result result
+     *
+     * @throws NullPointerException     the parameters can't be null
+     * @throws IllegalArgumentException radius can't be negative
+     */
+    public void getMeshComponentsInsideSphere(@NotNull Vector3f center, float radius, @NotNull MeshComponentGroups result) {
+        if (center == null || result == null) {
+            throw new NullPointerException();
+        }
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius can't be negative");
+        }
+        refresh();
+        if (root != null) {
+            addMeshComponentsInsideSphere(root, center, radius * radius, result);
+        }
+    }
+
+    /**
+     * Adds all the MeshComponents to the given result.
+     *
+     * @param result result
+     *
+     * @throws NullPointerException result can't be null
+     */
+    public void getMeshComponents(@NotNull MeshComponentGroups result) {
+        if (result == null) {
+            throw new NullPointerException();
+        }
+        refresh();
+        if (root != null) {
+            addMeshComponents(root, result);
+        }
+    }
+
+    /**
+     * Adds the given subtree's MeshComponents to the result which are inside,
+     * or intersect the given frustum.
+     *
+     * @param node    subtree's root
+     * @param frustum frustum
+     * @param result  result
+     */
+    private void addMeshComponentsInsideFrustum(@NotNull Node node, @NotNull FrustumIntersection frustum, @NotNull MeshComponentGroups result) {
+        int intersection = frustum.intersectAab(node.min, node.max);
+        if (intersection == FrustumIntersection.INSIDE) {
+            addMeshComponents(node, result);
+        } else if (intersection == FrustumIntersection.INTERSECT) {
+            if (node.isLeaf()) {
+                if (frustum.testAab(node.exactMin, node.exactMax)) {
+                    result.addMeshComponent(node.meshComponent);
+                }
+            } else {
+                addMeshComponentsInsideFrustum(node.left, frustum, result);
+                addMeshComponentsInsideFrustum(node.right, frustum, result);
+            }
+        }
+    }
+
+    /**
+     * Adds the given subtree's MeshComponents to the result which AABB
+     * intersects the given sphere.
+     *
+     * @param node          subtree's root
+     * @param center        the sphere's center
+     * @param squaredRadius the sphere's squared radius
+     * @param result        result
+     */
+    private void addMeshComponentsInsideSphere(@NotNull Node node, @NotNull Vector3f center, float squaredRadius, @NotNull MeshComponentGroups result) {
+        if (node.isLeaf()) {
+            if (squaredDistance(node.exactMin, node.exactMax, center) <= squaredRadius) {
+                result.addMeshComponent(node.meshComponent);
+            }
+        } else if (squaredDistance(node.min, node.max, center) <= squaredRadius) {
+            addMeshComponentsInsideSphere(node.left, center, squaredRadius, result);
+            addMeshComponentsInsideSphere(node.right, center, squaredRadius, result);
+        }
+    }
+
+    /**
+     * Adds all the MeshComponents of the given subtree to the result.
+     *
+     * @param node   subtree's root
+     * @param result result
+     */
+    private void addMeshComponents(@NotNull Node node, @NotNull MeshComponentGroups result) {
+        if (node.isLeaf()) {
+            result.addMeshComponent(node.meshComponent);
+        } else {
+            addMeshComponents(node.left, result);
+            addMeshComponents(node.right, result);
+        }
+    }
+
+    //
+    //tree operations-----------------------------------------------------------
+    //
+    /**
+     * Inserts the given leaf to the hierarchy. It chooses the sibling based on
+     * the surface area heuristic and balances the hierarchy.
+     *
+     * @param leaf leaf
+     */
+    private void insertLeaf(@NotNull Node leaf) {
+        if (root == null) {
+            root = leaf;
+            leaf.parent = null;
+            return;
+        }
+        Node sibling = root;
+        while (!sibling.isLeaf()) {
+            float area = surfaceArea(sibling.min, sibling.max);
+            float combinedArea = combinedSurfaceArea(sibling, leaf);
+            float cost = 2 * combinedArea;
+            float inheritanceCost = 2 * (combinedArea - area);
+            float leftCost = descendingCost(sibling.left, leaf) + inheritanceCost;
+            float rightCost = descendingCost(sibling.right, leaf) + inheritanceCost;
+            if (cost < leftCost && cost < rightCost) {
+                break;
+            }
+            sibling = leftCost < rightCost ? sibling.left : sibling.right;
+        }
+
+        Node oldParent = sibling.parent;
+        Node newParent = freeNodes.isEmpty() ? new Node() : freeNodes.remove(freeNodes.size() - 1);
+        newParent.parent = oldParent;
+        newParent.left = sibling;
+        newParent.right = leaf;
+        sibling.parent = newParent;
+        leaf.parent = newParent;
+        refit(newParent);
+        if (oldParent == null) {
+            root = newParent;
+        } else {
+            replaceChild(oldParent, sibling, newParent);
+        }
+        refitAncestors(newParent.parent);
+    }
+
+    /**
+     * Removes the given leaf from the hierarchy and balances the hierarchy.
+     *
+     * @param leaf leaf
+     */
+    private void removeLeaf(@NotNull Node leaf) {
+        if (leaf == root) {
+            root = null;
+            return;
+        }
+        Node parent = leaf.parent;
+        Node grandParent = parent.parent;
+        Node sibling = parent.left == leaf ? parent.right : parent.left;
+        leaf.parent = null;
+        if (grandParent == null) {
+            root = sibling;
+            sibling.parent = null;
+        } else {
+            replaceChild(grandParent, parent, sibling);
+            sibling.parent = grandParent;
+            refitAncestors(grandParent);
+        }
+        parent.parent = null;
+        parent.left = null;
+        parent.right = null;
+        freeNodes.add(parent);
+    }
+
+    /**
+     * Balances and refits the given node and all of it's ancestors.
+     *
+     * @param node node
+     */
+    private void refitAncestors(@Nullable Node node) {
+        while (node != null) {
+            node = balance(node);
+            refit(node);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Performs a rotation if the given node's subtrees' height difference is
+     * higher than 1.
+     *
+     * @param node node
+     *
+     * @return the subtree's new root
+     */
+    @NotNull
+    private Node balance(@NotNull Node node) {
+        if (node.isLeaf() || node.height < 2) {
+            return node;
+        }
+        int balance = node.right.height - node.left.height;
+        if (balance > 1) {
+            return rotateUp(node, node.right);
+        } else if (balance < -1) {
+            return rotateUp(node, node.left);
+        } else {
+            return node;
+        }
+    }
+
+    /**
+     * Rotates the given child to the place of it's parent.
+     *
+     * @param node  parent
+     * @param child child
+     *
+     * @return the subtree's new root
+     */
+    @NotNull
+    private Node rotateUp(@NotNull Node node, @NotNull Node child) {
+        Node grandChild1 = child.left;
+        Node grandChild2 = child.right;
+
+        child.parent = node.parent;
+        if (child.parent == null) {
+            root = child;
+        } else {
+            replaceChild(child.parent, node, child);
+        }
+        child.left = node;
+        node.parent = child;
+
+        if (grandChild1.height > grandChild2.height) {
+            child.right = grandChild1;
+            replaceChild(node, child, grandChild2);
+            grandChild2.parent = node;
+        } else {
+            child.right = grandChild2;
+            replaceChild(node, child, grandChild1);
+            grandChild1.parent = node;
+        }
+        refit(node);
+        refit(child);
+        return child;
+    }
+
+    /**
+     * Replaces the given parent's specified child to the new child.
+     *
+     * @param parent   parent
+     * @param oldChild old child
+     * @param newChild new child
+     */
+    private void replaceChild(@NotNull Node parent, @NotNull Node oldChild, @NotNull Node newChild) {
+        if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    /**
+     * Recomputes the given inner node's AABB and height based on it's
+     * children.
+     *
+     * @param node inner node
+     */
+    private void refit(@NotNull Node node) {
+        node.min.set(node.left.min).min(node.right.min);
+        node.max.set(node.left.max).max(node.right.max);
+        node.height = 1 + java.lang.Math.max(node.left.height, node.right.height);
+    }
+
+    /**
+     * Recomputes the given leaf's exact and enlarged AABB.
+     *
+     * @param leaf leaf
+     */
+    private void refreshLeafAabb(@NotNull Node leaf) {
+        computeExactAabb(leaf);
+        float marginX = (leaf.exactMax.x - leaf.exactMin.x) * AABB_MARGIN;
+        float marginY = (leaf.exactMax.y - leaf.exactMin.y) * AABB_MARGIN;
+        float marginZ = (leaf.exactMax.z - leaf.exactMin.z) * AABB_MARGIN;
+        leaf.exactMin.sub(marginX, marginY, marginZ, leaf.min);
+        leaf.exactMax.add(marginX, marginY, marginZ, leaf.max);
+    }
+
+    /**
+     * Recomputes the given leaf's MeshComponent's world space AABB. If the
+     * MeshComponent uses billboarding, the AABB contains the furthest vertex
+     * distance sized sphere around the GameObject.
+     *
+     * @param leaf leaf
+     */
+    private void computeExactAabb(@NotNull Node leaf) {
+        MeshComponent meshComponent = leaf.meshComponent;
+        Transform transform = meshComponent.getGameObject().getTransform();
+        if (transform.getBillboardingMode() == Transform.BillboardingMode.NO_BILLBOARDING) {
+            meshComponent.getRealAabbMin(leaf.exactMin);
+            meshComponent.getRealAabbMax(leaf.exactMax);
+        } else {
+            float radius = meshComponent.getRealFurthestVertexDistance();
+            transform.getAbsolutePosition(leaf.exactMin).sub(radius, radius, radius);
+            transform.getAbsolutePosition(leaf.exactMax).add(radius, radius, radius);
+        }
+    }
+
+    /**
+     * Returns the cost of inserting the given leaf into the given node's
+     * subtree.
+     *
+     * @param node node
+     * @param leaf leaf
+     *
+     * @return the cost of inserting the given leaf into the given node's
+     *         subtree
+     */
+    private float descendingCost(@NotNull Node node, @NotNull Node leaf) {
+        float combinedArea = combinedSurfaceArea(node, leaf);
+        if (node.isLeaf()) {
+            return combinedArea;
+        } else {
+            return combinedArea - surfaceArea(node.min, node.max);
+        }
+    }
+
+    /**
+     * Returns the surface area of the AABB containing both of the given nodes.
+     *
+     * @param node1 node
+     * @param node2 node
+     *
+     * @return the surface area of the AABB containing both of the given nodes
+     */
+    private static float combinedSurfaceArea(@NotNull Node node1, @NotNull Node node2) {
+        float x = java.lang.Math.max(node1.max.x, node2.max.x) - java.lang.Math.min(node1.min.x, node2.min.x);
+        float y = java.lang.Math.max(node1.max.y, node2.max.y) - java.lang.Math.min(node1.min.y, node2.min.y);
+        float z = java.lang.Math.max(node1.max.z, node2.max.z) - java.lang.Math.min(node1.min.z, node2.min.z);
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * Returns the surface area of the given AABB.
+     *
+     * @param min the AABB's minimum x, y and z values
+     * @param max the AABB's maximum x, y and z values
+     *
+     * @return the surface area of the given AABB
+     */
+    private static float surfaceArea(@NotNull Vector3f min, @NotNull Vector3f max) {
+        float x = max.x - min.x;
+        float y = max.y - min.y;
+        float z = max.z - min.z;
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * Determines whether the outer AABB contains the inner AABB.
+     *
+     * @param outerMin the outer AABB's minimum x, y and z values
+     * @param outerMax the outer AABB's maximum x, y and z values
+     * @param innerMin the inner AABB's minimum x, y and z values
+     * @param innerMax the inner AABB's maximum x, y and z values
+     *
+     * @return true if the outer AABB contains the inner AABB, false otherwise
+     */
+    private static boolean contains(@NotNull Vector3f outerMin, @NotNull Vector3f outerMax, @NotNull Vector3f innerMin, @NotNull Vector3f innerMax) {
+        return outerMin.x <= innerMin.x && outerMin.y <= innerMin.y && outerMin.z <= innerMin.z
+                && outerMax.x >= innerMax.x && outerMax.y >= innerMax.y && outerMax.z >= innerMax.z;
+    }
+
+    /**
+     * Returns the squared distance between the given AABB and point.
+     *
+     * @param min   the AABB's minimum x, y and z values
+     * @param max   the AABB's maximum x, y and z values
+     * @param point point
+     *
+     * @return the squared distance between the given AABB and point
+     */
+    private static float squaredDistance(@NotNull Vector3f min, @NotNull Vector3f max, @NotNull Vector3f point) {
+        float distance = 0;
+        for (int i = 0; i < 3; i++) {
+            float value = point.get(i);
+            if (value < min.get(i)) {
+                distance += (min.get(i) - value) * (min.get(i) - value);
+            } else if (value > max.get(i)) {
+                distance += (value - max.get(i)) * (value - max.get(i));
+            }
+        }
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingVolumeHierarchy{" + "numberOfMeshComponents="
+                + getNumberOfMeshComponents() + ", height=" + getHeight()
+                + ", invalidLeaves=" + invalidLeaves.size() + '}';
+    }
+
+}
@@ -159,8 +159,8 @@ public abstract class Component implements Invalidatable {
     public void invalidate() {
         if (invalidatable) {
             invalidatable = false;
-            for (Invalidatable inv : invalidatables) {
-                inv.invalidate();
+            for (int i = 0; i < invalidatables.size(); i++) {
+                invalidatables.get(i).invalidate();
             }
             invalidatable = true;
         }
@@ -4,6 +4,7 @@ import org.joml.*;
 import rendering.*;
 import resources.*;
 import toolbox.*;
+import toolbox.profiler.*;
 import window.*;
 
 /**
@@ -57,17 +58,38 @@ public class GameLoop {
     /**
      * The engine's game loop. It updates all Components of the GameObjects,
      * updates the resources ,renders the scene, handles the input and swaps the
-     * buffers in every frame.
+     * buffers in every frame. Each phase is recorded by the Profiler (if it's
+     * enabled).
+     *
+     * @see Profiler
      */
     public static void run() {
         try {
             while (!Window.isWindowShouldClose()) {
+                Profiler.beginFrame();
                 Time.timing();
+                Profiler.begin("ResourceManager.updateResources");
                 ResourceManager.updateResources();
+                Profiler.end();
+                Profiler.begin("ResourceLoader.processUploads");
+                ResourceLoader.processUploads();
+                Profiler.end();
+                Profiler.begin("Scene.updateComponents");
                 Scene.updateComponents();
+                Profiler.end();
+                Profiler.begin("RenderingPipeline.render");
                 RenderingPipeline.render();
+                Profiler.end();
+                Profiler.begin("Window.swapBuffers");
                 Window.swapBuffers();
+                Profiler.end();
+                Profiler.begin("Window.pollEvents");
                 Window.pollEvents();
+                Profiler.end();
+                Profiler.setCounter("OpenGL issued state changes", OpenGl.getNumberOfIssuedStateChanges());
+                Profiler.setCounter("OpenGL filtered state changes", OpenGl.getNumberOfFilteredStateChanges());
+                OpenGl.resetStatistics();
+                Profiler.endFrame();
                 frameCount++;
             }
         } catch (Exception e) {
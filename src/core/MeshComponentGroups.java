@@ -0,0 +1,224 @@
+package core;
+
+import components.renderables.*;
+import java.util.*;
+import java.util.function.*;
+import rendering.geometry.*;
+import resources.meshes.*;
+import toolbox.annotations.*;
+
+/**
+ * Groups MeshComponents by their GeometryRenderer and Mesh, the same way as the
+ * Scene stores them. The visibility queries fill it with the visible
+ * MeshComponents, so the renderers can still bind each Mesh only once. The
+ * lists are reused between the frames, clearing doesn't release them until
+ * they stay empty for a whole frame. The returned read-only views are created
+ * with the groups, so querying the groups doesn't allocate.
+ *
+ * @see Scene#getMeshComponentsInsideFrustum(org.joml.FrustumIntersection,
+ * MeshComponentGroups)
+ */
+public class MeshComponentGroups {
+
+    /**
+     * The grouped MeshComponents.
+     */
+    private final Map<Class<? extends GeometryRenderer>, Map<Mesh, Group>> groups = new HashMap<>();
+    /**
+     * The read-only views of the groups' Meshes.
+     */
+    private final Map<Class<? extends GeometryRenderer>, Collection<Mesh>> meshes = new HashMap<>();
+    /**
+     * All the lists of the groups, so clearing doesn't have to iterate over
+     * the maps.
+     */
+    private final List<Group> lists = new ArrayList<>();
+    /**
+     * The number of the stored MeshComponents.
+     */
+    private int numberOfMeshComponents;
+
+    /**
+     * Adds the given MeshComponent to the corresponding group.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @throws NullPointerException meshComponent can't be null
+     */
+    public void addMeshComponent(@NotNull MeshComponent meshComponent) {
+        if (meshComponent == null) {
+            throw new NullPointerException();
+        }
+        Class<? extends GeometryRenderer> renderer = meshComponent.getMaterial().getRenderer();
+        Map<Mesh, Group> map = groups.get(renderer);
+        if (map == null) {
+            map = new HashMap<>();
+            groups.put(renderer, map);
+            meshes.put(renderer, Collections.unmodifiableSet(map.keySet()));
+        }
+        Group list = map.get(meshComponent.getMesh());
+        if (list == null) {
+            list = new Group();
+            map.put(meshComponent.getMesh(), list);
+            lists.add(list);
+        }
+        list.add(meshComponent);
+        numberOfMeshComponents++;
+    }
+
+    /**
+     * Removes the MeshComponents which satisfy the given predicate. The groups
+     * are kept, even if they become empty.
+     *
+     * @param filter the predicate which returns true for the MeshComponents
+     *               to remove
+     *
+     * @return the number of the removed MeshComponents
+     *
+     * @throws NullPointerException filter can't be null
+     */
+    public int removeIf(@NotNull Predicate<MeshComponent> filter) {
+        if (filter == null) {
+            throw new NullPointerException();
+        }
+        int removed = 0;
+        for (int i = 0; i < lists.size(); i++) {
+            List<MeshComponent> list = lists.get(i);
+            int size = list.size();
+            list.removeIf(filter);
+            removed += size - list.size();
+        }
+        numberOfMeshComponents -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes all the MeshComponents. The groups which have been empty since
+     * the last clear are released.
+     */
+    public void clear() {
+        for (int i = 0; i < lists.size(); i++) {
+            if (lists.get(i).isEmpty()) {
+                releaseEmptyLists();
+                break;
+            }
+        }
+        for (int i = 0; i < lists.size(); i++) {
+            lists.get(i).clear();
+        }
+        numberOfMeshComponents = 0;
+    }
+
+    /**
+     * Releases the empty groups.
+     */
+    private void releaseEmptyLists() {
+        Iterator<Map.Entry<Class<? extends GeometryRenderer>, Map<Mesh, Group>>> mapIterator = groups.entrySet().iterator();
+        while (mapIterator.hasNext()) {
+            Map.Entry<Class<? extends GeometryRenderer>, Map<Mesh, Group>> entry = mapIterator.next();
+            Map<Mesh, Group> map = entry.getValue();
+            map.values().removeIf(List::isEmpty);
+            if (map.isEmpty()) {
+                meshes.remove(entry.getKey());
+                mapIterator.remove();
+            }
+        }
+        lists.removeIf(List::isEmpty);
+    }
+
+    /**
+     * Returns the Meshes using the specified GeometryRenderer. Note that some
+     * of the Meshes may not have any MeshComponents.
+     *
+     * @param renderer GeometryRenderer
+     *
+     * @return the Meshes using the specified GeometryRenderer
+     */
+    @NotNull @ReadOnly
+    public Collection<Mesh> getMeshes(@NotNull Class<? extends GeometryRenderer> renderer) {
+        Collection<Mesh> view = meshes.get(renderer);
+        if (view == null) {
+            return Collections.emptySet();
+        } else {
+            return view;
+        }
+    }
+
+    /**
+     * Returns the MeshComponents using the specified GeometryRenderer and
+     * Mesh.
+     *
+     * @param renderer GeometryRenderer
+     * @param mesh     Mesh
+     *
+     * @return the MeshComponents using the specified GeometryRenderer and Mesh
+     */
+    @NotNull @ReadOnly
+    public List<MeshComponent> getMeshComponents(@NotNull Class<? extends GeometryRenderer> renderer, @NotNull Mesh mesh) {
+        Map<Mesh, Group> map = groups.get(renderer);
+        Group list = map == null ? null : map.get(mesh);
+        if (list == null) {
+            return Collections.emptyList();
+        } else {
+            return list.view;
+        }
+    }
+
+    /**
+     * Returns the number of the groups. With the getGroup method you can
+     * iterate over all the stored MeshComponents, regardless of their
+     * GeometryRenderer and Mesh. Note that some of the groups may be empty.
+     *
+     * @return the number of the groups
+     *
+     * @see #getGroup(int)
+     */
+    public int getNumberOfGroups() {
+        return lists.size();
+    }
+
+    /**
+     * Returns the specified group's MeshComponents. All the MeshComponents of
+     * a group use the same GeometryRenderer and Mesh.
+     *
+     * @param index the group's index
+     *
+     * @return the group's MeshComponents
+     *
+     * @throws IndexOutOfBoundsException the group doesn't exist
+     *
+     * @see #getNumberOfGroups()
+     */
+    @NotNull @ReadOnly
+    public List<MeshComponent> getGroup(int index) {
+        return lists.get(index).view;
+    }
+
+    /**
+     * Returns the number of all the stored MeshComponents.
+     *
+     * @return the number of all the stored MeshComponents
+     */
+    public int getNumberOfMeshComponents() {
+        return numberOfMeshComponents;
+    }
+
+    @Override
+    public String toString() {
+        return "MeshComponentGroups{" + "numberOfMeshComponents="
+                + numberOfMeshComponents + '}';
+    }
+
+    /**
+     * A group's MeshComponents with it's read-only view.
+     */
+    private static class Group extends ArrayList<MeshComponent> {
+
+        /**
+         * The group's read-only view.
+         */
+        private final List<MeshComponent> view = Collections.unmodifiableList(this);
+
+    }
+
+}
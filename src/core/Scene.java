@@ -6,6 +6,8 @@ import components.light.lightTypes.*;
 import components.renderables.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import materials.*;
 import org.joml.*;
 import rendering.geometry.*;
@@ -26,10 +28,31 @@ public class Scene {
      * Contains all the GameObjects.
      */
     private static final List<GameObject> OBJECTS = new ArrayList<>();
+    /**
+     * Updates the GameObjects in parallel.
+     */
+    private static final UpdateScheduler UPDATE_SCHEDULER = new UpdateScheduler(ForkJoinPool.commonPool());
     /**
      * Contains all the available MeshComponents.
      */
     private static final Map<Class<? extends GeometryRenderer>, Map<Mesh, List<MeshComponent>>> MESHES = new HashMap<>();
+    /**
+     * Bounding volume hierarchy of all the available MeshComponents, it
+     * accelerates the frustum culling.
+     */
+    private static final BoundingVolumeHierarchy BVH = new BoundingVolumeHierarchy();
+    /**
+     * Incremented when a static shadow caster changes. MeshComponents can be
+     * invalidated from the parallel updates, so it's atomic.
+     */
+    private static final AtomicInteger staticShadowCasterVersion = new AtomicInteger();
+    /**
+     * Incremented when something changes which appears in all the environment
+     * probes (the MeshComponents' changes are recorded by the bounding volume
+     * hierarchy). It can be invalidated from the parallel updates, so it's
+     * atomic.
+     */
+    private static final AtomicInteger environmentProbeVersion = new AtomicInteger();
     /**
      * Contains all the available SplineComponents.
      */
@@ -59,6 +82,20 @@ public class Scene {
         PROBES.add(probe);
     }
 
+    /**
+     * Removes the given probe from the Scene, so it isn't rendered anymore.
+     * Note that it doesn't release the probe. The tests use it to tear down
+     * their scenes.
+     *
+     * @param probe dynamic environment probe
+     *
+     * @return true if the probe removed successfully, false if it wasn't in
+     *         the Scene
+     */
+    static boolean removeProbe(@Nullable DynamicEnvironmentProbe probe) {
+        return Utility.removeReference(PROBES, probe);
+    }
+
     public static DynamicEnvironmentProbe getProbe(int index) {
         return PROBES.get(index);
     }
@@ -190,11 +227,19 @@ public class Scene {
     // GameObjects--------------------------------------------------------------
     //
     /**
-     * Updates all GameObject's all Components.
+     * Updates all GameObject's all Components. If parallel update is enabled,
+     * the GameObject hierarchies containing only thread-safe Components are
+     * updated in parallel.
+     *
+     * @see Settings#isParallelUpdate()
      */
     static void updateComponents() {
-        for (GameObject gameObject : OBJECTS) {
-            gameObject.update();
+        if (Settings.isParallelUpdate()) {
+            UPDATE_SCHEDULER.update(OBJECTS);
+        } else {
+            for (GameObject gameObject : OBJECTS) {
+                gameObject.update();
+            }
         }
     }
 
@@ -240,6 +285,49 @@ public class Scene {
         return OBJECTS.get(i);
     }
 
+    /**
+     * Removes the given GameObject and it's descendants from the Scene with
+     * all of their Components, so the MeshComponents, the lights etc. aren't
+     * presented in the Scene anymore. If they contain the main camera or the
+     * directional light, the Scene won't have main camera or directional
+     * light. The tests use it to tear down their scenes.
+     *
+     * @param gameObject GameObject
+     *
+     * @return true if the GameObject removed successfully, false if it wasn't
+     *         in the Scene
+     *
+     * @throws NullPointerException gameObject can't be null
+     */
+    static boolean removeGameObject(@NotNull GameObject gameObject) {
+        if (gameObject == null) {
+            throw new NullPointerException();
+        }
+        if (!Utility.containsReference(OBJECTS, gameObject)) {
+            return false;
+        }
+        for (int i = gameObject.getNumberOfChildren() - 1; i >= 0; i--) {
+            removeGameObject(gameObject.getChild(i));
+        }
+        if (camera != null && camera.getGameObject() == gameObject) {
+            if (directionalLight != null) {
+                camera.removeInvalidatable(directionalLight);
+            }
+            camera = null;
+        }
+        if (directionalLight != null && directionalLight.getGameObject() == gameObject) {
+            if (camera != null) {
+                camera.removeInvalidatable(directionalLight);
+            }
+            directionalLight = null;
+        }
+        for (int i = gameObject.getNumberOfComponents() - 1; i >= 0; i--) {
+            gameObject.removeComponent(i);
+        }
+        Utility.removeReference(OBJECTS, gameObject);
+        return true;
+    }
+
     //
     //meshes--------------------------------------------------------------------
     //
@@ -269,6 +357,9 @@ public class Scene {
         if (!Utility.containsReference(list, meshComponent) && meshComponent.getGameObject() != null) {
             list.add(meshComponent);
         }
+        if (meshComponent.getGameObject() != null) {
+            BVH.addMeshComponent(meshComponent);
+        }
     }
 
     /**
@@ -283,6 +374,7 @@ public class Scene {
     public static void removeMeshComponent(@NotNull MeshComponent meshComponent) {
         if (meshComponent.getGameObject() == null) {
             removeMeshComponent(meshComponent, meshComponent.getMaterial(), meshComponent.getMesh());
+            BVH.removeMeshComponent(meshComponent);
         }
     }
 
@@ -393,6 +485,164 @@ public class Scene {
         }
     }
 
+    /**
+     * Signs that the given MeshComponent's bounding box may have changed. There
+     * is really no reason to call this method, MeshComponents automatically
+     * call it when they're invalidated.
+     *
+     * @param meshComponent MeshComponent
+     */
+    public static void invalidateMeshComponent(@NotNull MeshComponent meshComponent) {
+        BVH.invalidateMeshComponent(meshComponent);
+    }
+
+    /**
+     * Signs that a static shadow caster changed, so the cached shadows are
+     * invalid. There is really no reason to call this method, MeshComponents
+     * automatically call it when a static shadow caster changes.
+     *
+     * @see MeshComponent#isStaticShadowCaster()
+     */
+    public static void invalidateStaticShadowCasters() {
+        staticShadowCasterVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns the static shadow casters' version. It changes every time when a
+     * static shadow caster changes, so if it's the same as before, you can use
+     * the cached shadows of the static shadow casters.
+     *
+     * @return the static shadow casters' version
+     *
+     * @see MeshComponent#isStaticShadowCaster()
+     */
+    public static int getStaticShadowCasterVersion() {
+        return staticShadowCasterVersion.get();
+    }
+
+    /**
+     * Signs that something changed which appears in all the environment
+     * probes, so their cube maps are invalid. The MeshComponents' changes
+     * invalidate only the affected probes' faces automatically, but you should
+     * call it if you change something else which appears in the probes (like
+     * the directional light).
+     *
+     * @see rendering.EnvironmentProbeScheduler
+     * @see #getNumberOfChangedMeshComponentAabbs()
+     */
+    public static void invalidateEnvironmentProbes() {
+        environmentProbeVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns the environment probes' version. It changes every time when
+     * something changes which appears in all the environment probes, so if
+     * it's the same as before (and the MeshComponents didn't change near the
+     * probe), you don't have to render the probes again.
+     *
+     * @return the environment probes' version
+     *
+     * @see rendering.EnvironmentProbeScheduler
+     */
+    public static int getEnvironmentProbeVersion() {
+        return environmentProbeVersion.get();
+    }
+
+    /**
+     * Returns the number of the world space AABBs which contain the changed
+     * MeshComponents since the last clearChangedMeshComponentAabbs call. It
+     * includes the added and the removed MeshComponents, and both the old and
+     * the new AABBs of the moved ones. The changes are recorded when the
+     * bounding volume hierarchy is refreshed.
+     *
+     * @return the number of the changed AABBs
+     *
+     * @see #isChangedMeshComponentAabbsOverflow()
+     */
+    public static int getNumberOfChangedMeshComponentAabbs() {
+        return BVH.getNumberOfChangedAabbs();
+    }
+
+    /**
+     * Returns the given changed AABB.
+     *
+     * @param index the changed AABB's index
+     * @param min   the AABB's minimum x, y and z values will be stored here
+     * @param max   the AABB's maximum x, y and z values will be stored here
+     *
+     * @throws IndexOutOfBoundsException the changed AABB doesn't exist
+     */
+    public static void getChangedMeshComponentAabb(int index, @NotNull Vector3f min, @NotNull Vector3f max) {
+        BVH.getChangedAabb(index, min, max);
+    }
+
+    /**
+     * Determines whether too many MeshComponents changed to record all of
+     * their AABBs. In this case anything may have changed.
+     *
+     * @return true if the recorded changes are incomplete, false otherwise
+     */
+    public static boolean isChangedMeshComponentAabbsOverflow() {
+        return BVH.isChangedAabbsOverflow();
+    }
+
+    /**
+     * Removes the recorded changes of the MeshComponents. There is really no
+     * reason to call this method, the EnvironmentProbeScheduler calls it after
+     * processing the changes.
+     *
+     * @see rendering.EnvironmentProbeScheduler
+     */
+    public static void clearChangedMeshComponentAabbs() {
+        BVH.clearChanges();
+    }
+
+    /**
+     * Refreshes the bounding volume hierarchy of the MeshComponents. After
+     * that the queries only read the hierarchy until a MeshComponent changes,
+     * so you can run them in parallel. There is really no reason to call this
+     * method, the Visibility calls it before the parallel queries.
+     *
+     * @see rendering.Visibility
+     */
+    public static void refreshBoundingVolumeHierarchy() {
+        BVH.refresh();
+    }
+
+    /**
+     * Fills the given MeshComponentGroups with the MeshComponents which are
+     * inside, or intersect the given frustum. The result's previous content is
+     * removed. Note that if frustum culling is disabled, the result contains
+     * all the MeshComponents.
+     *
+     * @param frustum frustum
+     * @param result  result
+     *
+     * @see Settings#isFrustumCulling()
+     */
+    public static void getMeshComponentsInsideFrustum(@NotNull FrustumIntersection frustum, @NotNull MeshComponentGroups result) {
+        result.clear();
+        if (Settings.isFrustumCulling()) {
+            BVH.getMeshComponentsInsideFrustum(frustum, result);
+        } else {
+            BVH.getMeshComponents(result);
+        }
+    }
+
+    /**
+     * Fills the given MeshComponentGroups with the MeshComponents which
+     * bounding box intersects the sphere determined by the given parameters.
+     * The result's previous content is removed.
+     *
+     * @param center the sphere's center
+     * @param radius the sphere's radius
+     * @param result result
+     */
+    public static void getMeshComponentsInsideSphere(@NotNull Vector3f center, float radius, @NotNull MeshComponentGroups result) {
+        result.clear();
+        BVH.getMeshComponentsInsideSphere(center, radius, result);
+    }
+
     //
     //splines-------------------------------------------------------------------
     //
@@ -640,6 +890,12 @@ public class Scene {
         Scene.audioListener = audioListener;
     }
 
+    /**
+     * Returns the scene's sky box.
+     *
+     * @return the scene's sky box, or null if the scene doesn't have a sky
+     *         box
+     */
     @Nullable
     public static EnvironmentProbe getSkybox() {
         return skybox;
@@ -652,6 +908,14 @@ public class Scene {
         Scene.skybox = skybox;
     }
 
+    /**
+     * Removes the scene's sky box, so the sky box isn't rendered anymore. The
+     * tests use it to tear down their scenes.
+     */
+    static void removeSkybox() {
+        skybox = null;
+    }
+
     /**
      * Return the scene's environment color.
      *
@@ -2,6 +2,8 @@ package core;
 
 import resources.*;
 import resources.textures.EasyFiltering.TextureFiltering;
+import toolbox.*;
+import toolbox.ShadowCascades.SplitScheme;
 import toolbox.annotations.*;
 
 /**
@@ -17,9 +19,13 @@ public class Settings {
      */
     private static boolean shadowMapping = true;
     /**
-     * Shadow map's size.
+     * The size of a shadow cascade's shadow map.
      */
     private static int shadowMapResolution = 1024;
+    /**
+     * The number of the directional light's shadow cascades.
+     */
+    private static int numberOfShadowCascades = 3;
     /**
      * Multisample antialiasing level.
      */
@@ -43,6 +49,66 @@ public class Settings {
      * Determines whether the frustum culling is enabled.
      */
     private static boolean frustumCulling = true;
+    /**
+     * Determines whether the MeshComponents sharing the same Mesh are drawn
+     * with instanced rendering.
+     */
+    private static boolean instancedRendering;
+    /**
+     * Determines whether the GameObject hierarchies containing only
+     * thread-safe Components are updated in parallel.
+     */
+    private static boolean parallelUpdate;
+    /**
+     * Determines whether the visible MeshComponents of the frame's views are
+     * computed in parallel.
+     */
+    private static boolean parallelVisibility = true;
+    /**
+     * Determines whether the environment probes' faces are rendered in one
+     * pass.
+     */
+    private static boolean layeredEnvironmentProbeRendering;
+    /**
+     * The time in milliseconds which the environment probe updates may use in
+     * a frame.
+     */
+    private static float environmentProbeUpdateBudget = 2;
+    /**
+     * Determines whether the meshes' levels of detail are selected by their
+     * screen size.
+     */
+    private static boolean levelOfDetail;
+    /**
+     * The relative margin around the levels of detail's screen sizes, which
+     * prevents the switching back and forth.
+     */
+    private static float lodHysteresis = 0.1f;
+    /**
+     * The number of levels the shadow maps' levels of detail are coarser than
+     * their screen size would require.
+     */
+    private static int shadowLodBias = 1;
+    /**
+     * The number of levels the environment probes' levels of detail are
+     * coarser than their screen size would require.
+     */
+    private static int environmentProbeLodBias = 1;
+    /**
+     * Determines whether the meshes' vertex attributes and indices are
+     * uploaded in compressed formats.
+     */
+    private static boolean vertexCompression;
+    /**
+     * Determines whether the MeshComponents hidden behind the occluders are
+     * culled.
+     */
+    private static boolean occlusionCulling = true;
+    /**
+     * Determines whether the consecutive per pixel post processing effects are
+     * performed in one pass.
+     */
+    private static boolean postProcessingPassFusion = true;
     /**
      * The directional light's shadow camera's distance from the user's camera's
      * center.
@@ -56,6 +122,15 @@ public class Settings {
      * The directional light's shadow camera's far plane's distance.
      */
     private static float shadowCameraFarDistance = 10000;
+    /**
+     * The way of splitting the camera's view frustum into shadow cascades.
+     */
+    private static SplitScheme shadowCascadeSplitScheme = SplitScheme.PRACTICAL;
+    /**
+     * The weight of the logarithmic split scheme in the practical split
+     * scheme.
+     */
+    private static float shadowCascadeSplitLambda = 0.75f;
 
     /**
      * To can't create Settings instance.
@@ -82,18 +157,21 @@ public class Settings {
     }
 
     /**
-     * Returns the shadow map's size.
+     * Returns the size of a shadow cascade's shadow map. The shadow cascades
+     * are stored in one shadow map atlas.
+     *
+     * @return the size of a shadow cascade's shadow map
      *
-     * @return shadow map's size
+     * @see ShadowCascades
      */
     public static int getShadowMapResolution() {
         return shadowMapResolution;
     }
 
     /**
-     * Sets the shadow map's size to the given value.
+     * Sets the size of a shadow cascade's shadow map to the given value.
      *
-     * @param size shadow map's size
+     * @param size the size of a shadow cascade's shadow map
      *
      * @throws IllegalArgumentException shadow map size must be positive
      */
@@ -104,6 +182,33 @@ public class Settings {
         shadowMapResolution = size;
     }
 
+    /**
+     * Returns the number of the directional light's shadow cascades.
+     *
+     * @return the number of shadow cascades
+     */
+    public static int getNumberOfShadowCascades() {
+        return numberOfShadowCascades;
+    }
+
+    /**
+     * Sets the number of the directional light's shadow cascades to the given
+     * value. More cascades give sharper shadows near to the camera, but every
+     * cascade needs its own shadow map and its own shadow casters.
+     *
+     * @param numberOfShadowCascades number of shadow cascades
+     *
+     * @throws IllegalArgumentException number of shadow cascades must be in the
+     * [1;ShadowCascades.MAX_NUMBER_OF_CASCADES] interval
+     * @see ShadowCascades#MAX_NUMBER_OF_CASCADES
+     */
+    public static void setNumberOfShadowCascades(int numberOfShadowCascades) {
+        if (numberOfShadowCascades < 1 || numberOfShadowCascades > ShadowCascades.MAX_NUMBER_OF_CASCADES) {
+            throw new IllegalArgumentException("Number of shadow cascades must be in the [1;" + ShadowCascades.MAX_NUMBER_OF_CASCADES + "] interval");
+        }
+        Settings.numberOfShadowCascades = numberOfShadowCascades;
+    }
+
     /**
      * Returns the multisample antialiasing's level.
      *
@@ -222,6 +327,334 @@ public class Settings {
         Settings.frustumCulling = frustumCulling;
     }
 
+    /**
+     * Determines whether instanced rendering is enabled. If it's enabled, the
+     * MeshComponents which share the same Mesh and Material are drawn with
+     * only one draw call.
+     *
+     * @return true if instanced rendering is enabled, false otherwise
+     */
+    public static boolean isInstancedRendering() {
+        return instancedRendering;
+    }
+
+    /**
+     * Sets whether or not instanced rendering is enabled.
+     *
+     * @param instancedRendering true if instanced rendering should be enabled,
+     * false otherwise
+     */
+    public static void setInstancedRendering(boolean instancedRendering) {
+        Settings.instancedRendering = instancedRendering;
+    }
+
+    /**
+     * Determines whether the GameObject hierarchies containing only
+     * thread-safe Components are updated in parallel. The other GameObjects
+     * are still updated on the main thread, after the parallel updates.
+     *
+     * @return true if parallel update is enabled, false otherwise
+     *
+     * @see toolbox.annotations.ThreadSafe
+     */
+    public static boolean isParallelUpdate() {
+        return parallelUpdate;
+    }
+
+    /**
+     * Sets whether or not the GameObject hierarchies containing only
+     * thread-safe Components are updated in parallel.
+     *
+     * @param parallelUpdate true if parallel update should be enabled, false
+     * otherwise
+     *
+     * @see toolbox.annotations.ThreadSafe
+     */
+    public static void setParallelUpdate(boolean parallelUpdate) {
+        Settings.parallelUpdate = parallelUpdate;
+    }
+
+    /**
+     * Determines whether the visible MeshComponents of the frame's views (the
+     * main camera, the shadow cascades and the environment probes) are
+     * computed in parallel.
+     *
+     * @return true if parallel visibility is enabled, false otherwise
+     *
+     * @see rendering.Visibility
+     */
+    public static boolean isParallelVisibility() {
+        return parallelVisibility;
+    }
+
+    /**
+     * Sets whether or not the visible MeshComponents of the frame's views are
+     * computed in parallel.
+     *
+     * @param parallelVisibility true if parallel visibility should be enabled,
+     *                           false otherwise
+     *
+     * @see rendering.Visibility
+     */
+    public static void setParallelVisibility(boolean parallelVisibility) {
+        Settings.parallelVisibility = parallelVisibility;
+    }
+
+    /**
+     * Determines whether the six faces of the dynamic environment probes are
+     * rendered in one pass. If it's enabled, a geometry shader sends every
+     * object only to the faces which frustum it intersects. Otherwise the
+     * faces are rendered one by one, and every face draws only the objects
+     * inside it's own frustum.
+     *
+     * @return true if layered environment probe rendering is enabled, false
+     *         otherwise
+     */
+    public static boolean isLayeredEnvironmentProbeRendering() {
+        return layeredEnvironmentProbeRendering;
+    }
+
+    /**
+     * Sets whether or not the six faces of the dynamic environment probes are
+     * rendered in one pass.
+     *
+     * @param layeredEnvironmentProbeRendering true if layered environment
+     *                                         probe rendering should be
+     *                                         enabled, false otherwise
+     */
+    public static void setLayeredEnvironmentProbeRendering(boolean layeredEnvironmentProbeRendering) {
+        Settings.layeredEnvironmentProbeRendering = layeredEnvironmentProbeRendering;
+    }
+
+    /**
+     * Returns the time in milliseconds which the environment probe updates may
+     * use in a frame. The scheduler estimates the faces' rendering time from
+     * the previous renderings, and always renders at least one invalid face
+     * per frame.
+     *
+     * @return the environment probe updates' budget in milliseconds
+     *
+     * @see rendering.EnvironmentProbeScheduler
+     */
+    public static float getEnvironmentProbeUpdateBudget() {
+        return environmentProbeUpdateBudget;
+    }
+
+    /**
+     * Sets the time in milliseconds which the environment probe updates may
+     * use in a frame. If it's infinite, all the invalid faces are rendered in
+     * the next frame.
+     *
+     * @param environmentProbeUpdateBudget the environment probe updates'
+     *                                     budget in milliseconds
+     *
+     * @throws IllegalArgumentException budget can't be negative
+     * @see rendering.EnvironmentProbeScheduler
+     */
+    public static void setEnvironmentProbeUpdateBudget(float environmentProbeUpdateBudget) {
+        if (environmentProbeUpdateBudget < 0) {
+            throw new IllegalArgumentException("Budget can't be negative");
+        }
+        Settings.environmentProbeUpdateBudget = environmentProbeUpdateBudget;
+    }
+
+    /**
+     * Determines whether the meshes' levels of detail are selected by their
+     * screen size. If it's false, the meshes are always rendered with their
+     * most detailed level. It's disabled by default.
+     *
+     * @return true if the level of detail selection is enabled, false
+     *         otherwise
+     *
+     * @see resources.meshes.Mesh#getLodScreenSize(int)
+     */
+    public static boolean isLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    /**
+     * Sets whether or not the meshes' levels of detail are selected by their
+     * screen size.
+     *
+     * @param levelOfDetail true if the level of detail selection should be
+     *                      enabled, false otherwise
+     *
+     * @see resources.meshes.Mesh#getLodScreenSize(int)
+     */
+    public static void setLevelOfDetail(boolean levelOfDetail) {
+        Settings.levelOfDetail = levelOfDetail;
+        Scene.invalidateStaticShadowCasters();
+        Scene.invalidateEnvironmentProbes();
+    }
+
+    /**
+     * Returns the relative margin around the levels of detail's screen sizes.
+     * A mesh switches to a coarser level only if its screen size is smaller
+     * than the level's screen size by this ratio, and it switches back only if
+     * its screen size is larger by this ratio, so the meshes around a screen
+     * size don't switch back and forth.
+     *
+     * @return the levels of detail's hysteresis
+     */
+    public static float getLodHysteresis() {
+        return lodHysteresis;
+    }
+
+    /**
+     * Sets the relative margin around the levels of detail's screen sizes to
+     * the given value.
+     *
+     * @param lodHysteresis the levels of detail's hysteresis
+     *
+     * @throws IllegalArgumentException hysteresis must be in the [0;1)
+     *                                  interval
+     */
+    public static void setLodHysteresis(float lodHysteresis) {
+        if (lodHysteresis < 0 || lodHysteresis >= 1) {
+            throw new IllegalArgumentException("Hysteresis must be in the [0;1) interval");
+        }
+        Settings.lodHysteresis = lodHysteresis;
+    }
+
+    /**
+     * Returns the number of levels the shadow maps' levels of detail are
+     * coarser than their screen size (in the shadow map) would require.
+     *
+     * @return the shadow maps' level of detail bias
+     */
+    public static int getShadowLodBias() {
+        return shadowLodBias;
+    }
+
+    /**
+     * Sets the number of levels the shadow maps' levels of detail are coarser
+     * than their screen size (in the shadow map) would require.
+     *
+     * @param shadowLodBias the shadow maps' level of detail bias
+     *
+     * @throws IllegalArgumentException bias can't be negative
+     */
+    public static void setShadowLodBias(int shadowLodBias) {
+        if (shadowLodBias < 0) {
+            throw new IllegalArgumentException("Bias can't be negative");
+        }
+        Settings.shadowLodBias = shadowLodBias;
+        Scene.invalidateStaticShadowCasters();
+    }
+
+    /**
+     * Returns the number of levels the environment probes' levels of detail
+     * are coarser than their screen size (in the cube map) would require.
+     *
+     * @return the environment probes' level of detail bias
+     */
+    public static int getEnvironmentProbeLodBias() {
+        return environmentProbeLodBias;
+    }
+
+    /**
+     * Sets the number of levels the environment probes' levels of detail are
+     * coarser than their screen size (in the cube map) would require.
+     *
+     * @param environmentProbeLodBias the environment probes' level of detail
+     *                                bias
+     *
+     * @throws IllegalArgumentException bias can't be negative
+     */
+    public static void setEnvironmentProbeLodBias(int environmentProbeLodBias) {
+        if (environmentProbeLodBias < 0) {
+            throw new IllegalArgumentException("Bias can't be negative");
+        }
+        Settings.environmentProbeLodBias = environmentProbeLodBias;
+        Scene.invalidateEnvironmentProbes();
+    }
+
+    /**
+     * Determines whether the meshes' vertex attributes and indices are
+     * uploaded in compressed formats. The compressed vertices are half as
+     * large, the texture coordinates are half floats, the normal and tangent
+     * vectors are packed integers and the indices are 16 bit if the mesh has
+     * few enough vertices. It's disabled by default, because the compressed
+     * attributes are less precise.
+     *
+     * @return true if the vertex compression is enabled, false otherwise
+     *
+     * @see resources.meshes.VertexCompression
+     */
+    public static boolean isVertexCompression() {
+        return vertexCompression;
+    }
+
+    /**
+     * Sets whether or not the meshes' vertex attributes and indices are
+     * uploaded in compressed formats. It affects only the meshes uploaded to
+     * the VRAM after the change.
+     *
+     * @param vertexCompression true if the vertex compression should be
+     *                          enabled, false otherwise
+     *
+     * @see resources.meshes.VertexCompression
+     */
+    public static void setVertexCompression(boolean vertexCompression) {
+        Settings.vertexCompression = vertexCompression;
+    }
+
+    /**
+     * Determines whether the MeshComponents hidden behind the occluders are
+     * culled. The occluders are rasterized into a small depth buffer on the
+     * CPU, and the MeshComponents inside the camera's frustum are tested
+     * against it before rendering.
+     *
+     * @return true if the occlusion culling is enabled, false otherwise
+     *
+     * @see rendering.OcclusionCulling
+     * @see components.renderables.MeshComponent#getOccluder()
+     */
+    public static boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    /**
+     * Sets whether or not the MeshComponents hidden behind the occluders are
+     * culled.
+     *
+     * @param occlusionCulling true if the occlusion culling should be
+     *                         enabled, false otherwise
+     *
+     * @see rendering.OcclusionCulling
+     */
+    public static void setOcclusionCulling(boolean occlusionCulling) {
+        Settings.occlusionCulling = occlusionCulling;
+    }
+
+    /**
+     * Determines whether the consecutive per pixel post processing effects
+     * (like the tone mapping, the gamma correction, the grayscale or the
+     * invert) are performed in one pass. If it's enabled, the effects are
+     * fused into one generated shader program, so the image is read and
+     * written only once instead of once per effect. The effects which read
+     * the neighbouring pixels (like the FXAA) are always separate passes.
+     *
+     * @return true if the post processing pass fusion is enabled, false
+     *         otherwise
+     *
+     * @see rendering.stages.PostProcessingRenderingStage
+     */
+    public static boolean isPostProcessingPassFusion() {
+        return postProcessingPassFusion;
+    }
+
+    /**
+     * Sets whether or not the consecutive per pixel post processing effects
+     * are performed in one pass.
+     *
+     * @param postProcessingPassFusion true if the post processing pass fusion
+     *                                 should be enabled, false otherwise
+     */
+    public static void setPostProcessingPassFusion(boolean postProcessingPassFusion) {
+        Settings.postProcessingPassFusion = postProcessingPassFusion;
+    }
+
     /**
      * Returns the shadow camera's distance from the user's camera's center.
      *
@@ -299,4 +732,61 @@ public class Settings {
         Settings.shadowCameraFarDistance = shadowCameraFarDistance;
     }
 
+    /**
+     * Returns the way of splitting the camera's view frustum into shadow
+     * cascades.
+     *
+     * @return the shadow cascades' split scheme
+     */
+    @NotNull
+    public static SplitScheme getShadowCascadeSplitScheme() {
+        return shadowCascadeSplitScheme;
+    }
+
+    /**
+     * Sets the way of splitting the camera's view frustum into shadow cascades
+     * to the given value.
+     *
+     * @param shadowCascadeSplitScheme the shadow cascades' split scheme
+     *
+     * @throws NullPointerException split scheme can't be null
+     */
+    public static void setShadowCascadeSplitScheme(@NotNull SplitScheme shadowCascadeSplitScheme) {
+        if (shadowCascadeSplitScheme == null) {
+            throw new NullPointerException();
+        }
+        Settings.shadowCascadeSplitScheme = shadowCascadeSplitScheme;
+    }
+
+    /**
+     * Returns the weight of the logarithmic split scheme in the practical
+     * split scheme.
+     *
+     * @return the weight of the logarithmic split scheme
+     *
+     * @see SplitScheme#PRACTICAL
+     */
+    public static float getShadowCascadeSplitLambda() {
+        return shadowCascadeSplitLambda;
+    }
+
+    /**
+     * Sets the weight of the logarithmic split scheme in the practical split
+     * scheme to the given value. 0 means uniform, 1 means logarithmic split
+     * scheme.
+     *
+     * @param shadowCascadeSplitLambda the weight of the logarithmic split
+     * scheme
+     *
+     * @throws IllegalArgumentException split lambda must be in the [0;1]
+     * interval
+     * @see SplitScheme#PRACTICAL
+     */
+    public static void setShadowCascadeSplitLambda(float shadowCascadeSplitLambda) {
+        if (shadowCascadeSplitLambda < 0 || shadowCascadeSplitLambda > 1) {
+            throw new IllegalArgumentException("Split lambda must be in the [0;1] interval");
+        }
+        Settings.shadowCascadeSplitLambda = shadowCascadeSplitLambda;
+    }
+
 }
@@ -48,6 +48,10 @@ public class Transform implements Invalidatable {
      * Absolute scale.
      */
     private final Vector3f absoluteScale = new Vector3f();
+    /**
+     * Absolute rotation as a quaternion.
+     */
+    private final Quaternionf absoluteRotationQuaternion = new Quaternionf();
     /**
      * Model matrix.
      */
@@ -80,6 +84,10 @@ public class Transform implements Invalidatable {
      * Prevents invalidation mechanism from causing deadlock.
      */
     private boolean invalidatable = true;
+    /**
+     * The origin, it's used for computing the inverse model matrix.
+     */
+    private static final Vector3f ORIGIN = new Vector3f();
 
     private BillboardingMode billboardingMode = BillboardingMode.NO_BILLBOARDING;
     private final Vector3f billboardingAxis = new Vector3f(0, 1, 0);
@@ -100,11 +108,17 @@ public class Transform implements Invalidatable {
             throw new NullPointerException();
         }
         this.billboardingMode = billboardingMode;
+        invalidate();
     }
 
     @NotNull @ReadOnly
     public Vector3f getBillboardingAxis() {
-        return new Vector3f(billboardingAxis);
+        return getBillboardingAxis(new Vector3f());
+    }
+
+    @NotNull
+    public Vector3f getBillboardingAxis(@NotNull Vector3f dest) {
+        return dest.set(billboardingAxis);
     }
 
     public void setBillboardingAxis(@NotNull Vector3f billboardingAxis) {
@@ -140,7 +154,19 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getRelativePosition() {
-        return new Vector3f(relativePosition);
+        return getRelativePosition(new Vector3f());
+    }
+
+    /**
+     * Stores the relative position in the given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getRelativePosition(@NotNull Vector3f dest) {
+        return dest.set(relativePosition);
     }
 
     /**
@@ -160,8 +186,20 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getAbsolutePosition() {
+        return getAbsolutePosition(new Vector3f());
+    }
+
+    /**
+     * Stores the absolute position in the given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getAbsolutePosition(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(absolutePosition);
+        return dest.set(absolutePosition);
     }
 
     /**
@@ -207,7 +245,19 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getRelativeRotation() {
-        return new Vector3f(relativeRotation);
+        return getRelativeRotation(new Vector3f());
+    }
+
+    /**
+     * Stores the relative rotation in the given vector.
+     *
+     * @param dest will hold the result (in degrees)
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getRelativeRotation(@NotNull Vector3f dest) {
+        return dest.set(relativeRotation);
     }
 
     /**
@@ -227,8 +277,20 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getAbsoluteRotation() {
+        return getAbsoluteRotation(new Vector3f());
+    }
+
+    /**
+     * Stores the absolute rotation in the given vector.
+     *
+     * @param dest will hold the result (in degrees)
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getAbsoluteRotation(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(absoluteRotation);
+        return dest.set(absoluteRotation);
     }
 
     /**
@@ -267,7 +329,19 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getRelativeScale() {
-        return new Vector3f(relativeScale);
+        return getRelativeScale(new Vector3f());
+    }
+
+    /**
+     * Stores the relative scale in the given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getRelativeScale(@NotNull Vector3f dest) {
+        return dest.set(relativeScale);
     }
 
     /**
@@ -287,8 +361,20 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getAbsoluteScale() {
+        return getAbsoluteScale(new Vector3f());
+    }
+
+    /**
+     * Stores the absolute scale in the given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getAbsoluteScale(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(absoluteScale);
+        return dest.set(absoluteScale);
     }
 
     /**
@@ -320,15 +406,27 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Matrix4f getModelMatrix() {
+        return getModelMatrix(new Matrix4f());
+    }
+
+    /**
+     * Stores the model matrix in the given matrix.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     *
+     * @see #getModelMatrix()
+     */
+    @NotNull
+    public Matrix4f getModelMatrix(@NotNull Matrix4f dest) {
         refresh();
         if (getBillboardingMode() == BillboardingMode.NO_BILLBOARDING) {
-            return new Matrix4f(modelMatrix);
+            return dest.set(modelMatrix);
         } else if (billboardingMode == BillboardingMode.CYLINDRICAL_BILLBOARDING) {
-            Vector3f cameraPosition = Scene.getCamera().getGameObject().getTransform().getAbsolutePosition();
-            return new Matrix4f().billboardCylindrical(absolutePosition, cameraPosition, billboardingAxis).scale(absoluteScale);
+            return dest.billboardCylindrical(absolutePosition, getCameraTransform().absolutePosition, billboardingAxis).scale(absoluteScale);
         } else {
-            Vector3f cameraPosition = Scene.getCamera().getGameObject().getTransform().getAbsolutePosition();
-            return new Matrix4f().billboardSpherical(absolutePosition, cameraPosition).scale(absoluteScale);
+            return dest.billboardSpherical(absolutePosition, getCameraTransform().absolutePosition).scale(absoluteScale);
         }
     }
 
@@ -341,26 +439,54 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Matrix4f getInverseModelMatrix() {
+        return getInverseModelMatrix(new Matrix4f());
+    }
+
+    /**
+     * Stores the model matrix's inverse in the given matrix.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     *
+     * @see #getInverseModelMatrix()
+     */
+    @NotNull
+    public Matrix4f getInverseModelMatrix(@NotNull Matrix4f dest) {
         refresh();
         if (getBillboardingMode() == BillboardingMode.NO_BILLBOARDING) {
-            return new Matrix4f(inverseModelMatrix);
+            return dest.set(inverseModelMatrix);
         } else if (billboardingMode == BillboardingMode.CYLINDRICAL_BILLBOARDING) {
-            Vector3f cameraPosition = Scene.getCamera().getGameObject().getTransform().getAbsolutePosition();
-            return new Matrix4f().billboardCylindrical(absolutePosition, cameraPosition, billboardingAxis).invert();
+            return dest.billboardCylindrical(absolutePosition, getCameraTransform().absolutePosition, billboardingAxis).invert();
         } else {
-            Vector3f cameraPosition = Scene.getCamera().getGameObject().getTransform().getAbsolutePosition();
-            return new Matrix4f().billboardSpherical(absolutePosition, cameraPosition).invert();
+            return dest.billboardSpherical(absolutePosition, getCameraTransform().absolutePosition).invert();
         }
     }
 
     /**
-     * Refreshes the data if it's invalid.
+     * Returns the main camera's refreshed Transform.
+     *
+     * @return the main camera's Transform
+     */
+    @NotNull
+    private Transform getCameraTransform() {
+        Transform cameraTransform = Scene.getCamera().getGameObject().getTransform();
+        cameraTransform.refresh();
+        return cameraTransform;
+    }
+
+    /**
+     * Refreshes the data if it's invalid. It doesn't allocate any memory.
      */
     protected void refresh() {
         if (!valid) {
             refreshAbsoluteTransform();
-            modelMatrix.set(Utility.computeModelMatrix(absolutePosition, absoluteRotation, absoluteScale));
-            inverseModelMatrix.set(Utility.computetInverseModelMatrix(new Vector3f(0), absoluteRotation, absoluteScale));
+            absoluteRotationQuaternion.rotation(
+                    Utility.toRadians(absoluteRotation.x),
+                    Utility.toRadians(absoluteRotation.y),
+                    Utility.toRadians(absoluteRotation.z));
+            modelMatrix.translationRotateScale(absolutePosition, absoluteRotationQuaternion, absoluteScale);
+            inverseModelMatrix.translationRotateScaleInvert(ORIGIN, absoluteRotationQuaternion, absoluteScale);
             refreshDirectionVectors();
             valid = true;
         }
@@ -374,8 +500,8 @@ public class Transform implements Invalidatable {
     public void invalidate() {
         if (invalidatable) {
             invalidatable = false;
-            for (Invalidatable inv : invalidatables) {
-                inv.invalidate();
+            for (int i = 0; i < invalidatables.size(); i++) {
+                invalidatables.get(i).invalidate();
             }
             valid = false;
             invalidatable = true;
@@ -392,17 +518,12 @@ public class Transform implements Invalidatable {
             absoluteRotation.set(relativeRotation);
             absoluteScale.set(relativeScale);
         } else {
-            Vector3f position = new Vector3f(relativePosition);
-            Vector3f parentRotation = new Vector3f(gameObject.getParent().getTransform().getAbsoluteRotation());
-            absolutePosition.set(
-                    position.rotate(
-                            new Quaternionf()
-                                    .rotation(Utility.toRadians(parentRotation.x),
-                                            Utility.toRadians(parentRotation.y),
-                                            Utility.toRadians(parentRotation.z))));
-            absolutePosition.add(gameObject.getParent().getTransform().getAbsolutePosition());
-            absoluteRotation.set(parentRotation.add(relativeRotation));
-            gameObject.getParent().getTransform().getAbsoluteScale().mul(relativeScale, absoluteScale);
+            Transform parent = gameObject.getParent().getTransform();
+            parent.refresh();
+            relativePosition.rotate(parent.absoluteRotationQuaternion, absolutePosition);
+            absolutePosition.add(parent.absolutePosition);
+            parent.absoluteRotation.add(relativeRotation, absoluteRotation);
+            parent.absoluteScale.mul(relativeScale, absoluteScale);
         }
     }
 
@@ -413,8 +534,20 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getForwardVector() {
+        return getForwardVector(new Vector3f());
+    }
+
+    /**
+     * Stores the forward direction vector in the given vector.
+     *
+     * @param dest will hold the result (normalized)
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getForwardVector(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(forward);
+        return dest.set(forward);
     }
 
     /**
@@ -424,8 +557,20 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getRightVector() {
+        return getRightVector(new Vector3f());
+    }
+
+    /**
+     * Stores the right direction vector in the given vector.
+     *
+     * @param dest will hold the result (normalized)
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getRightVector(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(right);
+        return dest.set(right);
     }
 
     /**
@@ -435,20 +580,28 @@ public class Transform implements Invalidatable {
      */
     @NotNull @ReadOnly
     public Vector3f getUpVector() {
+        return getUpVector(new Vector3f());
+    }
+
+    /**
+     * Stores the up direction vector in the given vector.
+     *
+     * @param dest will hold the result (normalized)
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getUpVector(@NotNull Vector3f dest) {
         refresh();
-        return new Vector3f(up);
+        return dest.set(up);
     }
 
     /**
      * Refreshes the forward, right and up direction vectors.
      */
     private void refreshDirectionVectors() {
-        Quaternionf rotation = new Quaternionf()
-                .rotation(Utility.toRadians(absoluteRotation.x),
-                        Utility.toRadians(absoluteRotation.y),
-                        Utility.toRadians(absoluteRotation.z));
-        forward.set(new Vector3f(0, 0, -1).rotate(rotation).normalize());
-        right.set(new Vector3f(1, 0, 0).rotate(rotation).normalize());
+        forward.set(0, 0, -1).rotate(absoluteRotationQuaternion).normalize();
+        right.set(1, 0, 0).rotate(absoluteRotationQuaternion).normalize();
         right.cross(forward, up);
     }
 
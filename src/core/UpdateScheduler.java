@@ -0,0 +1,263 @@
+package core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import toolbox.annotations.*;
+
+/**
+ * Updates the GameObjects, and the independent GameObject hierarchies which
+ * contain only thread-safe Components are updated in parallel on a
+ * ForkJoinPool. A hierarchy's GameObjects are always updated by the same
+ * thread, in the same order as the serial update would do it. The other
+ * GameObjects are updated on the calling thread after the parallel phase, so
+ * they can safely read the thread-safe hierarchies' results. After the lists
+ * grew large enough, it allocates only the fork-join tasks.
+ *
+ * @see ThreadSafe
+ */
+class UpdateScheduler {
+
+    /**
+     * Caches whether the Component classes are thread-safe.
+     */
+    private static final ClassValue<Boolean> THREAD_SAFE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(ThreadSafe.class);
+        }
+    };
+    /**
+     * The pool which runs the parallel updates.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * The hierarchy of each root GameObject.
+     */
+    private final Map<GameObject, Hierarchy> hierarchies = new IdentityHashMap<>();
+    /**
+     * All the hierarchies (including the unused ones).
+     */
+    private final List<Hierarchy> hierarchyPool = new ArrayList<>();
+    /**
+     * The number of the used hierarchies.
+     */
+    private int numberOfHierarchies;
+    /**
+     * The hierarchies containing only thread-safe Components.
+     */
+    private final List<Hierarchy> parallelHierarchies = new ArrayList<>();
+    /**
+     * The GameObjects updated on the calling thread.
+     */
+    private final List<GameObject> serialGameObjects = new ArrayList<>();
+
+    /**
+     * A root GameObject and it's descendants.
+     */
+    private static class Hierarchy {
+
+        /**
+         * The hierarchy's GameObjects in update order.
+         */
+        private final List<GameObject> gameObjects = new ArrayList<>();
+        /**
+         * Determines whether all the hierarchy's Components are thread-safe.
+         */
+        private boolean threadSafe;
+
+        /**
+         * Updates the hierarchy's GameObjects.
+         */
+        private void update() {
+            for (int i = 0; i < gameObjects.size(); i++) {
+                gameObjects.get(i).update();
+            }
+        }
+    }
+
+    /**
+     * Updates a range of the parallel hierarchies, and splits it if it's too
+     * large.
+     */
+    private class UpdateTask extends RecursiveAction {
+
+        /**
+         * The serialization version (RecursiveAction is Serializable).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first hierarchy's index.
+         */
+        private final int from;
+        /**
+         * The last hierarchy's index (exclusive).
+         */
+        private final int to;
+        /**
+         * The maximum number of the hierarchies updated without splitting.
+         */
+        private final int threshold;
+
+        /**
+         * Initializes a new UpdateTask to the given values.
+         *
+         * @param from      the first hierarchy's index
+         * @param to        the last hierarchy's index (exclusive)
+         * @param threshold the maximum number of the hierarchies updated
+         *                  without splitting
+         */
+        public UpdateTask(int from, int to, int threshold) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    parallelHierarchies.get(i).update();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new UpdateTask(from, middle, threshold), new UpdateTask(middle, to, threshold));
+            }
+        }
+    }
+
+    /**
+     * Initializes a new UpdateScheduler to the given value.
+     *
+     * @param pool the pool which runs the parallel updates
+     *
+     * @throws NullPointerException pool can't be null
+     */
+    public UpdateScheduler(@NotNull ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException();
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Updates the given GameObjects. The hierarchies which contain only
+     * thread-safe Components are updated in parallel, the other GameObjects are
+     * updated on the calling thread after them, in the given order.
+     *
+     * @param gameObjects all the GameObjects (including the children)
+     *
+     * @throws NullPointerException gameObjects can't be null
+     */
+    public void update(@NotNull List<GameObject> gameObjects) {
+        if (gameObjects == null) {
+            throw new NullPointerException();
+        }
+        try {
+            partition(gameObjects);
+            if (!parallelHierarchies.isEmpty()) {
+                int threshold = java.lang.Math.max(1, parallelHierarchies.size() / (pool.getParallelism() * 4));
+                pool.invoke(new UpdateTask(0, parallelHierarchies.size(), threshold));
+            }
+            for (int i = 0; i < serialGameObjects.size(); i++) {
+                serialGameObjects.get(i).update();
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * Groups the given GameObjects by their root, and separates the
+     * hierarchies which contain only thread-safe Components from the others.
+     *
+     * @param gameObjects all the GameObjects (including the children)
+     */
+    private void partition(@NotNull List<GameObject> gameObjects) {
+        for (int i = 0; i < gameObjects.size(); i++) {
+            GameObject gameObject = gameObjects.get(i);
+            Hierarchy hierarchy = hierarchies.get(gameObject.getRoot());
+            if (hierarchy == null) {
+                hierarchy = createHierarchy();
+                hierarchies.put(gameObject.getRoot(), hierarchy);
+            }
+            hierarchy.gameObjects.add(gameObject);
+            hierarchy.threadSafe &= isThreadSafe(gameObject);
+        }
+        for (int i = 0; i < gameObjects.size(); i++) {
+            GameObject gameObject = gameObjects.get(i);
+            Hierarchy hierarchy = hierarchies.get(gameObject.getRoot());
+            if (!hierarchy.threadSafe) {
+                serialGameObjects.add(gameObject);
+            } else if (hierarchy.gameObjects.get(0) == gameObject) {
+                parallelHierarchies.add(hierarchy);
+            }
+        }
+    }
+
+    /**
+     * Returns an unused hierarchy. If there is no such a hierarchy, it creates
+     * one.
+     *
+     * @return an unused hierarchy
+     */
+    @NotNull
+    private Hierarchy createHierarchy() {
+        if (numberOfHierarchies == hierarchyPool.size()) {
+            hierarchyPool.add(new Hierarchy());
+        }
+        Hierarchy hierarchy = hierarchyPool.get(numberOfHierarchies++);
+        hierarchy.threadSafe = true;
+        return hierarchy;
+    }
+
+    /**
+     * Removes all the hierarchies.
+     */
+    private void clear() {
+        for (int i = 0; i < numberOfHierarchies; i++) {
+            hierarchyPool.get(i).gameObjects.clear();
+        }
+        numberOfHierarchies = 0;
+        hierarchies.clear();
+        parallelHierarchies.clear();
+        serialGameObjects.clear();
+    }
+
+    /**
+     * Determines whether all the given GameObject's Components are
+     * thread-safe.
+     *
+     * @param gameObject GameObject
+     *
+     * @return true if all the GameObject's Components are thread-safe, false
+     *         otherwise
+     */
+    private boolean isThreadSafe(@NotNull GameObject gameObject) {
+        for (int i = 0; i < gameObject.getNumberOfComponents(); i++) {
+            if (!isThreadSafe(gameObject.getComponent(i).getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the given Component class is thread-safe.
+     *
+     * @param type Component class
+     *
+     * @return true if the class is annotated as thread-safe, false otherwise
+     *
+     * @see ThreadSafe
+     */
+    public static boolean isThreadSafe(@NotNull Class<?> type) {
+        return THREAD_SAFE.get(type);
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateScheduler{" + "pool=" + pool + '}';
+    }
+
+}
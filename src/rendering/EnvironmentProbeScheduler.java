@@ -0,0 +1,358 @@
+package rendering;
+
+import components.camera.*;
+import core.*;
+import java.util.*;
+import org.joml.*;
+import resources.environmentProbes.*;
+import toolbox.annotations.*;
+
+/**
+ * Decides which faces of the dynamic environment probes are rendered in the
+ * actual frame. A face is rendered again only if the probe moved, a
+ * MeshComponent changed inside the face's frustum (and the probe's max
+ * distance), or something changed which appears in all the probes since the
+ * face's last rendering. The invalid faces
+ * are rendered one by one, in the order of the probes' priority, until the
+ * estimated rendering time reaches the budget, so the probe updates are spread
+ * over several frames instead of causing spikes. At least one face is rendered
+ * in every frame if there is an invalid face, so a small budget doesn't stop
+ * the updates. The probes don't have an influence volume, so the screen
+ * coverage is approximated: the skybox covers the whole screen, and the other
+ * probes' importance decreases with their distance from the camera. The
+ * longer a probe waits, the higher it's priority, so no probe starves.
+ *
+ * @see Settings#getEnvironmentProbeUpdateBudget()
+ * @see Scene#invalidateEnvironmentProbes()
+ */
+public class EnvironmentProbeScheduler {
+
+    /**
+     * The bit mask of all the cube map's faces.
+     */
+    private static final int ALL_FACES = 0x3F;
+    /**
+     * The weight of the last measured rendering time in the estimated
+     * rendering time.
+     */
+    private static final float COST_SMOOTHING = 0.25f;
+    /**
+     * The probes' states.
+     */
+    private static final Map<DynamicEnvironmentProbe, ProbeState> STATES = new IdentityHashMap<>();
+    /**
+     * The probes which have invalid faces in the actual frame.
+     */
+    private static final List<ProbeState> CANDIDATES = new ArrayList<>();
+    /**
+     * Orders the probes by their priority (descending).
+     */
+    private static final Comparator<ProbeState> PRIORITY_ORDER = (a, b) -> Float.compare(b.priority, a.priority);
+    /**
+     * Reusable storage for the camera's position.
+     */
+    private static final Vector3f CAMERA_POSITION = new Vector3f();
+    /**
+     * Reusable storage for a changed AABB's minimum x, y and z values.
+     */
+    private static final Vector3f AABB_MIN = new Vector3f();
+    /**
+     * Reusable storage for a changed AABB's maximum x, y and z values.
+     */
+    private static final Vector3f AABB_MAX = new Vector3f();
+    /**
+     * Reusable storage for a face's projection view matrix.
+     */
+    private static final Matrix4f PROJECTION_VIEW_MATRIX = new Matrix4f();
+    /**
+     * The number of the scheduled frames.
+     */
+    private static int frame;
+
+    /**
+     * A probe's scheduling data.
+     */
+    private static class ProbeState {
+
+        /**
+         * The probe.
+         */
+        private final DynamicEnvironmentProbe probe;
+        /**
+         * The probe's position at the last scheduling.
+         */
+        private final Vector3f position = new Vector3f(Float.NaN);
+        /**
+         * The faces' frustums at the probe's last position.
+         */
+        private final FrustumIntersection[] faceFrustums = new FrustumIntersection[6];
+        /**
+         * The Scene's environment probe version at the last scheduling.
+         */
+        private int version;
+        /**
+         * The faces which have to be rendered again.
+         */
+        private int invalidFaces = ALL_FACES;
+        /**
+         * The faces scheduled for the actual frame.
+         */
+        private int scheduledFaces;
+        /**
+         * The face where the next scheduling starts.
+         */
+        private int nextFace;
+        /**
+         * The frame when the probe became invalid.
+         */
+        private int invalidSince;
+        /**
+         * The frame when a face of the probe was rendered last time.
+         */
+        private int lastRendering = Integer.MIN_VALUE / 2;
+        /**
+         * The frame when the probe was last seen in the Scene.
+         */
+        private int lastSeen;
+        /**
+         * The estimated rendering time of a face in nanoseconds. It's negative
+         * if the probe wasn't rendered yet.
+         */
+        private float faceCost = -1;
+        /**
+         * The probe's priority in the actual frame.
+         */
+        private float priority;
+
+        /**
+         * Initializes a new ProbeState to the given value.
+         *
+         * @param probe the probe
+         */
+        public ProbeState(@NotNull DynamicEnvironmentProbe probe) {
+            this.probe = probe;
+            for (int i = 0; i < faceFrustums.length; i++) {
+                faceFrustums[i] = new FrustumIntersection();
+            }
+        }
+    }
+
+    /**
+     * To can't create EnvironmentProbeScheduler instance.
+     */
+    private EnvironmentProbeScheduler() {
+    }
+
+    /**
+     * Schedules the faces of the Scene's dynamic environment probes for the
+     * actual frame. If the probes are rendered in one pass, all the faces of a
+     * probe are scheduled together. The Visibility calls it at the beginning
+     * of every frame.
+     *
+     * @param camera the main camera
+     *
+     * @throws NullPointerException camera can't be null
+     * @see Settings#isLayeredEnvironmentProbeRendering()
+     */
+    public static void schedule(@NotNull Camera camera) {
+        if (camera == null) {
+            throw new NullPointerException();
+        }
+        frame++;
+        camera.getGameObject().getTransform().getAbsolutePosition(CAMERA_POSITION);
+        CANDIDATES.clear();
+        for (int i = 0; i < Scene.getProbeCount(); i++) {
+            ProbeState state = refreshState(Scene.getProbe(i));
+            if (state.invalidFaces != 0 && frame - state.lastRendering >= state.probe.getRenderingFrequency()) {
+                state.priority = computePriority(state);
+                CANDIDATES.add(state);
+            }
+        }
+        Scene.clearChangedMeshComponentAabbs();
+        STATES.values().removeIf(state -> state.lastSeen != frame);
+        CANDIDATES.sort(PRIORITY_ORDER);
+        selectFaces();
+    }
+
+    /**
+     * Refreshes the given probe's state. It invalidates all the faces if the
+     * probe moved or something changed which appears in all the probes, and
+     * the faces which frustum contains a changed MeshComponent.
+     *
+     * @param probe environment probe
+     *
+     * @return the probe's state
+     */
+    @NotNull
+    private static ProbeState refreshState(@NotNull DynamicEnvironmentProbe probe) {
+        ProbeState state = STATES.get(probe);
+        if (state == null) {
+            state = new ProbeState(probe);
+            state.version = Scene.getEnvironmentProbeVersion();
+            state.invalidSince = frame;
+            STATES.put(probe, state);
+        }
+        state.lastSeen = frame;
+        state.scheduledFaces = 0;
+        if (!state.position.equals(probe.getPosition())) {
+            state.position.set(probe.getPosition());
+            for (int i = 0; i < state.faceFrustums.length; i++) {
+                PROJECTION_VIEW_MATRIX.set(DynamicEnvironmentProbe.getProjectionMatrix()).mul(probe.getViewMatrix(i));
+                state.faceFrustums[i].set(PROJECTION_VIEW_MATRIX);
+            }
+            invalidate(state, ALL_FACES);
+        }
+        if (state.version != Scene.getEnvironmentProbeVersion() || Scene.isChangedMeshComponentAabbsOverflow()) {
+            state.version = Scene.getEnvironmentProbeVersion();
+            invalidate(state, ALL_FACES);
+        } else if (state.invalidFaces != ALL_FACES) {
+            invalidate(state, computeChangedFaces(state));
+        }
+        return state;
+    }
+
+    /**
+     * Invalidates the given faces of the given probe.
+     *
+     * @param state the probe's state
+     * @param faces the invalid faces (the i-th bit belongs to the i-th face)
+     */
+    private static void invalidate(@NotNull ProbeState state, int faces) {
+        if (state.invalidFaces == 0 && faces != 0) {
+            state.invalidSince = frame;
+        }
+        state.invalidFaces |= faces;
+    }
+
+    /**
+     * Returns the faces of the given probe which frustum contains a changed
+     * MeshComponent's AABB inside the probe's max distance.
+     *
+     * @param state the probe's state
+     *
+     * @return the changed faces (the i-th bit belongs to the i-th face)
+     */
+    private static int computeChangedFaces(@NotNull ProbeState state) {
+        float radius = state.probe.getMaxDistance();
+        int faces = 0;
+        for (int i = 0; i < Scene.getNumberOfChangedMeshComponentAabbs() && faces != ALL_FACES; i++) {
+            Scene.getChangedMeshComponentAabb(i, AABB_MIN, AABB_MAX);
+            if (!Intersectionf.testAabSphere(AABB_MIN, AABB_MAX, state.position, radius * radius)) {
+                continue;
+            }
+            for (int j = 0; j < state.faceFrustums.length; j++) {
+                if ((faces & (1 << j)) == 0 && state.faceFrustums[j].testAab(AABB_MIN, AABB_MAX)) {
+                    faces |= 1 << j;
+                }
+            }
+        }
+        return faces;
+    }
+
+    /**
+     * Computes the given probe's priority based on it's importance and on how
+     * long it waits.
+     *
+     * @param state the probe's state
+     *
+     * @return the probe's priority
+     */
+    private static float computePriority(@NotNull ProbeState state) {
+        float importance;
+        if (state.probe == Scene.getSkybox()) {
+            importance = 1;
+        } else {
+            importance = 1 / (1 + CAMERA_POSITION.distance(state.probe.getPosition()));
+        }
+        return importance * (frame - state.invalidSince + 1);
+    }
+
+    /**
+     * Selects the faces of the candidates until the estimated rendering time
+     * reaches the budget.
+     */
+    private static void selectFaces() {
+        float budget = Settings.getEnvironmentProbeUpdateBudget() * 1_000_000;
+        boolean layered = Settings.isLayeredEnvironmentProbeRendering();
+        float time = 0;
+        boolean first = true;
+        for (ProbeState state : CANDIDATES) {
+            float faceCost = state.faceCost < 0 ? budget : state.faceCost;
+            if (layered) {
+                float cost = faceCost * 6;
+                if (!first && time + cost > budget) {
+                    return;
+                }
+                state.scheduledFaces = ALL_FACES;
+                time += cost;
+                first = false;
+                continue;
+            }
+            for (int i = 0; i < 6; i++) {
+                int face = (state.nextFace + i) % 6;
+                if ((state.invalidFaces & (1 << face)) == 0) {
+                    continue;
+                }
+                if (!first && time + faceCost > budget) {
+                    return;
+                }
+                state.scheduledFaces |= 1 << face;
+                time += faceCost;
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the given probe's faces which have to be rendered in the actual
+     * frame. The i-th bit belongs to the i-th face.
+     *
+     * @param probe environment probe
+     *
+     * @return the probe's faces scheduled for the actual frame
+     *
+     * @throws NullPointerException probe can't be null
+     */
+    public static int getScheduledFaces(@NotNull DynamicEnvironmentProbe probe) {
+        if (probe == null) {
+            throw new NullPointerException();
+        }
+        ProbeState state = STATES.get(probe);
+        return state == null ? 0 : state.scheduledFaces;
+    }
+
+    /**
+     * Signs that the given faces of the given probe are rendered, and refines
+     * the estimated rendering time of the probe's faces. The
+     * EnvironmentMapRenderer calls it after rendering the scheduled faces.
+     *
+     * @param probe       environment probe
+     * @param faces       the rendered faces
+     * @param nanoseconds the faces' rendering time in nanoseconds
+     *
+     * @throws NullPointerException     probe can't be null
+     * @throws IllegalArgumentException rendering time can't be negative
+     */
+    public static void addRenderingTime(@NotNull DynamicEnvironmentProbe probe, int faces, long nanoseconds) {
+        if (probe == null) {
+            throw new NullPointerException();
+        }
+        if (nanoseconds < 0) {
+            throw new IllegalArgumentException("Rendering time can't be negative");
+        }
+        ProbeState state = STATES.get(probe);
+        int numberOfFaces = Integer.bitCount(faces & ALL_FACES);
+        if (state == null || numberOfFaces == 0) {
+            return;
+        }
+        float faceCost = (float) nanoseconds / numberOfFaces;
+        state.faceCost = state.faceCost < 0 ? faceCost : state.faceCost + (faceCost - state.faceCost) * COST_SMOOTHING;
+        state.invalidFaces &= ~faces;
+        state.lastRendering = frame;
+        state.nextFace = (31 - Integer.numberOfLeadingZeros(faces & ALL_FACES) + 1) % 6;
+        if (state.invalidFaces == 0) {
+            state.invalidSince = frame;
+        }
+    }
+
+}
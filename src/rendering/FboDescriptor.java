@@ -0,0 +1,332 @@
+package rendering;
+
+import java.util.*;
+import org.joml.*;
+import resources.*;
+import resources.textures.*;
+import resources.textures.texture2D.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Describes an FBO's size, format and attachments. The FboPool and the
+ * RenderGraph use it as a key: the FBOs with equal descriptors are
+ * interchangeable, so they can be reused and shared.
+ *
+ * @see FboPool
+ * @see RenderGraph
+ */
+public class FboDescriptor {
+
+    /**
+     * The FBO's width and height.
+     */
+    private final Vector2i size;
+    /**
+     * The number of samples (1 if the FBO isn't multisampled).
+     */
+    private final int samples;
+    /**
+     * Determines whether the color attachments store floating point values.
+     */
+    private final boolean floatingPoint;
+    /**
+     * Determines whether the texture attachments use linear filtering.
+     */
+    private final boolean linearFiltering;
+    /**
+     * The FBO's attachments.
+     */
+    private final List<Attachment> attachments;
+    /**
+     * The descriptor's hash code. The descriptors are used as keys every
+     * frame, so it's computed only once.
+     */
+    private final int hash;
+
+    /**
+     * An attachment of the described FBO.
+     */
+    public static class Attachment {
+
+        /**
+         * The attachment's slot.
+         */
+        private final Fbo.FboAttachmentSlot slot;
+        /**
+         * The attachment's type.
+         */
+        private final Fbo.FboAttachmentType type;
+        /**
+         * The attachment's index.
+         */
+        private final int index;
+
+        /**
+         * Initializes a new Attachment to the given values.
+         *
+         * @param slot  the attachment's slot
+         * @param type  the attachment's type
+         * @param index the attachment's index (0;7), if slot isn't color
+         *              attachment, it must be 0
+         *
+         * @throws NullPointerException     slot and type can't be null
+         * @throws IllegalArgumentException if the slot is color attachment,
+         *                                  the index must be in the (0;7)
+         *                                  interval, otherwise it must be 0
+         */
+        public Attachment(@NotNull Fbo.FboAttachmentSlot slot, @NotNull Fbo.FboAttachmentType type, int index) {
+            if (slot == null || type == null) {
+                throw new NullPointerException();
+            }
+            if (slot == Fbo.FboAttachmentSlot.COLOR ? index < 0 || index > 7 : index != 0) {
+                throw new IllegalArgumentException("If the slot is color, the index must be in the (0;7) interval, otherwise it must be 0");
+            }
+            this.slot = slot;
+            this.type = type;
+            this.index = index;
+        }
+
+        /**
+         * Returns the attachment's slot.
+         *
+         * @return the attachment's slot
+         */
+        @NotNull
+        public Fbo.FboAttachmentSlot getSlot() {
+            return slot;
+        }
+
+        /**
+         * Returns the attachment's type.
+         *
+         * @return the attachment's type
+         */
+        @NotNull
+        public Fbo.FboAttachmentType getType() {
+            return type;
+        }
+
+        /**
+         * Returns the attachment's index.
+         *
+         * @return the attachment's index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 53 * hash + slot.hashCode();
+            hash = 53 * hash + type.hashCode();
+            hash = 53 * hash + index;
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Attachment other = (Attachment) obj;
+            return slot == other.slot && type == other.type && index == other.index;
+        }
+
+        @Override
+        public String toString() {
+            return "Attachment{" + "slot=" + slot + ", type=" + type
+                    + ", index=" + index + '}';
+        }
+
+    }
+
+    /**
+     * Initializes a new FboDescriptor to the given values.
+     *
+     * @param size            the FBO's width and height
+     * @param samples         the number of samples (1 if the FBO isn't
+     *                        multisampled)
+     * @param floatingPoint   true if the color attachments store floating
+     *                        point values, false otherwise
+     * @param linearFiltering true if the texture attachments use linear
+     *                        filtering, false otherwise
+     * @param attachments     the FBO's attachments
+     *
+     * @throws NullPointerException     size, attachments and the attachments'
+     *                                  elements can't be null
+     * @throws IllegalArgumentException width and height must be positive,
+     *                                  samples can't be lower than 1 and the
+     *                                  attachments can't contain the same
+     *                                  slot twice
+     */
+    public FboDescriptor(@NotNull Vector2ic size, int samples, boolean floatingPoint, boolean linearFiltering, @NotNull Attachment... attachments) {
+        if (size.x() <= 0 || size.y() <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        if (samples < 1) {
+            throw new IllegalArgumentException("Samples can't be lower than 1");
+        }
+        List<Attachment> list = new ArrayList<>(attachments.length);
+        for (Attachment attachment : attachments) {
+            if (attachment == null) {
+                throw new NullPointerException();
+            }
+            for (Attachment other : list) {
+                if (other.getSlot() == attachment.getSlot() && other.getIndex() == attachment.getIndex()) {
+                    throw new IllegalArgumentException("The attachments can't contain the same slot twice");
+                }
+            }
+            list.add(attachment);
+        }
+        this.size = new Vector2i(size);
+        this.samples = samples;
+        this.floatingPoint = floatingPoint;
+        this.linearFiltering = linearFiltering;
+        this.attachments = Collections.unmodifiableList(list);
+        hash = computeHashCode();
+    }
+
+    /**
+     * Creates a new FBO based on this descriptor. All the color attachments
+     * are active to draw. If there isn't any color attachment, drawing and
+     * reading the colors are disabled.
+     *
+     * @return the new FBO
+     *
+     * @throws RuntimeException if the FBO is incomplete
+     */
+    @NotNull
+    public Fbo createFbo() {
+        Fbo fbo = new Fbo(new Vector2i(size), samples != 1, samples, floatingPoint);
+        fbo.bind();
+        boolean color = false;
+        for (Attachment attachment : attachments) {
+            fbo.addAttachment(attachment.getSlot(), attachment.getType(), attachment.getIndex());
+            if (attachment.getSlot() == Fbo.FboAttachmentSlot.COLOR) {
+                color = true;
+            }
+            if (linearFiltering && attachment.getType() == Fbo.FboAttachmentType.TEXTURE) {
+                DynamicTexture2D texture = (DynamicTexture2D) fbo.getTextureAttachment(attachment.getSlot(), attachment.getIndex());
+                texture.setFilter(Texture.TextureFilterType.MINIFICATION, Texture.TextureFilter.LINEAR);
+                texture.setFilter(Texture.TextureFilterType.MAGNIFICATION, Texture.TextureFilter.LINEAR);
+            }
+        }
+        for (Attachment attachment : attachments) {
+            if (attachment.getSlot() == Fbo.FboAttachmentSlot.COLOR && attachment.getIndex() != 0) {
+                fbo.setActiveDraw(true, attachment.getIndex());
+            }
+        }
+        if (!color) {
+            fbo.setActiveDraw(false, 0);
+            fbo.setActiveRead(false, 0);
+        }
+        if (!fbo.isComplete()) {
+            Utility.logError(fbo.getStatus().name());
+            throw new RuntimeException("Incomplete FBO");
+        }
+        fbo.unbind();
+        return fbo;
+    }
+
+    /**
+     * Returns the FBO's width and height.
+     *
+     * @return the FBO's width and height
+     */
+    @NotNull @ReadOnly
+    public Vector2ic getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the number of samples (1 if the FBO isn't multisampled)
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Determines whether the color attachments store floating point values.
+     *
+     * @return true if the color attachments store floating point values,
+     *         false otherwise
+     */
+    public boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    /**
+     * Determines whether the texture attachments use linear filtering.
+     *
+     * @return true if the texture attachments use linear filtering, false
+     *         otherwise
+     */
+    public boolean isLinearFiltering() {
+        return linearFiltering;
+    }
+
+    /**
+     * Returns the FBO's attachments.
+     *
+     * @return the FBO's attachments
+     */
+    @NotNull @ReadOnly
+    public List<Attachment> getAttachments() {
+        return attachments;
+    }
+
+    /**
+     * Computes the descriptor's hash code. The attachments' order doesn't
+     * matter.
+     *
+     * @return the descriptor's hash code
+     */
+    private int computeHashCode() {
+        int hash = 3;
+        hash = 29 * hash + size.hashCode();
+        hash = 29 * hash + samples;
+        hash = 29 * hash + (floatingPoint ? 1 : 0);
+        hash = 29 * hash + (linearFiltering ? 1 : 0);
+        int attachmentsHash = 0;
+        for (Attachment attachment : attachments) {
+            attachmentsHash += attachment.hashCode();
+        }
+        hash = 29 * hash + attachmentsHash;
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        FboDescriptor other = (FboDescriptor) obj;
+        return hash == other.hash && samples == other.samples && floatingPoint == other.floatingPoint
+                && linearFiltering == other.linearFiltering && size.equals(other.size)
+                && attachments.size() == other.attachments.size()
+                && attachments.containsAll(other.attachments);
+    }
+
+    @Override
+    public String toString() {
+        return "FboDescriptor{" + "size=" + size + ", samples=" + samples
+                + ", floatingPoint=" + floatingPoint + ", linearFiltering="
+                + linearFiltering + ", attachments=" + attachments + '}';
+    }
+
+}
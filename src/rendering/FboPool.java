@@ -0,0 +1,255 @@
+package rendering;
+
+import java.util.*;
+import resources.*;
+import toolbox.annotations.*;
+
+/**
+ * Pools the FBOs of the renderers. Instead of creating and releasing their
+ * own FBOs, the renderers acquire them from the pool and give them back when
+ * they don't need them anymore. The FBOs with the same FboDescriptor are
+ * interchangeable, so a given back FBO can be reused by an other renderer
+ * (for example the environment probes with the same resolution share one
+ * FBO), or by the same renderer later (for example after switching the
+ * rendering size or the MSAA level back). The unused FBOs are released after
+ * a while.
+ *
+ * @see FboDescriptor
+ * @see RenderGraph
+ */
+public class FboPool {
+
+    /**
+     * The number of frames after an unused FBO is released.
+     */
+    public static final int UNUSED_FBO_LIFETIME = 120;
+    /**
+     * The maximum number of the unused FBOs. If there are more, the least
+     * recently used ones are released.
+     */
+    public static final int MAX_UNUSED_FBOS = 16;
+    /**
+     * The unused FBOs by their descriptors.
+     */
+    private static final Map<FboDescriptor, List<UnusedFbo>> unusedFbos = new HashMap<>();
+    /**
+     * The acquired FBOs and their descriptors.
+     */
+    private static final Map<Fbo, FboDescriptor> acquiredFbos = new IdentityHashMap<>();
+    /**
+     * The number of the unused FBOs.
+     */
+    private static int numberOfUnusedFbos;
+    /**
+     * The number of the created FBOs since the pool's initialization.
+     */
+    private static int numberOfCreatedFbos;
+    /**
+     * The pool's frame counter.
+     */
+    private static int frame;
+
+    /**
+     * An FBO given back to the pool.
+     */
+    private static class UnusedFbo {
+
+        /**
+         * The FBO.
+         */
+        private final Fbo fbo;
+        /**
+         * The frame when the FBO was given back.
+         */
+        private final int frame;
+
+        /**
+         * Initializes a new UnusedFbo to the given values.
+         *
+         * @param fbo   the FBO
+         * @param frame the frame when the FBO was given back
+         */
+        public UnusedFbo(@NotNull Fbo fbo, int frame) {
+            this.fbo = fbo;
+            this.frame = frame;
+        }
+
+    }
+
+    /**
+     * To can't create FboPool instance.
+     */
+    private FboPool() {
+    }
+
+    /**
+     * Returns an FBO with the given descriptor. If there is an unused one, it
+     * returns it, otherwise it creates a new FBO. The FBO's content is
+     * undefined. You should give back the FBO when you don't need it anymore.
+     *
+     * @param descriptor the FBO's descriptor
+     *
+     * @return an FBO with the given descriptor
+     *
+     * @throws NullPointerException descriptor can't be null
+     *
+     * @see #release(Fbo)
+     */
+    @NotNull
+    public static Fbo acquire(@NotNull FboDescriptor descriptor) {
+        if (descriptor == null) {
+            throw new NullPointerException();
+        }
+        Fbo fbo = null;
+        List<UnusedFbo> fbos = unusedFbos.get(descriptor);
+        while (fbo == null && fbos != null && !fbos.isEmpty()) {
+            fbo = fbos.remove(fbos.size() - 1).fbo;
+            numberOfUnusedFbos--;
+            if (!fbo.isUsable()) {
+                fbo = null;
+            }
+        }
+        if (fbo == null) {
+            fbo = descriptor.createFbo();
+            numberOfCreatedFbos++;
+        }
+        acquiredFbos.put(fbo, descriptor);
+        return fbo;
+    }
+
+    /**
+     * Gives back the given FBO to the pool. After that you can't use the FBO,
+     * because an other renderer may get it. If the FBO is already released
+     * (for example because the pool was released), this method does nothing.
+     *
+     * @param fbo the FBO acquired from the pool
+     *
+     * @throws NullPointerException     fbo can't be null
+     * @throws IllegalArgumentException the usable FBO wasn't acquired from the
+     *                                  pool
+     *
+     * @see #acquire(FboDescriptor)
+     */
+    public static void release(@NotNull Fbo fbo) {
+        if (fbo == null) {
+            throw new NullPointerException();
+        }
+        FboDescriptor descriptor = acquiredFbos.remove(fbo);
+        if (!fbo.isUsable()) {
+            return;
+        }
+        if (descriptor == null) {
+            throw new IllegalArgumentException("The FBO wasn't acquired from the pool");
+        }
+        List<UnusedFbo> fbos = unusedFbos.get(descriptor);
+        if (fbos == null) {
+            fbos = new ArrayList<>();
+            unusedFbos.put(descriptor, fbos);
+        }
+        fbos.add(new UnusedFbo(fbo, frame));
+        numberOfUnusedFbos++;
+        if (numberOfUnusedFbos > MAX_UNUSED_FBOS) {
+            releaseLeastRecentlyUsedFbo();
+        }
+    }
+
+    /**
+     * Releases the FBOs which weren't used in the last UNUSED_FBO_LIFETIME
+     * frames. You should call this method once in every frame. However the
+     * RenderingPipeline's render method calls it.
+     */
+    public static void update() {
+        frame++;
+        Iterator<List<UnusedFbo>> iterator = unusedFbos.values().iterator();
+        while (iterator.hasNext()) {
+            List<UnusedFbo> fbos = iterator.next();
+            for (int i = fbos.size() - 1; i >= 0; i--) {
+                if (frame - fbos.get(i).frame > UNUSED_FBO_LIFETIME) {
+                    releaseFbo(fbos.remove(i).fbo);
+                    numberOfUnusedFbos--;
+                }
+            }
+            if (fbos.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Releases the least recently used unused FBO.
+     */
+    private static void releaseLeastRecentlyUsedFbo() {
+        List<UnusedFbo> leastRecentlyUsedList = null;
+        int leastRecentlyUsedIndex = -1;
+        for (List<UnusedFbo> fbos : unusedFbos.values()) {
+            for (int i = 0; i < fbos.size(); i++) {
+                if (leastRecentlyUsedList == null || fbos.get(i).frame < leastRecentlyUsedList.get(leastRecentlyUsedIndex).frame) {
+                    leastRecentlyUsedList = fbos;
+                    leastRecentlyUsedIndex = i;
+                }
+            }
+        }
+        if (leastRecentlyUsedList != null) {
+            releaseFbo(leastRecentlyUsedList.remove(leastRecentlyUsedIndex).fbo);
+            numberOfUnusedFbos--;
+        }
+    }
+
+    /**
+     * Releases the given FBO if it's usable.
+     *
+     * @param fbo FBO
+     */
+    private static void releaseFbo(@NotNull Fbo fbo) {
+        if (fbo.isUsable()) {
+            fbo.release();
+        }
+    }
+
+    /**
+     * Returns the number of the FBOs in the pool (both the acquired and the
+     * unused ones).
+     *
+     * @return the number of the FBOs in the pool
+     */
+    public static int getNumberOfFbos() {
+        return acquiredFbos.size() + numberOfUnusedFbos;
+    }
+
+    /**
+     * Returns the number of the acquired FBOs.
+     *
+     * @return the number of the acquired FBOs
+     */
+    public static int getNumberOfAcquiredFbos() {
+        return acquiredFbos.size();
+    }
+
+    /**
+     * Returns the number of the created FBOs since the pool's initialization.
+     * If it grows in every frame, the pool can't reuse the FBOs.
+     *
+     * @return the number of the created FBOs
+     */
+    public static int getNumberOfCreatedFbos() {
+        return numberOfCreatedFbos;
+    }
+
+    /**
+     * Releases all the FBOs of the pool, including the acquired ones.
+     */
+    public static void release() {
+        for (List<UnusedFbo> fbos : unusedFbos.values()) {
+            for (UnusedFbo unusedFbo : fbos) {
+                releaseFbo(unusedFbo.fbo);
+            }
+        }
+        unusedFbos.clear();
+        numberOfUnusedFbos = 0;
+        for (Fbo fbo : acquiredFbos.keySet()) {
+            releaseFbo(fbo);
+        }
+        acquiredFbos.clear();
+    }
+
+}
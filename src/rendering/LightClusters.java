@@ -0,0 +1,551 @@
+package rendering;
+
+import components.light.*;
+import java.nio.*;
+import java.util.*;
+import org.joml.*;
+import org.lwjgl.*;
+import org.lwjgl.opengl.*;
+import resources.*;
+import toolbox.annotations.*;
+
+/**
+ * Assigns the point and spot lights to the view frustum's clusters for the
+ * clustered forward shading. The view frustum is split into a 3D grid of
+ * clusters (froxels): the screen into tiles and the depth range into slices
+ * which get exponentially thicker with the distance. Every frame it tests the
+ * lights' bounding spheres (and the spot lights' cones) against the clusters'
+ * bounding boxes in view space, and builds the clusters' light lists. The
+ * shaders select the fragment's cluster by its screen position and view
+ * depth, and compute only the lights of the cluster.
+ * <br>
+ * The cluster data buffer texture contains 2 ints per cluster (the offset and
+ * the number of the cluster's lights in the light index list), and after
+ * them the light index list. The light indices refer to the light data's
+ * slots.
+ *
+ * @see DefaultLightComponent#getLightData()
+ */
+public class LightClusters {
+
+    /**
+     * The number of the clusters horizontally.
+     */
+    public static final int GRID_WIDTH = 16;
+    /**
+     * The number of the clusters vertically.
+     */
+    public static final int GRID_HEIGHT = 9;
+    /**
+     * The number of the depth slices.
+     */
+    public static final int GRID_DEPTH = 24;
+    /**
+     * The number of the clusters.
+     */
+    public static final int NUMBER_OF_CLUSTERS = GRID_WIDTH * GRID_HEIGHT * GRID_DEPTH;
+    /**
+     * The clusters' view space bounding boxes (min x, min y, min depth, max x,
+     * max y, max depth).
+     */
+    private static final float[] bounds = new float[NUMBER_OF_CLUSTERS * 6];
+    /**
+     * The number of the lights in the clusters.
+     */
+    private static final int[] counts = new int[NUMBER_OF_CLUSTERS];
+    /**
+     * The clusters' first light's offset in the light index list.
+     */
+    private static final int[] offsets = new int[NUMBER_OF_CLUSTERS];
+    /**
+     * The light indices in cluster order.
+     */
+    private static int[] indices = new int[1024];
+    /**
+     * The assigned pairs' clusters.
+     */
+    private static int[] pairClusters = new int[1024];
+    /**
+     * The assigned pairs' lights.
+     */
+    private static int[] pairLights = new int[1024];
+    /**
+     * The number of the assigned light-cluster pairs.
+     */
+    private static int numberOfPairs;
+    /**
+     * The number of the lights which affect at least one cluster.
+     */
+    private static int numberOfLights;
+    /**
+     * Horizontal tangent of the half field of view.
+     */
+    private static float tanX = Float.NaN;
+    /**
+     * Vertical tangent of the half field of view.
+     */
+    private static float tanY = Float.NaN;
+    /**
+     * Near plane distance.
+     */
+    private static float near = Float.NaN;
+    /**
+     * Far plane distance.
+     */
+    private static float far = Float.NaN;
+    /**
+     * Determines whether the projection is perspective. In case of other
+     * projections all the lights are assigned to the first cluster and every
+     * fragment uses the first cluster.
+     */
+    private static boolean perspective = true;
+    /**
+     * The light's position in view space (x, y and depth).
+     */
+    private static final Vector3f position = new Vector3f();
+    /**
+     * The spot light's direction in view space (x, y and depth).
+     */
+    private static final Vector3f direction = new Vector3f();
+    /**
+     * The cluster data.
+     */
+    private static ByteBuffer data = BufferUtils.createByteBuffer((NUMBER_OF_CLUSTERS * 2 + 1024) * Integer.BYTES);
+    /**
+     * The cluster data buffer texture.
+     */
+    private static TextureBuffer buffer;
+    /**
+     * Determines whether the cluster data changed since the last upload.
+     */
+    private static boolean changed;
+
+    /**
+     * To can't create LightClusters instance.
+     */
+    private LightClusters() {
+    }
+
+    /**
+     * Assigns the point and spot lights to the clusters of the given camera's
+     * view frustum. You should call it once in every frame before the
+     * rendering.
+     *
+     * @param viewMatrix       the camera's view matrix
+     * @param projectionMatrix the camera's projection matrix
+     *
+     * @throws NullPointerException the parameters can't be null
+     */
+    public static void update(@NotNull Matrix4fc viewMatrix, @NotNull Matrix4fc projectionMatrix) {
+        updateGrid(projectionMatrix);
+        numberOfPairs = 0;
+        numberOfLights = 0;
+        ByteBuffer lightData = DefaultLightComponent.getLightData();
+        for (int i = 0; i <= DefaultLightComponent.getMaxLightIndex(); i++) {
+            int offset = i * DefaultLightComponent.LIGHT_DATA_SIZE;
+            if (lightData.getFloat(offset + 28) == 0) {
+                continue;
+            }
+            float range = lightData.getFloat(offset + 44);
+            if (range <= 0) {
+                continue;
+            }
+            int firstPair = numberOfPairs;
+            if (perspective) {
+                boolean spot = lightData.getFloat(offset + 12) == 2;
+                viewMatrix.transformPosition(lightData.getFloat(offset), lightData.getFloat(offset + 4), lightData.getFloat(offset + 8), position);
+                position.z = -position.z;
+                if (spot) {
+                    viewMatrix.transformDirection(lightData.getFloat(offset + 16), lightData.getFloat(offset + 20), lightData.getFloat(offset + 24), direction);
+                    direction.z = -direction.z;
+                    direction.normalize();
+                }
+                assignLight(i, range, spot ? lightData.getFloat(offset + 76) : -1);
+            } else {
+                addPair(0, i);
+            }
+            if (numberOfPairs > firstPair) {
+                numberOfLights++;
+            }
+        }
+        buildLightLists();
+    }
+
+    /**
+     * Recomputes the clusters' bounding boxes if the projection changed.
+     *
+     * @param projectionMatrix the camera's projection matrix
+     */
+    private static void updateGrid(@NotNull Matrix4fc projectionMatrix) {
+        perspective = projectionMatrix.m23() != 0 && projectionMatrix.m33() == 0;
+        if (!perspective) {
+            return;
+        }
+        float newTanX = 1 / projectionMatrix.m00();
+        float newTanY = 1 / projectionMatrix.m11();
+        float newNear = projectionMatrix.perspectiveNear();
+        float newFar = projectionMatrix.perspectiveFar();
+        if (newTanX == tanX && newTanY == tanY && newNear == near && newFar == far) {
+            return;
+        }
+        tanX = newTanX;
+        tanY = newTanY;
+        near = newNear;
+        far = newFar;
+        for (int z = 0; z < GRID_DEPTH; z++) {
+            float minDepth = getSliceDepth(z);
+            float maxDepth = getSliceDepth(z + 1);
+            for (int y = 0; y < GRID_HEIGHT; y++) {
+                float minY = (2f * y / GRID_HEIGHT - 1) * tanY;
+                float maxY = (2f * (y + 1) / GRID_HEIGHT - 1) * tanY;
+                for (int x = 0; x < GRID_WIDTH; x++) {
+                    float minX = (2f * x / GRID_WIDTH - 1) * tanX;
+                    float maxX = (2f * (x + 1) / GRID_WIDTH - 1) * tanX;
+                    int index = getClusterIndex(x, y, z) * 6;
+                    bounds[index] = java.lang.Math.min(minX * minDepth, minX * maxDepth);
+                    bounds[index + 1] = java.lang.Math.min(minY * minDepth, minY * maxDepth);
+                    bounds[index + 2] = minDepth;
+                    bounds[index + 3] = java.lang.Math.max(maxX * minDepth, maxX * maxDepth);
+                    bounds[index + 4] = java.lang.Math.max(maxY * minDepth, maxY * maxDepth);
+                    bounds[index + 5] = maxDepth;
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns the given light to the clusters it affects. The light's view
+     * space position (and direction) must be already computed.
+     *
+     * @param light          light index
+     * @param range          the light's range
+     * @param cosOuterCutoff cosine of the spot light's outer cutoff or -1 in
+     *                       case of point lights
+     */
+    private static void assignLight(int light, float range, float cosOuterCutoff) {
+        float minDepth = java.lang.Math.max(position.z - range, near);
+        float maxDepth = java.lang.Math.min(position.z + range, far);
+        if (minDepth > maxDepth) {
+            return;
+        }
+        //the bounding box's projection is extreme at the nearest or at the farthest depth
+        float minX = java.lang.Math.min((position.x - range) / minDepth, (position.x - range) / maxDepth) / tanX;
+        float maxX = java.lang.Math.max((position.x + range) / minDepth, (position.x + range) / maxDepth) / tanX;
+        float minY = java.lang.Math.min((position.y - range) / minDepth, (position.y - range) / maxDepth) / tanY;
+        float maxY = java.lang.Math.max((position.y + range) / minDepth, (position.y + range) / maxDepth) / tanY;
+        if (maxX < -1 || minX > 1 || maxY < -1 || minY > 1) {
+            return;
+        }
+        int x0 = toTile(minX, GRID_WIDTH);
+        int x1 = toTile(maxX, GRID_WIDTH);
+        int y0 = toTile(minY, GRID_HEIGHT);
+        int y1 = toTile(maxY, GRID_HEIGHT);
+        int z0 = getSlice(minDepth);
+        int z1 = getSlice(maxDepth);
+        float rangeSquared = range * range;
+        float sinOuterCutoff = (float) java.lang.Math.sqrt(1 - cosOuterCutoff * cosOuterCutoff);
+        for (int z = z0; z <= z1; z++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    int cluster = getClusterIndex(x, y, z);
+                    if (intersectsSphere(cluster, rangeSquared)
+                            && (cosOuterCutoff == -1 || intersectsCone(cluster, range, cosOuterCutoff, sinOuterCutoff))) {
+                        addPair(cluster, light);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the light's bounding sphere intersects the given
+     * cluster's bounding box.
+     *
+     * @param cluster      cluster index
+     * @param rangeSquared the light's squared range
+     *
+     * @return true if they intersect, false otherwise
+     */
+    private static boolean intersectsSphere(int cluster, float rangeSquared) {
+        int index = cluster * 6;
+        float distanceSquared = 0;
+        for (int i = 0; i < 3; i++) {
+            float coordinate = position.get(i);
+            if (coordinate < bounds[index + i]) {
+                float delta = bounds[index + i] - coordinate;
+                distanceSquared += delta * delta;
+            } else if (coordinate > bounds[index + i + 3]) {
+                float delta = coordinate - bounds[index + i + 3];
+                distanceSquared += delta * delta;
+            }
+        }
+        return distanceSquared <= rangeSquared;
+    }
+
+    /**
+     * Determines whether the spot light's cone intersects the given cluster's
+     * bounding sphere.
+     *
+     * @param cluster        cluster index
+     * @param range          the light's range
+     * @param cosOuterCutoff cosine of the outer cutoff
+     * @param sinOuterCutoff sine of the outer cutoff
+     *
+     * @return true if they intersect, false otherwise
+     */
+    private static boolean intersectsCone(int cluster, float range, float cosOuterCutoff, float sinOuterCutoff) {
+        int index = cluster * 6;
+        float halfX = (bounds[index + 3] - bounds[index]) * 0.5f;
+        float halfY = (bounds[index + 4] - bounds[index + 1]) * 0.5f;
+        float halfDepth = (bounds[index + 5] - bounds[index + 2]) * 0.5f;
+        float radius = (float) java.lang.Math.sqrt(halfX * halfX + halfY * halfY + halfDepth * halfDepth);
+        float vx = bounds[index] + halfX - position.x;
+        float vy = bounds[index + 1] + halfY - position.y;
+        float vz = bounds[index + 2] + halfDepth - position.z;
+        float lengthSquared = vx * vx + vy * vy + vz * vz;
+        float axisDistance = vx * direction.x + vy * direction.y + vz * direction.z;
+        float closestDistance = cosOuterCutoff * (float) java.lang.Math.sqrt(java.lang.Math.max(0, lengthSquared - axisDistance * axisDistance)) - axisDistance * sinOuterCutoff;
+        return closestDistance <= radius && axisDistance <= radius + range && axisDistance >= -radius;
+    }
+
+    /**
+     * Adds the given light-cluster pair to the assigned pairs.
+     *
+     * @param cluster cluster index
+     * @param light   light index
+     */
+    private static void addPair(int cluster, int light) {
+        if (numberOfPairs == pairClusters.length) {
+            pairClusters = Arrays.copyOf(pairClusters, numberOfPairs * 2);
+            pairLights = Arrays.copyOf(pairLights, numberOfPairs * 2);
+        }
+        pairClusters[numberOfPairs] = cluster;
+        pairLights[numberOfPairs] = light;
+        numberOfPairs++;
+    }
+
+    /**
+     * Sorts the assigned pairs into the clusters' light lists (with a counting
+     * sort) and writes them to the cluster data.
+     */
+    private static void buildLightLists() {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < numberOfPairs; i++) {
+            counts[pairClusters[i]]++;
+        }
+        int offset = 0;
+        for (int i = 0; i < NUMBER_OF_CLUSTERS; i++) {
+            offsets[i] = offset;
+            offset += counts[i];
+        }
+        if (indices.length < numberOfPairs) {
+            indices = new int[java.lang.Math.max(numberOfPairs, indices.length * 2)];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < numberOfPairs; i++) {
+            int cluster = pairClusters[i];
+            indices[offsets[cluster] + counts[cluster]] = pairLights[i];
+            counts[cluster]++;
+        }
+        int size = (NUMBER_OF_CLUSTERS * 2 + numberOfPairs) * Integer.BYTES;
+        if (data.capacity() < size) {
+            data = BufferUtils.createByteBuffer(java.lang.Math.max(size, data.capacity() * 2));
+        }
+        data.clear();
+        IntBuffer intData = data.asIntBuffer();
+        for (int i = 0; i < NUMBER_OF_CLUSTERS; i++) {
+            intData.put(offsets[i]);
+            intData.put(counts[i]);
+        }
+        intData.put(indices, 0, numberOfPairs);
+        data.limit(size);
+        changed = true;
+    }
+
+    /**
+     * Uploads the cluster data to the cluster data buffer texture (if it
+     * changed since the last upload) and binds the buffer texture to the
+     * given texture unit.
+     *
+     * @param textureUnit texture unit
+     *
+     * @throws IllegalArgumentException texture unit must be in the [0;31]
+     *                                  interval
+     */
+    public static void bind(int textureUnit) {
+        if (buffer == null || !buffer.isUsable()) {
+            buffer = new TextureBuffer(GL30.GL_R32I);
+            changed = true;
+        }
+        if (changed) {
+            buffer.storeData(data);
+            changed = false;
+        }
+        buffer.bindToTextureUnit(textureUnit);
+    }
+
+    /**
+     * Returns the given depth slice's near depth.
+     *
+     * @param slice depth slice
+     *
+     * @return the depth slice's near depth
+     */
+    private static float getSliceDepth(int slice) {
+        return near * (float) java.lang.Math.pow(far / near, slice / (float) GRID_DEPTH);
+    }
+
+    /**
+     * Returns the depth slice which contains the given view depth.
+     *
+     * @param depth view depth
+     *
+     * @return the depth slice
+     */
+    private static int getSlice(float depth) {
+        int slice = (int) java.lang.Math.floor(java.lang.Math.log(depth) * getDepthScale() + getDepthBias());
+        return java.lang.Math.max(0, java.lang.Math.min(slice, GRID_DEPTH - 1));
+    }
+
+    /**
+     * Returns the tile which contains the given normalized device coordinate.
+     *
+     * @param ndc          normalized device coordinate
+     * @param numberOfTiles number of tiles
+     *
+     * @return the tile
+     */
+    private static int toTile(float ndc, int numberOfTiles) {
+        int tile = (int) java.lang.Math.floor((ndc + 1) * 0.5f * numberOfTiles);
+        return java.lang.Math.max(0, java.lang.Math.min(tile, numberOfTiles - 1));
+    }
+
+    /**
+     * Returns the given cluster's index.
+     *
+     * @param x the cluster's horizontal position
+     * @param y the cluster's vertical position
+     * @param z the cluster's depth slice
+     *
+     * @return the cluster's index
+     */
+    private static int getClusterIndex(int x, int y, int z) {
+        return (z * GRID_HEIGHT + y) * GRID_WIDTH + x;
+    }
+
+    /**
+     * Returns the scale of the depth slice computation. A fragment's depth
+     * slice is floor(log(viewDepth) * scale + bias). It returns 0 in case of
+     * non perspective projections.
+     *
+     * @return the scale of the depth slice computation
+     *
+     * @see #getDepthBias()
+     */
+    public static float getDepthScale() {
+        return perspective ? GRID_DEPTH / (float) java.lang.Math.log(far / near) : 0;
+    }
+
+    /**
+     * Returns the bias of the depth slice computation. It returns 0 in case
+     * of non perspective projections.
+     *
+     * @return the bias of the depth slice computation
+     *
+     * @see #getDepthScale()
+     */
+    public static float getDepthBias() {
+        return perspective ? -getDepthScale() * (float) java.lang.Math.log(near) : 0;
+    }
+
+    /**
+     * Determines whether the clusters are used. If the last projection wasn't
+     * perspective, every fragment uses the first cluster.
+     *
+     * @return true if the clusters are used, false otherwise
+     */
+    public static boolean isClustered() {
+        return perspective;
+    }
+
+    /**
+     * Returns the number of the lights in the given cluster.
+     *
+     * @param x the cluster's horizontal position
+     * @param y the cluster's vertical position
+     * @param z the cluster's depth slice
+     *
+     * @return the number of the cluster's lights
+     *
+     * @throws IndexOutOfBoundsException invalid cluster
+     */
+    public static int getNumberOfLights(int x, int y, int z) {
+        checkCluster(x, y, z);
+        return counts[getClusterIndex(x, y, z)];
+    }
+
+    /**
+     * Returns the given cluster's specified light's light index.
+     *
+     * @param x     the cluster's horizontal position
+     * @param y     the cluster's vertical position
+     * @param z     the cluster's depth slice
+     * @param index the light's index in the cluster
+     *
+     * @return the light's index in the light data
+     *
+     * @throws IndexOutOfBoundsException invalid cluster or index
+     */
+    public static int getLightIndex(int x, int y, int z, int index) {
+        checkCluster(x, y, z);
+        int cluster = getClusterIndex(x, y, z);
+        if (index < 0 || index >= counts[cluster]) {
+            throw new IndexOutOfBoundsException("Index must be in the [0;" + (counts[cluster] - 1) + "] interval");
+        }
+        return indices[offsets[cluster] + index];
+    }
+
+    /**
+     * Checks whether the given cluster is valid.
+     *
+     * @param x the cluster's horizontal position
+     * @param y the cluster's vertical position
+     * @param z the cluster's depth slice
+     *
+     * @throws IndexOutOfBoundsException invalid cluster
+     */
+    private static void checkCluster(int x, int y, int z) {
+        if (x < 0 || x >= GRID_WIDTH || y < 0 || y >= GRID_HEIGHT || z < 0 || z >= GRID_DEPTH) {
+            throw new IndexOutOfBoundsException("Invalid cluster");
+        }
+    }
+
+    /**
+     * Returns the number of the lights which affect at least one cluster.
+     *
+     * @return the number of the visible lights
+     */
+    public static int getNumberOfLights() {
+        return numberOfLights;
+    }
+
+    /**
+     * Returns the length of all the clusters' light lists together.
+     *
+     * @return the number of the light indices
+     */
+    public static int getNumberOfLightIndices() {
+        return numberOfPairs;
+    }
+
+    /**
+     * Releases the cluster data buffer texture.
+     */
+    public static void release() {
+        if (buffer != null && buffer.isUsable()) {
+            buffer.release();
+        }
+        buffer = null;
+    }
+
+}
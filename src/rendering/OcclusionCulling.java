@@ -0,0 +1,146 @@
+package rendering;
+
+import components.renderables.*;
+import core.*;
+import java.util.*;
+import java.util.function.*;
+import org.joml.*;
+import resources.meshes.*;
+import toolbox.annotations.*;
+
+/**
+ * Removes the MeshComponents hidden behind the occluders from the main
+ * camera's view. The occluders inside the camera's frustum are rasterized
+ * into a small SoftwareDepthBuffer, then the other MeshComponents' axis
+ * alligned bounding boxes are tested against it. It runs on the CPU, after
+ * the frustum culling and before the levels of detail selection, so the
+ * renderers never see the hidden MeshComponents. The occluders themselves
+ * are never culled. If there is no visible occluder, it doesn't do anything.
+ *
+ * @see Settings#isOcclusionCulling()
+ * @see MeshComponent#setOccluder(Occluder)
+ * @see Visibility
+ */
+public class OcclusionCulling {
+
+    /**
+     * The depth buffer's width (in pixels).
+     */
+    private static final int WIDTH = 256;
+    /**
+     * The depth buffer's height (in pixels).
+     */
+    private static final int HEIGHT = 128;
+    /**
+     * The depth buffer.
+     */
+    private static final SoftwareDepthBuffer DEPTH_BUFFER = new SoftwareDepthBuffer(WIDTH, HEIGHT);
+    /**
+     * Reusable storage for the occluders' model matrices.
+     */
+    private static final Matrix4f MODEL_MATRIX = new Matrix4f();
+    /**
+     * Temporary vector for the MeshComponents' bounding boxes.
+     */
+    private static final Vector3f AABB_MIN = new Vector3f();
+    /**
+     * Temporary vector for the MeshComponents' bounding boxes.
+     */
+    private static final Vector3f AABB_MAX = new Vector3f();
+    /**
+     * Determines whether a MeshComponent is hidden.
+     */
+    private static final Predicate<MeshComponent> HIDDEN = OcclusionCulling::isHidden;
+    /**
+     * The number of the occluders rasterized in the last frame.
+     */
+    private static int numberOfOccluders;
+    /**
+     * The number of the MeshComponents culled in the last frame.
+     */
+    private static int numberOfCulledMeshComponents;
+
+    /**
+     * To can't create OcclusionCulling instance.
+     */
+    private OcclusionCulling() {
+    }
+
+    /**
+     * Removes the hidden MeshComponents from the given view.
+     *
+     * @param view                 the MeshComponents inside the camera's
+     *                             frustum
+     * @param projectionViewMatrix the camera's projection view matrix
+     *
+     * @throws NullPointerException arguments can't be null
+     */
+    public static void cull(@NotNull MeshComponentGroups view, @NotNull Matrix4fc projectionViewMatrix) {
+        if (view == null) {
+            throw new NullPointerException();
+        }
+        numberOfOccluders = 0;
+        numberOfCulledMeshComponents = 0;
+        DEPTH_BUFFER.clear();
+        DEPTH_BUFFER.setProjectionViewMatrix(projectionViewMatrix);
+        for (int i = 0; i < view.getNumberOfGroups(); i++) {
+            List<MeshComponent> group = view.getGroup(i);
+            for (int j = 0; j < group.size(); j++) {
+                MeshComponent meshComponent = group.get(j);
+                if (isOccluder(meshComponent)) {
+                    DEPTH_BUFFER.rasterize(meshComponent.getOccluder(), meshComponent.getGameObject().getTransform().getModelMatrix(MODEL_MATRIX));
+                    numberOfOccluders++;
+                }
+            }
+        }
+        if (numberOfOccluders > 0) {
+            numberOfCulledMeshComponents = view.removeIf(HIDDEN);
+        }
+    }
+
+    /**
+     * Determines whether the given MeshComponent is an occluder. The view
+     * contains the inactive MeshComponents too (the renderers skip them), but
+     * they can't hide anything.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return true if the MeshComponent has an occluder and it's rendered,
+     *         false otherwise
+     */
+    private static boolean isOccluder(@NotNull MeshComponent meshComponent) {
+        return meshComponent.getOccluder() != null && meshComponent.isActive() && meshComponent.isMeshActive();
+    }
+
+    /**
+     * Determines whether the given MeshComponent is hidden behind the
+     * occluders.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return true if the MeshComponent is hidden, false otherwise
+     */
+    private static boolean isHidden(@NotNull MeshComponent meshComponent) {
+        return !isOccluder(meshComponent)
+                && !DEPTH_BUFFER.isVisible(meshComponent.getRealAabbMin(AABB_MIN), meshComponent.getRealAabbMax(AABB_MAX));
+    }
+
+    /**
+     * Returns the number of the occluders rasterized in the last frame.
+     *
+     * @return the number of the occluders
+     */
+    public static int getNumberOfOccluders() {
+        return numberOfOccluders;
+    }
+
+    /**
+     * Returns the number of the MeshComponents culled in the last frame.
+     *
+     * @return the number of the culled MeshComponents
+     */
+    public static int getNumberOfCulledMeshComponents() {
+        return numberOfCulledMeshComponents;
+    }
+
+}
@@ -0,0 +1,348 @@
+package rendering;
+
+import java.util.*;
+import resources.*;
+import toolbox.annotations.*;
+
+/**
+ * Executes RenderPasses in the order they were added. The passes declare
+ * which resources they read and write, so the graph can cull the passes
+ * which don't contribute to an output pass, and it can allocate the
+ * transient FBOs only between their first and last use. A transient FBO is
+ * acquired from the FboPool before its first use, and after its last use it
+ * can be aliased by an other transient FBO with the same FboDescriptor, so
+ * the resources which don't live at the same time share the same memory.
+ * After the execution, all the transient FBOs are given back to the pool.
+ *
+ * @see RenderPass
+ * @see FboPool
+ */
+public class RenderGraph {
+
+    /**
+     * The passes in the order of the execution.
+     */
+    private final List<RenderPass> passes = new ArrayList<>();
+    /**
+     * The transient FBOs' descriptors by their names.
+     */
+    private final Map<String, FboDescriptor> transientFbos = new HashMap<>();
+    /**
+     * Determines whether the graph changed since the last compilation.
+     */
+    private boolean dirty = true;
+    /**
+     * The not culled passes.
+     */
+    private final List<RenderPass> executedPasses = new ArrayList<>();
+    /**
+     * The transient FBOs which have to be acquired before the executed
+     * passes.
+     */
+    private final List<List<String>> firstUses = new ArrayList<>();
+    /**
+     * The transient FBOs which can be aliased after the executed passes.
+     */
+    private final List<List<String>> lastUses = new ArrayList<>();
+    /**
+     * The alive transient FBOs by their names during the execution.
+     */
+    private final Map<String, Fbo> fbos = new HashMap<>();
+    /**
+     * The acquired FBOs which can be aliased by their descriptors during the
+     * execution.
+     */
+    private final Map<FboDescriptor, List<Fbo>> aliasableFbos = new HashMap<>();
+    /**
+     * The number of the FBOs used in the last execution.
+     */
+    private int numberOfUsedFbos;
+
+    /**
+     * Adds the given pass to the end of the graph.
+     *
+     * @param pass render pass
+     *
+     * @throws NullPointerException     pass can't be null
+     * @throws IllegalArgumentException the graph already contains a pass with
+     *                                  the same name
+     */
+    public void addPass(@NotNull RenderPass pass) {
+        if (pass == null) {
+            throw new NullPointerException();
+        }
+        for (RenderPass rp : passes) {
+            if (rp.getName().equals(pass.getName())) {
+                throw new IllegalArgumentException("The graph already contains a pass named " + pass.getName());
+            }
+        }
+        passes.add(pass);
+        dirty = true;
+    }
+
+    /**
+     * Declares a transient FBO with the given name and descriptor. If it's
+     * already declared, it changes the descriptor. The transient FBOs' content
+     * is undefined before their first use and it's lost after the execution.
+     *
+     * @param name       the transient FBO's name
+     * @param descriptor the transient FBO's descriptor
+     *
+     * @throws NullPointerException name and descriptor can't be null
+     */
+    public void setTransientFbo(@NotNull String name, @NotNull FboDescriptor descriptor) {
+        if (name == null || descriptor == null) {
+            throw new NullPointerException();
+        }
+        FboDescriptor old = transientFbos.put(name, descriptor);
+        if (!descriptor.equals(old)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns the specified transient FBO's descriptor.
+     *
+     * @param name the transient FBO's name
+     *
+     * @return the transient FBO's descriptor (or null if it isn't declared)
+     */
+    @Nullable
+    public FboDescriptor getTransientFbo(@NotNull String name) {
+        return transientFbos.get(name);
+    }
+
+    /**
+     * Removes all the passes and the transient FBOs from the graph.
+     */
+    public void clear() {
+        passes.clear();
+        transientFbos.clear();
+        dirty = true;
+    }
+
+    /**
+     * Checks the passes' order, culls the unnecessary passes and computes the
+     * transient FBOs' lifetimes. The execute method calls it if the graph
+     * changed.
+     *
+     * @throws IllegalStateException a pass can't read a resource before an
+     *                               other pass writes it
+     */
+    public void compile() {
+        checkOrder();
+        //culling
+        boolean[] executed = new boolean[passes.size()];
+        Set<String> needed = new HashSet<>();
+        for (int i = passes.size() - 1; i >= 0; i--) {
+            RenderPass pass = passes.get(i);
+            executed[i] = pass.isOutput() || !Collections.disjoint(pass.getWrites(), needed);
+            if (executed[i]) {
+                needed.addAll(pass.getReads());
+            }
+        }
+        executedPasses.clear();
+        for (int i = 0; i < passes.size(); i++) {
+            if (executed[i]) {
+                executedPasses.add(passes.get(i));
+            }
+        }
+        //lifetimes
+        Map<String, Integer> first = new HashMap<>();
+        Map<String, Integer> last = new HashMap<>();
+        for (int i = 0; i < executedPasses.size(); i++) {
+            RenderPass pass = executedPasses.get(i);
+            computeLifetimes(pass.getReads(), i, first, last);
+            computeLifetimes(pass.getWrites(), i, first, last);
+        }
+        firstUses.clear();
+        lastUses.clear();
+        for (int i = 0; i < executedPasses.size(); i++) {
+            firstUses.add(new ArrayList<>());
+            lastUses.add(new ArrayList<>());
+        }
+        for (String name : first.keySet()) {
+            firstUses.get(first.get(name)).add(name);
+            lastUses.get(last.get(name)).add(name);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Checks whether every resource written by a pass is read only after the
+     * first write.
+     *
+     * @throws IllegalStateException a pass can't read a resource before an
+     *                               other pass writes it
+     */
+    private void checkOrder() {
+        Set<String> written = new HashSet<>();
+        Set<String> allWritten = new HashSet<>();
+        for (RenderPass pass : passes) {
+            allWritten.addAll(pass.getWrites());
+        }
+        for (RenderPass pass : passes) {
+            for (String resource : pass.getReads()) {
+                if (!written.contains(resource) && (allWritten.contains(resource) || transientFbos.containsKey(resource))) {
+                    throw new IllegalStateException("The " + pass.getName() + " pass reads the " + resource + " resource before it's written");
+                }
+            }
+            written.addAll(pass.getWrites());
+        }
+    }
+
+    /**
+     * Updates the first and the last use of the given resources' transient
+     * FBOs.
+     *
+     * @param resources the resources used by the index-th executed pass
+     * @param index     the executed pass' index
+     * @param first     the first uses by the transient FBOs' names
+     * @param last      the last uses by the transient FBOs' names
+     */
+    private void computeLifetimes(@NotNull List<String> resources, int index, @NotNull Map<String, Integer> first, @NotNull Map<String, Integer> last) {
+        for (String resource : resources) {
+            if (transientFbos.containsKey(resource)) {
+                if (!first.containsKey(resource)) {
+                    first.put(resource, index);
+                }
+                last.put(resource, index);
+            }
+        }
+    }
+
+    /**
+     * Executes the not culled passes in order. Before a transient FBO's first
+     * use it acquires an FBO (an aliased one if possible), and after the
+     * execution it gives back all the FBOs to the FboPool.
+     *
+     * @throws IllegalStateException a pass can't read a resource before an
+     *                               other pass writes it
+     */
+    public void execute() {
+        if (dirty) {
+            compile();
+        }
+        numberOfUsedFbos = 0;
+        try {
+            for (int i = 0; i < executedPasses.size(); i++) {
+                for (String name : firstUses.get(i)) {
+                    fbos.put(name, acquireFbo(transientFbos.get(name)));
+                }
+                executedPasses.get(i).render(this);
+                for (String name : lastUses.get(i)) {
+                    Fbo fbo = fbos.remove(name);
+                    aliasableFbos.get(transientFbos.get(name)).add(fbo);
+                }
+            }
+        } finally {
+            releaseFbos();
+        }
+    }
+
+    /**
+     * Returns an aliasable FBO with the given descriptor, or acquires a new one
+     * from the FboPool.
+     *
+     * @param descriptor the FBO's descriptor
+     *
+     * @return an FBO with the given descriptor
+     */
+    @NotNull
+    private Fbo acquireFbo(@NotNull FboDescriptor descriptor) {
+        List<Fbo> aliasable = aliasableFbos.get(descriptor);
+        if (aliasable == null) {
+            aliasable = new ArrayList<>();
+            aliasableFbos.put(descriptor, aliasable);
+        }
+        if (!aliasable.isEmpty()) {
+            return aliasable.remove(aliasable.size() - 1);
+        }
+        numberOfUsedFbos++;
+        return FboPool.acquire(descriptor);
+    }
+
+    /**
+     * Gives back all the FBOs of the execution to the FboPool.
+     */
+    private void releaseFbos() {
+        for (Fbo fbo : fbos.values()) {
+            FboPool.release(fbo);
+        }
+        fbos.clear();
+        for (List<Fbo> aliasable : aliasableFbos.values()) {
+            for (Fbo fbo : aliasable) {
+                FboPool.release(fbo);
+            }
+            aliasable.clear();
+        }
+    }
+
+    /**
+     * Returns the specified transient FBO. You can call it only during the
+     * execution, from the passes which read or write the FBO.
+     *
+     * @param name the transient FBO's name
+     *
+     * @return the transient FBO
+     *
+     * @throws IllegalStateException the transient FBO isn't alive
+     */
+    @NotNull
+    public Fbo getFbo(@NotNull String name) {
+        Fbo fbo = fbos.get(name);
+        if (fbo == null) {
+            throw new IllegalStateException("The " + name + " transient FBO isn't alive");
+        }
+        return fbo;
+    }
+
+    /**
+     * Returns the number of the passes.
+     *
+     * @return the number of the passes
+     */
+    public int getNumberOfPasses() {
+        return passes.size();
+    }
+
+    /**
+     * Returns the number of the not culled passes. If the graph changed since
+     * the last compilation, the result is outdated.
+     *
+     * @return the number of the not culled passes
+     */
+    public int getNumberOfExecutedPasses() {
+        return executedPasses.size();
+    }
+
+    /**
+     * Determines whether the given pass is culled. If the graph changed since
+     * the last compilation, the result is outdated.
+     *
+     * @param pass render pass
+     *
+     * @return true if the pass is culled, false otherwise
+     */
+    public boolean isCulled(@NotNull RenderPass pass) {
+        return !executedPasses.contains(pass);
+    }
+
+    /**
+     * Returns the number of the different FBOs used in the last execution. It
+     * can be lower than the number of the transient FBOs, because the FBOs
+     * with the same descriptors and not overlapping lifetimes are aliased.
+     *
+     * @return the number of the FBOs used in the last execution
+     */
+    public int getNumberOfUsedFbos() {
+        return numberOfUsedFbos;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderGraph{" + "passes=" + passes + ", transientFbos="
+                + transientFbos + ", executedPasses=" + executedPasses + '}';
+    }
+
+}
@@ -0,0 +1,141 @@
+package rendering;
+
+import java.util.*;
+import toolbox.annotations.*;
+
+/**
+ * A pass of the RenderGraph. The pass declares the resources (like the
+ * transient FBOs of the graph, or the texture parameters of the
+ * RenderingPipeline) which it reads and writes, so the graph can check the
+ * passes' order, cull the unnecessary passes and allocate the transient FBOs
+ * only for the time they're used.
+ *
+ * @see RenderGraph
+ */
+public abstract class RenderPass {
+
+    /**
+     * The pass' name.
+     */
+    private final String name;
+    /**
+     * Determines whether the pass has effects outside of the graph (like
+     * drawing to the screen or updating the environment probes).
+     */
+    private final boolean output;
+    /**
+     * The resources which the pass reads.
+     */
+    private final List<String> reads = new ArrayList<>();
+    /**
+     * The resources which the pass writes.
+     */
+    private final List<String> writes = new ArrayList<>();
+
+    /**
+     * Initializes a new RenderPass to the given values.
+     *
+     * @param name   the pass' name
+     * @param output true if the pass has effects outside of the graph (so it
+     *               can't be culled), false otherwise
+     *
+     * @throws NullPointerException name can't be null
+     */
+    public RenderPass(@NotNull String name, boolean output) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        this.name = name;
+        this.output = output;
+    }
+
+    /**
+     * Declares that the pass reads the given resource.
+     *
+     * @param resource the resource's name
+     *
+     * @throws NullPointerException resource can't be null
+     */
+    public void addRead(@NotNull String resource) {
+        if (resource == null) {
+            throw new NullPointerException();
+        }
+        if (!reads.contains(resource)) {
+            reads.add(resource);
+        }
+    }
+
+    /**
+     * Declares that the pass writes the given resource.
+     *
+     * @param resource the resource's name
+     *
+     * @throws NullPointerException resource can't be null
+     */
+    public void addWrite(@NotNull String resource) {
+        if (resource == null) {
+            throw new NullPointerException();
+        }
+        if (!writes.contains(resource)) {
+            writes.add(resource);
+        }
+    }
+
+    /**
+     * Returns the resources which the pass reads.
+     *
+     * @return the resources which the pass reads
+     */
+    @NotNull @ReadOnly
+    public List<String> getReads() {
+        return Collections.unmodifiableList(reads);
+    }
+
+    /**
+     * Returns the resources which the pass writes.
+     *
+     * @return the resources which the pass writes
+     */
+    @NotNull @ReadOnly
+    public List<String> getWrites() {
+        return Collections.unmodifiableList(writes);
+    }
+
+    /**
+     * Returns the pass' name.
+     *
+     * @return the pass' name
+     */
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Determines whether the pass has effects outside of the graph. These
+     * passes are never culled.
+     *
+     * @return true if the pass has effects outside of the graph, false
+     *         otherwise
+     */
+    public boolean isOutput() {
+        return output;
+    }
+
+    /**
+     * Performs the pass. The transient FBOs which the pass reads or writes
+     * are available through the graph's getFbo method.
+     *
+     * @param graph the executing graph
+     *
+     * @see RenderGraph#getFbo(String)
+     */
+    public abstract void render(@NotNull RenderGraph graph);
+
+    @Override
+    public String toString() {
+        return "RenderPass{" + "name=" + name + ", output=" + output
+                + ", reads=" + reads + ", writes=" + writes + '}';
+    }
+
+}
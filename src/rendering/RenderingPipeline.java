@@ -13,6 +13,7 @@ import resources.*;
 import resources.textures.texture2D.*;
 import toolbox.*;
 import toolbox.annotations.*;
+import toolbox.profiler.*;
 import window.*;
 
 /**
@@ -29,9 +30,24 @@ public class RenderingPipeline {
      */
     private static float renderingScale = 1;
     /**
-     * The pipeline's main FBO. The scene rendering performed here.
+     * The pipeline's main FBO. The scene rendering performed here. It's a
+     * transient FBO of the render graph, so it's available only during the
+     * geometry and the sky box passes.
      */
     private static Fbo fbo;
+    /**
+     * The render graph which executes the pipeline's passes and allocates the
+     * transient FBOs.
+     */
+    private static final RenderGraph graph = new RenderGraph();
+    /**
+     * The scene FBO's name in the render graph.
+     */
+    private static final String FBO_SCENE = "FBO_SCENE";
+    /**
+     * The post processing FBO's name in the render graph.
+     */
+    private static final String FBO_POST_PROCESSING = "FBO_POST_PROCESSING";
     /**
      * Renders the final texture to the screen.
      */
@@ -65,6 +81,27 @@ public class RenderingPipeline {
      * texture at the end of the rendering).
      */
     public static final String TEXTURE_WORK = "TEXTURE_WORK";
+    /**
+     * The G-buffer's albedo texture's key. The deferred shading's geometry
+     * pass stores here the objects' diffuse colors.
+     */
+    public static final String TEXTURE_GBUFFER_ALBEDO = "TEXTURE_GBUFFER_ALBEDO";
+    /**
+     * The G-buffer's normal texture's key. The deferred shading's geometry
+     * pass stores here the objects' world space normal vectors (and in the
+     * alpha channel whether they receive shadows).
+     */
+    public static final String TEXTURE_GBUFFER_NORMAL = "TEXTURE_GBUFFER_NORMAL";
+    /**
+     * The G-buffer's specular texture's key. The deferred shading's geometry
+     * pass stores here the objects' specular colors (and in the alpha channel
+     * the glossiness).
+     */
+    public static final String TEXTURE_GBUFFER_SPECULAR = "TEXTURE_GBUFFER_SPECULAR";
+    /**
+     * The G-buffer's depth texture's key.
+     */
+    public static final String TEXTURE_GBUFFER_DEPTH = "TEXTURE_GBUFFER_DEPTH";
 
     /**
      * To can't create RenderingPipeline instance.
@@ -78,28 +115,94 @@ public class RenderingPipeline {
      */
     public static void initialize() {
         useBlinnPhongPipeline();
+        createRenderGraph();
         refresh();
     }
 
     /**
-     * Refreshes the FBOs if the MSAA level or the rendering size changed and
-     * the screen renderer if released.
+     * Adds the pipeline's passes to the render graph. The prepare and the
+     * screen passes have effects outside of the graph, the others are executed
+     * only if they contribute to the final image.
      */
-    private static void refresh() {
-        if (fbo == null || !fbo.isUsable() || Settings.getMsaaLevel() != fbo.getNumberOfSamples() || !getRenderingSize().equals(fbo.getSize())) {
-            //geometry FBO
-            if (fbo != null) {
-                fbo.release();
+    private static void createRenderGraph() {
+        graph.clear();
+        RenderPass preparePass = new RenderPass("prepare", true) {
+            @Override
+            public void render(@NotNull RenderGraph graph) {
+                Profiler.begin(prepare);
+                prepare.render();
+                Profiler.end();
+            }
+        };
+        preparePass.addWrite(TEXTURE_SHADOWMAP);
+        graph.addPass(preparePass);
+        RenderPass geometryPass = new RenderPass("geometry", false) {
+            @Override
+            public void render(@NotNull RenderGraph graph) {
+                fbo = graph.getFbo(FBO_SCENE);
+                bindFbo();
+                OpenGl.clear(true, true, false);
+                for (GeometryRenderingStage stage : geometry) {
+                    Profiler.begin(stage);
+                    stage.render();
+                    Profiler.end();
+                }
+            }
+        };
+        geometryPass.addRead(TEXTURE_SHADOWMAP);
+        geometryPass.addWrite(FBO_SCENE);
+        graph.addPass(geometryPass);
+        RenderPass skyboxPass = new RenderPass("skybox", false) {
+            @Override
+            public void render(@NotNull RenderGraph graph) {
+                Profiler.begin(skyboxRenderer);
+                skyboxRenderer.render();
+                Profiler.end();
             }
-            fbo = new Fbo(getRenderingSize(), Settings.getMsaaLevel() != 1, Settings.getMsaaLevel(), true);
-            fbo.bind();
-            fbo.addAttachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0);
-            fbo.addAttachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.RBO, 0);
-            if (!fbo.isComplete()) {
-                Utility.logError(fbo.getStatus().name());
-                throw new RuntimeException("Incomplete FBO");
+        };
+        skyboxPass.addRead(FBO_SCENE);
+        skyboxPass.addWrite(FBO_SCENE);
+        graph.addPass(skyboxPass);
+        RenderPass postProcessingPass = new RenderPass("post processing", false) {
+            @Override
+            public void render(@NotNull RenderGraph graph) {
+                Profiler.begin(post);
+                post.beforeRender(graph.getFbo(FBO_SCENE), graph.getFbo(FBO_POST_PROCESSING));
+                post.render();
+                Profiler.end();
             }
-            fbo.unbind();
+        };
+        postProcessingPass.addRead(FBO_SCENE);
+        postProcessingPass.addWrite(FBO_POST_PROCESSING);
+        postProcessingPass.addWrite(TEXTURE_WORK);
+        graph.addPass(postProcessingPass);
+        RenderPass screenPass = new RenderPass("screen", true) {
+            @Override
+            public void render(@NotNull RenderGraph graph) {
+                Profiler.begin(screenRenderer);
+                afterRender();
+                Profiler.end();
+            }
+        };
+        screenPass.addRead(FBO_POST_PROCESSING);
+        screenPass.addRead(TEXTURE_WORK);
+        graph.addPass(screenPass);
+    }
+
+    /**
+     * Refreshes the transient FBOs' descriptors if the MSAA level or the
+     * rendering size changed and the screen renderer if released.
+     */
+    private static void refresh() {
+        Vector2i renderingSize = getRenderingSize();
+        FboDescriptor scene = graph.getTransientFbo(FBO_SCENE);
+        if (scene == null || Settings.getMsaaLevel() != scene.getSamples() || !renderingSize.equals(scene.getSize())) {
+            graph.setTransientFbo(FBO_SCENE, new FboDescriptor(renderingSize, Settings.getMsaaLevel(), true, false,
+                    new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0),
+                    new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.RBO, 0)));
+            graph.setTransientFbo(FBO_POST_PROCESSING, new FboDescriptor(renderingSize, 1, true, true,
+                    new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0),
+                    new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 1)));
         }
         if (screenRenderer == null || !screenRenderer.isUsable()) {
             screenRenderer = ScreenRenderer.getInstance();
@@ -150,12 +253,28 @@ public class RenderingPipeline {
     }
 
     /**
-     * Binds the pipelin's FBO for rendering.
+     * Binds the pipelin's FBO for rendering. You can call it only in the
+     * geometry and the sky box passes.
+     *
+     * @throws IllegalStateException the pipeline's FBO isn't available
      */
     public static void bindFbo() {
+        if (fbo == null) {
+            throw new IllegalStateException("The pipeline's FBO is available only during the scene rendering");
+        }
         fbo.bind();
     }
 
+    /**
+     * Returns the render graph which executes the pipeline's passes.
+     *
+     * @return the render graph
+     */
+    @NotNull
+    public static RenderGraph getRenderGraph() {
+        return graph;
+    }
+
     public static void addRenderingStage(int index) {
         geometry.add(index, new GeometryRenderingStage());
     }
@@ -279,15 +398,16 @@ public class RenderingPipeline {
      */
     public static void render() {
         beforeRender();
+        Profiler.begin("Visibility");
+        Visibility.compute(Scene.getCamera(), Scene.getDirectionalLight());
+        Profiler.end();
         OpenGl.setDepthTest(true);
-        prepare.render();
-        for (GeometryRenderingStage stage : geometry) {
-            stage.render();
+        try {
+            graph.execute();
+        } finally {
+            fbo = null;
         }
-        skyboxRenderer.render();
-        post.beforeRender(fbo);
-        post.render();
-        afterRender();
+        FboPool.update();
     }
 
     /**
@@ -297,13 +417,11 @@ public class RenderingPipeline {
         OpenGl.bindDefaultFrameBuffer();
         OpenGl.clear(true, true, false);
         refresh();
-        bindFbo();
-        OpenGl.clear(true, true, false);
         //is there camera and dir light?
         Camera camera = Scene.getCamera();
         DirectionalLight light = Scene.getDirectionalLight();
         if (camera == null || !camera.isActive() || light == null || !light.isActive()) {
-            throw new IllegalStateException("There is no active main directiona light or camera");
+            throw new IllegalStateException("There is no active main directional light or camera");
         }
     }
 
@@ -327,9 +445,8 @@ public class RenderingPipeline {
         }
         post.release();
         screenRenderer.release();
-        if (fbo != null) {
-            fbo.release();
-        }
+        FboPool.release();
+        LightClusters.release();
         for (Texture2D texture : textureParameters.values()) {
             if (texture != null && texture.isUsable()) {
                 texture.release();
@@ -342,34 +459,87 @@ public class RenderingPipeline {
      * meshes, draw the splines with a single color, create shadow map and some
      * post processing effects.
      */
-    @NotNull
     public static void useBlinnPhongPipeline() {
-        //remove all
-        prepare.addRendererToTheEnd(ShadowRenderer.getInstance());
-        prepare.addRendererToTheEnd(EnvironmentMapRenderer.getInstance());
+        removeRenderingStages();
+        addDefaultPrepareRenderers();
 
         addRenderingStageToTheEnd();
         GeometryRenderingStage main = getRenderingStage(getRenderingStageCount() - 1);
         main.addRendererToTheEnd(BlinnPhongRenderer.getInstance());
         main.addRendererToTheEnd(SolidColorRenderer.getInstance());
 
-        PostProcessingRenderer renderer = InvertRenderer.getInstance();
-        renderer.setActive(false);
-        post.addRendererToTheEnd(renderer);
-//
-        renderer = GrayscaleRenderer.getInstance();
-        renderer.setActive(false);
-        post.addRendererToTheEnd(renderer);
-//
-        renderer = FxaaRenderer.getInstance();
-        renderer.setActive(false);
-        post.addRendererToTheEnd(renderer);
-
-        renderer = ReinhardToneMappingRenderer.getInstance();
-        renderer.setActive(false);
-        post.addRendererToTheEnd(renderer);
-
-        post.addRendererToTheEnd(GammaCorrectionRenderer.getInstance());
+        addDefaultPostProcessingRenderers();
+    }
+
+    /**
+     * Sets the rendering pipeline to use deferred shading for rendering the
+     * meshes and the splines which use the BlinnPhongRenderer's Materials.
+     * First the GBufferRenderer draws the objects' surface data into the
+     * G-buffer, than the DeferredLightingRenderer lights the G-buffer in one
+     * fullscreen pass with the clustered point and spot lights. The rest of
+     * the pipeline (shadow map, single colored objects and post processing
+     * effects) is the same as in the Blinn-Phong pipeline. The G-buffer isn't
+     * multisampled, so the MSAA doesn't affect the deferred objects' edges
+     * (but you can use FXAA).
+     *
+     * @see #useBlinnPhongPipeline()
+     */
+    public static void useDeferredPipeline() {
+        removeRenderingStages();
+        addDefaultPrepareRenderers();
+
+        addRenderingStageToTheEnd();
+        GeometryRenderingStage main = getRenderingStage(getRenderingStageCount() - 1);
+        main.addRendererToTheEnd(GBufferRenderer.getInstance());
+        main.addRendererToTheEnd(DeferredLightingRenderer.getInstance());
+        main.addRendererToTheEnd(SolidColorRenderer.getInstance());
+
+        addDefaultPostProcessingRenderers();
+    }
+
+    /**
+     * Removes all the geometry rendering stages.
+     */
+    private static void removeRenderingStages() {
+        while (getRenderingStageCount() > 0) {
+            removeRenderingStage(0);
+        }
+    }
+
+    /**
+     * Adds the shadow and the environment map renderers to the prepare stage
+     * if they aren't already there.
+     */
+    private static void addDefaultPrepareRenderers() {
+        prepare.addRendererToTheEnd(ShadowRenderer.getInstance());
+        prepare.addRendererToTheEnd(EnvironmentMapRenderer.getInstance());
+    }
+
+    /**
+     * Adds the default post processing renderers to the post processing stage
+     * if they aren't already there. The newly added effects are inactive,
+     * except the gamma correction, and the already added effects keep their
+     * states.
+     */
+    private static void addDefaultPostProcessingRenderers() {
+        addPostProcessingRenderer(InvertRenderer.getInstance(), false);
+        addPostProcessingRenderer(GrayscaleRenderer.getInstance(), false);
+        addPostProcessingRenderer(FxaaRenderer.getInstance(), false);
+        addPostProcessingRenderer(ReinhardToneMappingRenderer.getInstance(), false);
+        addPostProcessingRenderer(GammaCorrectionRenderer.getInstance(), true);
+    }
+
+    /**
+     * Adds the given renderer to the end of the post processing stage, if
+     * there isn't already a renderer of the same type.
+     *
+     * @param renderer post processing renderer
+     * @param active   the renderer's state if it's newly added
+     */
+    private static void addPostProcessingRenderer(@NotNull PostProcessingRenderer renderer, boolean active) {
+        if (post.addRendererToTheEnd(renderer)) {
+            renderer.setActive(active);
+        }
     }
 
 }
@@ -78,8 +78,8 @@ public class ScreenRenderer extends Renderer {
      */
     private void beforeDrawQuad() {
         quad.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
+        OpenGl.getBackend().enableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(1);
         Texture2D image = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_WORK);
         image.bindToTextureUnit(0);
     }
@@ -88,8 +88,8 @@ public class ScreenRenderer extends Renderer {
      * Unbinds the quad's VAO after rendering.
      */
     private void afterDrawQuad() {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
+        OpenGl.getBackend().disableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(1);
         quad.afterDraw();
     }
 
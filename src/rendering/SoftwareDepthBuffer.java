@@ -0,0 +1,404 @@
+package rendering;
+
+import java.util.*;
+import org.joml.*;
+import resources.meshes.*;
+import toolbox.annotations.*;
+
+/**
+ * A small depth buffer which is rendered on the CPU. The occluders'
+ * triangles are clipped to the near plane and rasterized with edge
+ * functions, and the axis alligned bounding boxes are tested against the
+ * depth buffer by their screen space rectangle and nearest depth. The pixels
+ * are stored tile by tile (TILE_SIZE x TILE_SIZE pixels in a continuous
+ * block) and every tile has it's maximum depth, so the test usually reads
+ * only a few values per tile, and the inner loops iterate over continuous
+ * arrays. The depths are between 0 (near plane) and 1 (far plane). It doesn't
+ * use OpenGL.
+ *
+ * @see OcclusionCulling
+ */
+public class SoftwareDepthBuffer {
+
+    /**
+     * The size of a tile's side (in pixels).
+     */
+    public static final int TILE_SIZE = 8;
+    /**
+     * The number of the pixels in a tile.
+     */
+    private static final int TILE_PIXELS = TILE_SIZE * TILE_SIZE;
+    /**
+     * The depth buffer's width (in pixels).
+     */
+    private final int width;
+    /**
+     * The depth buffer's height (in pixels).
+     */
+    private final int height;
+    /**
+     * The number of the tiles in a row.
+     */
+    private final int tilesX;
+    /**
+     * The pixels' depths, tile by tile.
+     */
+    private final float[] depths;
+    /**
+     * The tiles' maximum depths.
+     */
+    private final float[] tileMaxDepths;
+    /**
+     * Determines whether the tile's maximum depth has to be recomputed.
+     */
+    private final boolean[] dirtyTiles;
+    /**
+     * The projection view matrix.
+     */
+    private final Matrix4f projectionViewMatrix = new Matrix4f();
+    /**
+     * The model projection view matrix of the actual occluder.
+     */
+    private final Matrix4f matrix = new Matrix4f();
+    /**
+     * The actual occluder's vertices in clip space (4 floats per vertex).
+     */
+    private float[] clipPositions = new float[0];
+    /**
+     * The actual triangle's vertices' indices.
+     */
+    private final int[] triangle = new int[3];
+    /**
+     * The clipped polygon's vertices in clip space (4 floats per vertex).
+     */
+    private final float[] polygon = new float[4 * 4];
+    /**
+     * The clipped polygon's vertices in screen space (3 floats per vertex).
+     */
+    private final float[] screenPositions = new float[4 * 3];
+    /**
+     * Temporary vector for the bounding box's corners.
+     */
+    private final Vector4f corner = new Vector4f();
+
+    /**
+     * Initializes a new SoftwareDepthBuffer to the given values.
+     *
+     * @param width  the depth buffer's width (in pixels)
+     * @param height the depth buffer's height (in pixels)
+     *
+     * @throws IllegalArgumentException width and height must be positive and
+     *                                  divisible by TILE_SIZE
+     */
+    public SoftwareDepthBuffer(int width, int height) {
+        if (width <= 0 || height <= 0 || width % TILE_SIZE != 0 || height % TILE_SIZE != 0) {
+            throw new IllegalArgumentException("Width and height must be positive and divisible by " + TILE_SIZE);
+        }
+        this.width = width;
+        this.height = height;
+        tilesX = width / TILE_SIZE;
+        depths = new float[width * height];
+        tileMaxDepths = new float[tilesX * (height / TILE_SIZE)];
+        dirtyTiles = new boolean[tileMaxDepths.length];
+        clear();
+    }
+
+    /**
+     * Clears the depth buffer to the far plane.
+     */
+    public void clear() {
+        Arrays.fill(depths, 1);
+        Arrays.fill(tileMaxDepths, 1);
+        Arrays.fill(dirtyTiles, false);
+    }
+
+    /**
+     * Sets the projection view matrix.
+     *
+     * @param projectionViewMatrix projection view matrix
+     *
+     * @throws NullPointerException projection view matrix can't be null
+     */
+    public void setProjectionViewMatrix(@NotNull Matrix4fc projectionViewMatrix) {
+        this.projectionViewMatrix.set(projectionViewMatrix);
+    }
+
+    /**
+     * Returns the depth buffer's width.
+     *
+     * @return the depth buffer's width (in pixels)
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the depth buffer's height.
+     *
+     * @return the depth buffer's height (in pixels)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the given pixel's depth.
+     *
+     * @param x the pixel's x coordinate (from left)
+     * @param y the pixel's y coordinate (from bottom)
+     *
+     * @return the pixel's depth
+     *
+     * @throws IllegalArgumentException the pixel has to be inside the depth
+     *                                  buffer
+     */
+    public float getDepth(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("The pixel has to be inside the depth buffer");
+        }
+        return depths[getPixelIndex(x, y)];
+    }
+
+    /**
+     * Returns the given pixel's index in the depths array.
+     *
+     * @param x the pixel's x coordinate
+     * @param y the pixel's y coordinate
+     *
+     * @return the pixel's index
+     */
+    private int getPixelIndex(int x, int y) {
+        int tile = (y / TILE_SIZE) * tilesX + x / TILE_SIZE;
+        return tile * TILE_PIXELS + (y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE;
+    }
+
+    //
+    //rasterization-------------------------------------------------------------
+    //
+    /**
+     * Rasterizes the given occluder's triangles. Both sides of the triangles
+     * are rasterized.
+     *
+     * @param occluder    occluder
+     * @param modelMatrix the occluder's model matrix
+     *
+     * @throws NullPointerException occluder and model matrix can't be null
+     */
+    public void rasterize(@NotNull Occluder occluder, @NotNull Matrix4fc modelMatrix) {
+        projectionViewMatrix.mul(modelMatrix, matrix);
+        float[] positions = occluder.getPositions();
+        int numberOfVertices = occluder.getNumberOfVertices();
+        if (clipPositions.length < numberOfVertices * 4) {
+            clipPositions = new float[numberOfVertices * 4];
+        }
+        for (int i = 0; i < numberOfVertices; i++) {
+            corner.set(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], 1).mul(matrix);
+            clipPositions[i * 4] = corner.x;
+            clipPositions[i * 4 + 1] = corner.y;
+            clipPositions[i * 4 + 2] = corner.z;
+            clipPositions[i * 4 + 3] = corner.w;
+        }
+        int[] indices = occluder.getIndices();
+        for (int i = 0; i < indices.length; i += 3) {
+            int numberOfPolygonVertices = clipTriangle(indices[i], indices[i + 1], indices[i + 2]);
+            if (numberOfPolygonVertices == 0) {
+                continue;
+            }
+            for (int j = 0; j < numberOfPolygonVertices; j++) {
+                float w = polygon[j * 4 + 3];
+                screenPositions[j * 3] = (polygon[j * 4] / w * 0.5f + 0.5f) * width;
+                screenPositions[j * 3 + 1] = (polygon[j * 4 + 1] / w * 0.5f + 0.5f) * height;
+                screenPositions[j * 3 + 2] = polygon[j * 4 + 2] / w * 0.5f + 0.5f;
+            }
+            for (int j = 2; j < numberOfPolygonVertices; j++) {
+                rasterizeTriangle(0, j - 1, j);
+            }
+        }
+    }
+
+    /**
+     * Clips the given triangle to the near plane. The result is stored in the
+     * polygon array.
+     *
+     * @param a the triangle's first vertex's index
+     * @param b the triangle's second vertex's index
+     * @param c the triangle's third vertex's index
+     *
+     * @return the clipped polygon's number of vertices (0, 3 or 4)
+     */
+    private int clipTriangle(int a, int b, int c) {
+        triangle[0] = a;
+        triangle[1] = b;
+        triangle[2] = c;
+        int result = 0;
+        for (int i = 0; i < 3; i++) {
+            int current = triangle[i] * 4;
+            int next = triangle[(i + 1) % 3] * 4;
+            float currentDistance = clipPositions[current + 2] + clipPositions[current + 3];
+            float nextDistance = clipPositions[next + 2] + clipPositions[next + 3];
+            if (currentDistance >= 0) {
+                System.arraycopy(clipPositions, current, polygon, result * 4, 4);
+                result++;
+            }
+            if (currentDistance >= 0 != nextDistance >= 0) {
+                float t = currentDistance / (currentDistance - nextDistance);
+                for (int j = 0; j < 4; j++) {
+                    polygon[result * 4 + j] = clipPositions[current + j] + (clipPositions[next + j] - clipPositions[current + j]) * t;
+                }
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rasterizes the given triangle of the screenPositions array. A pixel is
+     * covered if it's center is inside the triangle, and it keeps the nearest
+     * depth.
+     *
+     * @param a the triangle's first vertex's index
+     * @param b the triangle's second vertex's index
+     * @param c the triangle's third vertex's index
+     */
+    private void rasterizeTriangle(int a, int b, int c) {
+        float ax = screenPositions[a * 3], ay = screenPositions[a * 3 + 1], az = screenPositions[a * 3 + 2];
+        float bx = screenPositions[b * 3], by = screenPositions[b * 3 + 1], bz = screenPositions[b * 3 + 2];
+        float cx = screenPositions[c * 3], cy = screenPositions[c * 3 + 1], cz = screenPositions[c * 3 + 2];
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0 || Float.isNaN(area)) {
+            return;
+        }
+        int minX = java.lang.Math.max(0, (int) java.lang.Math.floor(java.lang.Math.min(ax, java.lang.Math.min(bx, cx))));
+        int maxX = java.lang.Math.min(width - 1, (int) java.lang.Math.ceil(java.lang.Math.max(ax, java.lang.Math.max(bx, cx))));
+        int minY = java.lang.Math.max(0, (int) java.lang.Math.floor(java.lang.Math.min(ay, java.lang.Math.min(by, cy))));
+        int maxY = java.lang.Math.min(height - 1, (int) java.lang.Math.ceil(java.lang.Math.max(ay, java.lang.Math.max(by, cy))));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        //the edge functions are normalized, so they're the barycentric coordinates regardless of the winding
+        float inverseArea = 1 / area;
+        float e0x = (by - cy) * inverseArea, e0y = (cx - bx) * inverseArea;
+        float e1x = (cy - ay) * inverseArea, e1y = (ax - cx) * inverseArea;
+        float e2x = (ay - by) * inverseArea, e2y = (bx - ax) * inverseArea;
+        float px = minX + 0.5f;
+        float py = minY + 0.5f;
+        float w0Row = ((cx - bx) * (py - by) - (cy - by) * (px - bx)) * inverseArea;
+        float w1Row = ((ax - cx) * (py - cy) - (ay - cy) * (px - cx)) * inverseArea;
+        float w2Row = ((bx - ax) * (py - ay) - (by - ay) * (px - ax)) * inverseArea;
+        for (int y = minY; y <= maxY; y++) {
+            float w0 = w0Row;
+            float w1 = w1Row;
+            float w2 = w2Row;
+            int rowStart = (y / TILE_SIZE) * tilesX * TILE_PIXELS + (y % TILE_SIZE) * TILE_SIZE;
+            for (int x = minX; x <= maxX; x++) {
+                if (w0 >= 0 && w1 >= 0 && w2 >= 0) {
+                    float depth = w0 * az + w1 * bz + w2 * cz;
+                    int tile = x / TILE_SIZE;
+                    int index = rowStart + tile * TILE_PIXELS + x % TILE_SIZE;
+                    if (depth < depths[index]) {
+                        depths[index] = java.lang.Math.max(0, depth);
+                        dirtyTiles[(y / TILE_SIZE) * tilesX + tile] = true;
+                    }
+                }
+                w0 += e0x;
+                w1 += e1x;
+                w2 += e2x;
+            }
+            w0Row += e0y;
+            w1Row += e1y;
+            w2Row += e2y;
+        }
+    }
+
+    //
+    //testing-------------------------------------------------------------------
+    //
+    /**
+     * Determines whether the given axis alligned bounding box may be visible.
+     * It returns false only if all the pixels which the box's screen space
+     * rectangle touches are nearer than the box's nearest point. If the box
+     * intersects the near plane, it's always visible.
+     *
+     * @param min the box's minimum x, y and z values (in world space)
+     * @param max the box's maximum x, y and z values (in world space)
+     *
+     * @return true if the box may be visible, false if it's hidden
+     *
+     * @throws NullPointerException min and max can't be null
+     */
+    public boolean isVisible(@NotNull Vector3fc min, @NotNull Vector3fc max) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        float minDepth = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            corner.set((i & 1) == 0 ? min.x() : max.x(), (i & 2) == 0 ? min.y() : max.y(), (i & 4) == 0 ? min.z() : max.z(), 1).mul(projectionViewMatrix);
+            if (corner.z + corner.w <= 0 || corner.w <= 0) {
+                return true;
+            }
+            float x = (corner.x / corner.w * 0.5f + 0.5f) * width;
+            float y = (corner.y / corner.w * 0.5f + 0.5f) * height;
+            minX = java.lang.Math.min(minX, x);
+            minY = java.lang.Math.min(minY, y);
+            maxX = java.lang.Math.max(maxX, x);
+            maxY = java.lang.Math.max(maxY, y);
+            minDepth = java.lang.Math.min(minDepth, corner.z / corner.w * 0.5f + 0.5f);
+        }
+        if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) {
+            return false;
+        }
+        int x0 = java.lang.Math.max(0, (int) minX);
+        int y0 = java.lang.Math.max(0, (int) minY);
+        int x1 = java.lang.Math.min(width - 1, (int) maxX);
+        int y1 = java.lang.Math.min(height - 1, (int) maxY);
+        for (int tileY = y0 / TILE_SIZE; tileY <= y1 / TILE_SIZE; tileY++) {
+            for (int tileX = x0 / TILE_SIZE; tileX <= x1 / TILE_SIZE; tileX++) {
+                int tile = tileY * tilesX + tileX;
+                if (getTileMaxDepth(tile) <= minDepth) {
+                    continue;
+                }
+                int fromX = java.lang.Math.max(x0, tileX * TILE_SIZE) - tileX * TILE_SIZE;
+                int toX = java.lang.Math.min(x1, tileX * TILE_SIZE + TILE_SIZE - 1) - tileX * TILE_SIZE;
+                int fromY = java.lang.Math.max(y0, tileY * TILE_SIZE) - tileY * TILE_SIZE;
+                int toY = java.lang.Math.min(y1, tileY * TILE_SIZE + TILE_SIZE - 1) - tileY * TILE_SIZE;
+                for (int y = fromY; y <= toY; y++) {
+                    int rowStart = tile * TILE_PIXELS + y * TILE_SIZE;
+                    for (int x = fromX; x <= toX; x++) {
+                        if (depths[rowStart + x] > minDepth) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the given tile's maximum depth. If the tile changed since the
+     * last computation, it computes it again.
+     *
+     * @param tile the tile's index
+     *
+     * @return the tile's maximum depth
+     */
+    private float getTileMaxDepth(int tile) {
+        if (dirtyTiles[tile]) {
+            float maxDepth = 0;
+            int start = tile * TILE_PIXELS;
+            for (int i = start; i < start + TILE_PIXELS; i++) {
+                maxDepth = java.lang.Math.max(maxDepth, depths[i]);
+            }
+            tileMaxDepths[tile] = maxDepth;
+            dirtyTiles[tile] = false;
+        }
+        return tileMaxDepths[tile];
+    }
+
+    @Override
+    public String toString() {
+        return "SoftwareDepthBuffer{" + "width=" + width + ", height=" + height + '}';
+    }
+
+}
@@ -0,0 +1,453 @@
+package rendering;
+
+import components.camera.*;
+import components.light.*;
+import components.light.lightTypes.*;
+import components.renderables.*;
+import core.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.joml.*;
+import resources.environmentProbes.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Determines the visible MeshComponents of all the views of the frame before
+ * the rendering starts. The views are the main camera's frustum, the
+ * directional light's shadow cascades and the faces of the environment probes
+ * which are rendered in the actual frame. The queries only read the Scene's bounding
+ * volume hierarchy, so they are computed in parallel on a ForkJoinPool, and the
+ * renderers only use the precomputed results. The MeshComponents hidden behind
+ * the occluders are removed from the main camera's view. The RenderingPipeline
+ * calls the compute method at the beginning of every frame.
+ *
+ * @see Settings#isParallelVisibility()
+ * @see OcclusionCulling
+ */
+public class Visibility {
+
+    /**
+     * The pool which runs the parallel queries.
+     */
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+    /**
+     * The main camera's view.
+     */
+    private static final View CAMERA_VIEW = new View();
+    /**
+     * The shadow cascades' views.
+     */
+    private static final View[] SHADOW_CASCADE_VIEWS = new View[ShadowCascades.MAX_NUMBER_OF_CASCADES];
+    /**
+     * The number of a cube map's faces.
+     */
+    private static final int NUMBER_OF_FACES = 6;
+    /**
+     * The environment probes' views (including the unused ones). The first
+     * six views are the cube map's faces, the last one is the sphere around
+     * the probe.
+     */
+    private static final List<View[]> PROBE_VIEWS = new ArrayList<>();
+    /**
+     * Reusable storage for an environment probe's face's projection view
+     * matrix.
+     */
+    private static final Matrix4f PROBE_PROJECTION_VIEW_MATRIX = new Matrix4f();
+    /**
+     * The camera's position.
+     */
+    private static final Vector3f CAMERA_POSITION = new Vector3f();
+    /**
+     * The camera's projection view matrix.
+     */
+    private static final Matrix4f CAMERA_PROJECTION_VIEW_MATRIX = new Matrix4f();
+    /**
+     * The camera's projection's vertical scale (the cotangent of the half
+     * field of view), it converts the view space sizes to screen sizes.
+     */
+    private static float cameraProjectionScale;
+    /**
+     * Temporary vector for the level of detail selection.
+     */
+    private static final Vector3f POSITION = new Vector3f();
+    /**
+     * The views which have to be computed in the actual frame.
+     */
+    private static final List<View> ACTIVE_VIEWS = new ArrayList<>();
+    /**
+     * The number of the shadow cascades computed in the actual frame.
+     */
+    private static int numberOfShadowCascadeViews;
+
+    static {
+        for (int i = 0; i < SHADOW_CASCADE_VIEWS.length; i++) {
+            SHADOW_CASCADE_VIEWS[i] = new View();
+        }
+    }
+
+    /**
+     * A frustum or a sphere, and the MeshComponents inside it.
+     */
+    private static class View {
+
+        /**
+         * The view's frustum.
+         */
+        private final FrustumIntersection frustum = new FrustumIntersection();
+        /**
+         * The sphere's center.
+         */
+        private final Vector3f center = new Vector3f();
+        /**
+         * The sphere's radius.
+         */
+        private float radius;
+        /**
+         * Determines whether the view is a sphere or a frustum.
+         */
+        private boolean sphere;
+        /**
+         * Determines whether the view is computed in the actual frame.
+         */
+        private boolean computed;
+        /**
+         * The MeshComponents inside the view.
+         */
+        private final MeshComponentGroups result = new MeshComponentGroups();
+
+        /**
+         * Sets the view to the given frustum.
+         *
+         * @param projectionViewMatrix the frustum's projection view matrix
+         */
+        private void setFrustum(@NotNull Matrix4f projectionViewMatrix) {
+            frustum.set(projectionViewMatrix);
+            sphere = false;
+            computed = true;
+            ACTIVE_VIEWS.add(this);
+        }
+
+        /**
+         * Sets the view to the given sphere.
+         *
+         * @param center the sphere's center
+         * @param radius the sphere's radius
+         */
+        private void setSphere(@NotNull Vector3f center, float radius) {
+            this.center.set(center);
+            this.radius = radius;
+            sphere = true;
+            computed = true;
+            ACTIVE_VIEWS.add(this);
+        }
+
+        /**
+         * Signs that the view isn't computed in the actual frame, and removes
+         * it's previous result.
+         */
+        private void reset() {
+            if (computed) {
+                result.clear();
+                computed = false;
+            }
+        }
+
+        /**
+         * Collects the MeshComponents inside the view.
+         */
+        private void compute() {
+            if (sphere) {
+                Scene.getMeshComponentsInsideSphere(center, radius, result);
+            } else {
+                Scene.getMeshComponentsInsideFrustum(frustum, result);
+            }
+        }
+    }
+
+    /**
+     * Computes a range of the active views, and splits it if it contains more
+     * than one view.
+     */
+    private static class VisibilityTask extends RecursiveAction {
+
+        /**
+         * The serialization version (RecursiveAction is Serializable).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first view's index.
+         */
+        private final int from;
+        /**
+         * The last view's index (exclusive).
+         */
+        private final int to;
+
+        /**
+         * Initializes a new VisibilityTask to the given values.
+         *
+         * @param from the first view's index
+         * @param to   the last view's index (exclusive)
+         */
+        public VisibilityTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                ACTIVE_VIEWS.get(from).compute();
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VisibilityTask(from, middle), new VisibilityTask(middle, to));
+            }
+        }
+    }
+
+    /**
+     * To can't create Visibility instance.
+     */
+    private Visibility() {
+    }
+
+    /**
+     * Computes the visible MeshComponents of all the views of the actual
+     * frame. The views' matrices and the Scene's bounding volume hierarchy are
+     * refreshed on the calling thread, and only the read-only queries run in
+     * parallel. The RenderingPipeline checks that the main camera and the
+     * directional light are active before calling this method.
+     *
+     * @param camera the active main camera
+     * @param light  the active main directional light
+     */
+    public static void compute(@NotNull Camera camera, @NotNull DirectionalLight light) {
+        try {
+            //the probe scheduling needs the refreshed MeshComponents' changes
+            Scene.refreshBoundingVolumeHierarchy();
+            collectViews(camera, light);
+            if (Settings.isParallelVisibility() && ACTIVE_VIEWS.size() > 1) {
+                POOL.invoke(new VisibilityTask(0, ACTIVE_VIEWS.size()));
+            } else {
+                for (int i = 0; i < ACTIVE_VIEWS.size(); i++) {
+                    ACTIVE_VIEWS.get(i).compute();
+                }
+            }
+            if (Settings.isOcclusionCulling()) {
+                OcclusionCulling.cull(CAMERA_VIEW.result, CAMERA_PROJECTION_VIEW_MATRIX);
+            }
+            updateLods();
+        } finally {
+            ACTIVE_VIEWS.clear();
+        }
+    }
+
+    /**
+     * Selects the levels of detail of the MeshComponents visible from the
+     * camera by their screen size.
+     *
+     * @see MeshComponent#updateLod(float)
+     */
+    private static void updateLods() {
+        if (!Settings.isLevelOfDetail()) {
+            return;
+        }
+        MeshComponentGroups groups = CAMERA_VIEW.result;
+        for (int i = 0; i < groups.getNumberOfGroups(); i++) {
+            List<MeshComponent> group = groups.getGroup(i);
+            if (group.isEmpty() || group.get(0).getMesh().getNumberOfLods() == 1) {
+                continue;
+            }
+            for (int j = 0; j < group.size(); j++) {
+                MeshComponent meshComponent = group.get(j);
+                float distance = meshComponent.getGameObject().getTransform().getAbsolutePosition(POSITION).distance(CAMERA_POSITION);
+                meshComponent.updateLod(computeScreenSize(meshComponent.getRealFurthestVertexDistance(), distance, cameraProjectionScale));
+            }
+        }
+    }
+
+    /**
+     * Returns the screen size of the given bounding sphere. It's the sphere's
+     * projected radius divided by the half of the screen's height (or the
+     * cube map face's size). If the viewer is inside the sphere, it returns
+     * infinity.
+     *
+     * @param radius          the bounding sphere's radius
+     * @param distance        the distance between the viewer and the
+     *                        sphere's center
+     * @param projectionScale the projection's vertical scale (the cotangent
+     *                        of the half field of view)
+     *
+     * @return the bounding sphere's screen size
+     *
+     * @see resources.meshes.Mesh#getLodScreenSize(int)
+     */
+    public static float computeScreenSize(float radius, float distance, float projectionScale) {
+        return distance <= radius ? Float.POSITIVE_INFINITY : radius * projectionScale / distance;
+    }
+
+    /**
+     * Sets the views which have to be computed in the actual frame.
+     *
+     * @param camera the main camera
+     * @param light  the main directional light
+     */
+    private static void collectViews(@NotNull Camera camera, @NotNull DirectionalLight light) {
+        Matrix4f projectionMatrix = camera.getProjectionMatrix();
+        cameraProjectionScale = projectionMatrix.m11();
+        camera.getGameObject().getTransform().getAbsolutePosition(CAMERA_POSITION);
+        CAMERA_PROJECTION_VIEW_MATRIX.set(projectionMatrix).mul(camera.getViewMatrix());
+        CAMERA_VIEW.setFrustum(CAMERA_PROJECTION_VIEW_MATRIX);
+        numberOfShadowCascadeViews = 0;
+        ShadowCascades cascades = Settings.isShadowMapping() ? ((DirectionalLightComponent) light).getShadowCascades() : null;
+        if (cascades != null) {
+            numberOfShadowCascadeViews = cascades.getNumberOfCascades();
+        }
+        for (int i = 0; i < SHADOW_CASCADE_VIEWS.length; i++) {
+            if (i < numberOfShadowCascadeViews) {
+                SHADOW_CASCADE_VIEWS[i].setFrustum(cascades.getProjectionViewMatrix(i));
+            } else {
+                SHADOW_CASCADE_VIEWS[i].reset();
+            }
+        }
+        EnvironmentProbeScheduler.schedule(camera);
+        collectProbeViews();
+    }
+
+    /**
+     * Sets the views of the environment probes' faces which are scheduled for
+     * the actual frame. If the probes' faces are rendered one by one, every
+     * face has it's own frustum, otherwise the probe has only one sphere and
+     * the renderer selects the faces of the objects.
+     *
+     * @see Settings#isLayeredEnvironmentProbeRendering()
+     * @see EnvironmentProbeScheduler
+     */
+    private static void collectProbeViews() {
+        while (PROBE_VIEWS.size() < Scene.getProbeCount()) {
+            View[] views = new View[NUMBER_OF_FACES + 1];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = new View();
+            }
+            PROBE_VIEWS.add(views);
+        }
+        boolean layered = Settings.isLayeredEnvironmentProbeRendering();
+        for (int i = 0; i < PROBE_VIEWS.size(); i++) {
+            View[] views = PROBE_VIEWS.get(i);
+            DynamicEnvironmentProbe probe = i < Scene.getProbeCount() ? Scene.getProbe(i) : null;
+            int faces = probe == null ? 0 : EnvironmentProbeScheduler.getScheduledFaces(probe);
+            for (int j = 0; j < NUMBER_OF_FACES; j++) {
+                if ((faces & (1 << j)) != 0 && !layered) {
+                    PROBE_PROJECTION_VIEW_MATRIX.set(DynamicEnvironmentProbe.getProjectionMatrix()).mul(probe.getViewMatrix(j));
+                    views[j].setFrustum(PROBE_PROJECTION_VIEW_MATRIX);
+                } else {
+                    views[j].reset();
+                }
+            }
+            if (faces != 0 && layered) {
+                views[NUMBER_OF_FACES].setSphere(probe.getPosition(), probe.getMaxDistance());
+            } else {
+                views[NUMBER_OF_FACES].reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the MeshComponents inside the main camera's frustum.
+     *
+     * @return the MeshComponents inside the main camera's frustum
+     */
+    @NotNull @ReadOnly
+    public static MeshComponentGroups getCameraView() {
+        return CAMERA_VIEW.result;
+    }
+
+    /**
+     * Returns the number of the shadow cascades computed in the actual frame.
+     * It's 0 if the shadow mapping is disabled.
+     *
+     * @return the number of the shadow cascades computed in the actual frame
+     */
+    public static int getNumberOfShadowCascadeViews() {
+        return numberOfShadowCascadeViews;
+    }
+
+    /**
+     * Returns the MeshComponents inside the given shadow cascade's frustum.
+     *
+     * @param index the shadow cascade's index
+     *
+     * @return the MeshComponents inside the given shadow cascade's frustum
+     *
+     * @throws IndexOutOfBoundsException the shadow cascade wasn't computed in
+     *                                   the actual frame
+     */
+    @NotNull @ReadOnly
+    public static MeshComponentGroups getShadowCascadeView(int index) {
+        if (index < 0 || index >= numberOfShadowCascadeViews) {
+            throw new IndexOutOfBoundsException();
+        }
+        return SHADOW_CASCADE_VIEWS[index].result;
+    }
+
+    /**
+     * Returns the MeshComponents inside the given environment probe's maximum
+     * distance. It's null if the probe isn't scheduled for the actual frame, or
+     * if it's faces are rendered one by one.
+     *
+     * @param probeIndex the environment probe's index in the Scene
+     *
+     * @return the MeshComponents near to the given environment probe
+     *
+     * @see Scene#getProbe(int)
+     * @see Settings#isLayeredEnvironmentProbeRendering()
+     */
+    @Nullable @ReadOnly
+    public static MeshComponentGroups getProbeView(int probeIndex) {
+        return getProbeView(probeIndex, NUMBER_OF_FACES);
+    }
+
+    /**
+     * Returns the MeshComponents inside the frustum of the given environment
+     * probe's given face. It's null if the face isn't scheduled for the actual
+     * frame, or if the probe's faces are rendered in one pass.
+     *
+     * @param probeIndex the environment probe's index in the Scene
+     * @param faceIndex  the cube map face's index
+     *
+     * @return the MeshComponents inside the face's frustum
+     *
+     * @throws IllegalArgumentException face index must be in the [0;5]
+     *                                  interval
+     * @see Scene#getProbe(int)
+     * @see DynamicEnvironmentProbe#getViewMatrix(int)
+     * @see Settings#isLayeredEnvironmentProbeRendering()
+     */
+    @Nullable @ReadOnly
+    public static MeshComponentGroups getProbeFaceView(int probeIndex, int faceIndex) {
+        if (faceIndex < 0 || faceIndex >= NUMBER_OF_FACES) {
+            throw new IllegalArgumentException("Face index must be in the [0;5] interval");
+        }
+        return getProbeView(probeIndex, faceIndex);
+    }
+
+    /**
+     * Returns the result of the given environment probe's given view, or null
+     * if it isn't computed in the actual frame.
+     *
+     * @param probeIndex the environment probe's index in the Scene
+     * @param viewIndex  the view's index
+     *
+     * @return the MeshComponents inside the view
+     */
+    @Nullable
+    private static MeshComponentGroups getProbeView(int probeIndex, int viewIndex) {
+        if (probeIndex < 0 || probeIndex >= PROBE_VIEWS.size() || !PROBE_VIEWS.get(probeIndex)[viewIndex].computed) {
+            return null;
+        }
+        return PROBE_VIEWS.get(probeIndex)[viewIndex].result;
+    }
+
+}
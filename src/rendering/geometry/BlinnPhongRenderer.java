@@ -1,7 +1,10 @@
 package rendering.geometry;
 
+import components.camera.*;
+import components.light.*;
 import components.renderables.*;
 import core.*;
+import java.util.*;
 import materials.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
@@ -40,11 +43,36 @@ public class BlinnPhongRenderer extends GeometryRenderer {
      * The only BlinnPhongRenderer instance.
      */
     private static BlinnPhongRenderer instance;
+    /**
+     * Reusable storage for the actual object's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual object's inverse model matrix.
+     */
+    private final Matrix4f inverseModelMatrix = new Matrix4f();
+    /**
+     * Groups the MeshComponents for instanced rendering.
+     */
+    private final InstanceBatcher instanceBatcher = new InstanceBatcher();
+    /**
+     * Orders the visible MeshComponents if the instanced rendering is
+     * disabled.
+     */
+    private final RenderQueue renderQueue = new RenderQueue();
+    /**
+     * Reusable storage for the camera's position.
+     */
+    private final Vector3f viewPosition = new Vector3f();
+    /**
+     * The actual Spline's visible SplineComponents.
+     */
+    private final List<SplineComponent> visibleSplineComponents = new ArrayList<>();
 
     /**
      * Initializes a new BlinnPhongRenderer.
      */
-    private BlinnPhongRenderer() {
+    protected BlinnPhongRenderer() {
         shader = BlinnPhongShader.getInstance();
     }
 
@@ -69,35 +97,148 @@ public class BlinnPhongRenderer extends GeometryRenderer {
         beforeDrawShader();
         Class<BlinnPhongRenderer> renderer = BlinnPhongRenderer.class;
         //meshes
-        for (Mesh mesh : Scene.getMeshes(renderer)) {
-            beforeDrawRenderable(mesh);
-            MeshComponent meshComponent;
-            for (int i = 0; i < Scene.getNumberOfMeshComponents(renderer, mesh); i++) {
-                meshComponent = Scene.getMeshComponent(renderer, mesh, i);
-                if (meshComponent.isActive() && meshComponent.isMeshActive() && Utility.isInsideFrustum(meshComponent)) {
-                    beforeDrawInstance(meshComponent);
-                    mesh.draw();
+        Camera camera = Scene.getCamera();
+        MeshComponentGroups visibleMeshComponents = Visibility.getCameraView();
+        renderQueue.clear();
+        renderQueue.setViewPosition(camera.getGameObject().getTransform().getAbsolutePosition(viewPosition));
+        for (Mesh mesh : visibleMeshComponents.getMeshes(renderer)) {
+            List<MeshComponent> meshComponents = visibleMeshComponents.getMeshComponents(renderer, mesh);
+            if (meshComponents.isEmpty()) {
+                continue;
+            }
+            if (Settings.isInstancedRendering()) {
+                renderInstanced(mesh, meshComponents);
+            } else {
+                for (MeshComponent meshComponent : meshComponents) {
+                    if (meshComponent.isActive() && meshComponent.isMeshActive()) {
+                        renderQueue.add(meshComponent);
+                    }
                 }
             }
-            afterDrawRenderable(mesh);
+        }
+        if (renderQueue.size() > 0) {
+            renderQueue.sort();
+            renderMeshComponents();
         }
         //splines
         for (Spline spline : Scene.getSplines(renderer)) {
-            beforeDrawRenderable(spline);
-            SplineComponent splineComponent;
-            for (int i = 0; i < Scene.getNumberOfSplineComponents(renderer, spline); i++) {
-                splineComponent = Scene.getSplineComponent(renderer, spline, i);
-                if (splineComponent.isActive() && splineComponent.isSplineActive() && Utility.isInsideFrustum(splineComponent)) {
-                    beforeDrawInstance(splineComponent);
-                    spline.draw();
-                }
-            }
-            afterDrawRenderable(spline);
+            renderSplineComponents(spline);
         }
         shader.stop();
         OpenGl.setFaceCulling(true);
     }
 
+    /**
+     * Renders the sorted render queue's MeshComponents one by one. The
+     * MeshComponents' data are uploaded in chunks, before the chunks' draw
+     * calls. The queue's order keeps the Material, texture and Mesh changes
+     * low.
+     */
+    private void renderMeshComponents() {
+        Mesh mesh = null;
+        int chunkSize = shader.getMaxNumberOfReservedObjects();
+        for (int first = 0; first < renderQueue.size(); first += chunkSize) {
+            int count = java.lang.Math.min(chunkSize, renderQueue.size() - first);
+            shader.reserveObjectUniforms(count);
+            for (int i = 0; i < count; i++) {
+                MeshComponent meshComponent = renderQueue.get(first + i);
+                storeObjectUniforms(i, meshComponent.getGameObject().getTransform(), meshComponent.isReceiveShadows());
+            }
+            shader.uploadObjectUniforms();
+            for (int i = 0; i < count; i++) {
+                MeshComponent meshComponent = renderQueue.get(first + i);
+                if (meshComponent.getMesh() != mesh) {
+                    if (mesh != null) {
+                        afterDrawRenderable(mesh);
+                    }
+                    mesh = meshComponent.getMesh();
+                    beforeDrawRenderable(mesh);
+                }
+                beforeDrawInstance(meshComponent, i);
+                mesh.draw(meshComponent.getLod());
+            }
+        }
+        if (mesh != null) {
+            afterDrawRenderable(mesh);
+        }
+    }
+
+    /**
+     * Renders the given Spline's visible SplineComponents.
+     *
+     * @param spline Spline
+     */
+    private void renderSplineComponents(@NotNull Spline spline) {
+        Class<BlinnPhongRenderer> renderer = BlinnPhongRenderer.class;
+        visibleSplineComponents.clear();
+        for (int i = 0; i < Scene.getNumberOfSplineComponents(renderer, spline); i++) {
+            SplineComponent splineComponent = Scene.getSplineComponent(renderer, spline, i);
+            if (splineComponent.isActive() && splineComponent.isSplineActive() && Utility.isInsideFrustum(splineComponent)) {
+                visibleSplineComponents.add(splineComponent);
+            }
+        }
+        if (visibleSplineComponents.isEmpty()) {
+            return;
+        }
+        beforeDrawRenderable(spline);
+        int chunkSize = shader.getMaxNumberOfReservedObjects();
+        for (int first = 0; first < visibleSplineComponents.size(); first += chunkSize) {
+            int count = java.lang.Math.min(chunkSize, visibleSplineComponents.size() - first);
+            shader.reserveObjectUniforms(count);
+            for (int i = 0; i < count; i++) {
+                SplineComponent splineComponent = visibleSplineComponents.get(first + i);
+                storeObjectUniforms(i, splineComponent.getGameObject().getTransform(), splineComponent.isReceiveShadows());
+            }
+            shader.uploadObjectUniforms();
+            for (int i = 0; i < count; i++) {
+                beforeDrawInstance(visibleSplineComponents.get(first + i), i);
+                spline.draw();
+            }
+        }
+        afterDrawRenderable(spline);
+    }
+
+    /**
+     * Stores the given object's data in the shader's specified reserved
+     * object.
+     *
+     * @param index         the object's index in the reserved objects
+     * @param transform     the object's Transform
+     * @param receiveShadow true if the object receives shadows, false otherwise
+     */
+    private void storeObjectUniforms(int index, @NotNull Transform transform, boolean receiveShadow) {
+        shader.storeObjectUniforms(index, transform.getModelMatrix(modelMatrix), transform.getInverseModelMatrix(inverseModelMatrix), receiveShadow, false);
+    }
+
+    /**
+     * Renders the given MeshComponents with instanced rendering. It issues
+     * only one draw call for the MeshComponents which have the same Material,
+     * the same two sided and receive shadows values and the same level of
+     * detail.
+     *
+     * @param mesh           the MeshComponents' Mesh
+     * @param meshComponents MeshComponents
+     */
+    private void renderInstanced(@NotNull Mesh mesh, @NotNull List<MeshComponent> meshComponents) {
+        instanceBatcher.batch(meshComponents);
+        if (instanceBatcher.getNumberOfInstances() == 0) {
+            return;
+        }
+        beforeDrawRenderable(mesh);
+        for (int i = 0; i < InstanceBatcher.NUMBER_OF_ATTRIBUTES; i++) {
+            OpenGl.getBackend().enableVertexAttribArray(InstanceBatcher.FIRST_ATTRIBUTE_NUMBER + i);
+        }
+        for (int i = 0; i < instanceBatcher.getNumberOfBatches(); i++) {
+            InstanceBatcher.InstanceBatch batch = instanceBatcher.getBatch(i);
+            beforeDrawBatch(mesh, batch);
+            mesh.drawInstanced(instanceBatcher.getInstanceData(batch), batch.getNumberOfInstances(), batch.getLod());
+        }
+        for (int i = 0; i < InstanceBatcher.NUMBER_OF_ATTRIBUTES; i++) {
+            OpenGl.getBackend().disableVertexAttribArray(InstanceBatcher.FIRST_ATTRIBUTE_NUMBER + i);
+        }
+        afterDrawRenderable(mesh);
+    }
+
     /**
      * Prepares the shader to the rendering.
      */
@@ -105,9 +246,11 @@ public class BlinnPhongRenderer extends GeometryRenderer {
         if (shader == null || !shader.isUsable()) {
             shader = BlinnPhongShader.getInstance();
         }
-        shader.start();
+        startShader();
+        Camera camera = Scene.getCamera();
+        LightClusters.update(camera.getViewMatrix(), camera.getProjectionMatrix());
         shader.loadGlobalUniforms();
-        RenderingPipeline.bindFbo();
+        bindFbo();
         OpenGl.setViewport(RenderingPipeline.getRenderingSize(), new Vector2i());
         OpenGl.setWireframe(Settings.isWireframeMode());
         numberOfRenderedElements = 0;
@@ -117,6 +260,26 @@ public class BlinnPhongRenderer extends GeometryRenderer {
         if (shadowMap != null) {
             shadowMap.bindToTextureUnit(0);
         }
+        //point and spot lights
+        DefaultLightComponent.bindLightData(7);
+        LightClusters.bind(8);
+    }
+
+    /**
+     * Starts the shader program which draws the objects. The objects' and the
+     * Materials' uniform blocks and textures are always loaded through the
+     * BlinnPhongShader, so the program has to use the same uniform blocks and
+     * texture units.
+     */
+    protected void startShader() {
+        shader.start();
+    }
+
+    /**
+     * Binds the FBO which the objects are drawn into.
+     */
+    protected void bindFbo() {
+        RenderingPipeline.bindFbo();
     }
 
     /**
@@ -126,10 +289,10 @@ public class BlinnPhongRenderer extends GeometryRenderer {
      */
     private void beforeDrawRenderable(@NotNull Renderable renderable) {
         renderable.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
-        GL20.glEnableVertexAttribArray(3);
+        OpenGl.getBackend().enableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(1);
+        OpenGl.getBackend().enableVertexAttribArray(2);
+        OpenGl.getBackend().enableVertexAttribArray(3);
     }
 
     /**
@@ -138,23 +301,23 @@ public class BlinnPhongRenderer extends GeometryRenderer {
      * @param renderable Renderable
      */
     private void afterDrawRenderable(@NotNull Renderable renderable) {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL20.glDisableVertexAttribArray(3);
+        OpenGl.getBackend().disableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(1);
+        OpenGl.getBackend().disableVertexAttribArray(2);
+        OpenGl.getBackend().disableVertexAttribArray(3);
         renderable.afterDraw();
     }
 
     /**
      * Prepares the MeshComponent to the rendering.
      *
-     * @param rc MeshComponent
+     * @param rc    MeshComponent
+     * @param index the MeshComponent's index in the shader's reserved objects
      */
-    private void beforeDrawInstance(@NotNull MeshComponent rc) {
+    private void beforeDrawInstance(@NotNull MeshComponent rc, int index) {
         numberOfRenderedElements++;
-        numberOfRenderedFaces += rc.getMesh().getFaceCount();
-        Transform transform = rc.getGameObject().getTransform();
-        shader.loadObjectUniforms(transform.getModelMatrix(), new Matrix3f(transform.getInverseModelMatrix()), rc.isReceiveShadows());
+        numberOfRenderedFaces += rc.getMesh().getFaceCount(rc.getLod());
+        shader.loadObjectUniforms(index);
         Material material = rc.getMaterial();
         shader.loadMaterial(material);
         if (!rc.isTwoSided()) {
@@ -164,15 +327,37 @@ public class BlinnPhongRenderer extends GeometryRenderer {
         }
     }
 
+    /**
+     * Prepares the given batch to the rendering.
+     *
+     * @param mesh  the batch's Mesh
+     * @param batch batch
+     */
+    private void beforeDrawBatch(@NotNull Mesh mesh, @NotNull InstanceBatcher.InstanceBatch batch) {
+        numberOfRenderedElements += batch.getNumberOfInstances();
+        numberOfRenderedFaces += mesh.getFaceCount(batch.getLod()) * batch.getNumberOfInstances();
+        shader.reserveObjectUniforms(1);
+        shader.storeObjectUniforms(0, modelMatrix.identity(), inverseModelMatrix.identity(), batch.isReceiveShadows(), true);
+        shader.uploadObjectUniforms();
+        shader.loadObjectUniforms(0);
+        shader.loadMaterial(batch.getMaterial());
+        if (!batch.isTwoSided()) {
+            OpenGl.setFaceCulling(true);
+        } else {
+            OpenGl.setFaceCulling(false);
+        }
+    }
+
     /**
      * Prepares the SplineComponent to the rendering.
      *
-     * @param rc SplineComponent
+     * @param rc    SplineComponent
+     * @param index the SplineComponent's index in the shader's reserved
+     *              objects
      */
-    private void beforeDrawInstance(@NotNull SplineComponent rc) {
+    private void beforeDrawInstance(@NotNull SplineComponent rc, int index) {
         numberOfRenderedElements++;
-        Transform transform = rc.getGameObject().getTransform();
-        shader.loadObjectUniforms(transform.getModelMatrix(), new Matrix3f(transform.getInverseModelMatrix()), rc.isReceiveShadows());
+        shader.loadObjectUniforms(index);
         Material material = rc.getMaterial();
         shader.loadMaterial(material);
     }
@@ -0,0 +1,149 @@
+package rendering.geometry;
+
+import components.camera.*;
+import components.light.*;
+import core.*;
+import org.joml.*;
+import rendering.*;
+import resources.meshes.*;
+import resources.shaders.*;
+import resources.textures.texture2D.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * The lighting pass of the deferred shading. It lights the G-buffer, filled by
+ * the GBufferRenderer, with a single fullscreen quad into the
+ * RenderingPipeline's FBO. Every pixel is lit by the directional light and by
+ * the point and spot lights of its light cluster, so the lighting's cost
+ * depends on the number of the pixels and the lights affecting them instead
+ * of the scene's complexity. It also copies the G-buffer's depth values, so
+ * the renderers after it (like the SolidColorRenderer or the skybox) are
+ * occluded by the lit geometry.
+ *
+ * @see GBufferRenderer
+ * @see LightClusters
+ */
+public class DeferredLightingRenderer extends GeometryRenderer {
+
+    /**
+     * Deferred lighting shader.
+     */
+    private DeferredLightingShader shader;
+    /**
+     * The fullscreen quad.
+     */
+    private final QuadMesh quad = QuadMesh.getInstance();
+    /**
+     * The only DeferredLightingRenderer instance.
+     */
+    private static DeferredLightingRenderer instance;
+    /**
+     * Reusable storage for the camera's inverse projection view matrix.
+     */
+    private final Matrix4f inverseProjectionViewMatrix = new Matrix4f();
+
+    /**
+     * Initializes a new DeferredLightingRenderer.
+     */
+    private DeferredLightingRenderer() {
+        shader = DeferredLightingShader.getInstance();
+    }
+
+    /**
+     * Returns the DeferredLightingRenderer instance.
+     *
+     * @return the DeferredLightingRenderer instance
+     */
+    @NotNull
+    public static DeferredLightingRenderer getInstance() {
+        if (instance == null) {
+            instance = new DeferredLightingRenderer();
+        }
+        return instance;
+    }
+
+    /**
+     * Renders the scene.
+     */
+    @Override
+    public void render() {
+        numberOfRenderedElements = 0;
+        numberOfRenderedFaces = 0;
+        Texture2D albedo = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_ALBEDO);
+        Texture2D normal = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_NORMAL);
+        Texture2D specular = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_SPECULAR);
+        Texture2D depth = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_DEPTH);
+        if (albedo == null || normal == null || specular == null || depth == null) {
+            return;
+        }
+        beforeShader();
+        shader.start();
+        Camera camera = Scene.getCamera();
+        inverseProjectionViewMatrix.set(camera.getProjectionMatrix()).mul(camera.getViewMatrix()).invert();
+        shader.loadUniforms(inverseProjectionViewMatrix);
+        //textures
+        Texture2D shadowMap = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP);
+        if (shadowMap != null) {
+            shadowMap.bindToTextureUnit(0);
+        }
+        albedo.bindToTextureUnit(1);
+        normal.bindToTextureUnit(2);
+        specular.bindToTextureUnit(3);
+        depth.bindToTextureUnit(4);
+        //point and spot lights
+        DefaultLightComponent.bindLightData(7);
+        LightClusters.bind(8);
+        //fullscreen quad
+        quad.beforeDraw();
+        OpenGl.getBackend().enableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(1);
+        quad.draw();
+        OpenGl.getBackend().disableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(1);
+        quad.afterDraw();
+        shader.stop();
+        OpenGl.setDepthTestMode(OpenGl.DepthTestMode.LESS);
+        numberOfRenderedElements = 1;
+        numberOfRenderedFaces = 2;
+    }
+
+    /**
+     * Prepares the shader to the rendering.
+     */
+    private void beforeShader() {
+        if (shader == null || !shader.isUsable()) {
+            shader = DeferredLightingShader.getInstance();
+        }
+        RenderingPipeline.bindFbo();
+        OpenGl.setViewport(RenderingPipeline.getRenderingSize(), new Vector2i());
+        OpenGl.setWireframe(false);
+        OpenGl.setDepthTestMode(OpenGl.DepthTestMode.ALWAYS);
+    }
+
+    /**
+     * Removes the shader program from the GPU's memory. After this method call
+     * you can't use this GeometryRenderer.
+     */
+    @Override
+    public void release() {
+        shader.release();
+    }
+
+    @Override
+    public void removeFromRenderingPipeline() {
+
+    }
+
+    @Override
+    public boolean isUsable() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nDeferredLightingRenderer{" + "shader="
+                + shader + ", quad=" + quad + '}';
+    }
+
+}
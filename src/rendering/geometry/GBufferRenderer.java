@@ -0,0 +1,150 @@
+package rendering.geometry;
+
+import org.joml.*;
+import rendering.*;
+import resources.*;
+import resources.shaders.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * The geometry pass of the deferred shading. It draws the meshes and the
+ * splines which use the BlinnPhongRenderer's Materials like the
+ * BlinnPhongRenderer, but instead of lighting them, it writes their albedo,
+ * normal vector, shadow receiving and specular color to the G-buffer. The
+ * G-buffer's textures are available as the RenderingPipeline's texture
+ * parameters, and the DeferredLightingRenderer lights them in one pass.
+ *
+ * @see RenderingPipeline#TEXTURE_GBUFFER_ALBEDO
+ * @see RenderingPipeline#TEXTURE_GBUFFER_NORMAL
+ * @see RenderingPipeline#TEXTURE_GBUFFER_SPECULAR
+ * @see RenderingPipeline#TEXTURE_GBUFFER_DEPTH
+ * @see DeferredLightingRenderer
+ */
+public class GBufferRenderer extends BlinnPhongRenderer {
+
+    /**
+     * G-buffer shader.
+     */
+    private GBufferShader gBufferShader;
+    /**
+     * The G-buffer. It's acquired from the FboPool.
+     */
+    private Fbo fbo;
+    /**
+     * The only GBufferRenderer instance.
+     */
+    private static GBufferRenderer instance;
+
+    /**
+     * Initializes a new GBufferRenderer.
+     */
+    private GBufferRenderer() {
+        gBufferShader = GBufferShader.getInstance();
+    }
+
+    /**
+     * Returns the GBufferRenderer instance.
+     *
+     * @return the GBufferRenderer instance
+     */
+    @NotNull
+    public static GBufferRenderer getInstance() {
+        if (instance == null) {
+            instance = new GBufferRenderer();
+        }
+        return instance;
+    }
+
+    @Override
+    protected void startShader() {
+        if (gBufferShader == null || !gBufferShader.isUsable()) {
+            gBufferShader = GBufferShader.getInstance();
+        }
+        gBufferShader.start();
+    }
+
+    /**
+     * Binds and clears the G-buffer. If the G-buffer doesn't exist or the
+     * rendering size has changed, it creates a new one.
+     */
+    @Override
+    protected void bindFbo() {
+        Vector2i renderingSize = RenderingPipeline.getRenderingSize();
+        if (fbo == null || !fbo.isUsable() || !renderingSize.equals(fbo.getSize())) {
+            releaseFbo();
+            generateFbo(renderingSize);
+        }
+        fbo.bind();
+        OpenGl.clear(true, true, false);
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_ALBEDO, fbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 0));
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_NORMAL, fbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 1));
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_SPECULAR, fbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 2));
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_DEPTH, fbo.getTextureAttachment(Fbo.FboAttachmentSlot.DEPTH, 0));
+    }
+
+    /**
+     * Acquires the G-buffer from the FboPool. It has three floating point
+     * color textures (the albedo, the normal vector with the shadow receiving
+     * and the specular color with the glossiness) and a depth texture.
+     *
+     * @param renderingSize the rendering size
+     */
+    private void generateFbo(@NotNull Vector2i renderingSize) {
+        fbo = FboPool.acquire(new FboDescriptor(renderingSize, 1, true, false,
+                new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0),
+                new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 1),
+                new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 2),
+                new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.TEXTURE, 0)));
+    }
+
+    /**
+     * Gives back the G-buffer to the FboPool.
+     */
+    private void releaseFbo() {
+        if (fbo != null) {
+            FboPool.release(fbo);
+            fbo = null;
+        }
+    }
+
+    /**
+     * Removes the shader programs from the GPU's memory and gives back the
+     * G-buffer to the FboPool.
+     * After this method call you can't use this GeometryRenderer.
+     */
+    @Override
+    public void release() {
+        super.release();
+        gBufferShader.release();
+        releaseFbo();
+    }
+
+    /**
+     * Returns the BlinnPhongRenderer's type, because the GBufferRenderer draws
+     * the objects which use the BlinnPhongRenderer's Materials.
+     *
+     * @return the BlinnPhongRenderer's type
+     */
+    @NotNull
+    @Override
+    public Class<? extends GeometryRenderer> getMaterialRenderer() {
+        return BlinnPhongRenderer.class;
+    }
+
+    @Override
+    public void removeFromRenderingPipeline() {
+        releaseFbo();
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_ALBEDO, null);
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_NORMAL, null);
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_SPECULAR, null);
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_DEPTH, null);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nGBufferRenderer{" + "gBufferShader="
+                + gBufferShader + ", fbo=" + fbo + '}';
+    }
+
+}
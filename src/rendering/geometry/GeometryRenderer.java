@@ -1,6 +1,7 @@
 package rendering.geometry;
 
 import rendering.*;
+import toolbox.annotations.*;
 
 /**
  * Renderers can render the scene, do post processing effects or draw ui
@@ -54,4 +55,20 @@ public abstract class GeometryRenderer extends Renderer {
         return numberOfRenderedElements;
     }
 
+    /**
+     * Returns the type of the GeometryRenderer which the drawn objects'
+     * Materials refer to. By default it's this GeometryRenderer's type, but a
+     * GeometryRenderer can draw an other GeometryRenderer's objects too (like
+     * the GBufferRenderer draws the BlinnPhongRenderer's objects). The shadow
+     * and the environment map renderers use it to find the objects of the
+     * rendering stages.
+     *
+     * @return the type of the GeometryRenderer which the drawn objects'
+     *         Materials refer to
+     */
+    @NotNull
+    public Class<? extends GeometryRenderer> getMaterialRenderer() {
+        return getClass();
+    }
+
 }
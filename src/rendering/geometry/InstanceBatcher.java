@@ -0,0 +1,359 @@
+package rendering.geometry;
+
+import components.renderables.*;
+import core.*;
+import java.nio.*;
+import java.util.*;
+import materials.*;
+import org.joml.*;
+import org.lwjgl.*;
+import resources.meshes.*;
+import toolbox.annotations.*;
+
+/**
+ * Groups the given MeshComponents (which share the same Mesh) into batches
+ * which can be drawn with only one instanced draw call. The MeshComponents in a
+ * batch have the same Material, the same two sided and receive shadows values
+ * and the same level of detail. The instances' data are packed into a buffer, and the batches'
+ * instances are stored contiguously in it. An instance's data consists of the
+ * model matrix and the inverse model matrix (both column major), so the
+ * instances are bound to 8 consecutive vec4 attributes. It doesn't use OpenGL,
+ * it only prepares the data for the draw calls. After the buffer and the
+ * batches grew large enough, it doesn't allocate any memory.
+ *
+ * @see resources.meshes.Mesh#drawInstanced(FloatBuffer, int)
+ */
+public class InstanceBatcher {
+
+    /**
+     * The first attribute number of the per instance data.
+     *
+     * @see Mesh#FIRST_INSTANCE_ATTRIBUTE_NUMBER
+     */
+    public static final int FIRST_ATTRIBUTE_NUMBER = Mesh.FIRST_INSTANCE_ATTRIBUTE_NUMBER;
+    /**
+     * The number of vec4 attributes used by an instance.
+     *
+     * @see Mesh#NUMBER_OF_INSTANCE_ATTRIBUTES
+     */
+    public static final int NUMBER_OF_ATTRIBUTES = Mesh.NUMBER_OF_INSTANCE_ATTRIBUTES;
+    /**
+     * The number of floats used by an instance.
+     */
+    public static final int INSTANCE_SIZE = NUMBER_OF_ATTRIBUTES * 4;
+    /**
+     * The instances' data.
+     */
+    private FloatBuffer instanceData = BufferUtils.createFloatBuffer(64 * INSTANCE_SIZE);
+    /**
+     * The batches (including the released ones).
+     */
+    private final List<InstanceBatch> batches = new ArrayList<>();
+    /**
+     * The number of the used batches.
+     */
+    private int numberOfBatches;
+    /**
+     * The first batch of each Material.
+     */
+    private final Map<Material, InstanceBatch> materialBatches = new IdentityHashMap<>();
+    /**
+     * The batch of each MeshComponent (null if the MeshComponent isn't
+     * drawn).
+     */
+    private InstanceBatch[] meshComponentBatches = new InstanceBatch[64];
+    /**
+     * The number of the batched instances.
+     */
+    private int numberOfInstances;
+    /**
+     * Temporary storage for the actual MeshComponent's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Temporary storage for the actual MeshComponent's inverse model matrix.
+     */
+    private final Matrix4f inverseModelMatrix = new Matrix4f();
+
+    /**
+     * A group of MeshComponents which can be drawn with one instanced draw
+     * call.
+     */
+    public static class InstanceBatch {
+
+        /**
+         * The batch's Material.
+         */
+        private Material material;
+        /**
+         * Determines whether the batch's MeshComponents are two sided.
+         */
+        private boolean twoSided;
+        /**
+         * Determines whether the batch's MeshComponents receive shadows.
+         */
+        private boolean receiveShadows;
+        /**
+         * The batch's MeshComponents' level of detail.
+         */
+        private int lod;
+        /**
+         * The batch's first instance's index.
+         */
+        private int firstInstance;
+        /**
+         * The number of the batch's instances.
+         */
+        private int numberOfInstances;
+        /**
+         * The next batch with the same Material.
+         */
+        private InstanceBatch next;
+
+        /**
+         * Returns the batch's Material.
+         *
+         * @return the batch's Material
+         */
+        @NotNull
+        public Material getMaterial() {
+            return material;
+        }
+
+        /**
+         * Determines whether the batch's MeshComponents are two sided.
+         *
+         * @return true if the batch's MeshComponents are two sided, false
+         *         otherwise
+         */
+        public boolean isTwoSided() {
+            return twoSided;
+        }
+
+        /**
+         * Determines whether the batch's MeshComponents receive shadows.
+         *
+         * @return true if the batch's MeshComponents receive shadows, false
+         *         otherwise
+         */
+        public boolean isReceiveShadows() {
+            return receiveShadows;
+        }
+
+        /**
+         * Returns the batch's MeshComponents' level of detail.
+         *
+         * @return the batch's level of detail
+         *
+         * @see MeshComponent#getLod()
+         */
+        public int getLod() {
+            return lod;
+        }
+
+        /**
+         * Returns the batch's first instance's index in the instance data.
+         *
+         * @return the batch's first instance's index
+         */
+        public int getFirstInstance() {
+            return firstInstance;
+        }
+
+        /**
+         * Returns the number of the batch's instances.
+         *
+         * @return the number of the batch's instances
+         */
+        public int getNumberOfInstances() {
+            return numberOfInstances;
+        }
+
+        @Override
+        public String toString() {
+            return "InstanceBatch{" + "material=" + material + ", twoSided="
+                    + twoSided + ", receiveShadows=" + receiveShadows
+                    + ", lod=" + lod + ", firstInstance=" + firstInstance
+                    + ", numberOfInstances=" + numberOfInstances + '}';
+        }
+    }
+
+    /**
+     * Groups the given MeshComponents into batches and packs their data.
+     * Inactive MeshComponents and MeshComponents with inactive Mesh are
+     * skipped. The MeshComponents should share the same Mesh and they have to
+     * be connected to GameObjects. The previous batches are dropped.
+     *
+     * @param meshComponents MeshComponents
+     *
+     * @throws NullPointerException meshComponents can't be null
+     */
+    public void batch(@NotNull List<MeshComponent> meshComponents) {
+        if (meshComponents == null) {
+            throw new NullPointerException();
+        }
+        clear();
+        if (meshComponentBatches.length < meshComponents.size()) {
+            meshComponentBatches = new InstanceBatch[Integer.highestOneBit(meshComponents.size()) << 1];
+        }
+        //counting the batches' sizes
+        for (int i = 0; i < meshComponents.size(); i++) {
+            MeshComponent meshComponent = meshComponents.get(i);
+            if (meshComponent.isActive() && meshComponent.isMeshActive()) {
+                InstanceBatch batch = getBatch(meshComponent);
+                batch.numberOfInstances++;
+                meshComponentBatches[i] = batch;
+                numberOfInstances++;
+            } else {
+                meshComponentBatches[i] = null;
+            }
+        }
+        //computing the batches' positions
+        int firstInstance = 0;
+        for (int i = 0; i < numberOfBatches; i++) {
+            InstanceBatch batch = batches.get(i);
+            batch.firstInstance = firstInstance;
+            firstInstance += batch.numberOfInstances;
+            batch.numberOfInstances = 0;
+        }
+        //packing the data
+        ensureCapacity(numberOfInstances);
+        instanceData.clear();
+        for (int i = 0; i < meshComponents.size(); i++) {
+            InstanceBatch batch = meshComponentBatches[i];
+            if (batch != null) {
+                Transform transform = meshComponents.get(i).getGameObject().getTransform();
+                int index = (batch.firstInstance + batch.numberOfInstances) * INSTANCE_SIZE;
+                transform.getModelMatrix(modelMatrix).get(index, instanceData);
+                transform.getInverseModelMatrix(inverseModelMatrix).get(index + 16, instanceData);
+                batch.numberOfInstances++;
+                meshComponentBatches[i] = null;
+            }
+        }
+        instanceData.limit(numberOfInstances * INSTANCE_SIZE);
+    }
+
+    /**
+     * Returns the MeshComponent's batch. If there is no such a batch, it
+     * creates one.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return the MeshComponent's batch
+     */
+    @NotNull
+    private InstanceBatch getBatch(@NotNull MeshComponent meshComponent) {
+        Material material = meshComponent.getMaterial();
+        boolean twoSided = meshComponent.isTwoSided();
+        boolean receiveShadows = meshComponent.isReceiveShadows();
+        int lod = meshComponent.getLod();
+        InstanceBatch first = materialBatches.get(material);
+        for (InstanceBatch batch = first; batch != null; batch = batch.next) {
+            if (batch.twoSided == twoSided && batch.receiveShadows == receiveShadows && batch.lod == lod) {
+                return batch;
+            }
+        }
+        if (numberOfBatches == batches.size()) {
+            batches.add(new InstanceBatch());
+        }
+        InstanceBatch batch = batches.get(numberOfBatches++);
+        batch.material = material;
+        batch.twoSided = twoSided;
+        batch.receiveShadows = receiveShadows;
+        batch.lod = lod;
+        batch.numberOfInstances = 0;
+        batch.next = first;
+        materialBatches.put(material, batch);
+        return batch;
+    }
+
+    /**
+     * Ensures that the instance data can store the given number of instances.
+     *
+     * @param numberOfInstances number of instances
+     */
+    private void ensureCapacity(int numberOfInstances) {
+        if (instanceData.capacity() < numberOfInstances * INSTANCE_SIZE) {
+            instanceData = BufferUtils.createFloatBuffer(Integer.highestOneBit(numberOfInstances) * 2 * INSTANCE_SIZE);
+        }
+    }
+
+    /**
+     * Removes all the batches.
+     */
+    public void clear() {
+        for (int i = 0; i < numberOfBatches; i++) {
+            InstanceBatch batch = batches.get(i);
+            batch.material = null;
+            batch.next = null;
+        }
+        numberOfBatches = 0;
+        numberOfInstances = 0;
+        materialBatches.clear();
+        instanceData.clear().limit(0);
+    }
+
+    /**
+     * Returns the number of the batches.
+     *
+     * @return the number of the batches
+     */
+    public int getNumberOfBatches() {
+        return numberOfBatches;
+    }
+
+    /**
+     * Returns the specified batch.
+     *
+     * @param index the batch's index
+     *
+     * @return the specified batch
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    @NotNull @ReadOnly
+    public InstanceBatch getBatch(int index) {
+        if (index < 0 || index >= numberOfBatches) {
+            throw new IndexOutOfBoundsException();
+        }
+        return batches.get(index);
+    }
+
+    /**
+     * Returns the number of all the batched instances.
+     *
+     * @return the number of all the batched instances
+     */
+    public int getNumberOfInstances() {
+        return numberOfInstances;
+    }
+
+    /**
+     * Returns the given batch's instance data. The returned buffer's position
+     * and limit are set to the batch's first and last instance. Note that the
+     * buffer is shared between the batches, so the position and the limit are
+     * only valid until the next call of this method.
+     *
+     * @param batch batch
+     *
+     * @return the given batch's instance data
+     *
+     * @throws NullPointerException batch can't be null
+     */
+    @NotNull @ReadOnly
+    public FloatBuffer getInstanceData(@NotNull InstanceBatch batch) {
+        if (batch == null) {
+            throw new NullPointerException();
+        }
+        instanceData.limit((batch.firstInstance + batch.numberOfInstances) * INSTANCE_SIZE);
+        instanceData.position(batch.firstInstance * INSTANCE_SIZE);
+        return instanceData;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceBatcher{" + "numberOfBatches=" + numberOfBatches
+                + ", numberOfInstances=" + numberOfInstances + '}';
+    }
+
+}
@@ -0,0 +1,350 @@
+package rendering.geometry;
+
+import components.renderables.*;
+import java.util.*;
+import materials.*;
+import org.joml.*;
+import resources.meshes.*;
+import resources.textures.texture2D.*;
+import toolbox.annotations.*;
+
+/**
+ * Orders the visible MeshComponents to minimize the state changes between the
+ * draw calls. Every MeshComponent gets a 64 bit sort key which consists of (from
+ * the most significant bits) its Material's GeometryRenderer, its Material's
+ * diffuse texture, its Material, its Mesh, its two sidedness and its distance
+ * from the view position. The keys are sorted by a radix sort, so the
+ * MeshComponents which share the same state follow each other and inside these
+ * runs the MeshComponents are ordered front to back (which helps the early
+ * depth test). The GeometryRenderers, the textures, the Materials and the
+ * Meshes get their ids in the order they first added to the queue after the
+ * last clear. If there are more of them than the key's field can store, the
+ * remaining ones share the last id, so the order stays valid, only less
+ * coherent. The Materials' key parts are stored per Material, so the
+ * Materials which share the last id still keep their own GeometryRenderer's
+ * and texture's ids. It doesn't use OpenGL and after its arrays grew large enough, it
+ * doesn't allocate any memory.
+ */
+public class RenderQueue {
+
+    /**
+     * The number of the key's bits used by the GeometryRenderer's id.
+     */
+    public static final int RENDERER_BITS = 4;
+    /**
+     * The number of the key's bits used by the texture's id.
+     */
+    public static final int TEXTURE_BITS = 12;
+    /**
+     * The number of the key's bits used by the Material's id.
+     */
+    public static final int MATERIAL_BITS = 12;
+    /**
+     * The number of the key's bits used by the Mesh's id.
+     */
+    public static final int MESH_BITS = 12;
+    /**
+     * The number of the key's bits used by the two sidedness.
+     */
+    public static final int TWO_SIDED_BITS = 1;
+    /**
+     * The number of the key's bits used by the depth.
+     */
+    public static final int DEPTH_BITS = 23;
+    /**
+     * The MeshComponents' sort keys.
+     */
+    private long[] keys = new long[64];
+    /**
+     * The MeshComponents.
+     */
+    private MeshComponent[] meshComponents = new MeshComponent[64];
+    /**
+     * Temporary storage for the radix sort's keys.
+     */
+    private long[] tempKeys = new long[64];
+    /**
+     * Temporary storage for the radix sort's MeshComponents.
+     */
+    private MeshComponent[] tempMeshComponents = new MeshComponent[64];
+    /**
+     * The radix sort's counters.
+     */
+    private final int[] counts = new int[256];
+    /**
+     * The number of the MeshComponents in the queue.
+     */
+    private int size;
+    /**
+     * The GeometryRenderers' ids.
+     */
+    private final Map<Class<?>, Integer> rendererIds = new IdentityHashMap<>();
+    /**
+     * The textures' ids.
+     */
+    private final Map<Texture2D, Integer> textureIds = new IdentityHashMap<>();
+    /**
+     * The Materials' indices in the materialKeys array. Unlike the ids, the
+     * indices aren't limited by the key's field, so every Material has its own
+     * index.
+     */
+    private final Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+    /**
+     * The Meshes' ids.
+     */
+    private final Map<Mesh, Integer> meshIds = new IdentityHashMap<>();
+    /**
+     * The key part of each Material (the GeometryRenderer's, the texture's and
+     * the Material's ids) indexed by the Material's index.
+     */
+    private long[] materialKeys = new long[64];
+    /**
+     * The position which the depth is measured from.
+     */
+    private final Vector3f viewPosition = new Vector3f();
+    /**
+     * Temporary storage for the actual MeshComponent's AABB's minimum.
+     */
+    private final Vector3f aabbMin = new Vector3f();
+    /**
+     * Temporary storage for the actual MeshComponent's AABB's maximum.
+     */
+    private final Vector3f aabbMax = new Vector3f();
+
+    /**
+     * Sets the position which the depth is measured from to the given value.
+     * It's usually the camera's position.
+     *
+     * @param viewPosition view position
+     *
+     * @throws NullPointerException view position can't be null
+     */
+    public void setViewPosition(@NotNull Vector3f viewPosition) {
+        if (viewPosition == null) {
+            throw new NullPointerException();
+        }
+        this.viewPosition.set(viewPosition);
+    }
+
+    /**
+     * Adds the given MeshComponent to the queue. The MeshComponent have to be
+     * connected to a GameObject.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @throws NullPointerException meshComponent can't be null
+     */
+    public void add(@NotNull MeshComponent meshComponent) {
+        if (meshComponent == null) {
+            throw new NullPointerException();
+        }
+        ensureCapacity(size + 1);
+        meshComponent.getRealAabbMin(aabbMin);
+        meshComponent.getRealAabbMax(aabbMax);
+        float depth = aabbMin.add(aabbMax).mul(0.5f).distance(viewPosition);
+        long key = getMaterialKey(meshComponent.getMaterial());
+        key = (key << MESH_BITS) | getId(meshIds, meshComponent.getMesh(), MESH_BITS, 0);
+        key = (key << TWO_SIDED_BITS) | (meshComponent.isTwoSided() ? 1 : 0);
+        key = (key << DEPTH_BITS) | getDepthBits(depth);
+        keys[size] = key;
+        meshComponents[size] = meshComponent;
+        size++;
+    }
+
+    /**
+     * Returns the given Material's key part (the GeometryRenderer's, the
+     * texture's and the Material's ids).
+     *
+     * @param material Material
+     *
+     * @return the Material's key part
+     */
+    private long getMaterialKey(@NotNull Material material) {
+        Integer index = materialIndices.get(material);
+        if (index != null) {
+            return materialKeys[index];
+        }
+        index = materialIndices.size();
+        materialIndices.put(material, index);
+        if (materialKeys.length <= index) {
+            materialKeys = Arrays.copyOf(materialKeys, materialKeys.length * 2);
+        }
+        int id = java.lang.Math.min(index, (1 << MATERIAL_BITS) - 1);
+        MaterialSlot slot = material.getSlot(Material.DIFFUSE);
+        Texture2D texture = slot != null && slot.isActive() ? slot.getTexture() : null;
+        long key = getId(rendererIds, material.getRenderer(), RENDERER_BITS, 0);
+        key = (key << TEXTURE_BITS) | (texture == null ? 0 : getId(textureIds, texture, TEXTURE_BITS, 1));
+        key = (key << MATERIAL_BITS) | id;
+        materialKeys[index] = key;
+        return key;
+    }
+
+    /**
+     * Returns the given object's id. If the object doesn't have an id yet, it
+     * gets the next id (or the last id if the ids are run out).
+     *
+     * @param <T>     the object's type
+     * @param ids     the already given ids
+     * @param object  object
+     * @param bits    the number of the id's bits
+     * @param firstId the first id
+     *
+     * @return the given object's id
+     */
+    private static <T> int getId(@NotNull Map<T, Integer> ids, @NotNull T object, int bits, int firstId) {
+        Integer id = ids.get(object);
+        if (id == null) {
+            id = java.lang.Math.min(firstId + ids.size(), (1 << bits) - 1);
+            ids.put(object, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the given depth's most significant bits. The bit pattern of a
+     * non-negative float grows with the float's value, so the depth's bits can
+     * be compared as an integer.
+     *
+     * @param depth depth
+     *
+     * @return the depth's most significant bits
+     */
+    static long getDepthBits(float depth) {
+        return Float.floatToIntBits(java.lang.Math.max(depth, 0)) >>> (31 - DEPTH_BITS);
+    }
+
+    /**
+     * Sorts the queue by the keys in ascending order. The sort is stable, so
+     * the MeshComponents with equal keys stay in the order they were added.
+     */
+    public void sort() {
+        for (int shift = 0; shift < 64; shift += 8) {
+            if (radixPass(shift)) {
+                long[] keysSwap = keys;
+                keys = tempKeys;
+                tempKeys = keysSwap;
+                MeshComponent[] meshComponentsSwap = meshComponents;
+                meshComponents = tempMeshComponents;
+                tempMeshComponents = meshComponentsSwap;
+            }
+        }
+    }
+
+    /**
+     * Sorts the keys and the MeshComponents into the temporary arrays by the
+     * byte which starts at the given bit. If all the keys have the same byte
+     * there, it doesn't move anything.
+     *
+     * @param shift the byte's first bit
+     *
+     * @return true if the result is in the temporary arrays, false if the pass
+     *         was skipped
+     */
+    private boolean radixPass(int shift) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < size; i++) {
+            counts[(int) (keys[i] >>> shift) & 0xff]++;
+        }
+        if (size == 0 || counts[(int) (keys[0] >>> shift) & 0xff] == size) {
+            return false;
+        }
+        int position = 0;
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            counts[i] = position;
+            position += count;
+        }
+        for (int i = 0; i < size; i++) {
+            int index = counts[(int) (keys[i] >>> shift) & 0xff]++;
+            tempKeys[index] = keys[i];
+            tempMeshComponents[index] = meshComponents[i];
+        }
+        return true;
+    }
+
+    /**
+     * Ensures that the queue can store the given number of MeshComponents.
+     *
+     * @param capacity capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (keys.length < capacity) {
+            int newCapacity = Integer.highestOneBit(capacity) << 1;
+            keys = Arrays.copyOf(keys, newCapacity);
+            meshComponents = Arrays.copyOf(meshComponents, newCapacity);
+            tempKeys = new long[newCapacity];
+            tempMeshComponents = new MeshComponent[newCapacity];
+        }
+    }
+
+    /**
+     * Removes all the MeshComponents from the queue and forgets the given ids.
+     */
+    public void clear() {
+        Arrays.fill(meshComponents, 0, size, null);
+        Arrays.fill(tempMeshComponents, 0, size, null);
+        size = 0;
+        rendererIds.clear();
+        textureIds.clear();
+        materialIndices.clear();
+        meshIds.clear();
+    }
+
+    /**
+     * Returns the number of the MeshComponents in the queue.
+     *
+     * @return the number of the MeshComponents in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the specified MeshComponent.
+     *
+     * @param index the MeshComponent's index
+     *
+     * @return the specified MeshComponent
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    @NotNull
+    public MeshComponent get(int index) {
+        checkIndex(index);
+        return meshComponents[index];
+    }
+
+    /**
+     * Returns the specified MeshComponent's sort key.
+     *
+     * @param index the MeshComponent's index
+     *
+     * @return the specified MeshComponent's sort key
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public long getKey(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * Checks whether the given index is valid.
+     *
+     * @param index index
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RenderQueue{" + "size=" + size + ", viewPosition="
+                + viewPosition + '}';
+    }
+
+}
@@ -1,8 +1,8 @@
 package rendering.geometry;
 
-import components.camera.*;
 import components.renderables.*;
 import core.*;
+import java.util.*;
 import materials.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
@@ -30,6 +30,14 @@ public class SolidColorRenderer extends GeometryRenderer {
      * The only SolidColorRenderer instance.
      */
     private static SolidColorRenderer instance;
+    /**
+     * Reusable storage for the actual object's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual object's color.
+     */
+    private final Vector3f color = new Vector3f();
 
     /**
      * Initializes a new SolidColorRenderer.
@@ -58,19 +66,22 @@ public class SolidColorRenderer extends GeometryRenderer {
     public void render() {
         beforeShader();
         shader.start();
-        Camera camera = Scene.getCamera();
         Class<SolidColorRenderer> renderer = SolidColorRenderer.class;
         //meshes
-        for (Mesh mesh : Scene.getMeshes(renderer)) {
+        MeshComponentGroups visibleMeshComponents = Visibility.getCameraView();
+        for (Mesh mesh : visibleMeshComponents.getMeshes(renderer)) {
+            List<MeshComponent> meshComponents = visibleMeshComponents.getMeshComponents(renderer, mesh);
+            if (meshComponents.isEmpty()) {
+                continue;
+            }
             beforeDrawRenderable(mesh);
-            MeshComponent meshComponent;
-            for (int i = 0; i < Scene.getNumberOfMeshComponents(renderer, mesh); i++) {
-                meshComponent = Scene.getMeshComponent(renderer, mesh, i);
-                if (meshComponent.isActive() && meshComponent.isMeshActive() && Utility.isInsideFrustum(meshComponent)) {
-                    beforeDrawRenderableInstance(meshComponent.getMaterial(), meshComponent.getGameObject().getTransform().getModelMatrix());
-                    mesh.draw();
+            for (MeshComponent meshComponent : meshComponents) {
+                if (meshComponent.isActive() && meshComponent.isMeshActive()) {
+                    beforeDrawRenderableInstance(meshComponent.getMaterial(), meshComponent.getGameObject().getTransform().getModelMatrix(modelMatrix));
+                    int lod = meshComponent.getLod();
+                    mesh.draw(lod);
                     numberOfRenderedElements++;
-                    numberOfRenderedFaces += mesh.getFaceCount();
+                    numberOfRenderedFaces += mesh.getFaceCount(lod);
                 }
             }
             afterDrawRenderable(mesh);
@@ -82,7 +93,7 @@ public class SolidColorRenderer extends GeometryRenderer {
             for (int i = 0; i < Scene.getNumberOfSplineComponents(renderer, spline); i++) {
                 splineComponent = Scene.getSplineComponent(renderer, spline, i);
                 if (splineComponent.isActive() && splineComponent.isSplineActive() && Utility.isInsideFrustum(splineComponent)) {
-                    beforeDrawRenderableInstance(splineComponent.getMaterial(), splineComponent.getGameObject().getTransform().getModelMatrix());
+                    beforeDrawRenderableInstance(splineComponent.getMaterial(), splineComponent.getGameObject().getTransform().getModelMatrix(modelMatrix));
                     spline.draw();
                     numberOfRenderedElements++;
                 }
@@ -114,8 +125,13 @@ public class SolidColorRenderer extends GeometryRenderer {
      */
     private void beforeDrawRenderableInstance(@NotNull Material material, @NotNull Matrix4f modelMatrix) {
         MaterialSlot slot = material.getSlot(Material.DIFFUSE);
-        Vector4f color = slot != null && slot.isActive() && slot.getColor() != null ? slot.getColor() : new Vector4f(0.5f);
-        shader.loadUniforms(modelMatrix, new Vector3f(color.x, color.y, color.z));
+        if (slot != null && slot.isActive() && slot.getColor() != null) {
+            Vector4f slotColor = slot.getColor();
+            color.set(slotColor.x, slotColor.y, slotColor.z);
+        } else {
+            color.set(0.5f);
+        }
+        shader.loadUniforms(modelMatrix, color);
     }
 
     /**
@@ -125,7 +141,7 @@ public class SolidColorRenderer extends GeometryRenderer {
      */
     private void beforeDrawRenderable(@NotNull Renderable renderable) {
         renderable.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(0);
     }
 
     /**
@@ -134,7 +150,7 @@ public class SolidColorRenderer extends GeometryRenderer {
      * @param renderable Renderable
      */
     private void afterDrawRenderable(@NotNull Renderable renderable) {
-        GL20.glDisableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(0);
         renderable.afterDraw();
     }
 
@@ -0,0 +1,105 @@
+package rendering.postProcessing;
+
+import java.util.*;
+import resources.shaders.postProcessing.FusedPostProcessingShader;
+import toolbox.annotations.*;
+
+/**
+ * Performs more per pixel post processing effects in one pass. The
+ * PostProcessingRenderingStage uses it instead of the consecutive per pixel
+ * effects' renderers, so you shouldn't add it to the stage.
+ *
+ * @see core.Settings#isPostProcessingPassFusion()
+ * @see PostProcessingRenderer#getFusibleEffect()
+ */
+public class FusedPostProcessingRenderer extends PostProcessingRenderer {
+
+    /**
+     * The only FusedPostProcessingRenderer instance.
+     */
+    private static FusedPostProcessingRenderer instance;
+    /**
+     * The fused effects in order.
+     */
+    private final List<FusedPostProcessingShader.Effect> effects = new ArrayList<>();
+
+    /**
+     * Initializes a new FusedPostProcessingRenderer.
+     */
+    private FusedPostProcessingRenderer() {
+    }
+
+    /**
+     * Returns the FusedPostProcessingRenderer instance.
+     *
+     * @return the FusedPostProcessingRenderer instance
+     */
+    @NotNull
+    public static FusedPostProcessingRenderer getInstance() {
+        if (instance == null) {
+            instance = new FusedPostProcessingRenderer();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the effects which the next rendering performs.
+     *
+     * @param effects the fused effects in order
+     *
+     * @throws NullPointerException     effects can't be null
+     * @throws IllegalArgumentException effects can't be empty
+     */
+    public void setEffects(@NotNull List<FusedPostProcessingShader.Effect> effects) {
+        if (effects.isEmpty()) {
+            throw new IllegalArgumentException("Effects can't be empty");
+        }
+        this.effects.clear();
+        this.effects.addAll(effects);
+    }
+
+    /**
+     * Returns the effects which the next rendering performs.
+     *
+     * @return the fused effects in order
+     */
+    @NotNull @ReadOnly
+    public List<FusedPostProcessingShader.Effect> getEffects() {
+        return Collections.unmodifiableList(effects);
+    }
+
+    @Override
+    protected void refreshShader() {
+        if (shader == null || !shader.isUsable() || !((FusedPostProcessingShader) shader).getEffects().equals(effects)) {
+            shader = FusedPostProcessingShader.getInstance(effects);
+        }
+    }
+
+    @Override
+    protected void beforeDrawQuad() {
+        super.beforeDrawQuad();
+        ((FusedPostProcessingShader) shader).loadUniforms();
+    }
+
+    /**
+     * Removes the last used shader program from the GPU's memory.
+     */
+    @Override
+    public void release() {
+        if (shader != null) {
+            shader.release();
+        }
+    }
+
+    @Override
+    public boolean isUsable() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nFusedPostProcessingRenderer{" + "effects="
+                + effects + '}';
+    }
+
+}
@@ -1,6 +1,7 @@
 package rendering.postProcessing;
 
 import resources.shaders.postProcessing.GammaCorrectionShader;
+import resources.shaders.postProcessing.FusedPostProcessingShader;
 import core.*;
 import toolbox.annotations.*;
 
@@ -49,6 +50,12 @@ public class GammaCorrectionRenderer extends PostProcessingRenderer {
         ((GammaCorrectionShader) shader).loadGammaUniform();
     }
 
+    @NotNull
+    @Override
+    public FusedPostProcessingShader.Effect getFusibleEffect() {
+        return FusedPostProcessingShader.Effect.GAMMA_CORRECTION;
+    }
+
     @Override
     public boolean isUsable() {
         return true;
@@ -1,6 +1,7 @@
 package rendering.postProcessing;
 
 import resources.shaders.postProcessing.GrayscaleShader;
+import resources.shaders.postProcessing.FusedPostProcessingShader;
 import toolbox.annotations.*;
 
 /**
@@ -40,6 +41,12 @@ public class GrayscaleRenderer extends PostProcessingRenderer {
         return instance;
     }
 
+    @NotNull
+    @Override
+    public FusedPostProcessingShader.Effect getFusibleEffect() {
+        return FusedPostProcessingShader.Effect.GRAYSCALE;
+    }
+
     @Override
     public boolean isUsable() {
         return true;
@@ -1,6 +1,7 @@
 package rendering.postProcessing;
 
 import resources.shaders.postProcessing.InvertShader;
+import resources.shaders.postProcessing.FusedPostProcessingShader;
 import toolbox.annotations.*;
 
 /**
@@ -40,6 +41,12 @@ public class InvertRenderer extends PostProcessingRenderer {
         return instance;
     }
 
+    @NotNull
+    @Override
+    public FusedPostProcessingShader.Effect getFusibleEffect() {
+        return FusedPostProcessingShader.Effect.INVERT;
+    }
+
     @Override
     public boolean isUsable() {
         return true;
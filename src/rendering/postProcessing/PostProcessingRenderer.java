@@ -1,12 +1,15 @@
 package rendering.postProcessing;
 
+import core.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
 import rendering.*;
 import resources.meshes.*;
 import resources.shaders.*;
+import resources.shaders.postProcessing.*;
 import resources.textures.texture2D.*;
 import toolbox.*;
+import toolbox.annotations.*;
 
 /**
  * Abstract class for post processing renderers.
@@ -52,8 +55,8 @@ public abstract class PostProcessingRenderer extends Renderer {
      */
     protected void beforeDrawQuad() {
         quad.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
+        OpenGl.getBackend().enableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(1);
         Texture2D image = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_WORK);
         image.bindToTextureUnit(0);
     }
@@ -62,11 +65,26 @@ public abstract class PostProcessingRenderer extends Renderer {
      * Unbinds the quad's VAO after rendering.
      */
     protected void afterDrawQuad() {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
+        OpenGl.getBackend().disableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(1);
         quad.afterDraw();
     }
 
+    /**
+     * Returns the effect which this renderer performs, if it's a per pixel
+     * effect, so it can be fused with the neighbouring per pixel effects into
+     * one pass. If the effect reads the neighbouring pixels (like the FXAA)
+     * or it can't be fused for an other reason, it returns null.
+     *
+     * @return the per pixel effect which this renderer performs, or null
+     *
+     * @see Settings#isPostProcessingPassFusion()
+     */
+    @Nullable
+    public FusedPostProcessingShader.Effect getFusibleEffect() {
+        return null;
+    }
+
     @Override
     public void release() {
         shader.release();
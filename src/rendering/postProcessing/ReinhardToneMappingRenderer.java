@@ -1,6 +1,7 @@
 package rendering.postProcessing;
 
 import resources.shaders.postProcessing.ReinhardToneMappingShader;
+import resources.shaders.postProcessing.FusedPostProcessingShader;
 import toolbox.annotations.*;
 
 /**
@@ -40,6 +41,12 @@ public class ReinhardToneMappingRenderer extends PostProcessingRenderer {
         return instance;
     }
 
+    @NotNull
+    @Override
+    public FusedPostProcessingShader.Effect getFusibleEffect() {
+        return FusedPostProcessingShader.Effect.REINHARD_TONE_MAPPING;
+    }
+
     @Override
     public boolean isUsable() {
         return true;
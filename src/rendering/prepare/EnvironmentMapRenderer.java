@@ -18,16 +18,66 @@ import toolbox.annotations.*;
 
 public class EnvironmentMapRenderer extends PrepareRenderer {
 
+    /**
+     * The actual shader.
+     */
     private EnvironmentShader shader;
+    /**
+     * The shader which renders the faces one by one.
+     */
+    private EnvironmentShader environmentShader;
+    /**
+     * The shader which renders all the faces in one pass.
+     */
+    private LayeredEnvironmentShader layeredShader;
     /**
      * The only EnvironmentMapRenderer instance.
      */
     private static EnvironmentMapRenderer instance;
 
     private static SkyBoxRenderer skyboxRenderer;
+    /**
+     * Reusable storage for the actual object's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual object's inverse model matrix.
+     */
+    private final Matrix4f inverseModelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual object's inverse model matrix's upper
+     * left 3x3 part.
+     */
+    private final Matrix3f inverseModelMatrix3x3 = new Matrix3f();
+    /**
+     * The actual probe's faces' projection view matrices.
+     */
+    private final Matrix4f[] faceProjectionViewMatrices = new Matrix4f[6];
+    /**
+     * Performs the frustum intersection tests against the actual probe's
+     * faces' frustums.
+     */
+    private final FrustumIntersection[] faceFrustums = new FrustumIntersection[6];
+    /**
+     * Reusable storage for the actual object's AABB's minimum point.
+     */
+    private final Vector3f aabbMin = new Vector3f();
+    /**
+     * Reusable storage for the actual object's AABB's maximum point.
+     */
+    private final Vector3f aabbMax = new Vector3f();
+    /**
+     * Reusable storage for the actual object's position.
+     */
+    private final Vector3f position = new Vector3f();
 
     private EnvironmentMapRenderer() {
-        shader = EnvironmentShader.getInstance();
+        environmentShader = EnvironmentShader.getInstance();
+        shader = environmentShader;
+        for (int i = 0; i < 6; i++) {
+            faceProjectionViewMatrices[i] = new Matrix4f();
+            faceFrustums[i] = new FrustumIntersection();
+        }
     }
 
     /**
@@ -51,7 +101,7 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
         for (int j = 0; j < RenderingPipeline.getRenderingStageCount(); j++) {
             GeometryRenderingStage stage = RenderingPipeline.getRenderingStage(j);
             for (int i = 0; i < stage.getRendererCount(); i++) {
-                Class renderer = stage.getRenderer(i).getClass();
+                Class renderer = stage.getRenderer(i).getMaterialRenderer();
                 if (renderer != getClass()) {
                     renderers.add(renderer);
                 }
@@ -60,79 +110,206 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
 
         for (int probeIndex = 0; probeIndex < Scene.getProbeCount(); probeIndex++) {
             DynamicEnvironmentProbe probe = Scene.getProbe(probeIndex);
-            if (!probe.shouldRenderNow()) {
+            int faces = EnvironmentProbeScheduler.getScheduledFaces(probe);
+            if (faces == 0) {
                 continue;
             }
+            long start = System.nanoTime();
             probe.refresh();
             OpenGl.setViewport(new Vector2i(probe.getResolution()), new Vector2i());
-
             probe.bindCubeMap();
-            probe.bindFbo();
-            for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-                shader.loadViewMatrix(probe.getViewMatrix(faceIndex));
-                probe.FboTexture(faceIndex);
-                OpenGl.setClearColor(new Vector4f(0, 1, 0, 1));
-//                if (faceIndex == 0) {
-//                    OpenGl.setClearColor(new Vector4f(1, 0, 0, 1));
-//                } else if (faceIndex == 1) {
-//                    OpenGl.setClearColor(new Vector4f(0, 1, 0, 1));
-//                } else if (faceIndex == 2) {
-//                    OpenGl.setClearColor(new Vector4f(0, 0, 1, 1));
-//                } else if (faceIndex == 3) {
-//                    OpenGl.setClearColor(new Vector4f(1, 1, 0, 1));
-//                } else if (faceIndex == 4) {
-//                    OpenGl.setClearColor(new Vector4f(1, 0, 1, 1));
-//                } else if (faceIndex == 5) {
-//                    OpenGl.setClearColor(new Vector4f(0, 1, 1, 1));
-//                }
-                OpenGl.clear(true, true, false);
-                for (Class<? extends GeometryRenderer> renderer : renderers) {
-                    for (Mesh mesh : Scene.getMeshes(renderer)) {
-                        beforeDrawRenderable(mesh);
-                        MeshComponent meshComponent;
-                        for (int i = 0; i < Scene.getNumberOfMeshComponents(renderer, mesh); i++) {
-                            meshComponent = Scene.getMeshComponent(renderer, mesh, i);
-                            if (meshComponent.isActive() && meshComponent.isMeshActive() && meshComponent.getRealFurthestVertexDistance() >= probe.getMinSize() && meshComponent.getGameObject().getTransform().getAbsolutePosition().distance(probe.getPosition()) <= probe.getMaxDistance()) {
-                                beforeDrawInstance(meshComponent);
-                                meshComponent.getMesh().draw();
-                                numberOfRenderedElements++;
-                                numberOfRenderedFaces += mesh.getFaceCount();
-                            }
-                        }
-                        afterDrawRenderable(mesh);
-                    }
-                }
-
-//                for (int meshIndex = 0; meshIndex < Scene.getReflectablesCount(); meshIndex++) {
-//                    MeshComponent meshComponent = Scene.getReflectable(meshIndex);
-//                    beforeDrawRenderable(meshComponent.getMesh());
-//                    if (meshComponent.isActive() && meshComponent.isMeshActive() && meshComponent.getRealFurthestVertexDistance() >= probe.getMinSize() && meshComponent.getGameObject().getTransform().getAbsolutePosition().distance(probe.getPosition()) <= probe.getMaxDistance()) {
-//                        beforeDrawInstance(meshComponent);
-//                        meshComponent.getMesh().draw();
-//                    }
-//                    afterDrawRenderable(meshComponent.getMesh());
-//                }
-//                skyboxRenderer.render();
+            if (Settings.isLayeredEnvironmentProbeRendering()) {
+                renderLayered(probe, probeIndex, renderers);
+            } else {
+                renderFaces(probe, probeIndex, faces, renderers);
             }
             probe.unbindFbo();
             probe.unbindCubeMap();
+            EnvironmentProbeScheduler.addRenderingTime(probe, faces, System.nanoTime() - start);
         }
         shader.stop();
         OpenGl.setFaceCulling(true);
     }
 
+    /**
+     * Renders the given faces of the given probe one by one. Every face draws
+     * only the MeshComponents inside it's own frustum.
+     *
+     * @param probe      environment probe
+     * @param probeIndex the probe's index in the Scene
+     * @param faces      the scheduled faces (the i-th bit belongs to the i-th
+     *                   face)
+     * @param renderers  the renderers of the reflected MeshComponents
+     */
+    private void renderFaces(@NotNull DynamicEnvironmentProbe probe, int probeIndex, int faces, @NotNull List<Class<? extends GeometryRenderer>> renderers) {
+        probe.bindFbo();
+        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
+            if ((faces & (1 << faceIndex)) == 0) {
+                continue;
+            }
+            environmentShader.loadViewMatrix(probe.getViewMatrix(faceIndex));
+            probe.FboTexture(faceIndex);
+            OpenGl.setClearColor(new Vector4f(0, 1, 0, 1));
+            OpenGl.clear(true, true, false);
+            MeshComponentGroups visibleMeshComponents = Visibility.getProbeFaceView(probeIndex, faceIndex);
+            for (Class<? extends GeometryRenderer> renderer : renderers) {
+                for (Mesh mesh : visibleMeshComponents.getMeshes(renderer)) {
+                    List<MeshComponent> meshComponents = visibleMeshComponents.getMeshComponents(renderer, mesh);
+                    if (meshComponents.isEmpty()) {
+                        continue;
+                    }
+                    beforeDrawRenderable(mesh);
+                    for (MeshComponent meshComponent : meshComponents) {
+                        if (isReflected(probe, meshComponent)) {
+                            beforeDrawInstance(meshComponent);
+                            int lod = computeLod(probe, meshComponent);
+                            mesh.draw(lod);
+                            numberOfRenderedElements++;
+                            numberOfRenderedFaces += mesh.getFaceCount(lod);
+                        }
+                    }
+                    afterDrawRenderable(mesh);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders all the given probe's faces in one pass. Every MeshComponent is
+     * drawn once, and the geometry shader sends it only to the faces which
+     * frustum it intersects.
+     *
+     * @param probe      environment probe
+     * @param probeIndex the probe's index in the Scene
+     * @param renderers  the renderers of the reflected MeshComponents
+     */
+    private void renderLayered(@NotNull DynamicEnvironmentProbe probe, int probeIndex, @NotNull List<Class<? extends GeometryRenderer>> renderers) {
+        Matrix4f projectionMatrix = DynamicEnvironmentProbe.getProjectionMatrix();
+        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
+            faceProjectionViewMatrices[faceIndex].set(projectionMatrix).mul(probe.getViewMatrix(faceIndex));
+            faceFrustums[faceIndex].set(faceProjectionViewMatrices[faceIndex]);
+        }
+        layeredShader.loadProjectionViewMatrices(faceProjectionViewMatrices);
+        probe.bindLayeredFbo();
+        OpenGl.setClearColor(new Vector4f(0, 1, 0, 1));
+        OpenGl.clear(true, true, false);
+        MeshComponentGroups nearbyMeshComponents = Visibility.getProbeView(probeIndex);
+        for (Class<? extends GeometryRenderer> renderer : renderers) {
+            for (Mesh mesh : nearbyMeshComponents.getMeshes(renderer)) {
+                List<MeshComponent> meshComponents = nearbyMeshComponents.getMeshComponents(renderer, mesh);
+                if (meshComponents.isEmpty()) {
+                    continue;
+                }
+                boolean prepared = false;
+                for (MeshComponent meshComponent : meshComponents) {
+                    if (!isReflected(probe, meshComponent)) {
+                        continue;
+                    }
+                    int faceMask = computeFaceMask(meshComponent);
+                    if (faceMask == 0) {
+                        continue;
+                    }
+                    if (!prepared) {
+                        beforeDrawRenderable(mesh);
+                        prepared = true;
+                    }
+                    layeredShader.loadFaceMask(faceMask);
+                    beforeDrawInstance(meshComponent);
+                    int lod = computeLod(probe, meshComponent);
+                    mesh.draw(lod);
+                    numberOfRenderedElements++;
+                    numberOfRenderedFaces += mesh.getFaceCount(lod) * Integer.bitCount(faceMask);
+                }
+                if (prepared) {
+                    afterDrawRenderable(mesh);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given MeshComponent's level of detail in the given probe's
+     * cube map. The cube map's faces have 90 degrees field of view, so the
+     * projection's scale is 1.
+     *
+     * @param probe         environment probe
+     * @param meshComponent MeshComponent
+     *
+     * @return the MeshComponent's level of detail
+     *
+     * @see Settings#getEnvironmentProbeLodBias()
+     */
+    private int computeLod(@NotNull DynamicEnvironmentProbe probe, @NotNull MeshComponent meshComponent) {
+        float distance = meshComponent.getGameObject().getTransform().getAbsolutePosition(position).distance(probe.getPosition());
+        float screenSize = Visibility.computeScreenSize(meshComponent.getRealFurthestVertexDistance(), distance, 1);
+        return meshComponent.computeLod(screenSize, Settings.getEnvironmentProbeLodBias());
+    }
+
+    /**
+     * Determines whether the given MeshComponent appears in the given probe's
+     * cube map.
+     *
+     * @param probe         environment probe
+     * @param meshComponent MeshComponent
+     *
+     * @return true if the MeshComponent appears in the cube map, false
+     *         otherwise
+     */
+    private boolean isReflected(@NotNull DynamicEnvironmentProbe probe, @NotNull MeshComponent meshComponent) {
+        return meshComponent.isActive() && meshComponent.isMeshActive()
+                && meshComponent.getRealFurthestVertexDistance() >= probe.getMinSize()
+                && meshComponent.getGameObject().getTransform().getAbsolutePosition().distance(probe.getPosition()) <= probe.getMaxDistance();
+    }
+
+    /**
+     * Returns the faces which frustum the given MeshComponent intersects. The
+     * i-th bit belongs to the i-th face.
+     *
+     * @param meshComponent MeshComponent
+     *
+     * @return the faces where the MeshComponent is visible
+     */
+    private int computeFaceMask(@NotNull MeshComponent meshComponent) {
+        Transform transform = meshComponent.getGameObject().getTransform();
+        boolean billboarding = transform.getBillboardingMode() != Transform.BillboardingMode.NO_BILLBOARDING;
+        if (!billboarding) {
+            meshComponent.getRealAabbMin(aabbMin);
+            meshComponent.getRealAabbMax(aabbMax);
+        }
+        int faceMask = 0;
+        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
+            boolean inside = billboarding
+                    ? faceFrustums[faceIndex].testSphere(transform.getAbsolutePosition(), meshComponent.getRealFurthestVertexDistance())
+                    : faceFrustums[faceIndex].testAab(aabbMin, aabbMax);
+            if (inside) {
+                faceMask |= 1 << faceIndex;
+            }
+        }
+        return faceMask;
+    }
+
     /**
      * Prepares the shader to the rendering.
      */
     private void beforeDrawShader() {
-        if (shader == null || !shader.isUsable()) {
-            shader = EnvironmentShader.getInstance();
-        }
         if (skyboxRenderer == null || !skyboxRenderer.isUsable()) {
             skyboxRenderer = SkyBoxRenderer.getInstance();
         }
-        shader.start();
-        shader.loadGlobalUniforms(DynamicEnvironmentProbe.getProjectionMatrix());
+        if (Settings.isLayeredEnvironmentProbeRendering()) {
+            if (layeredShader == null || !layeredShader.isUsable()) {
+                layeredShader = LayeredEnvironmentShader.getInstance();
+            }
+            shader = layeredShader;
+            layeredShader.start();
+            layeredShader.loadGlobalUniforms();
+        } else {
+            if (environmentShader == null || !environmentShader.isUsable()) {
+                environmentShader = EnvironmentShader.getInstance();
+            }
+            shader = environmentShader;
+            environmentShader.start();
+            environmentShader.loadGlobalUniforms(DynamicEnvironmentProbe.getProjectionMatrix());
+        }
         OpenGl.setFaceCulling(true);
 
 //        numberOfRenderedElements = 0;
@@ -146,9 +323,9 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
      */
     private void beforeDrawRenderable(@NotNull Renderable renderable) {
         renderable.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
+        OpenGl.getBackend().enableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(1);
+        OpenGl.getBackend().enableVertexAttribArray(2);
     }
 
     /**
@@ -157,9 +334,9 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
      * @param renderable Renderable
      */
     private void afterDrawRenderable(@NotNull Renderable renderable) {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
+        OpenGl.getBackend().disableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(1);
+        OpenGl.getBackend().disableVertexAttribArray(2);
         renderable.afterDraw();
     }
 
@@ -172,7 +349,7 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
 //        numberOfRenderedElements++;
 //        numberOfRenderedFaces += rc.getMesh().getFaceCount();
         Transform transform = rc.getGameObject().getTransform();
-        shader.loadObjectUniforms(transform.getModelMatrix(), new Matrix3f(transform.getInverseModelMatrix()));
+        shader.loadObjectUniforms(transform.getModelMatrix(modelMatrix), inverseModelMatrix3x3.set(transform.getInverseModelMatrix(inverseModelMatrix)));
         Material material = rc.getMaterial();
         shader.loadMaterial(material);
         if (!rc.isTwoSided()) {
@@ -184,7 +361,10 @@ public class EnvironmentMapRenderer extends PrepareRenderer {
 
     @Override
     public void release() {
-        shader.release();
+        environmentShader.release();
+        if (layeredShader != null) {
+            layeredShader.release();
+        }
     }
 
     @Override
@@ -15,12 +15,23 @@ import resources.*;
 import resources.meshes.*;
 import resources.shaders.*;
 import resources.splines.*;
-import resources.textures.texture2D.*;
 import toolbox.*;
 import toolbox.annotations.*;
 
 /**
- * Performs shadow map rendering.
+ * Performs shadow map rendering. The directional light's shadow cascades are
+ * rendered into one shadow map atlas, every cascade has its own viewport and
+ * its own shadow casters.
+ * <br>
+ * The static shadow casters are rendered into a separate shadow map atlas,
+ * and a cascade of this static layer is rendered again only if the cascade's
+ * projection view matrix or a static shadow caster changes. In every frame,
+ * the static layer is copied to the final shadow map and the dynamic shadow
+ * casters are rendered on top of it. If there isn't any visible dynamic
+ * shadow caster, the static layer is used directly as the shadow map.
+ *
+ * @see ShadowCascades
+ * @see MeshComponent#isStaticShadowCaster()
  */
 public class ShadowRenderer extends PrepareRenderer {
 
@@ -32,16 +43,72 @@ public class ShadowRenderer extends PrepareRenderer {
      * Shadow map's framebuffer object.
      */
     private Fbo fbo;
+    /**
+     * The static shadow casters' shadow map's framebuffer object.
+     */
+    private Fbo staticFbo;
+    /**
+     * The shadow cascades' projection view matrices when the static layer's
+     * cascades were rendered.
+     */
+    private final Matrix4f[] staticProjectionViewMatrices = new Matrix4f[ShadowCascades.MAX_NUMBER_OF_CASCADES];
+    /**
+     * The number of the rendered static shadow casters in the static layer's
+     * cascades.
+     */
+    private final int[] numberOfStaticShadowCasters = new int[ShadowCascades.MAX_NUMBER_OF_CASCADES];
+    /**
+     * The number of cascades in the static layer (0 if the static layer is
+     * invalid).
+     */
+    private int numberOfStaticCascades;
+    /**
+     * The static shadow casters' version when the static layer was rendered.
+     */
+    private int staticShadowCasterVersion;
+    /**
+     * Determines whether the dynamic shadow casters' rendering is started in
+     * the actual frame.
+     */
+    private boolean dynamicLayerStarted;
     /**
      * The only ShadowRenderer instance.
      */
     private static ShadowRenderer instance;
+    /**
+     * Performs the frustum intersection tests against the actual shadow
+     * cascade's frustum.
+     */
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    /**
+     * Reusable storage for the actual object's model matrix.
+     */
+    private final Matrix4f modelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual object's projection view model matrix.
+     */
+    private final Matrix4f projectionViewModelMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the shadow map atlas' size.
+     */
+    private final Vector2i atlasSize = new Vector2i();
+    /**
+     * Reusable storage for the actual shadow cascade's viewport size.
+     */
+    private final Vector2i cascadeSize = new Vector2i();
+    /**
+     * Reusable storage for the actual shadow cascade's viewport offset.
+     */
+    private final Vector2i cascadeOffset = new Vector2i();
 
     /**
      * Creates a new ShadowRenderer.
      * <p>
      */
     private ShadowRenderer() {
+        for (int i = 0; i < staticProjectionViewMatrices.length; i++) {
+            staticProjectionViewMatrices[i] = new Matrix4f();
+        }
         shader = ShadowShader.getInstance();
         refresh();
     }
@@ -63,10 +130,12 @@ public class ShadowRenderer extends PrepareRenderer {
      * Refreshes the FBO.
      *
      * @see Settings#getShadowMapResolution()
+     * @see Settings#getNumberOfShadowCascades()
      */
     private void refresh() {
         if (Settings.isShadowMapping() && isActive()) {
-            if (fbo == null || !fbo.isUsable() || Settings.getShadowMapResolution() != fbo.getSize().x) {
+            ShadowCascades.getAtlasSize(Settings.getShadowMapResolution(), Settings.getNumberOfShadowCascades(), atlasSize);
+            if (fbo == null || !fbo.isUsable() || staticFbo == null || !staticFbo.isUsable() || !atlasSize.equals(fbo.getSize())) {
                 releaseFbo();
                 generateFbo();
             }
@@ -92,52 +161,172 @@ public class ShadowRenderer extends PrepareRenderer {
         shader.start();
 
         DirectionalLightComponent light = (DirectionalLightComponent) Scene.getDirectionalLight();
-        Matrix4f projectionViewMatrix = light.getProjectionViewMatrix();
+        ShadowCascades cascades = light.getShadowCascades();
 
         List<Class<? extends GeometryRenderer>> renderers = new ArrayList<>();
         for (int j = 0; j < RenderingPipeline.getRenderingStageCount(); j++) {
             GeometryRenderingStage stage = RenderingPipeline.getRenderingStage(j);
             for (int i = 0; i < stage.getRendererCount(); i++) {
-                Class renderer = stage.getRenderer(i).getClass();
+                Class renderer = stage.getRenderer(i).getMaterialRenderer();
                 if (renderer != getClass()) {
                     renderers.add(renderer);
                 }
             }
         }
+        cascadeSize.set(cascades.getResolution());
+        renderStaticLayer(cascades, renderers);
+        dynamicLayerStarted = false;
+        for (int i = 0; i < cascades.getNumberOfCascades(); i++) {
+            renderCascade(cascades, i, renderers, false);
+        }
+        shader.stop();
+        afterShader();
+        Fbo shadowMap = dynamicLayerStarted ? fbo : staticFbo;
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP, shadowMap.getTextureAttachment(Fbo.FboAttachmentSlot.DEPTH, 0));
+    }
+
+    /**
+     * Renders again the static layer's cascades which projection view matrix
+     * changed since the last rendering. If a static shadow caster changed, it
+     * renders all the cascades.
+     *
+     * @param cascades  shadow cascades
+     * @param renderers the renderers of the shadow casters
+     */
+    private void renderStaticLayer(@NotNull ShadowCascades cascades, @NotNull List<Class<? extends GeometryRenderer>> renderers) {
+        boolean invalid = staticShadowCasterVersion != Scene.getStaticShadowCasterVersion()
+                || numberOfStaticCascades != cascades.getNumberOfCascades();
+        staticShadowCasterVersion = Scene.getStaticShadowCasterVersion();
+        numberOfStaticCascades = cascades.getNumberOfCascades();
+        boolean bound = false;
+        for (int i = 0; i < cascades.getNumberOfCascades(); i++) {
+            Matrix4f projectionViewMatrix = cascades.getProjectionViewMatrix(i);
+            if (invalid || !projectionViewMatrix.equals(staticProjectionViewMatrices[i])) {
+                if (!bound) {
+                    staticFbo.bind();
+                    bound = true;
+                }
+                cascades.getAtlasOffset(i, cascadeOffset);
+                OpenGl.setViewport(cascadeSize, cascadeOffset);
+                OpenGl.clear(false, true, false, cascadeSize, cascadeOffset);
+                numberOfStaticShadowCasters[i] = renderCascade(cascades, i, renderers, true);
+                staticProjectionViewMatrices[i].set(projectionViewMatrix);
+            }
+        }
+    }
+
+    /**
+     * Prepares the final shadow map to the dynamic shadow casters' rendering
+     * (if it isn't prepared yet in this frame) and sets the given cascade's
+     * viewport. The final shadow map starts as the copy of the static layer.
+     *
+     * @param cascades shadow cascades
+     * @param index    the cascade's index
+     */
+    private void beforeDrawDynamicShadowCasters(@NotNull ShadowCascades cascades, int index) {
+        if (!dynamicLayerStarted) {
+            dynamicLayerStarted = true;
+            if (isThereStaticShadowCaster()) {
+                staticFbo.resolveFbo(fbo, Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.TEXTURE, 0, 0);
+                fbo.bind();
+            } else {
+                fbo.bind();
+                OpenGl.clear(false, true, false);
+            }
+        }
+        OpenGl.setViewport(cascadeSize, cascades.getAtlasOffset(index, cascadeOffset));
+    }
+
+    /**
+     * Determines whether there is any static shadow caster in the static
+     * layer.
+     *
+     * @return true if there is any static shadow caster in the static layer,
+     *         false otherwise
+     */
+    private boolean isThereStaticShadowCaster() {
+        for (int i = 0; i < numberOfStaticCascades; i++) {
+            if (numberOfStaticShadowCasters[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders the static or the dynamic shadow casters inside the given shadow
+     * cascade's frustum. The MeshComponents come from the precomputed
+     * visibility, only the splines are culled here, and they are always
+     * dynamic shadow casters. The MeshComponents' levels of detail are
+     * selected by their size in the cascade, which doesn't depend on the
+     * camera, so the cached static shadows stay valid.
+     *
+     * @param cascades    shadow cascades
+     * @param index       the cascade's index
+     * @param renderers   the renderers of the shadow casters
+     * @param staticLayer true if it should render the static shadow casters,
+     *                    false if it should render the dynamic shadow casters
+     *
+     * @return the number of the rendered shadow casters
+     */
+    private int renderCascade(@NotNull ShadowCascades cascades, int index, @NotNull List<Class<? extends GeometryRenderer>> renderers, boolean staticLayer) {
+        Matrix4f projectionViewMatrix = cascades.getProjectionViewMatrix(index);
+        frustum.set(projectionViewMatrix);
+        MeshComponentGroups visibleMeshComponents = Visibility.getShadowCascadeView(index);
+        float cascadeScale = 2 / (cascades.getTexelSize(index) * cascades.getResolution());
+        int numberOfShadowCasters = 0;
         for (Class<? extends GeometryRenderer> renderer : renderers) {
             //meshes
-            for (Mesh mesh : Scene.getMeshes(renderer)) {
-                beforeDrawRenderable(mesh);
-                MeshComponent meshComponent;
-                for (int i = 0; i < Scene.getNumberOfMeshComponents(renderer, mesh); i++) {
-                    meshComponent = Scene.getMeshComponent(renderer, mesh, i);
-                    if (meshComponent.isActive() && meshComponent.isMeshActive() && meshComponent.isCastShadow() && isInsideFrustum(meshComponent)) {
-                        beforeDrawMeshInstance(meshComponent, projectionViewMatrix, meshComponent.getGameObject().getTransform().getModelMatrix());
-                        mesh.draw();
+            for (Mesh mesh : visibleMeshComponents.getMeshes(renderer)) {
+                boolean prepared = false;
+                for (MeshComponent meshComponent : visibleMeshComponents.getMeshComponents(renderer, mesh)) {
+                    if (meshComponent.isActive() && meshComponent.isMeshActive() && meshComponent.isCastShadow() && meshComponent.isStaticShadowCaster() == staticLayer) {
+                        if (!prepared) {
+                            if (!staticLayer) {
+                                beforeDrawDynamicShadowCasters(cascades, index);
+                            }
+                            beforeDrawRenderable(mesh);
+                            prepared = true;
+                        }
+                        beforeDrawMeshInstance(meshComponent, projectionViewMatrix, meshComponent.getGameObject().getTransform().getModelMatrix(modelMatrix));
+                        int lod = meshComponent.computeLod(meshComponent.getRealFurthestVertexDistance() * cascadeScale, Settings.getShadowLodBias());
+                        mesh.draw(lod);
                         numberOfRenderedElements++;
-                        numberOfRenderedFaces += mesh.getFaceCount();
+                        numberOfRenderedFaces += mesh.getFaceCount(lod);
+                        numberOfShadowCasters++;
                     }
                 }
-                afterDrawRenderable(mesh);
+                if (prepared) {
+                    afterDrawRenderable(mesh);
+                }
             }
             //splines
+            if (staticLayer) {
+                continue;
+            }
             for (Spline spline : Scene.getSplines(renderer)) {
-                beforeDrawRenderable(spline);
+                boolean prepared = false;
                 SplineComponent splineComponent;
                 for (int i = 0; i < Scene.getNumberOfSplineComponents(renderer, spline); i++) {
                     splineComponent = Scene.getSplineComponent(renderer, spline, i);
                     if (splineComponent.isActive() && splineComponent.isSplineActive() && splineComponent.isCastShadow() && isInsideFrustum(splineComponent)) {
-                        beforeDrawSplineInstance(projectionViewMatrix, splineComponent.getGameObject().getTransform().getModelMatrix());
+                        if (!prepared) {
+                            beforeDrawDynamicShadowCasters(cascades, index);
+                            beforeDrawRenderable(spline);
+                            prepared = true;
+                        }
+                        beforeDrawSplineInstance(projectionViewMatrix, splineComponent.getGameObject().getTransform().getModelMatrix(modelMatrix));
                         spline.draw();
                         numberOfRenderedElements++;
+                        numberOfShadowCasters++;
                     }
                 }
-                afterDrawRenderable(spline);
+                if (prepared) {
+                    afterDrawRenderable(spline);
+                }
             }
         }
-        shader.stop();
-        afterShader();
-        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP, fbo.getTextureAttachment(Fbo.FboAttachmentSlot.DEPTH, 0));
+        return numberOfShadowCasters;
     }
 
     /**
@@ -147,10 +336,7 @@ public class ShadowRenderer extends PrepareRenderer {
         if (shader == null || !shader.isUsable()) {
             shader = ShadowShader.getInstance();
         }
-        OpenGl.setViewport(fbo.getSize(), new Vector2i());
         OpenGl.setFaceCullingMode(OpenGl.FaceCullingMode.FRONT);
-        fbo.bind();
-        OpenGl.clear(false, true, false);
         numberOfRenderedElements = 0;
         numberOfRenderedFaces = 0;
     }
@@ -172,7 +358,7 @@ public class ShadowRenderer extends PrepareRenderer {
      */
     private void beforeDrawRenderable(@NotNull Renderable renderable) {
         renderable.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(0);
     }
 
     /**
@@ -181,7 +367,7 @@ public class ShadowRenderer extends PrepareRenderer {
      * @param renderable Renderable
      */
     private void afterDrawRenderable(@NotNull Renderable renderable) {
-        GL20.glDisableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(0);
         renderable.afterDraw();
     }
 
@@ -194,13 +380,7 @@ public class ShadowRenderer extends PrepareRenderer {
      */
     private void beforeDrawMeshInstance(MeshComponent meshComponent, @NotNull Matrix4f projectionViewMatrix, @NotNull Matrix4f modelMatrix) {
         loadProjectionViewModelMatrix(projectionViewMatrix, modelMatrix);
-        if (!meshComponent.isTwoSided()) {
-            OpenGl.setFaceCulling(true);
-            GL11.glEnable(GL11.GL_CULL_FACE);
-        } else {
-            OpenGl.setFaceCulling(true);
-            GL11.glDisable(GL11.GL_CULL_FACE);
-        }
+        OpenGl.setFaceCulling(!meshComponent.isTwoSided());
     }
 
     /**
@@ -220,75 +400,69 @@ public class ShadowRenderer extends PrepareRenderer {
      * @param modelMatrix          model matrix
      */
     private void loadProjectionViewModelMatrix(@NotNull Matrix4f projectionViewMatrix, @NotNull Matrix4f modelMatrix) {
-        Matrix4f projectionViewModelMatrix = new Matrix4f();
         projectionViewMatrix.mul(modelMatrix, projectionViewModelMatrix);
         shader.loadProjectionViewModelMatrix(projectionViewModelMatrix);
     }
 
     /**
-     * Generates a new FBO for shadowmap rendering.
+     * Generates the FBOs of the final shadow map and the static layer.
      */
     private void generateFbo() {
         if (fbo == null || !fbo.isUsable()) {
-            int size = Settings.getShadowMapResolution();
-            fbo = new Fbo(new Vector2i(size), false, 1, false);
-            fbo.bind();
-            fbo.addAttachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.TEXTURE, 0);
-            fbo.setActiveDraw(false, 0);
-            fbo.setActiveRead(false, 0);
-            if (!fbo.isComplete()) {
-                throw new RuntimeException("Incomplete FBO");
-            }
-            fbo.unbind();
+            fbo = createAtlasFbo();
+        }
+        if (staticFbo == null || !staticFbo.isUsable()) {
+            staticFbo = createAtlasFbo();
+            numberOfStaticCascades = 0;
         }
     }
 
     /**
-     * Determines whether the given mesh component is inside the directional
-     * light's view frustum.
-     *
-     * @param meshComponent mesh component
+     * Acquires an FBO for shadow map atlas rendering from the FboPool.
      *
-     * @return true if the mesh component is inside the directional light's view
-     *         frustum, false otherwise
+     * @return the FBO
      */
-    private boolean isInsideFrustum(@NotNull MeshComponent meshComponent) {
-        DirectionalLight light = Scene.getDirectionalLight();
-        Transform transform = meshComponent.getGameObject().getTransform();
-        if (transform.getBillboardingMode() == Transform.BillboardingMode.NO_BILLBOARDING) {
-            return light.isInsideFrustum(meshComponent.getRealAabbMin(), meshComponent.getRealAabbMax());
-        } else {
-            return light.isInsideFrustum(transform.getAbsolutePosition(), meshComponent.getRealFurthestVertexDistance());
-        }
+    @NotNull
+    private Fbo createAtlasFbo() {
+        return FboPool.acquire(new FboDescriptor(atlasSize, 1, false, false,
+                new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.TEXTURE, 0)));
     }
 
     /**
-     * Determines whether the given spline component is inside the directional
-     * light's view frustum.
+     * Determines whether the given spline component is inside the actual
+     * shadow cascade's view frustum.
      *
      * @param splineComponent spline component
      *
-     * @return true if the spline component is inside the directional light's
-     *         view frustum, false otherwise
+     * @return true if the spline component is inside the actual shadow
+     *         cascade's view frustum, false otherwise
      */
     private boolean isInsideFrustum(@NotNull SplineComponent splineComponent) {
-        DirectionalLight light = Scene.getDirectionalLight();
+        if (!Settings.isFrustumCulling()) {
+            return true;
+        }
         Transform transform = splineComponent.getGameObject().getTransform();
         if (transform.getBillboardingMode() == Transform.BillboardingMode.NO_BILLBOARDING) {
-            return light.isInsideFrustum(splineComponent.getRealAabbMin(), splineComponent.getRealAabbMax());
+            return frustum.testAab(splineComponent.getRealAabbMin(), splineComponent.getRealAabbMax());
         } else {
-            return light.isInsideFrustum(transform.getAbsolutePosition(), splineComponent.getRealFurthestVertexDistance());
+            return frustum.testSphere(transform.getAbsolutePosition(), splineComponent.getRealFurthestVertexDistance());
         }
     }
 
     /**
-     * Removes the FBO from the GPU's memory.
+     * Gives back the FBOs to the FboPool. The static layer's content is lost,
+     * so it has to be rendered again.
      */
     private void releaseFbo() {
         if (fbo != null) {
-            fbo.release();
+            FboPool.release(fbo);
             fbo = null;
         }
+        if (staticFbo != null) {
+            FboPool.release(staticFbo);
+            staticFbo = null;
+        }
+        numberOfStaticCascades = 0;
     }
 
     /**
@@ -316,19 +490,14 @@ public class ShadowRenderer extends PrepareRenderer {
 
     @Override
     public void removeFromRenderingPipeline() {
-        Texture2D shadowMap = RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP);
-        if (shadowMap != null) {
-            if (shadowMap.isUsable()) {
-                shadowMap.release();
-            }
-            RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP, null);
-        }
+        releaseFbo();
+        RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_SHADOWMAP, null);
     }
 
     @Override
     public String toString() {
         return super.toString() + "\nShadowRenderer{" + "shader=" + shader
-                + ", fbo=" + fbo + '}';
+                + ", fbo=" + fbo + ", staticFbo=" + staticFbo + '}';
     }
 
 }
@@ -52,10 +52,14 @@ public class SkyBoxRenderer extends Renderer {
     }
 
     /**
-     * Renders the scene.
+     * Renders the scene. If the scene doesn't have a sky box, it doesn't
+     * render anything.
      */
     @Override
     public void render() {
+        if (Scene.getSkybox() == null) {
+            return;
+        }
         beforeDrawShader();
 
         beforeDrawRenderable(box);
@@ -71,9 +75,6 @@ public class SkyBoxRenderer extends Renderer {
      * Prepares the shader to the rendering.
      */
     private void beforeDrawShader() {
-        if (Scene.getSkybox() == null) {
-            return;
-        }
         if (shader == null || !shader.isUsable()) {
             shader = SkyBoxShader.getInstance();
         }
@@ -91,7 +92,7 @@ public class SkyBoxRenderer extends Renderer {
      */
     private void beforeDrawRenderable(@NotNull Renderable renderable) {
         renderable.beforeDraw();
-        GL20.glEnableVertexAttribArray(0);
+        OpenGl.getBackend().enableVertexAttribArray(0);
     }
 
     /**
@@ -101,7 +102,7 @@ public class SkyBoxRenderer extends Renderer {
      * @param renderable Renderable
      */
     private void afterDrawRenderable(@NotNull Renderable renderable) {
-        GL20.glDisableVertexAttribArray(0);
+        OpenGl.getBackend().disableVertexAttribArray(0);
         renderable.afterDraw();
     }
 
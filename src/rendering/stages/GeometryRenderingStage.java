@@ -3,6 +3,7 @@ package rendering.stages;
 import java.util.*;
 import rendering.geometry.*;
 import toolbox.annotations.*;
+import toolbox.profiler.*;
 
 public class GeometryRenderingStage {
 
@@ -15,7 +16,9 @@ public class GeometryRenderingStage {
 
     public void render() {
         for (GeometryRenderer renderer : renderers) {
+            Profiler.begin(renderer);
             renderer.render();
+            Profiler.end();
         }
     }
 
@@ -1,19 +1,22 @@
 package rendering.stages;
 
+import core.*;
 import java.util.*;
 import rendering.*;
 import rendering.postProcessing.*;
 import resources.*;
-import resources.textures.*;
-import resources.textures.texture2D.*;
+import resources.shaders.postProcessing.*;
 import toolbox.*;
 import toolbox.annotations.*;
+import toolbox.profiler.*;
 
 public class PostProcessingRenderingStage {
 
     /**
      * FBO for resolving the multisampled textures and performing ping-pong
-     * rendering in the screen space stage.
+     * rendering in the screen space stage. It's a transient FBO of the
+     * RenderingPipeline's render graph, so it's available only during the
+     * post processing pass.
      */
     private Fbo postProcessingFbo;
     /**
@@ -31,33 +34,10 @@ public class PostProcessingRenderingStage {
      * render to.
      */
     private int draw = 1;
-
     /**
-     * Refreshes the FBOs if the MSAA level or the rendering size changed and
-     * the screen renderer if released.
+     * The effects of the actual fused pass.
      */
-    private void refresh() {
-        if (postProcessingFbo == null || !postProcessingFbo.isUsable() || !RenderingPipeline.getRenderingSize().equals(postProcessingFbo.getSize())) {
-            //screen space FBO
-            if (postProcessingFbo != null) {
-                postProcessingFbo.release();
-            }
-            postProcessingFbo = new Fbo(RenderingPipeline.getRenderingSize(), false, 1, true);
-            postProcessingFbo.bind();
-            postProcessingFbo.addAttachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0);
-            postProcessingFbo.addAttachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 1);
-            DynamicTexture2D texture = (DynamicTexture2D) postProcessingFbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 0);
-            texture.setFilter(Texture.TextureFilterType.MINIFICATION, Texture.TextureFilter.LINEAR);
-            texture.setFilter(Texture.TextureFilterType.MAGNIFICATION, Texture.TextureFilter.LINEAR);
-            texture = (DynamicTexture2D) postProcessingFbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 1);
-            texture.setFilter(Texture.TextureFilterType.MINIFICATION, Texture.TextureFilter.LINEAR);
-            texture.setFilter(Texture.TextureFilterType.MAGNIFICATION, Texture.TextureFilter.LINEAR);
-            if (!postProcessingFbo.isComplete()) {
-                Utility.logError(postProcessingFbo.getStatus().name());
-                throw new RuntimeException("Incomplete FBO");
-            }
-        }
-    }
+    private final List<FusedPostProcessingShader.Effect> fusedEffects = new ArrayList<>();
 
     /**
      * Binds the pipelin's FBO for rendering.
@@ -137,9 +117,7 @@ public class PostProcessingRenderingStage {
 
     public void release() {
         removePipeline(postProcessingRenderers);
-        if (postProcessingFbo != null) {
-            postProcessingFbo.release();
-        }
+        postProcessingFbo = null;
     }
 
     /**
@@ -152,9 +130,14 @@ public class PostProcessingRenderingStage {
 
     /**
      * Preperes for the rendering.
+     *
+     * @param geometryFbo       the FBO which contains the rendered scene
+     * @param postProcessingFbo the FBO for resolving the scene and performing
+     *                          the post processing effects (it must have two
+     *                          single sampled color texture attachments)
      */
-    public void beforeRender(Fbo geometryFbo) {
-        refresh();
+    public void beforeRender(@NotNull Fbo geometryFbo, @NotNull Fbo postProcessingFbo) {
+        this.postProcessingFbo = postProcessingFbo;
         geometryFbo.resolveFbo(postProcessingFbo, Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0, 0);
         RenderingPipeline.setTextureParameter(RenderingPipeline.TEXTURE_WORK, postProcessingFbo.getTextureAttachment(Fbo.FboAttachmentSlot.COLOR, 0));
         notDraw = 0;
@@ -165,16 +148,56 @@ public class PostProcessingRenderingStage {
     }
 
     /**
-     * Renders with the list of given renderers.
-     *
-     * @param stage list of renderers
+     * Renders with the list of given renderers. If the post processing pass
+     * fusion is enabled, the consecutive active per pixel effects are
+     * performed in one pass.
      */
     private void renderStage() {
-        for (PostProcessingRenderer renderer : postProcessingRenderers) {
-            if (renderer.isActive()) {
-                renderer.render();
-                swapFboAttachments();
+        for (int i = 0; i < postProcessingRenderers.size(); i++) {
+            PostProcessingRenderer renderer = postProcessingRenderers.get(i);
+            if (!renderer.isActive()) {
+                continue;
+            }
+            if (Settings.isPostProcessingPassFusion() && renderer.getFusibleEffect() != null) {
+                int last = collectFusibleEffects(i);
+                if (fusedEffects.size() > 1) {
+                    renderer = FusedPostProcessingRenderer.getInstance();
+                    ((FusedPostProcessingRenderer) renderer).setEffects(fusedEffects);
+                    i = last;
+                }
+            }
+            Profiler.begin(renderer);
+            renderer.render();
+            swapFboAttachments();
+            Profiler.end();
+        }
+    }
+
+    /**
+     * Collects the effects of the consecutive active per pixel renderers,
+     * starting from the given index. The inactive renderers are skipped, and
+     * the collection stops at the first active renderer which can't be
+     * fused.
+     *
+     * @param first the first renderer's index
+     *
+     * @return the last collected renderer's index
+     */
+    private int collectFusibleEffects(int first) {
+        fusedEffects.clear();
+        int last = first;
+        for (int i = first; i < postProcessingRenderers.size(); i++) {
+            PostProcessingRenderer renderer = postProcessingRenderers.get(i);
+            if (!renderer.isActive()) {
+                continue;
+            }
+            FusedPostProcessingShader.Effect effect = renderer.getFusibleEffect();
+            if (effect == null) {
+                break;
             }
+            fusedEffects.add(effect);
+            last = i;
         }
+        return last;
     }
 }
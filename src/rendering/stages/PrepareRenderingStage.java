@@ -3,6 +3,7 @@ package rendering.stages;
 import java.util.*;
 import rendering.prepare.*;
 import toolbox.annotations.*;
+import toolbox.profiler.*;
 
 public class PrepareRenderingStage {
 
@@ -15,7 +16,9 @@ public class PrepareRenderingStage {
 
     public void render() {
         for (PrepareRenderer renderer : renderers) {
+            Profiler.begin(renderer);
             renderer.render();
+            Profiler.end();
         }
     }
 
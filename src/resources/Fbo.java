@@ -5,9 +5,8 @@ import java.nio.*;
 import java.util.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
-import org.lwjgl.system.*;
-import static org.lwjgl.system.MemoryStack.stackPush;
 import resources.textures.texture2D.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -267,7 +266,7 @@ public class Fbo implements Resource {
             this.samples = 1;
         }
         activeRead = 0;
-        id = GL30.glGenFramebuffers();
+        id = OpenGl.getBackend().genFramebuffers();
         resourceId = new ResourceId();
         ResourceManager.addFbo(this);
     }
@@ -520,16 +519,20 @@ public class Fbo implements Resource {
         if (color[index].isThereAttachment()) {
             color[index].setActiveDraw(draw);
 
-            try (MemoryStack stack = stackPush()) {
-                IntBuffer result = stack.mallocInt(8);
-                for (AttachmentSlot slot : color) {
-                    if (slot.isThereAttachment() && slot.isActiveDraw()) {
-                        result.put(GL30.GL_COLOR_ATTACHMENT0 + slot.getIndex());
-                    }
+            int count = 0;
+            for (AttachmentSlot slot : color) {
+                if (slot.isThereAttachment() && slot.isActiveDraw()) {
+                    count++;
                 }
-                result.flip();
-                GL20.glDrawBuffers(result);
             }
+            int[] result = new int[count];
+            count = 0;
+            for (AttachmentSlot slot : color) {
+                if (slot.isThereAttachment() && slot.isActiveDraw()) {
+                    result[count++] = GL30.GL_COLOR_ATTACHMENT0 + slot.getIndex();
+                }
+            }
+            OpenGl.getBackend().drawBuffers(result);
         }
     }
 
@@ -569,10 +572,10 @@ public class Fbo implements Resource {
         if (color[index].isThereAttachment()) {
             if (read) {
                 activeRead = index;
-                GL11.glReadBuffer(GL30.GL_COLOR_ATTACHMENT0 + index);
+                OpenGl.getBackend().readBuffer(GL30.GL_COLOR_ATTACHMENT0 + index);
             } else {
                 if (activeRead == index) {
-                    GL11.glReadBuffer(GL11.GL_NONE);
+                    OpenGl.getBackend().readBuffer(GL11.GL_NONE);
                 }
             }
         }
@@ -610,7 +613,7 @@ public class Fbo implements Resource {
     @Bind
     @NotNull
     public FboCompleteness getStatus() {
-        int code = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        int code = OpenGl.getBackend().checkFramebufferStatus(GL30.GL_FRAMEBUFFER);
         for (FboCompleteness fbc : FboCompleteness.values()) {
             if (code == fbc.getCode()) {
                 return fbc;
@@ -633,28 +636,28 @@ public class Fbo implements Resource {
      * Binds this FBO for both reading and drawing.
      */
     public void bind() {
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, id);
+        OpenGl.getBackend().bindFramebuffer(GL30.GL_FRAMEBUFFER, id);
     }
 
     /**
      * Binds this FBO for reading.
      */
     public void bindRead() {
-        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, id);
+        OpenGl.getBackend().bindFramebuffer(GL30.GL_READ_FRAMEBUFFER, id);
     }
 
     /**
      * Binds this FBO for drawing.
      */
     public void bindDraw() {
-        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, id);
+        OpenGl.getBackend().bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, id);
     }
 
     /**
      * Unbinds this FBO (binds the default framebuffer).
      */
     public void unbind() {
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        OpenGl.getBackend().bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
     }
 
     /**
@@ -737,18 +740,18 @@ public class Fbo implements Resource {
                 setActiveRead(true, fromIndex);
                 boolean draw = toResolve.isActiveDraw(toIndex);
                 toResolve.setActiveDraw(true, toIndex);
-                GL30.glBlitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_COLOR_BUFFER_BIT, GL11.GL_NEAREST);
+                OpenGl.getBackend().blitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_COLOR_BUFFER_BIT, GL11.GL_NEAREST);
                 toResolve.setActiveDraw(draw, toIndex);
                 setActiveRead(true, read);
                 break;
             case DEPTH:
-                GL30.glBlitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_DEPTH_BUFFER_BIT, GL11.GL_NEAREST);
+                OpenGl.getBackend().blitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_DEPTH_BUFFER_BIT, GL11.GL_NEAREST);
                 break;
             case STENCIL:
-                GL30.glBlitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_STENCIL_BUFFER_BIT, GL11.GL_NEAREST);
+                OpenGl.getBackend().blitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_STENCIL_BUFFER_BIT, GL11.GL_NEAREST);
                 break;
             case DEPTH_STENCIL:
-                GL30.glBlitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_DEPTH_BUFFER_BIT | GL11.GL_STENCIL_BUFFER_BIT, GL11.GL_NEAREST);
+                OpenGl.getBackend().blitFramebuffer(0, 0, size.x, size.y, 0, 0, size.x, size.y, GL11.GL_DEPTH_BUFFER_BIT | GL11.GL_STENCIL_BUFFER_BIT, GL11.GL_NEAREST);
                 break;
         }
     }
@@ -799,7 +802,7 @@ public class Fbo implements Resource {
         depth.removeAttachment();
         stencil.removeAttachment();
         depthStencil.removeAttachment();
-        GL30.glDeleteFramebuffers(id);
+        OpenGl.getBackend().deleteFramebuffers(id);
         id = -1;
     }
 
@@ -820,7 +823,7 @@ public class Fbo implements Resource {
         stencil.removeRbo();
         depthStencil.detachTexture();
         depthStencil.removeRbo();
-        GL30.glDeleteFramebuffers(id);
+        OpenGl.getBackend().deleteFramebuffers(id);
         id = -1;
     }
 
@@ -956,19 +959,19 @@ public class Fbo implements Resource {
             if (type == FboAttachmentType.TEXTURE) {
                 texture = new DynamicTexture2D(slot, size, floatingPoint, multisampled, Settings.getMsaaLevel(), null);
                 if (multisampled) {
-                    GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL32.GL_TEXTURE_2D_MULTISAMPLE, texture.getId(), 0);
+                    OpenGl.getBackend().framebufferTexture2D(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL32.GL_TEXTURE_2D_MULTISAMPLE, texture.getId(), 0);
                 } else {
-                    GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL11.GL_TEXTURE_2D, texture.getId(), 0);
+                    OpenGl.getBackend().framebufferTexture2D(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL11.GL_TEXTURE_2D, texture.getId(), 0);
                 }
             } else {
-                rbo = GL30.glGenRenderbuffers();
-                GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, rbo);
+                rbo = OpenGl.getBackend().genRenderbuffers();
+                OpenGl.getBackend().bindRenderbuffer(GL30.GL_RENDERBUFFER, rbo);
                 if (multisampled) {
-                    GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, Settings.getMsaaLevel(), slot.getInternalFormat(floatingPoint), size.x, size.y);
+                    OpenGl.getBackend().renderbufferStorageMultisample(GL30.GL_RENDERBUFFER, Settings.getMsaaLevel(), slot.getInternalFormat(floatingPoint), size.x, size.y);
                 } else {
-                    GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, slot.getInternalFormat(floatingPoint), size.x, size.y);
+                    OpenGl.getBackend().renderbufferStorage(GL30.GL_RENDERBUFFER, slot.getInternalFormat(floatingPoint), size.x, size.y);
                 }
-                GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL30.GL_RENDERBUFFER, rbo);
+                OpenGl.getBackend().framebufferRenderbuffer(GL30.GL_FRAMEBUFFER, slot.getAttachmet() + index, GL30.GL_RENDERBUFFER, rbo);
             }
             return true;
         }
@@ -1035,7 +1038,7 @@ public class Fbo implements Resource {
          */
         public void removeRbo() {
             if (isThereAttachment(FboAttachmentType.RBO)) {
-                GL30.glDeleteRenderbuffers(rbo);
+                OpenGl.getBackend().deleteRenderbuffers(rbo);
                 rbo = -1;
             }
         }
@@ -0,0 +1,71 @@
+package resources;
+
+import resources.ResourceManager.ResourceState;
+import toolbox.annotations.*;
+
+/**
+ * Resource which can be loaded from file and can be moved between the HDD, the
+ * RAM and the ACTION. The ResourceManager uses these methods to keep the
+ * resources' memory usage below the specified budgets.
+ *
+ * @see ResourceManager#getVramBudget()
+ * @see ResourceManager#getRamBudget()
+ */
+public interface LoadableResource extends Resource {
+
+    /**
+     * Returns the resource's state. It determines where the resource is
+     * currently stored.
+     *
+     * @return the resource's state
+     */
+    @NotNull
+    public ResourceState getState();
+
+    /**
+     * Returns the resource's data store policy. ACTION means that the
+     * resource's data is pinned, it can't be removed from ACTION. RAM means
+     * that the resource's data may be removed from ACTION to RAM. HDD means
+     * that the resource's data may be removed from ACTION or even from RAM.
+     * By default the resources are pinned, you can opt into the eviction by
+     * changing the data store policy.
+     *
+     * @return the resource's data store policy
+     */
+    @NotNull
+    public ResourceState getDataStorePolicy();
+
+    /**
+     * Returns the time when the resource last time used.
+     *
+     * @return the time when the resource last time used (in miliseconds)
+     */
+    public long getLastActive();
+
+    /**
+     * Returns the ResourceManager's frame in which the resource last time
+     * used. The ResourceManager doesn't evict resources which used in the last
+     * few frames.
+     *
+     * @return the frame in which the resource last time used
+     *
+     * @see ResourceManager#getFrame()
+     * @see ResourceManager#getProtectedFrames()
+     */
+    public long getLastActiveFrame();
+
+    /**
+     * Removes the resource's data from ACTION, but keeps it in the RAM. It
+     * doesn't do anything if the resource isn't in ACTION or the data store
+     * policy is ACTION.
+     */
+    public void unloadFromAction();
+
+    /**
+     * Removes the resource's data from ACTION and from the RAM. It doesn't do
+     * anything if the resource is already on the HDD or the data store policy
+     * isn't HDD.
+     */
+    public void unloadFromRam();
+
+}
@@ -12,10 +12,11 @@ public class LoadableResourceMetaData {
 
     /**
      * The resource's data store policy. ACTION means that the resource's data
-     * will be stored in VRAM the VRAM or in the sound system, ready to use. RAM
-     * means that the resource's data may be removed from ACTION to RAM if it's
-     * rarely used. HDD means that the resource's data may be removed from
-     * ACTION or even from RAM if it's rarely used.
+     * is pinned in the VRAM or in the sound system, ready to use. RAM means
+     * that the resource's data may be removed from ACTION to RAM if it's rarely
+     * used or if the VRAM budget is exceeded. HDD means that the resource's
+     * data may be removed from ACTION or even from RAM if it's rarely used or
+     * if the budgets are exceeded.
      */
     protected ResourceState dataStorePolicy;
     /**
@@ -30,6 +31,10 @@ public class LoadableResourceMetaData {
      * Time in miliseconds when the resource last time used.
      */
     private long lastActive;
+    /**
+     * The ResourceManager's frame in which the resource last time used.
+     */
+    private long lastActiveFrame = -1;
     /**
      * If the elapsed time since this resource's last use is higher than this
      * value and the resource's data store policy is RAM or HDD, the resource's
@@ -98,10 +103,11 @@ public class LoadableResourceMetaData {
 
     /**
      * Returns the resource's data store policy. ACTION means that the
-     * resource's data will be stored in VRAM or in the sound system, ready to
+     * resource's data is pinned in the VRAM or in the sound system, ready to
      * use. RAM means that the resource's data may be removed from ACTION to RAM
-     * if it's rarely used. HDD means that the resource's data may be removed
-     * from ACTION or even from RAM if it's rarely used.
+     * if it's rarely used or if the VRAM budget is exceeded. HDD means that the
+     * resource's data may be removed from ACTION or even from RAM if it's
+     * rarely used or if the budgets are exceeded.
      *
      * @return the resource's data store policy
      */
@@ -213,10 +219,23 @@ public class LoadableResourceMetaData {
     }
 
     /**
-     * Sets the resource's last activation time to now.
+     * Returns the ResourceManager's frame in which the resource last time
+     * used.
+     *
+     * @return the frame in which the resource last time used
+     *
+     * @see ResourceManager#getFrame()
+     */
+    public long getLastActiveFrame() {
+        return lastActiveFrame;
+    }
+
+    /**
+     * Sets the resource's last activation time and frame to now.
      */
     public void setLastActiveToNow() {
         lastActive = System.currentTimeMillis();
+        lastActiveFrame = ResourceManager.getFrame();
     }
 
     @Override
@@ -226,6 +245,7 @@ public class LoadableResourceMetaData {
         hash = 53 * hash + Objects.hashCode(this.state);
         hash = 53 * hash + Objects.hashCode(this.paths);
         hash = 53 * hash + (int) (this.lastActive ^ (this.lastActive >>> 32));
+        hash = 53 * hash + (int) (this.lastActiveFrame ^ (this.lastActiveFrame >>> 32));
         hash = 53 * hash + (int) (this.vramTimeLimit ^ (this.vramTimeLimit >>> 32));
         hash = 53 * hash + (int) (this.ramTimeLimit ^ (this.ramTimeLimit >>> 32));
         hash = 53 * hash + this.dataSize;
@@ -247,6 +267,9 @@ public class LoadableResourceMetaData {
         if (this.lastActive != other.lastActive) {
             return false;
         }
+        if (this.lastActiveFrame != other.lastActiveFrame) {
+            return false;
+        }
         if (this.vramTimeLimit != other.vramTimeLimit) {
             return false;
         }
@@ -272,6 +295,7 @@ public class LoadableResourceMetaData {
     public String toString() {
         return "LoadableResourceMetaData{" + "dataStorePolicy=" + dataStorePolicy
                 + ", state=" + state + ", path=" + paths + ", lastActive=" + lastActive
+                + ", lastActiveFrame=" + lastActiveFrame
                 + ", vramTimeLimit=" + vramTimeLimit + ", ramTimeLimit=" + ramTimeLimit
                 + ", dataSize=" + dataSize + '}';
     }
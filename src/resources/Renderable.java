@@ -36,6 +36,16 @@ public interface Renderable extends Resource {
      */
     public Vector3f getAabbMin();
 
+    /**
+     * Stores the axis alligned bounding box's minimum x, y and z values in the
+     * given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    public Vector3f getAabbMin(Vector3f dest);
+
     /**
      * Returns the axis alligned bounding box's maximum x, y and z values.
      *
@@ -43,6 +53,16 @@ public interface Renderable extends Resource {
      */
     public Vector3f getAabbMax();
 
+    /**
+     * Stores the axis alligned bounding box's maximum x, y and z values in the
+     * given vector.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    public Vector3f getAabbMax(Vector3f dest);
+
     /**
      * Operations before draw, like binding the VAO.
      */
@@ -0,0 +1,223 @@
+package resources;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import toolbox.annotations.*;
+
+/**
+ * Loads resources in the background. The slow part of the loading (reading the
+ * file and decoding it's content) runs on the loader threads, while the upload
+ * (which usually needs the OpenGL context) runs on the thread which calls the
+ * processUploads method (the GameLoop calls it in every frame). The uploads
+ * are limited by a per frame time budget, so loading many resources at once
+ * doesn't cause long frames.
+ * <br>
+ * Note that the decoders shouldn't change any shared state, they should only
+ * produce the data which the uploader can use.
+ *
+ * @see #processUploads()
+ */
+public class ResourceLoader {
+
+    /**
+     * The loader threads.
+     */
+    private static ExecutorService executor;
+    /**
+     * The number of the loader threads.
+     */
+    private static int numberOfThreads = java.lang.Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    /**
+     * The uploads waiting for the processUploads method.
+     */
+    private static final Queue<Upload> uploads = new ConcurrentLinkedQueue<>();
+    /**
+     * The maximum time in a frame spent by uploading the decoded resources (in
+     * miliseconds).
+     */
+    private static float uploadTimeBudget = 2;
+
+    /**
+     * An upload waiting for the processUploads method.
+     */
+    private static class Upload {
+
+        /**
+         * Creates the resource and completes the future.
+         */
+        private final Runnable task;
+        /**
+         * The future resource.
+         */
+        private final CompletableFuture<?> future;
+
+        /**
+         * Initializes a new Upload to the given values.
+         *
+         * @param task   creates the resource and completes the future
+         * @param future the future resource
+         */
+        public Upload(@NotNull Runnable task, @NotNull CompletableFuture<?> future) {
+            this.task = task;
+            this.future = future;
+        }
+    }
+
+    /**
+     * To can't create ResourceLoader instance.
+     */
+    private ResourceLoader() {
+    }
+
+    /**
+     * Loads a resource in the background. The decoder runs on a loader thread
+     * and the uploader runs on the thread which calls the processUploads
+     * method. The returned future also completes on that thread (even if the
+     * decoder or the uploader throws an exception, in that case the future
+     * completes exceptionally), so the callbacks registered to it can use the
+     * OpenGL context.
+     *
+     * @param <D>      the decoded data's type
+     * @param <T>      the resource's type
+     * @param decoder  reads and decodes the resource's data
+     * @param uploader creates the resource from the decoded data
+     *
+     * @return the future resource
+     *
+     * @throws NullPointerException the parameters can't be null
+     */
+    @NotNull
+    public static <D, T> CompletableFuture<T> load(@NotNull Supplier<D> decoder, @NotNull Function<D, T> uploader) {
+        if (decoder == null || uploader == null) {
+            throw new NullPointerException();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(decoder, getExecutor()).whenComplete((data, exception) -> {
+            uploads.add(new Upload(() -> {
+                if (exception != null) {
+                    result.completeExceptionally(exception instanceof CompletionException ? exception.getCause() : exception);
+                    return;
+                }
+                try {
+                    result.complete(uploader.apply(data));
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            }, result));
+        });
+        return result;
+    }
+
+    /**
+     * Runs the waiting uploads until the upload time budget is exceeded. At
+     * least one upload runs in every call (if there is any), so the loading
+     * can't stall. You should call it from the thread which owns the OpenGL
+     * context, the GameLoop calls it in every frame.
+     *
+     * @return the number of the executed uploads
+     *
+     * @see #getUploadTimeBudget()
+     */
+    public static int processUploads() {
+        long start = System.nanoTime();
+        long budget = (long) (uploadTimeBudget * 1000000);
+        int count = 0;
+        Upload upload;
+        while ((count == 0 || System.nanoTime() - start < budget) && (upload = uploads.poll()) != null) {
+            upload.task.run();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the uploads waiting for the processUploads method.
+     *
+     * @return the number of the waiting uploads
+     */
+    public static int getNumberOfWaitingUploads() {
+        return uploads.size();
+    }
+
+    /**
+     * Returns the maximum time in a frame spent by uploading the decoded
+     * resources.
+     *
+     * @return the upload time budget (in miliseconds)
+     */
+    public static float getUploadTimeBudget() {
+        return uploadTimeBudget;
+    }
+
+    /**
+     * Sets the maximum time in a frame spent by uploading the decoded
+     * resources to the given value.
+     *
+     * @param uploadTimeBudget upload time budget (in miliseconds)
+     *
+     * @throws IllegalArgumentException upload time budget can't be negative
+     */
+    public static void setUploadTimeBudget(float uploadTimeBudget) {
+        if (uploadTimeBudget < 0) {
+            throw new IllegalArgumentException("Upload time budget can't be negative");
+        }
+        ResourceLoader.uploadTimeBudget = uploadTimeBudget;
+    }
+
+    /**
+     * Returns the number of the loader threads.
+     *
+     * @return the number of the loader threads
+     */
+    public static int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * Sets the number of the loader threads to the given value. It only
+     * affects the loader threads created after the next release.
+     *
+     * @param numberOfThreads number of the loader threads
+     *
+     * @throws IllegalArgumentException number of threads have to be positive
+     */
+    public static void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads have to be positive");
+        }
+        ResourceLoader.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Returns the loader threads. If they don't exist, it creates them.
+     *
+     * @return the loader threads
+     */
+    @NotNull
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+                Thread thread = new Thread(runnable, "Resource loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the loader threads and cancels the waiting uploads.
+     */
+    public static synchronized void release() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        Upload upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.future.cancel(false);
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import resources.shaders.*;
 import resources.splines.*;
 import resources.textures.*;
 import toolbox.annotations.*;
+import toolbox.profiler.*;
 import window.*;
 
 /**
@@ -39,6 +40,23 @@ public class ResourceManager {
         HDD
     }
 
+    /**
+     * Determines the order of the resources' eviction when the memory usage
+     * exceeds the budget.
+     */
+    public enum EvictionPolicy {
+        /**
+         * The least recently used resources are evicted first.
+         */
+        LRU,
+        /**
+         * The resources are evicted in the order of their idle time multiplied
+         * by their data size, so the large, rarely used resources are evicted
+         * first.
+         */
+        WEIGHTED_LRU
+    }
+
     /**
      * Contains all the textures.
      */
@@ -59,6 +77,10 @@ public class ResourceManager {
      * Contains all the UBOs.
      */
     private static final Map<ResourceId, Ubo> ubos = new HashMap<>();
+    /**
+     * Contains all the buffer textures.
+     */
+    private static final Map<ResourceId, TextureBuffer> textureBuffers = new HashMap<>();
     /**
      * Contains all the VAOs.
      */
@@ -83,6 +105,38 @@ public class ResourceManager {
      * Resources' update time period (in miliseconds).
      */
     private static long resourceUpdatePeriod = 5000;
+    /**
+     * The maximum data size stored in the VRAM by the textures and the meshes
+     * (in bytes).
+     */
+    private static long vramBudget = Long.MAX_VALUE;
+    /**
+     * The maximum data size stored in the RAM by the textures, the meshes and
+     * the audio buffers (in bytes).
+     */
+    private static long ramBudget = Long.MAX_VALUE;
+    /**
+     * Determines the order of the resources' eviction.
+     */
+    private static EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+    /**
+     * The number of the resource updates (frames) since the program started.
+     */
+    private static long frame;
+    /**
+     * The resources used in this many previous frames (or in the current
+     * frame) are never evicted.
+     */
+    private static int protectedFrames = 2;
+    /**
+     * The textures and the meshes which may be evicted from the VRAM.
+     */
+    private static final List<LoadableResource> vramResources = new ArrayList<>();
+    /**
+     * The textures, the meshes and the audio buffers which may be evicted from
+     * the RAM.
+     */
+    private static final List<LoadableResource> ramResources = new ArrayList<>();
 
     /**
      * To can't initialize a new ResourceManager.
@@ -94,16 +148,37 @@ public class ResourceManager {
     //update--------------------------------------------------------------------
     //
     /**
-     * Updates all the resources.
+     * Updates all the resources. If the textures and the meshes use more VRAM
+     * than the VRAM budget, or the textures, the meshes and the audio buffers
+     * use more RAM than the RAM budget, it evicts resources (in the order
+     * determined by the eviction policy) until the memory usage gets below the
+     * budget. Resources with ACTION data store policy are never evicted from
+     * the VRAM, and resources with RAM or ACTION data store policy are never
+     * evicted from the RAM, so you can pin the important resources by setting
+     * their data store policy. By default the textures, the meshes and the
+     * audio buffers are pinned, so the budgets only apply to the resources
+     * which opted into the eviction. The resources used in the last few frames
+     * are never evicted by the budgets, so the resources needed by the current
+     * frame don't get reloaded again and again. Independently of the budgets,
+     * the unpinned resources are still evicted if they weren't used for longer
+     * than their time limits. You should call this method once per frame.
+     *
+     * @see #getVramBudget()
+     * @see #getRamBudget()
+     * @see #getEvictionPolicy()
+     * @see #getProtectedFrames()
      */
     public static void updateResources() {
         long currentTime = System.currentTimeMillis();
+        frame++;
+        enforceBudgets(currentTime);
         if (currentTime - lastUpdateTime > resourceUpdatePeriod) {
             updateResourceMap(meshes);
             updateResourceMap(textures);
             updateResourceMap(splines);
             updateResourceMap(fbos);
             updateResourceMap(ubos);
+            updateResourceMap(textureBuffers);
             updateResourceMap(vaos);
             updateResourceMap(shaders);
             updateResourceMap(audioBuffers);
@@ -138,6 +213,276 @@ public class ResourceManager {
         }
     }
 
+    /**
+     * Evicts resources until the memory usage gets below the budgets.
+     *
+     * @param currentTime the current time (in miliseconds)
+     */
+    private static void enforceBudgets(long currentTime) {
+        vramResources.clear();
+        ramResources.clear();
+        for (Texture texture : textures.values()) {
+            addLoadableResource(texture, true);
+        }
+        for (Mesh mesh : meshes.values()) {
+            addLoadableResource(mesh, true);
+        }
+        for (AudioBuffer audioBuffer : audioBuffers.values()) {
+            addLoadableResource(audioBuffer, false);
+        }
+        long firstProtectedFrame = frame - protectedFrames;
+        evict(vramResources, vramBudget, true, evictionPolicy, currentTime, firstProtectedFrame);
+        evict(ramResources, ramBudget, false, evictionPolicy, currentTime, firstProtectedFrame);
+        vramResources.clear();
+        ramResources.clear();
+    }
+
+    /**
+     * Adds the given resource to the eviction candidates if it's a usable
+     * LoadableResource.
+     *
+     * @param resource resource
+     * @param vram     true if the resource's ACTION data is stored in the VRAM
+     */
+    private static void addLoadableResource(@NotNull Resource resource, boolean vram) {
+        if (resource.isUsable() && resource instanceof LoadableResource) {
+            LoadableResource loadableResource = (LoadableResource) resource;
+            if (vram) {
+                vramResources.add(loadableResource);
+            }
+            ramResources.add(loadableResource);
+        }
+    }
+
+    /**
+     * Evicts the given resources (in the order determined by the eviction
+     * policy) from ACTION or from the RAM until their data size gets below the
+     * budget. The pinned resources and the resources used since the first
+     * protected frame are skipped. If evicting all the other resources can't
+     * get the data size below the budget, they're evicted without sorting.
+     * Note that it may change the order of the given list.
+     *
+     * @param resources           resources
+     * @param budget              the maximum data size (in bytes)
+     * @param fromAction          true if the resources should be evicted from
+     *                            ACTION, false if they should be evicted from
+     *                            the RAM
+     * @param policy              eviction policy
+     * @param currentTime         the current time (in miliseconds)
+     * @param firstProtectedFrame the resources used in this frame or later
+     *                            aren't evicted
+     *
+     * @return the data size after the eviction (in bytes)
+     */
+    static long evict(@NotNull List<LoadableResource> resources, long budget, boolean fromAction, @NotNull EvictionPolicy policy, long currentTime, long firstProtectedFrame) {
+        long dataSize = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            dataSize += getDataSize(resources.get(i), fromAction);
+        }
+        if (dataSize <= budget) {
+            return dataSize;
+        }
+        int candidates = 0;
+        long evictableSize = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            LoadableResource resource = resources.get(i);
+            if (isEvictable(resource, fromAction, firstProtectedFrame)) {
+                evictableSize += getDataSize(resource, fromAction);
+                Collections.swap(resources, i, candidates++);
+            }
+        }
+        if (evictableSize == 0) {
+            return dataSize;
+        }
+        List<LoadableResource> evictable = resources.subList(0, candidates);
+        if (dataSize - evictableSize < budget) {
+            if (policy == EvictionPolicy.LRU) {
+                evictable.sort((a, b) -> Long.compare(a.getLastActive(), b.getLastActive()));
+            } else {
+                evictable.sort((a, b) -> Double.compare(
+                        getEvictionWeight(b, fromAction, currentTime),
+                        getEvictionWeight(a, fromAction, currentTime)));
+            }
+        }
+        for (int i = 0; i < evictable.size() && dataSize > budget; i++) {
+            LoadableResource resource = evictable.get(i);
+            long size = getDataSize(resource, fromAction);
+            if (fromAction) {
+                resource.unloadFromAction();
+            } else {
+                resource.unloadFromRam();
+            }
+            dataSize -= size - getDataSize(resource, fromAction);
+        }
+        return dataSize;
+    }
+
+    /**
+     * Determines whether the given resource can be evicted. It can't be evicted
+     * if it's data store policy pins it, if it doesn't store any data in the
+     * specified place or if it was used since the first protected frame.
+     *
+     * @param resource            resource
+     * @param fromAction          true if the resource should be evicted from
+     *                            ACTION, false if it should be evicted from the
+     *                            RAM
+     * @param firstProtectedFrame the resources used in this frame or later
+     *                            aren't evicted
+     *
+     * @return true if the resource can be evicted, false otherwise
+     */
+    private static boolean isEvictable(@NotNull LoadableResource resource, boolean fromAction, long firstProtectedFrame) {
+        ResourceState policy = resource.getDataStorePolicy();
+        if (policy == ResourceState.ACTION || !fromAction && policy == ResourceState.RAM) {
+            return false;
+        }
+        return getDataSize(resource, fromAction) > 0 && resource.getLastActiveFrame() < firstProtectedFrame;
+    }
+
+    /**
+     * Returns the given resource's data size in ACTION or in the RAM.
+     *
+     * @param resource   resource
+     * @param fromAction true if you want to get the data size in ACTION, false
+     *                   if you want to get the data size in the RAM
+     *
+     * @return the resource's data size (in bytes)
+     */
+    private static long getDataSize(@NotNull LoadableResource resource, boolean fromAction) {
+        return fromAction ? resource.getDataSizeInAction() : resource.getDataSizeInRam();
+    }
+
+    /**
+     * Returns the given resource's eviction weight. The resource with the
+     * highest weight is evicted first.
+     *
+     * @param resource    resource
+     * @param fromAction  true if the resource should be evicted from ACTION,
+     *                    false if it should be evicted from the RAM
+     * @param currentTime the current time (in miliseconds)
+     *
+     * @return the resource's eviction weight
+     */
+    private static double getEvictionWeight(@NotNull LoadableResource resource, boolean fromAction, long currentTime) {
+        long idleTime = java.lang.Math.max(0, currentTime - resource.getLastActive()) + 1;
+        return (double) idleTime * getDataSize(resource, fromAction);
+    }
+
+    /**
+     * Returns the maximum data size stored in the VRAM by the textures and the
+     * meshes. By default it's unlimited.
+     *
+     * @return the VRAM budget (in bytes)
+     */
+    public static long getVramBudget() {
+        return vramBudget;
+    }
+
+    /**
+     * Sets the maximum data size stored in the VRAM by the textures and the
+     * meshes to the given value. Note that the pinned resources (with ACTION
+     * data store policy) may exceed this budget.
+     *
+     * @param vramBudget VRAM budget (in bytes)
+     *
+     * @throws IllegalArgumentException VRAM budget can't be negative
+     */
+    public static void setVramBudget(long vramBudget) {
+        if (vramBudget < 0) {
+            throw new IllegalArgumentException("VRAM budget can't be negative");
+        }
+        ResourceManager.vramBudget = vramBudget;
+    }
+
+    /**
+     * Returns the maximum data size stored in the RAM by the textures, the
+     * meshes and the audio buffers. By default it's unlimited.
+     *
+     * @return the RAM budget (in bytes)
+     */
+    public static long getRamBudget() {
+        return ramBudget;
+    }
+
+    /**
+     * Sets the maximum data size stored in the RAM by the textures, the meshes
+     * and the audio buffers to the given value. Note that the pinned resources
+     * (with RAM or ACTION data store policy) may exceed this budget.
+     *
+     * @param ramBudget RAM budget (in bytes)
+     *
+     * @throws IllegalArgumentException RAM budget can't be negative
+     */
+    public static void setRamBudget(long ramBudget) {
+        if (ramBudget < 0) {
+            throw new IllegalArgumentException("RAM budget can't be negative");
+        }
+        ResourceManager.ramBudget = ramBudget;
+    }
+
+    /**
+     * Returns the eviction policy which determines the order of the resources'
+     * eviction when the memory usage exceeds the budget.
+     *
+     * @return the eviction policy
+     */
+    @NotNull
+    public static EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * Sets the eviction policy to the given value.
+     *
+     * @param evictionPolicy eviction policy
+     *
+     * @throws NullPointerException eviction policy can't be null
+     */
+    public static void setEvictionPolicy(@NotNull EvictionPolicy evictionPolicy) {
+        if (evictionPolicy == null) {
+            throw new NullPointerException();
+        }
+        ResourceManager.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * Returns the number of the resource updates (frames) since the program
+     * started.
+     *
+     * @return the current frame
+     *
+     * @see #updateResources()
+     */
+    public static long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Returns the number of the protected frames. The resources used in this
+     * many previous frames (or in the current frame) are never evicted, even if
+     * the memory usage exceeds the budget. By default it's 2.
+     *
+     * @return the number of the protected frames
+     */
+    public static int getProtectedFrames() {
+        return protectedFrames;
+    }
+
+    /**
+     * Sets the number of the protected frames to the given value.
+     *
+     * @param protectedFrames the number of the protected frames
+     *
+     * @throws IllegalArgumentException the number of the protected frames can't
+     * be negative
+     */
+    public static void setProtectedFrames(int protectedFrames) {
+        if (protectedFrames < 0) {
+            throw new IllegalArgumentException("The number of the protected frames can't be negative");
+        }
+        ResourceManager.protectedFrames = protectedFrames;
+    }
+
     /**
      * Returns the resources' update time period.
      *
@@ -470,6 +815,55 @@ public class ResourceManager {
         return new Vector3i(count, ram, vram);
     }
 
+    //
+    //buffer textures-----------------------------------------------------------
+    //
+    /**
+     * Returns the specified buffer texture.
+     *
+     * @param key buffer texture's key
+     *
+     * @return buffer texture
+     */
+    @Nullable
+    public static TextureBuffer getTextureBuffer(@Nullable ResourceId key) {
+        return textureBuffers.get(key);
+    }
+
+    /**
+     * Adds the given buffer texture to the list of buffer textures.
+     *
+     * @param textureBuffer buffer texture
+     */
+    public static void addTextureBuffer(@NotNull TextureBuffer textureBuffer) {
+        if (!textureBuffers.containsKey(textureBuffer.getResourceId())) {
+            textureBuffers.put(textureBuffer.getResourceId(), textureBuffer);
+        }
+    }
+
+    /**
+     * Returns data about the buffer textures. The x coordinate means the
+     * number of usable buffer textures, the y means the data size in bytes,
+     * stored in the RAM, the z means the data size in bytes, stored in the
+     * ACTION.
+     *
+     * @return data about the buffer textures
+     */
+    @NotNull @ReadOnly
+    public static Vector3i getTextureBufferData() {
+        int ram = 0;
+        int vram = 0;
+        int count = 0;
+        for (TextureBuffer textureBuffer : textureBuffers.values()) {
+            if (textureBuffer.isUsable()) {
+                count++;
+                ram += textureBuffer.getDataSizeInRam();
+                vram += textureBuffer.getDataSizeInAction();
+            }
+        }
+        return new Vector3i(count, ram, vram);
+    }
+
     //
     //VAOs----------------------------------------------------------------------
     //
@@ -657,11 +1051,13 @@ public class ResourceManager {
      * Releases the textures, meshes, splines, FBOs and the window.
      */
     public static void releaseResources() {
+        ResourceLoader.release();
         releaseResourceMap(meshes);
         releaseResourceMap(textures);
         releaseResourceMap(splines);
         releaseResourceMap(fbos);
         releaseResourceMap(ubos);
+        releaseResourceMap(textureBuffers);
         releaseResourceMap(vaos);
         releaseResourceMap(shaders);
         releaseResourceMap(audioBuffers);
@@ -669,6 +1065,7 @@ public class ResourceManager {
         DefaultLightComponent.releaseUbo();
         CameraComponent.releaseUbo();
         RenderingPipeline.release();
+        Profiler.release();
         Input.release();
         Window.release();
     }
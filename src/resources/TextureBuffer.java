@@ -0,0 +1,152 @@
+package resources;
+
+import java.nio.*;
+import org.lwjgl.opengl.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Object oriented wrapper class above the native buffer texture. It's a
+ * buffer object which the shaders can read as a one dimensional texture
+ * (samplerBuffer) with texelFetch. Unlike the UBOs, it can store much more
+ * data than 16 KB, so it's useful for the data which size depends on the
+ * scene (like the lights' data).
+ */
+public class TextureBuffer implements Resource {
+
+    /**
+     * The buffer's id.
+     */
+    private int bufferId = -1;
+    /**
+     * The texture's id.
+     */
+    private int textureId = -1;
+    /**
+     * The texels' internal format.
+     */
+    private final int internalFormat;
+    /**
+     * The stored data's size (in bytes).
+     */
+    private int dataSize;
+    /**
+     * The resource's unique id.
+     */
+    private final ResourceId resourceId;
+
+    /**
+     * Initializes a new TextureBuffer to the given value.
+     *
+     * @param internalFormat the texels' internal format (like GL_RGBA32F or
+     *                       GL_R32I)
+     */
+    public TextureBuffer(int internalFormat) {
+        this.internalFormat = internalFormat;
+        bufferId = OpenGl.getBackend().genBuffers();
+        textureId = OpenGl.getBackend().genTextures();
+        OpenGl.getBackend().bindTexture(GL31.GL_TEXTURE_BUFFER, textureId);
+        OpenGl.getBackend().texBuffer(GL31.GL_TEXTURE_BUFFER, internalFormat, bufferId);
+        OpenGl.getBackend().bindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+        resourceId = new ResourceId();
+        ResourceManager.addTextureBuffer(this);
+    }
+
+    /**
+     * Replaces the buffer's content with the given data. It stores the data
+     * between the buffer's position and limit. The old data store is
+     * orphaned, so it doesn't have to wait for the draw calls which still use
+     * the previous data.
+     *
+     * @param data data to store
+     *
+     * @throws NullPointerException data can't be null
+     */
+    public void storeData(@NotNull ByteBuffer data) {
+        dataSize = data.remaining();
+        OpenGl.getBackend().bindBuffer(GL31.GL_TEXTURE_BUFFER, bufferId);
+        OpenGl.getBackend().bufferData(GL31.GL_TEXTURE_BUFFER, data, GL15.GL_STREAM_DRAW);
+        OpenGl.getBackend().bindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /**
+     * Binds the buffer texture to the given texture unit.
+     *
+     * @param textureUnit texture unit
+     *
+     * @throws IllegalArgumentException texture unit must be in the [0;31]
+     *                                  interval
+     */
+    public void bindToTextureUnit(int textureUnit) {
+        if (textureUnit < 0 || textureUnit > 31) {
+            throw new IllegalArgumentException("Texture unit must be in the [0;31] interval");
+        }
+        OpenGl.getBackend().activeTexture(textureUnit + GL13.GL_TEXTURE0);
+        OpenGl.getBackend().bindTexture(GL31.GL_TEXTURE_BUFFER, textureId);
+    }
+
+    /**
+     * Returns the texels' internal format.
+     *
+     * @return the texels' internal format
+     */
+    public int getInternalFormat() {
+        return internalFormat;
+    }
+
+    @Override
+    public int getDataSizeInRam() {
+        return 0;
+    }
+
+    @Override
+    public int getDataSizeInAction() {
+        return dataSize;
+    }
+
+    @Override
+    public void update() {
+
+    }
+
+    /**
+     * Determines wheter this TextureBuffer is usable. If it returns false, you
+     * can't use it for anything.
+     *
+     * @return true if usable, false otherwise
+     */
+    @Override
+    public boolean isUsable() {
+        return bufferId != -1;
+    }
+
+    /**
+     * Removes the buffer and the texture from the VRAM. After you released
+     * the TextureBuffer, you can't use it for anything.
+     */
+    @Override
+    public void release() {
+        if (!isUsable()) {
+            return;
+        }
+        OpenGl.getBackend().deleteTextures(textureId);
+        OpenGl.getBackend().deleteBuffers(bufferId);
+        textureId = -1;
+        bufferId = -1;
+        dataSize = 0;
+    }
+
+    @NotNull
+    @Override
+    public ResourceId getResourceId() {
+        return resourceId;
+    }
+
+    @Override
+    public String toString() {
+        return "TextureBuffer{" + "bufferId=" + bufferId + ", textureId="
+                + textureId + ", internalFormat=" + internalFormat
+                + ", dataSize=" + dataSize + ", resourceId=" + resourceId + '}';
+    }
+
+}
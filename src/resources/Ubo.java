@@ -2,8 +2,7 @@ package resources;
 
 import java.nio.*;
 import org.lwjgl.opengl.*;
-import org.lwjgl.system.*;
-import static org.lwjgl.system.MemoryStack.stackPush;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -28,7 +27,7 @@ public class Ubo implements Resource {
      * Initializes a new UBO.
      */
     public Ubo() {
-        id = GL15.glGenBuffers();
+        id = OpenGl.getBackend().genBuffers();
         resourceId = new ResourceId();
         ResourceManager.addUbo(this);
     }
@@ -47,7 +46,7 @@ public class Ubo implements Resource {
             throw new IllegalArgumentException("Size must be positive");
         }
         dataSize = size;
-        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, size, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+        OpenGl.getBackend().bufferData(GL31.GL_UNIFORM_BUFFER, size, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
     }
 
     /**
@@ -58,12 +57,13 @@ public class Ubo implements Resource {
      */
     @Bind
     public void storeData(@NotNull float[] data, long offset) {
-        try (MemoryStack stack = stackPush()) {
-            FloatBuffer buffer = stack.mallocFloat(data.length);
-            buffer.put(data);
-            buffer.flip();
-            storeData(buffer, offset);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset can't be lower than 0");
         }
+        if (getDataSizeInAction() < data.length) {
+            throw new IllegalStateException("Didn't allocated enough memory for the data");
+        }
+        OpenGl.getBackend().bufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
     }
 
     /**
@@ -83,7 +83,7 @@ public class Ubo implements Resource {
         if (getDataSizeInAction() < data.capacity()) {
             throw new IllegalStateException("Didn't allocated enough memory for the data");
         }
-        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
+        OpenGl.getBackend().bufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
     }
 
     /**
@@ -94,12 +94,13 @@ public class Ubo implements Resource {
      */
     @Bind
     public void storeData(@NotNull int[] data, long offset) {
-        try (MemoryStack stack = stackPush()) {
-            IntBuffer buffer = stack.mallocInt(data.length);
-            buffer.put(data);
-            buffer.flip();
-            storeData(buffer, offset);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset can't be lower than 0");
+        }
+        if (getDataSizeInAction() < data.length) {
+            throw new IllegalStateException("Didn't allocated enough memory for the data");
         }
+        OpenGl.getBackend().bufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
     }
 
     /**
@@ -119,7 +120,28 @@ public class Ubo implements Resource {
         if (getDataSizeInAction() < data.capacity()) {
             throw new IllegalStateException("Didn't allocated enough memory for the data");
         }
-        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
+        OpenGl.getBackend().bufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
+    }
+
+    /**
+     * Stores the given data on the specified position. It stores the data
+     * between the buffer's position and limit.
+     *
+     * @param data data to store
+     * @param offset data's offset (in bytes)
+     *
+     * @throws IllegalArgumentException offset can't be lower than 0
+     * @throws IllegalStateException didn't allocated enough memory for the data
+     */
+    @Bind
+    public void storeData(@NotNull ByteBuffer data, long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset can't be lower than 0");
+        }
+        if (getDataSizeInAction() < offset + data.remaining()) {
+            throw new IllegalStateException("Didn't allocated enough memory for the data");
+        }
+        OpenGl.getBackend().bufferSubData(GL31.GL_UNIFORM_BUFFER, offset, data);
     }
 
     /**
@@ -137,21 +159,47 @@ public class Ubo implements Resource {
         if (bindingPoint < 0) {
             throw new IllegalArgumentException("Binding point can't be lower than 0");
         }
-        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, bindingPoint, id);
+        OpenGl.getBackend().bindBufferBase(GL31.GL_UNIFORM_BUFFER, bindingPoint, id);
+    }
+
+    /**
+     * Binds the specified range of the UBO to the given binding point. The
+     * offset have to be a multiple of the GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT.
+     * You don't have to bind the UBO before calling this method.
+     *
+     * @param bindingPoint binding point
+     * @param offset the range's offset (in bytes)
+     * @param size the range's size (in bytes)
+     *
+     * @throws IllegalArgumentException binding point and offset can't be lower
+     * than 0, size must be positive
+     * @see #bindToBindingPoint(int)
+     */
+    public void bindToBindingPoint(int bindingPoint, long offset, long size) {
+        if (bindingPoint < 0) {
+            throw new IllegalArgumentException("Binding point can't be lower than 0");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset can't be lower than 0");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        OpenGl.getBackend().bindBufferRange(GL31.GL_UNIFORM_BUFFER, bindingPoint, id, offset, size);
     }
 
     /**
      * Binds the UBO.
      */
     public void bind() {
-        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, id);
+        OpenGl.getBackend().bindBuffer(GL31.GL_UNIFORM_BUFFER, id);
     }
 
     /**
      * Unbinds the UBO.
      */
     public void unbind() {
-        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        OpenGl.getBackend().bindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
     }
 
     @Override
@@ -186,7 +234,7 @@ public class Ubo implements Resource {
      */
     @Override
     public void release() {
-        GL15.glDeleteBuffers(id);
+        OpenGl.getBackend().deleteBuffers(id);
         id = -1;
         dataSize = 0;
     }
@@ -0,0 +1,213 @@
+package resources;
+
+import java.nio.*;
+import org.lwjgl.*;
+import org.lwjgl.opengl.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Streams small, frequently changing uniform blocks (like the per object data)
+ * through one UBO. First you reserve the blocks you need, fill them through the
+ * Std140Writer returned by the getBlock method, upload all of them with one
+ * call and finally bind them one by one to a binding point by their offsets.
+ * The reserved blocks follow each other in the UBO, and when the UBO is full,
+ * the ring orphans the UBO's storage and starts from the beginning, so the
+ * driver doesn't have to wait for the draw calls which still use the previous
+ * blocks.
+ */
+public class UboRing {
+
+    /**
+     * The UBO.
+     */
+    private final Ubo ubo;
+    /**
+     * The size of a block (in bytes).
+     */
+    private final int blockSize;
+    /**
+     * The distance between two blocks (in bytes). It's the block size rounded
+     * up to the uniform buffer offset alignment.
+     */
+    private final int stride;
+    /**
+     * The number of blocks the UBO can store.
+     */
+    private final int capacity;
+    /**
+     * The blocks' data before uploading.
+     */
+    private final ByteBuffer data;
+    /**
+     * Writes the blocks' data.
+     */
+    private final Std140Writer writer = new Std140Writer();
+    /**
+     * The first reserved block's index.
+     */
+    private int firstBlock;
+    /**
+     * The number of the reserved blocks.
+     */
+    private int numberOfBlocks;
+    /**
+     * The next free block's index.
+     */
+    private int nextBlock;
+
+    /**
+     * Initializes a new UboRing to the given values.
+     *
+     * @param blockSize the size of a block (in bytes)
+     * @param capacity  the number of blocks the UBO can store
+     *
+     * @throws IllegalArgumentException block size and capacity have to be
+     *                                  positive
+     */
+    public UboRing(int blockSize, int capacity) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size have to be positive");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity have to be positive");
+        }
+        int alignment = java.lang.Math.max(1, OpenGl.getBackend().getInteger(GL31.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+        this.blockSize = blockSize;
+        this.stride = (blockSize + alignment - 1) / alignment * alignment;
+        this.capacity = capacity;
+        data = BufferUtils.createByteBuffer(stride * capacity);
+        ubo = new Ubo();
+        ubo.bind();
+        ubo.allocateMemory(stride * capacity, true);
+        ubo.unbind();
+    }
+
+    /**
+     * Reserves the given number of blocks. The previously reserved blocks
+     * become invalid, but the draw calls which already use them still get
+     * their data.
+     *
+     * @param numberOfBlocks number of blocks
+     *
+     * @throws IllegalArgumentException number of blocks have to be positive and
+     *                                  can't be higher than the capacity
+     */
+    public void reserve(int numberOfBlocks) {
+        if (numberOfBlocks <= 0 || numberOfBlocks > capacity) {
+            throw new IllegalArgumentException("Number of blocks have to be positive and can't be higher than the capacity");
+        }
+        if (nextBlock + numberOfBlocks > capacity) {
+            ubo.bind();
+            ubo.allocateMemory(stride * capacity, true);
+            ubo.unbind();
+            nextBlock = 0;
+        }
+        firstBlock = nextBlock;
+        this.numberOfBlocks = numberOfBlocks;
+        nextBlock += numberOfBlocks;
+    }
+
+    /**
+     * Returns a Std140Writer which writes the specified reserved block's data.
+     * The writer is shared between the blocks, so it's only valid until the
+     * next call of this method.
+     *
+     * @param index the block's index in the reserved blocks
+     *
+     * @return the Std140Writer which writes the block's data
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    @NotNull
+    public Std140Writer getBlock(int index) {
+        checkIndex(index);
+        writer.begin(data, (firstBlock + index) * stride);
+        return writer;
+    }
+
+    /**
+     * Uploads all the reserved blocks' data to the UBO with one call.
+     */
+    public void upload() {
+        int offset = firstBlock * stride;
+        data.limit(offset + numberOfBlocks * stride);
+        data.position(offset);
+        ubo.bind();
+        ubo.storeData(data, offset);
+        ubo.unbind();
+        data.clear();
+    }
+
+    /**
+     * Binds the specified reserved block to the given binding point.
+     *
+     * @param index        the block's index in the reserved blocks
+     * @param bindingPoint binding point
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public void bindToBindingPoint(int index, int bindingPoint) {
+        checkIndex(index);
+        ubo.bindToBindingPoint(bindingPoint, (firstBlock + index) * stride, blockSize);
+    }
+
+    /**
+     * Checks whether the given index is a valid index of the reserved blocks.
+     *
+     * @param index index
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= numberOfBlocks) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Returns the size of a block.
+     *
+     * @return the size of a block (in bytes)
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of blocks the UBO can store. You can't reserve more
+     * blocks at once.
+     *
+     * @return the number of blocks the UBO can store
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Determines wheter this UboRing is usable. If it returns false, you can't
+     * use it for anything.
+     *
+     * @return true if usable, false otherwise
+     */
+    public boolean isUsable() {
+        return ubo.isUsable();
+    }
+
+    /**
+     * Removes the UBO from the VRAM. After you released the UboRing, you can't
+     * use it for anything.
+     */
+    public void release() {
+        ubo.release();
+    }
+
+    @Override
+    public String toString() {
+        return "UboRing{" + "ubo=" + ubo + ", blockSize=" + blockSize
+                + ", stride=" + stride + ", capacity=" + capacity
+                + ", firstBlock=" + firstBlock + ", numberOfBlocks="
+                + numberOfBlocks + ", nextBlock=" + nextBlock + '}';
+    }
+
+}
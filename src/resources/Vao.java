@@ -4,8 +4,6 @@ import java.nio.*;
 import java.util.*;
 import org.lwjgl.assimp.*;
 import org.lwjgl.opengl.*;
-import org.lwjgl.system.*;
-import static org.lwjgl.system.MemoryStack.stackPush;
 import toolbox.*;
 import toolbox.annotations.*;
 
@@ -44,7 +42,7 @@ public class Vao implements Resource {
      * Initializes a new VAO.
      */
     public Vao() {
-        vao = GL30.glGenVertexArrays();
+        vao = OpenGl.getBackend().genVertexArrays();
         resourceId = new ResourceId();
         ResourceManager.addVao(this);
     }
@@ -53,14 +51,14 @@ public class Vao implements Resource {
      * Binds this VAO.
      */
     public void bindVao() {
-        GL30.glBindVertexArray(vao);
+        OpenGl.getBackend().bindVertexArray(vao);
     }
 
     /**
      * Unbinds the VAO.
      */
     public void unbindVao() {
-        GL30.glBindVertexArray(0);
+        OpenGl.getBackend().bindVertexArray(0);
     }
 
     /**
@@ -76,7 +74,7 @@ public class Vao implements Resource {
      * Removes the VAO.
      */
     private void removeVao() {
-        GL30.glDeleteVertexArrays(vao);
+        OpenGl.getBackend().deleteVertexArrays(vao);
         vao = 0;
     }
 
@@ -97,7 +95,7 @@ public class Vao implements Resource {
             throw new NullPointerException();
         }
         if (!vbos.containsKey(name)) {
-            vbos.put(name, GL15.glGenBuffers());
+            vbos.put(name, OpenGl.getBackend().genBuffers());
             vboSize.put(name, 0);
             return true;
         } else {
@@ -115,12 +113,7 @@ public class Vao implements Resource {
      * @param dynamic true if the data should be dynamic, false otherwise
      */
     public void bindAndAddData(@NotNull String vboName, int attributeNumber, int coordinateSize, @NotNull float[] data, boolean dynamic) {
-        try (MemoryStack stack = stackPush()) {
-            FloatBuffer buffer = stack.mallocFloat(data.length);
-            buffer.put(data);
-            buffer.flip();
-            bindAndAddData(vboName, attributeNumber, coordinateSize, Utility.storeDataInFloatBuffer(data), dynamic);
-        }
+        bindAndAddData(vboName, attributeNumber, coordinateSize, Utility.storeDataInFloatBuffer(data), dynamic);
     }
 
     /**
@@ -145,8 +138,8 @@ public class Vao implements Resource {
         }
         bindVbo(vboName);
         vboSize.put(vboName, data.capacity());
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
-        GL20.glVertexAttribPointer(attributeNumber, coordinateSize, GL11.GL_FLOAT, false, 0, 0);
+        OpenGl.getBackend().bufferData(GL15.GL_ARRAY_BUFFER, data, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+        OpenGl.getBackend().vertexAttribPointer(attributeNumber, coordinateSize, GL11.GL_FLOAT, false, 0, 0);
     }
 
     /**
@@ -167,8 +160,100 @@ public class Vao implements Resource {
         }
         bindVbo(vboName);
         vboSize.put(vboName, data.capacity());
-        GL15.nglBufferData(GL15.GL_ARRAY_BUFFER, AIVector3D.SIZEOF * data.remaining(), data.address(), dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
-        GL20.glVertexAttribPointer(attributeNumber, coordinateSize, GL11.GL_FLOAT, false, 0, 0);
+        OpenGl.getBackend().bufferData(GL15.GL_ARRAY_BUFFER, AIVector3D.SIZEOF * data.remaining(), data.address(), dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+        OpenGl.getBackend().vertexAttribPointer(attributeNumber, coordinateSize, GL11.GL_FLOAT, false, 0, 0);
+    }
+
+    /**
+     * Binds the specified VBO and stores the given data in it, without
+     * specifying any attribute. You can use it for interleaved vertex data,
+     * and specify the attributes later.
+     *
+     * @param vboName vbo's name
+     * @param data    data
+     * @param dynamic true if the data should be dynamic, false otherwise
+     *
+     * @throws NullPointerException data can't be null
+     *
+     * @see #addAttribute(String, int, int, int, boolean, int, int)
+     */
+    public void bindAndAddData(@NotNull String vboName, @NotNull ByteBuffer data, boolean dynamic) {
+        if (data == null) {
+            throw new NullPointerException();
+        }
+        bindVbo(vboName);
+        vboSize.put(vboName, data.remaining());
+        OpenGl.getBackend().bufferData(GL15.GL_ARRAY_BUFFER, data, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+    }
+
+    /**
+     * Binds the specified VBO and specifies an attribute in it. The attribute
+     * is stored with the given stride from the given offset, so several
+     * attributes can be interleaved in the same VBO.
+     *
+     * @param vboName         vbo's name
+     * @param attributeNumber shader's attribute number
+     * @param coordinateSize  number of a vector's coordinates
+     * @param type            the coordinates' type (like GL_FLOAT or
+     *                        GL_HALF_FLOAT)
+     * @param normalized      true if the integer coordinates should be
+     *                        normalized, false otherwise
+     * @param stride          the distance between two consecutive vertices'
+     *                        attributes (in bytes)
+     * @param offset          the first vertex's attribute's offset (in
+     *                        bytes)
+     *
+     * @throws IllegalArgumentException attribute number can't be lower than
+     *                                  0, coordinate size must be in the
+     *                                  (1;4) interval, stride and offset
+     *                                  can't be negative
+     */
+    public void addAttribute(@NotNull String vboName, int attributeNumber, int coordinateSize, int type, boolean normalized, int stride, int offset) {
+        if (attributeNumber < 0 || coordinateSize < 1 || coordinateSize > 4) {
+            throw new IllegalArgumentException("Attribute number can't be lower than 0 and coordinate size must be in the (1;4) interval");
+        }
+        if (stride < 0 || offset < 0) {
+            throw new IllegalArgumentException("Stride and offset can't be negative");
+        }
+        bindVbo(vboName);
+        OpenGl.getBackend().vertexAttribPointer(attributeNumber, coordinateSize, type, normalized, stride, offset);
+    }
+
+    /**
+     * Binds the specified VBO and stores the given per instance data in it.
+     * The data is interleaved, each instance consists of the given number of
+     * vectors, which are bound to consecutive attributes starting from the
+     * given attribute number. The VBO's previous storage is orphaned, so it
+     * can be refilled several times in a frame without waiting for the
+     * previous draw calls.
+     *
+     * @param vboName            vbo's name
+     * @param attributeNumber    shader's first attribute number
+     * @param numberOfAttributes number of the vectors in an instance
+     * @param coordinateSize     number of a vector's coordinates
+     * @param data               data
+     *
+     * @throws IllegalArgumentException attribute number can't be lower than 0,
+     *                                  number of attributes can't be lower
+     *                                  than 1 and coordinate size must be in
+     *                                  the (1;4) interval
+     * @throws NullPointerException     data can't be null
+     */
+    public void bindAndAddInstanceData(@NotNull String vboName, int attributeNumber, int numberOfAttributes, int coordinateSize, @NotNull FloatBuffer data) {
+        if (data == null) {
+            throw new NullPointerException();
+        }
+        if (attributeNumber < 0 || numberOfAttributes < 1 || coordinateSize < 1 || coordinateSize > 4) {
+            throw new IllegalArgumentException("Attribute number can't be lower than 0, number of attributes can't be lower than 1 and coordinate size must be in the (1;4) interval");
+        }
+        bindVbo(vboName);
+        vboSize.put(vboName, data.remaining());
+        OpenGl.getBackend().bufferData(GL15.GL_ARRAY_BUFFER, data, GL15.GL_STREAM_DRAW);
+        int stride = numberOfAttributes * coordinateSize * Float.BYTES;
+        for (int i = 0; i < numberOfAttributes; i++) {
+            OpenGl.getBackend().vertexAttribPointer(attributeNumber + i, coordinateSize, GL11.GL_FLOAT, false, stride, i * coordinateSize * Float.BYTES);
+            OpenGl.getBackend().vertexAttribDivisor(attributeNumber + i, 1);
+        }
     }
 
     /**
@@ -177,14 +262,14 @@ public class Vao implements Resource {
      * @param name VBO's name
      */
     public void bindVbo(@NotNull String name) {
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, getVbo(name));
+        OpenGl.getBackend().bindBuffer(GL15.GL_ARRAY_BUFFER, getVbo(name));
     }
 
     /**
      * Unbinds VBO.
      */
     public void unbindVbo() {
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        OpenGl.getBackend().bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -222,7 +307,7 @@ public class Vao implements Resource {
             throw new IllegalArgumentException("There is no such a VBO");
         }
         vboSize.remove(name);
-        GL15.glDeleteBuffers(vbos.remove(name));
+        OpenGl.getBackend().deleteBuffers(vbos.remove(name));
     }
 
     /**
@@ -257,7 +342,7 @@ public class Vao implements Resource {
     @Bind
     public boolean createEbo() {
         if (ebo == 0) {
-            ebo = GL15.glGenBuffers();
+            ebo = OpenGl.getBackend().genBuffers();
             return true;
         }
         return false;
@@ -271,12 +356,11 @@ public class Vao implements Resource {
      */
     @Bind
     public void addIndices(@NotNull int[] indices, boolean dynamic) {
-        try (MemoryStack stack = stackPush()) {
-            IntBuffer buffer = stack.mallocInt(indices.length);
-            buffer.put(indices);
-            buffer.flip();
-            addIndices(buffer, dynamic);
+        if (indices == null) {
+            throw new NullPointerException();
         }
+        eboSize = indices.length;
+        OpenGl.getBackend().bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
     }
 
     /**
@@ -293,21 +377,41 @@ public class Vao implements Resource {
             throw new NullPointerException();
         }
         eboSize = indices.capacity();
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+        OpenGl.getBackend().bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
+    }
+
+    /**
+     * Adds indices to the EBO. The indices' type is determined by the draw
+     * calls, so you can use it for the 16 bit indices.
+     *
+     * @param indices indices
+     * @param dynamic true if the data should be dynamic, false otherwise
+     *
+     * @throws NullPointerException indices can't be null
+     *
+     * @see resources.meshes.BinaryMesh#getIndices()
+     */
+    @Bind
+    public void addIndices(@NotNull ByteBuffer indices, boolean dynamic) {
+        if (indices == null) {
+            throw new NullPointerException();
+        }
+        eboSize = indices.remaining();
+        OpenGl.getBackend().bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, dynamic ? GL15.GL_DYNAMIC_DRAW : GL15.GL_STATIC_DRAW);
     }
 
     /**
      * Binds the EBO.
      */
     public void bindEbo() {
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ebo);
+        OpenGl.getBackend().bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ebo);
     }
 
     /**
      * Unbinds the EBO.
      */
     public void unbindEbo() {
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+        OpenGl.getBackend().bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -323,7 +427,7 @@ public class Vao implements Resource {
      * Removes the EBO.
      */
     public void removeEbo() {
-        GL15.glDeleteBuffers(ebo);
+        OpenGl.getBackend().deleteBuffers(ebo);
         ebo = 0;
         eboSize = 0;
     }
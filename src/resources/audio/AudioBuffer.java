@@ -20,7 +20,7 @@ import toolbox.annotations.*;
 /**
  * Stores a sound effect and can play through an AudioSource.
  */
-public class AudioBuffer implements Resource {
+public class AudioBuffer implements LoadableResource {
 
     /**
      * The audio buffer's native OpenAL id.
@@ -270,10 +270,16 @@ public class AudioBuffer implements Resource {
      *
      * @return the time when the audio buffer last time used (in miliseconds)
      */
+    @Override
     public long getLastActive() {
         return meta.getLastActive();
     }
 
+    @Override
+    public long getLastActiveFrame() {
+        return meta.getLastActiveFrame();
+    }
+
     /**
      * Returns the audio buffer's state. It determines where the sound is
      * currently stored.
@@ -287,12 +293,13 @@ public class AudioBuffer implements Resource {
 
     /**
      * Returns the audio buffer's data store policy. ACTION means that the audio
-     * buffer's data will be stored in the sound system. RAM means that the
-     * audio buffer's data may be removed from the sound system to RAM if it's
-     * rarely used. HDD means that the audio buffer's data may be removed from
-     * the sound system or even from RAM if it's rarely used. Later if you want
-     * to use this audio buffer, you should call the refreshStore method to load
-     * the data from file again.
+     * buffer's data is pinned in the sound system. RAM means that the audio
+     * buffer's data may be removed from the sound system to RAM if it's rarely
+     * used. HDD means that the audio buffer's data may be removed from the
+     * sound system or even from RAM if it's rarely used or if the RAM budget
+     * is exceeded. Later if you want to use this audio buffer, you should call
+     * the refreshStore method to load the data from file again. By default
+     * it's ACTION.
      *
      * @return the texture's data store policy
      *
@@ -305,12 +312,12 @@ public class AudioBuffer implements Resource {
 
     /**
      * Sets the audio buffer's data store policy to the given value. ACTION
-     * means that the sound's data will be stored in the sound system. RAM means
-     * that the audio buffer's data may be removed from the sound system to RAM
-     * if it's rarely used. HDD means that the audio buffer's data may be
-     * removed from the sound system or even from RAM if it's rarely used. Later
-     * if you want to use this audio buffer, you should call the refreshStore
-     * method to load the data from file again.
+     * means that the sound's data is pinned in the sound system. RAM means that
+     * the audio buffer's data may be removed from the sound system to RAM if
+     * it's rarely used. HDD means that the audio buffer's data may be removed
+     * from the sound system or even from RAM if it's rarely used or if the RAM
+     * budget is exceeded. Later if you want to use this audio buffer, you
+     * should call the refreshStore method to load the data from file again.
      *
      * @param minState data store policy
      *
@@ -327,6 +334,23 @@ public class AudioBuffer implements Resource {
         }
     }
 
+    @Override
+    public void unloadFromAction() {
+        if (getState() == ResourceState.ACTION && getDataStorePolicy() != ResourceState.ACTION) {
+            actionToRam();
+        }
+    }
+
+    @Override
+    public void unloadFromRam() {
+        if (getState() != ResourceState.HDD && getDataStorePolicy() == ResourceState.HDD) {
+            if (getState() == ResourceState.ACTION) {
+                actionToRam();
+            }
+            ramToHdd();
+        }
+    }
+
     @Override
     public void update() {
         long elapsedTime = System.currentTimeMillis() - getLastActive();
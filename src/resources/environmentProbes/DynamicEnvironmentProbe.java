@@ -3,6 +3,7 @@ package resources.environmentProbes;
 import core.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
+import rendering.*;
 import resources.*;
 import resources.textures.cubeMapTexture.*;
 import toolbox.*;
@@ -16,15 +17,32 @@ public class DynamicEnvironmentProbe implements EnvironmentProbe {
     private int resolution = 128;
     private int renderingFrequency = 1;
     private final Vector3f position;
-    private static Matrix4f projectionMatrix;
+    private static final Matrix4f projectionMatrix = new Matrix4f().setPerspective(Utility.toRadians(90), 1, 0.001f, 1000);
     private final Matrix4f[] viewMatrices;
+    /**
+     * The FBO of the face by face rendering. It's acquired from the FboPool
+     * only for the time of the rendering, so the probes with the same
+     * resolution share the same FBO.
+     */
     private Fbo fbo;
+    /**
+     * The face by face rendering FBO's descriptor.
+     */
+    private FboDescriptor fboDescriptor;
+    /**
+     * The FBO which contains all the cube map's faces, so all of them can be
+     * rendered in one pass.
+     */
+    private Fbo layeredFbo;
+    /**
+     * The layered FBO's depth attachment.
+     */
+    private DynamicCubeMapTexture depthCubeMap;
 
     //render now and than static
     public DynamicEnvironmentProbe() {
         refresh();
         position = new Vector3f();
-        projectionMatrix = new Matrix4f().setPerspective(Utility.toRadians(90), 1, 0.001f, 1000);
         viewMatrices = new Matrix4f[6];
         refresshViewMatrices();
         Scene.addProbe(this);
@@ -32,63 +50,87 @@ public class DynamicEnvironmentProbe implements EnvironmentProbe {
 
     public void refresh() {
         refreshCubeMap();
-        refreshFbo();
-    }
-
-    public boolean shouldRenderNow() {
-        if (renderingFrequency == 0) {
-            return true;
-        } else if (GameLoop.getFrameCount() % renderingFrequency == 0) {
-            return true;
+        if (fboDescriptor == null || resolution != fboDescriptor.getSize().x()) {
+            fboDescriptor = new FboDescriptor(new Vector2i(resolution), 1, false, false,
+                    new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.RBO, 0));
         }
-        return false;
     }
 
     private void refreshCubeMap() {
         if (cubeMap == null || !cubeMap.isUsable()) {
+            releaseLayeredFbo();
             cubeMap = new DynamicCubeMapTexture(new Vector2i(resolution));
         } else {
             if (resolution != cubeMap.getSize().x) {
                 releaseCubeMap();
+                releaseLayeredFbo();
                 cubeMap = new DynamicCubeMapTexture(new Vector2i(resolution));
             }
         }
     }
 
-    private void refreshFbo() {
-        if (fbo == null || !fbo.isUsable()) {
-            createFbo();
-        } else {
-            if (resolution != fbo.getSize().x) {
-                releaseFbo();
-                createFbo();
-            }
+    /**
+     * Acquires an FBO from the FboPool and binds it for the face by face
+     * rendering. The cube map's faces can be attached by the FboTexture
+     * method.
+     *
+     * @see #FboTexture(int)
+     * @see #unbindFbo()
+     */
+    public void bindFbo() {
+        if (fbo == null) {
+            fbo = FboPool.acquire(fboDescriptor);
         }
+        fbo.bind();
+        OpenGl.getBackend().drawBuffer(GL30.GL_COLOR_ATTACHMENT0);
     }
 
-    private void createFbo() {
-        fbo = new Fbo(new Vector2i(resolution), false, 1, false);
-        fbo.bind();
-//                fbo.addAttachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0);
-        fbo.addAttachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.RBO, 0);
-        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X, cubeMap.getId(), 0);
-        GL11.glDrawBuffer(GL30.GL_COLOR_ATTACHMENT0);
-        if (!fbo.isComplete()) {
-            System.out.println("ERROR");
+    /**
+     * Binds the layered FBO, which contains all the cube map's faces. You can
+     * select the face in a geometry shader (by the gl_Layer variable). If the
+     * layered FBO doesn't exist yet, it creates it.
+     */
+    public void bindLayeredFbo() {
+        if (layeredFbo == null || !layeredFbo.isUsable()) {
+            createLayeredFbo();
         }
-        fbo.unbind();
+        layeredFbo.bind();
     }
 
-    public void bindFbo() {
-        fbo.bind();
+    /**
+     * Creates the layered FBO. All the attachments of a layered FBO have to be
+     * layered, so the depth attachment is a cube map too.
+     */
+    private void createLayeredFbo() {
+        depthCubeMap = new DynamicCubeMapTexture(new Vector2i(resolution), true);
+        layeredFbo = new Fbo(new Vector2i(resolution), false, 1, false);
+        layeredFbo.bind();
+        OpenGl.getBackend().framebufferTexture(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, cubeMap.getId(), 0);
+        OpenGl.getBackend().framebufferTexture(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, depthCubeMap.getId(), 0);
+        OpenGl.getBackend().drawBuffer(GL30.GL_COLOR_ATTACHMENT0);
+        if (!layeredFbo.isComplete()) {
+            Utility.logError(layeredFbo.getStatus().name());
+            throw new RuntimeException("Incomplete FBO");
+        }
+        layeredFbo.unbind();
     }
 
     public void bindCubeMap() {
         cubeMap.bind();
     }
 
+    /**
+     * Unbinds the FBO. If the face by face rendering's FBO was acquired, it
+     * detaches the cube map's face and gives back the FBO to the FboPool.
+     */
     public void unbindFbo() {
-        fbo.unbind();
+        if (fbo != null) {
+            OpenGl.getBackend().framebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X, 0, 0);
+            fbo.unbind();
+            releaseFbo();
+        } else {
+            OpenGl.bindDefaultFrameBuffer();
+        }
     }
 
     public void unbindCubeMap() {
@@ -175,14 +217,35 @@ public class DynamicEnvironmentProbe implements EnvironmentProbe {
         cubeMap = null;
     }
 
+    /**
+     * Gives back the face by face rendering's FBO to the FboPool, if it's
+     * acquired.
+     */
     public void releaseFbo() {
-        fbo.release();
-        fbo = null;
+        if (fbo != null) {
+            FboPool.release(fbo);
+            fbo = null;
+        }
+    }
+
+    /**
+     * Releases the layered FBO and it's depth cube map, if they exist.
+     */
+    public void releaseLayeredFbo() {
+        if (layeredFbo != null) {
+            layeredFbo.release();
+            layeredFbo = null;
+        }
+        if (depthCubeMap != null) {
+            depthCubeMap.release();
+            depthCubeMap = null;
+        }
     }
 
     public void release() {
         releaseCubeMap();
         releaseFbo();
+        releaseLayeredFbo();
     }
 
     @Override
@@ -191,7 +254,7 @@ public class DynamicEnvironmentProbe implements EnvironmentProbe {
     }
 
     public void FboTexture(int index) {
-        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + index, cubeMap.getId(), 0);
+        OpenGl.getBackend().framebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + index, cubeMap.getId(), 0);
     }
 
 }
@@ -0,0 +1,894 @@
+package resources.meshes;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import org.joml.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * The engine's own binary mesh format. It stores a pre-processed mesh's data
+ * (positions, texture coordinates, normal vectors, tangent vectors, indices)
+ * and the precomputed axis alligned bounding box and furthest vertex distance,
+ * so loading it doesn't need any processing. The vertices and the indices are
+ * stored in the same layout as in the VRAM, so they can be uploaded to the VBO
+ * and the EBO directly from the memory mapped file. The StaticMesh writes it
+ * next to the model file on the first import, and later loads map it instead
+ * of importing the model again. It doesn't use OpenGL.
+ * <br>
+ * The vertices are interleaved. An uncompressed vertex contains the position,
+ * the texture coordinates, the normal and the tangent vector (3 floats each).
+ * A compressed vertex contains the position (3 floats), the texture
+ * coordinates (2 half floats) and the normal and the tangent vector (signed
+ * normalized 10-10-10-2 packed integers each). The compressed mesh's indices
+ * are 16 bit integers if the mesh has few enough vertices, otherwise the
+ * indices are 32 bit integers.
+ * <br>
+ * The mesh can have several levels of detail. They share the vertices, and
+ * their indices are stored one after the other in the index block, so each
+ * level of detail is just a range of the indices.
+ * <br>
+ * The data is stored in little endian byte order. The file starts with a 64
+ * byte header: magic number, version, number of vertices, number of indices,
+ * number of the model's meshes, furthest vertex distance, AABB min, AABB max,
+ * the model file's last modification time, the number of levels of detail and
+ * the vertex format (0 means uncompressed, 1 means compressed). After the
+ * header come the vertex block, the index block and the level of detail table
+ * (first index, number of indices and screen size for each level).
+ *
+ * @see StaticMesh
+ * @see VertexCompression
+ */
+public class BinaryMesh {
+
+    /**
+     * The binary mesh files' extension.
+     */
+    public static final String EXTENSION = ".wmesh";
+    /**
+     * The binary mesh files' magic number ("WMSH").
+     */
+    private static final int MAGIC = 0x574D5348;
+    /**
+     * The format's version.
+     */
+    private static final int VERSION = 4;
+    /**
+     * The header's size (in bytes).
+     */
+    private static final int HEADER_SIZE = 64;
+    /**
+     * The number of floats in a vertex attribute.
+     */
+    private static final int COORDINATE_SIZE = 3;
+    /**
+     * The size of an uncompressed vertex (in bytes).
+     */
+    public static final int VERTEX_SIZE = 4 * COORDINATE_SIZE * Float.BYTES;
+    /**
+     * The size of a compressed vertex (in bytes).
+     */
+    public static final int COMPRESSED_VERTEX_SIZE = COORDINATE_SIZE * Float.BYTES + VertexCompression.TEXTURE_COORDINATES_SIZE + 2 * VertexCompression.DIRECTION_SIZE;
+    /**
+     * The size of a level of detail in the table (in bytes).
+     */
+    private static final int LOD_SIZE = 12;
+    /**
+     * The mesh's data, including the header.
+     */
+    private final ByteBuffer data;
+    /**
+     * The number of vertices.
+     */
+    private final int numberOfVertices;
+    /**
+     * The number of indices.
+     */
+    private final int numberOfIndices;
+    /**
+     * The number of the meshes in the model file.
+     */
+    private final int numberOfMeshes;
+    /**
+     * The furthest vertex distance.
+     */
+    private final float furthestVertexDistance;
+    /**
+     * Axis alligned bounding box's min x, y and z values.
+     */
+    private final Vector3f aabbMin = new Vector3f();
+    /**
+     * Axis alligned bounding box's max x, y and z values.
+     */
+    private final Vector3f aabbMax = new Vector3f();
+    /**
+     * The model file's last modification time.
+     */
+    private final long sourceLastModified;
+    /**
+     * The levels of detail's first indices.
+     */
+    private final int[] lodFirstIndices;
+    /**
+     * The levels of detail's number of indices.
+     */
+    private final int[] lodNumberOfIndices;
+    /**
+     * The levels of detail's screen sizes.
+     */
+    private final float[] lodScreenSizes;
+    /**
+     * Determines whether the vertices are compressed.
+     */
+    private final boolean compressed;
+
+    /**
+     * Initializes a new BinaryMesh to the given value.
+     *
+     * @param data the mesh's data, including the header
+     *
+     * @throws IllegalArgumentException the data isn't a valid binary mesh
+     */
+    private BinaryMesh(@NotNull ByteBuffer data) {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Invalid binary mesh");
+        }
+        numberOfVertices = data.getInt(8);
+        numberOfIndices = data.getInt(12);
+        numberOfMeshes = data.getInt(16);
+        furthestVertexDistance = data.getFloat(20);
+        aabbMin.set(data.getFloat(24), data.getFloat(28), data.getFloat(32));
+        aabbMax.set(data.getFloat(36), data.getFloat(40), data.getFloat(44));
+        sourceLastModified = data.getLong(48);
+        int numberOfLods = data.getInt(56);
+        int vertexFormat = data.getInt(60);
+        compressed = vertexFormat == 1;
+        if (numberOfVertices < 0 || numberOfIndices < 0 || numberOfLods < 1 || vertexFormat < 0 || vertexFormat > 1
+                || data.capacity() != computeSize(numberOfVertices, numberOfIndices, numberOfLods, compressed)) {
+            throw new IllegalArgumentException("Invalid binary mesh");
+        }
+        lodFirstIndices = new int[numberOfLods];
+        lodNumberOfIndices = new int[numberOfLods];
+        lodScreenSizes = new float[numberOfLods];
+        int table = computeSize(numberOfVertices, numberOfIndices, 0, compressed);
+        for (int i = 0; i < numberOfLods; i++) {
+            lodFirstIndices[i] = data.getInt(table + i * LOD_SIZE);
+            lodNumberOfIndices[i] = data.getInt(table + i * LOD_SIZE + 4);
+            lodScreenSizes[i] = data.getFloat(table + i * LOD_SIZE + 8);
+            if (lodFirstIndices[i] < 0 || lodNumberOfIndices[i] < 0
+                    || (long) lodFirstIndices[i] + lodNumberOfIndices[i] > numberOfIndices) {
+                throw new IllegalArgumentException("Invalid binary mesh");
+            }
+        }
+    }
+
+    /**
+     * Creates a new binary mesh from the given data. It computes the mesh's
+     * axis alligned bounding box and furthest vertex distance, and interleaves
+     * (and optionally compresses) the vertices. If the texture coordinates,
+     * the normal vectors or the tangent vectors are missing, they are filled
+     * with zeros.
+     *
+     * @param positions          the vertices' positions (3 floats per vertex)
+     * @param uvs                the vertices' texture coordinates (3 floats
+     *                           per vertex)
+     * @param normals            the vertices' normal vectors (3 floats per
+     *                           vertex)
+     * @param tangents           the vertices' tangent vectors (3 floats per
+     *                           vertex)
+     * @param indices            the triangles' indices
+     * @param numberOfMeshes     the number of the meshes in the model file
+     * @param sourceLastModified the model file's last modification time
+     * @param compressed         true if the vertices and the indices should
+     *                           be compressed, false otherwise
+     *
+     * @return the binary mesh
+     *
+     * @throws NullPointerException     positions and indices can't be null
+     * @throws IllegalArgumentException the attributes' sizes have to be the
+     *                                  same and divisible by 3
+     */
+    @NotNull
+    public static BinaryMesh create(@NotNull FloatBuffer positions, @Nullable FloatBuffer uvs, @Nullable FloatBuffer normals, @Nullable FloatBuffer tangents, @NotNull IntBuffer indices, int numberOfMeshes, long sourceLastModified, boolean compressed) {
+        if (indices == null) {
+            throw new NullPointerException();
+        }
+        return create(positions, uvs, normals, tangents, Utility.wrapObjectByList(indices), numberOfMeshes, sourceLastModified, compressed);
+    }
+
+    /**
+     * Creates a new binary mesh with levels of detail from the given data. The
+     * levels of detail share the vertices, the first level is the most
+     * detailed. The levels of detail get the default screen sizes. It computes
+     * the mesh's axis alligned bounding box and furthest vertex distance, and
+     * interleaves (and optionally compresses) the vertices. If the texture
+     * coordinates, the normal vectors or the tangent vectors are missing, they
+     * are filled with zeros.
+     *
+     * @param positions          the vertices' positions (3 floats per vertex)
+     * @param uvs                the vertices' texture coordinates (3 floats
+     *                           per vertex)
+     * @param normals            the vertices' normal vectors (3 floats per
+     *                           vertex)
+     * @param tangents           the vertices' tangent vectors (3 floats per
+     *                           vertex)
+     * @param lods               the levels of detail's indices
+     * @param numberOfMeshes     the number of the meshes in the model file
+     * @param sourceLastModified the model file's last modification time
+     * @param compressed         true if the vertices and the indices should
+     *                           be compressed, false otherwise
+     *
+     * @return the binary mesh
+     *
+     * @throws NullPointerException     positions and the levels of detail
+     *                                  can't be null
+     * @throws IllegalArgumentException the attributes' sizes have to be the
+     *                                  same and divisible by 3, there has to be
+     *                                  at least one level of detail, the
+     *                                  indices have to be in the [0;number
+     *                                  of vertices) interval
+     *
+     * @see MeshSimplifier#createLods(FloatBuffer, IntBuffer)
+     * @see MeshSimplifier#getDefaultScreenSize(int)
+     * @see VertexCompression
+     */
+    @NotNull
+    public static BinaryMesh create(@NotNull FloatBuffer positions, @Nullable FloatBuffer uvs, @Nullable FloatBuffer normals, @Nullable FloatBuffer tangents, @NotNull List<IntBuffer> lods, int numberOfMeshes, long sourceLastModified, boolean compressed) {
+        if (positions == null || lods == null || lods.contains(null)) {
+            throw new NullPointerException();
+        }
+        if (lods.isEmpty()) {
+            throw new IllegalArgumentException("There has to be at least one level of detail");
+        }
+        int size = positions.remaining();
+        if (size % COORDINATE_SIZE != 0
+                || uvs != null && uvs.remaining() != size
+                || normals != null && normals.remaining() != size
+                || tangents != null && tangents.remaining() != size) {
+            throw new IllegalArgumentException("The attributes' sizes have to be the same and divisible by 3");
+        }
+        int numberOfVertices = size / COORDINATE_SIZE;
+        int numberOfIndices = 0;
+        for (IntBuffer lod : lods) {
+            numberOfIndices += lod.remaining();
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(computeSize(numberOfVertices, numberOfIndices, lods.size(), compressed)).order(ByteOrder.LITTLE_ENDIAN);
+        data.position(HEADER_SIZE);
+        float[] vertex = new float[VERTEX_SIZE / Float.BYTES];
+        for (int i = 0; i < numberOfVertices; i++) {
+            getCoordinates(positions, i, vertex, 0);
+            getCoordinates(uvs, i, vertex, 3);
+            getCoordinates(normals, i, vertex, 6);
+            getCoordinates(tangents, i, vertex, 9);
+            putVertex(data, vertex, compressed);
+        }
+        boolean shortIndexed = isShortIndexed(numberOfVertices, compressed);
+        int firstIndex = 0;
+        int table = computeSize(numberOfVertices, numberOfIndices, 0, compressed);
+        for (int i = 0; i < lods.size(); i++) {
+            IntBuffer lod = lods.get(i);
+            for (int j = lod.position(); j < lod.limit(); j++) {
+                int index = lod.get(j);
+                if (index < 0 || index >= numberOfVertices) {
+                    throw new IllegalArgumentException("Index must be in the [0;" + (numberOfVertices - 1) + "] interval");
+                }
+                if (shortIndexed) {
+                    data.putShort((short) index);
+                } else {
+                    data.putInt(index);
+                }
+            }
+            data.putInt(table + i * LOD_SIZE, firstIndex);
+            data.putInt(table + i * LOD_SIZE + 4, lod.remaining());
+            data.putFloat(table + i * LOD_SIZE + 8, MeshSimplifier.getDefaultScreenSize(i));
+            firstIndex += lod.remaining();
+        }
+        writeHeader(data, positions, numberOfVertices, numberOfIndices, numberOfMeshes, sourceLastModified, lods.size(), compressed);
+        data.clear();
+        return new BinaryMesh(data);
+    }
+
+    /**
+     * Copies the specified vertex's coordinates from the given attribute to
+     * the given position of the vertex. If the attribute is null, it fills
+     * the coordinates with zeros.
+     *
+     * @param attribute vertex attribute (3 floats per vertex)
+     * @param vertex    the vertex's index
+     * @param dest      the vertex (12 floats)
+     * @param offset    the attribute's position in the vertex
+     */
+    private static void getCoordinates(@Nullable FloatBuffer attribute, int vertex, @NotNull float[] dest, int offset) {
+        for (int i = 0; i < COORDINATE_SIZE; i++) {
+            dest[offset + i] = attribute == null ? 0 : attribute.get(attribute.position() + vertex * COORDINATE_SIZE + i);
+        }
+    }
+
+    /**
+     * Puts the given vertex to the data's actual position.
+     *
+     * @param data       the destination
+     * @param vertex     the vertex's position, texture coordinates, normal
+     *                   vector and tangent vector (12 floats)
+     * @param compressed true if the vertex should be compressed, false
+     *                   otherwise
+     */
+    private static void putVertex(@NotNull ByteBuffer data, @NotNull float[] vertex, boolean compressed) {
+        data.putFloat(vertex[0]).putFloat(vertex[1]).putFloat(vertex[2]);
+        if (compressed) {
+            data.putShort(VertexCompression.toHalfFloat(vertex[3]));
+            data.putShort(VertexCompression.toHalfFloat(vertex[4]));
+            data.putInt(VertexCompression.packDirection(vertex[6], vertex[7], vertex[8], 1));
+            data.putInt(VertexCompression.packDirection(vertex[9], vertex[10], vertex[11], 1));
+        } else {
+            for (int i = 3; i < vertex.length; i++) {
+                data.putFloat(vertex[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the specified vertex from the vertex block.
+     *
+     * @param index  the vertex's index
+     * @param dest   will hold the vertex's position, texture coordinates,
+     *               normal vector and tangent vector (12 floats)
+     * @param packed temporary vector for the packed directions
+     */
+    private void getVertex(int index, @NotNull float[] dest, @NotNull Vector4f packed) {
+        int offset = HEADER_SIZE + index * getVertexSize();
+        for (int i = 0; i < COORDINATE_SIZE; i++) {
+            dest[i] = data.getFloat(offset + i * Float.BYTES);
+        }
+        if (compressed) {
+            dest[3] = VertexCompression.toFloat(data.getShort(offset + 12));
+            dest[4] = VertexCompression.toFloat(data.getShort(offset + 14));
+            dest[5] = 0;
+            VertexCompression.unpackDirection(data.getInt(offset + 16), packed);
+            dest[6] = packed.x;
+            dest[7] = packed.y;
+            dest[8] = packed.z;
+            VertexCompression.unpackDirection(data.getInt(offset + 20), packed);
+            dest[9] = packed.x;
+            dest[10] = packed.y;
+            dest[11] = packed.z;
+        } else {
+            for (int i = 3; i < dest.length; i++) {
+                dest[i] = data.getFloat(offset + i * Float.BYTES);
+            }
+        }
+    }
+
+    /**
+     * Computes the AABB and the furthest vertex distance, and writes the
+     * header to the beginning of the given data.
+     *
+     * @param data               binary mesh's data
+     * @param positions          the vertices' positions
+     * @param numberOfVertices   number of vertices
+     * @param numberOfIndices    number of indices
+     * @param numberOfMeshes     the number of the meshes in the model file
+     * @param sourceLastModified the model file's last modification time
+     * @param numberOfLods       number of levels of detail
+     * @param compressed         true if the vertices are compressed, false
+     *                           otherwise
+     */
+    private static void writeHeader(@NotNull ByteBuffer data, @NotNull FloatBuffer positions, int numberOfVertices, int numberOfIndices, int numberOfMeshes, long sourceLastModified, int numberOfLods, boolean compressed) {
+        float max = 0;
+        Vector3f aabbMin = new Vector3f();
+        Vector3f aabbMax = new Vector3f();
+        Vector3f currentVec = new Vector3f();
+        int offset = positions.position();
+        for (int i = 0; i < numberOfVertices; i++) {
+            int index = offset + i * COORDINATE_SIZE;
+            currentVec.set(positions.get(index), positions.get(index + 1), positions.get(index + 2));
+            max = java.lang.Math.max(max, currentVec.length());
+            aabbMin.min(currentVec);
+            aabbMax.max(currentVec);
+        }
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, numberOfVertices);
+        data.putInt(12, numberOfIndices);
+        data.putInt(16, numberOfMeshes);
+        data.putFloat(20, max);
+        data.putFloat(24, aabbMin.x).putFloat(28, aabbMin.y).putFloat(32, aabbMin.z);
+        data.putFloat(36, aabbMax.x).putFloat(40, aabbMax.y).putFloat(44, aabbMax.z);
+        data.putLong(48, sourceLastModified);
+        data.putInt(56, numberOfLods);
+        data.putInt(60, compressed ? 1 : 0);
+    }
+
+    /**
+     * Computes the binary mesh's size.
+     *
+     * @param numberOfVertices number of vertices
+     * @param numberOfIndices  number of indices
+     * @param numberOfLods     number of levels of detail
+     * @param compressed       true if the vertices are compressed, false
+     *                         otherwise
+     *
+     * @return the binary mesh's size (in bytes)
+     */
+    private static int computeSize(int numberOfVertices, int numberOfIndices, int numberOfLods, boolean compressed) {
+        return HEADER_SIZE + numberOfVertices * getVertexSize(compressed)
+                + numberOfIndices * getIndexSize(numberOfVertices, compressed) + numberOfLods * LOD_SIZE;
+    }
+
+    /**
+     * Returns the size of a vertex in the given format.
+     *
+     * @param compressed true if the vertices are compressed, false otherwise
+     *
+     * @return the size of a vertex (in bytes)
+     */
+    public static int getVertexSize(boolean compressed) {
+        return compressed ? COMPRESSED_VERTEX_SIZE : VERTEX_SIZE;
+    }
+
+    /**
+     * Determines whether the mesh with the given number of vertices and
+     * vertex format uses 16 bit indices.
+     *
+     * @param numberOfVertices number of vertices
+     * @param compressed       true if the vertices are compressed, false
+     *                         otherwise
+     *
+     * @return true if the mesh uses 16 bit indices, false otherwise
+     */
+    public static boolean isShortIndexed(int numberOfVertices, boolean compressed) {
+        return compressed && VertexCompression.isShortIndexable(numberOfVertices);
+    }
+
+    /**
+     * Returns the size of an index of the mesh with the given number of
+     * vertices and vertex format.
+     *
+     * @param numberOfVertices number of vertices
+     * @param compressed       true if the vertices are compressed, false
+     *                         otherwise
+     *
+     * @return the size of an index (in bytes)
+     */
+    public static int getIndexSize(int numberOfVertices, boolean compressed) {
+        return isShortIndexed(numberOfVertices, compressed) ? Short.BYTES : Integer.BYTES;
+    }
+
+    //
+    //loading-saving------------------------------------------------------------
+    //
+    /**
+     * Maps the given binary mesh file to the memory. The mapping stays valid
+     * until the returned object is garbage collected.
+     *
+     * @param file binary mesh file
+     *
+     * @return the binary mesh
+     *
+     * @throws NullPointerException     file can't be null
+     * @throws IOException              the file can't be read
+     * @throws IllegalArgumentException the file isn't a valid binary mesh
+     */
+    @NotNull
+    public static BinaryMesh map(@NotNull File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new BinaryMesh(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Maps the specified mesh's binary mesh file to the memory if it exists,
+     * it's up to date and it stores the vertices in the given format.
+     *
+     * @param source     the model file
+     * @param index      the mesh's index in the model file
+     * @param compressed true if the vertices should be compressed, false
+     *                   otherwise
+     *
+     * @return the binary mesh, or null if the binary mesh file doesn't exist,
+     *         it's invalid, it's older than the model file or it stores the
+     *         vertices in the other format
+     *
+     * @throws NullPointerException source can't be null
+     */
+    @Nullable
+    public static BinaryMesh mapIfValid(@NotNull File source, int index, boolean compressed) {
+        File file = getBinaryMeshFile(source, index);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            BinaryMesh mesh = map(file);
+            return mesh.getSourceLastModified() == source.lastModified() && mesh.isCompressed() == compressed ? mesh : null;
+        } catch (IOException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the binary mesh to the given file. It writes a temporary file
+     * first and then renames it, so the readers never see a partially written
+     * file.
+     *
+     * @param file binary mesh file
+     *
+     * @throws NullPointerException file can't be null
+     * @throws IOException          the file can't be written
+     */
+    public void write(@NotNull File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        Path temporary = Files.createTempFile(file.getAbsoluteFile().toPath().getParent(), file.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = data.duplicate();
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns the specified mesh's binary mesh file. It's next to the model
+     * file (like "res/models/myModel.obj.0.wmesh").
+     *
+     * @param source the model file
+     * @param index  the mesh's index in the model file
+     *
+     * @return the specified mesh's binary mesh file
+     *
+     * @throws NullPointerException source can't be null
+     */
+    @NotNull
+    public static File getBinaryMeshFile(@NotNull File source, int index) {
+        if (source == null) {
+            throw new NullPointerException();
+        }
+        return new File(source.getPath() + "." + index + EXTENSION);
+    }
+
+    //
+    //data----------------------------------------------------------------------
+    //
+    /**
+     * Returns the interleaved vertices, in the same layout as they're stored
+     * in the VRAM. If the binary mesh is mapped from file, it doesn't copy the
+     * data.
+     *
+     * @return the interleaved vertices
+     *
+     * @see #isCompressed()
+     */
+    @NotNull @ReadOnly
+    public ByteBuffer getVertices() {
+        return getBlock(HEADER_SIZE, computeSize(numberOfVertices, 0, 0, compressed));
+    }
+
+    /**
+     * Returns the triangles' indices, in the same layout as they're stored in
+     * the VRAM. It contains all the levels of detail's indices, one after the
+     * other. If the binary mesh is mapped from file, it doesn't copy the data.
+     *
+     * @return the triangles' indices
+     *
+     * @see #isShortIndexed()
+     */
+    @NotNull @ReadOnly
+    public ByteBuffer getIndices() {
+        return getBlock(computeSize(numberOfVertices, 0, 0, compressed), computeSize(numberOfVertices, numberOfIndices, 0, compressed));
+    }
+
+    /**
+     * Puts the vertices to the given buffer's actual position in the given
+     * format. The buffer's byte order is kept. It's slower than using the
+     * vertices directly, so use it only if the vertices have to be converted
+     * to the other format.
+     *
+     * @param dest       will hold the vertices
+     * @param compressed true if the vertices should be compressed, false
+     *                   otherwise
+     *
+     * @throws NullPointerException    dest can't be null
+     * @throws BufferOverflowException the buffer doesn't have enough space
+     *
+     * @see #getVertices()
+     * @see #getVertexSize(boolean)
+     */
+    public void putVertices(@NotNull ByteBuffer dest, boolean compressed) {
+        if (dest == null) {
+            throw new NullPointerException();
+        }
+        float[] vertex = new float[VERTEX_SIZE / Float.BYTES];
+        Vector4f packed = new Vector4f();
+        for (int i = 0; i < numberOfVertices; i++) {
+            getVertex(i, vertex, packed);
+            putVertex(dest, vertex, compressed);
+        }
+    }
+
+    /**
+     * Puts the indices to the given buffer's actual position in the format
+     * used by the given vertex format. The buffer's byte order is kept. It's
+     * slower than using the indices directly, so use it only if the indices
+     * have to be converted to the other format.
+     *
+     * @param dest       will hold the indices
+     * @param compressed true if the indices should be compressed, false
+     *                   otherwise
+     *
+     * @throws NullPointerException    dest can't be null
+     * @throws BufferOverflowException the buffer doesn't have enough space
+     *
+     * @see #getIndices()
+     * @see #isShortIndexed(int, boolean)
+     */
+    public void putIndices(@NotNull ByteBuffer dest, boolean compressed) {
+        if (dest == null) {
+            throw new NullPointerException();
+        }
+        boolean shortIndexed = isShortIndexed(numberOfVertices, compressed);
+        for (int i = 0; i < numberOfIndices; i++) {
+            if (shortIndexed) {
+                dest.putShort((short) getIndex(i));
+            } else {
+                dest.putInt(getIndex(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the specified range of the data.
+     *
+     * @param from the range's first byte
+     * @param to   the range's end (exclusive)
+     *
+     * @return the specified range of the data
+     */
+    @NotNull
+    private ByteBuffer getBlock(int from, int to) {
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(from).limit(to);
+        return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the specified index.
+     *
+     * @param index the index's position in the indices
+     *
+     * @return the specified index
+     *
+     * @throws IndexOutOfBoundsException the index doesn't exist
+     */
+    public int getIndex(int index) {
+        if (index < 0 || index >= numberOfIndices) {
+            throw new IndexOutOfBoundsException();
+        }
+        int offset = computeSize(numberOfVertices, 0, 0, compressed);
+        if (isShortIndexed()) {
+            return data.getShort(offset + index * Short.BYTES) & 0xFFFF;
+        } else {
+            return data.getInt(offset + index * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Returns the given level of detail's indices.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's indices
+     *
+     * @throws ArrayIndexOutOfBoundsException the level of detail doesn't exist
+     */
+    @NotNull
+    public int[] getLodIndices(int lod) {
+        int[] indices = new int[lodNumberOfIndices[lod]];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = getIndex(lodFirstIndices[lod] + i);
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the vertices' positions (3 floats per vertex). It copies the
+     * positions from the interleaved vertices.
+     *
+     * @return the vertices' positions
+     */
+    @NotNull
+    public float[] getPositions() {
+        float[] positions = new float[numberOfVertices * COORDINATE_SIZE];
+        int vertexSize = getVertexSize();
+        for (int i = 0; i < numberOfVertices; i++) {
+            int offset = HEADER_SIZE + i * vertexSize;
+            for (int j = 0; j < COORDINATE_SIZE; j++) {
+                positions[i * COORDINATE_SIZE + j] = data.getFloat(offset + j * Float.BYTES);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Determines whether the vertices are compressed.
+     *
+     * @return true if the vertices are compressed, false otherwise
+     *
+     * @see VertexCompression
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Determines whether the indices are 16 bit integers.
+     *
+     * @return true if the indices are 16 bit integers, false if they're 32 bit
+     *         integers
+     */
+    public boolean isShortIndexed() {
+        return isShortIndexed(numberOfVertices, compressed);
+    }
+
+    /**
+     * Returns the size of a vertex.
+     *
+     * @return the size of a vertex (in bytes)
+     */
+    public int getVertexSize() {
+        return getVertexSize(compressed);
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    /**
+     * Returns the number of indices.
+     *
+     * @return the number of indices
+     */
+    public int getNumberOfIndices() {
+        return numberOfIndices;
+    }
+
+    /**
+     * Returns the number of levels of detail.
+     *
+     * @return the number of levels of detail
+     */
+    public int getNumberOfLods() {
+        return lodFirstIndices.length;
+    }
+
+    /**
+     * Returns the given level of detail's first index in the indices.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's first index
+     *
+     * @throws ArrayIndexOutOfBoundsException the level of detail doesn't exist
+     */
+    public int getLodFirstIndex(int lod) {
+        return lodFirstIndices[lod];
+    }
+
+    /**
+     * Returns the given level of detail's number of indices.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's number of indices
+     *
+     * @throws ArrayIndexOutOfBoundsException the level of detail doesn't exist
+     */
+    public int getLodNumberOfIndices(int lod) {
+        return lodNumberOfIndices[lod];
+    }
+
+    /**
+     * Returns the given level of detail's screen size.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's screen size
+     *
+     * @throws ArrayIndexOutOfBoundsException the level of detail doesn't exist
+     *
+     * @see Mesh#getLodScreenSize(int)
+     */
+    public float getLodScreenSize(int lod) {
+        return lodScreenSizes[lod];
+    }
+
+    /**
+     * Returns the number of the meshes in the model file.
+     *
+     * @return the number of the meshes in the model file
+     */
+    public int getNumberOfMeshes() {
+        return numberOfMeshes;
+    }
+
+    /**
+     * Returns the furthest vertex's distance from the origin.
+     *
+     * @return the furthest vertex distance
+     */
+    public float getFurthestVertexDistance() {
+        return furthestVertexDistance;
+    }
+
+    /**
+     * Returns the axis alligned bounding box's min x, y and z values.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getAabbMin(@NotNull Vector3f dest) {
+        return dest.set(aabbMin);
+    }
+
+    /**
+     * Returns the axis alligned bounding box's max x, y and z values.
+     *
+     * @param dest will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public Vector3f getAabbMax(@NotNull Vector3f dest) {
+        return dest.set(aabbMax);
+    }
+
+    /**
+     * Returns the model file's last modification time.
+     *
+     * @return the model file's last modification time (in miliseconds)
+     */
+    public long getSourceLastModified() {
+        return sourceLastModified;
+    }
+
+    /**
+     * Returns the vertex attributes' and the indices' size.
+     *
+     * @return the mesh's data size (in bytes)
+     */
+    public int getDataSize() {
+        return data.capacity() - HEADER_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryMesh{" + "numberOfVertices=" + numberOfVertices
+                + ", numberOfIndices=" + numberOfIndices + ", numberOfMeshes="
+                + numberOfMeshes + ", furthestVertexDistance="
+                + furthestVertexDistance + ", aabbMin=" + aabbMin + ", aabbMax="
+                + aabbMax + ", sourceLastModified=" + sourceLastModified
+                + ", lodNumberOfIndices=" + Arrays.toString(lodNumberOfIndices)
+                + ", compressed=" + compressed + '}';
+    }
+
+}
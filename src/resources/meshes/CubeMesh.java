@@ -1,10 +1,13 @@
 package resources.meshes;
 
+import java.nio.*;
 import java.util.*;
 import org.joml.Math;
 import org.joml.*;
 import org.lwjgl.opengl.*;
+import rendering.geometry.*;
 import resources.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -98,6 +101,8 @@ public class CubeMesh implements Mesh {
             //position
             vao.createVbo("position");
             vao.bindAndAddData("position", 0, 3, positions, false);
+            //instances
+            vao.createVbo("instances");
             vao.unbindVao();
         }
     }
@@ -120,13 +125,25 @@ public class CubeMesh implements Mesh {
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMin() {
-        return new Vector3f(-1, -1, -1);
+        return getAabbMin(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMin(@NotNull Vector3f dest) {
+        return dest.set(-1, -1, -1);
     }
 
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMax() {
-        return new Vector3f(1, 1, 1);
+        return getAabbMax(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMax(@NotNull Vector3f dest) {
+        return dest.set(1, 1, 1);
     }
 
     @Override
@@ -142,7 +159,17 @@ public class CubeMesh implements Mesh {
             loadData();
             vao.bindVao();
         }
-        GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, getVertexCount());
+        OpenGl.getBackend().drawArrays(GL11.GL_TRIANGLES, 0, getVertexCount());
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount) {
+        if (vao == null || !vao.isUsable()) {
+            loadData();
+            vao.bindVao();
+        }
+        vao.bindAndAddInstanceData("instances", FIRST_INSTANCE_ATTRIBUTE_NUMBER, NUMBER_OF_INSTANCE_ATTRIBUTES, 4, instanceData);
+        OpenGl.getBackend().drawArraysInstanced(GL11.GL_TRIANGLES, 0, getVertexCount(), instanceCount);
     }
 
     @Override
@@ -152,6 +179,49 @@ public class CubeMesh implements Mesh {
         }
     }
 
+    @Override
+    public int getNumberOfLods() {
+        return 1;
+    }
+
+    @Override
+    public float getLodScreenSize(int lod) {
+        checkLod(lod);
+        return Float.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public int getFaceCount(int lod) {
+        checkLod(lod);
+        return getFaceCount();
+    }
+
+    @Override
+    public void draw(int lod) {
+        checkLod(lod);
+        draw();
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount, int lod) {
+        checkLod(lod);
+        drawInstanced(instanceData, instanceCount);
+    }
+
+    /**
+     * Checks whether the given level of detail exists. This mesh has only one
+     * level of detail.
+     *
+     * @param lod level of detail
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    private void checkLod(int lod) {
+        if (lod != 0) {
+            throw new IllegalArgumentException("Level of detail must be 0");
+        }
+    }
+
     @Override
     public int getDataSizeInRam() {
         return positions.length * 4;
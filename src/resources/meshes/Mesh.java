@@ -1,12 +1,23 @@
 package resources.meshes;
 
+import java.nio.*;
 import resources.*;
+import toolbox.annotations.*;
 
 /**
  * Interface for meshes.
  */
 public interface Mesh extends Renderable {
 
+    /**
+     * The first attribute number of the per instance data.
+     */
+    public static final int FIRST_INSTANCE_ATTRIBUTE_NUMBER = 4;
+    /**
+     * The number of vec4 attributes used by an instance.
+     */
+    public static final int NUMBER_OF_INSTANCE_ATTRIBUTES = 8;
+
     /**
      * Returns the mseh's triangle count.
      *
@@ -14,4 +25,73 @@ public interface Mesh extends Renderable {
      */
     public int getFaceCount();
 
+    /**
+     * Draws the given number of instances of the mesh with only one draw call.
+     * The per instance data have to be in the InstanceBatcher's layout.
+     *
+     * @param instanceData  the instances' data
+     * @param instanceCount number of the instances
+     *
+     * @see rendering.geometry.InstanceBatcher
+     */
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount);
+
+    /**
+     * Returns the number of the mesh's levels of detail. The first level is
+     * the most detailed.
+     *
+     * @return the number of levels of detail
+     */
+    public int getNumberOfLods();
+
+    /**
+     * Returns the given level of detail's screen size. The level of detail
+     * should be used if the mesh's projected size is smaller than this value,
+     * but larger than the next level's screen size. The screen size is the
+     * mesh's bounding sphere's projected radius divided by the half of the
+     * screen's height. The first level's screen size is infinite.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's screen size
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    public float getLodScreenSize(int lod);
+
+    /**
+     * Returns the given level of detail's triangle count.
+     *
+     * @param lod level of detail
+     *
+     * @return triangle count
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    public int getFaceCount(int lod);
+
+    /**
+     * Draws the given level of detail of the mesh.
+     *
+     * @param lod level of detail
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    public void draw(int lod);
+
+    /**
+     * Draws the given number of instances of the mesh's given level of detail
+     * with only one draw call. The per instance data have to be in the
+     * InstanceBatcher's layout.
+     *
+     * @param instanceData  the instances' data
+     * @param instanceCount number of the instances
+     * @param lod           level of detail
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     *
+     * @see rendering.geometry.InstanceBatcher
+     */
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount, int lod);
+
 }
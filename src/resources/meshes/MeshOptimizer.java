@@ -0,0 +1,562 @@
+package resources.meshes;
+
+import java.nio.*;
+import java.util.*;
+import toolbox.annotations.*;
+
+/**
+ * Optimizes the triangle meshes for the GPU at import time. It reorders the
+ * triangles for the post-transform vertex cache (Tipsify), reorders the
+ * resulting clusters to reduce the overdraw (the outer clusters, which are
+ * likely to occlude the others, are drawn first), and reorders the vertices
+ * in the order of their first use, so the vertex fetch reads the vertex
+ * buffer almost sequentially. It can also measure the meshes' vertex cache
+ * efficiency (ACMR and ATVR) by simulating a FIFO vertex cache. It doesn't use
+ * OpenGL.
+ *
+ * @see MeshSimplifier
+ * @see BinaryMesh
+ */
+public class MeshOptimizer {
+
+    /**
+     * The simulated post-transform vertex cache's size (in vertices).
+     */
+    public static final int CACHE_SIZE = 16;
+    /**
+     * A cluster is split only if the part's ACMR is at most this ratio of the
+     * whole cluster's ACMR, so the overdraw optimization barely reduces the
+     * vertex cache efficiency.
+     */
+    private static final float OVERDRAW_THRESHOLD = 1.05f;
+
+    /**
+     * To can't create MeshOptimizer instance.
+     */
+    private MeshOptimizer() {
+    }
+
+    //
+    //triangle order------------------------------------------------------------
+    //
+    /**
+     * Reorders the given levels of detail's triangles for the vertex cache and
+     * to reduce the overdraw. The levels of detail's vertices are not
+     * changed, only the triangles' order.
+     *
+     * @param positions the vertices' positions (3 floats per vertex)
+     * @param lods      the levels of detail's indices
+     *
+     * @return the levels of detail's reordered indices
+     *
+     * @throws NullPointerException     positions and the levels of detail
+     *                                  can't be null
+     * @throws IllegalArgumentException the positions' size has to be divisible
+     *                                  by 3 and the indices' size has to be
+     *                                  divisible by 3
+     */
+    @NotNull
+    public static List<IntBuffer> optimizeTriangleOrder(@NotNull FloatBuffer positions, @NotNull List<IntBuffer> lods) {
+        float[] vertices = toArray(positions);
+        if (vertices.length % 3 != 0) {
+            throw new IllegalArgumentException("The positions' size has to be divisible by 3");
+        }
+        List<IntBuffer> result = new ArrayList<>(lods.size());
+        for (IntBuffer lod : lods) {
+            result.add(IntBuffer.wrap(optimizeTriangleOrder(vertices, toArray(lod))));
+        }
+        return result;
+    }
+
+    /**
+     * Reorders the given triangles for the vertex cache and to reduce the
+     * overdraw.
+     *
+     * @param positions the vertices' positions (3 floats per vertex)
+     * @param indices   the triangles' indices
+     *
+     * @return the reordered indices
+     *
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3
+     */
+    @NotNull
+    private static int[] optimizeTriangleOrder(@NotNull float[] positions, @NotNull int[] indices) {
+        List<Integer> clusters = new ArrayList<>();
+        int[] ordered = tipsify(indices, positions.length / 3, CACHE_SIZE, clusters);
+        return optimizeOverdraw(positions, ordered, splitClusters(ordered, positions.length / 3, clusters));
+    }
+
+    /**
+     * Reorders the given triangles for the vertex cache with the Tipsify
+     * algorithm.
+     *
+     * @param indices          the triangles' indices
+     * @param numberOfVertices the number of the vertices
+     *
+     * @return the reordered indices
+     *
+     * @throws NullPointerException     indices can't be null
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3 and the indices have to be in the
+     *                                  [0;number of vertices) interval
+     */
+    @NotNull
+    public static int[] optimizeVertexCache(@NotNull int[] indices, int numberOfVertices) {
+        return tipsify(indices, numberOfVertices, CACHE_SIZE, new ArrayList<>());
+    }
+
+    /**
+     * Reorders the given triangles for the vertex cache with the Tipsify
+     * algorithm. It fans around a vertex, and selects the next fanning vertex
+     * from the last triangles' vertices which are still in the cache. If
+     * there is no such a vertex (dead end), it continues with a recently used
+     * vertex or with the first vertex with remaining triangles, and the
+     * triangles after that are a new cluster.
+     *
+     * @param indices          the triangles' indices
+     * @param numberOfVertices the number of the vertices
+     * @param cacheSize        the vertex cache's size
+     * @param clusters         will hold the clusters' first triangles
+     *
+     * @return the reordered indices
+     *
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3 and the indices have to be in the
+     *                                  [0;number of vertices) interval
+     */
+    @NotNull
+    private static int[] tipsify(@NotNull int[] indices, int numberOfVertices, int cacheSize, @NotNull List<Integer> clusters) {
+        int[][] adjacency = computeAdjacency(indices, numberOfVertices);
+        int[] liveTriangles = new int[numberOfVertices];
+        for (int i = 0; i < numberOfVertices; i++) {
+            liveTriangles[i] = adjacency[i].length;
+        }
+        int[] cacheTimes = new int[numberOfVertices];
+        boolean[] emitted = new boolean[indices.length / 3];
+        int[] deadEnds = new int[indices.length];
+        int numberOfDeadEnds = 0;
+        int[] candidates = new int[indices.length];
+        int[] result = new int[indices.length];
+        int resultSize = 0;
+        int time = cacheSize + 1;
+        int cursor = 0;
+        int fanningVertex = numberOfVertices == 0 ? -1 : 0;
+        boolean newCluster = true;
+        while (fanningVertex >= 0) {
+            int numberOfCandidates = 0;
+            for (int triangle : adjacency[fanningVertex]) {
+                if (emitted[triangle]) {
+                    continue;
+                }
+                if (newCluster) {
+                    clusters.add(resultSize / 3);
+                    newCluster = false;
+                }
+                for (int i = 0; i < 3; i++) {
+                    int vertex = indices[triangle * 3 + i];
+                    result[resultSize++] = vertex;
+                    deadEnds[numberOfDeadEnds++] = vertex;
+                    candidates[numberOfCandidates++] = vertex;
+                    liveTriangles[vertex]--;
+                    if (time - cacheTimes[vertex] > cacheSize) {
+                        cacheTimes[vertex] = time++;
+                    }
+                }
+                emitted[triangle] = true;
+            }
+            //the best candidate is in the cache and stays there while its remaining triangles are emitted
+            int next = -1;
+            int bestPriority = -1;
+            for (int i = 0; i < numberOfCandidates; i++) {
+                int vertex = candidates[i];
+                if (liveTriangles[vertex] > 0) {
+                    int priority = 0;
+                    if (time - cacheTimes[vertex] + 2 * liveTriangles[vertex] <= cacheSize) {
+                        priority = time - cacheTimes[vertex];
+                    }
+                    if (priority > bestPriority) {
+                        bestPriority = priority;
+                        next = vertex;
+                    }
+                }
+            }
+            if (next == -1) {
+                //dead end
+                newCluster = true;
+                while (numberOfDeadEnds > 0 && next == -1) {
+                    int vertex = deadEnds[--numberOfDeadEnds];
+                    if (liveTriangles[vertex] > 0) {
+                        next = vertex;
+                    }
+                }
+                while (cursor < numberOfVertices && next == -1) {
+                    if (liveTriangles[cursor] > 0) {
+                        next = cursor;
+                    }
+                    cursor++;
+                }
+            }
+            fanningVertex = next;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the triangles which use the vertices.
+     *
+     * @param indices          the triangles' indices
+     * @param numberOfVertices the number of the vertices
+     *
+     * @return the vertices' triangles
+     *
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3 and the indices have to be in the
+     *                                  [0;number of vertices) interval
+     */
+    @NotNull
+    private static int[][] computeAdjacency(@NotNull int[] indices, int numberOfVertices) {
+        checkIndices(indices, numberOfVertices);
+        int[] counts = new int[numberOfVertices];
+        for (int index : indices) {
+            counts[index]++;
+        }
+        int[][] adjacency = new int[numberOfVertices][];
+        for (int i = 0; i < numberOfVertices; i++) {
+            adjacency[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < indices.length; i++) {
+            int vertex = indices[i];
+            adjacency[vertex][counts[vertex]++] = i / 3;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Splits the given clusters where the cluster's first part's ACMR is close
+     * enough to the whole cluster's ACMR. The smaller clusters make the
+     * overdraw optimization more effective.
+     *
+     * @param indices          the reordered triangles' indices
+     * @param numberOfVertices the number of the vertices
+     * @param clusters         the clusters' first triangles
+     *
+     * @return the split clusters' first triangles
+     */
+    @NotNull
+    private static List<Integer> splitClusters(@NotNull int[] indices, int numberOfVertices, @NotNull List<Integer> clusters) {
+        List<Integer> result = new ArrayList<>();
+        int numberOfTriangles = indices.length / 3;
+        int[] cacheTimes = new int[numberOfVertices];
+        int time = CACHE_SIZE + 1;
+        for (int i = 0; i < clusters.size(); i++) {
+            int start = clusters.get(i);
+            int end = i + 1 < clusters.size() ? clusters.get(i + 1) : numberOfTriangles;
+            time += CACHE_SIZE + 1;
+            int clusterMisses = 0;
+            for (int j = start * 3; j < end * 3; j++) {
+                if (time - cacheTimes[indices[j]] > CACHE_SIZE) {
+                    cacheTimes[indices[j]] = time++;
+                    clusterMisses++;
+                }
+            }
+            float threshold = clusterMisses / (float) (end - start) * OVERDRAW_THRESHOLD;
+            result.add(start);
+            time += CACHE_SIZE + 1;
+            int partStart = start;
+            int misses = 0;
+            for (int j = start; j < end; j++) {
+                for (int k = 0; k < 3; k++) {
+                    int vertex = indices[j * 3 + k];
+                    if (time - cacheTimes[vertex] > CACHE_SIZE) {
+                        cacheTimes[vertex] = time++;
+                        misses++;
+                    }
+                }
+                if (j + 1 < end && misses / (float) (j + 1 - partStart) <= threshold) {
+                    result.add(j + 1);
+                    partStart = j + 1;
+                    misses = 0;
+                    time += CACHE_SIZE + 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reorders the given clusters to reduce the overdraw. The clusters which
+     * face outwards and are far from the mesh's center are likely to occlude
+     * the other clusters, so they're drawn first.
+     *
+     * @param positions the vertices' positions (3 floats per vertex)
+     * @param indices   the triangles' indices
+     * @param clusters  the clusters' first triangles
+     *
+     * @return the reordered indices
+     */
+    @NotNull
+    private static int[] optimizeOverdraw(@NotNull float[] positions, @NotNull int[] indices, @NotNull List<Integer> clusters) {
+        int numberOfTriangles = indices.length / 3;
+        float[] centroid = new float[3];
+        float totalArea = 0;
+        float[] areas = new float[numberOfTriangles];
+        float[] normals = new float[numberOfTriangles * 3];
+        float[] centroids = new float[numberOfTriangles * 3];
+        for (int i = 0; i < numberOfTriangles; i++) {
+            int a = indices[i * 3] * 3;
+            int b = indices[i * 3 + 1] * 3;
+            int c = indices[i * 3 + 2] * 3;
+            float e1x = positions[b] - positions[a];
+            float e1y = positions[b + 1] - positions[a + 1];
+            float e1z = positions[b + 2] - positions[a + 2];
+            float e2x = positions[c] - positions[a];
+            float e2y = positions[c + 1] - positions[a + 1];
+            float e2z = positions[c + 2] - positions[a + 2];
+            //the cross product's length is twice the area, so the normals are area weighted
+            normals[i * 3] = e1y * e2z - e1z * e2y;
+            normals[i * 3 + 1] = e1z * e2x - e1x * e2z;
+            normals[i * 3 + 2] = e1x * e2y - e1y * e2x;
+            areas[i] = (float) java.lang.Math.sqrt(normals[i * 3] * normals[i * 3] + normals[i * 3 + 1] * normals[i * 3 + 1] + normals[i * 3 + 2] * normals[i * 3 + 2]);
+            for (int j = 0; j < 3; j++) {
+                centroids[i * 3 + j] = (positions[a + j] + positions[b + j] + positions[c + j]) / 3;
+                centroid[j] += centroids[i * 3 + j] * areas[i];
+            }
+            totalArea += areas[i];
+        }
+        if (totalArea > 0) {
+            for (int j = 0; j < 3; j++) {
+                centroid[j] /= totalArea;
+            }
+        }
+        int numberOfClusters = clusters.size();
+        float[] sortKeys = new float[numberOfClusters];
+        Integer[] order = new Integer[numberOfClusters];
+        for (int i = 0; i < numberOfClusters; i++) {
+            int start = clusters.get(i);
+            int end = i + 1 < numberOfClusters ? clusters.get(i + 1) : numberOfTriangles;
+            float[] clusterCentroid = new float[3];
+            float[] clusterNormal = new float[3];
+            float clusterArea = 0;
+            for (int j = start; j < end; j++) {
+                for (int k = 0; k < 3; k++) {
+                    clusterCentroid[k] += centroids[j * 3 + k] * areas[j];
+                    clusterNormal[k] += normals[j * 3 + k];
+                }
+                clusterArea += areas[j];
+            }
+            float normalLength = (float) java.lang.Math.sqrt(clusterNormal[0] * clusterNormal[0] + clusterNormal[1] * clusterNormal[1] + clusterNormal[2] * clusterNormal[2]);
+            float key = 0;
+            if (clusterArea > 0 && normalLength > 0) {
+                for (int k = 0; k < 3; k++) {
+                    key += (clusterCentroid[k] / clusterArea - centroid[k]) * clusterNormal[k] / normalLength;
+                }
+            }
+            sortKeys[i] = key;
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Float.compare(sortKeys[second], sortKeys[first]));
+        int[] result = new int[indices.length];
+        int resultSize = 0;
+        for (int cluster : order) {
+            int start = clusters.get(cluster);
+            int end = cluster + 1 < numberOfClusters ? clusters.get(cluster + 1) : numberOfTriangles;
+            System.arraycopy(indices, start * 3, result, resultSize, (end - start) * 3);
+            resultSize += (end - start) * 3;
+        }
+        return result;
+    }
+
+    //
+    //vertex order--------------------------------------------------------------
+    //
+    /**
+     * Reorders the vertices in the order of their first use in the given
+     * levels of detail (starting with the first level), and changes the
+     * levels of detail's indices accordingly. The unused vertices are moved
+     * to the end. You should apply the returned remap table to all of the
+     * vertex attributes.
+     *
+     * @param lods             the levels of detail's indices, they're changed
+     *                         in place
+     * @param numberOfVertices the number of the vertices
+     *
+     * @return the remap table, the i-th vertex's new index
+     *
+     * @throws NullPointerException     the levels of detail can't be null
+     * @throws IllegalArgumentException the indices have to be in the
+     *                                  [0;number of vertices) interval
+     *
+     * @see #remapVertices(FloatBuffer, int[])
+     */
+    @NotNull
+    public static int[] optimizeVertexFetch(@NotNull List<IntBuffer> lods, int numberOfVertices) {
+        int[] remap = new int[numberOfVertices];
+        Arrays.fill(remap, -1);
+        int nextVertex = 0;
+        for (IntBuffer lod : lods) {
+            for (int i = lod.position(); i < lod.limit(); i++) {
+                int vertex = lod.get(i);
+                if (vertex < 0 || vertex >= numberOfVertices) {
+                    throw new IllegalArgumentException("Index must be in the [0;" + (numberOfVertices - 1) + "] interval");
+                }
+                if (remap[vertex] == -1) {
+                    remap[vertex] = nextVertex++;
+                }
+                lod.put(i, remap[vertex]);
+            }
+        }
+        for (int i = 0; i < numberOfVertices; i++) {
+            if (remap[i] == -1) {
+                remap[i] = nextVertex++;
+            }
+        }
+        return remap;
+    }
+
+    /**
+     * Reorders the given vertex attribute with the given remap table.
+     *
+     * @param attribute the vertex attribute (3 floats per vertex)
+     * @param remap     the remap table, the i-th vertex's new index
+     *
+     * @return the reordered vertex attribute, or null if the attribute is null
+     *
+     * @throws NullPointerException     remap table can't be null
+     * @throws IllegalArgumentException the attribute's size has to be 3 times
+     *                                  the remap table's size
+     *
+     * @see #optimizeVertexFetch(List, int)
+     */
+    @Nullable
+    public static FloatBuffer remapVertices(@Nullable FloatBuffer attribute, @NotNull int[] remap) {
+        if (attribute == null) {
+            return null;
+        }
+        if (attribute.remaining() != remap.length * 3) {
+            throw new IllegalArgumentException("The attribute's size has to be 3 times the remap table's size");
+        }
+        float[] result = new float[attribute.remaining()];
+        int offset = attribute.position();
+        for (int i = 0; i < remap.length; i++) {
+            for (int j = 0; j < 3; j++) {
+                result[remap[i] * 3 + j] = attribute.get(offset + i * 3 + j);
+            }
+        }
+        return FloatBuffer.wrap(result);
+    }
+
+    //
+    //statistics----------------------------------------------------------------
+    //
+    /**
+     * Measures the given triangles' vertex cache efficiency by simulating a
+     * FIFO vertex cache with CACHE_SIZE entries. The ATVR is computed from the
+     * number of the vertices referenced by the indices, so it stays valid for
+     * the levels of detail which use only a part of the vertices.
+     *
+     * @param indices          the triangles' indices
+     * @param numberOfVertices the number of the vertices
+     *
+     * @return the vertex cache statistics
+     *
+     * @throws NullPointerException     indices can't be null
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3 and the indices have to be in the
+     *                                  [0;number of vertices) interval
+     */
+    @NotNull
+    public static VertexCacheStatistics computeStatistics(@NotNull IntBuffer indices, int numberOfVertices) {
+        int[] array = toArray(indices);
+        checkIndices(array, numberOfVertices);
+        int[] cacheTimes = new int[numberOfVertices];
+        int time = CACHE_SIZE + 1;
+        int misses = 0;
+        int referencedVertices = 0;
+        for (int vertex : array) {
+            if (cacheTimes[vertex] == 0) {
+                referencedVertices++;
+            }
+            if (time - cacheTimes[vertex] > CACHE_SIZE) {
+                cacheTimes[vertex] = time++;
+                misses++;
+            }
+        }
+        return new VertexCacheStatistics(array.length / 3, referencedVertices, misses, CACHE_SIZE);
+    }
+
+    /**
+     * Measures the given binary mesh's levels of detail's vertex cache
+     * efficiency.
+     *
+     * @param mesh binary mesh
+     *
+     * @return the levels of detail's vertex cache statistics
+     *
+     * @throws NullPointerException mesh can't be null
+     *
+     * @see #computeStatistics(IntBuffer, int)
+     */
+    @NotNull
+    public static List<VertexCacheStatistics> computeStatistics(@NotNull BinaryMesh mesh) {
+        List<VertexCacheStatistics> result = new ArrayList<>();
+        for (int i = 0; i < mesh.getNumberOfLods(); i++) {
+            result.add(computeStatistics(IntBuffer.wrap(mesh.getLodIndices(i)), mesh.getNumberOfVertices()));
+        }
+        return result;
+    }
+
+    //
+    //misc----------------------------------------------------------------------
+    //
+    /**
+     * Checks the given indices.
+     *
+     * @param indices          the triangles' indices
+     * @param numberOfVertices the number of the vertices
+     *
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3 and the indices have to be in the
+     *                                  [0;number of vertices) interval
+     */
+    private static void checkIndices(@NotNull int[] indices, int numberOfVertices) {
+        if (indices.length % 3 != 0) {
+            throw new IllegalArgumentException("The indices' size has to be divisible by 3");
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= numberOfVertices) {
+                throw new IllegalArgumentException("Index must be in the [0;" + (numberOfVertices - 1) + "] interval");
+            }
+        }
+    }
+
+    /**
+     * Copies the given buffer's remaining elements to an array.
+     *
+     * @param buffer buffer
+     *
+     * @return array
+     */
+    @NotNull
+    private static float[] toArray(@NotNull FloatBuffer buffer) {
+        float[] array = new float[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    /**
+     * Copies the given buffer's remaining elements to an array.
+     *
+     * @param buffer buffer
+     *
+     * @return array
+     */
+    @NotNull
+    private static int[] toArray(@NotNull IntBuffer buffer) {
+        int[] array = new int[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+}
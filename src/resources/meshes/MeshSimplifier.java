@@ -0,0 +1,701 @@
+package resources.meshes;
+
+import java.nio.*;
+import java.util.*;
+import toolbox.annotations.*;
+
+/**
+ * Simplifies triangle meshes with quadric error metrics. It collapses edges
+ * into one of their vertices (half-edge collapse), so the simplified meshes
+ * reference a subset of the original vertices and they can share the
+ * original mesh's vertex buffers: a level of detail is just another index
+ * buffer. The vertices on the borders (including the texture and normal
+ * seams, because those vertices are duplicated) never move, and the collapses
+ * which would flip a triangle or make the mesh non-manifold are rejected. It
+ * doesn't use OpenGL.
+ *
+ * @see BinaryMesh
+ */
+public class MeshSimplifier {
+
+    /**
+     * The maximum number of levels of detail (including the original mesh).
+     */
+    public static final int MAX_NUMBER_OF_LODS = 4;
+    /**
+     * The first simplified level of detail's maximum error, relative to the
+     * mesh's furthest vertex distance. Each next level allows twice as much.
+     */
+    private static final float LOD_ERROR = 0.02f;
+    /**
+     * The first simplified level of detail's screen size. Each next level's
+     * screen size is half as much, just like the allowed error is twice as
+     * much, so the projected error stays the same.
+     */
+    private static final float LOD_SCREEN_SIZE = 0.25f;
+    /**
+     * A simplified level of detail is kept only if it has at most this ratio
+     * of the previous level's triangles.
+     */
+    private static final float MIN_REDUCTION = 0.75f;
+    /**
+     * The number of doubles in a quadric.
+     */
+    private static final int QUADRIC_SIZE = 10;
+
+    /**
+     * To can't create MeshSimplifier instance.
+     */
+    private MeshSimplifier() {
+    }
+
+    /**
+     * Creates the given mesh's levels of detail. The first level is the
+     * original indices, every next level is simplified from the previous one
+     * to about the half of its triangles. It stops when it reaches the
+     * MAX_NUMBER_OF_LODS or when the simplification can't remove enough
+     * triangles within the allowed error.
+     *
+     * @param positions the vertices' positions (3 floats per vertex)
+     * @param indices   the triangles' indices
+     *
+     * @return the levels of detail's indices
+     *
+     * @throws NullPointerException     positions and indices can't be null
+     * @throws IllegalArgumentException the positions' size has to be divisible
+     *                                  by 3 and the indices' size has to be
+     *                                  divisible by 3
+     */
+    @NotNull
+    public static List<IntBuffer> createLods(@NotNull FloatBuffer positions, @NotNull IntBuffer indices) {
+        float[] vertices = toArray(positions);
+        int[] previous = toArray(indices);
+        List<IntBuffer> lods = new ArrayList<>();
+        lods.add(indices.duplicate());
+        float radius = computeFurthestVertexDistance(vertices);
+        float maxError = radius * LOD_ERROR;
+        while (lods.size() < MAX_NUMBER_OF_LODS) {
+            int target = previous.length / 6 * 3;
+            int[] lod = simplify(vertices, previous, target, maxError);
+            if (lod.length == 0 || lod.length > previous.length * MIN_REDUCTION) {
+                break;
+            }
+            lods.add(IntBuffer.wrap(lod));
+            previous = lod;
+            maxError *= 2;
+        }
+        return lods;
+    }
+
+    /**
+     * Returns the default screen size of the given level of detail. The
+     * original mesh is used at any size, so the first level's screen size is
+     * infinite.
+     *
+     * @param lod level of detail
+     *
+     * @return the level of detail's screen size
+     *
+     * @throws IllegalArgumentException lod can't be negative
+     *
+     * @see Mesh#getLodScreenSize(int)
+     */
+    public static float getDefaultScreenSize(int lod) {
+        if (lod < 0) {
+            throw new IllegalArgumentException("Level of detail can't be negative");
+        }
+        return lod == 0 ? Float.POSITIVE_INFINITY : LOD_SCREEN_SIZE / (1 << (lod - 1));
+    }
+
+    /**
+     * Simplifies the given mesh. It collapses the cheapest edges until the
+     * number of indices reaches the target, or the next collapse's error
+     * would be higher than the maximum error.
+     *
+     * @param positions             the vertices' positions (3 floats per
+     *                              vertex)
+     * @param indices               the triangles' indices
+     * @param targetNumberOfIndices the simplified mesh's target number of
+     *                              indices
+     * @param maxError              the maximum distance between the original
+     *                              and the simplified surface
+     *
+     * @return the simplified mesh's indices
+     *
+     * @throws NullPointerException     positions and indices can't be null
+     * @throws IllegalArgumentException the positions' size has to be divisible
+     *                                  by 3, the indices' size has to be
+     *                                  divisible by 3, the target number of
+     *                                  indices and the maximum error can't be
+     *                                  negative
+     */
+    @NotNull
+    public static IntBuffer simplify(@NotNull FloatBuffer positions, @NotNull IntBuffer indices, int targetNumberOfIndices, float maxError) {
+        if (targetNumberOfIndices < 0) {
+            throw new IllegalArgumentException("Target number of indices can't be negative");
+        }
+        if (maxError < 0) {
+            throw new IllegalArgumentException("Maximum error can't be negative");
+        }
+        return IntBuffer.wrap(simplify(toArray(positions), toArray(indices), targetNumberOfIndices, maxError));
+    }
+
+    /**
+     * Returns the remaining elements of the given positions as an array.
+     *
+     * @param positions the vertices' positions
+     *
+     * @return the positions
+     *
+     * @throws NullPointerException     positions can't be null
+     * @throws IllegalArgumentException the positions' size has to be divisible
+     *                                  by 3
+     */
+    @NotNull
+    private static float[] toArray(@NotNull FloatBuffer positions) {
+        if (positions == null) {
+            throw new NullPointerException();
+        }
+        if (positions.remaining() % 3 != 0) {
+            throw new IllegalArgumentException("The positions' size has to be divisible by 3");
+        }
+        float[] result = new float[positions.remaining()];
+        positions.duplicate().get(result);
+        return result;
+    }
+
+    /**
+     * Returns the remaining elements of the given indices as an array.
+     *
+     * @param indices the triangles' indices
+     *
+     * @return the indices
+     *
+     * @throws NullPointerException     indices can't be null
+     * @throws IllegalArgumentException the indices' size has to be divisible
+     *                                  by 3
+     */
+    @NotNull
+    private static int[] toArray(@NotNull IntBuffer indices) {
+        if (indices == null) {
+            throw new NullPointerException();
+        }
+        if (indices.remaining() % 3 != 0) {
+            throw new IllegalArgumentException("The indices' size has to be divisible by 3");
+        }
+        int[] result = new int[indices.remaining()];
+        indices.duplicate().get(result);
+        return result;
+    }
+
+    /**
+     * Returns the furthest vertex's distance from the origin.
+     *
+     * @param positions the vertices' positions
+     *
+     * @return the furthest vertex distance
+     */
+    private static float computeFurthestVertexDistance(@NotNull float[] positions) {
+        float max = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            float x = positions[i];
+            float y = positions[i + 1];
+            float z = positions[i + 2];
+            max = java.lang.Math.max(max, x * x + y * y + z * z);
+        }
+        return (float) java.lang.Math.sqrt(max);
+    }
+
+    /**
+     * Simplifies the given mesh.
+     *
+     * @param positions             the vertices' positions
+     * @param indices               the triangles' indices
+     * @param targetNumberOfIndices the simplified mesh's target number of
+     *                              indices
+     * @param maxError              the maximum distance between the original
+     *                              and the simplified surface
+     *
+     * @return the simplified mesh's indices
+     */
+    @NotNull
+    private static int[] simplify(@NotNull float[] positions, @NotNull int[] indices, int targetNumberOfIndices, float maxError) {
+        return new Simplification(positions, indices).simplify(targetNumberOfIndices, (double) maxError * maxError);
+    }
+
+    /**
+     * A possible edge collapse.
+     */
+    private static class Collapse implements Comparable<Collapse> {
+
+        /**
+         * The removed vertex.
+         */
+        private final int from;
+        /**
+         * The kept vertex.
+         */
+        private final int to;
+        /**
+         * The collapse's error.
+         */
+        private final double cost;
+        /**
+         * The removed vertex's version when the collapse was computed.
+         */
+        private final int fromVersion;
+        /**
+         * The kept vertex's version when the collapse was computed.
+         */
+        private final int toVersion;
+
+        /**
+         * Initializes a new Collapse to the given values.
+         *
+         * @param from        the removed vertex
+         * @param to          the kept vertex
+         * @param cost        the collapse's error
+         * @param fromVersion the removed vertex's version
+         * @param toVersion   the kept vertex's version
+         */
+        public Collapse(int from, int to, double cost, int fromVersion, int toVersion) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+        }
+
+        @Override
+        public int compareTo(@NotNull Collapse other) {
+            return Double.compare(cost, other.cost);
+        }
+
+    }
+
+    /**
+     * The state of a mesh's simplification.
+     */
+    private static class Simplification {
+
+        /**
+         * The vertices' positions.
+         */
+        private final float[] positions;
+        /**
+         * The triangles' indices. The collapses overwrite the removed
+         * vertices.
+         */
+        private final int[] indices;
+        /**
+         * Determines whether the triangles are removed.
+         */
+        private final boolean[] removedTriangles;
+        /**
+         * The number of the remaining triangles.
+         */
+        private int numberOfTriangles;
+        /**
+         * The vertices' quadrics.
+         */
+        private final double[] quadrics;
+        /**
+         * The triangles around the vertices.
+         */
+        private final int[][] vertexTriangles;
+        /**
+         * The number of the triangles around the vertices.
+         */
+        private final int[] numberOfVertexTriangles;
+        /**
+         * Determines whether the vertices can't be removed.
+         */
+        private final boolean[] lockedVertices;
+        /**
+         * The vertices' versions. It changes when the vertex's neighborhood
+         * changes, so the older collapses are skipped.
+         */
+        private final int[] versions;
+        /**
+         * The possible collapses, the cheapest first.
+         */
+        private final PriorityQueue<Collapse> collapses = new PriorityQueue<>();
+
+        /**
+         * Initializes a new Simplification to the given values.
+         *
+         * @param positions the vertices' positions
+         * @param indices   the triangles' indices
+         */
+        public Simplification(@NotNull float[] positions, @NotNull int[] indices) {
+            int numberOfVertices = positions.length / 3;
+            this.positions = positions;
+            this.indices = indices.clone();
+            numberOfTriangles = indices.length / 3;
+            removedTriangles = new boolean[numberOfTriangles];
+            quadrics = new double[numberOfVertices * QUADRIC_SIZE];
+            vertexTriangles = new int[numberOfVertices][];
+            numberOfVertexTriangles = new int[numberOfVertices];
+            lockedVertices = new boolean[numberOfVertices];
+            versions = new int[numberOfVertices];
+            for (int index : indices) {
+                if (index < 0 || index >= numberOfVertices) {
+                    throw new IllegalArgumentException("Index must be in the [0;" + (numberOfVertices - 1) + "] interval");
+                }
+                numberOfVertexTriangles[index]++;
+            }
+            for (int i = 0; i < numberOfVertices; i++) {
+                vertexTriangles[i] = new int[numberOfVertexTriangles[i]];
+                numberOfVertexTriangles[i] = 0;
+            }
+            for (int i = 0; i < numberOfTriangles; i++) {
+                for (int j = 0; j < 3; j++) {
+                    int vertex = indices[i * 3 + j];
+                    vertexTriangles[vertex][numberOfVertexTriangles[vertex]++] = i;
+                }
+                addTriangleQuadric(i);
+            }
+            lockBorders();
+        }
+
+        /**
+         * Adds the given triangle's plane to its vertices' quadrics.
+         *
+         * @param triangle triangle
+         */
+        private void addTriangleQuadric(int triangle) {
+            int a = indices[triangle * 3] * 3;
+            int b = indices[triangle * 3 + 1] * 3;
+            int c = indices[triangle * 3 + 2] * 3;
+            double e1x = positions[b] - positions[a];
+            double e1y = positions[b + 1] - positions[a + 1];
+            double e1z = positions[b + 2] - positions[a + 2];
+            double e2x = positions[c] - positions[a];
+            double e2y = positions[c + 1] - positions[a + 1];
+            double e2z = positions[c + 2] - positions[a + 2];
+            double nx = e1y * e2z - e1z * e2y;
+            double ny = e1z * e2x - e1x * e2z;
+            double nz = e1x * e2y - e1y * e2x;
+            double length = java.lang.Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                return;
+            }
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            double d = -(nx * positions[a] + ny * positions[a + 1] + nz * positions[a + 2]);
+            for (int j = 0; j < 3; j++) {
+                int q = indices[triangle * 3 + j] * QUADRIC_SIZE;
+                quadrics[q] += nx * nx;
+                quadrics[q + 1] += nx * ny;
+                quadrics[q + 2] += nx * nz;
+                quadrics[q + 3] += ny * ny;
+                quadrics[q + 4] += ny * nz;
+                quadrics[q + 5] += nz * nz;
+                quadrics[q + 6] += nx * d;
+                quadrics[q + 7] += ny * d;
+                quadrics[q + 8] += nz * d;
+                quadrics[q + 9] += d * d;
+            }
+        }
+
+        /**
+         * Locks the vertices of the edges which don't have exactly two
+         * triangles.
+         */
+        private void lockBorders() {
+            Map<Long, Integer> edges = new HashMap<>();
+            for (int i = 0; i < indices.length; i += 3) {
+                for (int j = 0; j < 3; j++) {
+                    long edge = getEdgeKey(indices[i + j], indices[i + (j + 1) % 3]);
+                    edges.merge(edge, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<Long, Integer> entry : edges.entrySet()) {
+                if (entry.getValue() != 2) {
+                    long edge = entry.getKey();
+                    lockedVertices[(int) (edge >>> 32)] = true;
+                    lockedVertices[(int) edge] = true;
+                }
+            }
+        }
+
+        /**
+         * Returns the given undirected edge's key.
+         *
+         * @param a the edge's first vertex
+         * @param b the edge's second vertex
+         *
+         * @return the edge's key
+         */
+        private static long getEdgeKey(int a, int b) {
+            return ((long) java.lang.Math.min(a, b) << 32) | java.lang.Math.max(a, b);
+        }
+
+        /**
+         * Simplifies the mesh.
+         *
+         * @param targetNumberOfIndices the target number of indices
+         * @param maxCost               the maximum error (squared distance)
+         *
+         * @return the simplified mesh's indices
+         */
+        @NotNull
+        public int[] simplify(int targetNumberOfIndices, double maxCost) {
+            for (int i = 0; i < indices.length; i += 3) {
+                for (int j = 0; j < 3; j++) {
+                    int a = indices[i + j];
+                    int b = indices[i + (j + 1) % 3];
+                    if (a < b) {
+                        addCollapse(a, b);
+                    }
+                }
+            }
+            while (numberOfTriangles * 3 > targetNumberOfIndices && !collapses.isEmpty()) {
+                Collapse collapse = collapses.poll();
+                if (collapse.cost > maxCost) {
+                    break;
+                }
+                if (collapse.fromVersion == versions[collapse.from] && collapse.toVersion == versions[collapse.to]
+                        && numberOfVertexTriangles[collapse.from] > 0 && canCollapse(collapse.from, collapse.to)) {
+                    collapse(collapse.from, collapse.to);
+                }
+            }
+            int[] result = new int[numberOfTriangles * 3];
+            int index = 0;
+            for (int i = 0; i < removedTriangles.length; i++) {
+                if (!removedTriangles[i]) {
+                    System.arraycopy(indices, i * 3, result, index, 3);
+                    index += 3;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Adds the cheaper direction of the given edge's collapse to the
+         * queue.
+         *
+         * @param a the edge's first vertex
+         * @param b the edge's second vertex
+         */
+        private void addCollapse(int a, int b) {
+            double toB = lockedVertices[a] ? Double.POSITIVE_INFINITY : computeCost(a, b);
+            double toA = lockedVertices[b] ? Double.POSITIVE_INFINITY : computeCost(b, a);
+            if (toB <= toA && toB != Double.POSITIVE_INFINITY) {
+                collapses.add(new Collapse(a, b, toB, versions[a], versions[b]));
+            } else if (toA < toB) {
+                collapses.add(new Collapse(b, a, toA, versions[b], versions[a]));
+            }
+        }
+
+        /**
+         * Returns the error of moving the given vertex to the other vertex.
+         *
+         * @param from the removed vertex
+         * @param to   the kept vertex
+         *
+         * @return the collapse's error
+         */
+        private double computeCost(int from, int to) {
+            double x = positions[to * 3];
+            double y = positions[to * 3 + 1];
+            double z = positions[to * 3 + 2];
+            return java.lang.Math.max(evaluateQuadric(from, x, y, z) + evaluateQuadric(to, x, y, z), 0);
+        }
+
+        /**
+         * Returns the sum of the squared distances between the given point and
+         * the planes of the given vertex's quadric.
+         *
+         * @param vertex vertex
+         * @param x      the point's x coordinate
+         * @param y      the point's y coordinate
+         * @param z      the point's z coordinate
+         *
+         * @return the quadric's error
+         */
+        private double evaluateQuadric(int vertex, double x, double y, double z) {
+            int q = vertex * QUADRIC_SIZE;
+            return quadrics[q] * x * x + 2 * quadrics[q + 1] * x * y + 2 * quadrics[q + 2] * x * z
+                    + quadrics[q + 3] * y * y + 2 * quadrics[q + 4] * y * z + quadrics[q + 5] * z * z
+                    + 2 * (quadrics[q + 6] * x + quadrics[q + 7] * y + quadrics[q + 8] * z) + quadrics[q + 9];
+        }
+
+        /**
+         * Determines whether the given vertex can be moved to the other
+         * vertex. It can't if the two vertices have more than two common
+         * neighbors (the mesh would be non-manifold) or if a triangle would
+         * flip.
+         *
+         * @param from the removed vertex
+         * @param to   the kept vertex
+         *
+         * @return true if the collapse is valid, false otherwise
+         */
+        private boolean canCollapse(int from, int to) {
+            Set<Integer> neighbors = new HashSet<>();
+            for (int i = 0; i < numberOfVertexTriangles[from]; i++) {
+                int triangle = vertexTriangles[from][i] * 3;
+                for (int j = 0; j < 3; j++) {
+                    neighbors.add(indices[triangle + j]);
+                }
+            }
+            Set<Integer> common = new HashSet<>();
+            for (int i = 0; i < numberOfVertexTriangles[to]; i++) {
+                int triangle = vertexTriangles[to][i] * 3;
+                for (int j = 0; j < 3; j++) {
+                    int vertex = indices[triangle + j];
+                    if (vertex != from && vertex != to && neighbors.contains(vertex)) {
+                        common.add(vertex);
+                    }
+                }
+            }
+            if (common.size() > 2) {
+                return false;
+            }
+            for (int i = 0; i < numberOfVertexTriangles[from]; i++) {
+                int triangle = vertexTriangles[from][i];
+                if (!containsVertex(triangle, to) && isFlipped(triangle, from, to)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Determines whether the given triangle contains the given vertex.
+         *
+         * @param triangle triangle
+         * @param vertex   vertex
+         *
+         * @return true if the triangle contains the vertex, false otherwise
+         */
+        private boolean containsVertex(int triangle, int vertex) {
+            return indices[triangle * 3] == vertex || indices[triangle * 3 + 1] == vertex || indices[triangle * 3 + 2] == vertex;
+        }
+
+        /**
+         * Determines whether the given triangle's normal vector would flip (or
+         * the triangle would degenerate) if the given vertex moved to the
+         * other vertex.
+         *
+         * @param triangle triangle
+         * @param from     the removed vertex
+         * @param to       the kept vertex
+         *
+         * @return true if the triangle would flip, false otherwise
+         */
+        private boolean isFlipped(int triangle, int from, int to) {
+            double[] before = computeNormal(triangle, from, from);
+            double[] after = computeNormal(triangle, from, to);
+            double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            double lengths = java.lang.Math.sqrt((before[0] * before[0] + before[1] * before[1] + before[2] * before[2])
+                    * (after[0] * after[0] + after[1] * after[1] + after[2] * after[2]));
+            return lengths == 0 || dot < lengths * 0.2;
+        }
+
+        /**
+         * Computes the given triangle's (not normalized) normal vector, when
+         * the given vertex is replaced by the other vertex.
+         *
+         * @param triangle    triangle
+         * @param vertex      the replaced vertex
+         * @param replacement the replacement vertex
+         *
+         * @return the triangle's normal vector
+         */
+        @NotNull
+        private double[] computeNormal(int triangle, int vertex, int replacement) {
+            int[] corners = new int[3];
+            for (int j = 0; j < 3; j++) {
+                int index = indices[triangle * 3 + j];
+                corners[j] = (index == vertex ? replacement : index) * 3;
+            }
+            double e1x = positions[corners[1]] - positions[corners[0]];
+            double e1y = positions[corners[1] + 1] - positions[corners[0] + 1];
+            double e1z = positions[corners[1] + 2] - positions[corners[0] + 2];
+            double e2x = positions[corners[2]] - positions[corners[0]];
+            double e2y = positions[corners[2] + 1] - positions[corners[0] + 1];
+            double e2z = positions[corners[2] + 2] - positions[corners[0] + 2];
+            return new double[]{e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x};
+        }
+
+        /**
+         * Moves the given vertex to the other vertex. It removes the triangles
+         * which contain both vertices, and adds the remaining triangles to
+         * the kept vertex's triangles.
+         *
+         * @param from the removed vertex
+         * @param to   the kept vertex
+         */
+        private void collapse(int from, int to) {
+            int[] triangles = Arrays.copyOf(vertexTriangles[from], numberOfVertexTriangles[from]);
+            for (int triangle : triangles) {
+                if (containsVertex(triangle, to)) {
+                    removeTriangle(triangle);
+                } else {
+                    for (int j = 0; j < 3; j++) {
+                        if (indices[triangle * 3 + j] == from) {
+                            indices[triangle * 3 + j] = to;
+                        }
+                    }
+                    addVertexTriangle(to, triangle);
+                }
+            }
+            numberOfVertexTriangles[from] = 0;
+            for (int i = 0; i < QUADRIC_SIZE; i++) {
+                quadrics[to * QUADRIC_SIZE + i] += quadrics[from * QUADRIC_SIZE + i];
+            }
+            versions[to]++;
+            Set<Integer> neighbors = new HashSet<>();
+            for (int i = 0; i < numberOfVertexTriangles[to]; i++) {
+                int triangle = vertexTriangles[to][i] * 3;
+                for (int j = 0; j < 3; j++) {
+                    neighbors.add(indices[triangle + j]);
+                }
+            }
+            neighbors.remove(to);
+            for (int neighbor : neighbors) {
+                addCollapse(to, neighbor);
+            }
+        }
+
+        /**
+         * Removes the given triangle from the mesh and from its vertices'
+         * triangles.
+         *
+         * @param triangle triangle
+         */
+        private void removeTriangle(int triangle) {
+            removedTriangles[triangle] = true;
+            numberOfTriangles--;
+            for (int j = 0; j < 3; j++) {
+                int vertex = indices[triangle * 3 + j];
+                int[] triangles = vertexTriangles[vertex];
+                for (int i = 0; i < numberOfVertexTriangles[vertex]; i++) {
+                    if (triangles[i] == triangle) {
+                        triangles[i] = triangles[--numberOfVertexTriangles[vertex]];
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the given triangle to the given vertex's triangles.
+         *
+         * @param vertex   vertex
+         * @param triangle triangle
+         */
+        private void addVertexTriangle(int vertex, int triangle) {
+            int[] triangles = vertexTriangles[vertex];
+            if (numberOfVertexTriangles[vertex] == triangles.length) {
+                vertexTriangles[vertex] = triangles = Arrays.copyOf(triangles, triangles.length * 2 + 1);
+            }
+            triangles[numberOfVertexTriangles[vertex]++] = triangle;
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package resources.meshes;
+
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * A simple triangle mesh which is rasterized on the CPU for the occlusion
+ * culling. It's stored only in the RAM, in object space. An occluder should
+ * have few triangles and it must not be larger than the object it belongs to,
+ * otherwise it hides objects which should be visible. You can create an
+ * occluder from a StaticMesh's least detailed level of detail, or from a box
+ * inside the object (like a building's walls).
+ *
+ * @see StaticMesh#createOccluder()
+ * @see components.renderables.MeshComponent#setOccluder(Occluder)
+ * @see rendering.OcclusionCulling
+ */
+public class Occluder {
+
+    /**
+     * The vertices' positions (3 floats per vertex).
+     */
+    private final float[] positions;
+    /**
+     * The triangles' indices.
+     */
+    private final int[] indices;
+
+    /**
+     * Initializes a new Occluder to the given values.
+     *
+     * @param positions the vertices' positions (3 floats per vertex)
+     * @param indices   the triangles' indices
+     *
+     * @throws NullPointerException     positions and indices can't be null
+     * @throws IllegalArgumentException the positions' size has to be divisible
+     *                                  by 3, the indices' size has to be
+     *                                  divisible by 3 and the indices have to
+     *                                  refer to existing vertices
+     */
+    public Occluder(@NotNull float[] positions, @NotNull int[] indices) {
+        if (positions.length % 3 != 0 || indices.length % 3 != 0) {
+            throw new IllegalArgumentException("The positions' and the indices' size has to be divisible by 3");
+        }
+        int numberOfVertices = positions.length / 3;
+        for (int index : indices) {
+            if (index < 0 || index >= numberOfVertices) {
+                throw new IllegalArgumentException("Index must be in the [0;" + (numberOfVertices - 1) + "] interval");
+            }
+        }
+        this.positions = positions.clone();
+        this.indices = indices.clone();
+    }
+
+    /**
+     * Creates a box shaped occluder from the given axis alligned bounding box.
+     *
+     * @param min the box's minimum x, y and z values
+     * @param max the box's maximum x, y and z values
+     *
+     * @return the box shaped occluder
+     *
+     * @throws NullPointerException     min and max can't be null
+     * @throws IllegalArgumentException min can't be greater than max
+     */
+    @NotNull
+    public static Occluder createBox(@NotNull Vector3fc min, @NotNull Vector3fc max) {
+        if (min.x() > max.x() || min.y() > max.y() || min.z() > max.z()) {
+            throw new IllegalArgumentException("Min can't be greater than max");
+        }
+        float[] positions = new float[8 * 3];
+        for (int i = 0; i < 8; i++) {
+            positions[i * 3] = (i & 1) == 0 ? min.x() : max.x();
+            positions[i * 3 + 1] = (i & 2) == 0 ? min.y() : max.y();
+            positions[i * 3 + 2] = (i & 4) == 0 ? min.z() : max.z();
+        }
+        int[] indices = {
+            0, 2, 1, 1, 2, 3,
+            4, 5, 6, 5, 7, 6,
+            0, 1, 4, 1, 5, 4,
+            2, 6, 3, 3, 6, 7,
+            0, 4, 2, 2, 4, 6,
+            1, 3, 5, 3, 7, 5
+        };
+        return new Occluder(positions, indices);
+    }
+
+    /**
+     * Returns the vertices' positions (3 floats per vertex).
+     *
+     * @return the vertices' positions
+     */
+    @NotNull @ReadOnly
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the triangles' indices.
+     *
+     * @return the triangles' indices
+     */
+    @NotNull @ReadOnly
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Returns the number of the vertices.
+     *
+     * @return the number of the vertices
+     */
+    public int getNumberOfVertices() {
+        return positions.length / 3;
+    }
+
+    /**
+     * Returns the number of the triangles.
+     *
+     * @return the number of the triangles
+     */
+    public int getNumberOfTriangles() {
+        return indices.length / 3;
+    }
+
+    @Override
+    public String toString() {
+        return "Occluder{" + "numberOfVertices=" + getNumberOfVertices()
+                + ", numberOfTriangles=" + getNumberOfTriangles() + '}';
+    }
+
+}
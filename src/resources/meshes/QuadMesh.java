@@ -1,9 +1,12 @@
 package resources.meshes;
 
+import java.nio.*;
 import org.joml.Math;
 import org.joml.*;
 import org.lwjgl.opengl.*;
+import rendering.geometry.*;
 import resources.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -87,6 +90,8 @@ public class QuadMesh implements Mesh {
                 1, 0};
             vao.createVbo("uv");
             vao.bindAndAddData("uv", 1, 2, uv, false);
+            //instances
+            vao.createVbo("instances");
             vao.unbindVao();
         }
     }
@@ -109,13 +114,25 @@ public class QuadMesh implements Mesh {
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMin() {
-        return new Vector3f(-1, -1, 0);
+        return getAabbMin(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMin(@NotNull Vector3f dest) {
+        return dest.set(-1, -1, 0);
     }
 
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMax() {
-        return new Vector3f(1, 1, 0);
+        return getAabbMax(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMax(@NotNull Vector3f dest) {
+        return dest.set(1, 1, 0);
     }
 
     @Override
@@ -131,7 +148,17 @@ public class QuadMesh implements Mesh {
             loadData();
             vao.bindVao();
         }
-        GL11.glDrawElements(GL11.GL_TRIANGLES, getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+        OpenGl.getBackend().drawElements(GL11.GL_TRIANGLES, getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount) {
+        if (vao == null || !vao.isUsable()) {
+            loadData();
+            vao.bindVao();
+        }
+        vao.bindAndAddInstanceData("instances", FIRST_INSTANCE_ATTRIBUTE_NUMBER, NUMBER_OF_INSTANCE_ATTRIBUTES, 4, instanceData);
+        OpenGl.getBackend().drawElementsInstanced(GL11.GL_TRIANGLES, getVertexCount(), GL11.GL_UNSIGNED_INT, 0, instanceCount);
     }
 
     @Override
@@ -141,6 +168,49 @@ public class QuadMesh implements Mesh {
         }
     }
 
+    @Override
+    public int getNumberOfLods() {
+        return 1;
+    }
+
+    @Override
+    public float getLodScreenSize(int lod) {
+        checkLod(lod);
+        return Float.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public int getFaceCount(int lod) {
+        checkLod(lod);
+        return getFaceCount();
+    }
+
+    @Override
+    public void draw(int lod) {
+        checkLod(lod);
+        draw();
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount, int lod) {
+        checkLod(lod);
+        drawInstanced(instanceData, instanceCount);
+    }
+
+    /**
+     * Checks whether the given level of detail exists. This mesh has only one
+     * level of detail.
+     *
+     * @param lod level of detail
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    private void checkLod(int lod) {
+        if (lod != 0) {
+            throw new IllegalArgumentException("Level of detail must be 0");
+        }
+    }
+
     @Override
     public int getDataSizeInRam() {
         return 0;
@@ -5,6 +5,7 @@ import core.*;
 import java.io.*;
 import java.nio.*;
 import java.util.*;
+import java.util.concurrent.*;
 import org.joml.*;
 import org.lwjgl.*;
 import org.lwjgl.assimp.*;
@@ -13,8 +14,10 @@ import static org.lwjgl.assimp.Assimp.aiImportFile;
 import static org.lwjgl.assimp.Assimp.aiProcess_CalcTangentSpace;
 import static org.lwjgl.assimp.Assimp.aiProcess_JoinIdenticalVertices;
 import static org.lwjgl.assimp.Assimp.aiProcess_Triangulate;
+import static org.lwjgl.assimp.Assimp.aiReleaseImport;
 import org.lwjgl.opengl.*;
 import org.lwjgl.system.*;
+import rendering.geometry.*;
 import resources.ResourceManager.ResourceState;
 import resources.*;
 import toolbox.*;
@@ -24,11 +27,22 @@ import toolbox.annotations.*;
  * Stores a mesh's data. You can load a mesh only once, if you try to load it
  * twice, you get reference to the already loaded one. You can specify the
  * StaticMesh's data store policy including when and where the data should be
- * stored.
+ * stored. The first import of a model writes the meshes' data in the engine's
+ * binary mesh format next to the model file, and the later loads (including
+ * the reloads after eviction) map that file instead of importing the model
+ * again. The import also generates the mesh's levels of detail, they share
+ * the vertices and they're stored in the same index buffer, and it optimizes
+ * the triangles' and the vertices' order for the GPU. The vertices are
+ * interleaved (and optionally compressed) during the import, so the binary
+ * mesh file's vertices and indices are uploaded to the VRAM directly. They're
+ * converted only if the vertex compression setting changed since the mesh's
+ * data was loaded to the RAM.
  *
  * @see #loadModel(File path)
+ * @see BinaryMesh
+ * @see MeshOptimizer
  */
-public class StaticMesh implements Mesh {
+public class StaticMesh implements Mesh, LoadableResource {
 
     /**
      * The mesh's VAO.
@@ -43,37 +57,41 @@ public class StaticMesh implements Mesh {
      */
     private final int faceCount;
     /**
-     * Furthest vertex distance.
+     * The levels of detail's first indices.
      */
-    private float furthestVertexDistance;
+    private final int[] lodFirstIndices;
     /**
-     * Axis alligned bounding box's min x, y and z values.
+     * The levels of detail's number of indices.
      */
-    private final Vector3f aabbMin = new Vector3f();
+    private final int[] lodNumberOfIndices;
     /**
-     * Axis alligned bounding box's max x, y and z values.
+     * The levels of detail's screen sizes.
      */
-    private final Vector3f aabbMax = new Vector3f();
+    private final float[] lodScreenSizes;
     /**
-     * Stores the mesh's position data.
+     * The indices' type in the VRAM (GL_UNSIGNED_INT or GL_UNSIGNED_SHORT).
      */
-    private AIVector3D.Buffer position;
+    private int indexType = GL11.GL_UNSIGNED_INT;
     /**
-     * Stores the mesh's texture coordinate data.
+     * The mesh's data size in the VRAM.
      */
-    private AIVector3D.Buffer uv;
+    private int dataSizeInAction;
     /**
-     * Stores the mesh's normal vector data.
+     * Furthest vertex distance.
+     */
+    private float furthestVertexDistance;
+    /**
+     * Axis alligned bounding box's min x, y and z values.
      */
-    private AIVector3D.Buffer normal;
+    private final Vector3f aabbMin = new Vector3f();
     /**
-     * Stores the mesh's tangent vector data.
+     * Axis alligned bounding box's max x, y and z values.
      */
-    private AIVector3D.Buffer tangent;
+    private final Vector3f aabbMax = new Vector3f();
     /**
-     * Stores the mesh's index data.
+     * Stores the mesh's vertex and index data.
      */
-    private IntBuffer indices;
+    private BinaryMesh data;
     /**
      * Stores meta data about this mesh.
      */
@@ -82,29 +100,43 @@ public class StaticMesh implements Mesh {
      * The resource's unique id.
      */
     private final ResourceId resourceId;
+    /**
+     * Determines whether the mesh's data is being loaded in the background.
+     */
+    private boolean loading;
 
     /**
-     * Initializes a new StaticMesh to the given values.
+     * Initializes a new StaticMesh to the given values. It loads the mesh's
+     * data only to the RAM, so it doesn't need OpenGL context.
      *
-     * @param mesh mesh
-     * @param path model's relative path (with extension like
-     * "res/models/myModel.obj")
+     * @param data       the mesh's data
+     * @param path       model's relative path (with extension like
+     *                   "res/models/myModel.obj")
      * @param resourceId the mesh's id
      */
-    private StaticMesh(@NotNull AIMesh mesh, @NotNull File path, @NotNull ResourceId resourceId) {
-        faceCount = mesh.mNumFaces();
-        vertexCount = faceCount * 3;
-        computeFrustumCullingData(mesh);
+    private StaticMesh(@NotNull BinaryMesh data, @NotNull File path, @NotNull ResourceId resourceId) {
+        int numberOfLods = data.getNumberOfLods();
+        lodFirstIndices = new int[numberOfLods];
+        lodNumberOfIndices = new int[numberOfLods];
+        lodScreenSizes = new float[numberOfLods];
+        for (int i = 0; i < numberOfLods; i++) {
+            lodFirstIndices[i] = data.getLodFirstIndex(i);
+            lodNumberOfIndices[i] = data.getLodNumberOfIndices(i);
+            lodScreenSizes[i] = data.getLodScreenSize(i);
+        }
+        vertexCount = lodNumberOfIndices[0];
+        faceCount = vertexCount / 3;
+        furthestVertexDistance = data.getFurthestVertexDistance();
+        data.getAabbMin(aabbMin);
+        data.getAabbMax(aabbMax);
         meta.setPaths(Utility.wrapObjectByList(path));
         meta.setLastActiveToNow();
         meta.setDataStorePolicy(ResourceState.ACTION);
 
-        hddToRam(mesh);
-        ramToVram();
+        hddToRam(data);
 
-        computeDataSize();
+        meta.setDataSize(data.getDataSize());
         this.resourceId = resourceId;
-        ResourceManager.addMesh(this);
     }
 
     //
@@ -121,22 +153,70 @@ public class StaticMesh implements Mesh {
      */
     @NotNull
     public static List<StaticMesh> loadModel(@NotNull File path) {
-        AIScene scene = getSceneAssimp(path);
+        List<BinaryMesh> binaryMeshes = loadBinaryMeshes(path);
         List<StaticMesh> meshes = new ArrayList<>();
-        int meshCount = scene.mNumMeshes();
-        PointerBuffer meshesBuffer = scene.mMeshes();
+        int meshCount = binaryMeshes.size();
 
         List<ResourceId> ids = ResourceId.getResourceIds(path, meshCount);
         for (int i = 0; i < meshCount; ++i) {
-            StaticMesh me = (StaticMesh) ResourceManager.getMesh(new ResourceId(path));
+            StaticMesh me = (StaticMesh) ResourceManager.getMesh(ids.get(i));
             if (me == null) {
-                me = new StaticMesh(AIMesh.create(meshesBuffer.get(i)), path, ids.get(i));
+                me = new StaticMesh(binaryMeshes.get(i), path, ids.get(i));
+                me.ramToVram();
+                ResourceManager.addMesh(me);
             }
             meshes.add(me);
         }
         return meshes;
     }
 
+    /**
+     * Loads a model from the given path into meshes in the background. The
+     * file is read and decoded by the ResourceLoader's threads, while the
+     * meshes' data is uploaded to the VRAM in the ResourceLoader's per frame
+     * upload budget. The returned future completes on the rendering thread.
+     * You can load a mesh only once, if you try to load it twice, you get
+     * reference to the already loaded one.
+     *
+     * @param path model's relative path (with extension like
+     * "res/models/myModel.obj")
+     * @return the future list of the model's meshes
+     *
+     * @throws NullPointerException path can't be null
+     *
+     * @see ResourceLoader
+     */
+    @NotNull
+    public static CompletableFuture<List<StaticMesh>> loadModelAsync(@NotNull File path) {
+        if (path == null) {
+            throw new NullPointerException();
+        }
+        return ResourceLoader.load(() -> {
+            List<BinaryMesh> binaryMeshes = loadBinaryMeshes(path);
+            List<StaticMesh> meshes = new ArrayList<>();
+            int meshCount = binaryMeshes.size();
+            List<ResourceId> ids = ResourceId.getResourceIds(path, meshCount);
+            for (int i = 0; i < meshCount; ++i) {
+                meshes.add(new StaticMesh(binaryMeshes.get(i), path, ids.get(i)));
+            }
+            return meshes;
+        }, decodedMeshes -> {
+            List<StaticMesh> meshes = new ArrayList<>(decodedMeshes.size());
+            for (StaticMesh decoded : decodedMeshes) {
+                StaticMesh me = (StaticMesh) ResourceManager.getMesh(decoded.getResourceId());
+                if (me == null) {
+                    me = decoded;
+                    me.ramToVram();
+                    ResourceManager.addMesh(me);
+                } else {
+                    decoded.ramToHdd();
+                }
+                meshes.add(me);
+            }
+            return meshes;
+        });
+    }
+
     /**
      * Loads a model from the given path into meshes, and adds each mesh as a
      * MeshComponent to it's own GameObject.
@@ -192,20 +272,112 @@ public class StaticMesh implements Mesh {
     }
 
     /**
-     * Computes the mesh's size.
+     * Returns the model's meshes stored in the given path. If the meshes'
+     * binary mesh files exist, they're up to date and they store the vertices
+     * in the format determined by the settings, it maps them, otherwise it
+     * imports the model and writes the binary mesh files.
+     *
+     * @param path model's relative path (with extension like
+     * "res/models/myModel.obj")
+     * @return the model's meshes
+     *
+     * @see Settings#isVertexCompression()
+     */
+    @NotNull
+    static List<BinaryMesh> loadBinaryMeshes(@NotNull File path) {
+        boolean compressed = Settings.isVertexCompression();
+        BinaryMesh first = BinaryMesh.mapIfValid(path, 0, compressed);
+        if (first != null) {
+            List<BinaryMesh> meshes = new ArrayList<>();
+            meshes.add(first);
+            for (int i = 1; i < first.getNumberOfMeshes(); i++) {
+                BinaryMesh mesh = BinaryMesh.mapIfValid(path, i, compressed);
+                if (mesh == null) {
+                    return importModel(path, compressed);
+                }
+                meshes.add(mesh);
+            }
+            return meshes;
+        }
+        return importModel(path, compressed);
+    }
+
+    /**
+     * Imports the model stored in the given path with Assimp and writes the
+     * meshes' binary mesh files. If the files can't be written, it logs the
+     * exception, but the returned meshes are still usable.
+     *
+     * @param path       model's relative path (with extension like
+     *                   "res/models/myModel.obj")
+     * @param compressed true if the vertices and the indices should be
+     *                   compressed, false otherwise
+     *
+     * @return the model's meshes
      */
-    private void computeDataSize() {
-        int FLOAT_SIZE = 4;
-        int INT_SIZE = 4;
+    @NotNull
+    static List<BinaryMesh> importModel(@NotNull File path, boolean compressed) {
+        AIScene scene = getSceneAssimp(path);
+        try {
+            int meshCount = scene.mNumMeshes();
+            PointerBuffer meshesBuffer = scene.mMeshes();
+            List<BinaryMesh> meshes = new ArrayList<>(meshCount);
+            for (int i = 0; i < meshCount; i++) {
+                BinaryMesh mesh = createBinaryMesh(AIMesh.create(meshesBuffer.get(i)), meshCount, path.lastModified(), compressed);
+                try {
+                    mesh.write(BinaryMesh.getBinaryMeshFile(path, i));
+                } catch (IOException ex) {
+                    Utility.logException(ex);
+                }
+                meshes.add(mesh);
+            }
+            return meshes;
+        } finally {
+            aiReleaseImport(scene);
+        }
+    }
 
-        int size = 0;
-        size += position.capacity() * FLOAT_SIZE;
-        size += uv.capacity() * FLOAT_SIZE;
-        size += normal.capacity() * FLOAT_SIZE;
-        size += tangent.capacity() * FLOAT_SIZE;
-        size += indices.capacity() * INT_SIZE;
+    /**
+     * Creates a binary mesh from the given Assimp mesh. It generates the
+     * mesh's levels of detail.
+     *
+     * @param mesh               mesh
+     * @param meshCount          the number of the meshes in the model file
+     * @param sourceLastModified the model file's last modification time
+     * @param compressed         true if the vertices and the indices should
+     *                           be compressed, false otherwise
+     *
+     * @return the binary mesh
+     */
+    @NotNull
+    private static BinaryMesh createBinaryMesh(@NotNull AIMesh mesh, int meshCount, long sourceLastModified, boolean compressed) {
+        int size = mesh.mNumVertices() * 3;
+        IntBuffer indices = computeIndicesBuffer(mesh);
+        try {
+            FloatBuffer positions = toFloatBuffer(mesh.mVertices(), size);
+            List<IntBuffer> lods = MeshOptimizer.optimizeTriangleOrder(positions, MeshSimplifier.createLods(positions, indices));
+            int[] remap = MeshOptimizer.optimizeVertexFetch(lods, mesh.mNumVertices());
+            return BinaryMesh.create(
+                    MeshOptimizer.remapVertices(positions, remap),
+                    MeshOptimizer.remapVertices(toFloatBuffer(mesh.mTextureCoords(0), size), remap),
+                    MeshOptimizer.remapVertices(toFloatBuffer(mesh.mNormals(), size), remap),
+                    MeshOptimizer.remapVertices(toFloatBuffer(mesh.mTangents(), size), remap),
+                    lods, meshCount, sourceLastModified, compressed);
+        } finally {
+            MemoryUtil.memFree(indices);
+        }
+    }
 
-        meta.setDataSize(size);
+    /**
+     * Returns the given vectors as a FloatBuffer, without copying them.
+     *
+     * @param vectors vectors
+     * @param size    the number of the floats
+     *
+     * @return the vectors as a FloatBuffer, or null if the vectors are null
+     */
+    @Nullable
+    private static FloatBuffer toFloatBuffer(@Nullable AIVector3D.Buffer vectors, int size) {
+        return vectors == null ? null : MemoryUtil.memFloatBuffer(vectors.address(), size);
     }
 
     /**
@@ -217,9 +389,10 @@ public class StaticMesh implements Mesh {
      * @throws IllegalStateException a face is not a triangle
      */
     @NotNull
-    private IntBuffer computeIndicesBuffer(@NotNull AIMesh mesh) {
+    private static IntBuffer computeIndicesBuffer(@NotNull AIMesh mesh) {
+        int faceCount = mesh.mNumFaces();
         AIFace.Buffer facesBuffer = mesh.mFaces();
-        IntBuffer elementArrayBufferData = MemoryUtil.memAllocInt(vertexCount);
+        IntBuffer elementArrayBufferData = MemoryUtil.memAllocInt(faceCount * 3);
         for (int j = 0; j < faceCount; ++j) {
             AIFace face = facesBuffer.get(j);
             if (face.mNumIndices() != 3) {
@@ -232,95 +405,136 @@ public class StaticMesh implements Mesh {
     }
 
     /**
-     * Computes the mesh's axis alligned bounding box and it's furthest vertex
-     * distance.
-     *
-     * @param mesh mesh
+     * Loads the mesh's data from file to the RAM. It doesn't compute AABB and
+     * furthest vertex distance again.
      */
-    private void computeFrustumCullingData(@NotNull AIMesh mesh) {
-        float max = 0;
-        Vector3f aabbMax = new Vector3f();
-        Vector3f aabbMin = new Vector3f();
-        Vector3f currentVec = new Vector3f();
-
-        for (int i = 0; i < mesh.mVertices().limit(); i++) {
-            currentVec.set(mesh.mVertices().get(i).x(),
-                    mesh.mVertices().get(i).y(),
-                    mesh.mVertices().get(i).z());
-            //furthest vertex distance
-            if (max < currentVec.length()) {
-                max = currentVec.length();
-            }
-            //aabb
-            for (int j = 0; j < 3; j++) {
-                if (currentVec.get(j) < aabbMin.get(j)) {
-                    aabbMin.setComponent(j, currentVec.get(j));
-                }
-                if (currentVec.get(j) > aabbMax.get(j)) {
-                    aabbMax.setComponent(j, currentVec.get(j));
-                }
-            }
-        }
-
-        this.aabbMin.set(aabbMin);
-        this.aabbMax.set(aabbMax);
-        furthestVertexDistance = max;
+    private void hddToRam() {
+        hddToRam(decode());
     }
 
     /**
-     * Loads the mesh's data from file to the RAM. It doesn't compute AABB and
-     * furthest vertex distance again.
+     * Reads the mesh's data from file. It maps the mesh's binary mesh file if
+     * it's up to date and it stores the vertices in the format determined by
+     * the settings, otherwise it imports the model again. It doesn't change
+     * the mesh, so it can run on a loader thread.
+     *
+     * @return the mesh's decoded data
+     *
+     * @see Settings#isVertexCompression()
      */
-    private void hddToRam() {
-        AIMesh mesh = AIMesh.create(getSceneAssimp(getPath()).mMeshes().get(resourceId.getIndex()));
-        hddToRam(mesh);
+    @NotNull
+    private BinaryMesh decode() {
+        boolean compressed = Settings.isVertexCompression();
+        BinaryMesh mesh = BinaryMesh.mapIfValid(getPath(), resourceId.getIndex(), compressed);
+        return mesh != null ? mesh : importModel(getPath(), compressed).get(resourceId.getIndex());
     }
 
     /**
      * Loads the mesh's data from the given parameter to the RAM. It doesn't
      * compute AABB and furthest vertex distance again.
      *
-     * @param mesh mesh
+     * @param data the mesh's data
      */
-    private void hddToRam(@NotNull AIMesh mesh) {
-        indices = computeIndicesBuffer(mesh);
-        position = mesh.mVertices();
-        uv = mesh.mTextureCoords(0);
-        normal = mesh.mNormals();
-        tangent = mesh.mTangents();
+    private void hddToRam(@NotNull BinaryMesh data) {
+        this.data = data;
 
         meta.setState(ResourceState.RAM);
     }
 
     /**
      * Loads the mesh's data from the RAM to the ACTION. It may cause errors if
-     * the data isn't in the RAM.
+     * the data isn't in the RAM. The vertex attributes are interleaved in one
+     * VBO. If the binary mesh stores the vertices in the format determined by
+     * the settings, the vertices and the indices are uploaded directly from
+     * it, otherwise they're converted to a temporary buffer first.
+     *
+     * @see Settings#isVertexCompression()
      */
     private void ramToVram() {
+        boolean compressed = Settings.isVertexCompression();
+        if (data.isCompressed() == compressed) {
+            ramToVram(data.getVertices(), data.getIndices(), compressed);
+        } else {
+            int numberOfVertices = data.getNumberOfVertices();
+            ByteBuffer vertices = MemoryUtil.memAlloc(numberOfVertices * BinaryMesh.getVertexSize(compressed));
+            ByteBuffer indices = MemoryUtil.memAlloc(data.getNumberOfIndices() * BinaryMesh.getIndexSize(numberOfVertices, compressed));
+            try {
+                data.putVertices(vertices, compressed);
+                data.putIndices(indices, compressed);
+                vertices.flip();
+                indices.flip();
+                ramToVram(vertices, indices, compressed);
+            } finally {
+                MemoryUtil.memFree(vertices);
+                MemoryUtil.memFree(indices);
+            }
+        }
+    }
+
+    /**
+     * Uploads the given vertices and indices to the VRAM.
+     *
+     * @param vertices   the interleaved vertices
+     * @param indices    the indices
+     * @param compressed true if the vertices and the indices are compressed,
+     *                   false otherwise
+     */
+    private void ramToVram(@NotNull ByteBuffer vertices, @NotNull ByteBuffer indices, boolean compressed) {
         vao = new Vao();
         vao.bindVao();
 
-        vao.createVbo("position");
-        vao.bindAndAddData("position", 0, 3, position, false);
-
-        vao.createVbo("uv");
-        vao.bindAndAddData("uv", 1, 3, uv, false);
-
-        vao.createVbo("normal");
-        vao.bindAndAddData("normal", 2, 3, normal, false);
-
-        vao.createVbo("tangent");
-        vao.bindAndAddData("tangent", 3, 3, tangent, false);
-
+        vao.createVbo("vertices");
+        vao.bindAndAddData("vertices", vertices, false);
+        addAttributes(compressed);
+        vao.createVbo("instances");
         vao.createEbo();
         vao.bindEbo();
+
         vao.addIndices(indices, false);
+        indexType = BinaryMesh.isShortIndexed(data.getNumberOfVertices(), compressed) ? GL11.GL_UNSIGNED_SHORT : GL11.GL_UNSIGNED_INT;
+        dataSizeInAction = vertices.remaining() + indices.remaining();
 
         vao.unbindVao();
 
         meta.setState(ResourceState.ACTION);
     }
 
+    /**
+     * Specifies the interleaved vertex attributes in the vertices VBO. A
+     * vertex contains the position, the texture coordinates, the normal and
+     * the tangent vector. If the vertices are compressed, the texture
+     * coordinates are half floats and the normal and the tangent vectors are
+     * packed 10-10-10-2 integers.
+     *
+     * @param compressed true if the vertices are compressed, false otherwise
+     *
+     * @see BinaryMesh
+     */
+    private void addAttributes(boolean compressed) {
+        if (compressed) {
+            int stride = BinaryMesh.COMPRESSED_VERTEX_SIZE;
+            vao.addAttribute("vertices", 0, 3, GL11.GL_FLOAT, false, stride, 0);
+            vao.addAttribute("vertices", 1, 2, GL30.GL_HALF_FLOAT, false, stride, 12);
+            vao.addAttribute("vertices", 2, 4, GL33.GL_INT_2_10_10_10_REV, true, stride, 16);
+            vao.addAttribute("vertices", 3, 4, GL33.GL_INT_2_10_10_10_REV, true, stride, 20);
+        } else {
+            int stride = BinaryMesh.VERTEX_SIZE;
+            vao.addAttribute("vertices", 0, 3, GL11.GL_FLOAT, false, stride, 0);
+            vao.addAttribute("vertices", 1, 3, GL11.GL_FLOAT, false, stride, 12);
+            vao.addAttribute("vertices", 2, 3, GL11.GL_FLOAT, false, stride, 24);
+            vao.addAttribute("vertices", 3, 3, GL11.GL_FLOAT, false, stride, 36);
+        }
+    }
+
+    /**
+     * Returns the size of an index in the VRAM.
+     *
+     * @return the size of an index (in bytes)
+     */
+    private int getIndexSize() {
+        return indexType == GL11.GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+    }
+
     /**
      * Removes the mesh's data from the ACTION. It may cause errors if the data
      * isn't in the ACTION.
@@ -337,16 +551,48 @@ public class StaticMesh implements Mesh {
      * isn't in the RAM.
      */
     private void ramToHdd() {
-        position = null;
-        uv = null;
-        normal = null;
-        tangent = null;
-        MemoryUtil.memFree(indices);
-        indices = null;
+        data = null;
 
         meta.setState(ResourceState.HDD);
     }
 
+    /**
+     * Starts loading the mesh's data to the VRAM in the background (if it
+     * isn't started already). If the data isn't in the RAM, a loader thread
+     * reads it from file, and the upload to the VRAM happens in the
+     * ResourceLoader's per frame upload budget. Until the data arrives, the
+     * mesh isn't drawn, so when it arrives, it invalidates the cached static
+     * shadows and the environment probes which may have been rendered without
+     * it.
+     *
+     * @see Scene#invalidateStaticShadowCasters()
+     * @see Scene#invalidateEnvironmentProbes()
+     * @see ResourceLoader
+     */
+    private void loadAsync() {
+        if (loading) {
+            return;
+        }
+        loading = true;
+        boolean inRam = getState() == ResourceState.RAM;
+        ResourceLoader.load(() -> inRam ? null : decode(), decoded -> {
+            if (loading && getState() == ResourceState.HDD && decoded != null) {
+                hddToRam(decoded);
+            }
+            if (loading && getState() == ResourceState.RAM) {
+                ramToVram();
+                Scene.invalidateStaticShadowCasters();
+                Scene.invalidateEnvironmentProbes();
+            }
+            return this;
+        }).whenComplete((mesh, exception) -> {
+            loading = false;
+            if (exception != null) {
+                Utility.logException(exception);
+            }
+        });
+    }
+
     //
     //opengl related------------------------------------------------------------
     //
@@ -359,14 +605,34 @@ public class StaticMesh implements Mesh {
 
     @Override
     public void draw() {
+        draw(0);
+    }
+
+    @Override
+    public void draw(int lod) {
+        checkLod(lod);
         if (getState() != ResourceState.ACTION) {
-            if (getState() == ResourceState.HDD) {
-                hddToRam();
-            }
-            ramToVram();
-            vao.bindVao();
+            loadAsync();
+            return;
+        }
+        OpenGl.getBackend().drawElements(GL11.GL_TRIANGLES, lodNumberOfIndices[lod], indexType, (long) lodFirstIndices[lod] * getIndexSize());
+        meta.setLastActiveToNow();
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount) {
+        drawInstanced(instanceData, instanceCount, 0);
+    }
+
+    @Override
+    public void drawInstanced(@NotNull FloatBuffer instanceData, int instanceCount, int lod) {
+        checkLod(lod);
+        if (getState() != ResourceState.ACTION) {
+            loadAsync();
+            return;
         }
-        GL11.glDrawElements(GL11.GL_TRIANGLES, getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+        vao.bindAndAddInstanceData("instances", FIRST_INSTANCE_ATTRIBUTE_NUMBER, NUMBER_OF_INSTANCE_ATTRIBUTES, 4, instanceData);
+        OpenGl.getBackend().drawElementsInstanced(GL11.GL_TRIANGLES, lodNumberOfIndices[lod], indexType, (long) lodFirstIndices[lod] * getIndexSize(), instanceCount);
         meta.setLastActiveToNow();
     }
 
@@ -444,11 +710,12 @@ public class StaticMesh implements Mesh {
 
     /**
      * Returns the mesh's data store policy. ACTION means that the mesh's data
-     * will be stored in ACTION. RAM means that the mesh's data may be removed
-     * from ACTION to RAM if it's rarely used. HDD means that the mesh's data
-     * may be removed from ACTION or even from RAM if it's rarely used. Later if
-     * you want to render this mesh, it'll automatically load the data from file
-     * again.
+     * is pinned in ACTION. RAM means that the mesh's data may be removed from
+     * ACTION to RAM if it's rarely used or if the VRAM budget is exceeded. HDD
+     * means that the mesh's data may be removed from ACTION or even from RAM if
+     * it's rarely used or if the budgets are exceeded. Later if you want to
+     * render this mesh, it'll automatically load the data from file again. By
+     * default it's ACTION.
      *
      * @return the mesh's data store policy
      */
@@ -459,11 +726,12 @@ public class StaticMesh implements Mesh {
 
     /**
      * Sets the mesh's data store policy to the given value. ACTION means that
-     * the mesh's data will be stored in ACTION. RAM means that the mesh's data
-     * may be removed from ACTION to RAM if it's rarely rendered. HDD means that
-     * the mesh's data may be removed from ACTION or even from RAM if it's
-     * rarely rendered. Later if you want to render this mesh, it'll
-     * automatically load the data from file again.
+     * the mesh's data is pinned in ACTION. RAM means that the mesh's data may
+     * be removed from ACTION to RAM if it's rarely rendered or if the VRAM
+     * budget is exceeded. HDD means that the mesh's data may be removed from
+     * ACTION or even from RAM if it's rarely rendered or if the budgets are
+     * exceeded. Later if you want to render this mesh, it'll automatically
+     * load the data from file again.
      *
      * @param minState data store policy
      */
@@ -483,10 +751,33 @@ public class StaticMesh implements Mesh {
      *
      * @return the time when the mesh last time used (in miliseconds)
      */
+    @Override
     public long getLastActive() {
         return meta.getLastActive();
     }
 
+    @Override
+    public long getLastActiveFrame() {
+        return meta.getLastActiveFrame();
+    }
+
+    @Override
+    public void unloadFromAction() {
+        if (getState() == ResourceState.ACTION && getDataStorePolicy() != ResourceState.ACTION) {
+            vramToRam();
+        }
+    }
+
+    @Override
+    public void unloadFromRam() {
+        if (getState() != ResourceState.HDD && getDataStorePolicy() == ResourceState.HDD) {
+            if (getState() == ResourceState.ACTION) {
+                vramToRam();
+            }
+            ramToHdd();
+        }
+    }
+
     @Override
     public void update() {
         long elapsedTime = System.currentTimeMillis() - getLastActive();
@@ -502,6 +793,7 @@ public class StaticMesh implements Mesh {
 
     @Override
     public void release() {
+        loading = false;
         if (getState() == ResourceState.ACTION) {
             vramToRam();
         }
@@ -545,7 +837,7 @@ public class StaticMesh implements Mesh {
 
     @Override
     public int getDataSizeInAction() {
-        return getState() == ResourceState.ACTION ? meta.getDataSize() : 0;
+        return getState() == ResourceState.ACTION ? dataSizeInAction : 0;
     }
 
     @Override
@@ -558,6 +850,85 @@ public class StaticMesh implements Mesh {
         return faceCount;
     }
 
+    //
+    //levels of detail----------------------------------------------------------
+    //
+    /**
+     * Checks whether the given level of detail exists.
+     *
+     * @param lod level of detail
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist
+     */
+    private void checkLod(int lod) {
+        if (lod < 0 || lod >= lodFirstIndices.length) {
+            throw new IllegalArgumentException("Level of detail must be in the [0;" + (lodFirstIndices.length - 1) + "] interval");
+        }
+    }
+
+    @Override
+    public int getNumberOfLods() {
+        return lodFirstIndices.length;
+    }
+
+    @Override
+    public float getLodScreenSize(int lod) {
+        checkLod(lod);
+        return lodScreenSizes[lod];
+    }
+
+    /**
+     * Sets the given level of detail's screen size to the given value. The
+     * level of detail is used if the mesh's projected size is smaller than
+     * this value, but larger than the next level's screen size. The first
+     * level's screen size is always infinite, and the screen sizes have to be
+     * decreasing.
+     *
+     * @param lod        level of detail
+     * @param screenSize the level of detail's screen size
+     *
+     * @throws IllegalArgumentException the level of detail doesn't exist or
+     *                                  it's the first level, the screen size
+     *                                  must be between the neighbor levels'
+     *                                  screen sizes
+     *
+     * @see #getLodScreenSize(int)
+     */
+    public void setLodScreenSize(int lod, float screenSize) {
+        checkLod(lod);
+        if (lod == 0) {
+            throw new IllegalArgumentException("The first level's screen size can't be changed");
+        }
+        float min = lod == lodScreenSizes.length - 1 ? 0 : lodScreenSizes[lod + 1];
+        if (screenSize <= min || screenSize >= lodScreenSizes[lod - 1]) {
+            throw new IllegalArgumentException("Screen size must be between the neighbor levels' screen sizes");
+        }
+        lodScreenSizes[lod] = screenSize;
+    }
+
+    @Override
+    public int getFaceCount(int lod) {
+        checkLod(lod);
+        return lodNumberOfIndices[lod] / 3;
+    }
+
+    /**
+     * Creates an occluder from the mesh's least detailed level of detail. If
+     * the mesh's data isn't in the RAM, it reads the data from file, but it
+     * doesn't change the mesh's state. Note that the simplified levels of
+     * detail keep the mesh's borders, but they may slightly extend beyond the
+     * original surface.
+     *
+     * @return the occluder
+     *
+     * @see components.renderables.MeshComponent#setOccluder(Occluder)
+     */
+    @NotNull
+    public Occluder createOccluder() {
+        BinaryMesh mesh = data != null ? data : decode();
+        return new Occluder(mesh.getPositions(), mesh.getLodIndices(mesh.getNumberOfLods() - 1));
+    }
+
     @Override
     public boolean isUsable() {
         return true;
@@ -571,22 +942,34 @@ public class StaticMesh implements Mesh {
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMax() {
-        return new Vector3f(aabbMax);
+        return getAabbMax(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMax(@NotNull Vector3f dest) {
+        return dest.set(aabbMax);
     }
 
     @NotNull @ReadOnly
     @Override
     public Vector3f getAabbMin() {
-        return new Vector3f(aabbMin);
+        return getAabbMin(new Vector3f());
+    }
+
+    @NotNull
+    @Override
+    public Vector3f getAabbMin(@NotNull Vector3f dest) {
+        return dest.set(aabbMin);
     }
 
     @Override
     public String toString() {
         return "StaticMesh{" + "vao=" + vao + ", vertexCount=" + vertexCount
-                + ", faceCount=" + faceCount + ", furthestVertexDistance="
+                + ", faceCount=" + faceCount + ", numberOfLods="
+                + lodFirstIndices.length + ", furthestVertexDistance="
                 + furthestVertexDistance + ", aabbMin=" + aabbMin + ", aabbMax="
-                + aabbMax + ", position=" + position + ", uv=" + uv + ", normal="
-                + normal + ", tangent=" + tangent + ", indices=" + indices
+                + aabbMax + ", data=" + data
                 + ", meta=" + meta + ", resourceId=" + resourceId + '}';
     }
 
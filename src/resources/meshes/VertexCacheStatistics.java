@@ -0,0 +1,111 @@
+package resources.meshes;
+
+/**
+ * A mesh's simulated post-transform vertex cache efficiency. The ACMR
+ * (average cache miss ratio) is the number of the transformed vertices per
+ * triangle, it's between 0.5 and 3, lower is better. The ATVR (average
+ * transformed vertex ratio) is the number of the transformed vertices per
+ * vertex, it's at least 1, which is the optimum.
+ *
+ * @see MeshOptimizer#computeStatistics(java.nio.IntBuffer, int)
+ */
+public class VertexCacheStatistics {
+
+    /**
+     * The number of the triangles.
+     */
+    private final int numberOfTriangles;
+    /**
+     * The number of the vertices referenced by the triangles.
+     */
+    private final int numberOfVertices;
+    /**
+     * The number of the cache misses.
+     */
+    private final int numberOfCacheMisses;
+    /**
+     * The simulated cache's size.
+     */
+    private final int cacheSize;
+
+    /**
+     * Initializes a new VertexCacheStatistics to the given values.
+     *
+     * @param numberOfTriangles   the number of the triangles
+     * @param numberOfVertices    the number of the vertices referenced by the
+     *                            triangles
+     * @param numberOfCacheMisses the number of the cache misses
+     * @param cacheSize           the simulated cache's size
+     */
+    public VertexCacheStatistics(int numberOfTriangles, int numberOfVertices, int numberOfCacheMisses, int cacheSize) {
+        this.numberOfTriangles = numberOfTriangles;
+        this.numberOfVertices = numberOfVertices;
+        this.numberOfCacheMisses = numberOfCacheMisses;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the number of the triangles.
+     *
+     * @return the number of the triangles
+     */
+    public int getNumberOfTriangles() {
+        return numberOfTriangles;
+    }
+
+    /**
+     * Returns the number of the vertices referenced by the triangles.
+     *
+     * @return the number of the referenced vertices
+     */
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    /**
+     * Returns the number of the cache misses (the transformed vertices).
+     *
+     * @return the number of the cache misses
+     */
+    public int getNumberOfCacheMisses() {
+        return numberOfCacheMisses;
+    }
+
+    /**
+     * Returns the simulated cache's size.
+     *
+     * @return the simulated cache's size (in vertices)
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Returns the average cache miss ratio. It returns 0 if there is no
+     * triangle.
+     *
+     * @return the number of the transformed vertices per triangle
+     */
+    public float getAcmr() {
+        return numberOfTriangles == 0 ? 0 : numberOfCacheMisses / (float) numberOfTriangles;
+    }
+
+    /**
+     * Returns the average transformed vertex ratio. It returns 0 if there is
+     * no vertex.
+     *
+     * @return the number of the transformed vertices per vertex
+     */
+    public float getAtvr() {
+        return numberOfVertices == 0 ? 0 : numberOfCacheMisses / (float) numberOfVertices;
+    }
+
+    @Override
+    public String toString() {
+        return "VertexCacheStatistics{" + "numberOfTriangles=" + numberOfTriangles
+                + ", numberOfVertices=" + numberOfVertices + ", numberOfCacheMisses="
+                + numberOfCacheMisses + ", cacheSize=" + cacheSize + ", acmr="
+                + getAcmr() + ", atvr=" + getAtvr() + '}';
+    }
+
+}
@@ -0,0 +1,163 @@
+package resources.meshes;
+
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * Encodes the meshes' vertex attributes into compact formats. The texture
+ * coordinates are stored as 2 half floats, the normal and the tangent vectors
+ * as signed normalized 10-10-10-2 packed integers, and the indices as 16 bit
+ * integers if the mesh has few enough vertices. The GPU decodes these formats
+ * during the vertex fetch, so the shaders get the same vectors as from the
+ * float attributes. The BinaryMesh uses these conversions when it interleaves
+ * the vertices at import time. It doesn't use OpenGL.
+ *
+ * @see BinaryMesh
+ * @see StaticMesh
+ */
+public class VertexCompression {
+
+    /**
+     * The compressed texture coordinates' size (in bytes per vertex).
+     */
+    public static final int TEXTURE_COORDINATES_SIZE = 2 * Short.BYTES;
+    /**
+     * The compressed directions' size (in bytes per vertex).
+     */
+    public static final int DIRECTION_SIZE = Integer.BYTES;
+    /**
+     * The maximum number of vertices which can be indexed with 16 bit indices.
+     */
+    public static final int MAX_NUMBER_OF_SHORT_INDEXED_VERTICES = 1 << 16;
+    /**
+     * The maximum value of a 10 bit signed normalized integer.
+     */
+    private static final int SNORM10_MAX = 511;
+
+    /**
+     * To can't create VertexCompression instance.
+     */
+    private VertexCompression() {
+    }
+
+    /**
+     * Determines whether the mesh with the given number of vertices can use
+     * 16 bit indices.
+     *
+     * @param numberOfVertices the mesh's number of vertices
+     *
+     * @return true if the mesh can use 16 bit indices, false otherwise
+     */
+    public static boolean isShortIndexable(int numberOfVertices) {
+        return numberOfVertices <= MAX_NUMBER_OF_SHORT_INDEXED_VERTICES;
+    }
+
+    //
+    //half floats---------------------------------------------------------------
+    //
+    /**
+     * Converts the given float to half float. It rounds to the nearest
+     * representable value, the too large values become infinite.
+     *
+     * @param value float
+     *
+     * @return the half float's bits
+     */
+    public static short toHalfFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7FFFFFFF;
+        if (magnitude >= 0x7F800000) {
+            //infinity or NaN
+            return (short) (sign | 0x7C00 | (magnitude > 0x7F800000 ? 0x200 : 0));
+        }
+        if (magnitude >= 0x477FF000) {
+            //too large
+            return (short) (sign | 0x7C00);
+        }
+        if (magnitude >= 0x38800000) {
+            //normal, rounded to nearest even
+            int rounded = magnitude + 0xFFF + ((magnitude >>> 13) & 1);
+            return (short) (sign | ((rounded - 0x38000000) >>> 13));
+        }
+        if (magnitude < 0x33000000) {
+            //too small
+            return (short) sign;
+        }
+        //subnormal
+        int shift = 126 - (magnitude >>> 23);
+        int mantissa = (magnitude & 0x7FFFFF) | 0x800000;
+        return (short) (sign | ((mantissa + (1 << (shift - 1))) >>> shift));
+    }
+
+    /**
+     * Converts the given half float to float.
+     *
+     * @param half the half float's bits
+     *
+     * @return float
+     */
+    public static float toFloat(short half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+        if (exponent == 0) {
+            float value = mantissa / (float) (1 << 24);
+            return sign == 0 ? value : -value;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+        }
+        return Float.intBitsToFloat(sign | (exponent + 112) << 23 | mantissa << 13);
+    }
+
+    //
+    //packed directions---------------------------------------------------------
+    //
+    /**
+     * Packs the given vector to a signed normalized 10-10-10-2 integer
+     * (GL_INT_2_10_10_10_REV layout: x is in the lowest bits). The components
+     * are clamped to the [-1;1] interval.
+     *
+     * @param x the vector's x component
+     * @param y the vector's y component
+     * @param z the vector's z component
+     * @param w the vector's w component (-1, 0 or 1)
+     *
+     * @return the packed vector
+     */
+    public static int packDirection(float x, float y, float z, int w) {
+        return toSnorm10(x) | toSnorm10(y) << 10 | toSnorm10(z) << 20 | (w & 0x3) << 30;
+    }
+
+    /**
+     * Converts the given value to a 10 bit signed normalized integer.
+     *
+     * @param value value
+     *
+     * @return the 10 bit signed normalized integer
+     */
+    private static int toSnorm10(float value) {
+        float clamped = java.lang.Math.max(-1, java.lang.Math.min(1, value));
+        return java.lang.Math.round(clamped * SNORM10_MAX) & 0x3FF;
+    }
+
+    /**
+     * Unpacks the given signed normalized 10-10-10-2 integer, the same way as
+     * the GPU does.
+     *
+     * @param packed the packed vector
+     * @param dest   will hold the result
+     *
+     * @return dest
+     */
+    @NotNull
+    public static Vector4f unpackDirection(int packed, @NotNull Vector4f dest) {
+        return dest.set(
+                java.lang.Math.max(-1, ((packed << 22) >> 22) / (float) SNORM10_MAX),
+                java.lang.Math.max(-1, ((packed << 12) >> 22) / (float) SNORM10_MAX),
+                java.lang.Math.max(-1, ((packed << 2) >> 22) / (float) SNORM10_MAX),
+                java.lang.Math.max(-1, packed >> 30));
+    }
+
+}
@@ -0,0 +1,197 @@
+package resources.shaders;
+
+import materials.*;
+import org.joml.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Compiles Materials into the BlinnPhongShader's Material uniform block. The
+ * block uses the std140 layout, so it can be uploaded to an UBO as it is. It
+ * doesn't use OpenGL, it only reads the Material's slots and parameters, and
+ * replaces the missing values with the defaults.
+ *
+ * @see BlinnPhongShader
+ */
+public class BlinnPhongMaterialBlock {
+
+    /**
+     * The Material block's size (in bytes).
+     */
+    public static final int SIZE = 160;
+    /**
+     * The diffuse color's default value.
+     */
+    private static final float DEFAULT_DIFFUSE = 0.5f;
+    /**
+     * The specular color's default value.
+     */
+    private static final float DEFAULT_SPECULAR = 0.5f;
+    /**
+     * The parallax occlusion map's default scale.
+     */
+    private static final float DEFAULT_POM_SCALE = 0.1f;
+    /**
+     * The parallax occlusion map's default minimum layers.
+     */
+    private static final float DEFAULT_POM_MIN_LAYERS = 15;
+    /**
+     * The parallax occlusion map's default maximum layers.
+     */
+    private static final float DEFAULT_POM_MAX_LAYERS = 30;
+    /**
+     * The default refraction index.
+     */
+    private static final float DEFAULT_REFRACTION_INDEX = 1f / 1.33f;
+
+    /**
+     * To can't create BlinnPhongMaterialBlock instance.
+     */
+    private BlinnPhongMaterialBlock() {
+    }
+
+    /**
+     * Writes the given Material's block by the given Std140Writer. The writer
+     * should be at the block's beginning.
+     *
+     * @param material Material
+     * @param writer   Std140Writer
+     *
+     * @throws NullPointerException the parameters can't be null
+     */
+    public static void store(@NotNull Material material, @NotNull Std140Writer writer) {
+        if (material == null || writer == null) {
+            throw new NullPointerException();
+        }
+        MaterialSlot diffuse = getActiveSlot(material, Material.DIFFUSE);
+        MaterialSlot specular = getActiveSlot(material, Material.SPECULAR);
+        MaterialSlot normal = getActiveSlot(material, Material.NORMAL);
+        MaterialSlot intensity = getActiveSlot(material, Material.ENVIRONTMENT_INTENSITY);
+        boolean diffuseMap = isThereTexture(diffuse);
+        boolean specularMap = isThereTexture(specular);
+        boolean normalMap = isThereTexture(normal);
+        boolean intensityMap = isThereTexture(intensity);
+        boolean glossiness = specularMap && isTrue(material.getFloatParameter(Material.PARAM_USE_GLOSSINESS_F));
+        boolean pom = normalMap && isTrue(material.getFloatParameter(Material.PARAM_USE_POM_F));
+        //colors
+        Vector4f color = diffuse == null ? null : diffuse.getColor();
+        if (color == null) {
+            writer.putVector4(DEFAULT_DIFFUSE, DEFAULT_DIFFUSE, DEFAULT_DIFFUSE, 1);
+        } else {
+            writer.putVector4(color.x, color.y, color.z, 1);
+        }
+        color = specular == null ? null : specular.getColor();
+        if (color == null) {
+            writer.putVector4(DEFAULT_SPECULAR, DEFAULT_SPECULAR, DEFAULT_SPECULAR, DEFAULT_SPECULAR);
+        } else {
+            writer.putVector4(color);
+        }
+        color = intensity == null ? null : intensity.getColor();
+        if (color == null) {
+            writer.putVector4(1, 1, 1, 1);
+        } else {
+            writer.putVector4(color.x, color.y, color.z, 1);
+        }
+        //tiles and offsets
+        storeTileAndOffset(diffuse, writer);
+        storeTileAndOffset(specular, writer);
+        storeTileAndOffset(normal, writer);
+        storeTileAndOffset(intensity, writer);
+        //parameters
+        writer.putFloat(getFloatParameter(material, Material.PARAM_POM_SCALE_F, DEFAULT_POM_SCALE));
+        writer.putFloat(getFloatParameter(material, Material.PARAM_POM_MIN_LAYERS_F, DEFAULT_POM_MIN_LAYERS));
+        writer.putFloat(getFloatParameter(material, Material.PARAM_POM_MAX_LAYERS_F, DEFAULT_POM_MAX_LAYERS));
+        writer.putFloat(getFloatParameter(material, Material.PARAM_REFRACTION_INDEX_F, DEFAULT_REFRACTION_INDEX));
+        //flags
+        writer.putBoolean(diffuseMap);
+        writer.putBoolean(specularMap);
+        writer.putBoolean(glossiness);
+        writer.putBoolean(normalMap);
+        writer.putBoolean(pom);
+        writer.putBoolean(isThereEnvironmentProbe(material, Material.REFLECTION));
+        writer.putBoolean(isThereEnvironmentProbe(material, Material.REFRACTION));
+        writer.putBoolean(intensityMap);
+        writer.align(16);
+    }
+
+    /**
+     * Returns the Material's specified slot if it's active.
+     *
+     * @param material Material
+     * @param key      the slot's key
+     *
+     * @return the Material's specified slot if it's active, null otherwise
+     */
+    @Nullable
+    static MaterialSlot getActiveSlot(@NotNull Material material, @NotNull String key) {
+        MaterialSlot slot = material.getSlot(key);
+        return slot != null && slot.isActive() ? slot : null;
+    }
+
+    /**
+     * Determines whether the given slot has a texture.
+     *
+     * @param slot MaterialSlot
+     *
+     * @return true if the slot has a texture, false otherwise
+     */
+    private static boolean isThereTexture(@Nullable MaterialSlot slot) {
+        return slot != null && slot.getTexture() != null;
+    }
+
+    /**
+     * Determines whether the Material's specified slot has an environment
+     * probe.
+     *
+     * @param material Material
+     * @param key      the slot's key
+     *
+     * @return true if the slot has an environment probe, false otherwise
+     */
+    static boolean isThereEnvironmentProbe(@NotNull Material material, @NotNull String key) {
+        MaterialSlot slot = getActiveSlot(material, key);
+        return slot != null && slot.getEnvironmentProbe() != null;
+    }
+
+    /**
+     * Determines whether the given parameter is set to true (1).
+     *
+     * @param value parameter
+     *
+     * @return true if the parameter is 1, false otherwise
+     */
+    private static boolean isTrue(@Nullable Float value) {
+        return value != null && value == 1f;
+    }
+
+    /**
+     * Returns the Material's specified float parameter.
+     *
+     * @param material     Material
+     * @param key          the parameter's key
+     * @param defaultValue the value used if the parameter isn't set
+     *
+     * @return the Material's specified float parameter
+     */
+    private static float getFloatParameter(@NotNull Material material, @NotNull String key, float defaultValue) {
+        Float value = material.getFloatParameter(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Writes the given slot's texture tile and texture offset.
+     *
+     * @param slot   MaterialSlot
+     * @param writer Std140Writer
+     */
+    private static void storeTileAndOffset(@Nullable MaterialSlot slot, @NotNull Std140Writer writer) {
+        if (slot == null) {
+            writer.putVector2(1, 1);
+            writer.putVector2(0, 0);
+        } else {
+            writer.putVector2(slot.getTextureTile());
+            writer.putVector2(slot.getTextureOffset());
+        }
+    }
+
+}
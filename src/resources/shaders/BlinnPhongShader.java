@@ -3,11 +3,14 @@ package resources.shaders;
 import components.light.*;
 import core.*;
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 import materials.*;
 import org.joml.*;
+import org.lwjgl.*;
+import rendering.*;
 import resources.*;
-import resources.textures.texture2D.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -18,6 +21,12 @@ import toolbox.annotations.*;
  * map's alpha channel as a parallax map. If you don't fill the diffuse or
  * specular slots, the shader uses default values (basically you can even use
  * this Renderer with an empty material).
+ * <br>
+ * The shader gets its data through uniform blocks instead of uniform
+ * variables. The per frame data is uploaded once in every frame, the Materials
+ * are compiled into std140 blocks and stored in their own UBOs (which are
+ * rebound only when the Material changes), and the per object data is streamed
+ * through an UboRing.
  *
  * @see Material#PARAM_POM_MAX_LAYERS_F
  * @see Material#PARAM_POM_MIN_LAYERS_F
@@ -45,6 +54,102 @@ public class BlinnPhongShader extends Shader {
      */
     private static final String fragmentPath = "res/shaders/blinnPhong/fragmentShader.glsl";
 
+    /**
+     * The Frame uniform block's binding point.
+     */
+    public static final int FRAME_BINDING_POINT = 3;
+    /**
+     * The Object uniform block's binding point.
+     */
+    public static final int OBJECT_BINDING_POINT = 4;
+    /**
+     * The Material uniform block's binding point.
+     */
+    public static final int MATERIAL_BINDING_POINT = 5;
+    /**
+     * The Frame uniform block's size (in bytes).
+     */
+    private static final int FRAME_BLOCK_SIZE = 336;
+    /**
+     * The Object uniform block's size (in bytes).
+     */
+    private static final int OBJECT_BLOCK_SIZE = 144;
+    /**
+     * The number of Object blocks the streamed object UBO can store.
+     */
+    private static final int OBJECT_RING_CAPACITY = 512;
+    /**
+     * A Material's UBO is released if the Material isn't used for this many
+     * frames.
+     */
+    private static final int MATERIAL_UBO_LIFETIME = 600;
+    /**
+     * The Frame uniform block's UBO.
+     */
+    private Ubo frameUbo;
+    /**
+     * The Frame uniform block's data.
+     */
+    private ByteBuffer frameData;
+    /**
+     * Streams the Object uniform blocks.
+     */
+    private UboRing objectRing;
+    /**
+     * The Materials' UBOs.
+     */
+    private final Map<Material, MaterialUbo> materialUbos = new IdentityHashMap<>();
+    /**
+     * Temporary storage for the compiled Material blocks.
+     */
+    private ByteBuffer materialData;
+    /**
+     * Writes the uniform blocks.
+     */
+    private final Std140Writer writer = new Std140Writer();
+    /**
+     * Identity matrix for the unused shadow cascades.
+     */
+    private final Matrix4f identityMatrix = new Matrix4f();
+    /**
+     * The last loaded Material in the actual frame.
+     */
+    private Material lastMaterial;
+    /**
+     * The actual frame's index.
+     */
+    private int frame;
+
+    /**
+     * A Material's UBO.
+     */
+    private static class MaterialUbo {
+
+        /**
+         * The UBO.
+         */
+        private final Ubo ubo;
+        /**
+         * The uploaded Material block.
+         */
+        private final ByteBuffer data = BufferUtils.createByteBuffer(BlinnPhongMaterialBlock.SIZE);
+        /**
+         * The index of the frame when the Material block was last compiled.
+         */
+        private int frame = -1;
+
+        /**
+         * Initializes a new MaterialUbo.
+         */
+        public MaterialUbo() {
+            ubo = new Ubo();
+            ubo.bind();
+            ubo.allocateMemory(BlinnPhongMaterialBlock.SIZE, false);
+            ubo.unbind();
+            data.limit(0);
+        }
+    }
+
     /**
      * Inizializes a new Blinn-Phong shader.
      */
@@ -54,6 +159,7 @@ public class BlinnPhongShader extends Shader {
         paths.add(new File(vertexPath));
         paths.add(new File(fragmentPath));
         resourceId = new ResourceId(paths);
+        createUbos();
         ResourceManager.addShader(this);
     }
 
@@ -72,315 +178,297 @@ public class BlinnPhongShader extends Shader {
 
     @Override
     protected void connectUniforms() {
-        //matrices
-        connectUniform("modelMatrix");
-        connectUniform("inverseModelMatrix3x3");
-        connectUniform("shadowProjectionViewMatrix");
-        //material
-        //diffuse
-        connectUniform("material.isThereDiffuseMap");
-        connectUniform("material.diffuse");
-        connectUniform("material.diffuseTile");
-        connectUniform("material.diffuseOffset");
-        connectUniform("material.diffuseColor");
-        //specular
-        connectUniform("material.isThereSpecularMap");
-        connectUniform("material.specular");
-        connectUniform("material.specularTile");
-        connectUniform("material.specularOffset");
-        connectUniform("material.specularColor");
-        //glossiness
-        connectUniform("material.isThereGlossiness");
-        //normal
-        connectUniform("material.isThereNormalMap");
-        connectUniform("material.normal");
-        connectUniform("material.normalTile");
-        connectUniform("material.normalOffset");
-        //pom
-        connectUniform("material.isTherePOM");
-        connectUniform("material.POMScale");
-        connectUniform("material.POMMinLayers");
-        connectUniform("material.POMMaxLayers");
-        //reflection
-        connectUniform("material.isThereReflectionMap");
-        connectUniform("material.reflection");
-        connectUniform("material.isThereRefractionMap");
-        connectUniform("material.refraction");
-        connectUniform("material.refractionIndex");
-        connectUniform("material.isThereEnvironmentIntensityMap");
-        connectUniform("material.environmentIntensity");
-        connectUniform("material.environmentIntensityColor");
-        connectUniform("material.environmentIntensityTile");
-        connectUniform("material.environmentIntensityOffset");
-        //misc
-        connectUniform("wireframe");
-        connectUniform("viewPosition");
         connectUniform("shadowMap");
-        connectUniform("receiveShadow");
-        connectUniform("gamma");
-        connectUniform("useNormalMap");
+        connectUniform("diffuseMap");
+        connectUniform("specularMap");
+        connectUniform("normalMap");
+        connectUniform("reflectionMap");
+        connectUniform("refractionMap");
+        connectUniform("environmentIntensityMap");
+        connectUniform("lightData");
+        connectUniform("lightClusters");
+    }
+
+    /**
+     * Creates the UBOs of the per frame and the per object uniform blocks.
+     */
+    private void createUbos() {
+        frameData = BufferUtils.createByteBuffer(FRAME_BLOCK_SIZE);
+        frameUbo = new Ubo();
+        frameUbo.bind();
+        frameUbo.allocateMemory(FRAME_BLOCK_SIZE, true);
+        frameUbo.unbind();
+        objectRing = new UboRing(OBJECT_BLOCK_SIZE, OBJECT_RING_CAPACITY);
+        materialData = BufferUtils.createByteBuffer(BlinnPhongMaterialBlock.SIZE);
     }
 
     /**
-     * Loads various global data as uniform variables to the shader like view
-     * position, gamma value etc.
+     * Loads various global data to the Frame uniform block like view position,
+     * gamma value, the directional light's shadow cascades etc. You should
+     * call it once in every frame, before the other load methods.
      */
     public void loadGlobalUniforms() {
-        //directional light
+        frame++;
+        lastMaterial = null;
+        if (frame % MATERIAL_UBO_LIFETIME == 0) {
+            releaseUnusedMaterialUbos();
+        }
         DirectionalLightComponent light = (DirectionalLightComponent) Scene.getDirectionalLight();
-        loadMatrix4("shadowProjectionViewMatrix", light.getProjectionViewMatrix());
-        //others
-        loadVector3("viewPosition", Scene.getCamera().getGameObject().getTransform().getAbsolutePosition());
-        loadBoolean("gamma", Settings.getGamma() != 1);
-        loadBoolean("wireframe", Settings.isWireframeMode());
+        ShadowCascades cascades = Settings.isShadowMapping() ? light.getShadowCascades() : null;
+        int numberOfCascades = cascades == null ? 0 : cascades.getNumberOfCascades();
+        writer.begin(frameData, 0);
+        for (int i = 0; i < ShadowCascades.MAX_NUMBER_OF_CASCADES; i++) {
+            writer.putMatrix4(i < numberOfCascades ? cascades.getProjectionViewMatrix(i) : identityMatrix);
+        }
+        for (int i = 0; i < ShadowCascades.MAX_NUMBER_OF_CASCADES; i++) {
+            writer.putFloat(i < numberOfCascades ? cascades.getSplitDistance(i + 1) : 0);
+        }
+        writer.putVector3(Scene.getCamera().getGameObject().getTransform().getAbsolutePosition());
+        writer.putBoolean(Settings.getGamma() != 1);
+        writer.putBoolean(Settings.isWireframeMode());
+        writer.putInt(numberOfCascades);
+        writer.putFloat(LightClusters.getDepthScale());
+        writer.putFloat(LightClusters.getDepthBias());
+        Vector2i size = RenderingPipeline.getRenderingSize();
+        if (LightClusters.isClustered()) {
+            writer.putVector2(LightClusters.GRID_WIDTH / (float) size.x, LightClusters.GRID_HEIGHT / (float) size.y);
+        } else {
+            writer.putVector2(0, 0);
+        }
+        writer.putInt(LightClusters.GRID_WIDTH);
+        writer.putInt(LightClusters.GRID_HEIGHT);
+        writer.putInt(LightClusters.GRID_DEPTH);
+        frameUbo.bind();
+        frameUbo.storeData(frameData, 0);
+        frameUbo.unbind();
+        frameUbo.bindToBindingPoint(FRAME_BINDING_POINT);
+    }
+
+    //
+    //objects-------------------------------------------------------------------
+    //
+    /**
+     * Returns the maximum number of objects you can reserve at once.
+     *
+     * @return the maximum number of objects you can reserve at once
+     *
+     * @see #reserveObjectUniforms(int)
+     */
+    public int getMaxNumberOfReservedObjects() {
+        return objectRing.getCapacity();
+    }
+
+    /**
+     * Reserves the given number of per object uniform blocks in the streamed
+     * object UBO. After that you can store the objects' data, upload all of
+     * them at once and load them one by one before the draw calls.
+     *
+     * @param numberOfObjects number of objects
+     *
+     * @throws IllegalArgumentException number of objects have to be positive and
+     * can't be higher than the maximum number of reserved objects
+     * @see #getMaxNumberOfReservedObjects()
+     * @see #storeObjectUniforms(int, Matrix4f, Matrix4f, boolean, boolean)
+     * @see #uploadObjectUniforms()
+     * @see #loadObjectUniforms(int)
+     */
+    public void reserveObjectUniforms(int numberOfObjects) {
+        objectRing.reserve(numberOfObjects);
     }
 
     /**
-     * Loads per object data to the shader as uniform variables.
+     * Stores the specified reserved object's data. In case of instanced
+     * rendering the model matrices come from the instances' data, so the given
+     * matrices are ignored.
      *
+     * @param index the object's index in the reserved objects
      * @param modelMatrix model matrix
-     * @param inverseModelMatrix3x3 the 3x3 inverse of the model matrix
-     * @param receiveShadow true if the Renderable is receive shadows, false
+     * @param inverseModelMatrix inverse model matrix
+     * @param receiveShadow true if the object receives shadows, false otherwise
+     * @param instanced true if the object is an instanced batch, false
      * otherwise
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     * @see rendering.geometry.InstanceBatcher
      */
-    public void loadObjectUniforms(@NotNull Matrix4f modelMatrix, @NotNull Matrix3f inverseModelMatrix3x3, boolean receiveShadow) {
-        loadMatrix4("modelMatrix", modelMatrix);
-        loadMatrix3("inverseModelMatrix3x3", inverseModelMatrix3x3);
-        loadBoolean("receiveShadow", receiveShadow);
+    public void storeObjectUniforms(int index, @NotNull Matrix4f modelMatrix, @NotNull Matrix4f inverseModelMatrix, boolean receiveShadow, boolean instanced) {
+        Std140Writer block = objectRing.getBlock(index);
+        block.putMatrix4(modelMatrix);
+        block.putMatrix4(inverseModelMatrix);
+        block.putBoolean(receiveShadow);
+        block.putBoolean(instanced);
     }
 
     /**
-     * Loads the diffuse values from the given Material to the shader as uniform
-     * variables.
+     * Uploads all the reserved objects' data with one call.
+     */
+    public void uploadObjectUniforms() {
+        objectRing.upload();
+    }
+
+    /**
+     * Binds the specified reserved object's data to the Object uniform block.
+     *
+     * @param index the object's index in the reserved objects
      *
-     * @param material renderable's material
-     */
-    private void loadDiffuseSlot(@Nullable Material material) {
-        MaterialSlot slot = material.getSlot(Material.DIFFUSE);
-        String isThereMapUniformName = "material.isThereDiffuseMap";
-        String tileName = "material.diffuseTile";
-        String offsetName = "material.diffuseOffset";
-        String colorUniformName = "material.diffuseColor";
-        int textureUnit = 1;
-        Vector3f defaultValue = new Vector3f(0.5f);
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public void loadObjectUniforms(int index) {
+        objectRing.bindToBindingPoint(index, OBJECT_BINDING_POINT);
+    }
 
-        if (slot != null && slot.isActive()) {
-            Texture2D texture = slot.getTexture();
-            Vector4f color = slot.getColor();
-            if (texture != null) {
-                texture.bindToTextureUnit(textureUnit);
-                loadBoolean(isThereMapUniformName, true);
-                loadVector2(tileName, slot.getTextureTile());
-                loadVector2(offsetName, slot.getTextureOffset());
-            } else if (color != null) {
-                loadVector3(colorUniformName, new Vector3f(color.x, color.y, color.z));
-                loadBoolean(isThereMapUniformName, false);
-            } else {
-                loadVector3(colorUniformName, defaultValue);
-                loadBoolean(isThereMapUniformName, false);
-            }
-        } else {
-            loadVector3(colorUniformName, defaultValue);
-            loadBoolean(isThereMapUniformName, false);
+    //
+    //materials-----------------------------------------------------------------
+    //
+    /**
+     * Binds the given Material's UBO to the Material uniform block and binds
+     * the Material's textures. If the Material is the same as the previous
+     * one, it does nothing. The Material's block is compiled at most once in a
+     * frame, and it's uploaded only if it's changed.
+     *
+     * @param material material
+     */
+    public void loadMaterial(@NotNull Material material) {
+        if (material == lastMaterial) {
+            return;
         }
+        lastMaterial = material;
+        MaterialUbo materialUbo = materialUbos.get(material);
+        if (materialUbo == null) {
+            materialUbo = new MaterialUbo();
+            materialUbos.put(material, materialUbo);
+        }
+        if (materialUbo.frame != frame) {
+            materialUbo.frame = frame;
+            updateMaterialUbo(material, materialUbo);
+        }
+        materialUbo.ubo.bindToBindingPoint(MATERIAL_BINDING_POINT);
+        bindMaterialTextures(material);
     }
 
     /**
-     * Loads the specular values from the given Material to the shader as
-     * uniform variables.
+     * Compiles the given Material's block and uploads it to the Material's UBO
+     * if it differs from the previously uploaded block.
      *
-     * @param material renderable's material
-     */
-    private void loadSpecularSlot(@Nullable Material material) {
-        MaterialSlot slot = material.getSlot(Material.SPECULAR);
-        String isThereMapUniformName = "material.isThereSpecularMap";
-        String tileName = "material.specularTile";
-        String offsetName = "material.specularOffset";
-        String colorUniformName = "material.specularColor";
-        String useGlossiness = "material.isThereGlossiness";
-        int textureUnit = 2;
-        Vector4f defaultValue = new Vector4f(0.5f);
-
-        if (slot != null && slot.isActive()) {
-            Texture2D texture = slot.getTexture();
-            Vector4f color = slot.getColor();
-            if (texture != null) {
-                texture.bindToTextureUnit(textureUnit);
-                loadBoolean(isThereMapUniformName, true);
-                loadVector2(tileName, slot.getTextureTile());
-                loadVector2(offsetName, slot.getTextureOffset());
-                Float isThereGlossiness = material.getFloatParameter(Material.PARAM_USE_GLOSSINESS_F);
-                if (isThereGlossiness == null || isThereGlossiness != 1f) {
-                    loadBoolean(useGlossiness, false);
-                    if (color != null) {
-                        loadVector4(colorUniformName, color);
-                    } else {
-                        loadVector4(colorUniformName, defaultValue);
-                    }
-                } else {
-                    loadBoolean(useGlossiness, true);
-                }
-            } else if (color != null) {
-                loadVector4(colorUniformName, color);
-                loadBoolean(isThereMapUniformName, false);
-            } else {
-                loadVector4(colorUniformName, defaultValue);
-                loadBoolean(isThereMapUniformName, false);
-            }
-        } else {
-            loadVector4(colorUniformName, defaultValue);
-            loadBoolean(isThereMapUniformName, false);
+     * @param material material
+     * @param materialUbo the Material's UBO
+     */
+    private void updateMaterialUbo(@NotNull Material material, @NotNull MaterialUbo materialUbo) {
+        materialData.clear();
+        writer.begin(materialData, 0);
+        BlinnPhongMaterialBlock.store(material, writer);
+        if (!materialUbo.data.equals(materialData)) {
+            materialUbo.data.clear();
+            materialUbo.data.put(materialData);
+            materialUbo.data.flip();
+            materialData.flip();
+            materialUbo.ubo.bind();
+            materialUbo.ubo.storeData(materialData, 0);
+            materialUbo.ubo.unbind();
         }
     }
 
     /**
-     * Loads the normal values from the given Material to the shader as uniform
-     * variables.
+     * Binds the given Material's textures to their texture units.
      *
-     * @param material renderable's material
-     */
-    private void loadNormalSlot(@Nullable Material material) {
-        MaterialSlot slot = material.getSlot(Material.NORMAL);
-        String isThereMapUniformName = "material.isThereNormalMap";
-        String useNormalUniformName = "useNormalMap";
-        String tileName = "material.normalTile";
-        String offsetName = "material.normalOffset";
-        String isTherePomUniformName = "material.isTherePOM";
-        int textureUnit = 3;
-        String POMScale = "material.POMScale";
-        String POMMinLayers = "material.POMMinLayers";
-        String POMMaxLayers = "material.POMMaxLayers";
-        float defPOMScale = 0.1f;
-        float defPOMMinLayers = 15f;
-        float defPOMMaxLayers = 30f;
+     * @param material material
+     */
+    private void bindMaterialTextures(@NotNull Material material) {
+        bindTexture(material, Material.DIFFUSE, 1);
+        bindTexture(material, Material.SPECULAR, 2);
+        bindTexture(material, Material.NORMAL, 3);
+        bindEnvironmentProbe(material, Material.REFLECTION, 4);
+        bindEnvironmentProbe(material, Material.REFRACTION, 5);
+        bindTexture(material, Material.ENVIRONTMENT_INTENSITY, 6);
+    }
 
-        if (slot != null && slot.isActive()) {
-            Texture2D texture = slot.getTexture();
-            if (texture != null) {
-                texture.bindToTextureUnit(textureUnit);
-                loadBoolean(isThereMapUniformName, true);
-                loadBoolean(useNormalUniformName, true);
-                loadVector2(tileName, slot.getTextureTile());
-                loadVector2(offsetName, slot.getTextureOffset());
-                Float usePom = material.getFloatParameter(Material.PARAM_USE_POM_F);
-                if (usePom != null && usePom == 1f) {
-                    loadBoolean(isTherePomUniformName, true);
-                    Float value = material.getFloatParameter(Material.PARAM_POM_SCALE_F);
-                    loadFloat(POMScale, value == null ? defPOMScale : value);
-                    value = material.getFloatParameter(Material.PARAM_POM_MIN_LAYERS_F);
-                    loadFloat(POMMinLayers, value == null ? defPOMMinLayers : value);
-                    value = material.getFloatParameter(Material.PARAM_POM_MAX_LAYERS_F);
-                    loadFloat(POMMaxLayers, value == null ? defPOMMaxLayers : value);
-                } else {
-                    loadBoolean(isTherePomUniformName, false);
-                }
-            } else {
-                loadBoolean(isThereMapUniformName, false);
-                loadBoolean(useNormalUniformName, false);
-            }
-        } else {
-            loadBoolean(isThereMapUniformName, false);
-            loadBoolean(useNormalUniformName, false);
+    /**
+     * Binds the Material's specified slot's texture to the given texture unit
+     * (if there is any).
+     *
+     * @param material material
+     * @param key the slot's key
+     * @param textureUnit texture unit
+     */
+    private void bindTexture(@NotNull Material material, @NotNull String key, int textureUnit) {
+        MaterialSlot slot = BlinnPhongMaterialBlock.getActiveSlot(material, key);
+        if (slot != null && slot.getTexture() != null) {
+            slot.getTexture().bindToTextureUnit(textureUnit);
         }
     }
 
     /**
-     * Loads the reflection and refraction values from the given Material to the
-     * shader as uniform variables.
+     * Binds the Material's specified slot's environment probe to the given
+     * texture unit (if there is any).
      *
-     * @param material renderable's material
-     */
-    private void loadEnvironmentSlots(@Nullable Material material) {
-        //reflection
-        MaterialSlot reflectionSlot = material.getSlot(Material.REFLECTION);
-        String isThereReflectionMap = "material.isThereReflectionMap";
-        int reflectionTextureUnit = 4;
-        boolean reflectionUsable = reflectionSlot != null && reflectionSlot.isActive() && reflectionSlot.getEnvironmentProbe() != null;
-        //refraction
-        MaterialSlot refractionSlot = material.getSlot(Material.REFRACTION);
-        String isThereRefractionMap = "material.isThereRefractionMap";
-        int refractionTextureUnit = 5;
-        String refractionIndex = "material.refractionIndex";
-        float index = material.getFloatParameter(Material.PARAM_REFRACTION_INDEX_F) == null ? 1f / 1.33f : material.getFloatParameter(Material.PARAM_REFRACTION_INDEX_F);
-        boolean refractionUsable = refractionSlot != null && refractionSlot.isActive() && refractionSlot.getEnvironmentProbe() != null;
-        //intensity
-        MaterialSlot intensitySlot = material.getSlot(Material.ENVIRONTMENT_INTENSITY);
-        String isThereIntensityMap = "material.isThereEnvironmentIntensityMap";
-        String intensityColor = "material.environmentIntensityColor";
-        String tileName = "material.environmentIntensityTile";
-        String offsetName = "material.environmentIntensityOffset";
-        int intensityTextureUnit = 6;
-
-        if (reflectionUsable || refractionUsable) {
-            if (!reflectionUsable && refractionUsable) {
-                loadBoolean(isThereReflectionMap, false);
-
-                loadBoolean(isThereRefractionMap, true);
-                refractionSlot.getEnvironmentProbe().bindToTextureUnit(refractionTextureUnit);
-                loadFloat(refractionIndex, index);
-            } else if (reflectionUsable && !refractionUsable) {
-                loadBoolean(isThereReflectionMap, true);
-                reflectionSlot.getEnvironmentProbe().bindToTextureUnit(reflectionTextureUnit);
-
-                loadBoolean(isThereRefractionMap, false);
-            } else {
-                loadBoolean(isThereReflectionMap, true);
-                reflectionSlot.getEnvironmentProbe().bindToTextureUnit(reflectionTextureUnit);
+     * @param material material
+     * @param key the slot's key
+     * @param textureUnit texture unit
+     */
+    private void bindEnvironmentProbe(@NotNull Material material, @NotNull String key, int textureUnit) {
+        MaterialSlot slot = BlinnPhongMaterialBlock.getActiveSlot(material, key);
+        if (slot != null && slot.getEnvironmentProbe() != null) {
+            slot.getEnvironmentProbe().bindToTextureUnit(textureUnit);
+        }
+    }
 
-                loadBoolean(isThereRefractionMap, true);
-                refractionSlot.getEnvironmentProbe().bindToTextureUnit(refractionTextureUnit);
-                loadFloat(refractionIndex, index);
-            }
-            if (intensitySlot != null && intensitySlot.isActive()) {
-                Texture2D texture = intensitySlot.getTexture();
-                Vector4f color = intensitySlot.getColor();
-                if (texture != null) {
-                    texture.bindToTextureUnit(intensityTextureUnit);
-                    loadBoolean(isThereIntensityMap, true);
-                    loadVector2(tileName, intensitySlot.getTextureTile());
-                    loadVector2(offsetName, intensitySlot.getTextureOffset());
-                } else if (color != null) {
-                    loadVector3(intensityColor, new Vector3f(color.x, color.y, color.z));
-                    loadBoolean(isThereIntensityMap, false);
-                } else {
-                    loadBoolean(isThereIntensityMap, false);
-                    loadVector3(intensityColor, new Vector3f(1));
-                }
-            } else {
-                loadBoolean(isThereIntensityMap, false);
-                loadVector3(intensityColor, new Vector3f(1));
+    /**
+     * Releases the UBOs of the Materials which weren't used in the last few
+     * frames.
+     */
+    private void releaseUnusedMaterialUbos() {
+        Iterator<MaterialUbo> iterator = materialUbos.values().iterator();
+        while (iterator.hasNext()) {
+            MaterialUbo materialUbo = iterator.next();
+            if (frame - materialUbo.frame >= MATERIAL_UBO_LIFETIME) {
+                materialUbo.ubo.release();
+                iterator.remove();
             }
-        } else {
-            loadBoolean(isThereReflectionMap, false);
-            loadBoolean(isThereRefractionMap, false);
         }
     }
 
     /**
-     * Loads the given Material's data to the shader as uniform variables.
+     * Returns the number of the Materials' UBOs.
      *
-     * @param material material
+     * @return the number of the Materials' UBOs
      */
-    public void loadMaterial(@NotNull Material material) {
-        //diffuse
-        loadDiffuseSlot(material);
-        //specular
-        loadSpecularSlot(material);
-        //normal
-        loadNormalSlot(material);
-        //reflection and refraction
-        loadEnvironmentSlots(material);
+    public int getNumberOfMaterialUbos() {
+        return materialUbos.size();
     }
 
     @Override
     public void connectTextureUnits() {
         connectTextureUnit("shadowMap", 0);
-        connectTextureUnit("material.diffuse", 1);
-        connectTextureUnit("material.specular", 2);
-        connectTextureUnit("material.normal", 3);
-        connectTextureUnit("material.reflection", 4);
-        connectTextureUnit("material.refraction", 5);
-        connectTextureUnit("material.environmentIntensity", 6);
+        connectTextureUnit("diffuseMap", 1);
+        connectTextureUnit("specularMap", 2);
+        connectTextureUnit("normalMap", 3);
+        connectTextureUnit("reflectionMap", 4);
+        connectTextureUnit("refractionMap", 5);
+        connectTextureUnit("environmentIntensityMap", 6);
+        connectTextureUnit("lightData", 7);
+        connectTextureUnit("lightClusters", 8);
+    }
+
+    /**
+     * Removes the shader program and the UBOs from the GPU's memory. After
+     * this method call you can't use this shader.
+     */
+    @Override
+    public void release() {
+        super.release();
+        if (frameUbo.isUsable()) {
+            frameUbo.release();
+        }
+        if (objectRing.isUsable()) {
+            objectRing.release();
+        }
+        for (MaterialUbo materialUbo : materialUbos.values()) {
+            if (materialUbo.ubo.isUsable()) {
+                materialUbo.ubo.release();
+            }
+        }
+        materialUbos.clear();
+        lastMaterial = null;
     }
 
     @NotNull
@@ -0,0 +1,108 @@
+package resources.shaders;
+
+import java.io.*;
+import java.util.*;
+import org.joml.*;
+import resources.*;
+import toolbox.annotations.*;
+
+/**
+ * Performs the lighting pass of the deferred shading. It draws a fullscreen
+ * quad and lights every pixel of the G-buffer with the directional light and
+ * the point and spot lights of the pixel's light cluster. It reconstructs the
+ * pixels' positions from the G-buffer's depth texture and writes the depth
+ * values, so the later renderers can use the depth test.
+ *
+ * @see GBufferShader
+ * @see rendering.LightClusters
+ */
+public class DeferredLightingShader extends Shader {
+
+    /**
+     * The only DeferredLightingShader instance.
+     */
+    private static DeferredLightingShader instance;
+    /**
+     * The resource's unique id.
+     */
+    private final ResourceId resourceId;
+    /**
+     * The vertex shader's path.
+     */
+    private static final String vertexPath = "res/shaders/deferredLighting/vertexShader.glsl";
+    /**
+     * The fragment shader's path
+     */
+    private static final String fragmentPath = "res/shaders/deferredLighting/fragmentShader.glsl";
+
+    /**
+     * Initializes a new DeferredLightingShader.
+     */
+    private DeferredLightingShader() {
+        super(vertexPath, fragmentPath, null, null, null);
+        List<File> paths = new ArrayList<>(2);
+        paths.add(new File(vertexPath));
+        paths.add(new File(fragmentPath));
+        resourceId = new ResourceId(paths);
+        ResourceManager.addShader(this);
+    }
+
+    /**
+     * Returns the DeferredLightingShader instance.
+     *
+     * @return the DeferredLightingShader instance
+     */
+    @NotNull
+    public static DeferredLightingShader getInstance() {
+        if (instance == null || !instance.isUsable()) {
+            instance = new DeferredLightingShader();
+        }
+        return instance;
+    }
+
+    @Override
+    protected void connectUniforms() {
+        connectUniform("shadowMap");
+        connectUniform("albedoBuffer");
+        connectUniform("normalBuffer");
+        connectUniform("specularBuffer");
+        connectUniform("depthBuffer");
+        connectUniform("lightData");
+        connectUniform("lightClusters");
+        connectUniform("inverseProjectionViewMatrix");
+    }
+
+    @Override
+    public void connectTextureUnits() {
+        connectTextureUnit("shadowMap", 0);
+        connectTextureUnit("albedoBuffer", 1);
+        connectTextureUnit("normalBuffer", 2);
+        connectTextureUnit("specularBuffer", 3);
+        connectTextureUnit("depthBuffer", 4);
+        connectTextureUnit("lightData", 7);
+        connectTextureUnit("lightClusters", 8);
+    }
+
+    /**
+     * Loads the camera's inverse projection view matrix as uniform variable.
+     * The shader reconstructs the pixels' world space positions with it.
+     *
+     * @param inverseProjectionViewMatrix the camera's inverse projection view
+     *                                    matrix
+     */
+    public void loadUniforms(@NotNull Matrix4f inverseProjectionViewMatrix) {
+        loadMatrix4("inverseProjectionViewMatrix", inverseProjectionViewMatrix);
+    }
+
+    @NotNull
+    @Override
+    public ResourceId getResourceId() {
+        return resourceId;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nDeferredLightingShader{" + "resourceId=" + resourceId + '}';
+    }
+
+}
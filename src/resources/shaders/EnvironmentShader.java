@@ -32,9 +32,23 @@ public class EnvironmentShader extends Shader {
      * Inizializes a new Blinn-Phong shader.
      */
     private EnvironmentShader() {
-        super(vertexPath, fragmentPath, null, null, null);
-        List<File> paths = new ArrayList<>(2);
+        this(vertexPath, null, fragmentPath);
+    }
+
+    /**
+     * Initializes a new EnvironmentShader from the given sources.
+     *
+     * @param vertexPath   the vertex shader's path
+     * @param geometryPath the geometry shader's path
+     * @param fragmentPath the fragment shader's path
+     */
+    protected EnvironmentShader(@NotNull String vertexPath, @Nullable String geometryPath, @NotNull String fragmentPath) {
+        super(vertexPath, fragmentPath, geometryPath, null, null);
+        List<File> paths = new ArrayList<>(3);
         paths.add(new File(vertexPath));
+        if (geometryPath != null) {
+            paths.add(new File(geometryPath));
+        }
         paths.add(new File(fragmentPath));
         resourceId = new ResourceId(paths);
         ResourceManager.addShader(this);
@@ -56,10 +70,19 @@ public class EnvironmentShader extends Shader {
     @Override
     protected void connectUniforms() {
         //matrices
-        connectUniform("modelMatrix");
-        connectUniform("inverseModelMatrix3x3");
         connectUniform("projectionMatrix");
         connectUniform("viewMatrix");
+        connectObjectAndMaterialUniforms();
+    }
+
+    /**
+     * Specifies the locations of the object's and the material's uniform
+     * variables.
+     */
+    protected void connectObjectAndMaterialUniforms() {
+        //matrices
+        connectUniform("modelMatrix");
+        connectUniform("inverseModelMatrix3x3");
         //material
         //diffuse
         connectUniform("material.isThereDiffuseMap");
@@ -0,0 +1,92 @@
+package resources.shaders;
+
+import java.io.*;
+import java.util.*;
+import resources.*;
+import toolbox.annotations.*;
+
+/**
+ * Fills the G-buffer of the deferred shading. It writes the meshes' and the
+ * splines' albedo, normal vector, shadow receiving and specular color to
+ * separate color attachments instead of lighting them. It uses the same
+ * vertex shader, uniform blocks and texture units as the BlinnPhongShader, so
+ * the Materials' blocks and textures are loaded through the BlinnPhongShader.
+ *
+ * @see BlinnPhongShader
+ */
+public class GBufferShader extends Shader {
+
+    /**
+     * The only GBufferShader instance.
+     */
+    private static GBufferShader instance;
+    /**
+     * The resource's unique id.
+     */
+    private final ResourceId resourceId;
+    /**
+     * The vertex shader's path.
+     */
+    private static final String vertexPath = "res/shaders/blinnPhong/vertexShader.glsl";
+    /**
+     * The fragment shader's path
+     */
+    private static final String fragmentPath = "res/shaders/gBuffer/fragmentShader.glsl";
+
+    /**
+     * Initializes a new GBufferShader.
+     */
+    private GBufferShader() {
+        super(vertexPath, fragmentPath, null, null, null);
+        List<File> paths = new ArrayList<>(2);
+        paths.add(new File(vertexPath));
+        paths.add(new File(fragmentPath));
+        resourceId = new ResourceId(paths);
+        ResourceManager.addShader(this);
+    }
+
+    /**
+     * Returns the GBufferShader instance.
+     *
+     * @return the GBufferShader instance
+     */
+    @NotNull
+    public static GBufferShader getInstance() {
+        if (instance == null || !instance.isUsable()) {
+            instance = new GBufferShader();
+        }
+        return instance;
+    }
+
+    @Override
+    protected void connectUniforms() {
+        connectUniform("diffuseMap");
+        connectUniform("specularMap");
+        connectUniform("normalMap");
+        connectUniform("reflectionMap");
+        connectUniform("refractionMap");
+        connectUniform("environmentIntensityMap");
+    }
+
+    @Override
+    public void connectTextureUnits() {
+        connectTextureUnit("diffuseMap", 1);
+        connectTextureUnit("specularMap", 2);
+        connectTextureUnit("normalMap", 3);
+        connectTextureUnit("reflectionMap", 4);
+        connectTextureUnit("refractionMap", 5);
+        connectTextureUnit("environmentIntensityMap", 6);
+    }
+
+    @NotNull
+    @Override
+    public ResourceId getResourceId() {
+        return resourceId;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nGBufferShader{" + "resourceId=" + resourceId + '}';
+    }
+
+}
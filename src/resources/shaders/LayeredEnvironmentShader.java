@@ -0,0 +1,96 @@
+package resources.shaders;
+
+import core.*;
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * EnvironmentShader which renders all the six faces of a cube map in one pass.
+ * The geometry shader emits every triangle once for each face selected by the
+ * face mask, so you have to bind a layered FBO before the rendering.
+ *
+ * @see resources.environmentProbes.DynamicEnvironmentProbe#bindLayeredFbo()
+ */
+public class LayeredEnvironmentShader extends EnvironmentShader {
+
+    /**
+     * The only LayeredEnvironmentShader instance.
+     */
+    private static LayeredEnvironmentShader instance;
+    /**
+     * The vertex shader's path.
+     */
+    private static final String vertexPath = "res/shaders/environment/layeredVertexShader.glsl";
+    /**
+     * The geometry shader's path.
+     */
+    private static final String geometryPath = "res/shaders/environment/layeredGeometryShader.glsl";
+    /**
+     * The fragment shader's path
+     */
+    private static final String fragmentPath = "res/shaders/environment/fragmentShader.glsl";
+
+    /**
+     * Initializes a new LayeredEnvironmentShader.
+     */
+    private LayeredEnvironmentShader() {
+        super(vertexPath, geometryPath, fragmentPath);
+    }
+
+    /**
+     * Returns the LayeredEnvironmentShader instance.
+     *
+     * @return the LayeredEnvironmentShader instance
+     */
+    @NotNull
+    public static LayeredEnvironmentShader getInstance() {
+        if (instance == null || !instance.isUsable()) {
+            instance = new LayeredEnvironmentShader();
+        }
+        return instance;
+    }
+
+    @Override
+    protected void connectUniforms() {
+        for (int i = 0; i < 6; i++) {
+            connectUniform("projectionViewMatrices[" + i + "]");
+        }
+        connectUniform("faceMask");
+        connectObjectAndMaterialUniforms();
+    }
+
+    /**
+     * Loads the cube map faces' projection view matrices to the shader.
+     *
+     * @param projectionViewMatrices the six faces' projection view matrices
+     *
+     * @throws IllegalArgumentException the number of the matrices must be 6
+     */
+    public void loadProjectionViewMatrices(@NotNull Matrix4f[] projectionViewMatrices) {
+        if (projectionViewMatrices.length != 6) {
+            throw new IllegalArgumentException("The number of the matrices must be 6");
+        }
+        for (int i = 0; i < 6; i++) {
+            loadMatrix4("projectionViewMatrices[" + i + "]", projectionViewMatrices[i]);
+        }
+    }
+
+    /**
+     * Loads the faces where the actual object is visible to the shader. The
+     * i-th bit belongs to the i-th face.
+     *
+     * @param faceMask the faces where the object is visible
+     */
+    public void loadFaceMask(int faceMask) {
+        loadInt("faceMask", faceMask);
+    }
+
+    /**
+     * Loads various global data as uniform variables to the shader like the
+     * gamma value.
+     */
+    public void loadGlobalUniforms() {
+        loadBoolean("gamma", Settings.getGamma() != 1);
+    }
+
+}
@@ -102,21 +102,47 @@ public abstract class Shader implements Resource {
         shaders[2] = loadShader(geometryFile, ShaderStage.GEOMETRY_SHADER);
         shaders[3] = loadShader(tessControlFil, ShaderStage.TESS_CONTROL_SHADER);
         shaders[4] = loadShader(tessEvaluationFile, ShaderStage.TESS_EVALUATION_SHADER);
+        createProgram(shaders);
+    }
+
+    /**
+     * It creates the shader program from the given vertex shader file and the
+     * given fragment shader source code, and stores the ids of the uniform
+     * variables. You can use it for the shaders generated at runtime.
+     *
+     * @param vertexFile     relative path of the vertex shader's source (with
+     *                       extension like "res/shaders/myShader.glsl")
+     * @param fragmentSource the fragment shader's source code
+     */
+    public Shader(@NotNull String vertexFile, @NotNull CharSequence fragmentSource) {
+        int[] shaders = {-1, -1};
+        shaders[0] = loadShader(vertexFile, ShaderStage.VERTEX_SHADER);
+        shaders[1] = compileShader(fragmentSource, "generated fragment shader", ShaderStage.FRAGMENT_SHADER);
+        createProgram(shaders);
+    }
+
+    /**
+     * Attaches the given compiled shaders to a new shader program, links it,
+     * deletes the shaders and connects the uniform variables.
+     *
+     * @param shaders the compiled shaders' ids (-1 means no shader)
+     */
+    private void createProgram(@NotNull int[] shaders) {
         //attach
-        programId = GL20.glCreateProgram();
+        programId = OpenGl.getBackend().createProgram();
         for (int shaderId : shaders) {
             if (shaderId != -1) {
-                GL20.glAttachShader(programId, shaderId);
+                OpenGl.getBackend().attachShader(programId, shaderId);
             }
         }
         //link, validate
-        GL20.glLinkProgram(programId);
-        GL20.glValidateProgram(programId);
+        OpenGl.getBackend().linkProgram(programId);
+        OpenGl.getBackend().validateProgram(programId);
         //detach, delete
         for (int shaderId : shaders) {
             if (shaderId != -1) {
-                GL20.glDetachShader(programId, shaderId);
-                GL20.glDeleteShader(shaderId);
+                OpenGl.getBackend().detachShader(programId, shaderId);
+                OpenGl.getBackend().deleteShader(shaderId);
             }
         }
         //uniforms
@@ -141,7 +167,7 @@ public abstract class Shader implements Resource {
      * @param value value
      */
     protected void loadFloat(@NotNull String uniform, float value) {
-        GL20.glUniform1f(getUniformId(uniform), value);
+        OpenGl.getBackend().uniform1f(getUniformId(uniform), value);
     }
 
     /**
@@ -151,7 +177,7 @@ public abstract class Shader implements Resource {
      * @param value value
      */
     protected void loadInt(@NotNull String uniform, int value) {
-        GL20.glUniform1i(getUniformId(uniform), value);
+        OpenGl.getBackend().uniform1i(getUniformId(uniform), value);
     }
 
     /**
@@ -161,7 +187,7 @@ public abstract class Shader implements Resource {
      * @param vector vector
      */
     protected void loadVector2(@NotNull String uniform, @NotNull Vector2f vector) {
-        GL20.glUniform2f(getUniformId(uniform), vector.x, vector.y);
+        OpenGl.getBackend().uniform2f(getUniformId(uniform), vector.x, vector.y);
     }
 
     /**
@@ -171,7 +197,7 @@ public abstract class Shader implements Resource {
      * @param vector vector
      */
     protected void loadVector3(@NotNull String uniform, @NotNull Vector3f vector) {
-        GL20.glUniform3f(getUniformId(uniform), vector.x, vector.y, vector.z);
+        OpenGl.getBackend().uniform3f(getUniformId(uniform), vector.x, vector.y, vector.z);
     }
 
     /**
@@ -181,7 +207,7 @@ public abstract class Shader implements Resource {
      * @param vector vector
      */
     protected void loadVector4(@NotNull String uniform, @NotNull Vector4f vector) {
-        GL20.glUniform4f(getUniformId(uniform), vector.x, vector.y, vector.z, vector.w);
+        OpenGl.getBackend().uniform4f(getUniformId(uniform), vector.x, vector.y, vector.z, vector.w);
     }
 
     /**
@@ -191,7 +217,7 @@ public abstract class Shader implements Resource {
      * @param value value
      */
     protected void loadBoolean(@NotNull String uniform, boolean value) {
-        GL20.glUniform1f(getUniformId(uniform), value ? 1 : 0);
+        OpenGl.getBackend().uniform1f(getUniformId(uniform), value ? 1 : 0);
     }
 
     /**
@@ -203,7 +229,7 @@ public abstract class Shader implements Resource {
     protected void loadMatrix4(@NotNull String uniform, @NotNull Matrix4f matrix) {
         temp.position(0);
         matrix.get(temp);
-        GL20.glUniformMatrix4fv(getUniformId(uniform), false, temp);
+        OpenGl.getBackend().uniformMatrix4fv(getUniformId(uniform), false, temp);
     }
 
     /**
@@ -215,7 +241,7 @@ public abstract class Shader implements Resource {
     protected void loadMatrix3(@NotNull String uniform, @NotNull Matrix3f matrix) {
         temp.position(0);
         matrix.get(temp);
-        GL20.glUniformMatrix3fv(getUniformId(uniform), false, temp);
+        OpenGl.getBackend().uniformMatrix3fv(getUniformId(uniform), false, temp);
     }
 
     /**
@@ -230,7 +256,7 @@ public abstract class Shader implements Resource {
         if (textureUnit < 0 || textureUnit > 31) {
             throw new IllegalArgumentException("Invalid texture unit");
         }
-        GL20.glUniform1i(getUniformId(uniform), textureUnit);
+        OpenGl.getBackend().uniform1i(getUniformId(uniform), textureUnit);
     }
 
     /**
@@ -246,7 +272,7 @@ public abstract class Shader implements Resource {
         if (uniformName == null) {
             throw new NullPointerException();
         }
-        int uniformId = GL20.glGetUniformLocation(programId, uniformName);
+        int uniformId = OpenGl.getBackend().getUniformLocation(programId, uniformName);
         if (uniformId == -1) {
             throw new IllegalArgumentException("There is no " + uniformName + " uniform vairable in this shader program");
         }
@@ -275,7 +301,7 @@ public abstract class Shader implements Resource {
      * variables or render objects.
      */
     public void start() {
-        GL20.glUseProgram(programId);
+        OpenGl.getBackend().useProgram(programId);
         connectTextureUnits();
     }
 
@@ -284,7 +310,7 @@ public abstract class Shader implements Resource {
      * variables or render objects.
      */
     public void stop() {
-        GL20.glUseProgram(0);
+        OpenGl.getBackend().useProgram(0);
     }
 
     /**
@@ -293,7 +319,7 @@ public abstract class Shader implements Resource {
      */
     @Override
     public void release() {
-        GL20.glDeleteProgram(programId);
+        OpenGl.getBackend().deleteProgram(programId);
         programId = -1;
     }
 
@@ -337,12 +363,26 @@ public abstract class Shader implements Resource {
         } catch (IOException ex) {
             Utility.logException(ex);
         }
-        //creating the shader, compiling
-        int shaderId = GL20.glCreateShader(stage.getCode());
-        GL20.glShaderSource(shaderId, shaderSource);
-        GL20.glCompileShader(shaderId);
-        if (GL20.glGetShaderi(shaderId, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
-            throw new RuntimeException(shaderFilePath + "\n" + GL20.glGetShaderInfoLog(shaderId, 512));
+        return compileShader(shaderSource, shaderFilePath, stage);
+    }
+
+    /**
+     * Creates and compiles a shader from the given source code and returns
+     * the shader's id.
+     *
+     * @param shaderSource the shader's source code
+     * @param name         the shader's name in the error message
+     * @param stage        shader's stage
+     * @return shader's id
+     *
+     * @throws RuntimeException if the shader's compilation failed
+     */
+    private static int compileShader(@NotNull CharSequence shaderSource, @NotNull String name, @NotNull ShaderStage stage) {
+        int shaderId = OpenGl.getBackend().createShader(stage.getCode());
+        OpenGl.getBackend().shaderSource(shaderId, shaderSource);
+        OpenGl.getBackend().compileShader(shaderId);
+        if (OpenGl.getBackend().getShaderi(shaderId, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+            throw new RuntimeException(name + "\n" + OpenGl.getBackend().getShaderInfoLog(shaderId, 512));
         }
         return shaderId;
     }
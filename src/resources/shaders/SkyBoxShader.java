@@ -4,6 +4,7 @@ import core.*;
 import java.io.*;
 import java.util.*;
 import resources.*;
+import resources.environmentProbes.*;
 import toolbox.annotations.*;
 
 /**
@@ -65,13 +66,15 @@ public class SkyBoxShader extends Shader {
 
     /**
      * Loads the skybox's material properties to the shader as uniform
-     * variables.
-     *
-     * @param material material
+     * variables. If the scene doesn't have a sky box, the shader uses mid-grey
+     * color.
      */
     public void loadUniforms() {
-        Scene.getSkybox().bindToTextureUnit(0);
-        loadBoolean("isThereCubeMap", true);
+        EnvironmentProbe skybox = Scene.getSkybox();
+        if (skybox != null) {
+            skybox.bindToTextureUnit(0);
+        }
+        loadBoolean("isThereCubeMap", skybox != null);
     }
 
     @Override
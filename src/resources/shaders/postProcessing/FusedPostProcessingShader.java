@@ -0,0 +1,246 @@
+package resources.shaders.postProcessing;
+
+import core.*;
+import java.io.*;
+import java.util.*;
+import resources.*;
+import resources.shaders.*;
+import toolbox.*;
+import toolbox.annotations.*;
+
+/**
+ * Performs more per pixel post processing effects in one pass. The shader
+ * program is generated from a template for the given effects' combination,
+ * and the programs are cached, so every combination is compiled only once.
+ * The effects are performed in the given order, without writing the
+ * intermediate results to a texture.
+ *
+ * @see Settings#isPostProcessingPassFusion()
+ */
+public class FusedPostProcessingShader extends Shader {
+
+    /**
+     * The per pixel post processing effects which can be fused.
+     */
+    public enum Effect {
+        /**
+         * Inverts the colors.
+         */
+        INVERT("invert"),
+        /**
+         * Converts the colors to grayscale.
+         */
+        GRAYSCALE("grayscale"),
+        /**
+         * Reinhard tone mapping.
+         */
+        REINHARD_TONE_MAPPING("reinhardToneMapping"),
+        /**
+         * Gamma correction.
+         *
+         * @see Settings#getGamma()
+         */
+        GAMMA_CORRECTION("gammaCorrection");
+
+        /**
+         * The effect's function's name in the template.
+         */
+        private final String function;
+
+        /**
+         * Initializes a new Effect to the given value.
+         *
+         * @param function the effect's function's name in the template
+         */
+        private Effect(@NotNull String function) {
+            this.function = function;
+        }
+
+        /**
+         * Returns the effect's function's name in the template.
+         *
+         * @return the effect's function's name in the template
+         */
+        @NotNull
+        public String getFunction() {
+            return function;
+        }
+    }
+
+    /**
+     * The generated shader programs by the effects' combinations.
+     */
+    private static final Map<List<Effect>, FusedPostProcessingShader> instances = new HashMap<>();
+    /**
+     * The fragment shader template's source code.
+     */
+    private static String template;
+    /**
+     * The resource's unique id.
+     */
+    private final ResourceId resourceId;
+    /**
+     * The fused effects in order.
+     */
+    private final List<Effect> effects;
+    /**
+     * The vertex shader's path.
+     */
+    private static final String vertexPath = "res/shaders/postProcessing/fused/vertexShader.glsl";
+    /**
+     * The fragment shader template's path
+     */
+    private static final String fragmentPath = "res/shaders/postProcessing/fused/fragmentShader.glsl";
+
+    /**
+     * Initializes a new FusedPostProcessingShader to the given value.
+     *
+     * @param effects the fused effects in order
+     */
+    private FusedPostProcessingShader(@NotNull List<Effect> effects) {
+        super(vertexPath, generateSource(effects));
+        this.effects = effects;
+        connectEffectUniforms();
+        resourceId = new ResourceId();
+        ResourceManager.addShader(this);
+    }
+
+    /**
+     * Returns the FusedPostProcessingShader which performs the given effects
+     * in the given order. If it doesn't exist, it generates a new one.
+     *
+     * @param effects the fused effects in order
+     *
+     * @return the FusedPostProcessingShader
+     *
+     * @throws NullPointerException     effects can't be null
+     * @throws IllegalArgumentException effects can't be empty
+     */
+    @NotNull
+    public static FusedPostProcessingShader getInstance(@NotNull List<Effect> effects) {
+        if (effects.isEmpty()) {
+            throw new IllegalArgumentException("Effects can't be empty");
+        }
+        FusedPostProcessingShader instance = instances.get(effects);
+        if (instance == null || !instance.isUsable()) {
+            List<Effect> key = Collections.unmodifiableList(new ArrayList<>(effects));
+            instance = new FusedPostProcessingShader(key);
+            instances.put(key, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the number of the generated shader programs.
+     *
+     * @return the number of the generated shader programs
+     */
+    public static int getNumberOfInstances() {
+        return instances.size();
+    }
+
+    /**
+     * Generates the fragment shader's source code from the template. It
+     * defines the used effects (so only the used uniform variables are
+     * declared) and the EFFECTS macro, which calls the effects' functions in
+     * order.
+     *
+     * @param effects the fused effects in order
+     *
+     * @return the fragment shader's source code
+     */
+    @NotNull
+    private static StringBuilder generateSource(@NotNull List<Effect> effects) {
+        StringBuilder defines = new StringBuilder();
+        StringBuilder calls = new StringBuilder();
+        for (Effect effect : effects) {
+            if (effect == null) {
+                throw new NullPointerException();
+            }
+            defines.append("#define ").append(effect.name()).append("\n");
+            calls.append(" color = ").append(effect.getFunction()).append("(color);");
+        }
+        defines.append("#define EFFECTS").append(calls).append("\n");
+        String source = getTemplate();
+        int versionEnd = source.indexOf('\n') + 1;
+        return new StringBuilder(source.length() + defines.length())
+                .append(source, 0, versionEnd)
+                .append(defines)
+                .append(source, versionEnd, source.length());
+    }
+
+    /**
+     * Returns the fragment shader template's source code. It's loaded only
+     * once.
+     *
+     * @return the fragment shader template's source code
+     */
+    @NotNull
+    private static String getTemplate() {
+        if (template == null) {
+            StringBuilder source = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new FileReader(fragmentPath))) {
+                while (reader.ready()) {
+                    source.append(reader.readLine()).append("\n");
+                }
+            } catch (IOException ex) {
+                Utility.logException(ex);
+            }
+            template = source.toString();
+        }
+        return template;
+    }
+
+    @Override
+    public void connectTextureUnits() {
+        connectTextureUnit("image", 0);
+    }
+
+    @Override
+    protected void connectUniforms() {
+        connectUniform("image");
+    }
+
+    /**
+     * Connects the uniform variables of the fused effects. It can't be done in
+     * the connectUniforms method, because the effects aren't set when the
+     * Shader's constructor calls it.
+     */
+    private void connectEffectUniforms() {
+        if (effects.contains(Effect.GAMMA_CORRECTION)) {
+            connectUniform("gamma");
+        }
+    }
+
+    /**
+     * Loads the fused effects' uniform variables.
+     */
+    public void loadUniforms() {
+        if (effects.contains(Effect.GAMMA_CORRECTION)) {
+            loadFloat("gamma", Settings.getGamma());
+        }
+    }
+
+    /**
+     * Returns the fused effects in order.
+     *
+     * @return the fused effects in order
+     */
+    @NotNull @ReadOnly
+    public List<Effect> getEffects() {
+        return effects;
+    }
+
+    @NotNull
+    @Override
+    public ResourceId getResourceId() {
+        return resourceId;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "\nFusedPostProcessingShader{" + "effects="
+                + effects + ", resourceId=" + resourceId + '}';
+    }
+
+}
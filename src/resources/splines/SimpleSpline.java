@@ -4,6 +4,7 @@ import java.util.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
 import resources.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -424,9 +425,15 @@ public class SimpleSpline implements Spline {
     @Nullable @ReadOnly
     @Override
     public Vector3f getAabbMin() {
+        return getAabbMin(new Vector3f());
+    }
+
+    @Nullable
+    @Override
+    public Vector3f getAabbMin(@NotNull Vector3f dest) {
         refresh();
         if (vao != null) {
-            return new Vector3f(aabbMin);
+            return dest.set(aabbMin);
         } else {
             return null;
         }
@@ -435,9 +442,15 @@ public class SimpleSpline implements Spline {
     @Nullable @ReadOnly
     @Override
     public Vector3f getAabbMax() {
+        return getAabbMax(new Vector3f());
+    }
+
+    @Nullable
+    @Override
+    public Vector3f getAabbMax(@NotNull Vector3f dest) {
         refresh();
         if (vao != null) {
-            return new Vector3f(aabbMax);
+            return dest.set(aabbMax);
         } else {
             return null;
         }
@@ -460,7 +473,7 @@ public class SimpleSpline implements Spline {
         if (shouldBind) {
             beforeDraw();
         }
-        GL11.glDrawArrays(isLoopSpline() ? GL11.GL_LINE_LOOP : GL11.GL_LINE_STRIP, 0, getVertexCount());
+        OpenGl.getBackend().drawArrays(isLoopSpline() ? GL11.GL_LINE_LOOP : GL11.GL_LINE_STRIP, 0, getVertexCount());
     }
 
     @Override
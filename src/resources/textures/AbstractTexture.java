@@ -62,7 +62,7 @@ public abstract class AbstractTexture implements Texture {
      * Generates an id for the texture.
      */
     protected void glGenerateTextureId() {
-        id = GL11.glGenTextures();
+        id = OpenGl.getBackend().genTextures();
     }
 
     /**
@@ -78,7 +78,7 @@ public abstract class AbstractTexture implements Texture {
      * Binds the texture.
      */
     protected void glBind() {
-        GL11.glBindTexture(getTextureType(), id);
+        OpenGl.getBackend().bindTexture(getTextureType(), id);
     }
 
     /**
@@ -93,14 +93,14 @@ public abstract class AbstractTexture implements Texture {
             throw new IllegalArgumentException("Invalid texture unit");
         }
 
-        GL13.glActiveTexture(textureUnit + 0x84C0);
+        OpenGl.getBackend().activeTexture(textureUnit + 0x84C0);
     }
 
     /**
      * Unbinds the texture.
      */
     protected void glUnbind() {
-        GL11.glBindTexture(getTextureType(), 0);
+        OpenGl.getBackend().bindTexture(getTextureType(), 0);
     }
 
     /**
@@ -108,7 +108,7 @@ public abstract class AbstractTexture implements Texture {
      */
     @Bind
     protected void glGenerateMipmaps() {
-        GL30.glGenerateMipmap(getTextureType());
+        OpenGl.getBackend().generateMipmap(getTextureType());
     }
 
     /**
@@ -121,7 +121,7 @@ public abstract class AbstractTexture implements Texture {
      */
     @Bind
     protected void glTexImage(int internalFormat, int format, int type, @Nullable ByteBuffer data) {
-        GL11.glTexImage2D(getTextureType(), 0, internalFormat, size.x, size.y, 0, format, type, data);
+        OpenGl.getBackend().texImage2D(getTextureType(), 0, internalFormat, size.x, size.y, 0, format, type, data);
     }
 
     /**
@@ -152,7 +152,7 @@ public abstract class AbstractTexture implements Texture {
         }
         this.borderColor.set(borderColor);
         float bc[] = {borderColor.x, borderColor.y, borderColor.z, borderColor.w};
-        GL11.glTexParameterfv(getTextureType(), GL11.GL_TEXTURE_BORDER_COLOR, bc);
+        OpenGl.getBackend().texParameterfv(getTextureType(), GL11.GL_TEXTURE_BORDER_COLOR, bc);
 
     }
 
@@ -204,7 +204,7 @@ public abstract class AbstractTexture implements Texture {
                 wrapingW = value;
                 break;
         }
-        GL11.glTexParameteri(getTextureType(), type.getCode(), value.getCode());
+        OpenGl.getBackend().texParameteri(getTextureType(), type.getCode(), value.getCode());
     }
 
     /**
@@ -245,14 +245,14 @@ public abstract class AbstractTexture implements Texture {
         } else {
             minification = value;
         }
-        GL11.glTexParameteri(getTextureType(), type.getCode(), value.getCode());
+        OpenGl.getBackend().texParameteri(getTextureType(), type.getCode(), value.getCode());
     }
 
     /**
      * Releases the texture's data.
      */
     protected void glRelease() {
-        GL11.glDeleteTextures(id);
+        OpenGl.getBackend().deleteTextures(id);
         id = 0;
     }
 
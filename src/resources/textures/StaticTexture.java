@@ -6,12 +6,13 @@ import resources.*;
 import static resources.textures.EasyFiltering.TextureFiltering.BILINEAR;
 import static resources.textures.EasyFiltering.TextureFiltering.NONE;
 import static resources.textures.EasyFiltering.TextureFiltering.TRILINEAR;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
  * Base class for static (loaded from file) textures.
  */
-public abstract class StaticTexture extends AbstractTexture implements EasyFiltering, ChangableColorSpace {
+public abstract class StaticTexture extends AbstractTexture implements EasyFiltering, ChangableColorSpace, LoadableResource {
 
     /**
      * Texture's filtering mode.
@@ -158,10 +159,10 @@ public abstract class StaticTexture extends AbstractTexture implements EasyFilte
             default:
                 glSetFilter(TextureFilterType.MAGNIFICATION, TextureFilter.LINEAR);
                 glSetFilter(TextureFilterType.MINIFICATION, TextureFilter.LINEAR_MIPMAP_LINEAR);
-                if (GL.getCapabilities().GL_EXT_texture_filter_anisotropic) {
-                    float maxLevel = org.joml.Math.min(2 << filtering.getIndex() - 3, GL11.glGetFloat(EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT));
+                if (OpenGl.getBackend().isAnisotropicFilteringSupported()) {
+                    float maxLevel = org.joml.Math.min(2 << filtering.getIndex() - 3, OpenGl.getBackend().getFloat(EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT));
                     filtering = TextureFiltering.valueOf("ANISOTROPIC_" + (int) maxLevel + "X");
-                    GL11.glTexParameterf(GL11.GL_TEXTURE_2D, EXTTextureFilterAnisotropic.GL_TEXTURE_MAX_ANISOTROPY_EXT, maxLevel);
+                    OpenGl.getBackend().texParameterf(GL11.GL_TEXTURE_2D, EXTTextureFilterAnisotropic.GL_TEXTURE_MAX_ANISOTROPY_EXT, maxLevel);
                 } else {
                     filtering = TextureFiltering.TRILINEAR;
                 }
@@ -262,10 +263,16 @@ public abstract class StaticTexture extends AbstractTexture implements EasyFilte
      *
      * @return the time when the texture last time used (in miliseconds)
      */
+    @Override
     public long getLastActive() {
         return meta.getLastActive();
     }
 
+    @Override
+    public long getLastActiveFrame() {
+        return meta.getLastActiveFrame();
+    }
+
     /**
      * Returns the texture's state. It determines where the texture is currently
      * stored.
@@ -279,11 +286,12 @@ public abstract class StaticTexture extends AbstractTexture implements EasyFilte
 
     /**
      * Returns the texture's data store policy. ACTION means that the texture's
-     * data will be stored in ACTION. RAM means that the texture's data may be
-     * removed from ACTION to RAM if it's rarely used. HDD means that the
-     * texture's data may be removed from ACTION or even from RAM if it's rarely
-     * used. Later if you want to use this texture, it'll automatically load the
-     * data from file again.
+     * data is pinned in ACTION. RAM means that the texture's data may be
+     * removed from ACTION to RAM if it's rarely used or if the VRAM budget is
+     * exceeded. HDD means that the texture's data may be removed from ACTION or
+     * even from RAM if it's rarely used or if the budgets are exceeded. Later
+     * if you want to use this texture, it'll automatically load the data from
+     * file again. By default it's ACTION.
      *
      * @return the texture's data store policy
      */
@@ -294,11 +302,12 @@ public abstract class StaticTexture extends AbstractTexture implements EasyFilte
 
     /**
      * Sets the texture's data store policy to the given value. ACTION means
-     * that the texture's data will be stored in ACTION. RAM means that the
-     * texture's data may be removed from ACTION to RAM if it's rarely used. HDD
-     * means that the texture's data may be removed from ACTION or even from RAM
-     * if it's rarely used. Later if you want to use this texture, it'll
-     * automatically load the data from file again.
+     * that the texture's data is pinned in ACTION. RAM means that the texture's
+     * data may be removed from ACTION to RAM if it's rarely used or if the VRAM
+     * budget is exceeded. HDD means that the texture's data may be removed from
+     * ACTION or even from RAM if it's rarely used or if the budgets are
+     * exceeded. Later if you want to use this texture, it'll automatically load
+     * the data from file again.
      *
      * @param minState data store policy
      */
@@ -313,6 +322,23 @@ public abstract class StaticTexture extends AbstractTexture implements EasyFilte
         }
     }
 
+    @Override
+    public void unloadFromAction() {
+        if (getState() == ResourceManager.ResourceState.ACTION && getDataStorePolicy() != ResourceManager.ResourceState.ACTION) {
+            vramToRam();
+        }
+    }
+
+    @Override
+    public void unloadFromRam() {
+        if (getState() != ResourceManager.ResourceState.HDD && getDataStorePolicy() == ResourceManager.ResourceState.HDD) {
+            if (getState() == ResourceManager.ResourceState.ACTION) {
+                vramToRam();
+            }
+            ramToHdd();
+        }
+    }
+
     @Override
     public void update() {
         long elapsedTime = System.currentTimeMillis() - getLastActive();
@@ -5,6 +5,7 @@ import org.lwjgl.opengl.*;
 import resources.*;
 import resources.textures.*;
 import resources.textures.texture2D.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 public class DynamicCubeMapTexture extends DynamicTexture implements CubeMapTexture {
@@ -14,12 +15,34 @@ public class DynamicCubeMapTexture extends DynamicTexture implements CubeMapText
      */
     private final ResourceId resourceId;
 
+    /**
+     * Initializes a new DynamicCubeMapTexture with color faces.
+     *
+     * @param size the faces' width and height
+     *
+     * @throws IllegalArgumentException width and height must be positive
+     */
     public DynamicCubeMapTexture(@NotNull Vector2i size) {
+        this(size, false);
+    }
+
+    /**
+     * Initializes a new DynamicCubeMapTexture. A depth cube map is useful as
+     * the depth attachment of a layered framebuffer, because all the
+     * attachments of a layered framebuffer have to be layered.
+     *
+     * @param size  the faces' width and height
+     * @param depth true if the faces should store depth values, false if they
+     *              should store colors
+     *
+     * @throws IllegalArgumentException width and height must be positive
+     */
+    public DynamicCubeMapTexture(@NotNull Vector2i size, boolean depth) {
         if (size.x <= 0 || size.y <= 0) {
             throw new IllegalArgumentException("Width and height must be positive");
         }
         this.size.set(size);
-        dataSize = size.x * size.y * 4 * 4 * 6;
+        dataSize = depth ? size.x * size.y * 4 * 6 : size.x * size.y * 4 * 4 * 6;
 
         glGenerateTextureId();
         bind();
@@ -32,7 +55,11 @@ public class DynamicCubeMapTexture extends DynamicTexture implements CubeMapText
         setBorderColor(borderColor);
 
         for (int i = 0; i < 6; i++) {
-            GL11.glTexImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + i, 0, GL11.GL_RGB, size.x, size.y, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (float[]) null);
+            if (depth) {
+                OpenGl.getBackend().texImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + i, 0, GL14.GL_DEPTH_COMPONENT24, size.x, size.y, 0, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, null);
+            } else {
+                OpenGl.getBackend().texImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + i, 0, GL11.GL_RGB, size.x, size.y, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, null);
+            }
         }
 
         resourceId = new ResourceId();
@@ -6,6 +6,7 @@ import org.lwjgl.opengl.*;
 import resources.Fbo.FboAttachmentSlot;
 import resources.*;
 import resources.textures.*;
+import toolbox.*;
 import toolbox.annotations.*;
 
 /**
@@ -70,7 +71,7 @@ public class DynamicTexture2D extends DynamicTexture implements Texture2D {
         glGenerateTextureId();
         bind();
         if (multisampled) {
-            GL32.glTexImage2DMultisample(GL32.GL_TEXTURE_2D_MULTISAMPLE, samples, attachmentType.getInternalFormat(floatingPoint), size.x, size.y, true);
+            OpenGl.getBackend().texImage2DMultisample(GL32.GL_TEXTURE_2D_MULTISAMPLE, samples, attachmentType.getInternalFormat(floatingPoint), size.x, size.y, true);
         } else {
             glTexImage(attachmentType.getInternalFormat(floatingPoint), attachmentType.getFormat(), attachmentType.getType(), image);
         }
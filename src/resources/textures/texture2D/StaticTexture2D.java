@@ -3,6 +3,7 @@ package resources.textures.texture2D;
 import core.*;
 import java.io.*;
 import java.nio.*;
+import java.util.concurrent.*;
 import org.lwjgl.opengl.*;
 import org.lwjgl.stb.*;
 import resources.*;
@@ -27,15 +28,21 @@ public class StaticTexture2D extends StaticTexture implements Texture2D {
      * The resource's unique id.
      */
     private final ResourceId resourceId;
+    /**
+     * Determines whether the texture's data is being loaded in the background.
+     */
+    private boolean loading;
 
     /**
-     * Initializes a new StaticTexture to the given parameters.
+     * Initializes a new StaticTexture to the given parameters. It loads the
+     * texture's data only to the RAM, so it doesn't need OpenGL context.
      *
-     * @param path texture's relative path (with extension like
-     * "res/textures/myTexture.png")
-     * @param sRgb determines whether the texture is in sRgb color space
+     * @param path  texture's relative path (with extension like
+     *              "res/textures/myTexture.png")
+     * @param sRgb  determines whether the texture is in sRgb color space
+     * @param image the texture's decoded image
      */
-    private StaticTexture2D(@NotNull File path, boolean sRgb) {
+    private StaticTexture2D(@NotNull File path, boolean sRgb, @NotNull Image image) {
         basesRgb = sRgb;
         this.sRgb = sRgb;
         meta.setPaths(Utility.wrapObjectByList(path));
@@ -43,12 +50,10 @@ public class StaticTexture2D extends StaticTexture implements Texture2D {
         meta.setDataStorePolicy(ResourceState.ACTION);
         filtering = Settings.getTextureFiltering();
 
-        hddToRam();
-        ramToVram();
+        hddToRam(image);
 
         meta.setDataSize(data.capacity());
         resourceId = new ResourceId(path);
-        ResourceManager.addTexture(this);
     }
 
     //
@@ -69,18 +74,130 @@ public class StaticTexture2D extends StaticTexture implements Texture2D {
         if (tex != null) {
             return tex;
         }
-        return new StaticTexture2D(path, sRgb);
+        tex = new StaticTexture2D(path, sRgb, new Image(path, true));
+        tex.ramToVram();
+        ResourceManager.addTexture(tex);
+        return tex;
+    }
+
+    /**
+     * Loads a texture from the given path in the background. The file is read
+     * and decoded by the ResourceLoader's threads, while the texture's data is
+     * uploaded to the VRAM in the ResourceLoader's per frame upload budget. The
+     * returned future completes on the rendering thread. You can load a
+     * texture only once, if you try to load it twice, you get reference to the
+     * already loaded one.
+     *
+     * @param path texture's relative path (with extension like
+     * "res/textures/myTexture.png")
+     * @param sRgb determines whether the texture is in sRGB color space
+     * @return the future texture
+     *
+     * @throws NullPointerException path can't be null
+     *
+     * @see ResourceLoader
+     */
+    @NotNull
+    public static CompletableFuture<StaticTexture2D> loadTextureAsync(@NotNull File path, boolean sRgb) {
+        if (path == null) {
+            throw new NullPointerException();
+        }
+        StaticTexture2D loaded = (StaticTexture2D) ResourceManager.getTexture(new ResourceId(path));
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+        return ResourceLoader.load(() -> new Image(path, true), image -> {
+            StaticTexture2D tex = (StaticTexture2D) ResourceManager.getTexture(new ResourceId(path));
+            if (tex != null) {
+                STBImage.stbi_image_free(image.getImage());
+                return tex;
+            }
+            tex = new StaticTexture2D(path, sRgb, image);
+            tex.ramToVram();
+            ResourceManager.addTexture(tex);
+            return tex;
+        });
     }
 
     @Override
     protected void hddToRam() {
-        Image image = new Image(meta.getPaths().get(0), true);
+        hddToRam(new Image(meta.getPaths().get(0), true));
+    }
+
+    /**
+     * Loads the texture's data from the given image to the RAM.
+     *
+     * @param image the texture's decoded image
+     */
+    private void hddToRam(@NotNull Image image) {
         size.set(image.getSize());
         data = image.getImage();
 
         meta.setState(ResourceState.RAM);
     }
 
+    /**
+     * Starts loading the texture's data to the VRAM in the background (if it
+     * isn't started already). If the data isn't in the RAM, a loader thread
+     * reads it from file, and the upload to the VRAM happens in the
+     * ResourceLoader's per frame upload budget. Until the data arrives, no
+     * texture is bound, so when it arrives, it invalidates the environment
+     * probes which may have been rendered without it.
+     *
+     * @see ResourceLoader
+     * @see Scene#invalidateEnvironmentProbes()
+     */
+    private void loadAsync() {
+        if (loading) {
+            return;
+        }
+        loading = true;
+        boolean inRam = getState() == ResourceState.RAM;
+        File path = getPath();
+        ResourceLoader.load(() -> inRam ? null : new Image(path, true), image -> {
+            if (loading && getState() == ResourceState.HDD && image != null) {
+                hddToRam(image);
+            } else if (image != null) {
+                STBImage.stbi_image_free(image.getImage());
+            }
+            if (loading && getState() == ResourceState.RAM) {
+                ramToVram();
+                Scene.invalidateEnvironmentProbes();
+            }
+            return this;
+        }).whenComplete((texture, exception) -> {
+            loading = false;
+            if (exception != null) {
+                Utility.logException(exception);
+            }
+        });
+    }
+
+    /**
+     * Binds the texture to the given texture unit. If the texture's data isn't
+     * in the VRAM, it starts loading it in the background and binds no texture
+     * until the data arrives, so the frame doesn't have to wait for the file
+     * reading.
+     *
+     * @param textureUnit texture unit
+     */
+    @Override
+    public void bindToTextureUnit(int textureUnit) {
+        if (getState() != ResourceState.ACTION) {
+            loadAsync();
+            glActivate(textureUnit);
+            OpenGl.getBackend().bindTexture(getTextureType(), 0);
+            return;
+        }
+        super.bindToTextureUnit(textureUnit);
+    }
+
+    @Override
+    public void release() {
+        loading = false;
+        super.release();
+    }
+
     @Override
     protected void ramToVram() {
         glGenerateTextureId();
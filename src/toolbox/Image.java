@@ -5,7 +5,6 @@ import java.nio.*;
 import org.joml.*;
 import static org.lwjgl.stb.STBImage.stbi_failure_reason;
 import static org.lwjgl.stb.STBImage.stbi_load;
-import static org.lwjgl.stb.STBImage.stbi_set_flip_vertically_on_load;
 import org.lwjgl.system.*;
 import static org.lwjgl.system.MemoryStack.stackPush;
 import toolbox.annotations.*;
@@ -26,7 +25,9 @@ public class Image {
 
     /**
      * Initializes a new Image by loading the specified image from file using
-     * the STBI library.
+     * the STBI library. The STBI's flipping flag is global, so the image is
+     * always decoded unflipped and it's flipped afterwards. This way several
+     * threads can decode images at the same time.
      *
      * @param path image's relative path (with extension like
      * "res/textures/myTexture.png")
@@ -36,7 +37,6 @@ public class Image {
      * @throws RuntimeException stbi can't load the image
      */
     public Image(@NotNull File path, boolean flip) {
-        stbi_set_flip_vertically_on_load(flip);
         try (MemoryStack stack = stackPush()) {
             IntBuffer w = stack.mallocInt(1);
             IntBuffer h = stack.mallocInt(1);
@@ -47,6 +47,30 @@ public class Image {
             }
             size.set(w.get(), h.get());
         }
+        if (flip) {
+            flipRows();
+        }
+    }
+
+    /**
+     * Flips the image's rows upside down.
+     */
+    private void flipRows() {
+        int rowSize = size.x * 4;
+        long address = MemoryUtil.memAddress(image);
+        ByteBuffer row = MemoryUtil.memAlloc(rowSize);
+        try {
+            long rowAddress = MemoryUtil.memAddress(row);
+            for (int top = 0, bottom = size.y - 1; top < bottom; top++, bottom--) {
+                long topAddress = address + (long) top * rowSize;
+                long bottomAddress = address + (long) bottom * rowSize;
+                MemoryUtil.memCopy(topAddress, rowAddress, rowSize);
+                MemoryUtil.memCopy(bottomAddress, topAddress, rowSize);
+                MemoryUtil.memCopy(rowAddress, bottomAddress, rowSize);
+            }
+        } finally {
+            MemoryUtil.memFree(row);
+        }
     }
 
     /**
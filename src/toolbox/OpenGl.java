@@ -1,13 +1,23 @@
 package toolbox;
 
-import java.nio.*;
 import org.joml.*;
 import org.lwjgl.opengl.*;
-import org.lwjgl.system.*;
 import toolbox.annotations.*;
+import toolbox.backend.*;
 
 /**
- * Set of commonly used OpenGL functions.
+ * Set of commonly used OpenGL functions. It keeps a CPU side copy of the state
+ * it tracks (face culling, depth test, depth mask, blending, wireframe mode,
+ * viewport, clear color etc.), so the setters don't call the driver if the
+ * state doesn't change and the getters don't have to query the driver. The
+ * state which wasn't set through this class yet is queried from the driver
+ * once. If you change the tracked state directly through OpenGL, you should
+ * call the invalidateStateCache method. Every OpenGL call of the Engine goes
+ * through the GraphicsBackend returned by the getBackend method, so you can
+ * run the rendering without an OpenGL context by replacing it.
+ *
+ * @see #invalidateStateCache()
+ * @see #setBackend(GraphicsBackend)
  */
 public class OpenGl {
 
@@ -113,6 +123,77 @@ public class OpenGl {
         }
     }
 
+    /**
+     * The cached state's value if it isn't known yet.
+     */
+    private static final int UNKNOWN = -1;
+    /**
+     * Cached multisampling state.
+     */
+    private static int multisample = UNKNOWN;
+    /**
+     * Cached depth test state.
+     */
+    private static int depthTest = UNKNOWN;
+    /**
+     * Cached depth mask state.
+     */
+    private static int depthMask = UNKNOWN;
+    /**
+     * Cached depth test mode.
+     */
+    private static DepthTestMode depthTestMode;
+    /**
+     * Cached alpha blending state.
+     */
+    private static int alphaBlending = UNKNOWN;
+    /**
+     * Cached wireframe state.
+     */
+    private static int wireframe = UNKNOWN;
+    /**
+     * Cached face culling state.
+     */
+    private static int faceCulling = UNKNOWN;
+    /**
+     * Cached face culling mode.
+     */
+    private static FaceCullingMode faceCullingMode;
+    /**
+     * Cached viewport (x, y, width, height).
+     */
+    private static final int[] viewport = new int[4];
+    /**
+     * Determines whether the cached viewport is valid.
+     */
+    private static boolean viewportKnown;
+    /**
+     * Cached clear color.
+     */
+    private static final Vector4f clearColor = new Vector4f();
+    /**
+     * Determines whether the cached clear color is valid.
+     */
+    private static boolean clearColorKnown;
+    /**
+     * The number of the state changes sent to the driver since the last
+     * statistics reset.
+     */
+    private static int issuedStateChanges;
+    /**
+     * The number of the state changes filtered out since the last statistics
+     * reset.
+     */
+    private static int filteredStateChanges;
+    /**
+     * The backend which receives the OpenGL calls.
+     */
+    private static GraphicsBackend backend = new LwjglBackend();
+    /**
+     * Temporary storage for querying the clear color.
+     */
+    private static final float[] temp = new float[4];
+
     /**
      * To can't create OpenGl instance.
      */
@@ -124,6 +205,7 @@ public class OpenGl {
      * enabling depth testing.
      */
     public static void initializeToDefaults() {
+        invalidateStateCache();
         setMultisample(true);
         setFaceCulling(true);
         setFaceCullingMode(OpenGl.FaceCullingMode.BACK);
@@ -131,13 +213,146 @@ public class OpenGl {
         setDepthTest(true);
     }
 
+    //
+    //backend-------------------------------------------------------------------
+    //
+    /**
+     * Returns the backend which receives the OpenGL calls. By default it's a
+     * LwjglBackend.
+     *
+     * @return the backend which receives the OpenGL calls
+     */
+    @NotNull
+    public static GraphicsBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Sets the backend which receives the OpenGL calls to the given value. You
+     * should set it before creating any resource, because the already created
+     * resources' ids are only valid in the previous backend. It also
+     * invalidates the state cache.
+     *
+     * @param backend the backend which receives the OpenGL calls
+     *
+     * @throws NullPointerException backend can't be null
+     */
+    public static void setBackend(@NotNull GraphicsBackend backend) {
+        if (backend == null) {
+            throw new NullPointerException();
+        }
+        OpenGl.backend = backend;
+        invalidateStateCache();
+    }
+
+    //
+    //state cache---------------------------------------------------------------
+    //
+    /**
+     * Forgets the cached state, so the next setter calls will be sent to the
+     * driver and the next getter calls will query the driver. You should call
+     * it if you changed the tracked state directly through OpenGL, or if you
+     * use a new OpenGL context.
+     */
+    public static void invalidateStateCache() {
+        multisample = UNKNOWN;
+        depthTest = UNKNOWN;
+        depthMask = UNKNOWN;
+        depthTestMode = null;
+        alphaBlending = UNKNOWN;
+        wireframe = UNKNOWN;
+        faceCulling = UNKNOWN;
+        faceCullingMode = null;
+        viewportKnown = false;
+        clearColorKnown = false;
+    }
+
+    /**
+     * Determines whether setting the cached state to the given value is a
+     * redundant state change, and updates the statistics.
+     *
+     * @param state the cached state
+     * @param value the new value
+     *
+     * @return true if the state change is redundant, false otherwise
+     */
+    private static boolean isRedundant(int state, boolean value) {
+        return isRedundant(state == toState(value));
+    }
+
+    /**
+     * Updates the statistics by the given value and returns it.
+     *
+     * @param redundant true if the state change is redundant, false otherwise
+     *
+     * @return true if the state change is redundant, false otherwise
+     */
+    private static boolean isRedundant(boolean redundant) {
+        if (redundant) {
+            filteredStateChanges++;
+        } else {
+            issuedStateChanges++;
+        }
+        return redundant;
+    }
+
+    /**
+     * Converts the given boolean to a cached state.
+     *
+     * @param value value
+     *
+     * @return 1 if the value is true, 0 otherwise
+     */
+    private static int toState(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    /**
+     * Returns the number of the state changes sent to the driver since the
+     * last statistics reset.
+     *
+     * @return the number of the issued state changes
+     *
+     * @see #resetStatistics()
+     */
+    public static int getNumberOfIssuedStateChanges() {
+        return issuedStateChanges;
+    }
+
+    /**
+     * Returns the number of the redundant state changes filtered out since the
+     * last statistics reset.
+     *
+     * @return the number of the filtered state changes
+     *
+     * @see #resetStatistics()
+     */
+    public static int getNumberOfFilteredStateChanges() {
+        return filteredStateChanges;
+    }
+
+    /**
+     * Resets the number of the issued and the filtered state changes. The
+     * GameLoop calls it at the end of every frame.
+     */
+    public static void resetStatistics() {
+        issuedStateChanges = 0;
+        filteredStateChanges = 0;
+    }
+
+    //
+    //state---------------------------------------------------------------------
+    //
     /**
      * Returns whether multisampling is enabled.
      *
      * @return true if multisampling is enabled, false otherwise
      */
     public static boolean isMultisampling() {
-        return GL11.glIsEnabled(GL13.GL_MULTISAMPLE);
+        if (multisample == UNKNOWN) {
+            multisample = toState(backend.isEnabled(GL13.GL_MULTISAMPLE));
+        }
+        return multisample == 1;
     }
 
     /**
@@ -147,11 +362,15 @@ public class OpenGl {
      * otheriwse
      */
     public static void setMultisample(boolean multisample) {
+        if (isRedundant(OpenGl.multisample, multisample)) {
+            return;
+        }
         if (multisample) {
-            GL11.glEnable(GL13.GL_MULTISAMPLE);
+            backend.enable(GL13.GL_MULTISAMPLE);
         } else {
-            GL11.glDisable(GL13.GL_MULTISAMPLE);
+            backend.disable(GL13.GL_MULTISAMPLE);
         }
+        OpenGl.multisample = toState(multisample);
     }
 
     /**
@@ -160,7 +379,10 @@ public class OpenGl {
      * @return true if the depth test is enabled, false otherwise
      */
     public static boolean isDepthTest() {
-        return GL11.glIsEnabled(GL11.GL_DEPTH_TEST);
+        if (depthTest == UNKNOWN) {
+            depthTest = toState(backend.isEnabled(GL11.GL_DEPTH_TEST));
+        }
+        return depthTest == 1;
     }
 
     /**
@@ -170,11 +392,15 @@ public class OpenGl {
      * otheriwse
      */
     public static void setDepthTest(boolean depthTest) {
+        if (isRedundant(OpenGl.depthTest, depthTest)) {
+            return;
+        }
         if (depthTest) {
-            GL11.glEnable(GL11.GL_DEPTH_TEST);
+            backend.enable(GL11.GL_DEPTH_TEST);
         } else {
-            GL11.glDisable(GL11.GL_DEPTH_TEST);
+            backend.disable(GL11.GL_DEPTH_TEST);
         }
+        OpenGl.depthTest = toState(depthTest);
     }
 
     /**
@@ -183,11 +409,10 @@ public class OpenGl {
      * @return true if the depth mask is enabled, false otherwise
      */
     public static boolean isDepthMask() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer ib = stack.callocInt(1);
-            GL11.glGetIntegerv(GL11.GL_DEPTH_WRITEMASK, ib);
-            return ib.get(0) == GL11.GL_TRUE;
+        if (depthMask == UNKNOWN) {
+            depthMask = toState(backend.getInteger(GL11.GL_DEPTH_WRITEMASK) == GL11.GL_TRUE);
         }
+        return depthMask == 1;
     }
 
     /**
@@ -197,7 +422,11 @@ public class OpenGl {
      * otheriwse
      */
     public static void setDepthMask(boolean depthMask) {
-        GL11.glDepthMask(depthMask);
+        if (isRedundant(OpenGl.depthMask, depthMask)) {
+            return;
+        }
+        backend.depthMask(depthMask);
+        OpenGl.depthMask = toState(depthMask);
     }
 
     /**
@@ -206,16 +435,15 @@ public class OpenGl {
      * @return the depth test mode
      */
     public static DepthTestMode getDepthTestMode() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer ib = stack.callocInt(1);
-            GL11.glGetIntegerv(GL11.GL_DEPTH_FUNC, ib);
+        if (depthTestMode == null) {
+            int code = backend.getInteger(GL11.GL_DEPTH_FUNC);
             for (DepthTestMode mode : DepthTestMode.values()) {
-                if (mode.getCode() == ib.get(0)) {
-                    return mode;
+                if (mode.getCode() == code) {
+                    depthTestMode = mode;
                 }
             }
-            return null;
         }
+        return depthTestMode;
     }
 
     /**
@@ -224,7 +452,11 @@ public class OpenGl {
      * @param depthMode depth test mode
      */
     public static void setDepthTestMode(@NotNull DepthTestMode depthMode) {
-        GL11.glDepthFunc(depthMode.getCode());
+        if (isRedundant(depthTestMode == depthMode)) {
+            return;
+        }
+        backend.depthFunc(depthMode.getCode());
+        depthTestMode = depthMode;
     }
 
     /**
@@ -233,7 +465,10 @@ public class OpenGl {
      * @return true if the alpha blending is enabled, false otherwise
      */
     public static boolean isAlphaBlending() {
-        return GL11.glIsEnabled(GL11.GL_BLEND);
+        if (alphaBlending == UNKNOWN) {
+            alphaBlending = toState(backend.isEnabled(GL11.GL_BLEND));
+        }
+        return alphaBlending == 1;
     }
 
     /**
@@ -243,12 +478,16 @@ public class OpenGl {
      * false otheriwse
      */
     public static void setAlphaBlending(boolean alphaBlending) {
+        if (isRedundant(OpenGl.alphaBlending, alphaBlending)) {
+            return;
+        }
         if (alphaBlending) {
-            GL11.glEnable(GL11.GL_BLEND);
-            GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+            backend.enable(GL11.GL_BLEND);
+            backend.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
         } else {
-            GL11.glDisable(GL11.GL_BLEND);
+            backend.disable(GL11.GL_BLEND);
         }
+        OpenGl.alphaBlending = toState(alphaBlending);
     }
 
     /**
@@ -257,11 +496,10 @@ public class OpenGl {
      * @return true if the wireframe mode is enabled, false otherwise
      */
     public static boolean isWireframe() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer ib = stack.callocInt(1);
-            GL11.glGetIntegerv(GL11.GL_POLYGON_MODE, ib);
-            return ib.get(0) != GL11.GL_FILL;
+        if (wireframe == UNKNOWN) {
+            wireframe = toState(backend.getInteger(GL11.GL_POLYGON_MODE) != GL11.GL_FILL);
         }
+        return wireframe == 1;
     }
 
     /**
@@ -271,11 +509,15 @@ public class OpenGl {
      * false otheriwse
      */
     public static void setWireframe(boolean wireframeMode) {
+        if (isRedundant(wireframe, wireframeMode)) {
+            return;
+        }
         if (wireframeMode) {
-            GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_LINE);
+            backend.polygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_LINE);
         } else {
-            GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
+            backend.polygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
         }
+        wireframe = toState(wireframeMode);
     }
 
     /**
@@ -290,7 +532,16 @@ public class OpenGl {
         if (size.x <= 0 || size.y <= 0) {
             throw new IllegalArgumentException("Width and height must be positive");
         }
-        GL11.glViewport(offset.x, offset.y, size.x, size.y);
+        if (isRedundant(viewportKnown && viewport[0] == offset.x && viewport[1] == offset.y
+                && viewport[2] == size.x && viewport[3] == size.y)) {
+            return;
+        }
+        backend.viewport(offset.x, offset.y, size.x, size.y);
+        viewport[0] = offset.x;
+        viewport[1] = offset.y;
+        viewport[2] = size.x;
+        viewport[3] = size.y;
+        viewportKnown = true;
     }
 
     /**
@@ -299,7 +550,10 @@ public class OpenGl {
      * @return true if the face culling is enabled, false otherwise
      */
     public static boolean isFaceCulling() {
-        return GL11.glIsEnabled(GL11.GL_CULL_FACE);
+        if (faceCulling == UNKNOWN) {
+            faceCulling = toState(backend.isEnabled(GL11.GL_CULL_FACE));
+        }
+        return faceCulling == 1;
     }
 
     /**
@@ -309,11 +563,15 @@ public class OpenGl {
      * otheriwse
      */
     public static void setFaceCulling(boolean faceCulling) {
+        if (isRedundant(OpenGl.faceCulling, faceCulling)) {
+            return;
+        }
         if (faceCulling) {
-            GL11.glEnable(GL11.GL_CULL_FACE);
+            backend.enable(GL11.GL_CULL_FACE);
         } else {
-            GL11.glDisable(GL11.GL_CULL_FACE);
+            backend.disable(GL11.GL_CULL_FACE);
         }
+        OpenGl.faceCulling = toState(faceCulling);
     }
 
     /**
@@ -323,16 +581,15 @@ public class OpenGl {
      */
     @NotNull
     public static FaceCullingMode getFaceCullingMode() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer ib = stack.callocInt(1);
-            GL11.glGetIntegerv(GL11.GL_CULL_FACE_MODE, ib);
+        if (faceCullingMode == null) {
+            int code = backend.getInteger(GL11.GL_CULL_FACE_MODE);
             for (FaceCullingMode mode : FaceCullingMode.values()) {
-                if (mode.getCode() == ib.get(0)) {
-                    return mode;
+                if (mode.getCode() == code) {
+                    faceCullingMode = mode;
                 }
             }
-            return null;
         }
+        return faceCullingMode;
     }
 
     /**
@@ -341,14 +598,18 @@ public class OpenGl {
      * @param faceCulling face culling mode
      */
     public static void setFaceCullingMode(@NotNull FaceCullingMode faceCulling) {
-        GL11.glCullFace(faceCulling.getCode());
+        if (isRedundant(faceCullingMode == faceCulling)) {
+            return;
+        }
+        backend.cullFace(faceCulling.getCode());
+        faceCullingMode = faceCulling;
     }
 
     /**
      * Unbinds the FBOs and binds the default frambuffer.
      */
     public static void bindDefaultFrameBuffer() {
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        backend.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
     }
 
     /**
@@ -358,11 +619,12 @@ public class OpenGl {
      */
     @NotNull @ReadOnly
     public static Vector3f getClearColor() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer fb = stack.callocFloat(4);
-            GL11.glGetFloatv(GL11.GL_COLOR_CLEAR_VALUE, fb);
-            return new Vector3f(fb.get(0), fb.get(1), fb.get(2));
+        if (!clearColorKnown) {
+            backend.getFloatv(GL11.GL_COLOR_CLEAR_VALUE, temp);
+            clearColor.set(temp[0], temp[1], temp[2], temp[3]);
+            clearColorKnown = true;
         }
+        return new Vector3f(clearColor.x, clearColor.y, clearColor.z);
     }
 
     /**
@@ -376,7 +638,12 @@ public class OpenGl {
         if (!Utility.isHdrColor(new Vector3f(clearColor.x, clearColor.y, clearColor.z))) {
             throw new IllegalArgumentException("Environtment color can't be lower than 0");
         }
-        GL11.glClearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
+        if (isRedundant(clearColorKnown && OpenGl.clearColor.equals(clearColor))) {
+            return;
+        }
+        backend.clearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
+        OpenGl.clearColor.set(clearColor);
+        clearColorKnown = true;
     }
 
     /**
@@ -390,6 +657,28 @@ public class OpenGl {
         int colorBit = color ? GL11.GL_COLOR_BUFFER_BIT : 0;
         int depthBit = depth ? GL11.GL_DEPTH_BUFFER_BIT : 0;
         int stencilBit = stencil ? GL11.GL_STENCIL_BUFFER_BIT : 0;
-        GL11.glClear(colorBit | depthBit | stencilBit);
+        backend.clear(colorBit | depthBit | stencilBit);
+    }
+
+    /**
+     * Clears the currently bound FBO's specified attachmets in the given
+     * rectangle.
+     *
+     * @param color color attachments
+     * @param depth depth attachment
+     * @param stencil stencil attachment
+     * @param size the rectangle's size
+     * @param offset the rectangle's offset
+     *
+     * @throws IllegalArgumentException width and height must be positive
+     */
+    public static void clear(boolean color, boolean depth, boolean stencil, @NotNull Vector2i size, @NotNull Vector2i offset) {
+        if (size.x <= 0 || size.y <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        backend.enable(GL11.GL_SCISSOR_TEST);
+        backend.scissor(offset.x, offset.y, size.x, size.y);
+        clear(color, depth, stencil);
+        backend.disable(GL11.GL_SCISSOR_TEST);
     }
 }
@@ -0,0 +1,528 @@
+package toolbox;
+
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * Computes the cascades of the directional light's cascaded shadow map. The
+ * camera's view frustum is split into slices along the view direction, and
+ * every slice gets its own orthographic shadow camera, so the near slices can
+ * use much more shadow map texels per world unit than the far ones.
+ * <br>
+ * Every cascade is fitted to the bounding sphere of its slice instead of the
+ * slice itself. The sphere's size doesn't change when the camera rotates, so
+ * the size of a shadow map texel in world space stays the same. The cascade's
+ * center is snapped to the shadow map's texel grid in the light's space, so
+ * when the camera moves, the rasterized shadows don't shimmer. While the
+ * camera moves inside a texel, the cascade's matrix doesn't change at all, so
+ * the cascade's shadow map can be cached. It doesn't use OpenGL, so you can
+ * use it without a context.
+ * <br>
+ * The cascades are stored in a shadow map atlas: the first two cascades are
+ * placed next to each other, the third and the fourth cascades are placed
+ * under them.
+ *
+ * @see #update(Matrix4f, Matrix4f, Matrix4f)
+ */
+public class ShadowCascades {
+
+    /**
+     * The maximum number of cascades.
+     */
+    public static final int MAX_NUMBER_OF_CASCADES = 4;
+
+    /**
+     * The ways of splitting the camera's view frustum.
+     */
+    public enum SplitScheme {
+        /**
+         * The slices have the same length.
+         */
+        UNIFORM,
+        /**
+         * The slices' lengths grow exponentially, every slice's far and near
+         * distances have the same ratio. It's the theoretically optimal
+         * distribution, but it gives very short slices near to the camera.
+         */
+        LOGARITHMIC,
+        /**
+         * The mix of the uniform and the logarithmic split schemes.
+         *
+         * @see #setSplitLambda(float)
+         */
+        PRACTICAL
+    }
+
+    /**
+     * The number of cascades.
+     */
+    private int numberOfCascades = 1;
+    /**
+     * Split scheme.
+     */
+    private SplitScheme splitScheme = SplitScheme.PRACTICAL;
+    /**
+     * The weight of the logarithmic split scheme in the practical split
+     * scheme.
+     */
+    private float splitLambda = 0.75f;
+    /**
+     * The resolution of a cascade's shadow map.
+     */
+    private int resolution = 1024;
+    /**
+     * The shadow cameras' distance from the slices' bounding spheres.
+     */
+    private float casterDistance = 400;
+    /**
+     * The split distances (the first is the camera's near plane's distance,
+     * the last is the camera's far plane's distance).
+     */
+    private final float[] splitDistances = new float[MAX_NUMBER_OF_CASCADES + 1];
+    /**
+     * The cascades' projection view matrices.
+     */
+    private final Matrix4f[] projectionViewMatrices = new Matrix4f[MAX_NUMBER_OF_CASCADES];
+    /**
+     * The cascades' texel sizes in world space.
+     */
+    private final float[] texelSizes = new float[MAX_NUMBER_OF_CASCADES];
+    /**
+     * The camera's frustum corner points in view space (the near points are
+     * followed by the far points).
+     */
+    private final Vector3f[] viewSpaceCornerPoints = new Vector3f[8];
+    /**
+     * The actual slice's corner points in world space.
+     */
+    private final Vector3f[] sliceCornerPoints = new Vector3f[8];
+    /**
+     * Reusable storage for the inverse matrices.
+     */
+    private final Matrix4f inverseMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the camera's inverse view matrix.
+     */
+    private final Matrix4f inverseViewMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual cascade's projection matrix.
+     */
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    /**
+     * Reusable storage for the actual slice's center.
+     */
+    private final Vector3f center = new Vector3f();
+
+    /**
+     * Initializes a new ShadowCascades.
+     */
+    public ShadowCascades() {
+        for (int i = 0; i < MAX_NUMBER_OF_CASCADES; i++) {
+            projectionViewMatrices[i] = new Matrix4f();
+        }
+        for (int i = 0; i < 8; i++) {
+            viewSpaceCornerPoints[i] = new Vector3f();
+            sliceCornerPoints[i] = new Vector3f();
+        }
+    }
+
+    /**
+     * Computes the split distances of the given range.
+     *
+     * @param near             the camera's near plane's distance
+     * @param far              the camera's far plane's distance
+     * @param numberOfCascades number of cascades
+     * @param splitScheme      split scheme
+     * @param splitLambda      the weight of the logarithmic split scheme in the
+     *                         practical split scheme
+     * @param result           the split distances, the first is the near plane's
+     *                         distance, the last is the far plane's distance, so
+     *                         the array's length must be at least the number of
+     *                         cascades + 1
+     *
+     * @throws NullPointerException     split scheme and result can't be null
+     * @throws IllegalArgumentException near have to be positive, far have to be
+     *                                  higher than near, number of cascades have
+     *                                  to be positive, split lambda must be in
+     *                                  the [0;1] interval and result must be long
+     *                                  enough
+     */
+    public static void computeSplitDistances(float near, float far, int numberOfCascades, @NotNull SplitScheme splitScheme, float splitLambda, @NotNull float[] result) {
+        if (splitScheme == null || result == null) {
+            throw new NullPointerException();
+        }
+        if (near <= 0) {
+            throw new IllegalArgumentException("Near have to be positive");
+        }
+        if (far <= near) {
+            throw new IllegalArgumentException("Far have to be higher than near");
+        }
+        if (numberOfCascades <= 0) {
+            throw new IllegalArgumentException("Number of cascades have to be positive");
+        }
+        if (splitLambda < 0 || splitLambda > 1) {
+            throw new IllegalArgumentException("Split lambda must be in the [0;1] interval");
+        }
+        if (result.length < numberOfCascades + 1) {
+            throw new IllegalArgumentException("Result's length must be at least the number of cascades + 1");
+        }
+        result[0] = near;
+        for (int i = 1; i < numberOfCascades; i++) {
+            float fraction = (float) i / numberOfCascades;
+            float uniform = near + (far - near) * fraction;
+            float logarithmic = near * (float) java.lang.Math.pow(far / near, fraction);
+            switch (splitScheme) {
+                case UNIFORM:
+                    result[i] = uniform;
+                    break;
+                case LOGARITHMIC:
+                    result[i] = logarithmic;
+                    break;
+                default:
+                    result[i] = splitLambda * logarithmic + (1 - splitLambda) * uniform;
+            }
+        }
+        result[numberOfCascades] = far;
+    }
+
+    /**
+     * Recomputes the cascades.
+     *
+     * @param cameraViewMatrix       the camera's view matrix
+     * @param cameraProjectionMatrix the camera's projection matrix
+     * @param lightViewMatrix        the light's view matrix (it should contain
+     *                               only rotation, the translation is ignored)
+     *
+     * @throws NullPointerException the parameters can't be null
+     */
+    public void update(@NotNull Matrix4f cameraViewMatrix, @NotNull Matrix4f cameraProjectionMatrix, @NotNull Matrix4f lightViewMatrix) {
+        if (cameraViewMatrix == null || cameraProjectionMatrix == null || lightViewMatrix == null) {
+            throw new NullPointerException();
+        }
+        computeViewSpaceCornerPoints(cameraProjectionMatrix);
+        float near = -viewSpaceCornerPoints[0].z;
+        float far = -viewSpaceCornerPoints[4].z;
+        computeSplitDistances(near, far, numberOfCascades, splitScheme, splitLambda, splitDistances);
+        cameraViewMatrix.invertAffine(inverseViewMatrix);
+        for (int i = 0; i < numberOfCascades; i++) {
+            computeSliceCornerPoints(near, far, splitDistances[i], splitDistances[i + 1]);
+            computeCascade(i, lightViewMatrix);
+        }
+    }
+
+    /**
+     * Computes the camera's frustum corner points in view space.
+     *
+     * @param cameraProjectionMatrix the camera's projection matrix
+     */
+    private void computeViewSpaceCornerPoints(@NotNull Matrix4f cameraProjectionMatrix) {
+        cameraProjectionMatrix.invert(inverseMatrix);
+        for (int i = 0; i < 8; i++) {
+            float x = (i & 1) == 0 ? -1 : 1;
+            float y = (i & 2) == 0 ? -1 : 1;
+            float z = i < 4 ? -1 : 1;
+            inverseMatrix.transformProject(viewSpaceCornerPoints[i].set(x, y, z));
+        }
+    }
+
+    /**
+     * Computes the given slice's corner points in world space. The points
+     * along the frustum's edges are linear in the view space depth, so the
+     * slice's corner points are interpolated between the near and far corner
+     * points.
+     *
+     * @param near      the camera's near plane's distance
+     * @param far       the camera's far plane's distance
+     * @param sliceNear the slice's near distance
+     * @param sliceFar  the slice's far distance
+     */
+    private void computeSliceCornerPoints(float near, float far, float sliceNear, float sliceFar) {
+        float nearFraction = (sliceNear - near) / (far - near);
+        float farFraction = (sliceFar - near) / (far - near);
+        for (int i = 0; i < 4; i++) {
+            Vector3f nearPoint = viewSpaceCornerPoints[i];
+            Vector3f farPoint = viewSpaceCornerPoints[i + 4];
+            nearPoint.lerp(farPoint, nearFraction, sliceCornerPoints[i]);
+            nearPoint.lerp(farPoint, farFraction, sliceCornerPoints[i + 4]);
+        }
+        for (int i = 0; i < 8; i++) {
+            inverseViewMatrix.transformPosition(sliceCornerPoints[i]);
+        }
+    }
+
+    /**
+     * Computes the specified cascade's projection view matrix from the actual
+     * slice's corner points.
+     *
+     * @param index           the cascade's index
+     * @param lightViewMatrix the light's view matrix
+     */
+    private void computeCascade(int index, @NotNull Matrix4f lightViewMatrix) {
+        center.set(0);
+        for (int i = 0; i < 8; i++) {
+            center.add(sliceCornerPoints[i]);
+        }
+        center.div(8);
+        float radius = 0;
+        for (int i = 0; i < 8; i++) {
+            radius = java.lang.Math.max(radius, center.distance(sliceCornerPoints[i]));
+        }
+        //removes the floating point noise, the radius must be the same in every frame
+        radius = (float) java.lang.Math.ceil(radius * 16) / 16;
+        //one texel margin, because the snapping moves the cascade
+        float halfSize = resolution > 2 ? radius * resolution / (resolution - 2) : radius;
+        float texelSize = 2 * halfSize / resolution;
+        //the depth range is snapped too, so the matrix doesn't change at all while the camera moves inside a texel
+        float depthStep = radius / 8;
+        lightViewMatrix.transformDirection(center);
+        center.x = (float) java.lang.Math.floor(center.x / texelSize) * texelSize;
+        center.y = (float) java.lang.Math.floor(center.y / texelSize) * texelSize;
+        center.z = (float) java.lang.Math.floor(center.z / depthStep) * depthStep;
+        projectionMatrix.setOrtho(center.x - halfSize, center.x + halfSize,
+                center.y - halfSize, center.y + halfSize,
+                -center.z - radius - casterDistance, -center.z + radius + depthStep);
+        inverseMatrix.set(lightViewMatrix).setTranslation(0, 0, 0);
+        projectionMatrix.mulOrthoAffine(inverseMatrix, projectionViewMatrices[index]);
+        texelSizes[index] = texelSize;
+    }
+
+    /**
+     * Returns the number of cascades.
+     *
+     * @return the number of cascades
+     */
+    public int getNumberOfCascades() {
+        return numberOfCascades;
+    }
+
+    /**
+     * Sets the number of cascades to the given value.
+     *
+     * @param numberOfCascades number of cascades
+     *
+     * @throws IllegalArgumentException number of cascades must be in the
+     *                                  [1;MAX_NUMBER_OF_CASCADES] interval
+     * @see #MAX_NUMBER_OF_CASCADES
+     */
+    public void setNumberOfCascades(int numberOfCascades) {
+        if (numberOfCascades < 1 || numberOfCascades > MAX_NUMBER_OF_CASCADES) {
+            throw new IllegalArgumentException("Number of cascades must be in the [1;" + MAX_NUMBER_OF_CASCADES + "] interval");
+        }
+        this.numberOfCascades = numberOfCascades;
+    }
+
+    /**
+     * Returns the split scheme.
+     *
+     * @return split scheme
+     */
+    @NotNull
+    public SplitScheme getSplitScheme() {
+        return splitScheme;
+    }
+
+    /**
+     * Sets the split scheme to the given value.
+     *
+     * @param splitScheme split scheme
+     *
+     * @throws NullPointerException split scheme can't be null
+     */
+    public void setSplitScheme(@NotNull SplitScheme splitScheme) {
+        if (splitScheme == null) {
+            throw new NullPointerException();
+        }
+        this.splitScheme = splitScheme;
+    }
+
+    /**
+     * Returns the weight of the logarithmic split scheme in the practical
+     * split scheme.
+     *
+     * @return the weight of the logarithmic split scheme
+     */
+    public float getSplitLambda() {
+        return splitLambda;
+    }
+
+    /**
+     * Sets the weight of the logarithmic split scheme in the practical split
+     * scheme to the given value. 0 means uniform, 1 means logarithmic split
+     * scheme.
+     *
+     * @param splitLambda the weight of the logarithmic split scheme
+     *
+     * @throws IllegalArgumentException split lambda must be in the [0;1]
+     *                                  interval
+     * @see SplitScheme#PRACTICAL
+     */
+    public void setSplitLambda(float splitLambda) {
+        if (splitLambda < 0 || splitLambda > 1) {
+            throw new IllegalArgumentException("Split lambda must be in the [0;1] interval");
+        }
+        this.splitLambda = splitLambda;
+    }
+
+    /**
+     * Returns the resolution of a cascade's shadow map.
+     *
+     * @return the resolution of a cascade's shadow map
+     */
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Sets the resolution of a cascade's shadow map to the given value.
+     *
+     * @param resolution the resolution of a cascade's shadow map
+     *
+     * @throws IllegalArgumentException resolution have to be positive
+     */
+    public void setResolution(int resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Resolution have to be positive");
+        }
+        this.resolution = resolution;
+    }
+
+    /**
+     * Returns the shadow cameras' distance from the slices' bounding spheres.
+     * The objects between the shadow camera and the slice can cast shadows
+     * into the slice.
+     *
+     * @return the shadow cameras' distance from the slices
+     */
+    public float getCasterDistance() {
+        return casterDistance;
+    }
+
+    /**
+     * Sets the shadow cameras' distance from the slices' bounding spheres to
+     * the given value.
+     *
+     * @param casterDistance the shadow cameras' distance from the slices
+     *
+     * @throws IllegalArgumentException caster distance can't be negative
+     */
+    public void setCasterDistance(float casterDistance) {
+        if (casterDistance < 0) {
+            throw new IllegalArgumentException("Caster distance can't be negative");
+        }
+        this.casterDistance = casterDistance;
+    }
+
+    /**
+     * Returns the specified split distance. The 0th split distance is the
+     * camera's near plane's distance, the i + 1th split distance is the ith
+     * cascade's far distance.
+     *
+     * @param index the split distance's index
+     *
+     * @return the specified split distance
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public float getSplitDistance(int index) {
+        if (index < 0 || index > numberOfCascades) {
+            throw new IndexOutOfBoundsException();
+        }
+        return splitDistances[index];
+    }
+
+    /**
+     * Returns the specified cascade's projection view matrix. Note that the
+     * returned matrix is reused in the next update.
+     *
+     * @param index the cascade's index
+     *
+     * @return the specified cascade's projection view matrix
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    @NotNull @ReadOnly
+    public Matrix4f getProjectionViewMatrix(int index) {
+        if (index < 0 || index >= numberOfCascades) {
+            throw new IndexOutOfBoundsException();
+        }
+        return projectionViewMatrices[index];
+    }
+
+    /**
+     * Returns the size of the specified cascade's shadow map texel in world
+     * space.
+     *
+     * @param index the cascade's index
+     *
+     * @return the size of the specified cascade's shadow map texel
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public float getTexelSize(int index) {
+        if (index < 0 || index >= numberOfCascades) {
+            throw new IndexOutOfBoundsException();
+        }
+        return texelSizes[index];
+    }
+
+    //
+    //atlas---------------------------------------------------------------------
+    //
+    /**
+     * Returns the number of the shadow map atlas' columns.
+     *
+     * @param numberOfCascades number of cascades
+     *
+     * @return the number of the shadow map atlas' columns
+     */
+    public static int getAtlasColumns(int numberOfCascades) {
+        return numberOfCascades == 1 ? 1 : 2;
+    }
+
+    /**
+     * Returns the number of the shadow map atlas' rows.
+     *
+     * @param numberOfCascades number of cascades
+     *
+     * @return the number of the shadow map atlas' rows
+     */
+    public static int getAtlasRows(int numberOfCascades) {
+        return (numberOfCascades + 1) / 2;
+    }
+
+    /**
+     * Returns the size of the shadow map atlas.
+     *
+     * @param resolution       the resolution of a cascade's shadow map
+     * @param numberOfCascades number of cascades
+     * @param result           the size of the shadow map atlas
+     *
+     * @return the size of the shadow map atlas
+     */
+    @NotNull
+    public static Vector2i getAtlasSize(int resolution, int numberOfCascades, @NotNull Vector2i result) {
+        return result.set(resolution * getAtlasColumns(numberOfCascades), resolution * getAtlasRows(numberOfCascades));
+    }
+
+    /**
+     * Returns the specified cascade's offset in the shadow map atlas (in
+     * texels).
+     *
+     * @param index  the cascade's index
+     * @param result the cascade's offset
+     *
+     * @return the specified cascade's offset
+     */
+    @NotNull
+    public Vector2i getAtlasOffset(int index, @NotNull Vector2i result) {
+        return result.set(index % 2 * resolution, index / 2 * resolution);
+    }
+
+    @Override
+    public String toString() {
+        return "ShadowCascades{" + "numberOfCascades=" + numberOfCascades
+                + ", splitScheme=" + splitScheme + ", splitLambda=" + splitLambda
+                + ", resolution=" + resolution + ", casterDistance=" + casterDistance + '}';
+    }
+
+}
@@ -0,0 +1,210 @@
+package toolbox;
+
+import java.nio.*;
+import org.joml.*;
+import toolbox.annotations.*;
+
+/**
+ * Writes values to a ByteBuffer by following the std140 layout rules, so the
+ * written data can be uploaded directly to a uniform block. Every value is
+ * written to the next offset which satisfies the value's base alignment (4
+ * bytes for scalars, 8 bytes for vec2, 16 bytes for vec3, vec4 and the
+ * matrices' columns). The values use the buffer's byte order, so you should
+ * use a native ordered buffer. It doesn't use OpenGL and it doesn't allocate
+ * any memory.
+ */
+public class Std140Writer {
+
+    /**
+     * The target buffer.
+     */
+    private ByteBuffer buffer;
+    /**
+     * The block's first byte's position in the buffer.
+     */
+    private int start;
+    /**
+     * The next value's offset relative to the block's start (in bytes).
+     */
+    private int offset;
+
+    /**
+     * Starts writing a new block to the given buffer at the specified position.
+     * It doesn't change the buffer's position or limit.
+     *
+     * @param buffer target buffer
+     * @param start  the block's first byte's position in the buffer
+     *
+     * @throws NullPointerException     buffer can't be null
+     * @throws IllegalArgumentException start can't be negative
+     */
+    public void begin(@NotNull ByteBuffer buffer, int start) {
+        if (buffer == null) {
+            throw new NullPointerException();
+        }
+        if (start < 0) {
+            throw new IllegalArgumentException("Start can't be negative");
+        }
+        this.buffer = buffer;
+        this.start = start;
+        offset = 0;
+    }
+
+    /**
+     * Returns the next value's offset relative to the block's start.
+     *
+     * @return the next value's offset (in bytes)
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Moves the next value's offset to the next multiple of the given
+     * alignment. You can use it to pad the end of a structure.
+     *
+     * @param alignment alignment (in bytes)
+     *
+     * @throws IllegalArgumentException alignment have to be positive
+     */
+    public void align(int alignment) {
+        if (alignment <= 0) {
+            throw new IllegalArgumentException("Alignment have to be positive");
+        }
+        offset = (offset + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * Writes the given float.
+     *
+     * @param value value
+     */
+    public void putFloat(float value) {
+        align(4);
+        buffer.putFloat(start + offset, value);
+        offset += 4;
+    }
+
+    /**
+     * Writes the given int.
+     *
+     * @param value value
+     */
+    public void putInt(int value) {
+        align(4);
+        buffer.putInt(start + offset, value);
+        offset += 4;
+    }
+
+    /**
+     * Writes the given boolean. A std140 bool uses 4 bytes.
+     *
+     * @param value value
+     */
+    public void putBoolean(boolean value) {
+        putInt(value ? 1 : 0);
+    }
+
+    /**
+     * Writes the given vec2.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void putVector2(float x, float y) {
+        align(8);
+        buffer.putFloat(start + offset, x);
+        buffer.putFloat(start + offset + 4, y);
+        offset += 8;
+    }
+
+    /**
+     * Writes the given vec2.
+     *
+     * @param vector vector
+     */
+    public void putVector2(@NotNull Vector2f vector) {
+        putVector2(vector.x, vector.y);
+    }
+
+    /**
+     * Writes the given vec3. Note that a scalar can follow a vec3 in the
+     * remaining 4 bytes.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param z z coordinate
+     */
+    public void putVector3(float x, float y, float z) {
+        align(16);
+        buffer.putFloat(start + offset, x);
+        buffer.putFloat(start + offset + 4, y);
+        buffer.putFloat(start + offset + 8, z);
+        offset += 12;
+    }
+
+    /**
+     * Writes the given vec3. Note that a scalar can follow a vec3 in the
+     * remaining 4 bytes.
+     *
+     * @param vector vector
+     */
+    public void putVector3(@NotNull Vector3f vector) {
+        putVector3(vector.x, vector.y, vector.z);
+    }
+
+    /**
+     * Writes the given vec4.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param z z coordinate
+     * @param w w coordinate
+     */
+    public void putVector4(float x, float y, float z, float w) {
+        align(16);
+        buffer.putFloat(start + offset, x);
+        buffer.putFloat(start + offset + 4, y);
+        buffer.putFloat(start + offset + 8, z);
+        buffer.putFloat(start + offset + 12, w);
+        offset += 16;
+    }
+
+    /**
+     * Writes the given vec4.
+     *
+     * @param vector vector
+     */
+    public void putVector4(@NotNull Vector4f vector) {
+        putVector4(vector.x, vector.y, vector.z, vector.w);
+    }
+
+    /**
+     * Writes the given mat4 in column major order.
+     *
+     * @param matrix matrix
+     */
+    public void putMatrix4(@NotNull Matrix4f matrix) {
+        align(16);
+        matrix.get(start + offset, buffer);
+        offset += 64;
+    }
+
+    /**
+     * Writes the given mat3 in column major order. In std140 each column is
+     * padded to a vec4, so it uses 48 bytes.
+     *
+     * @param matrix matrix
+     */
+    public void putMatrix3(@NotNull Matrix3f matrix) {
+        putVector4(matrix.m00, matrix.m01, matrix.m02, 0);
+        putVector4(matrix.m10, matrix.m11, matrix.m12, 0);
+        putVector4(matrix.m20, matrix.m21, matrix.m22, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "Std140Writer{" + "start=" + start + ", offset=" + offset + '}';
+    }
+
+}
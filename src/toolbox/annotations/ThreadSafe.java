@@ -0,0 +1,22 @@
+package toolbox.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+import java.lang.annotation.*;
+
+/**
+ * Signs that the Component's update method can run on any thread, parallel to
+ * the other GameObject hierarchies' updates. A thread-safe Component may only
+ * change it's own GameObject hierarchy (like the Transforms and the other
+ * Components' fields in it), it can't use OpenGL or OpenAL, and it can't change
+ * the Scene (like creating GameObjects, adding or removing Components, or
+ * changing a MeshComponent's Mesh or Material). The annotation isn't
+ * inherited, every subclass has to declare it's own thread safety.
+ *
+ * @see core.Settings#isParallelUpdate()
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({TYPE})
+public @interface ThreadSafe {
+
+}
@@ -0,0 +1,869 @@
+package toolbox.backend;
+
+import java.nio.*;
+import toolbox.annotations.*;
+
+/**
+ * The graphics API used by the Engine's resources and renderers. Each method
+ * corresponds to the OpenGL function with the same name and it takes the same
+ * parameters and OpenGL constants. The default implementation forwards the
+ * calls to OpenGL, but you can replace it (for example with a NullBackend or a
+ * RecordingBackend) to run the RenderingPipeline without an OpenGL context.
+ *
+ * @see toolbox.OpenGl#setBackend(GraphicsBackend)
+ * @see LwjglBackend
+ * @see NullBackend
+ * @see RecordingBackend
+ */
+public interface GraphicsBackend {
+
+    //
+    //state---------------------------------------------------------------------
+    //
+    /**
+     * Enables the given capability (glEnable).
+     *
+     * @param capability capability
+     */
+    public void enable(int capability);
+
+    /**
+     * Disables the given capability (glDisable).
+     *
+     * @param capability capability
+     */
+    public void disable(int capability);
+
+    /**
+     * Determines whether the given capability is enabled (glIsEnabled).
+     *
+     * @param capability capability
+     *
+     * @return true if the capability is enabled, false otherwise
+     */
+    public boolean isEnabled(int capability);
+
+    /**
+     * Returns the given parameter's value (glGetInteger).
+     *
+     * @param parameter parameter
+     *
+     * @return the parameter's value
+     */
+    public int getInteger(int parameter);
+
+    /**
+     * Fills the given array with the given parameter's values
+     * (glGetIntegerv).
+     *
+     * @param parameter parameter
+     * @param values    the parameter's values
+     */
+    public void getIntegerv(int parameter, @NotNull int[] values);
+
+    /**
+     * Returns the given parameter's value (glGetFloat).
+     *
+     * @param parameter parameter
+     *
+     * @return the parameter's value
+     */
+    public float getFloat(int parameter);
+
+    /**
+     * Fills the given array with the given parameter's values (glGetFloatv).
+     *
+     * @param parameter parameter
+     * @param values    the parameter's values
+     */
+    public void getFloatv(int parameter, @NotNull float[] values);
+
+    /**
+     * Determines whether the anisotropic texture filtering extension is
+     * supported.
+     *
+     * @return true if the anisotropic filtering is supported, false otherwise
+     */
+    public boolean isAnisotropicFilteringSupported();
+
+    /**
+     * Enables or disables the writing into the depth buffer (glDepthMask).
+     *
+     * @param flag true if the depth buffer should be writable, false otherwise
+     */
+    public void depthMask(boolean flag);
+
+    /**
+     * Sets the depth test's comparison function (glDepthFunc).
+     *
+     * @param function comparison function
+     */
+    public void depthFunc(int function);
+
+    /**
+     * Sets the blending function (glBlendFunc).
+     *
+     * @param sourceFactor      source factor
+     * @param destinationFactor destination factor
+     */
+    public void blendFunc(int sourceFactor, int destinationFactor);
+
+    /**
+     * Sets the polygon rasterization mode (glPolygonMode).
+     *
+     * @param face face
+     * @param mode mode
+     */
+    public void polygonMode(int face, int mode);
+
+    /**
+     * Sets the viewport (glViewport).
+     *
+     * @param x      x offset
+     * @param y      y offset
+     * @param width  width
+     * @param height height
+     */
+    public void viewport(int x, int y, int width, int height);
+
+    /**
+     * Sets the scissor box (glScissor).
+     *
+     * @param x      x offset
+     * @param y      y offset
+     * @param width  width
+     * @param height height
+     */
+    public void scissor(int x, int y, int width, int height);
+
+    /**
+     * Sets the culled faces (glCullFace).
+     *
+     * @param mode culled faces
+     */
+    public void cullFace(int mode);
+
+    /**
+     * Sets the clear color (glClearColor).
+     *
+     * @param red   red
+     * @param green green
+     * @param blue  blue
+     * @param alpha alpha
+     */
+    public void clearColor(float red, float green, float blue, float alpha);
+
+    /**
+     * Clears the given buffers (glClear).
+     *
+     * @param mask buffer bits
+     */
+    public void clear(int mask);
+
+    //
+    //framebuffers--------------------------------------------------------------
+    //
+    /**
+     * Creates a framebuffer (glGenFramebuffers).
+     *
+     * @return the framebuffer's id
+     */
+    public int genFramebuffers();
+
+    /**
+     * Binds the given framebuffer (glBindFramebuffer).
+     *
+     * @param target      target
+     * @param framebuffer framebuffer's id
+     */
+    public void bindFramebuffer(int target, int framebuffer);
+
+    /**
+     * Deletes the given framebuffer (glDeleteFramebuffers).
+     *
+     * @param framebuffer framebuffer's id
+     */
+    public void deleteFramebuffers(int framebuffer);
+
+    /**
+     * Returns the bound framebuffer's completeness status
+     * (glCheckFramebufferStatus).
+     *
+     * @param target target
+     *
+     * @return the framebuffer's status
+     */
+    public int checkFramebufferStatus(int target);
+
+    /**
+     * Attaches the given texture to the bound framebuffer
+     * (glFramebufferTexture2D).
+     *
+     * @param target        target
+     * @param attachment    attachment
+     * @param textureTarget texture's target
+     * @param texture       texture's id
+     * @param level         mipmap level
+     */
+    public void framebufferTexture2D(int target, int attachment, int textureTarget, int texture, int level);
+
+    /**
+     * Attaches all the layers of the given texture to the bound framebuffer
+     * (glFramebufferTexture), so you can select the layer in a geometry
+     * shader.
+     *
+     * @param target     target
+     * @param attachment attachment
+     * @param texture    texture's id
+     * @param level      mipmap level
+     */
+    public void framebufferTexture(int target, int attachment, int texture, int level);
+
+    /**
+     * Sets the draw buffers (glDrawBuffers).
+     *
+     * @param buffers draw buffers
+     */
+    public void drawBuffers(@NotNull int[] buffers);
+
+    /**
+     * Sets the draw buffer (glDrawBuffer).
+     *
+     * @param buffer draw buffer
+     */
+    public void drawBuffer(int buffer);
+
+    /**
+     * Sets the read buffer (glReadBuffer).
+     *
+     * @param buffer read buffer
+     */
+    public void readBuffer(int buffer);
+
+    /**
+     * Copies a rectangle from the read framebuffer to the draw framebuffer
+     * (glBlitFramebuffer).
+     *
+     * @param srcX0  source's first x coordinate
+     * @param srcY0  source's first y coordinate
+     * @param srcX1  source's second x coordinate
+     * @param srcY1  source's second y coordinate
+     * @param dstX0  destination's first x coordinate
+     * @param dstY0  destination's first y coordinate
+     * @param dstX1  destination's second x coordinate
+     * @param dstY1  destination's second y coordinate
+     * @param mask   buffer bits
+     * @param filter filter
+     */
+    public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter);
+
+    /**
+     * Creates a renderbuffer (glGenRenderbuffers).
+     *
+     * @return the renderbuffer's id
+     */
+    public int genRenderbuffers();
+
+    /**
+     * Binds the given renderbuffer (glBindRenderbuffer).
+     *
+     * @param target       target
+     * @param renderbuffer renderbuffer's id
+     */
+    public void bindRenderbuffer(int target, int renderbuffer);
+
+    /**
+     * Allocates the bound renderbuffer's storage (glRenderbufferStorage).
+     *
+     * @param target         target
+     * @param internalFormat internal format
+     * @param width          width
+     * @param height         height
+     */
+    public void renderbufferStorage(int target, int internalFormat, int width, int height);
+
+    /**
+     * Allocates the bound renderbuffer's multisampled storage
+     * (glRenderbufferStorageMultisample).
+     *
+     * @param target         target
+     * @param samples        number of samples
+     * @param internalFormat internal format
+     * @param width          width
+     * @param height         height
+     */
+    public void renderbufferStorageMultisample(int target, int samples, int internalFormat, int width, int height);
+
+    /**
+     * Attaches the given renderbuffer to the bound framebuffer
+     * (glFramebufferRenderbuffer).
+     *
+     * @param target             target
+     * @param attachment         attachment
+     * @param renderbufferTarget renderbuffer's target
+     * @param renderbuffer       renderbuffer's id
+     */
+    public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbuffer);
+
+    /**
+     * Deletes the given renderbuffer (glDeleteRenderbuffers).
+     *
+     * @param renderbuffer renderbuffer's id
+     */
+    public void deleteRenderbuffers(int renderbuffer);
+
+    //
+    //buffers-------------------------------------------------------------------
+    //
+    /**
+     * Creates a buffer (glGenBuffers).
+     *
+     * @return the buffer's id
+     */
+    public int genBuffers();
+
+    /**
+     * Binds the given buffer (glBindBuffer).
+     *
+     * @param target target
+     * @param buffer buffer's id
+     */
+    public void bindBuffer(int target, int buffer);
+
+    /**
+     * Allocates the bound buffer's storage without initializing it
+     * (glBufferData).
+     *
+     * @param target target
+     * @param size   size (in bytes)
+     * @param usage  usage
+     */
+    public void bufferData(int target, long size, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the given data
+     * (glBufferData).
+     *
+     * @param target target
+     * @param data   data
+     * @param usage  usage
+     */
+    public void bufferData(int target, @NotNull FloatBuffer data, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the given data
+     * (glBufferData).
+     *
+     * @param target target
+     * @param data   data
+     * @param usage  usage
+     */
+    public void bufferData(int target, @NotNull ByteBuffer data, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the given data
+     * (glBufferData).
+     *
+     * @param target target
+     * @param data   data
+     * @param usage  usage
+     */
+    public void bufferData(int target, @NotNull IntBuffer data, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the given data
+     * (glBufferData).
+     *
+     * @param target target
+     * @param data   data
+     * @param usage  usage
+     */
+    public void bufferData(int target, @NotNull float[] data, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the given data
+     * (glBufferData).
+     *
+     * @param target target
+     * @param data   data
+     * @param usage  usage
+     */
+    public void bufferData(int target, @NotNull int[] data, int usage);
+
+    /**
+     * Allocates the bound buffer's storage and fills it with the data at the
+     * given native address (nglBufferData).
+     *
+     * @param target  target
+     * @param size    size (in bytes)
+     * @param address the data's address
+     * @param usage   usage
+     */
+    public void bufferData(int target, long size, long address, int usage);
+
+    /**
+     * Updates a part of the bound buffer's storage (glBufferSubData).
+     *
+     * @param target target
+     * @param offset offset (in bytes)
+     * @param data   data
+     */
+    public void bufferSubData(int target, long offset, @NotNull ByteBuffer data);
+
+    /**
+     * Updates a part of the bound buffer's storage (glBufferSubData).
+     *
+     * @param target target
+     * @param offset offset (in bytes)
+     * @param data   data
+     */
+    public void bufferSubData(int target, long offset, @NotNull FloatBuffer data);
+
+    /**
+     * Updates a part of the bound buffer's storage (glBufferSubData).
+     *
+     * @param target target
+     * @param offset offset (in bytes)
+     * @param data   data
+     */
+    public void bufferSubData(int target, long offset, @NotNull IntBuffer data);
+
+    /**
+     * Updates a part of the bound buffer's storage (glBufferSubData).
+     *
+     * @param target target
+     * @param offset offset (in bytes)
+     * @param data   data
+     */
+    public void bufferSubData(int target, long offset, @NotNull float[] data);
+
+    /**
+     * Updates a part of the bound buffer's storage (glBufferSubData).
+     *
+     * @param target target
+     * @param offset offset (in bytes)
+     * @param data   data
+     */
+    public void bufferSubData(int target, long offset, @NotNull int[] data);
+
+    /**
+     * Binds the given buffer to the given binding point (glBindBufferBase).
+     *
+     * @param target target
+     * @param index  binding point
+     * @param buffer buffer's id
+     */
+    public void bindBufferBase(int target, int index, int buffer);
+
+    /**
+     * Binds the given range of the given buffer to the given binding point
+     * (glBindBufferRange).
+     *
+     * @param target target
+     * @param index  binding point
+     * @param buffer buffer's id
+     * @param offset offset (in bytes)
+     * @param size   size (in bytes)
+     */
+    public void bindBufferRange(int target, int index, int buffer, long offset, long size);
+
+    /**
+     * Deletes the given buffer (glDeleteBuffers).
+     *
+     * @param buffer buffer's id
+     */
+    public void deleteBuffers(int buffer);
+
+    //
+    //vertex arrays-------------------------------------------------------------
+    //
+    /**
+     * Creates a vertex array (glGenVertexArrays).
+     *
+     * @return the vertex array's id
+     */
+    public int genVertexArrays();
+
+    /**
+     * Binds the given vertex array (glBindVertexArray).
+     *
+     * @param array vertex array's id
+     */
+    public void bindVertexArray(int array);
+
+    /**
+     * Deletes the given vertex array (glDeleteVertexArrays).
+     *
+     * @param array vertex array's id
+     */
+    public void deleteVertexArrays(int array);
+
+    /**
+     * Enables the given vertex attribute (glEnableVertexAttribArray).
+     *
+     * @param index attribute's index
+     */
+    public void enableVertexAttribArray(int index);
+
+    /**
+     * Disables the given vertex attribute (glDisableVertexAttribArray).
+     *
+     * @param index attribute's index
+     */
+    public void disableVertexAttribArray(int index);
+
+    /**
+     * Sets the given vertex attribute's layout in the bound buffer
+     * (glVertexAttribPointer).
+     *
+     * @param index      attribute's index
+     * @param size       number of the components
+     * @param type       components' type
+     * @param normalized true if the values should be normalized, false
+     *                   otherwise
+     * @param stride     stride (in bytes)
+     * @param pointer    the first component's offset (in bytes)
+     */
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer);
+
+    /**
+     * Sets the given vertex attribute's divisor (glVertexAttribDivisor).
+     *
+     * @param index   attribute's index
+     * @param divisor divisor
+     */
+    public void vertexAttribDivisor(int index, int divisor);
+
+    //
+    //drawing-------------------------------------------------------------------
+    //
+    /**
+     * Draws primitives from the bound vertex array (glDrawArrays).
+     *
+     * @param mode  primitive type
+     * @param first first vertex
+     * @param count number of the vertices
+     */
+    public void drawArrays(int mode, int first, int count);
+
+    /**
+     * Draws instances of primitives from the bound vertex array
+     * (glDrawArraysInstanced).
+     *
+     * @param mode          primitive type
+     * @param first         first vertex
+     * @param count         number of the vertices
+     * @param instanceCount number of the instances
+     */
+    public void drawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+    /**
+     * Draws indexed primitives from the bound vertex array (glDrawElements).
+     *
+     * @param mode    primitive type
+     * @param count   number of the indices
+     * @param type    indices' type
+     * @param indices the first index's offset (in bytes)
+     */
+    public void drawElements(int mode, int count, int type, long indices);
+
+    /**
+     * Draws instances of indexed primitives from the bound vertex array
+     * (glDrawElementsInstanced).
+     *
+     * @param mode          primitive type
+     * @param count         number of the indices
+     * @param type          indices' type
+     * @param indices       the first index's offset (in bytes)
+     * @param instanceCount number of the instances
+     */
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount);
+
+    //
+    //shaders-------------------------------------------------------------------
+    //
+    /**
+     * Creates a shader program (glCreateProgram).
+     *
+     * @return the program's id
+     */
+    public int createProgram();
+
+    /**
+     * Attaches the given shader to the given program (glAttachShader).
+     *
+     * @param program program's id
+     * @param shader  shader's id
+     */
+    public void attachShader(int program, int shader);
+
+    /**
+     * Detaches the given shader from the given program (glDetachShader).
+     *
+     * @param program program's id
+     * @param shader  shader's id
+     */
+    public void detachShader(int program, int shader);
+
+    /**
+     * Links the given program (glLinkProgram).
+     *
+     * @param program program's id
+     */
+    public void linkProgram(int program);
+
+    /**
+     * Validates the given program (glValidateProgram).
+     *
+     * @param program program's id
+     */
+    public void validateProgram(int program);
+
+    /**
+     * Makes the given program active (glUseProgram).
+     *
+     * @param program program's id
+     */
+    public void useProgram(int program);
+
+    /**
+     * Deletes the given program (glDeleteProgram).
+     *
+     * @param program program's id
+     */
+    public void deleteProgram(int program);
+
+    /**
+     * Creates a shader (glCreateShader).
+     *
+     * @param type shader's stage
+     *
+     * @return the shader's id
+     */
+    public int createShader(int type);
+
+    /**
+     * Sets the given shader's source (glShaderSource).
+     *
+     * @param shader shader's id
+     * @param source source
+     */
+    public void shaderSource(int shader, @NotNull CharSequence source);
+
+    /**
+     * Compiles the given shader (glCompileShader).
+     *
+     * @param shader shader's id
+     */
+    public void compileShader(int shader);
+
+    /**
+     * Returns the given shader's parameter (glGetShaderi).
+     *
+     * @param shader    shader's id
+     * @param parameter parameter
+     *
+     * @return the parameter's value
+     */
+    public int getShaderi(int shader, int parameter);
+
+    /**
+     * Returns the given shader's info log (glGetShaderInfoLog).
+     *
+     * @param shader    shader's id
+     * @param maxLength the log's maximum length
+     *
+     * @return the shader's info log
+     */
+    @NotNull
+    public String getShaderInfoLog(int shader, int maxLength);
+
+    /**
+     * Deletes the given shader (glDeleteShader).
+     *
+     * @param shader shader's id
+     */
+    public void deleteShader(int shader);
+
+    /**
+     * Returns the given uniform variable's location (glGetUniformLocation).
+     *
+     * @param program program's id
+     * @param name    uniform variable's name
+     *
+     * @return the uniform variable's location or -1 if it doesn't exist
+     */
+    public int getUniformLocation(int program, @NotNull CharSequence name);
+
+    /**
+     * Loads a float to the given uniform variable (glUniform1f).
+     *
+     * @param location uniform variable's location
+     * @param x        value
+     */
+    public void uniform1f(int location, float x);
+
+    /**
+     * Loads an int to the given uniform variable (glUniform1i).
+     *
+     * @param location uniform variable's location
+     * @param x        value
+     */
+    public void uniform1i(int location, int x);
+
+    /**
+     * Loads a vec2 to the given uniform variable (glUniform2f).
+     *
+     * @param location uniform variable's location
+     * @param x        x coordinate
+     * @param y        y coordinate
+     */
+    public void uniform2f(int location, float x, float y);
+
+    /**
+     * Loads a vec3 to the given uniform variable (glUniform3f).
+     *
+     * @param location uniform variable's location
+     * @param x        x coordinate
+     * @param y        y coordinate
+     * @param z        z coordinate
+     */
+    public void uniform3f(int location, float x, float y, float z);
+
+    /**
+     * Loads a vec4 to the given uniform variable (glUniform4f).
+     *
+     * @param location uniform variable's location
+     * @param x        x coordinate
+     * @param y        y coordinate
+     * @param z        z coordinate
+     * @param w        w coordinate
+     */
+    public void uniform4f(int location, float x, float y, float z, float w);
+
+    /**
+     * Loads a mat3 to the given uniform variable (glUniformMatrix3fv).
+     *
+     * @param location  uniform variable's location
+     * @param transpose true if the matrix should be transposed, false
+     *                  otherwise
+     * @param value     the matrix in column major order
+     */
+    public void uniformMatrix3fv(int location, boolean transpose, @NotNull FloatBuffer value);
+
+    /**
+     * Loads a mat4 to the given uniform variable (glUniformMatrix4fv).
+     *
+     * @param location  uniform variable's location
+     * @param transpose true if the matrix should be transposed, false
+     *                  otherwise
+     * @param value     the matrix in column major order
+     */
+    public void uniformMatrix4fv(int location, boolean transpose, @NotNull FloatBuffer value);
+
+    //
+    //textures------------------------------------------------------------------
+    //
+    /**
+     * Creates a texture (glGenTextures).
+     *
+     * @return the texture's id
+     */
+    public int genTextures();
+
+    /**
+     * Binds the given texture (glBindTexture).
+     *
+     * @param target  target
+     * @param texture texture's id
+     */
+    public void bindTexture(int target, int texture);
+
+    /**
+     * Selects the active texture unit (glActiveTexture).
+     *
+     * @param texture texture unit
+     */
+    public void activeTexture(int texture);
+
+    /**
+     * Generates the bound texture's mipmaps (glGenerateMipmap).
+     *
+     * @param target target
+     */
+    public void generateMipmap(int target);
+
+    /**
+     * Specifies the bound texture's image (glTexImage2D).
+     *
+     * @param target         target
+     * @param level          mipmap level
+     * @param internalFormat internal format
+     * @param width          width
+     * @param height         height
+     * @param border         border (must be 0)
+     * @param format         the data's format
+     * @param type           the data's type
+     * @param pixels         data
+     */
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, @Nullable ByteBuffer pixels);
+
+    /**
+     * Allocates the bound multisampled texture's storage
+     * (glTexImage2DMultisample).
+     *
+     * @param target               target
+     * @param samples              number of samples
+     * @param internalFormat       internal format
+     * @param width                width
+     * @param height               height
+     * @param fixedSampleLocations true if the sample locations should be
+     *                             fixed, false otherwise
+     */
+    public void texImage2DMultisample(int target, int samples, int internalFormat, int width, int height, boolean fixedSampleLocations);
+
+    /**
+     * Sets the bound texture's parameter (glTexParameteri).
+     *
+     * @param target    target
+     * @param parameter parameter
+     * @param value     value
+     */
+    public void texParameteri(int target, int parameter, int value);
+
+    /**
+     * Sets the bound texture's parameter (glTexParameterf).
+     *
+     * @param target    target
+     * @param parameter parameter
+     * @param value     value
+     */
+    public void texParameterf(int target, int parameter, float value);
+
+    /**
+     * Sets the bound texture's parameter (glTexParameterfv).
+     *
+     * @param target    target
+     * @param parameter parameter
+     * @param values    values
+     */
+    public void texParameterfv(int target, int parameter, @NotNull float[] values);
+
+    /**
+     * Attaches the given buffer's data store to the bound buffer texture
+     * (glTexBuffer).
+     *
+     * @param target         target
+     * @param internalFormat the texels' internal format
+     * @param buffer         buffer's id
+     */
+    public void texBuffer(int target, int internalFormat, int buffer);
+
+    /**
+     * Deletes the given texture (glDeleteTextures).
+     *
+     * @param texture texture's id
+     */
+    public void deleteTextures(int texture);
+
+}
@@ -0,0 +1,511 @@
+package toolbox.backend;
+
+import java.nio.*;
+import org.lwjgl.opengl.*;
+import toolbox.annotations.*;
+
+/**
+ * GraphicsBackend which forwards every call to OpenGL through LWJGL. This is
+ * the default backend, it needs a current OpenGL context.
+ */
+public class LwjglBackend implements GraphicsBackend {
+
+    /**
+     * Temporary storage for querying integer parameters.
+     */
+    private final int[] temp = new int[4];
+
+    //
+    //state---------------------------------------------------------------------
+    //
+    @Override
+    public void enable(int capability) {
+        GL11.glEnable(capability);
+    }
+
+    @Override
+    public void disable(int capability) {
+        GL11.glDisable(capability);
+    }
+
+    @Override
+    public boolean isEnabled(int capability) {
+        return GL11.glIsEnabled(capability);
+    }
+
+    @Override
+    public int getInteger(int parameter) {
+        GL11.glGetIntegerv(parameter, temp);
+        return temp[0];
+    }
+
+    @Override
+    public void getIntegerv(int parameter, @NotNull int[] values) {
+        GL11.glGetIntegerv(parameter, values);
+    }
+
+    @Override
+    public float getFloat(int parameter) {
+        return GL11.glGetFloat(parameter);
+    }
+
+    @Override
+    public void getFloatv(int parameter, @NotNull float[] values) {
+        GL11.glGetFloatv(parameter, values);
+    }
+
+    @Override
+    public boolean isAnisotropicFilteringSupported() {
+        return GL.getCapabilities().GL_EXT_texture_filter_anisotropic;
+    }
+
+    @Override
+    public void depthMask(boolean flag) {
+        GL11.glDepthMask(flag);
+    }
+
+    @Override
+    public void depthFunc(int function) {
+        GL11.glDepthFunc(function);
+    }
+
+    @Override
+    public void blendFunc(int sourceFactor, int destinationFactor) {
+        GL11.glBlendFunc(sourceFactor, destinationFactor);
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+        GL11.glPolygonMode(face, mode);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        GL11.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void scissor(int x, int y, int width, int height) {
+        GL11.glScissor(x, y, width, height);
+    }
+
+    @Override
+    public void cullFace(int mode) {
+        GL11.glCullFace(mode);
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha) {
+        GL11.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void clear(int mask) {
+        GL11.glClear(mask);
+    }
+
+    //
+    //framebuffers--------------------------------------------------------------
+    //
+    @Override
+    public int genFramebuffers() {
+        return GL30.glGenFramebuffers();
+    }
+
+    @Override
+    public void bindFramebuffer(int target, int framebuffer) {
+        GL30.glBindFramebuffer(target, framebuffer);
+    }
+
+    @Override
+    public void deleteFramebuffers(int framebuffer) {
+        GL30.glDeleteFramebuffers(framebuffer);
+    }
+
+    @Override
+    public int checkFramebufferStatus(int target) {
+        return GL30.glCheckFramebufferStatus(target);
+    }
+
+    @Override
+    public void framebufferTexture2D(int target, int attachment, int textureTarget, int texture, int level) {
+        GL30.glFramebufferTexture2D(target, attachment, textureTarget, texture, level);
+    }
+
+    @Override
+    public void framebufferTexture(int target, int attachment, int texture, int level) {
+        GL32.glFramebufferTexture(target, attachment, texture, level);
+    }
+
+    @Override
+    public void drawBuffers(@NotNull int[] buffers) {
+        GL20.glDrawBuffers(buffers);
+    }
+
+    @Override
+    public void drawBuffer(int buffer) {
+        GL11.glDrawBuffer(buffer);
+    }
+
+    @Override
+    public void readBuffer(int buffer) {
+        GL11.glReadBuffer(buffer);
+    }
+
+    @Override
+    public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+        GL30.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1, mask, filter);
+    }
+
+    @Override
+    public int genRenderbuffers() {
+        return GL30.glGenRenderbuffers();
+    }
+
+    @Override
+    public void bindRenderbuffer(int target, int renderbuffer) {
+        GL30.glBindRenderbuffer(target, renderbuffer);
+    }
+
+    @Override
+    public void renderbufferStorage(int target, int internalFormat, int width, int height) {
+        GL30.glRenderbufferStorage(target, internalFormat, width, height);
+    }
+
+    @Override
+    public void renderbufferStorageMultisample(int target, int samples, int internalFormat, int width, int height) {
+        GL30.glRenderbufferStorageMultisample(target, samples, internalFormat, width, height);
+    }
+
+    @Override
+    public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbuffer) {
+        GL30.glFramebufferRenderbuffer(target, attachment, renderbufferTarget, renderbuffer);
+    }
+
+    @Override
+    public void deleteRenderbuffers(int renderbuffer) {
+        GL30.glDeleteRenderbuffers(renderbuffer);
+    }
+
+    //
+    //buffers-------------------------------------------------------------------
+    //
+    @Override
+    public int genBuffers() {
+        return GL15.glGenBuffers();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        GL15.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        GL15.glBufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull FloatBuffer data, int usage) {
+        GL15.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull ByteBuffer data, int usage) {
+        GL15.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull IntBuffer data, int usage) {
+        GL15.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull float[] data, int usage) {
+        GL15.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull int[] data, int usage) {
+        GL15.glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, long size, long address, int usage) {
+        GL15.nglBufferData(target, size, address, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull ByteBuffer data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull FloatBuffer data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull IntBuffer data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull float[] data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull int[] data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        GL30.glBindBufferBase(target, index, buffer);
+    }
+
+    @Override
+    public void bindBufferRange(int target, int index, int buffer, long offset, long size) {
+        GL30.glBindBufferRange(target, index, buffer, offset, size);
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        GL15.glDeleteBuffers(buffer);
+    }
+
+    //
+    //vertex arrays-------------------------------------------------------------
+    //
+    @Override
+    public int genVertexArrays() {
+        return GL30.glGenVertexArrays();
+    }
+
+    @Override
+    public void bindVertexArray(int array) {
+        GL30.glBindVertexArray(array);
+    }
+
+    @Override
+    public void deleteVertexArrays(int array) {
+        GL30.glDeleteVertexArrays(array);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        GL20.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        GL20.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        GL20.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        GL33.glVertexAttribDivisor(index, divisor);
+    }
+
+    //
+    //drawing-------------------------------------------------------------------
+    //
+    @Override
+    public void drawArrays(int mode, int first, int count) {
+        GL11.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        GL31.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        GL11.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount) {
+        GL31.glDrawElementsInstanced(mode, count, type, indices, instanceCount);
+    }
+
+    //
+    //shaders-------------------------------------------------------------------
+    //
+    @Override
+    public int createProgram() {
+        return GL20.glCreateProgram();
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+        GL20.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void detachShader(int program, int shader) {
+        GL20.glDetachShader(program, shader);
+    }
+
+    @Override
+    public void linkProgram(int program) {
+        GL20.glLinkProgram(program);
+    }
+
+    @Override
+    public void validateProgram(int program) {
+        GL20.glValidateProgram(program);
+    }
+
+    @Override
+    public void useProgram(int program) {
+        GL20.glUseProgram(program);
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        GL20.glDeleteProgram(program);
+    }
+
+    @Override
+    public int createShader(int type) {
+        return GL20.glCreateShader(type);
+    }
+
+    @Override
+    public void shaderSource(int shader, @NotNull CharSequence source) {
+        GL20.glShaderSource(shader, source);
+    }
+
+    @Override
+    public void compileShader(int shader) {
+        GL20.glCompileShader(shader);
+    }
+
+    @Override
+    public int getShaderi(int shader, int parameter) {
+        return GL20.glGetShaderi(shader, parameter);
+    }
+
+    @NotNull
+    @Override
+    public String getShaderInfoLog(int shader, int maxLength) {
+        return GL20.glGetShaderInfoLog(shader, maxLength);
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+        GL20.glDeleteShader(shader);
+    }
+
+    @Override
+    public int getUniformLocation(int program, @NotNull CharSequence name) {
+        return GL20.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        GL20.glUniform1f(location, x);
+    }
+
+    @Override
+    public void uniform1i(int location, int x) {
+        GL20.glUniform1i(location, x);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        GL20.glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        GL20.glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        GL20.glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix3fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+        GL20.glUniformMatrix3fv(location, transpose, value);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+        GL20.glUniformMatrix4fv(location, transpose, value);
+    }
+
+    //
+    //textures------------------------------------------------------------------
+    //
+    @Override
+    public int genTextures() {
+        return GL11.glGenTextures();
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        GL11.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void activeTexture(int texture) {
+        GL13.glActiveTexture(texture);
+    }
+
+    @Override
+    public void generateMipmap(int target) {
+        GL30.glGenerateMipmap(target);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, @Nullable ByteBuffer pixels) {
+        GL11.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void texImage2DMultisample(int target, int samples, int internalFormat, int width, int height, boolean fixedSampleLocations) {
+        GL32.glTexImage2DMultisample(target, samples, internalFormat, width, height, fixedSampleLocations);
+    }
+
+    @Override
+    public void texParameteri(int target, int parameter, int value) {
+        GL11.glTexParameteri(target, parameter, value);
+    }
+
+    @Override
+    public void texParameterf(int target, int parameter, float value) {
+        GL11.glTexParameterf(target, parameter, value);
+    }
+
+    @Override
+    public void texParameterfv(int target, int parameter, @NotNull float[] values) {
+        GL11.glTexParameterfv(target, parameter, values);
+    }
+
+    @Override
+    public void texBuffer(int target, int internalFormat, int buffer) {
+        GL31.glTexBuffer(target, internalFormat, buffer);
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        GL11.glDeleteTextures(texture);
+    }
+
+    @Override
+    public String toString() {
+        return "LwjglBackend{}";
+    }
+
+}
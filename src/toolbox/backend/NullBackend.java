@@ -0,0 +1,465 @@
+package toolbox.backend;
+
+import java.nio.*;
+import org.lwjgl.opengl.*;
+import toolbox.annotations.*;
+
+/**
+ * GraphicsBackend which doesn't do anything. It doesn't need an OpenGL context,
+ * so you can use it to measure the CPU cost of the rendering (culling,
+ * sorting, uniform compilation etc.) without a GPU. The created objects get
+ * unique, positive ids, the shaders always compile, the framebuffers are
+ * always complete and the queries return OpenGL's default values.
+ */
+public class NullBackend implements GraphicsBackend {
+
+    /**
+     * The next object's id.
+     */
+    private int nextId = 1;
+
+    /**
+     * Returns a new, unique id.
+     *
+     * @return a new id
+     */
+    private int createId() {
+        return nextId++;
+    }
+
+    //
+    //state---------------------------------------------------------------------
+    //
+    @Override
+    public void enable(int capability) {
+    }
+
+    @Override
+    public void disable(int capability) {
+    }
+
+    @Override
+    public boolean isEnabled(int capability) {
+        return false;
+    }
+
+    @Override
+    public int getInteger(int parameter) {
+        switch (parameter) {
+            case GL11.GL_DEPTH_WRITEMASK:
+                return GL11.GL_TRUE;
+            case GL11.GL_DEPTH_FUNC:
+                return GL11.GL_LESS;
+            case GL11.GL_POLYGON_MODE:
+                return GL11.GL_FILL;
+            case GL11.GL_CULL_FACE_MODE:
+                return GL11.GL_BACK;
+            case GL31.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT:
+                return 256;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public void getIntegerv(int parameter, @NotNull int[] values) {
+        int value = getInteger(parameter);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value;
+        }
+    }
+
+    @Override
+    public float getFloat(int parameter) {
+        return parameter == EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT ? 16 : 0;
+    }
+
+    @Override
+    public void getFloatv(int parameter, @NotNull float[] values) {
+        float value = getFloat(parameter);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value;
+        }
+    }
+
+    @Override
+    public boolean isAnisotropicFilteringSupported() {
+        return false;
+    }
+
+    @Override
+    public void depthMask(boolean flag) {
+    }
+
+    @Override
+    public void depthFunc(int function) {
+    }
+
+    @Override
+    public void blendFunc(int sourceFactor, int destinationFactor) {
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void scissor(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void cullFace(int mode) {
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha) {
+    }
+
+    @Override
+    public void clear(int mask) {
+    }
+
+    //
+    //framebuffers--------------------------------------------------------------
+    //
+    @Override
+    public int genFramebuffers() {
+        return createId();
+    }
+
+    @Override
+    public void bindFramebuffer(int target, int framebuffer) {
+    }
+
+    @Override
+    public void deleteFramebuffers(int framebuffer) {
+    }
+
+    @Override
+    public int checkFramebufferStatus(int target) {
+        return GL30.GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    @Override
+    public void framebufferTexture2D(int target, int attachment, int textureTarget, int texture, int level) {
+    }
+
+    @Override
+    public void framebufferTexture(int target, int attachment, int texture, int level) {
+    }
+
+    @Override
+    public void drawBuffers(@NotNull int[] buffers) {
+    }
+
+    @Override
+    public void drawBuffer(int buffer) {
+    }
+
+    @Override
+    public void readBuffer(int buffer) {
+    }
+
+    @Override
+    public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+    }
+
+    @Override
+    public int genRenderbuffers() {
+        return createId();
+    }
+
+    @Override
+    public void bindRenderbuffer(int target, int renderbuffer) {
+    }
+
+    @Override
+    public void renderbufferStorage(int target, int internalFormat, int width, int height) {
+    }
+
+    @Override
+    public void renderbufferStorageMultisample(int target, int samples, int internalFormat, int width, int height) {
+    }
+
+    @Override
+    public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbuffer) {
+    }
+
+    @Override
+    public void deleteRenderbuffers(int renderbuffer) {
+    }
+
+    //
+    //buffers-------------------------------------------------------------------
+    //
+    @Override
+    public int genBuffers() {
+        return createId();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull FloatBuffer data, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull ByteBuffer data, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull IntBuffer data, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull float[] data, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull int[] data, int usage) {
+    }
+
+    @Override
+    public void bufferData(int target, long size, long address, int usage) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull ByteBuffer data) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull FloatBuffer data) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull IntBuffer data) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull float[] data) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull int[] data) {
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+    }
+
+    @Override
+    public void bindBufferRange(int target, int index, int buffer, long offset, long size) {
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+    }
+
+    //
+    //vertex arrays-------------------------------------------------------------
+    //
+    @Override
+    public int genVertexArrays() {
+        return createId();
+    }
+
+    @Override
+    public void bindVertexArray(int array) {
+    }
+
+    @Override
+    public void deleteVertexArrays(int array) {
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+    }
+
+    //
+    //drawing-------------------------------------------------------------------
+    //
+    @Override
+    public void drawArrays(int mode, int first, int count) {
+    }
+
+    @Override
+    public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount) {
+    }
+
+    //
+    //shaders-------------------------------------------------------------------
+    //
+    @Override
+    public int createProgram() {
+        return createId();
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+    }
+
+    @Override
+    public void detachShader(int program, int shader) {
+    }
+
+    @Override
+    public void linkProgram(int program) {
+    }
+
+    @Override
+    public void validateProgram(int program) {
+    }
+
+    @Override
+    public void useProgram(int program) {
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+    }
+
+    @Override
+    public int createShader(int type) {
+        return createId();
+    }
+
+    @Override
+    public void shaderSource(int shader, @NotNull CharSequence source) {
+    }
+
+    @Override
+    public void compileShader(int shader) {
+    }
+
+    @Override
+    public int getShaderi(int shader, int parameter) {
+        return parameter == GL20.GL_COMPILE_STATUS ? GL11.GL_TRUE : 0;
+    }
+
+    @NotNull
+    @Override
+    public String getShaderInfoLog(int shader, int maxLength) {
+        return "";
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+    }
+
+    @Override
+    public int getUniformLocation(int program, @NotNull CharSequence name) {
+        return createId();
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+    }
+
+    @Override
+    public void uniform1i(int location, int x) {
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+    }
+
+    @Override
+    public void uniformMatrix3fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+    }
+
+    //
+    //textures------------------------------------------------------------------
+    //
+    @Override
+    public int genTextures() {
+        return createId();
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+    }
+
+    @Override
+    public void activeTexture(int texture) {
+    }
+
+    @Override
+    public void generateMipmap(int target) {
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, @Nullable ByteBuffer pixels) {
+    }
+
+    @Override
+    public void texImage2DMultisample(int target, int samples, int internalFormat, int width, int height, boolean fixedSampleLocations) {
+    }
+
+    @Override
+    public void texParameteri(int target, int parameter, int value) {
+    }
+
+    @Override
+    public void texParameterf(int target, int parameter, float value) {
+    }
+
+    @Override
+    public void texParameterfv(int target, int parameter, @NotNull float[] values) {
+    }
+
+    @Override
+    public void texBuffer(int target, int internalFormat, int buffer) {
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+    }
+
+    @Override
+    public String toString() {
+        return "NullBackend{" + "nextId=" + nextId + '}';
+    }
+
+}
@@ -0,0 +1,923 @@
+package toolbox.backend;
+
+import java.nio.*;
+import java.util.*;
+import toolbox.annotations.*;
+
+/**
+ * GraphicsBackend which records the command stream and forwards every call to
+ * an other backend. It counts the commands and the uploaded bytes (vertex and
+ * index data, uniform buffer updates, uniform variables and texture images)
+ * per command and per command type, and the number of the drawn vertices and
+ * instances. If capturing is enabled, it also stores the commands' names in
+ * the order they were called. If you wrap a NullBackend, you can check what
+ * the RenderingPipeline would send to the GPU without an OpenGL context, if
+ * you wrap a LwjglBackend, you can check a real frame.
+ *
+ * @see #reset()
+ */
+public class RecordingBackend implements GraphicsBackend {
+
+    /**
+     * Command type.
+     */
+    public enum CommandType {
+        /**
+         * Fixed function state changes like enabling the depth test or setting
+         * the viewport.
+         */
+        STATE,
+        /**
+         * Binding objects like buffers, textures, programs or framebuffers.
+         */
+        BIND,
+        /**
+         * Creating and deleting objects.
+         */
+        RESOURCE,
+        /**
+         * Uploading data to buffers or textures.
+         */
+        UPLOAD,
+        /**
+         * Loading uniform variables.
+         */
+        UNIFORM,
+        /**
+         * Draw calls.
+         */
+        DRAW,
+        /**
+         * Querying values from the driver.
+         */
+        QUERY
+    }
+
+    /**
+     * A command's statistics.
+     */
+    private static class CommandStatistics {
+
+        /**
+         * The number of the calls.
+         */
+        private int count;
+        /**
+         * The number of the uploaded bytes.
+         */
+        private long bytes;
+
+    }
+
+    /**
+     * The backend which receives the commands.
+     */
+    private final GraphicsBackend backend;
+    /**
+     * The statistics of the commands.
+     */
+    private final Map<String, CommandStatistics> commands = new HashMap<>();
+    /**
+     * The number of the commands per command type.
+     */
+    private final int[] typeCounts = new int[CommandType.values().length];
+    /**
+     * The number of the uploaded bytes per command type.
+     */
+    private final long[] typeBytes = new long[CommandType.values().length];
+    /**
+     * The number of the drawn vertices (or indices).
+     */
+    private long vertices;
+    /**
+     * The number of the drawn instances.
+     */
+    private long instances;
+    /**
+     * Determines whether the commands' names are captured.
+     */
+    private boolean capturing;
+    /**
+     * The captured commands' names.
+     */
+    private final List<String> capturedCommands = new ArrayList<>();
+
+    /**
+     * Initializes a new RecordingBackend which forwards the commands to a new
+     * NullBackend.
+     */
+    public RecordingBackend() {
+        this(new NullBackend());
+    }
+
+    /**
+     * Initializes a new RecordingBackend which forwards the commands to the
+     * given backend.
+     *
+     * @param backend the backend which receives the commands
+     *
+     * @throws NullPointerException backend can't be null
+     */
+    public RecordingBackend(@NotNull GraphicsBackend backend) {
+        if (backend == null) {
+            throw new NullPointerException();
+        }
+        this.backend = backend;
+    }
+
+    /**
+     * Returns the backend which receives the commands.
+     *
+     * @return the backend which receives the commands
+     */
+    @NotNull
+    public GraphicsBackend getBackend() {
+        return backend;
+    }
+
+    //
+    //statistics----------------------------------------------------------------
+    //
+    /**
+     * Records a command.
+     *
+     * @param command the command's name
+     * @param type    the command's type
+     * @param bytes   the number of the uploaded bytes
+     */
+    private void record(@NotNull String command, @NotNull CommandType type, long bytes) {
+        CommandStatistics statistics = commands.get(command);
+        if (statistics == null) {
+            statistics = new CommandStatistics();
+            commands.put(command, statistics);
+        }
+        statistics.count++;
+        statistics.bytes += bytes;
+        typeCounts[type.ordinal()]++;
+        typeBytes[type.ordinal()] += bytes;
+        if (capturing) {
+            capturedCommands.add(command);
+        }
+    }
+
+    /**
+     * Records a command which doesn't upload any data.
+     *
+     * @param command the command's name
+     * @param type    the command's type
+     */
+    private void record(@NotNull String command, @NotNull CommandType type) {
+        record(command, type, 0);
+    }
+
+    /**
+     * Records a draw call.
+     *
+     * @param command       the command's name
+     * @param count         the number of the vertices (or indices)
+     * @param instanceCount the number of the instances
+     */
+    private void recordDraw(@NotNull String command, int count, int instanceCount) {
+        record(command, CommandType.DRAW);
+        vertices += (long) count * instanceCount;
+        instances += instanceCount;
+    }
+
+    /**
+     * Returns the number of the recorded commands.
+     *
+     * @return the number of the recorded commands
+     */
+    public int getNumberOfCommands() {
+        int count = 0;
+        for (int typeCount : typeCounts) {
+            count += typeCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the recorded commands of the given type.
+     *
+     * @param type command type
+     *
+     * @return the number of the recorded commands of the given type
+     *
+     * @throws NullPointerException type can't be null
+     */
+    public int getNumberOfCommands(@NotNull CommandType type) {
+        return typeCounts[type.ordinal()];
+    }
+
+    /**
+     * Returns the number of the recorded calls of the given command (for
+     * example "drawElements").
+     *
+     * @param command the command's name
+     *
+     * @return the number of the recorded calls of the given command
+     */
+    public int getNumberOfCommands(@NotNull String command) {
+        CommandStatistics statistics = commands.get(command);
+        return statistics == null ? 0 : statistics.count;
+    }
+
+    /**
+     * Returns the number of the bytes uploaded by the commands of the given
+     * type.
+     *
+     * @param type command type
+     *
+     * @return the number of the uploaded bytes
+     *
+     * @throws NullPointerException type can't be null
+     */
+    public long getNumberOfBytes(@NotNull CommandType type) {
+        return typeBytes[type.ordinal()];
+    }
+
+    /**
+     * Returns the number of the bytes uploaded by the given command.
+     *
+     * @param command the command's name
+     *
+     * @return the number of the uploaded bytes
+     */
+    public long getNumberOfBytes(@NotNull String command) {
+        CommandStatistics statistics = commands.get(command);
+        return statistics == null ? 0 : statistics.bytes;
+    }
+
+    /**
+     * Returns the names of the recorded commands.
+     *
+     * @return the names of the recorded commands
+     */
+    @NotNull @ReadOnly
+    public Set<String> getCommandNames() {
+        return Collections.unmodifiableSet(commands.keySet());
+    }
+
+    /**
+     * Returns the number of the draw calls.
+     *
+     * @return the number of the draw calls
+     */
+    public int getNumberOfDrawCalls() {
+        return getNumberOfCommands(CommandType.DRAW);
+    }
+
+    /**
+     * Returns the number of the drawn vertices (or indices). The instanced
+     * draw calls' vertices are counted once per instance.
+     *
+     * @return the number of the drawn vertices
+     */
+    public long getNumberOfVertices() {
+        return vertices;
+    }
+
+    /**
+     * Returns the number of the drawn instances. A non-instanced draw call
+     * draws one instance.
+     *
+     * @return the number of the drawn instances
+     */
+    public long getNumberOfInstances() {
+        return instances;
+    }
+
+    /**
+     * Determines whether the commands' names are captured.
+     *
+     * @return true if the commands' names are captured, false otherwise
+     */
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    /**
+     * Sets whether the commands' names should be captured. Capturing
+     * allocates memory for every command, so you shouldn't use it during
+     * benchmarks.
+     *
+     * @param capturing true if the commands' names should be captured, false
+     *                  otherwise
+     */
+    public void setCapturing(boolean capturing) {
+        this.capturing = capturing;
+    }
+
+    /**
+     * Returns the captured commands' names in the order they were called.
+     *
+     * @return the captured commands' names
+     *
+     * @see #setCapturing(boolean)
+     */
+    @NotNull @ReadOnly
+    public List<String> getCapturedCommands() {
+        return Collections.unmodifiableList(capturedCommands);
+    }
+
+    /**
+     * Forgets all the recorded statistics and the captured commands. You can
+     * call it for example at the beginning of every frame.
+     */
+    public void reset() {
+        commands.clear();
+        Arrays.fill(typeCounts, 0);
+        Arrays.fill(typeBytes, 0);
+        vertices = 0;
+        instances = 0;
+        capturedCommands.clear();
+    }
+
+    //
+    //state---------------------------------------------------------------------
+    //
+    @Override
+    public void enable(int capability) {
+        record("enable", CommandType.STATE);
+        backend.enable(capability);
+    }
+
+    @Override
+    public void disable(int capability) {
+        record("disable", CommandType.STATE);
+        backend.disable(capability);
+    }
+
+    @Override
+    public boolean isEnabled(int capability) {
+        record("isEnabled", CommandType.QUERY);
+        return backend.isEnabled(capability);
+    }
+
+    @Override
+    public int getInteger(int parameter) {
+        record("getInteger", CommandType.QUERY);
+        return backend.getInteger(parameter);
+    }
+
+    @Override
+    public void getIntegerv(int parameter, @NotNull int[] values) {
+        record("getIntegerv", CommandType.QUERY);
+        backend.getIntegerv(parameter, values);
+    }
+
+    @Override
+    public float getFloat(int parameter) {
+        record("getFloat", CommandType.QUERY);
+        return backend.getFloat(parameter);
+    }
+
+    @Override
+    public void getFloatv(int parameter, @NotNull float[] values) {
+        record("getFloatv", CommandType.QUERY);
+        backend.getFloatv(parameter, values);
+    }
+
+    @Override
+    public boolean isAnisotropicFilteringSupported() {
+        return backend.isAnisotropicFilteringSupported();
+    }
+
+    @Override
+    public void depthMask(boolean flag) {
+        record("depthMask", CommandType.STATE);
+        backend.depthMask(flag);
+    }
+
+    @Override
+    public void depthFunc(int function) {
+        record("depthFunc", CommandType.STATE);
+        backend.depthFunc(function);
+    }
+
+    @Override
+    public void blendFunc(int sourceFactor, int destinationFactor) {
+        record("blendFunc", CommandType.STATE);
+        backend.blendFunc(sourceFactor, destinationFactor);
+    }
+
+    @Override
+    public void polygonMode(int face, int mode) {
+        record("polygonMode", CommandType.STATE);
+        backend.polygonMode(face, mode);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        record("viewport", CommandType.STATE);
+        backend.viewport(x, y, width, height);
+    }
+
+    @Override
+    public void scissor(int x, int y, int width, int height) {
+        record("scissor", CommandType.STATE);
+        backend.scissor(x, y, width, height);
+    }
+
+    @Override
+    public void cullFace(int mode) {
+        record("cullFace", CommandType.STATE);
+        backend.cullFace(mode);
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha) {
+        record("clearColor", CommandType.STATE);
+        backend.clearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void clear(int mask) {
+        record("clear", CommandType.DRAW);
+        backend.clear(mask);
+    }
+
+    //
+    //framebuffers--------------------------------------------------------------
+    //
+    @Override
+    public int genFramebuffers() {
+        record("genFramebuffers", CommandType.RESOURCE);
+        return backend.genFramebuffers();
+    }
+
+    @Override
+    public void bindFramebuffer(int target, int framebuffer) {
+        record("bindFramebuffer", CommandType.BIND);
+        backend.bindFramebuffer(target, framebuffer);
+    }
+
+    @Override
+    public void deleteFramebuffers(int framebuffer) {
+        record("deleteFramebuffers", CommandType.RESOURCE);
+        backend.deleteFramebuffers(framebuffer);
+    }
+
+    @Override
+    public int checkFramebufferStatus(int target) {
+        record("checkFramebufferStatus", CommandType.QUERY);
+        return backend.checkFramebufferStatus(target);
+    }
+
+    @Override
+    public void framebufferTexture2D(int target, int attachment, int textureTarget, int texture, int level) {
+        record("framebufferTexture2D", CommandType.BIND);
+        backend.framebufferTexture2D(target, attachment, textureTarget, texture, level);
+    }
+
+    @Override
+    public void framebufferTexture(int target, int attachment, int texture, int level) {
+        record("framebufferTexture", CommandType.BIND);
+        backend.framebufferTexture(target, attachment, texture, level);
+    }
+
+    @Override
+    public void drawBuffers(@NotNull int[] buffers) {
+        record("drawBuffers", CommandType.STATE);
+        backend.drawBuffers(buffers);
+    }
+
+    @Override
+    public void drawBuffer(int buffer) {
+        record("drawBuffer", CommandType.STATE);
+        backend.drawBuffer(buffer);
+    }
+
+    @Override
+    public void readBuffer(int buffer) {
+        record("readBuffer", CommandType.STATE);
+        backend.readBuffer(buffer);
+    }
+
+    @Override
+    public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+        record("blitFramebuffer", CommandType.DRAW);
+        backend.blitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1, mask, filter);
+    }
+
+    @Override
+    public int genRenderbuffers() {
+        record("genRenderbuffers", CommandType.RESOURCE);
+        return backend.genRenderbuffers();
+    }
+
+    @Override
+    public void bindRenderbuffer(int target, int renderbuffer) {
+        record("bindRenderbuffer", CommandType.BIND);
+        backend.bindRenderbuffer(target, renderbuffer);
+    }
+
+    @Override
+    public void renderbufferStorage(int target, int internalFormat, int width, int height) {
+        record("renderbufferStorage", CommandType.RESOURCE);
+        backend.renderbufferStorage(target, internalFormat, width, height);
+    }
+
+    @Override
+    public void renderbufferStorageMultisample(int target, int samples, int internalFormat, int width, int height) {
+        record("renderbufferStorageMultisample", CommandType.RESOURCE);
+        backend.renderbufferStorageMultisample(target, samples, internalFormat, width, height);
+    }
+
+    @Override
+    public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbuffer) {
+        record("framebufferRenderbuffer", CommandType.BIND);
+        backend.framebufferRenderbuffer(target, attachment, renderbufferTarget, renderbuffer);
+    }
+
+    @Override
+    public void deleteRenderbuffers(int renderbuffer) {
+        record("deleteRenderbuffers", CommandType.RESOURCE);
+        backend.deleteRenderbuffers(renderbuffer);
+    }
+
+    //
+    //buffers-------------------------------------------------------------------
+    //
+    @Override
+    public int genBuffers() {
+        record("genBuffers", CommandType.RESOURCE);
+        return backend.genBuffers();
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer) {
+        record("bindBuffer", CommandType.BIND);
+        backend.bindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        record("bufferData", CommandType.RESOURCE);
+        backend.bufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull FloatBuffer data, int usage) {
+        record("bufferData", CommandType.UPLOAD, (long) data.remaining() * Float.BYTES);
+        backend.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull ByteBuffer data, int usage) {
+        record("bufferData", CommandType.UPLOAD, data.remaining());
+        backend.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull IntBuffer data, int usage) {
+        record("bufferData", CommandType.UPLOAD, (long) data.remaining() * Integer.BYTES);
+        backend.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull float[] data, int usage) {
+        record("bufferData", CommandType.UPLOAD, (long) data.length * Float.BYTES);
+        backend.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, @NotNull int[] data, int usage) {
+        record("bufferData", CommandType.UPLOAD, (long) data.length * Integer.BYTES);
+        backend.bufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, long size, long address, int usage) {
+        record("bufferData", CommandType.UPLOAD, size);
+        backend.bufferData(target, size, address, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull ByteBuffer data) {
+        record("bufferSubData", CommandType.UPLOAD, data.remaining());
+        backend.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull FloatBuffer data) {
+        record("bufferSubData", CommandType.UPLOAD, (long) data.remaining() * Float.BYTES);
+        backend.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull IntBuffer data) {
+        record("bufferSubData", CommandType.UPLOAD, (long) data.remaining() * Integer.BYTES);
+        backend.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull float[] data) {
+        record("bufferSubData", CommandType.UPLOAD, (long) data.length * Float.BYTES);
+        backend.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, @NotNull int[] data) {
+        record("bufferSubData", CommandType.UPLOAD, (long) data.length * Integer.BYTES);
+        backend.bufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int buffer) {
+        record("bindBufferBase", CommandType.BIND);
+        backend.bindBufferBase(target, index, buffer);
+    }
+
+    @Override
+    public void bindBufferRange(int target, int index, int buffer, long offset, long size) {
+        record("bindBufferRange", CommandType.BIND);
+        backend.bindBufferRange(target, index, buffer, offset, size);
+    }
+
+    @Override
+    public void deleteBuffers(int buffer) {
+        record("deleteBuffers", CommandType.RESOURCE);
+        backend.deleteBuffers(buffer);
+    }
+
+    //
+    //vertex arrays-------------------------------------------------------------
+    //
+    @Override
+    public int genVertexArrays() {
+        record("genVertexArrays", CommandType.RESOURCE);
+        return backend.genVertexArrays();
+    }
+
+    @Override
+    public void bindVertexArray(int array) {
+        record("bindVertexArray", CommandType.BIND);
+        backend.bindVertexArray(array);
+    }
+
+    @Override
+    public void deleteVertexArrays(int array) {
+        record("deleteVertexArrays", CommandType.RESOURCE);
+        backend.deleteVertexArrays(array);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        record("enableVertexAttribArray", CommandType.STATE);
+        backend.enableVertexAttribArray(index);
+    }
+
+    @Override
+    public void disableVertexAttribArray(int index) {
+        record("disableVertexAttribArray", CommandType.STATE);
+        backend.disableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        record("vertexAttribPointer", CommandType.STATE);
+        backend.vertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        record("vertexAttribDivisor", CommandType.STATE);
+        backend.vertexAttribDivisor(index, divisor);
+    }
+
+    //
+    //drawing-------------------------------------------------------------------
+    //
+    @Override
+    public void drawArrays(int mode, int first, int count) {
+        recordDraw("drawArrays", count, 1);
+        backend.drawArrays(mode, first, count);
+    }
+
+    @Override
+    public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        recordDraw("drawArraysInstanced", count, instanceCount);
+        backend.drawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        recordDraw("drawElements", count, 1);
+        backend.drawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount) {
+        recordDraw("drawElementsInstanced", count, instanceCount);
+        backend.drawElementsInstanced(mode, count, type, indices, instanceCount);
+    }
+
+    //
+    //shaders-------------------------------------------------------------------
+    //
+    @Override
+    public int createProgram() {
+        record("createProgram", CommandType.RESOURCE);
+        return backend.createProgram();
+    }
+
+    @Override
+    public void attachShader(int program, int shader) {
+        record("attachShader", CommandType.RESOURCE);
+        backend.attachShader(program, shader);
+    }
+
+    @Override
+    public void detachShader(int program, int shader) {
+        record("detachShader", CommandType.RESOURCE);
+        backend.detachShader(program, shader);
+    }
+
+    @Override
+    public void linkProgram(int program) {
+        record("linkProgram", CommandType.RESOURCE);
+        backend.linkProgram(program);
+    }
+
+    @Override
+    public void validateProgram(int program) {
+        record("validateProgram", CommandType.RESOURCE);
+        backend.validateProgram(program);
+    }
+
+    @Override
+    public void useProgram(int program) {
+        record("useProgram", CommandType.BIND);
+        backend.useProgram(program);
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        record("deleteProgram", CommandType.RESOURCE);
+        backend.deleteProgram(program);
+    }
+
+    @Override
+    public int createShader(int type) {
+        record("createShader", CommandType.RESOURCE);
+        return backend.createShader(type);
+    }
+
+    @Override
+    public void shaderSource(int shader, @NotNull CharSequence source) {
+        record("shaderSource", CommandType.UPLOAD, source.length());
+        backend.shaderSource(shader, source);
+    }
+
+    @Override
+    public void compileShader(int shader) {
+        record("compileShader", CommandType.RESOURCE);
+        backend.compileShader(shader);
+    }
+
+    @Override
+    public int getShaderi(int shader, int parameter) {
+        record("getShaderi", CommandType.QUERY);
+        return backend.getShaderi(shader, parameter);
+    }
+
+    @NotNull
+    @Override
+    public String getShaderInfoLog(int shader, int maxLength) {
+        record("getShaderInfoLog", CommandType.QUERY);
+        return backend.getShaderInfoLog(shader, maxLength);
+    }
+
+    @Override
+    public void deleteShader(int shader) {
+        record("deleteShader", CommandType.RESOURCE);
+        backend.deleteShader(shader);
+    }
+
+    @Override
+    public int getUniformLocation(int program, @NotNull CharSequence name) {
+        record("getUniformLocation", CommandType.QUERY);
+        return backend.getUniformLocation(program, name);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        record("uniform1f", CommandType.UNIFORM, Float.BYTES);
+        backend.uniform1f(location, x);
+    }
+
+    @Override
+    public void uniform1i(int location, int x) {
+        record("uniform1i", CommandType.UNIFORM, Integer.BYTES);
+        backend.uniform1i(location, x);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        record("uniform2f", CommandType.UNIFORM, 2 * Float.BYTES);
+        backend.uniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        record("uniform3f", CommandType.UNIFORM, 3 * Float.BYTES);
+        backend.uniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        record("uniform4f", CommandType.UNIFORM, 4 * Float.BYTES);
+        backend.uniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix3fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+        record("uniformMatrix3fv", CommandType.UNIFORM, 9 * Float.BYTES);
+        backend.uniformMatrix3fv(location, transpose, value);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, boolean transpose, @NotNull FloatBuffer value) {
+        record("uniformMatrix4fv", CommandType.UNIFORM, 16 * Float.BYTES);
+        backend.uniformMatrix4fv(location, transpose, value);
+    }
+
+    //
+    //textures------------------------------------------------------------------
+    //
+    @Override
+    public int genTextures() {
+        record("genTextures", CommandType.RESOURCE);
+        return backend.genTextures();
+    }
+
+    @Override
+    public void bindTexture(int target, int texture) {
+        record("bindTexture", CommandType.BIND);
+        backend.bindTexture(target, texture);
+    }
+
+    @Override
+    public void activeTexture(int texture) {
+        record("activeTexture", CommandType.BIND);
+        backend.activeTexture(texture);
+    }
+
+    @Override
+    public void generateMipmap(int target) {
+        record("generateMipmap", CommandType.RESOURCE);
+        backend.generateMipmap(target);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, int internalFormat, int width, int height, int border, int format, int type, @Nullable ByteBuffer pixels) {
+        record("texImage2D", pixels == null ? CommandType.RESOURCE : CommandType.UPLOAD, pixels == null ? 0 : pixels.remaining());
+        backend.texImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void texImage2DMultisample(int target, int samples, int internalFormat, int width, int height, boolean fixedSampleLocations) {
+        record("texImage2DMultisample", CommandType.RESOURCE);
+        backend.texImage2DMultisample(target, samples, internalFormat, width, height, fixedSampleLocations);
+    }
+
+    @Override
+    public void texParameteri(int target, int parameter, int value) {
+        record("texParameteri", CommandType.STATE);
+        backend.texParameteri(target, parameter, value);
+    }
+
+    @Override
+    public void texParameterf(int target, int parameter, float value) {
+        record("texParameterf", CommandType.STATE);
+        backend.texParameterf(target, parameter, value);
+    }
+
+    @Override
+    public void texParameterfv(int target, int parameter, @NotNull float[] values) {
+        record("texParameterfv", CommandType.STATE);
+        backend.texParameterfv(target, parameter, values);
+    }
+
+    @Override
+    public void texBuffer(int target, int internalFormat, int buffer) {
+        record("texBuffer", CommandType.RESOURCE);
+        backend.texBuffer(target, internalFormat, buffer);
+    }
+
+    @Override
+    public void deleteTextures(int texture) {
+        record("deleteTextures", CommandType.RESOURCE);
+        backend.deleteTextures(texture);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordingBackend{" + "backend=" + backend
+                + ", numberOfCommands=" + getNumberOfCommands()
+                + ", vertices=" + vertices + ", instances=" + instances
+                + ", capturing=" + capturing + '}';
+    }
+
+}
@@ -0,0 +1,912 @@
+package toolbox.profiler;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+import toolbox.annotations.*;
+
+/**
+ * Hierarchical frame profiler. It records nanosecond CPU scopes (and GPU
+ * scopes if it has a GpuTimer) and keeps the last N frames in a ring buffer.
+ * From the recorded frames it can compute percentiles per scope name and it
+ * can export them in Chrome's trace event format (you can open it in
+ * chrome://tracing). Every frame has a root scope named "Frame", the other
+ * scopes are nested in it. After the frames' buffers grew large enough,
+ * recording doesn't allocate any memory.
+ *
+ * @see Profiler
+ */
+public class FrameProfiler {
+
+    /**
+     * The root scope's name.
+     */
+    public static final String FRAME_SCOPE = "Frame";
+    /**
+     * The recorded frames.
+     */
+    private final ProfiledFrame[] frames;
+    /**
+     * The number of the recorded frames.
+     */
+    private int numberOfFrames;
+    /**
+     * The next frame's index in the ring buffer.
+     */
+    private int nextFrame;
+    /**
+     * The frame currently being recorded.
+     */
+    private ProfiledFrame currentFrame;
+    /**
+     * The open scopes' indices.
+     */
+    private int[] openScopes = new int[16];
+    /**
+     * The number of the open scopes.
+     */
+    private int numberOfOpenScopes;
+    /**
+     * The number of the started frames.
+     */
+    private long frameCount;
+    /**
+     * The CPU clock (in nanoseconds).
+     */
+    private final LongSupplier clock;
+    /**
+     * Records the GPU timestamps (null if GPU timing is disabled).
+     */
+    private GpuTimer gpuTimer;
+
+    /**
+     * A recorded frame.
+     */
+    public static class ProfiledFrame {
+
+        /**
+         * The frame's index.
+         */
+        private long frameIndex;
+        /**
+         * The number of the scopes.
+         */
+        private int numberOfScopes;
+        /**
+         * The scopes' names.
+         */
+        private String[] names = new String[32];
+        /**
+         * The scopes' depth in the hierarchy.
+         */
+        private int[] depths = new int[32];
+        /**
+         * The scopes' CPU start times (in nanoseconds).
+         */
+        private long[] cpuStarts = new long[32];
+        /**
+         * The scopes' CPU end times (in nanoseconds).
+         */
+        private long[] cpuEnds = new long[32];
+        /**
+         * The scopes' GPU start timestamps' handles, or the resolved
+         * timestamps (in nanoseconds).
+         */
+        private long[] gpuStarts = new long[32];
+        /**
+         * The scopes' GPU end timestamps' handles, or the resolved timestamps
+         * (in nanoseconds).
+         */
+        private long[] gpuEnds = new long[32];
+        /**
+         * Determines whether the frame has GPU timestamps.
+         */
+        private boolean gpuTimed;
+        /**
+         * Determines whether the GPU timestamps are resolved.
+         */
+        private boolean gpuResolved;
+        /**
+         * The number of the counters.
+         */
+        private int numberOfCounters;
+        /**
+         * The counters' names.
+         */
+        private String[] counterNames = new String[8];
+        /**
+         * The counters' values.
+         */
+        private long[] counterValues = new long[8];
+
+        /**
+         * Sets the specified counter to the given value. If the frame doesn't
+         * have a counter with the given name, it adds one.
+         *
+         * @param name  the counter's name
+         * @param value the counter's value
+         */
+        private void setCounter(@NotNull String name, long value) {
+            for (int i = 0; i < numberOfCounters; i++) {
+                if (counterNames[i].equals(name)) {
+                    counterValues[i] = value;
+                    return;
+                }
+            }
+            if (numberOfCounters == counterNames.length) {
+                counterNames = Arrays.copyOf(counterNames, numberOfCounters * 2);
+                counterValues = Arrays.copyOf(counterValues, numberOfCounters * 2);
+            }
+            counterNames[numberOfCounters] = name;
+            counterValues[numberOfCounters++] = value;
+        }
+
+        /**
+         * Adds a new scope to the frame.
+         *
+         * @param name  the scope's name
+         * @param depth the scope's depth
+         * @param start the scope's CPU start time
+         *
+         * @return the scope's index
+         */
+        private int addScope(@NotNull String name, int depth, long start) {
+            if (numberOfScopes == names.length) {
+                int length = names.length * 2;
+                names = Arrays.copyOf(names, length);
+                depths = Arrays.copyOf(depths, length);
+                cpuStarts = Arrays.copyOf(cpuStarts, length);
+                cpuEnds = Arrays.copyOf(cpuEnds, length);
+                gpuStarts = Arrays.copyOf(gpuStarts, length);
+                gpuEnds = Arrays.copyOf(gpuEnds, length);
+            }
+            names[numberOfScopes] = name;
+            depths[numberOfScopes] = depth;
+            cpuStarts[numberOfScopes] = start;
+            cpuEnds[numberOfScopes] = start;
+            gpuStarts[numberOfScopes] = -1;
+            gpuEnds[numberOfScopes] = -1;
+            return numberOfScopes++;
+        }
+
+        /**
+         * Returns the frame's index.
+         *
+         * @return the frame's index
+         */
+        public long getFrameIndex() {
+            return frameIndex;
+        }
+
+        /**
+         * Returns the number of the frame's scopes (including the root scope).
+         *
+         * @return the number of the frame's scopes
+         */
+        public int getNumberOfScopes() {
+            return numberOfScopes;
+        }
+
+        /**
+         * Returns the specified scope's name.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's name
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        @NotNull
+        public String getName(int index) {
+            checkIndex(index);
+            return names[index];
+        }
+
+        /**
+         * Returns the specified scope's depth in the hierarchy. The root
+         * scope's depth is 0.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's depth
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public int getDepth(int index) {
+            checkIndex(index);
+            return depths[index];
+        }
+
+        /**
+         * Returns the specified scope's CPU start time.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's CPU start time (in nanoseconds)
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public long getCpuStart(int index) {
+            checkIndex(index);
+            return cpuStarts[index];
+        }
+
+        /**
+         * Returns the specified scope's CPU duration.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's CPU duration (in nanoseconds)
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public long getCpuDuration(int index) {
+            checkIndex(index);
+            return cpuEnds[index] - cpuStarts[index];
+        }
+
+        /**
+         * Determines whether the frame's GPU durations are available.
+         *
+         * @return true if the frame's GPU durations are available, false
+         *         otherwise
+         */
+        public boolean isGpuTimeAvailable() {
+            return gpuTimed && gpuResolved;
+        }
+
+        /**
+         * Returns the specified scope's GPU start time relative to the frame's
+         * GPU start time.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's GPU start time (in nanoseconds), or -1 if it
+         *         isn't available
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public long getGpuStart(int index) {
+            checkIndex(index);
+            return isGpuTimeAvailable() ? gpuStarts[index] - gpuStarts[0] : -1;
+        }
+
+        /**
+         * Returns the specified scope's GPU duration.
+         *
+         * @param index the scope's index
+         *
+         * @return the scope's GPU duration (in nanoseconds), or -1 if it isn't
+         *         available
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public long getGpuDuration(int index) {
+            checkIndex(index);
+            return isGpuTimeAvailable() ? gpuEnds[index] - gpuStarts[index] : -1;
+        }
+
+        /**
+         * Returns the number of the frame's counters.
+         *
+         * @return the number of the frame's counters
+         */
+        public int getNumberOfCounters() {
+            return numberOfCounters;
+        }
+
+        /**
+         * Returns the specified counter's name.
+         *
+         * @param index the counter's index
+         *
+         * @return the counter's name
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        @NotNull
+        public String getCounterName(int index) {
+            checkCounterIndex(index);
+            return counterNames[index];
+        }
+
+        /**
+         * Returns the specified counter's value.
+         *
+         * @param index the counter's index
+         *
+         * @return the counter's value
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        public long getCounterValue(int index) {
+            checkCounterIndex(index);
+            return counterValues[index];
+        }
+
+        /**
+         * Checks whether the given index is a valid counter index.
+         *
+         * @param index the counter's index
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        private void checkCounterIndex(int index) {
+            if (index < 0 || index >= numberOfCounters) {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+
+        /**
+         * Checks whether the given index is valid.
+         *
+         * @param index the scope's index
+         *
+         * @throws IndexOutOfBoundsException invalid index
+         */
+        private void checkIndex(int index) {
+            if (index < 0 || index >= numberOfScopes) {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ProfiledFrame{" + "frameIndex=" + frameIndex
+                    + ", numberOfScopes=" + numberOfScopes
+                    + ", numberOfCounters=" + numberOfCounters + ", gpuTimed="
+                    + gpuTimed + ", gpuResolved=" + gpuResolved + '}';
+        }
+    }
+
+    /**
+     * Initializes a new FrameProfiler to the given value.
+     *
+     * @param numberOfFrames the number of the frames kept in the ring buffer
+     *
+     * @throws IllegalArgumentException number of frames have to be positive
+     */
+    public FrameProfiler(int numberOfFrames) {
+        this(numberOfFrames, System::nanoTime);
+    }
+
+    /**
+     * Initializes a new FrameProfiler to the given values.
+     *
+     * @param numberOfFrames the number of the frames kept in the ring buffer
+     * @param clock          the CPU clock (in nanoseconds)
+     *
+     * @throws IllegalArgumentException number of frames have to be positive
+     * @throws NullPointerException     clock can't be null
+     */
+    public FrameProfiler(int numberOfFrames, @NotNull LongSupplier clock) {
+        if (numberOfFrames <= 0) {
+            throw new IllegalArgumentException("Number of frames have to be positive");
+        }
+        if (clock == null) {
+            throw new NullPointerException();
+        }
+        this.clock = clock;
+        frames = new ProfiledFrame[numberOfFrames];
+        for (int i = 0; i < numberOfFrames; i++) {
+            frames[i] = new ProfiledFrame();
+        }
+    }
+
+    //
+    //recording-----------------------------------------------------------------
+    //
+    /**
+     * Starts a new frame and opens it's root scope. It resolves the previous
+     * frames' GPU timestamps if they're available. If the ring buffer is full,
+     * the oldest frame is overwritten.
+     *
+     * @throws IllegalStateException the previous frame isn't ended
+     */
+    public void beginFrame() {
+        if (currentFrame != null) {
+            throw new IllegalStateException("The previous frame isn't ended");
+        }
+        resolveGpuTimestamps(false);
+        if (numberOfFrames == frames.length) {
+            numberOfFrames--;
+        }
+        currentFrame = frames[nextFrame];
+        discardGpuTimestamps(currentFrame);
+        currentFrame.frameIndex = frameCount++;
+        currentFrame.numberOfScopes = 0;
+        currentFrame.numberOfCounters = 0;
+        currentFrame.gpuTimed = gpuTimer != null;
+        currentFrame.gpuResolved = false;
+        begin(FRAME_SCOPE);
+    }
+
+    /**
+     * Opens a new scope nested in the currently open scope.
+     *
+     * @param name the scope's name
+     *
+     * @throws NullPointerException  name can't be null
+     * @throws IllegalStateException there is no started frame
+     */
+    public void begin(@NotNull String name) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        if (currentFrame == null) {
+            throw new IllegalStateException("There is no started frame");
+        }
+        int scope = currentFrame.addScope(name, numberOfOpenScopes, clock.getAsLong());
+        if (currentFrame.gpuTimed) {
+            currentFrame.gpuStarts[scope] = gpuTimer.issueTimestamp();
+        }
+        if (numberOfOpenScopes == openScopes.length) {
+            openScopes = Arrays.copyOf(openScopes, openScopes.length * 2);
+        }
+        openScopes[numberOfOpenScopes++] = scope;
+    }
+
+    /**
+     * Closes the currently open scope.
+     *
+     * @throws IllegalStateException there is no open scope, except the root
+     *                               scope
+     */
+    public void end() {
+        if (numberOfOpenScopes <= 1) {
+            throw new IllegalStateException("There is no open scope");
+        }
+        closeScope();
+    }
+
+    /**
+     * Sets the current frame's specified counter to the given value. You can
+     * use the counters to record per frame statistics (like the number of the
+     * draw calls) next to the scopes.
+     *
+     * @param name  the counter's name
+     * @param value the counter's value
+     *
+     * @throws NullPointerException  name can't be null
+     * @throws IllegalStateException there is no started frame
+     */
+    public void setCounter(@NotNull String name, long value) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        if (currentFrame == null) {
+            throw new IllegalStateException("There is no started frame");
+        }
+        currentFrame.setCounter(name, value);
+    }
+
+    /**
+     * Closes the frame's root scope and stores the frame in the ring buffer.
+     *
+     * @throws IllegalStateException there is no started frame, or some of it's
+     *                               scopes are still open
+     */
+    public void endFrame() {
+        if (currentFrame == null) {
+            throw new IllegalStateException("There is no started frame");
+        }
+        if (numberOfOpenScopes != 1) {
+            throw new IllegalStateException("Some of the frame's scopes are still open");
+        }
+        closeScope();
+        currentFrame = null;
+        nextFrame = (nextFrame + 1) % frames.length;
+        numberOfFrames++;
+    }
+
+    /**
+     * Closes the currently open scope.
+     */
+    private void closeScope() {
+        int scope = openScopes[--numberOfOpenScopes];
+        if (currentFrame.gpuTimed) {
+            currentFrame.gpuEnds[scope] = gpuTimer.issueTimestamp();
+        }
+        currentFrame.cpuEnds[scope] = clock.getAsLong();
+    }
+
+    /**
+     * Resolves the recorded frames' GPU timestamps.
+     *
+     * @param wait true if it should wait for the GPU, false if it should skip
+     *             the frames which results aren't available yet
+     */
+    private void resolveGpuTimestamps(boolean wait) {
+        for (int i = 0; i < numberOfFrames; i++) {
+            ProfiledFrame frame = getFrame(i);
+            if (frame.gpuTimed && !frame.gpuResolved
+                    && (wait || gpuTimer.isAvailable((int) frame.gpuEnds[0]))) {
+                for (int j = 0; j < frame.numberOfScopes; j++) {
+                    frame.gpuStarts[j] = resolveGpuTimestamp((int) frame.gpuStarts[j]);
+                    frame.gpuEnds[j] = resolveGpuTimestamp((int) frame.gpuEnds[j]);
+                }
+                frame.gpuResolved = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the specified timestamp's result and releases it.
+     *
+     * @param handle the timestamp's handle
+     *
+     * @return the timestamp (in nanoseconds)
+     */
+    private long resolveGpuTimestamp(int handle) {
+        long timestamp = gpuTimer.getTimestamp(handle);
+        gpuTimer.releaseTimestamp(handle);
+        return timestamp;
+    }
+
+    /**
+     * Releases the given frame's unresolved GPU timestamps.
+     *
+     * @param frame frame
+     */
+    private void discardGpuTimestamps(@NotNull ProfiledFrame frame) {
+        if (frame.gpuTimed && !frame.gpuResolved) {
+            for (int i = 0; i < frame.numberOfScopes; i++) {
+                if (frame.gpuStarts[i] >= 0) {
+                    gpuTimer.releaseTimestamp((int) frame.gpuStarts[i]);
+                }
+                if (frame.gpuEnds[i] >= 0) {
+                    gpuTimer.releaseTimestamp((int) frame.gpuEnds[i]);
+                }
+            }
+            frame.gpuTimed = false;
+        }
+    }
+
+    /**
+     * Returns the GpuTimer which records the GPU timestamps.
+     *
+     * @return the GpuTimer (null if GPU timing is disabled)
+     */
+    @Nullable
+    public GpuTimer getGpuTimer() {
+        return gpuTimer;
+    }
+
+    /**
+     * Sets the GpuTimer which records the GPU timestamps to the given value.
+     * The previous GpuTimer's unresolved timestamps are dropped, and it's
+     * released. It takes effect from the next frame.
+     *
+     * @param gpuTimer GpuTimer (null if GPU timing should be disabled)
+     *
+     * @throws IllegalStateException there is a started frame
+     */
+    public void setGpuTimer(@Nullable GpuTimer gpuTimer) {
+        if (currentFrame != null) {
+            throw new IllegalStateException("Can't change the GpuTimer during a frame");
+        }
+        if (this.gpuTimer != null) {
+            for (ProfiledFrame frame : frames) {
+                discardGpuTimestamps(frame);
+            }
+            this.gpuTimer.release();
+        }
+        this.gpuTimer = gpuTimer;
+    }
+
+    //
+    //statistics----------------------------------------------------------------
+    //
+    /**
+     * Returns the number of the recorded frames.
+     *
+     * @return the number of the recorded frames
+     */
+    public int getNumberOfFrames() {
+        return numberOfFrames;
+    }
+
+    /**
+     * Returns the specified recorded frame. The frame's index 0 means the
+     * oldest recorded frame. Note that the returned frame is overwritten when
+     * the ring buffer gets full.
+     *
+     * @param index the frame's index
+     *
+     * @return the specified recorded frame
+     *
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    @NotNull
+    public ProfiledFrame getFrame(int index) {
+        if (index < 0 || index >= numberOfFrames) {
+            throw new IndexOutOfBoundsException();
+        }
+        int start = nextFrame - numberOfFrames + frames.length;
+        return frames[(start + index) % frames.length];
+    }
+
+    /**
+     * Returns the names of the scopes in the recorded frames, in the order of
+     * their first appearance.
+     *
+     * @return the scopes' names
+     */
+    @NotNull @ReadOnly
+    public Set<String> getScopeNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; i < numberOfFrames; i++) {
+            ProfiledFrame frame = getFrame(i);
+            for (int j = 0; j < frame.numberOfScopes; j++) {
+                names.add(frame.names[j]);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the given percentile of the specified scope's CPU time per frame.
+     * If a scope appears several times in a frame, the durations are summed.
+     * The frames which don't contain the scope are skipped.
+     *
+     * @param name       the scope's name
+     * @param percentile percentile (in the [0;100] interval)
+     *
+     * @return the percentile (in nanoseconds), or -1 if there is no such a
+     *         scope
+     *
+     * @throws NullPointerException     name can't be null
+     * @throws IllegalArgumentException percentile must be in the [0;100]
+     *                                  interval
+     */
+    public long getCpuPercentile(@NotNull String name, double percentile) {
+        return computePercentile(name, percentile, false);
+    }
+
+    /**
+     * Returns the given percentile of the specified scope's GPU time per frame.
+     * If a scope appears several times in a frame, the durations are summed.
+     * The frames which don't contain the scope or their GPU timestamps aren't
+     * available are skipped.
+     *
+     * @param name       the scope's name
+     * @param percentile percentile (in the [0;100] interval)
+     *
+     * @return the percentile (in nanoseconds), or -1 if there is no such a
+     *         scope or GPU time isn't available
+     *
+     * @throws NullPointerException     name can't be null
+     * @throws IllegalArgumentException percentile must be in the [0;100]
+     *                                  interval
+     */
+    public long getGpuPercentile(@NotNull String name, double percentile) {
+        return computePercentile(name, percentile, true);
+    }
+
+    /**
+     * Computes the given percentile of the specified scope's time per frame
+     * with the nearest-rank method.
+     *
+     * @param name       the scope's name
+     * @param percentile percentile
+     * @param gpu        true if it should use the GPU time, false if the CPU
+     *                   time
+     *
+     * @return the percentile (in nanoseconds), or -1 if there is no such a
+     *         scope
+     */
+    private long computePercentile(@NotNull String name, double percentile, boolean gpu) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in the [0;100] interval");
+        }
+        long[] durations = new long[numberOfFrames];
+        int count = 0;
+        for (int i = 0; i < numberOfFrames; i++) {
+            ProfiledFrame frame = getFrame(i);
+            if (gpu && !frame.isGpuTimeAvailable()) {
+                continue;
+            }
+            long sum = -1;
+            for (int j = 0; j < frame.numberOfScopes; j++) {
+                if (frame.names[j].equals(name)) {
+                    sum = java.lang.Math.max(sum, 0) + (gpu ? frame.getGpuDuration(j) : frame.getCpuDuration(j));
+                }
+            }
+            if (sum != -1) {
+                durations[count++] = sum;
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(durations, 0, count);
+        int rank = (int) java.lang.Math.ceil(percentile / 100 * count);
+        return durations[java.lang.Math.max(rank - 1, 0)];
+    }
+
+    //
+    //export--------------------------------------------------------------------
+    //
+    /**
+     * Writes the 50th, 90th and 99th percentile and the maximum of each scope's
+     * CPU and GPU time per frame in CSV format (in miliseconds). It waits for
+     * the GPU timestamps which aren't available yet.
+     *
+     * @param writer writer
+     *
+     * @throws NullPointerException writer can't be null
+     * @throws IOException          the data can't be written
+     */
+    public void writePercentiles(@NotNull Writer writer) throws IOException {
+        if (writer == null) {
+            throw new NullPointerException();
+        }
+        if (gpuTimer != null && currentFrame == null) {
+            resolveGpuTimestamps(true);
+        }
+        writer.write("scope,cpu p50,cpu p90,cpu p99,cpu max,gpu p50,gpu p90,gpu p99,gpu max\n");
+        for (String name : getScopeNames()) {
+            writer.write(escapeCsv(name));
+            for (int i = 0; i < 2; i++) {
+                boolean gpu = i == 1;
+                writer.write(',' + toMiliseconds(computePercentile(name, 50, gpu)));
+                writer.write(',' + toMiliseconds(computePercentile(name, 90, gpu)));
+                writer.write(',' + toMiliseconds(computePercentile(name, 99, gpu)));
+                writer.write(',' + toMiliseconds(computePercentile(name, 100, gpu)));
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Converts the given duration to miliseconds.
+     *
+     * @param nanoseconds duration (in nanoseconds)
+     *
+     * @return the duration in miliseconds, or an empty string if the duration
+     *         is negative
+     */
+    @NotNull
+    private static String toMiliseconds(long nanoseconds) {
+        return nanoseconds < 0 ? "" : String.format(Locale.ROOT, "%.3f", nanoseconds / 1000000.0);
+    }
+
+    /**
+     * Escapes the given value for a CSV file.
+     *
+     * @param value value
+     *
+     * @return the escaped value
+     */
+    @NotNull
+    private static String escapeCsv(@NotNull String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * Writes the recorded frames in Chrome's trace event format. The CPU
+     * scopes are on the first thread, the GPU scopes are on the second thread
+     * (aligned to the frame's CPU start) and the counters are counter events
+     * at the frames' start. It waits for the GPU timestamps
+     * which aren't available yet.
+     *
+     * @param writer writer
+     *
+     * @throws NullPointerException writer can't be null
+     * @throws IOException          the data can't be written
+     */
+    public void writeChromeTrace(@NotNull Writer writer) throws IOException {
+        if (writer == null) {
+            throw new NullPointerException();
+        }
+        if (gpuTimer != null && currentFrame == null) {
+            resolveGpuTimestamps(true);
+        }
+        long origin = numberOfFrames == 0 ? 0 : getFrame(0).cpuStarts[0];
+        writer.write("{\"traceEvents\":[\n");
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,\"args\":{\"name\":\"CPU\"}},\n");
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":2,\"args\":{\"name\":\"GPU\"}}");
+        for (int i = 0; i < numberOfFrames; i++) {
+            ProfiledFrame frame = getFrame(i);
+            for (int j = 0; j < frame.numberOfScopes; j++) {
+                long start = frame.cpuStarts[j] - origin;
+                if (j == 0) {
+                    for (int k = 0; k < frame.numberOfCounters; k++) {
+                        writer.write(String.format(Locale.ROOT,
+                                ",\n{\"name\":\"%s\",\"ph\":\"C\",\"pid\":1,\"ts\":%.3f,\"args\":{\"value\":%d}}",
+                                escapeJson(frame.counterNames[k]), start / 1000.0, frame.counterValues[k]));
+                    }
+                }
+                writeTraceEvent(writer, frame.names[j], 1, start, frame.getCpuDuration(j), frame.frameIndex);
+                if (frame.isGpuTimeAvailable()) {
+                    long gpuStart = frame.cpuStarts[0] - origin + frame.getGpuStart(j);
+                    writeTraceEvent(writer, frame.names[j], 2, gpuStart, frame.getGpuDuration(j), frame.frameIndex);
+                }
+            }
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes a complete trace event.
+     *
+     * @param writer     writer
+     * @param name       the scope's name
+     * @param thread     the thread's id
+     * @param start      the scope's start time (in nanoseconds)
+     * @param duration   the scope's duration (in nanoseconds)
+     * @param frameIndex the frame's index
+     *
+     * @throws IOException the data can't be written
+     */
+    private static void writeTraceEvent(@NotNull Writer writer, @NotNull String name, int thread, long start, long duration, long frameIndex) throws IOException {
+        writer.write(String.format(Locale.ROOT,
+                ",\n{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f,\"args\":{\"frame\":%d}}",
+                escapeJson(name), thread, start / 1000.0, duration / 1000.0, frameIndex));
+    }
+
+    /**
+     * Escapes the given value for a JSON string.
+     *
+     * @param value value
+     *
+     * @return the escaped value
+     */
+    @NotNull
+    private static String escapeJson(@NotNull String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes all the recorded frames.
+     *
+     * @throws IllegalStateException there is a started frame
+     */
+    public void clear() {
+        if (currentFrame != null) {
+            throw new IllegalStateException("Can't clear during a frame");
+        }
+        for (ProfiledFrame frame : frames) {
+            discardGpuTimestamps(frame);
+            frame.numberOfScopes = 0;
+            frame.numberOfCounters = 0;
+        }
+        numberOfFrames = 0;
+        nextFrame = 0;
+    }
+
+    /**
+     * Releases the GpuTimer (if there is any) and drops the started frame.
+     */
+    public void release() {
+        currentFrame = null;
+        numberOfOpenScopes = 0;
+        setGpuTimer(null);
+    }
+
+    @Override
+    public String toString() {
+        return "FrameProfiler{" + "numberOfFrames=" + numberOfFrames
+                + ", frameCount=" + frameCount + ", gpuTimer=" + gpuTimer + '}';
+    }
+
+}
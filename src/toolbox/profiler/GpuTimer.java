@@ -0,0 +1,50 @@
+package toolbox.profiler;
+
+/**
+ * Records GPU timestamps for the FrameProfiler. The timestamps are resolved
+ * asynchronously, usually a few frames after they were issued.
+ *
+ * @see FrameProfiler
+ */
+public interface GpuTimer {
+
+    /**
+     * Issues a timestamp which will be recorded when the GPU finishes all the
+     * previously issued commands.
+     *
+     * @return the timestamp's handle
+     */
+    public int issueTimestamp();
+
+    /**
+     * Determines whether the specified timestamp's result is available.
+     *
+     * @param handle the timestamp's handle
+     *
+     * @return true if the timestamp's result is available, false otherwise
+     */
+    public boolean isAvailable(int handle);
+
+    /**
+     * Returns the specified timestamp's result. It waits for the GPU if the
+     * result isn't available yet.
+     *
+     * @param handle the timestamp's handle
+     *
+     * @return the timestamp (in nanoseconds)
+     */
+    public long getTimestamp(int handle);
+
+    /**
+     * Releases the specified timestamp, so it's handle can be reused.
+     *
+     * @param handle the timestamp's handle
+     */
+    public void releaseTimestamp(int handle);
+
+    /**
+     * Releases all the timestamps and the native resources.
+     */
+    public void release();
+
+}
@@ -0,0 +1,76 @@
+package toolbox.profiler;
+
+import java.util.*;
+import org.lwjgl.opengl.*;
+
+/**
+ * GpuTimer which uses OpenGL timestamp queries. The query objects are reused,
+ * so after the first few frames it doesn't create new query objects. You can
+ * use it only if there is an OpenGL context.
+ */
+public class OpenGlGpuTimer implements GpuTimer {
+
+    /**
+     * The query objects which can be reused.
+     */
+    private int[] freeQueries = new int[64];
+    /**
+     * The number of the reusable query objects.
+     */
+    private int numberOfFreeQueries;
+    /**
+     * The number of the created query objects.
+     */
+    private int numberOfQueries;
+
+    @Override
+    public int issueTimestamp() {
+        int query = numberOfFreeQueries > 0 ? freeQueries[--numberOfFreeQueries] : createQuery();
+        GL33.glQueryCounter(query, GL33.GL_TIMESTAMP);
+        return query;
+    }
+
+    /**
+     * Creates a new query object.
+     *
+     * @return the query object's id
+     */
+    private int createQuery() {
+        numberOfQueries++;
+        return GL15.glGenQueries();
+    }
+
+    @Override
+    public boolean isAvailable(int handle) {
+        return GL15.glGetQueryObjecti(handle, GL15.GL_QUERY_RESULT_AVAILABLE) == GL11.GL_TRUE;
+    }
+
+    @Override
+    public long getTimestamp(int handle) {
+        return GL33.glGetQueryObjecti64(handle, GL15.GL_QUERY_RESULT);
+    }
+
+    @Override
+    public void releaseTimestamp(int handle) {
+        if (numberOfFreeQueries == freeQueries.length) {
+            freeQueries = Arrays.copyOf(freeQueries, freeQueries.length * 2);
+        }
+        freeQueries[numberOfFreeQueries++] = handle;
+    }
+
+    @Override
+    public void release() {
+        for (int i = 0; i < numberOfFreeQueries; i++) {
+            GL15.glDeleteQueries(freeQueries[i]);
+        }
+        numberOfQueries -= numberOfFreeQueries;
+        numberOfFreeQueries = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "OpenGlGpuTimer{" + "numberOfQueries=" + numberOfQueries
+                + ", numberOfFreeQueries=" + numberOfFreeQueries + '}';
+    }
+
+}
@@ -0,0 +1,248 @@
+package toolbox.profiler;
+
+import java.io.*;
+import toolbox.annotations.*;
+
+/**
+ * The engine's frame profiler. The GameLoop and the rendering stages record
+ * their phases (resource update, Component update, each renderer, buffer swap
+ * etc.) with it, and you can add your own scopes by calling the begin and the
+ * end methods. It's disabled by default, and while it's disabled the scopes
+ * cost only a branch. Changing the enabled state takes effect from the next
+ * frame.
+ *
+ * @see FrameProfiler
+ */
+public class Profiler {
+
+    /**
+     * The default number of the frames kept in the ring buffer.
+     */
+    public static final int DEFAULT_NUMBER_OF_FRAMES = 300;
+    /**
+     * Caches the classes' simple names used as scope names.
+     */
+    private static final ClassValue<String> NAMES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName();
+        }
+    };
+    /**
+     * The profiler which records the frames.
+     */
+    private static FrameProfiler profiler = new FrameProfiler(DEFAULT_NUMBER_OF_FRAMES);
+    /**
+     * Determines whether the profiler should record the next frames.
+     */
+    private static boolean enabled;
+    /**
+     * Determines whether the profiler records the current frame.
+     */
+    private static boolean recording;
+    /**
+     * Determines whether the GPU scopes are recorded too.
+     */
+    private static boolean gpuTiming;
+
+    /**
+     * To can't create Profiler instance.
+     */
+    private Profiler() {
+    }
+
+    /**
+     * Starts a new frame if the profiler is enabled. The GameLoop calls it at
+     * the beginning of every frame.
+     */
+    public static void beginFrame() {
+        recording = enabled;
+        if (recording) {
+            if (gpuTiming != (profiler.getGpuTimer() != null)) {
+                profiler.setGpuTimer(gpuTiming ? new OpenGlGpuTimer() : null);
+            }
+            profiler.beginFrame();
+        }
+    }
+
+    /**
+     * Ends the current frame. The GameLoop calls it at the end of every frame.
+     */
+    public static void endFrame() {
+        if (recording) {
+            profiler.endFrame();
+            recording = false;
+        }
+    }
+
+    /**
+     * Opens a new scope nested in the currently open scope.
+     *
+     * @param name the scope's name
+     *
+     * @throws NullPointerException name can't be null
+     */
+    public static void begin(@NotNull String name) {
+        if (recording) {
+            profiler.begin(name);
+        }
+    }
+
+    /**
+     * Opens a new scope nested in the currently open scope. The scope's name
+     * is the given object's class' simple name, so you can easily profile the
+     * renderers.
+     *
+     * @param object object
+     *
+     * @throws NullPointerException object can't be null
+     */
+    public static void begin(@NotNull Object object) {
+        if (recording) {
+            profiler.begin(NAMES.get(object.getClass()));
+        }
+    }
+
+    /**
+     * Closes the currently open scope.
+     */
+    public static void end() {
+        if (recording) {
+            profiler.end();
+        }
+    }
+
+    /**
+     * Sets the current frame's specified counter to the given value.
+     *
+     * @param name  the counter's name
+     * @param value the counter's value
+     *
+     * @throws NullPointerException name can't be null
+     */
+    public static void setCounter(@NotNull String name, long value) {
+        if (recording) {
+            profiler.setCounter(name, value);
+        }
+    }
+
+    /**
+     * Determines whether the profiler is enabled.
+     *
+     * @return true if the profiler is enabled, false otherwise
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether or not the profiler is enabled. It takes effect from the
+     * next frame.
+     *
+     * @param enabled true if the profiler should be enabled, false otherwise
+     */
+    public static void setEnabled(boolean enabled) {
+        Profiler.enabled = enabled;
+    }
+
+    /**
+     * Determines whether the GPU scopes are recorded with OpenGL timestamp
+     * queries.
+     *
+     * @return true if the GPU scopes are recorded, false otherwise
+     */
+    public static boolean isGpuTiming() {
+        return gpuTiming;
+    }
+
+    /**
+     * Sets whether or not the GPU scopes are recorded with OpenGL timestamp
+     * queries. It takes effect from the next frame, and it needs an OpenGL
+     * context.
+     *
+     * @param gpuTiming true if the GPU scopes should be recorded, false
+     *                  otherwise
+     */
+    public static void setGpuTiming(boolean gpuTiming) {
+        Profiler.gpuTiming = gpuTiming;
+    }
+
+    /**
+     * Returns the profiler which records the frames. You can get the recorded
+     * frames and the percentiles from it.
+     *
+     * @return the profiler
+     */
+    @NotNull
+    public static FrameProfiler getFrameProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Sets the number of the frames kept in the ring buffer. The recorded
+     * frames are dropped.
+     *
+     * @param numberOfFrames number of frames
+     *
+     * @throws IllegalArgumentException number of frames have to be positive
+     * @throws IllegalStateException    can't change it during a frame
+     */
+    public static void setNumberOfFrames(int numberOfFrames) {
+        if (recording) {
+            throw new IllegalStateException("Can't change the number of frames during a frame");
+        }
+        FrameProfiler newProfiler = new FrameProfiler(numberOfFrames);
+        profiler.release();
+        profiler = newProfiler;
+    }
+
+    /**
+     * Writes the recorded frames in Chrome's trace event format to the given
+     * file.
+     *
+     * @param file file
+     *
+     * @throws NullPointerException file can't be null
+     * @throws IOException          the file can't be written
+     *
+     * @see FrameProfiler#writeChromeTrace(Writer)
+     */
+    public static void exportChromeTrace(@NotNull File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            profiler.writeChromeTrace(writer);
+        }
+    }
+
+    /**
+     * Writes the percentiles of the recorded scopes in CSV format to the given
+     * file.
+     *
+     * @param file file
+     *
+     * @throws NullPointerException file can't be null
+     * @throws IOException          the file can't be written
+     *
+     * @see FrameProfiler#writePercentiles(Writer)
+     */
+    public static void exportPercentiles(@NotNull File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException();
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            profiler.writePercentiles(writer);
+        }
+    }
+
+    /**
+     * Releases the profiler's GPU resources. The ResourceManager calls it when
+     * it releases the resources.
+     */
+    public static void release() {
+        recording = false;
+        profiler.release();
+    }
+
+}
@@ -90,6 +90,10 @@ public class Window {
      * The vSync level.
      */
     private static int vSync;
+    /**
+     * The client area's size used while there is no window.
+     */
+    private static final Vector2i headlessClientAreaSize = new Vector2i(1280, 720);
 
     /**
      * Mouse shape.
@@ -472,18 +476,25 @@ public class Window {
     }
 
     /**
-     * Returns the size of the window's client area.
+     * Returns the size of the window's client area. If the window isn't
+     * created (for example when the rendering runs headless), it returns the
+     * size set by the setClientAreaSize method (by default 1280x720).
      *
      * @return the size of the window's client area
      */
     @NotNull
     public static Vector2i getClientAreaSize() {
+        if (id == NULL) {
+            return new Vector2i(headlessClientAreaSize);
+        }
         glfwGetWindowSize(id, temp1, temp2);
         return new Vector2i(temp1[0], temp2[0]);
     }
 
     /**
-     * Sets the size of the window's client area to the given value.
+     * Sets the size of the window's client area to the given value. If the
+     * window isn't created, it only sets the size returned by the
+     * getClientAreaSize method.
      *
      * @param size client area's size
      *
@@ -493,6 +504,10 @@ public class Window {
         if (size.x <= 0 || size.y <= 0) {
             throw new IllegalArgumentException("Width and height must be positive");
         }
+        if (id == NULL) {
+            headlessClientAreaSize.set(size);
+            return;
+        }
         glfwSetWindowSize(id, size.x, size.y);
     }
 
@@ -0,0 +1,68 @@
+package components.renderables;
+
+import core.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import rendering.*;
+
+/**
+ * Checks the MeshComponent's level of detail selection. It doesn't need
+ * OpenGL context.
+ */
+public class MeshComponentLodTest {
+
+    private MeshComponent meshComponent;
+    private boolean levelOfDetail;
+
+    @Before
+    public void beforeEachTest() {
+        levelOfDetail = Settings.isLevelOfDetail();
+        Settings.setLevelOfDetail(true);
+        meshComponent = new MeshComponent(new TestMesh(4));
+        new GameObject().addComponent(meshComponent);
+    }
+
+    @After
+    public void afterEachTest() {
+        Settings.setLevelOfDetail(levelOfDetail);
+    }
+
+    @Test
+    public void testLodDependsOnScreenSize() {
+        float[] screenSizes = {2, 0.2f, 0.1f, 0.01f};
+        for (int i = 0; i < screenSizes.length; i++) {
+            assertEquals(i, meshComponent.computeLod(screenSizes[i], 0));
+        }
+        assertEquals(3, meshComponent.computeLod(0.1f, 5));
+        assertEquals(0, meshComponent.computeLod(Visibility.computeScreenSize(1, 0.5f, 1), 0));
+    }
+
+    @Test
+    public void testHysteresis() {
+        float threshold = meshComponent.getMesh().getLodScreenSize(1);
+        meshComponent.updateLod(threshold * 0.95f);
+        assertEquals(0, meshComponent.getLod());
+        meshComponent.updateLod(threshold * 0.85f);
+        assertEquals(1, meshComponent.getLod());
+        meshComponent.updateLod(threshold * 1.05f);
+        assertEquals(1, meshComponent.getLod());
+        meshComponent.updateLod(threshold * 1.15f);
+        assertEquals(0, meshComponent.getLod());
+        meshComponent.updateLod(0.0001f);
+        assertEquals(3, meshComponent.getLod());
+    }
+
+    @Test
+    public void testDisabledLevelOfDetail() {
+        meshComponent.updateLod(0.0001f);
+        Settings.setLevelOfDetail(false);
+        try {
+            assertEquals(0, meshComponent.getLod());
+            assertEquals(0, meshComponent.computeLod(0.0001f, 1));
+        } finally {
+            Settings.setLevelOfDetail(true);
+        }
+        assertEquals(3, meshComponent.getLod());
+    }
+
+}
@@ -0,0 +1,138 @@
+package core;
+
+import components.renderables.*;
+import java.util.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import rendering.geometry.*;
+import resources.meshes.*;
+
+/**
+ * Compares the BoundingVolumeHierarchy's frustum culling to the linear frustum
+ * culling and measures both of them. It doesn't need OpenGL context.
+ */
+public class BoundingVolumeHierarchyTest {
+
+    private static final int NUMBER_OF_MESH_COMPONENTS = 20000;
+    private static final int NUMBER_OF_ITERATIONS = 20;
+
+    private BoundingVolumeHierarchy bvh;
+    private List<MeshComponent> meshComponents;
+    private FrustumIntersection frustum;
+    private Random random;
+
+    @Before
+    public void beforeEachTest() {
+        random = new Random(42);
+        bvh = new BoundingVolumeHierarchy();
+        meshComponents = new ArrayList<>();
+        Mesh mesh = new TestMesh();
+        for (int i = 0; i < NUMBER_OF_MESH_COMPONENTS; i++) {
+            GameObject gameObject = new GameObject();
+            gameObject.getTransform().setRelativePosition(randomPosition());
+            gameObject.getTransform().setRelativeRotation(new Vector3f(0, random.nextFloat() * 360, 0));
+            MeshComponent meshComponent = new MeshComponent(mesh);
+            gameObject.addComponent(meshComponent);
+            bvh.addMeshComponent(meshComponent);
+            meshComponents.add(meshComponent);
+        }
+        Matrix4f projectionViewMatrix = new Matrix4f()
+                .setPerspective((float) java.lang.Math.toRadians(60), 16f / 9f, 0.1f, 300)
+                .lookAt(0, 10, 0, 100, 0, 100, 0, 1, 0);
+        frustum = new FrustumIntersection(projectionViewMatrix);
+    }
+
+    @After
+    public void afterEachTest() {
+        for (int i = meshComponents.size() - 1; i >= 0; i--) {
+            TestScene.removeGameObject(meshComponents.get(i).getGameObject());
+        }
+        meshComponents.clear();
+    }
+
+    @Test
+    public void testFrustumCullingMatchesLinearCulling() {
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, bvh.getNumberOfMeshComponents());
+        assertSameResult();
+    }
+
+    @Test
+    public void testFrustumCullingAfterMovingMeshComponents() {
+        for (int i = 0; i < NUMBER_OF_MESH_COMPONENTS / 2; i++) {
+            MeshComponent meshComponent = meshComponents.get(i);
+            meshComponent.getGameObject().getTransform().setRelativePosition(randomPosition());
+            bvh.invalidateMeshComponent(meshComponent);
+        }
+        for (int i = NUMBER_OF_MESH_COMPONENTS / 2; i < NUMBER_OF_MESH_COMPONENTS * 3 / 4; i++) {
+            assertTrue(bvh.removeMeshComponent(meshComponents.get(i)));
+        }
+        meshComponents.subList(NUMBER_OF_MESH_COMPONENTS / 2, NUMBER_OF_MESH_COMPONENTS * 3 / 4).clear();
+        assertEquals(meshComponents.size(), bvh.getNumberOfMeshComponents());
+        assertSameResult();
+    }
+
+    @Test
+    public void testHierarchyIsBalanced() {
+        int minimumHeight = 32 - Integer.numberOfLeadingZeros(NUMBER_OF_MESH_COMPONENTS - 1);
+        assertTrue(bvh.getHeight() <= 2 * minimumHeight);
+    }
+
+    @Test
+    public void testBenchmark() {
+        MeshComponentGroups result = new MeshComponentGroups();
+        List<MeshComponent> linearResult = new ArrayList<>();
+        //warmup
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            linearFrustumCulling(linearResult);
+            result.clear();
+            bvh.getMeshComponentsInsideFrustum(frustum, result);
+        }
+
+        long linearStart = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            linearFrustumCulling(linearResult);
+        }
+        long linearTime = (System.nanoTime() - linearStart) / NUMBER_OF_ITERATIONS;
+
+        long bvhStart = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            result.clear();
+            bvh.getMeshComponentsInsideFrustum(frustum, result);
+        }
+        long bvhTime = (System.nanoTime() - bvhStart) / NUMBER_OF_ITERATIONS;
+
+        System.out.println("Frustum culling " + NUMBER_OF_MESH_COMPONENTS + " MeshComponents ("
+                + linearResult.size() + " visible): linear " + linearTime / 1000 + " us, BVH "
+                + bvhTime / 1000 + " us");
+        assertEquals(linearResult.size(), result.getNumberOfMeshComponents());
+    }
+
+    private void assertSameResult() {
+        List<MeshComponent> expected = new ArrayList<>();
+        linearFrustumCulling(expected);
+        MeshComponentGroups result = new MeshComponentGroups();
+        bvh.getMeshComponentsInsideFrustum(frustum, result);
+        List<MeshComponent> actual = result.getMeshComponents(BlinnPhongRenderer.class, meshComponents.get(0).getMesh());
+        assertEquals(expected.size(), actual.size());
+        Set<MeshComponent> actualSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        actualSet.addAll(actual);
+        for (MeshComponent meshComponent : expected) {
+            assertTrue(actualSet.contains(meshComponent));
+        }
+    }
+
+    private void linearFrustumCulling(List<MeshComponent> result) {
+        result.clear();
+        for (MeshComponent meshComponent : meshComponents) {
+            if (frustum.testAab(meshComponent.getRealAabbMin(), meshComponent.getRealAabbMax())) {
+                result.add(meshComponent);
+            }
+        }
+    }
+
+    private Vector3f randomPosition() {
+        return new Vector3f(random.nextFloat() * 1000 - 500, random.nextFloat() * 20, random.nextFloat() * 1000 - 500);
+    }
+
+}
@@ -0,0 +1,138 @@
+package core;
+
+import java.nio.*;
+import org.joml.*;
+import resources.*;
+import resources.meshes.*;
+
+/**
+ * A unit cube Mesh which doesn't need OpenGL context. It can have several
+ * levels of detail with the default screen sizes.
+ */
+public class TestMesh implements Mesh {
+
+    private final int numberOfLods;
+
+    public TestMesh() {
+        this(1);
+    }
+
+    public TestMesh(int numberOfLods) {
+        this.numberOfLods = numberOfLods;
+    }
+
+    @Override
+    public int getFaceCount() {
+        return 12;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return 36;
+    }
+
+    @Override
+    public float getFurthestVertexDistance() {
+        return (float) java.lang.Math.sqrt(3);
+    }
+
+    @Override
+    public Vector3f getAabbMin() {
+        return getAabbMin(new Vector3f());
+    }
+
+    @Override
+    public Vector3f getAabbMin(Vector3f dest) {
+        return dest.set(-1);
+    }
+
+    @Override
+    public Vector3f getAabbMax() {
+        return getAabbMax(new Vector3f());
+    }
+
+    @Override
+    public Vector3f getAabbMax(Vector3f dest) {
+        return dest.set(1);
+    }
+
+    @Override
+    public void beforeDraw() {
+    }
+
+    @Override
+    public void draw() {
+    }
+
+    @Override
+    public void drawInstanced(FloatBuffer instanceData, int instanceCount) {
+    }
+
+    @Override
+    public void afterDraw() {
+    }
+
+    @Override
+    public int getNumberOfLods() {
+        return numberOfLods;
+    }
+
+    @Override
+    public float getLodScreenSize(int lod) {
+        checkLod(lod);
+        return MeshSimplifier.getDefaultScreenSize(lod);
+    }
+
+    @Override
+    public int getFaceCount(int lod) {
+        checkLod(lod);
+        return getFaceCount();
+    }
+
+    @Override
+    public void draw(int lod) {
+        checkLod(lod);
+        draw();
+    }
+
+    @Override
+    public void drawInstanced(FloatBuffer instanceData, int instanceCount, int lod) {
+        checkLod(lod);
+        drawInstanced(instanceData, instanceCount);
+    }
+
+    private void checkLod(int lod) {
+        if (lod < 0 || lod >= numberOfLods) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public int getDataSizeInRam() {
+        return 0;
+    }
+
+    @Override
+    public int getDataSizeInAction() {
+        return 0;
+    }
+
+    @Override
+    public void update() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public boolean isUsable() {
+        return true;
+    }
+
+    @Override
+    public ResourceId getResourceId() {
+        return null;
+    }
+
+}
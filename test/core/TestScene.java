@@ -0,0 +1,27 @@
+package core;
+
+import resources.environmentProbes.*;
+
+/**
+ * Tears down the tests' scenes. The Scene doesn't have public methods to
+ * remove GameObjects, probes or the sky box, so the tests use the Scene's
+ * package private methods through this class.
+ */
+public class TestScene {
+
+    private TestScene() {
+    }
+
+    public static void removeGameObject(GameObject gameObject) {
+        Scene.removeGameObject(gameObject);
+    }
+
+    public static void removeProbe(DynamicEnvironmentProbe probe) {
+        Scene.removeProbe(probe);
+    }
+
+    public static void removeSkybox() {
+        Scene.removeSkybox();
+    }
+
+}
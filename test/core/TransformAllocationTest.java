@@ -0,0 +1,120 @@
+package core;
+
+import components.renderables.*;
+import java.lang.management.*;
+import java.util.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import resources.meshes.*;
+
+/**
+ * Checks that moving GameObjects, refreshing their Transforms and world space
+ * AABBs, frustum culling them and reading the culling's result doesn't produce
+ * any garbage. It doesn't need OpenGL context.
+ */
+public class TransformAllocationTest {
+
+    private static final int NUMBER_OF_GAMEOBJECTS = 10000;
+    private static final int NUMBER_OF_WARMUP_FRAMES = 200;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private BoundingVolumeHierarchy bvh;
+    private List<MeshComponent> meshComponents;
+    private FrustumIntersection frustum;
+    private MeshComponentGroups result;
+    private Mesh mesh;
+    private int numberOfReadMeshComponents;
+    private final Vector3f position = new Vector3f();
+    private final Vector3f rotation = new Vector3f();
+    private final Vector3f forward = new Vector3f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Matrix4f inverseModelMatrix = new Matrix4f();
+    private final Vector3f aabbMin = new Vector3f();
+    private final Vector3f aabbMax = new Vector3f();
+
+    @Before
+    public void beforeEachTest() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        bvh = new BoundingVolumeHierarchy();
+        meshComponents = new ArrayList<>();
+        result = new MeshComponentGroups();
+        mesh = new TestMesh();
+        for (int i = 0; i < NUMBER_OF_GAMEOBJECTS; i++) {
+            GameObject gameObject = new GameObject();
+            MeshComponent meshComponent = new MeshComponent(mesh);
+            gameObject.addComponent(meshComponent);
+            bvh.addMeshComponent(meshComponent);
+            meshComponents.add(meshComponent);
+        }
+        frustum = new FrustumIntersection(new Matrix4f()
+                .setPerspective((float) java.lang.Math.toRadians(60), 16f / 9f, 0.1f, 300)
+                .lookAt(0, 10, 0, 100, 0, 100, 0, 1, 0));
+    }
+
+    @After
+    public void afterEachTest() {
+        for (int i = meshComponents.size() - 1; i >= 0; i--) {
+            TestScene.removeGameObject(meshComponents.get(i).getGameObject());
+        }
+        meshComponents.clear();
+    }
+
+    @Test
+    public void testFrameDoesNotAllocate() {
+        for (int i = 0; i < NUMBER_OF_WARMUP_FRAMES; i++) {
+            frame(i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        frame(NUMBER_OF_WARMUP_FRAMES);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        //the second call may allocate it's result
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - after;
+        assertTrue(result.getNumberOfMeshComponents() > 0);
+        assertEquals(result.getNumberOfMeshComponents() * 2, numberOfReadMeshComponents);
+        assertEquals(0, after - before - overhead);
+    }
+
+    private void frame(int frame) {
+        for (int i = 0; i < meshComponents.size(); i++) {
+            MeshComponent meshComponent = meshComponents.get(i);
+            Transform transform = meshComponent.getGameObject().getTransform();
+            float angle = (frame + i) * 0.01f;
+            position.set(i % 100 * 5 - 250 + (float) java.lang.Math.sin(angle), i % 7, i / 100 * 5 - 250);
+            rotation.set(0, frame % 360, 0);
+            transform.setRelativePosition(position);
+            transform.setRelativeRotation(rotation);
+            transform.getModelMatrix(modelMatrix);
+            transform.getInverseModelMatrix(inverseModelMatrix);
+            transform.getForwardVector(forward);
+            meshComponent.getRealAabbMin(aabbMin);
+            meshComponent.getRealAabbMax(aabbMax);
+            bvh.invalidateMeshComponent(meshComponent);
+        }
+        result.clear();
+        bvh.getMeshComponentsInsideFrustum(frustum, result);
+        numberOfReadMeshComponents = 0;
+        for (int i = 0; i < result.getNumberOfGroups(); i++) {
+            List<MeshComponent> group = result.getGroup(i);
+            for (int j = 0; j < group.size(); j++) {
+                if (group.get(j).isActive()) {
+                    numberOfReadMeshComponents++;
+                }
+            }
+        }
+        List<MeshComponent> group = result.getMeshComponents(meshComponents.get(0).getMaterial().getRenderer(), mesh);
+        for (int i = 0; i < group.size(); i++) {
+            if (group.get(i).isActive()) {
+                numberOfReadMeshComponents++;
+            }
+        }
+        result.getMeshes(meshComponents.get(0).getMaterial().getRenderer());
+    }
+
+}
@@ -0,0 +1,133 @@
+package core;
+
+import components.renderables.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import toolbox.annotations.*;
+
+/**
+ * Compares the UpdateScheduler's parallel update to the serial update. It
+ * doesn't need OpenGL context.
+ */
+public class UpdateSchedulerTest {
+
+    private static final int NUMBER_OF_HIERARCHIES = 500;
+    private static final int NUMBER_OF_FRAMES = 20;
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void beforeEachTest() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void afterEachTest() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testParallelUpdateMatchesSerialUpdate() {
+        List<GameObject> serial = createScene();
+        List<GameObject> parallel = createScene();
+        UpdateScheduler scheduler = new UpdateScheduler(pool);
+        for (int i = 0; i < NUMBER_OF_FRAMES; i++) {
+            for (GameObject gameObject : serial) {
+                gameObject.update();
+            }
+            scheduler.update(parallel);
+        }
+        for (int i = 0; i < serial.size(); i++) {
+            Vector3f expected = serial.get(i).getTransform().getAbsolutePosition(new Vector3f());
+            Vector3f actual = parallel.get(i).getTransform().getAbsolutePosition(new Vector3f());
+            assertEquals(expected, actual);
+            assertEquals(serial.get(i).getComponent(MainThreadComponent.class) == null ? 0 : NUMBER_OF_FRAMES,
+                    parallel.get(i).getComponent(MainThreadComponent.class) == null ? 0 : parallel.get(i).getComponent(MainThreadComponent.class).updates);
+        }
+    }
+
+    @Test
+    public void testNotThreadSafeHierarchiesStayOnCallingThread() {
+        List<GameObject> scene = createScene();
+        new UpdateScheduler(pool).update(scene);
+        for (GameObject gameObject : scene) {
+            MainThreadComponent component = gameObject.getRoot().getComponent(MainThreadComponent.class);
+            if (component != null) {
+                assertSame(Thread.currentThread(), component.thread);
+                assertSame(Thread.currentThread(), gameObject.getComponent(MoverComponent.class).thread);
+            }
+        }
+    }
+
+    @Test
+    public void testThreadSafeAnnotation() {
+        assertTrue(UpdateScheduler.isThreadSafe(MoverComponent.class));
+        assertTrue(UpdateScheduler.isThreadSafe(MeshComponent.class));
+        assertFalse(UpdateScheduler.isThreadSafe(MainThreadComponent.class));
+    }
+
+    private List<GameObject> createScene() {
+        List<GameObject> gameObjects = new ArrayList<>();
+        TestMesh mesh = new TestMesh();
+        for (int i = 0; i < NUMBER_OF_HIERARCHIES; i++) {
+            GameObject root = createGameObject(i, gameObjects);
+            if (i % 10 == 0) {
+                root.addComponent(new MainThreadComponent());
+            }
+            GameObject child = createGameObject(i + 0.5f, gameObjects);
+            child.setParent(root);
+            child.addComponent(new MeshComponent(mesh));
+            createGameObject(i + 0.25f, gameObjects).setParent(child);
+        }
+        return gameObjects;
+    }
+
+    private GameObject createGameObject(float seed, List<GameObject> gameObjects) {
+        GameObject gameObject = new GameObject();
+        gameObject.getTransform().setRelativePosition(new Vector3f(seed, -seed, seed * 2));
+        gameObject.addComponent(new MoverComponent(seed));
+        gameObjects.add(gameObject);
+        return gameObject;
+    }
+
+    @ThreadSafe
+    private static class MoverComponent extends Component {
+
+        private final float seed;
+        private final Vector3f position = new Vector3f();
+        private int frame;
+        private Thread thread;
+
+        public MoverComponent(float seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        protected void update() {
+            thread = Thread.currentThread();
+            Transform transform = getGameObject().getTransform();
+            transform.getAbsolutePosition(position);
+            frame++;
+            transform.setRelativePosition(new Vector3f(
+                    position.y * 0.5f + frame,
+                    (float) java.lang.Math.sin(position.x + seed),
+                    position.z * 0.25f - seed));
+        }
+    }
+
+    private static class MainThreadComponent extends Component {
+
+        private Thread thread;
+        private int updates;
+
+        @Override
+        protected void update() {
+            thread = Thread.currentThread();
+            updates++;
+        }
+    }
+
+}
@@ -0,0 +1,424 @@
+package rendering;
+
+import components.*;
+import components.camera.*;
+import components.light.*;
+import components.renderables.*;
+import core.*;
+import java.util.*;
+import materials.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import rendering.geometry.*;
+import rendering.postProcessing.*;
+import resources.environmentProbes.*;
+import resources.meshes.*;
+import resources.shaders.postProcessing.*;
+import toolbox.*;
+import toolbox.backend.*;
+import window.*;
+
+/**
+ * Runs the whole RenderingPipeline through a RecordingBackend, so it doesn't
+ * need OpenGL context. It checks the recorded command stream and measures the
+ * CPU cost of the rendering.
+ */
+public class HeadlessRenderingTest {
+
+    private static final int NUMBER_OF_BOXES = 2000;
+    private static final int NUMBER_OF_FRAMES = 50;
+
+    private static RecordingBackend backend;
+    private static final List<MeshComponent> BOXES = new ArrayList<>();
+    private static final List<GameObject> GAME_OBJECTS = new ArrayList<>();
+    private static DynamicEnvironmentProbe probe;
+    private static float environmentProbeUpdateBudget;
+
+    @BeforeClass
+    public static void beforeAllTests() {
+        backend = new RecordingBackend();
+        OpenGl.setBackend(backend);
+        Window.setClientAreaSize(new Vector2i(1280, 720));
+        RenderingPipeline.initialize();
+        OpenGl.initializeToDefaults();
+        //the invalid probes are rendered in the next frame, so the frames are deterministic
+        environmentProbeUpdateBudget = Settings.getEnvironmentProbeUpdateBudget();
+        Settings.setEnvironmentProbeUpdateBudget(Float.POSITIVE_INFINITY);
+        createScene();
+    }
+
+    @AfterClass
+    public static void afterAllTests() {
+        Settings.setEnvironmentProbeUpdateBudget(environmentProbeUpdateBudget);
+        for (GameObject gameObject : GAME_OBJECTS) {
+            TestScene.removeGameObject(gameObject);
+        }
+        GAME_OBJECTS.clear();
+        BOXES.clear();
+        TestScene.removeProbe(probe);
+        TestScene.removeSkybox();
+        probe.release();
+        RenderingPipeline.release();
+        OpenGl.setBackend(new LwjglBackend());
+    }
+
+    private static void createScene() {
+        Random random = new Random(42);
+        probe = new DynamicEnvironmentProbe();
+        Scene.setSkybox(probe);
+        GameObject probeObject = new GameObject("probe");
+        GAME_OBJECTS.add(probeObject);
+        probeObject.addComponent(new EnvironmentProbeComponent(probe));
+
+        GameObject light = new GameObject("directionalLight");
+        GAME_OBJECTS.add(light);
+        light.getTransform().setRelativeRotation(new Vector3f(-45, 10, 0));
+        light.addComponent(new DirectionalLightComponent());
+        Scene.setDirectionalLight(light.getComponent(DirectionalLightComponent.class));
+
+        GameObject camera = new GameObject("camera");
+        GAME_OBJECTS.add(camera);
+        camera.getTransform().setRelativePosition(new Vector3f(0, 10, 60));
+        camera.addComponent(new CameraComponent());
+        Scene.setCamera(camera.getComponent(Camera.class));
+
+        for (int i = 0; i < 4; i++) {
+            GameObject pointLight = new GameObject("pointLight" + i);
+            GAME_OBJECTS.add(pointLight);
+            pointLight.getTransform().setRelativePosition(new Vector3f(i * 10 - 15, 2, 0));
+            pointLight.addComponent(new PointLightComponent());
+        }
+
+        Material[] materials = new Material[8];
+        for (int i = 0; i < materials.length; i++) {
+            materials[i] = new Material(BlinnPhongRenderer.class);
+            materials[i].setSlot(Material.DIFFUSE, new MaterialSlot(new Vector4f(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1)));
+            materials[i].setSlot(Material.SPECULAR, new MaterialSlot(new Vector4f(0.5f)));
+        }
+        for (int i = 0; i < NUMBER_OF_BOXES; i++) {
+            GameObject box = new GameObject("box" + i);
+            GAME_OBJECTS.add(box);
+            box.getTransform().setRelativePosition(new Vector3f(random.nextFloat() * 200 - 100, random.nextFloat() * 20 - 10, random.nextFloat() * 200 - 140));
+            box.getTransform().setRelativeRotation(new Vector3f(0, random.nextFloat() * 360, 0));
+            MeshComponent meshComponent = new MeshComponent(CubeMesh.getInstance(), materials[random.nextInt(materials.length)]);
+            box.addComponent(meshComponent);
+            BOXES.add(meshComponent);
+        }
+    }
+
+    private static void renderFrame() {
+        RenderingPipeline.render();
+    }
+
+    @Test
+    public void testFrameIsRecorded() {
+        renderFrame();
+        backend.reset();
+        renderFrame();
+        assertTrue(backend.getNumberOfDrawCalls() > 0);
+        assertTrue(backend.getNumberOfVertices() > 0);
+        assertTrue(backend.getNumberOfCommands(RecordingBackend.CommandType.BIND) > 0);
+        assertTrue(backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD) > 0);
+        assertTrue(backend.getNumberOfCommands("useProgram") > 0);
+        assertEquals(0, backend.getNumberOfCommands("genBuffers"));
+        assertEquals(0, backend.getNumberOfCommands("genTextures"));
+        assertEquals(0, backend.getNumberOfCommands("createProgram"));
+    }
+
+    @Test
+    public void testFramesAreDeterministic() {
+        renderFrame();
+        backend.reset();
+        backend.setCapturing(true);
+        renderFrame();
+        List<String> firstFrame = new ArrayList<>(backend.getCapturedCommands());
+        long firstFrameBytes = backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD);
+        backend.reset();
+        renderFrame();
+        backend.setCapturing(false);
+        assertFalse(firstFrame.isEmpty());
+        assertEquals(firstFrame, backend.getCapturedCommands());
+        assertEquals(firstFrameBytes, backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD));
+        backend.reset();
+    }
+
+    @Test
+    public void testStaticShadowCastersAreCached() {
+        renderFrame();
+        backend.reset();
+        renderFrame();
+        int dynamicDrawCalls = backend.getNumberOfDrawCalls();
+        for (MeshComponent box : BOXES) {
+            box.setStaticShadowCaster(true);
+        }
+        renderFrame();
+        backend.reset();
+        renderFrame();
+        int staticDrawCalls = backend.getNumberOfDrawCalls();
+        //moving a static shadow caster renders the static layer again
+        BOXES.get(0).getGameObject().getTransform().setRelativePosition(new Vector3f(0, 1, 0));
+        backend.reset();
+        renderFrame();
+        int invalidatedDrawCalls = backend.getNumberOfDrawCalls();
+        //a dynamic shadow caster is composited on the static layer
+        BOXES.get(0).setStaticShadowCaster(false);
+        renderFrame();
+        backend.reset();
+        renderFrame();
+        int compositedDrawCalls = backend.getNumberOfDrawCalls();
+        for (MeshComponent box : BOXES) {
+            box.setStaticShadowCaster(false);
+        }
+        assertTrue(staticDrawCalls < dynamicDrawCalls);
+        assertTrue(staticDrawCalls < invalidatedDrawCalls);
+        assertTrue(staticDrawCalls < compositedDrawCalls);
+        assertTrue(compositedDrawCalls < dynamicDrawCalls);
+        System.out.println("Draw calls per frame with dynamic shadow casters: " + dynamicDrawCalls
+                + ", with cached static shadow casters: " + staticDrawCalls);
+    }
+
+    @Test
+    public void testParallelVisibilityIsSameAsSerial() {
+        renderFrame();
+        backend.setCapturing(true);
+        backend.reset();
+        Settings.setParallelVisibility(false);
+        renderFrame();
+        List<String> serialFrame = new ArrayList<>(backend.getCapturedCommands());
+        backend.reset();
+        Settings.setParallelVisibility(true);
+        renderFrame();
+        backend.setCapturing(false);
+        assertEquals(serialFrame, backend.getCapturedCommands());
+        backend.reset();
+    }
+
+    @Test
+    public void testLayeredEnvironmentProbeRendering() {
+        renderFrame();
+        backend.reset();
+        Scene.invalidateEnvironmentProbes();
+        renderFrame();
+        int faceByFaceDrawCalls = backend.getNumberOfDrawCalls();
+        Settings.setLayeredEnvironmentProbeRendering(true);
+        try {
+            Scene.invalidateEnvironmentProbes();
+            renderFrame();
+            assertTrue(backend.getNumberOfCommands("framebufferTexture") > 0);
+            backend.reset();
+            Scene.invalidateEnvironmentProbes();
+            renderFrame();
+            int layeredDrawCalls = backend.getNumberOfDrawCalls();
+            assertTrue(layeredDrawCalls < faceByFaceDrawCalls);
+            assertEquals(0, backend.getNumberOfCommands("framebufferTexture2D"));
+            System.out.println("Draw calls per frame with face by face probe rendering: " + faceByFaceDrawCalls
+                    + ", with layered probe rendering: " + layeredDrawCalls);
+        } finally {
+            Settings.setLayeredEnvironmentProbeRendering(false);
+            backend.reset();
+        }
+    }
+
+    @Test
+    public void testProbeUpdatesAreSpreadOverFrames() {
+        renderFrame();
+        Settings.setEnvironmentProbeUpdateBudget(0);
+        try {
+            Scene.invalidateEnvironmentProbes();
+            int renderedFaces = 0;
+            for (int i = 0; i < 6; i++) {
+                renderFrame();
+                int faces = EnvironmentProbeScheduler.getScheduledFaces(probe);
+                assertEquals(1, Integer.bitCount(faces));
+                assertEquals(0, renderedFaces & faces);
+                renderedFaces |= faces;
+            }
+            assertEquals(0x3F, renderedFaces);
+            //nothing changed, so the probe isn't rendered again
+            renderFrame();
+            assertEquals(0, EnvironmentProbeScheduler.getScheduledFaces(probe));
+        } finally {
+            Settings.setEnvironmentProbeUpdateBudget(Float.POSITIVE_INFINITY);
+        }
+    }
+
+    @Test
+    public void testOnlyTheChangedProbeFacesAreInvalidated() {
+        renderFrame();
+        renderFrame();
+        assertEquals(0, EnvironmentProbeScheduler.getScheduledFaces(probe));
+        GameObject box = new GameObject("movingBox");
+        box.getTransform().setRelativePosition(new Vector3f(0, 0, -50));
+        MeshComponent meshComponent = new MeshComponent(CubeMesh.getInstance(), new Material(BlinnPhongRenderer.class));
+        box.addComponent(meshComponent);
+        try {
+            renderFrame();
+            int faces = EnvironmentProbeScheduler.getScheduledFaces(probe);
+            assertEquals(1, Integer.bitCount(faces));
+            //moving inside the same face
+            box.getTransform().setRelativePosition(new Vector3f(0, 0, -60));
+            renderFrame();
+            assertEquals(faces, EnvironmentProbeScheduler.getScheduledFaces(probe));
+            //moving out of the probe's max distance
+            box.getTransform().setRelativePosition(new Vector3f(5000, 0, 0));
+            renderFrame();
+            assertEquals(faces, EnvironmentProbeScheduler.getScheduledFaces(probe));
+            box.getTransform().setRelativePosition(new Vector3f(6000, 0, 0));
+            renderFrame();
+            assertEquals(0, EnvironmentProbeScheduler.getScheduledFaces(probe));
+        } finally {
+            TestScene.removeGameObject(box);
+            renderFrame();
+            backend.reset();
+        }
+    }
+
+    @Test
+    public void testOccludedMeshComponentsAreCulled() {
+        GameObject wall = new GameObject("wall");
+        wall.getTransform().setRelativePosition(new Vector3f(0, 5, 40));
+        wall.getTransform().setRelativeScale(new Vector3f(100, 40, 1));
+        MeshComponent wallMesh = new MeshComponent(CubeMesh.getInstance(), new Material(BlinnPhongRenderer.class));
+        wallMesh.setOccluder(Occluder.createBox(new Vector3f(-1), new Vector3f(1)));
+        wall.addComponent(wallMesh);
+        try {
+            Settings.setOcclusionCulling(false);
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            int drawCalls = backend.getNumberOfDrawCalls();
+            int visible = Visibility.getCameraView().getNumberOfMeshComponents();
+            Settings.setOcclusionCulling(true);
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            int occlusionCulledDrawCalls = backend.getNumberOfDrawCalls();
+            int occlusionCulledVisible = Visibility.getCameraView().getNumberOfMeshComponents();
+            assertEquals(1, OcclusionCulling.getNumberOfOccluders());
+            assertEquals(visible - occlusionCulledVisible, OcclusionCulling.getNumberOfCulledMeshComponents());
+            assertTrue(occlusionCulledVisible < visible / 2);
+            assertTrue(occlusionCulledDrawCalls < drawCalls);
+            System.out.println("Visible MeshComponents behind a wall: " + visible + ", with occlusion culling: "
+                    + occlusionCulledVisible + " (draw calls " + drawCalls + " -> " + occlusionCulledDrawCalls + ")");
+        } finally {
+            Settings.setOcclusionCulling(true);
+            TestScene.removeGameObject(wall);
+            backend.reset();
+        }
+    }
+
+    @Test
+    public void testInactiveOccluderCullsNothing() {
+        GameObject wall = new GameObject("wall");
+        wall.getTransform().setRelativePosition(new Vector3f(0, 5, 40));
+        wall.getTransform().setRelativeScale(new Vector3f(100, 40, 1));
+        MeshComponent wallMesh = new MeshComponent(CubeMesh.getInstance(), new Material(BlinnPhongRenderer.class));
+        wallMesh.setOccluder(Occluder.createBox(new Vector3f(-1), new Vector3f(1)));
+        wall.addComponent(wallMesh);
+        try {
+            Settings.setOcclusionCulling(true);
+            wallMesh.setActive(false);
+            renderFrame();
+            assertEquals(0, OcclusionCulling.getNumberOfOccluders());
+            assertEquals(0, OcclusionCulling.getNumberOfCulledMeshComponents());
+            wallMesh.setActive(true);
+            wallMesh.setMeshActive(false);
+            renderFrame();
+            assertEquals(0, OcclusionCulling.getNumberOfOccluders());
+            assertEquals(0, OcclusionCulling.getNumberOfCulledMeshComponents());
+        } finally {
+            TestScene.removeGameObject(wall);
+            backend.reset();
+        }
+    }
+
+    @Test
+    public void testDeferredPipeline() {
+        renderFrame();
+        int forwardElements = BlinnPhongRenderer.getInstance().getNumberOfRenderedElements();
+        RenderingPipeline.useDeferredPipeline();
+        try {
+            assertEquals(1, RenderingPipeline.getRenderingStageCount());
+            assertSame(GBufferRenderer.getInstance(), RenderingPipeline.getRenderingStage(0).getRenderer(0));
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            assertNotNull(RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_DEPTH));
+            assertEquals(0, backend.getNumberOfCommands("genFramebuffers"));
+            //the G-buffer pass draws the same objects, the lighting pass draws one quad
+            assertEquals(forwardElements, GBufferRenderer.getInstance().getNumberOfRenderedElements());
+            assertEquals(1, DeferredLightingRenderer.getInstance().getNumberOfRenderedElements());
+            assertTrue(backend.getNumberOfDrawCalls() > 0);
+        } finally {
+            RenderingPipeline.useBlinnPhongPipeline();
+            backend.reset();
+        }
+        assertNull(RenderingPipeline.getTextureParameter(RenderingPipeline.TEXTURE_GBUFFER_DEPTH));
+        assertEquals(1, RenderingPipeline.getRenderingStageCount());
+        assertSame(BlinnPhongRenderer.getInstance(), RenderingPipeline.getRenderingStage(0).getRenderer(0));
+    }
+
+    @Test
+    public void testPerPixelPostProcessingEffectsAreFused() {
+        PostProcessingRenderer[] effects = {InvertRenderer.getInstance(), GrayscaleRenderer.getInstance(), ReinhardToneMappingRenderer.getInstance()};
+        try {
+            for (PostProcessingRenderer effect : effects) {
+                effect.setActive(true);
+            }
+            Settings.setPostProcessingPassFusion(false);
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            int separateDrawCalls = backend.getNumberOfDrawCalls();
+            Settings.setPostProcessingPassFusion(true);
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            int fusedDrawCalls = backend.getNumberOfDrawCalls();
+            //invert, grayscale, tone mapping and gamma correction in one pass
+            assertEquals(separateDrawCalls - 3, fusedDrawCalls);
+            assertEquals(0, backend.getNumberOfCommands("createProgram"));
+            assertEquals(Arrays.asList(FusedPostProcessingShader.Effect.INVERT, FusedPostProcessingShader.Effect.GRAYSCALE,
+                    FusedPostProcessingShader.Effect.REINHARD_TONE_MAPPING, FusedPostProcessingShader.Effect.GAMMA_CORRECTION),
+                    FusedPostProcessingRenderer.getInstance().getEffects());
+            //the FXAA splits the effects into two passes
+            int numberOfShaders = FusedPostProcessingShader.getNumberOfInstances();
+            FxaaRenderer.getInstance().setActive(true);
+            renderFrame();
+            backend.reset();
+            renderFrame();
+            assertEquals(fusedDrawCalls + 2, backend.getNumberOfDrawCalls());
+            assertEquals(numberOfShaders + 2, FusedPostProcessingShader.getNumberOfInstances());
+        } finally {
+            for (PostProcessingRenderer effect : effects) {
+                effect.setActive(false);
+            }
+            FxaaRenderer.getInstance().setActive(false);
+            Settings.setPostProcessingPassFusion(true);
+            backend.reset();
+        }
+    }
+
+    @Test
+    public void testBenchmark() {
+        //warmup
+        for (int i = 0; i < NUMBER_OF_FRAMES; i++) {
+            renderFrame();
+        }
+        backend.reset();
+        long time = 0;
+        for (int i = 0; i < NUMBER_OF_FRAMES; i++) {
+            long start = System.nanoTime();
+            renderFrame();
+            time += System.nanoTime() - start;
+        }
+        time /= NUMBER_OF_FRAMES;
+        System.out.println("Headless frame with " + NUMBER_OF_BOXES + " BOXES: " + time / 1000
+                + " us CPU, " + backend.getNumberOfDrawCalls() / NUMBER_OF_FRAMES + " draw calls, "
+                + backend.getNumberOfCommands() / NUMBER_OF_FRAMES + " commands, "
+                + backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD) / NUMBER_OF_FRAMES + " uploaded bytes per frame");
+        backend.reset();
+    }
+
+}
@@ -0,0 +1,168 @@
+package rendering;
+
+import components.light.*;
+import core.*;
+import java.util.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import toolbox.*;
+import toolbox.backend.*;
+
+/**
+ * Checks the light assignment of the clustered forward shading without OpenGL
+ * context and measures its CPU cost.
+ */
+public class LightClustersTest {
+
+    private static final int NUMBER_OF_LIGHTS = 2000;
+    private static final float NEAR = 0.1f;
+    private static final float FAR = 200f;
+
+    private static final List<GameObject> LIGHTS = new ArrayList<>();
+    /**
+     * The lights in the Scene before the test (created by other tests in the
+     * same JVM).
+     */
+    private static int numberOfOtherLights;
+    private static final Matrix4f VIEW_MATRIX = new Matrix4f().lookAt(0, 5, 20, 0, 0, 0, 0, 1, 0);
+    private static final Matrix4f PROJECTION_MATRIX = new Matrix4f().perspective((float) java.lang.Math.toRadians(60), 16f / 9f, NEAR, FAR);
+
+    @BeforeClass
+    public static void beforeAllTests() {
+        OpenGl.setBackend(new NullBackend());
+        numberOfOtherLights = countLights();
+        Random random = new Random(42);
+        for (int i = 0; i < NUMBER_OF_LIGHTS; i++) {
+            GameObject light = new GameObject("light" + i);
+            light.getTransform().setRelativePosition(new Vector3f(random.nextFloat() * 200 - 100, random.nextFloat() * 10, random.nextFloat() * 200 - 150));
+            light.getTransform().setRelativeRotation(new Vector3f(random.nextFloat() * 360, random.nextFloat() * 360, 0));
+            if (i % 2 == 0) {
+                PointLightComponent pointLight = new PointLightComponent();
+                pointLight.setLinear(0.7f);
+                pointLight.setQuadratic(1.8f);
+                light.addComponent(pointLight);
+            } else {
+                SpotLightComponent spotLight = new SpotLightComponent();
+                spotLight.setLinear(0.35f);
+                spotLight.setQuadratic(0.44f);
+                light.addComponent(spotLight);
+            }
+            LIGHTS.add(light);
+        }
+    }
+
+    @AfterClass
+    public static void afterAllTests() {
+        for (GameObject light : LIGHTS) {
+            TestScene.removeGameObject(light);
+        }
+        LIGHTS.clear();
+        LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        OpenGl.setBackend(new LwjglBackend());
+    }
+
+    private static int countLights() {
+        int numberOfLights = 0;
+        for (int i = 0; i <= DefaultLightComponent.getMaxLightIndex(); i++) {
+            if (DefaultLightComponent.getLight(i) != null) {
+                numberOfLights++;
+            }
+        }
+        return numberOfLights;
+    }
+
+    @Test
+    public void testLightsAreNotLimited() {
+        assertTrue(DefaultLightComponent.getMaxLightIndex() >= NUMBER_OF_LIGHTS - 1);
+        LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        assertTrue(LightClusters.getNumberOfLights() > 16);
+        assertTrue(LightClusters.getNumberOfLights() < NUMBER_OF_LIGHTS + numberOfOtherLights);
+    }
+
+    @Test
+    public void testClustersContainTheAffectingLights() {
+        LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        Random random = new Random(7);
+        Vector4f clipPosition = new Vector4f();
+        Vector3f viewPosition = new Vector3f();
+        Vector3f toFragment = new Vector3f();
+        Matrix4f inverseProjectionMatrix = new Matrix4f(PROJECTION_MATRIX).invert();
+        Set<Integer> clusterLights = new HashSet<>();
+        for (int sample = 0; sample < 2000; sample++) {
+            //random fragment in the view frustum
+            float depth = NEAR * (float) java.lang.Math.pow(FAR / NEAR, random.nextFloat());
+            float ndcX = random.nextFloat() * 2 - 1;
+            float ndcY = random.nextFloat() * 2 - 1;
+            inverseProjectionMatrix.transform(clipPosition.set(ndcX, ndcY, 0, 1));
+            viewPosition.set(clipPosition.x, clipPosition.y, clipPosition.z).div(clipPosition.w).mul(depth / -(clipPosition.z / clipPosition.w));
+            Vector3f worldPosition = new Matrix4f(VIEW_MATRIX).invert().transformPosition(new Vector3f(viewPosition));
+            int x = java.lang.Math.min((int) ((ndcX + 1) * 0.5f * LightClusters.GRID_WIDTH), LightClusters.GRID_WIDTH - 1);
+            int y = java.lang.Math.min((int) ((ndcY + 1) * 0.5f * LightClusters.GRID_HEIGHT), LightClusters.GRID_HEIGHT - 1);
+            int z = (int) java.lang.Math.floor(java.lang.Math.log(depth) * LightClusters.getDepthScale() + LightClusters.getDepthBias());
+            z = java.lang.Math.max(0, java.lang.Math.min(z, LightClusters.GRID_DEPTH - 1));
+            clusterLights.clear();
+            for (int i = 0; i < LightClusters.getNumberOfLights(x, y, z); i++) {
+                clusterLights.add(LightClusters.getLightIndex(x, y, z, i));
+            }
+            //brute force
+            for (int i = 0; i <= DefaultLightComponent.getMaxLightIndex(); i++) {
+                DefaultLightComponent light = DefaultLightComponent.getLight(i);
+                if (light == null) {
+                    continue;
+                }
+                Vector3f lightPosition = light.getGameObject().getTransform().getAbsolutePosition();
+                if (light instanceof PointLightComponent) {
+                    if (lightPosition.distance(worldPosition) < ((PointLightComponent) light).getRange()) {
+                        assertTrue(clusterLights.contains(i));
+                    }
+                } else {
+                    SpotLightComponent spotLight = (SpotLightComponent) light;
+                    worldPosition.sub(lightPosition, toFragment);
+                    float cosAngle = toFragment.normalize().dot(light.getGameObject().getTransform().getForwardVector());
+                    if (lightPosition.distance(worldPosition) < spotLight.getRange()
+                            && cosAngle > java.lang.Math.cos(java.lang.Math.toRadians(spotLight.getOuterCutoff()))) {
+                        assertTrue(clusterLights.contains(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOrthographicProjectionUsesOneCluster() {
+        LightClusters.update(VIEW_MATRIX, new Matrix4f().ortho(-10, 10, -10, 10, NEAR, FAR));
+        assertFalse(LightClusters.isClustered());
+        assertEquals(0, LightClusters.getDepthScale(), 0);
+        assertEquals(NUMBER_OF_LIGHTS + numberOfOtherLights, LightClusters.getNumberOfLights(0, 0, 0));
+        LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        assertTrue(LightClusters.isClustered());
+    }
+
+    @Test
+    public void testPerformance() {
+        for (int i = 0; i < 20; i++) {
+            LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        }
+        int numberOfFrames = 100;
+        long start = System.nanoTime();
+        for (int i = 0; i < numberOfFrames; i++) {
+            LightClusters.update(VIEW_MATRIX, PROJECTION_MATRIX);
+        }
+        float time = (System.nanoTime() - start) / 1_000_000f / numberOfFrames;
+        int fragmentLights = 0;
+        for (int z = 0; z < LightClusters.GRID_DEPTH; z++) {
+            for (int y = 0; y < LightClusters.GRID_HEIGHT; y++) {
+                for (int x = 0; x < LightClusters.GRID_WIDTH; x++) {
+                    fragmentLights = java.lang.Math.max(fragmentLights, LightClusters.getNumberOfLights(x, y, z));
+                }
+            }
+        }
+        System.out.println("Light clusters: " + LightClusters.getNumberOfLights() + " visible of "
+                + NUMBER_OF_LIGHTS + " lights, " + LightClusters.getNumberOfLightIndices()
+                + " light indices, at most " + fragmentLights + " lights per cluster, "
+                + time + " ms per frame");
+        assertTrue(fragmentLights < LightClusters.getNumberOfLights());
+    }
+
+}
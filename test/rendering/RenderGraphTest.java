@@ -0,0 +1,149 @@
+package rendering;
+
+import java.util.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import resources.*;
+import toolbox.*;
+import toolbox.backend.*;
+
+/**
+ * Checks the RenderGraph's culling, validation and transient FBO aliasing, and
+ * the FboPool's reuse and eviction without OpenGL context.
+ */
+public class RenderGraphTest {
+
+    private static final FboDescriptor DESCRIPTOR = new FboDescriptor(new Vector2i(64, 64), 1, true, false,
+            new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.COLOR, Fbo.FboAttachmentType.TEXTURE, 0),
+            new FboDescriptor.Attachment(Fbo.FboAttachmentSlot.DEPTH, Fbo.FboAttachmentType.RBO, 0));
+
+    private final List<String> executedPasses = new ArrayList<>();
+    private final Map<String, Fbo> usedFbos = new HashMap<>();
+
+    @BeforeClass
+    public static void beforeAllTests() {
+        OpenGl.setBackend(new NullBackend());
+    }
+
+    @AfterClass
+    public static void afterAllTests() {
+        OpenGl.setBackend(new LwjglBackend());
+    }
+
+    @Before
+    public void beforeEachTest() {
+        executedPasses.clear();
+        usedFbos.clear();
+    }
+
+    private RenderPass createPass(String name, boolean output, String[] reads, String[] writes) {
+        RenderPass pass = new RenderPass(name, output) {
+            @Override
+            public void render(RenderGraph graph) {
+                executedPasses.add(getName());
+                for (String resource : getWrites()) {
+                    if (graph.getTransientFbo(resource) != null) {
+                        usedFbos.put(resource, graph.getFbo(resource));
+                    }
+                }
+            }
+        };
+        for (String read : reads) {
+            pass.addRead(read);
+        }
+        for (String write : writes) {
+            pass.addWrite(write);
+        }
+        return pass;
+    }
+
+    private RenderGraph createChain() {
+        RenderGraph graph = new RenderGraph();
+        graph.setTransientFbo("a", DESCRIPTOR);
+        graph.setTransientFbo("b", DESCRIPTOR);
+        graph.setTransientFbo("c", DESCRIPTOR);
+        graph.addPass(createPass("first", false, new String[]{}, new String[]{"a"}));
+        graph.addPass(createPass("second", false, new String[]{"a"}, new String[]{"b"}));
+        graph.addPass(createPass("third", false, new String[]{"b"}, new String[]{"c"}));
+        graph.addPass(createPass("output", true, new String[]{"c"}, new String[]{}));
+        return graph;
+    }
+
+    @Test
+    public void testUnusedPassesAreCulled() {
+        RenderGraph graph = new RenderGraph();
+        graph.setTransientFbo("scene", DESCRIPTOR);
+        graph.setTransientFbo("unused", DESCRIPTOR);
+        RenderPass unused = createPass("unused", false, new String[]{}, new String[]{"unused"});
+        graph.addPass(createPass("scene", false, new String[]{}, new String[]{"scene"}));
+        graph.addPass(unused);
+        graph.addPass(createPass("screen", true, new String[]{"scene"}, new String[]{}));
+        graph.execute();
+        assertEquals(Arrays.asList("scene", "screen"), executedPasses);
+        assertEquals(2, graph.getNumberOfExecutedPasses());
+        assertTrue(graph.isCulled(unused));
+        assertEquals(1, graph.getNumberOfUsedFbos());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadBeforeWrite() {
+        RenderGraph graph = new RenderGraph();
+        graph.setTransientFbo("scene", DESCRIPTOR);
+        graph.addPass(createPass("screen", true, new String[]{"scene"}, new String[]{}));
+        graph.addPass(createPass("scene", false, new String[]{}, new String[]{"scene"}));
+        graph.compile();
+    }
+
+    @Test
+    public void testTransientFbosAreAliased() {
+        RenderGraph graph = createChain();
+        graph.execute();
+        assertEquals(4, executedPasses.size());
+        assertEquals(2, graph.getNumberOfUsedFbos());
+        assertNotSame(usedFbos.get("a"), usedFbos.get("b"));
+        assertSame(usedFbos.get("a"), usedFbos.get("c"));
+    }
+
+    @Test
+    public void testFbosAreReusedBetweenFrames() {
+        RenderGraph graph = createChain();
+        int acquiredFbos = FboPool.getNumberOfAcquiredFbos();
+        graph.execute();
+        FboPool.update();
+        int createdFbos = FboPool.getNumberOfCreatedFbos();
+        for (int i = 0; i < 10; i++) {
+            graph.execute();
+            FboPool.update();
+        }
+        assertEquals(createdFbos, FboPool.getNumberOfCreatedFbos());
+        assertEquals(acquiredFbos, FboPool.getNumberOfAcquiredFbos());
+    }
+
+    @Test
+    public void testUnusedFbosAreEvicted() {
+        RenderGraph graph = createChain();
+        graph.execute();
+        Fbo fbo = usedFbos.get("a");
+        assertTrue(FboPool.getNumberOfFbos() > FboPool.getNumberOfAcquiredFbos());
+        for (int i = 0; i <= FboPool.UNUSED_FBO_LIFETIME; i++) {
+            FboPool.update();
+        }
+        assertEquals(FboPool.getNumberOfAcquiredFbos(), FboPool.getNumberOfFbos());
+        assertFalse(fbo.isUsable());
+    }
+
+    @Test
+    public void testNumberOfUnusedFbosIsLimited() {
+        List<Fbo> fbos = new ArrayList<>();
+        for (int i = 0; i < FboPool.MAX_UNUSED_FBOS + 4; i++) {
+            fbos.add(FboPool.acquire(DESCRIPTOR));
+        }
+        for (Fbo fbo : fbos) {
+            FboPool.release(fbo);
+        }
+        assertTrue(FboPool.getNumberOfFbos() - FboPool.getNumberOfAcquiredFbos() <= FboPool.MAX_UNUSED_FBOS);
+        assertFalse(fbos.get(0).isUsable());
+    }
+
+}
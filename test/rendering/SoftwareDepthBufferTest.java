@@ -0,0 +1,117 @@
+package rendering;
+
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import resources.meshes.*;
+
+/**
+ * Checks the software rasterization and the occlusion queries, and measures
+ * them in a dense city scene. It doesn't need OpenGL context.
+ */
+public class SoftwareDepthBufferTest {
+
+    private static final int CITY_SIZE = 20;
+    private static final int NUMBER_OF_OBJECTS = 20000;
+
+    private SoftwareDepthBuffer depthBuffer;
+    private final Matrix4f projectionViewMatrix = new Matrix4f();
+
+    @Before
+    public void beforeEachTest() {
+        depthBuffer = new SoftwareDepthBuffer(256, 128);
+        //the camera is in the origin, and looks to the -z direction
+        projectionViewMatrix.setPerspective((float) java.lang.Math.toRadians(75), 16 / 9f, 0.1f, 1000);
+        depthBuffer.setProjectionViewMatrix(projectionViewMatrix);
+        //a wall in 10 units distance
+        depthBuffer.rasterize(Occluder.createBox(new Vector3f(-5, -5, -11), new Vector3f(5, 5, -10)), new Matrix4f());
+    }
+
+    @Test
+    public void testRasterization() {
+        assertTrue(depthBuffer.getDepth(128, 64) < 1);
+        assertEquals(1, depthBuffer.getDepth(0, 0), 0);
+        assertEquals(1, depthBuffer.getDepth(255, 127), 0);
+    }
+
+    @Test
+    public void testBoxBehindOccluderIsHidden() {
+        assertFalse(depthBuffer.isVisible(new Vector3f(-1, -1, -30), new Vector3f(1, 1, -20)));
+    }
+
+    @Test
+    public void testBoxInFrontOfOccluderIsVisible() {
+        assertTrue(depthBuffer.isVisible(new Vector3f(-1, -1, -6), new Vector3f(1, 1, -5)));
+    }
+
+    @Test
+    public void testPartiallyHiddenBoxIsVisible() {
+        assertTrue(depthBuffer.isVisible(new Vector3f(3, -1, -30), new Vector3f(30, 1, -20)));
+    }
+
+    @Test
+    public void testBoxIntersectingNearPlaneIsVisible() {
+        assertTrue(depthBuffer.isVisible(new Vector3f(-1, -1, -1), new Vector3f(1, 1, 1)));
+    }
+
+    @Test
+    public void testOccluderIntersectingNearPlane() {
+        depthBuffer.clear();
+        depthBuffer.rasterize(Occluder.createBox(new Vector3f(-100, -100, -10), new Vector3f(100, 100, 10)), new Matrix4f());
+        assertFalse(depthBuffer.isVisible(new Vector3f(-1, -1, -30), new Vector3f(1, 1, -20)));
+    }
+
+    @Test
+    public void testEmptyDepthBuffer() {
+        depthBuffer.clear();
+        assertTrue(depthBuffer.isVisible(new Vector3f(-1, -1, -30), new Vector3f(1, 1, -20)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new SoftwareDepthBuffer(100, 64);
+    }
+
+    @Test
+    public void testCityBenchmark() {
+        //buildings on a grid around the camera, and small objects between them
+        java.util.Random random = new java.util.Random(42);
+        Occluder building = Occluder.createBox(new Vector3f(-1, 0, -1), new Vector3f(1, 1, 1));
+        Matrix4f[] buildings = new Matrix4f[CITY_SIZE * CITY_SIZE];
+        for (int i = 0; i < CITY_SIZE; i++) {
+            for (int j = 0; j < CITY_SIZE; j++) {
+                buildings[i * CITY_SIZE + j] = new Matrix4f()
+                        .translate((i - CITY_SIZE / 2) * 30 + 15, -2, -j * 30 - 20)
+                        .scale(10, 20 + random.nextFloat() * 40, 10);
+            }
+        }
+        Vector3f[] objects = new Vector3f[NUMBER_OF_OBJECTS];
+        for (int i = 0; i < NUMBER_OF_OBJECTS; i++) {
+            objects[i] = new Vector3f(random.nextFloat() * CITY_SIZE * 30 - CITY_SIZE * 15, -2, -random.nextFloat() * CITY_SIZE * 30);
+        }
+        Matrix4f view = new Matrix4f().translate(0, -3, 0);
+        depthBuffer.setProjectionViewMatrix(new Matrix4f(projectionViewMatrix).mul(view));
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        int visible = 0;
+        long time = 0;
+        for (int frame = 0; frame < 10; frame++) {
+            long start = System.nanoTime();
+            depthBuffer.clear();
+            for (Matrix4f matrix : buildings) {
+                depthBuffer.rasterize(building, matrix);
+            }
+            visible = 0;
+            for (Vector3f object : objects) {
+                if (depthBuffer.isVisible(object.sub(0.5f, 0, 0.5f, min), object.add(0.5f, 1, 0.5f, max))) {
+                    visible++;
+                }
+            }
+            time = System.nanoTime() - start;
+        }
+        System.out.println("Occlusion culling " + NUMBER_OF_OBJECTS + " objects behind " + buildings.length
+                + " buildings: " + visible + " visible, " + time / 1000 + " us");
+        assertTrue(visible < NUMBER_OF_OBJECTS / 2);
+    }
+
+}
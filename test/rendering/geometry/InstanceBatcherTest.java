@@ -0,0 +1,131 @@
+package rendering.geometry;
+
+import components.renderables.*;
+import core.*;
+import java.nio.*;
+import java.util.*;
+import materials.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import resources.meshes.*;
+
+/**
+ * Checks the InstanceBatcher's grouping and packing. It doesn't need OpenGL
+ * context.
+ */
+public class InstanceBatcherTest {
+
+    private static final int NUMBER_OF_MESH_COMPONENTS = 1000;
+
+    private InstanceBatcher batcher;
+    private List<MeshComponent> meshComponents;
+    private Material[] materials;
+
+    @Before
+    public void beforeEachTest() {
+        batcher = new InstanceBatcher();
+        meshComponents = new ArrayList<>();
+        materials = new Material[]{new Material(BlinnPhongRenderer.class), new Material(BlinnPhongRenderer.class), new Material(BlinnPhongRenderer.class)};
+        Mesh mesh = new TestMesh();
+        for (int i = 0; i < NUMBER_OF_MESH_COMPONENTS; i++) {
+            GameObject gameObject = new GameObject();
+            gameObject.getTransform().setRelativePosition(new Vector3f(i, i % 10, -i));
+            gameObject.getTransform().setRelativeScale(new Vector3f(1 + i % 3));
+            MeshComponent meshComponent = new MeshComponent(mesh, materials[i % materials.length]);
+            meshComponent.setTwoSided(i % 2 == 0);
+            gameObject.addComponent(meshComponent);
+            meshComponents.add(meshComponent);
+        }
+    }
+
+    @Test
+    public void testGroupsByMaterialAndState() {
+        batcher.batch(meshComponents);
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, batcher.getNumberOfInstances());
+        assertEquals(materials.length * 2, batcher.getNumberOfBatches());
+        int numberOfInstances = 0;
+        for (int i = 0; i < batcher.getNumberOfBatches(); i++) {
+            InstanceBatcher.InstanceBatch batch = batcher.getBatch(i);
+            assertEquals(numberOfInstances, batch.getFirstInstance());
+            numberOfInstances += batch.getNumberOfInstances();
+        }
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, numberOfInstances);
+    }
+
+    @Test
+    public void testPacksModelMatrices() {
+        batcher.batch(meshComponents);
+        Map<InstanceBatcher.InstanceBatch, Integer> packed = new IdentityHashMap<>();
+        Matrix4f expected = new Matrix4f();
+        Matrix4f actual = new Matrix4f();
+        for (MeshComponent meshComponent : meshComponents) {
+            InstanceBatcher.InstanceBatch batch = findBatch(meshComponent);
+            int index = packed.getOrDefault(batch, 0);
+            packed.put(batch, index + 1);
+            FloatBuffer data = batcher.getInstanceData(batch);
+            assertEquals(batch.getNumberOfInstances() * InstanceBatcher.INSTANCE_SIZE, data.remaining());
+            int position = data.position() + index * InstanceBatcher.INSTANCE_SIZE;
+            Transform transform = meshComponent.getGameObject().getTransform();
+            assertTrue(transform.getModelMatrix(expected).equals(read(data, position, actual)));
+            assertTrue(transform.getInverseModelMatrix(expected).equals(read(data, position + 16, actual)));
+        }
+    }
+
+    @Test
+    public void testGroupsByLod() {
+        boolean levelOfDetail = Settings.isLevelOfDetail();
+        Settings.setLevelOfDetail(true);
+        try {
+            Mesh mesh = new TestMesh(3);
+            List<MeshComponent> lodMeshComponents = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                GameObject gameObject = new GameObject();
+                MeshComponent meshComponent = new MeshComponent(mesh, materials[0]);
+                gameObject.addComponent(meshComponent);
+                meshComponent.updateLod(i % 3 == 0 ? 1 : i % 3 == 1 ? 0.2f : 0.1f);
+                lodMeshComponents.add(meshComponent);
+            }
+            batcher.batch(lodMeshComponents);
+            assertEquals(3, batcher.getNumberOfBatches());
+            Set<Integer> lods = new HashSet<>();
+            for (MeshComponent meshComponent : lodMeshComponents) {
+                lods.add(findBatch(meshComponent).getLod());
+            }
+            assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), lods);
+        } finally {
+            Settings.setLevelOfDetail(levelOfDetail);
+        }
+    }
+
+    @Test
+    public void testSkipsInactiveMeshComponents() {
+        meshComponents.get(0).setActive(false);
+        meshComponents.get(1).setMeshActive(false);
+        batcher.batch(meshComponents);
+        assertEquals(NUMBER_OF_MESH_COMPONENTS - 2, batcher.getNumberOfInstances());
+        batcher.clear();
+        assertEquals(0, batcher.getNumberOfBatches());
+        assertEquals(0, batcher.getNumberOfInstances());
+    }
+
+    private Matrix4f read(FloatBuffer data, int position, Matrix4f dest) {
+        float[] values = new float[16];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.get(position + i);
+        }
+        return dest.set(values);
+    }
+
+    private InstanceBatcher.InstanceBatch findBatch(MeshComponent meshComponent) {
+        for (int i = 0; i < batcher.getNumberOfBatches(); i++) {
+            InstanceBatcher.InstanceBatch batch = batcher.getBatch(i);
+            if (batch.getMaterial() == meshComponent.getMaterial() && batch.isTwoSided() == meshComponent.isTwoSided()
+                    && batch.getLod() == meshComponent.getLod()) {
+                return batch;
+            }
+        }
+        throw new AssertionError();
+    }
+
+}
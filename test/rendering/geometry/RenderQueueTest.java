@@ -0,0 +1,198 @@
+package rendering.geometry;
+
+import components.renderables.*;
+import core.*;
+import java.util.*;
+import materials.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import resources.meshes.*;
+
+/**
+ * Checks the RenderQueue's ordering and compares its radix sort to the
+ * comparison based sorting. It doesn't need OpenGL context.
+ */
+public class RenderQueueTest {
+
+    private static final int NUMBER_OF_MESH_COMPONENTS = 20000;
+    private static final int NUMBER_OF_ITERATIONS = 20;
+
+    private RenderQueue queue;
+    private List<MeshComponent> meshComponents;
+    private Material[] materials;
+    private Mesh[] meshes;
+
+    @Before
+    public void beforeEachTest() {
+        Random random = new Random(42);
+        queue = new RenderQueue();
+        meshComponents = new ArrayList<>();
+        materials = new Material[40];
+        for (int i = 0; i < materials.length; i++) {
+            materials[i] = new Material(i % 4 == 0 ? SolidColorRenderer.class : BlinnPhongRenderer.class);
+        }
+        meshes = new Mesh[25];
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = new TestMesh();
+        }
+        for (int i = 0; i < NUMBER_OF_MESH_COMPONENTS; i++) {
+            GameObject gameObject = new GameObject();
+            gameObject.getTransform().setRelativePosition(new Vector3f(random.nextFloat() * 1000 - 500, random.nextFloat() * 20, random.nextFloat() * 1000 - 500));
+            MeshComponent meshComponent = new MeshComponent(meshes[random.nextInt(meshes.length)], materials[random.nextInt(materials.length)]);
+            meshComponent.setTwoSided(random.nextInt(10) == 0);
+            gameObject.addComponent(meshComponent);
+            meshComponents.add(meshComponent);
+        }
+    }
+
+    @Test
+    public void testKeysAreSorted() {
+        fillQueue();
+        queue.sort();
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, queue.size());
+        for (int i = 1; i < queue.size(); i++) {
+            assertTrue(Long.compareUnsigned(queue.getKey(i - 1), queue.getKey(i)) <= 0);
+        }
+        Set<MeshComponent> sorted = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < queue.size(); i++) {
+            sorted.add(queue.get(i));
+        }
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, sorted.size());
+    }
+
+    @Test
+    public void testStateChangesAreMinimal() {
+        fillQueue();
+        queue.sort();
+        Set<Material> finishedMaterials = Collections.newSetFromMap(new IdentityHashMap<>());
+        Material material = null;
+        for (int i = 0; i < queue.size(); i++) {
+            MeshComponent meshComponent = queue.get(i);
+            if (meshComponent.getMaterial() != material) {
+                assertTrue(finishedMaterials.add(material = meshComponent.getMaterial()));
+            }
+        }
+        assertEquals(materials.length, finishedMaterials.size());
+    }
+
+    @Test
+    public void testFrontToBackInsideState() {
+        fillQueue();
+        queue.sort();
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        float previousDepth = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            MeshComponent meshComponent = queue.get(i);
+            float depth = meshComponent.getRealAabbMin(min).add(meshComponent.getRealAabbMax(max)).mul(0.5f).length();
+            boolean sameState = i > 0 && queue.getKey(i - 1) >>> RenderQueue.DEPTH_BITS == queue.getKey(i) >>> RenderQueue.DEPTH_BITS;
+            if (sameState) {
+                assertTrue(depth >= previousDepth - 0.01f);
+            }
+            previousDepth = depth;
+        }
+    }
+
+    @Test
+    public void testOverflowingMaterialsKeepTheirKeys() {
+        int materialKeyShift = RenderQueue.MESH_BITS + RenderQueue.TWO_SIDED_BITS + RenderQueue.DEPTH_BITS;
+        int rendererShift = materialKeyShift + RenderQueue.MATERIAL_BITS + RenderQueue.TEXTURE_BITS;
+        Mesh mesh = meshes[0];
+        for (int i = 0; i < 1 << RenderQueue.MATERIAL_BITS; i++) {
+            queue.add(createMeshComponent(mesh, new Material(BlinnPhongRenderer.class)));
+        }
+        MeshComponent solidColor = createMeshComponent(mesh, new Material(SolidColorRenderer.class));
+        MeshComponent blinnPhong = createMeshComponent(mesh, new Material(BlinnPhongRenderer.class));
+        int first = queue.size();
+        queue.add(solidColor);
+        queue.add(blinnPhong);
+        queue.add(solidColor);
+        queue.add(blinnPhong);
+        assertEquals(queue.getKey(first) >>> materialKeyShift, queue.getKey(first + 2) >>> materialKeyShift);
+        assertEquals(queue.getKey(first + 1) >>> materialKeyShift, queue.getKey(first + 3) >>> materialKeyShift);
+        assertNotEquals(queue.getKey(first) >>> rendererShift, queue.getKey(first + 1) >>> rendererShift);
+        assertEquals(queue.getKey(0) >>> rendererShift, queue.getKey(first + 1) >>> rendererShift);
+    }
+
+    @Test
+    public void testDepthBitsAreMonotonic() {
+        float previous = 0;
+        for (float depth = 0.001f; depth < 100000; depth *= 1.1f) {
+            assertTrue(RenderQueue.getDepthBits(previous) <= RenderQueue.getDepthBits(depth));
+            previous = depth;
+        }
+    }
+
+    @Test
+    public void testBenchmark() {
+        long[] keys = new long[NUMBER_OF_MESH_COMPONENTS];
+        List<MeshComponent> list = new ArrayList<>(meshComponents);
+        Comparator<MeshComponent> comparator = Comparator
+                .comparingInt((MeshComponent mc) -> System.identityHashCode(mc.getMaterial()))
+                .thenComparingInt(mc -> System.identityHashCode(mc.getMesh()))
+                .thenComparing(MeshComponent::isTwoSided);
+        //warmup
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            fillQueue();
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = queue.getKey(j);
+            }
+            Arrays.sort(keys);
+            queue.sort();
+            Collections.shuffle(list, new Random(i));
+            list.sort(comparator);
+        }
+
+        long radixTime = 0;
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            fillQueue();
+            long start = System.nanoTime();
+            queue.sort();
+            radixTime += System.nanoTime() - start;
+        }
+        radixTime /= NUMBER_OF_ITERATIONS;
+
+        fillQueue();
+        long arraysTime = 0;
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = queue.getKey(j);
+            }
+            long start = System.nanoTime();
+            Arrays.sort(keys);
+            arraysTime += System.nanoTime() - start;
+        }
+        arraysTime /= NUMBER_OF_ITERATIONS;
+
+        long comparatorTime = 0;
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            Collections.shuffle(list, new Random(i));
+            long start = System.nanoTime();
+            list.sort(comparator);
+            comparatorTime += System.nanoTime() - start;
+        }
+        comparatorTime /= NUMBER_OF_ITERATIONS;
+
+        System.out.println("Sorting " + NUMBER_OF_MESH_COMPONENTS + " MeshComponents: radix sort "
+                + radixTime / 1000 + " us, Arrays.sort (keys only) " + arraysTime / 1000
+                + " us, List.sort (comparator) " + comparatorTime / 1000 + " us");
+        assertEquals(NUMBER_OF_MESH_COMPONENTS, queue.size());
+    }
+
+    private void fillQueue() {
+        queue.clear();
+        queue.setViewPosition(new Vector3f());
+        for (MeshComponent meshComponent : meshComponents) {
+            queue.add(meshComponent);
+        }
+    }
+
+    private MeshComponent createMeshComponent(Mesh mesh, Material material) {
+        GameObject gameObject = new GameObject();
+        MeshComponent meshComponent = new MeshComponent(mesh, material);
+        gameObject.addComponent(meshComponent);
+        return meshComponent;
+    }
+
+}
@@ -0,0 +1,283 @@
+package resources;
+
+import core.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.junit.rules.*;
+import resources.ResourceManager.EvictionPolicy;
+import resources.ResourceManager.ResourceState;
+import resources.meshes.*;
+import resources.textures.texture2D.*;
+import toolbox.*;
+import toolbox.backend.*;
+
+/**
+ * Checks the ResourceManager's budgeted eviction with fake resources, and with
+ * meshes and textures using the NullBackend. It doesn't need OpenGL context.
+ */
+public class ResourceEvictionTest {
+
+    private static final long NOW = 100000;
+    private static final long FRAME = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsedFirst() {
+        TestResource old = new TestResource(100, NOW - 3000, ResourceState.HDD);
+        TestResource middle = new TestResource(100, NOW - 2000, ResourceState.HDD);
+        TestResource recent = new TestResource(100, NOW - 1000, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(recent, old, middle));
+
+        assertEquals(200, ResourceManager.evict(resources, 250, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.RAM, old.getState());
+        assertEquals(ResourceState.ACTION, middle.getState());
+        assertEquals(ResourceState.ACTION, recent.getState());
+    }
+
+    @Test
+    public void testWeightedLruEvictsLargeIdleResourcesFirst() {
+        TestResource small = new TestResource(100, NOW - 3000, ResourceState.HDD);
+        TestResource large = new TestResource(1000, NOW - 2000, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(small, large));
+
+        assertEquals(100, ResourceManager.evict(resources, 500, false, EvictionPolicy.WEIGHTED_LRU, NOW, FRAME));
+        assertEquals(ResourceState.HDD, large.getState());
+        assertEquals(ResourceState.ACTION, small.getState());
+    }
+
+    @Test
+    public void testPinnedResourcesAreNotEvicted() {
+        TestResource pinnedToAction = new TestResource(100, NOW - 3000, ResourceState.ACTION);
+        TestResource pinnedToRam = new TestResource(100, NOW - 2000, ResourceState.RAM);
+        TestResource unpinned = new TestResource(100, NOW - 1000, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(pinnedToAction, pinnedToRam, unpinned));
+
+        assertEquals(100, ResourceManager.evict(resources, 0, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.ACTION, pinnedToAction.getState());
+        assertEquals(ResourceState.RAM, pinnedToRam.getState());
+        assertEquals(ResourceState.RAM, unpinned.getState());
+
+        assertEquals(200, ResourceManager.evict(resources, 0, false, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.ACTION, pinnedToAction.getState());
+        assertEquals(ResourceState.RAM, pinnedToRam.getState());
+        assertEquals(ResourceState.HDD, unpinned.getState());
+    }
+
+    @Test
+    public void testNothingIsEvictedBelowBudget() {
+        TestResource resource = new TestResource(100, NOW - 3000, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(resource));
+
+        assertEquals(100, ResourceManager.evict(resources, 100, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.ACTION, resource.getState());
+    }
+
+    @Test
+    public void testRecentlyUsedResourcesAreNotEvicted() {
+        TestResource old = new TestResource(100, NOW - 3000, FRAME - 10, ResourceState.HDD);
+        TestResource recent = new TestResource(100, NOW - 2000, FRAME, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(recent, old));
+
+        assertEquals(100, ResourceManager.evict(resources, 0, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.RAM, old.getState());
+        assertEquals(ResourceState.ACTION, recent.getState());
+    }
+
+    @Test
+    public void testEvictableResourcesAreNotSortedIfTheyCantReachTheBudget() {
+        TestResource pinned = new TestResource(1000, NOW - 3000, ResourceState.ACTION);
+        TestResource first = new TestResource(100, NOW - 2000, ResourceState.HDD);
+        TestResource second = new TestResource(100, NOW - 1000, ResourceState.HDD);
+        List<LoadableResource> resources = new ArrayList<>(Arrays.asList(pinned, second, first));
+
+        assertEquals(1000, ResourceManager.evict(resources, 500, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(ResourceState.ACTION, pinned.getState());
+        assertEquals(ResourceState.RAM, first.getState());
+        assertEquals(ResourceState.RAM, second.getState());
+        assertEquals(0, pinned.lastActiveQueries + first.lastActiveQueries + second.lastActiveQueries);
+
+        assertEquals(1000, ResourceManager.evict(resources, 500, true, EvictionPolicy.LRU, NOW, FRAME));
+        assertEquals(0, pinned.lastActiveQueries + first.lastActiveQueries + second.lastActiveQueries);
+    }
+
+    @Test
+    public void testOnlyUnpinnedMeshesAndTexturesAreEvicted() throws IOException {
+        File meshSource = folder.newFile("triangle.obj");
+        FloatBuffer positions = FloatBuffer.wrap(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0});
+        BinaryMesh.create(positions, null, null, null, IntBuffer.wrap(new int[]{0, 1, 2}), 1, meshSource.lastModified(), Settings.isVertexCompression())
+                .write(BinaryMesh.getBinaryMeshFile(meshSource, 0));
+        File textureSource = new File(folder.getRoot(), "diffuse1.png");
+        Files.copy(new File("res/textures/diffuse1.png").toPath(), textureSource.toPath());
+        long vramBudget = ResourceManager.getVramBudget();
+        long ramBudget = ResourceManager.getRamBudget();
+        OpenGl.setBackend(new NullBackend());
+        StaticMesh mesh = null;
+        StaticTexture2D texture = null;
+        try {
+            mesh = StaticMesh.loadModel(meshSource).get(0);
+            try {
+                texture = StaticTexture2D.loadTexture(textureSource, false);
+            } catch (UnsatisfiedLinkError | NoClassDefFoundError ex) {
+                Assume.assumeNoException(ex);
+            }
+            assertEquals(ResourceState.ACTION, mesh.getDataStorePolicy());
+            assertEquals(ResourceState.ACTION, texture.getDataStorePolicy());
+            ResourceManager.setVramBudget(0);
+            ResourceManager.setRamBudget(0);
+            //the resources are pinned by default
+            for (int i = 0; i <= ResourceManager.getProtectedFrames(); i++) {
+                ResourceManager.updateResources();
+            }
+            assertEquals(ResourceState.ACTION, mesh.getState());
+            assertEquals(ResourceState.ACTION, texture.getState());
+
+            mesh.setDataStorePolicy(ResourceState.HDD);
+            texture.setDataStorePolicy(ResourceState.HDD);
+            mesh.draw();
+            texture.bindToTextureUnit(0);
+            ResourceManager.updateResources();
+            assertEquals(ResourceState.ACTION, mesh.getState());
+            assertEquals(ResourceState.ACTION, texture.getState());
+
+            for (int i = 0; i < ResourceManager.getProtectedFrames(); i++) {
+                ResourceManager.updateResources();
+            }
+            assertEquals(ResourceState.HDD, mesh.getState());
+            assertEquals(ResourceState.HDD, texture.getState());
+        } finally {
+            if (mesh != null) {
+                mesh.release();
+            }
+            if (texture != null) {
+                texture.release();
+            }
+            ResourceManager.setVramBudget(vramBudget);
+            ResourceManager.setRamBudget(ramBudget);
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    @Test
+    public void testReloadedTextureInvalidatesTheEnvironmentProbes() throws Exception {
+        File textureSource = new File(folder.getRoot(), "diffuse1.png");
+        Files.copy(new File("res/textures/diffuse1.png").toPath(), textureSource.toPath());
+        OpenGl.setBackend(new NullBackend());
+        StaticTexture2D texture = null;
+        try {
+            try {
+                texture = StaticTexture2D.loadTexture(textureSource, false);
+            } catch (UnsatisfiedLinkError | NoClassDefFoundError ex) {
+                Assume.assumeNoException(ex);
+            }
+            texture.setDataStorePolicy(ResourceState.RAM);
+            texture.unloadFromAction();
+            int environmentProbeVersion = Scene.getEnvironmentProbeVersion();
+            texture.bindToTextureUnit(0);
+            long start = System.currentTimeMillis();
+            while (texture.getState() != ResourceState.ACTION) {
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                ResourceLoader.processUploads();
+                Thread.sleep(1);
+            }
+            assertNotEquals(environmentProbeVersion, Scene.getEnvironmentProbeVersion());
+        } finally {
+            if (texture != null) {
+                texture.release();
+            }
+            ResourceLoader.release();
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    private static class TestResource implements LoadableResource {
+
+        private final int dataSize;
+        private final long lastActive;
+        private final long lastActiveFrame;
+        private final ResourceState dataStorePolicy;
+        private ResourceState state = ResourceState.ACTION;
+        private int lastActiveQueries;
+
+        public TestResource(int dataSize, long lastActive, ResourceState dataStorePolicy) {
+            this(dataSize, lastActive, 0, dataStorePolicy);
+        }
+
+        public TestResource(int dataSize, long lastActive, long lastActiveFrame, ResourceState dataStorePolicy) {
+            this.dataSize = dataSize;
+            this.lastActive = lastActive;
+            this.lastActiveFrame = lastActiveFrame;
+            this.dataStorePolicy = dataStorePolicy;
+        }
+
+        @Override
+        public ResourceState getState() {
+            return state;
+        }
+
+        @Override
+        public ResourceState getDataStorePolicy() {
+            return dataStorePolicy;
+        }
+
+        @Override
+        public long getLastActive() {
+            lastActiveQueries++;
+            return lastActive;
+        }
+
+        @Override
+        public long getLastActiveFrame() {
+            return lastActiveFrame;
+        }
+
+        @Override
+        public void unloadFromAction() {
+            if (state == ResourceState.ACTION && dataStorePolicy != ResourceState.ACTION) {
+                state = ResourceState.RAM;
+            }
+        }
+
+        @Override
+        public void unloadFromRam() {
+            if (state != ResourceState.HDD && dataStorePolicy == ResourceState.HDD) {
+                state = ResourceState.HDD;
+            }
+        }
+
+        @Override
+        public int getDataSizeInRam() {
+            return state == ResourceState.HDD ? 0 : dataSize;
+        }
+
+        @Override
+        public int getDataSizeInAction() {
+            return state == ResourceState.ACTION ? dataSize : 0;
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public void release() {
+            state = ResourceState.HDD;
+        }
+
+        @Override
+        public boolean isUsable() {
+            return true;
+        }
+
+        @Override
+        public ResourceId getResourceId() {
+            return null;
+        }
+    }
+
+}
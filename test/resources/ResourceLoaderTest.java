@@ -0,0 +1,89 @@
+package resources;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Checks that the ResourceLoader decodes on the loader threads and uploads
+ * only in the processUploads method. It doesn't need OpenGL context.
+ */
+public class ResourceLoaderTest {
+
+    private static final long TIMEOUT = 5000;
+
+    @After
+    public void afterEachTest() {
+        ResourceLoader.release();
+        ResourceLoader.setUploadTimeBudget(2);
+    }
+
+    @Test
+    public void testDecodesInBackgroundAndUploadsOnCallingThread() throws Exception {
+        Thread thread = Thread.currentThread();
+        AtomicReference<Thread> decoderThread = new AtomicReference<>();
+        AtomicReference<Thread> uploaderThread = new AtomicReference<>();
+        CompletableFuture<String> future = ResourceLoader.load(() -> {
+            decoderThread.set(Thread.currentThread());
+            return "data";
+        }, data -> {
+            uploaderThread.set(Thread.currentThread());
+            return data + " uploaded";
+        });
+        waitForUploads(1);
+        assertFalse(future.isDone());
+        assertEquals(1, ResourceLoader.processUploads());
+        assertEquals("data uploaded", future.get());
+        assertNotSame(thread, decoderThread.get());
+        assertSame(thread, uploaderThread.get());
+    }
+
+    @Test
+    public void testDecoderExceptionCompletesExceptionally() throws Exception {
+        CompletableFuture<Object> future = ResourceLoader.load(() -> {
+            throw new IllegalStateException();
+        }, data -> data);
+        waitForUploads(1);
+        ResourceLoader.processUploads();
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testUploadTimeBudget() throws Exception {
+        ResourceLoader.setUploadTimeBudget(0);
+        int numberOfResources = 5;
+        for (int i = 0; i < numberOfResources; i++) {
+            ResourceLoader.load(() -> 0, data -> data);
+        }
+        waitForUploads(numberOfResources);
+        for (int i = 0; i < numberOfResources; i++) {
+            assertEquals(1, ResourceLoader.processUploads());
+        }
+        assertEquals(0, ResourceLoader.processUploads());
+    }
+
+    @Test
+    public void testReleaseCancelsWaitingUploads() throws Exception {
+        CompletableFuture<Integer> future = ResourceLoader.load(() -> 0, data -> data);
+        waitForUploads(1);
+        ResourceLoader.release();
+        assertTrue(future.isCancelled());
+        assertEquals(0, ResourceLoader.getNumberOfWaitingUploads());
+    }
+
+    private void waitForUploads(int numberOfUploads) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (ResourceLoader.getNumberOfWaitingUploads() < numberOfUploads) {
+            assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+            Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+package resources.meshes;
+
+import core.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.junit.rules.*;
+import resources.*;
+import toolbox.*;
+import toolbox.backend.*;
+
+/**
+ * Checks the binary mesh format and compares the model import to the binary
+ * mesh loading. It doesn't need OpenGL context, but the benchmark needs the
+ * Assimp natives, it's skipped without them.
+ */
+public class BinaryMeshTest {
+
+    private static final int NUMBER_OF_ITERATIONS = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrittenMeshCanBeMapped() throws IOException {
+        File source = folder.newFile("triangle.obj");
+        BinaryMesh mesh = createTriangle(source.lastModified(), false);
+        File file = BinaryMesh.getBinaryMeshFile(source, 0);
+        mesh.write(file);
+
+        BinaryMesh mapped = BinaryMesh.mapIfValid(source, 0, false);
+        assertNotNull(mapped);
+        assertFalse(mapped.isCompressed());
+        assertFalse(mapped.isShortIndexed());
+        assertEquals(3, mapped.getNumberOfVertices());
+        assertEquals(3, mapped.getNumberOfIndices());
+        assertEquals(1, mapped.getNumberOfLods());
+        assertEquals(3 * BinaryMesh.VERTEX_SIZE, mapped.getVertices().remaining());
+        assertEquals(3 * Integer.BYTES, mapped.getIndices().remaining());
+        assertEquals(1, mapped.getNumberOfMeshes());
+        assertEquals(mesh.getDataSize(), mapped.getDataSize());
+        assertEquals(new Vector3f(-1, 0, 0), mapped.getAabbMin(new Vector3f()));
+        assertEquals(new Vector3f(2, 2, 0), mapped.getAabbMax(new Vector3f()));
+        assertEquals(2 * (float) java.lang.Math.sqrt(2), mapped.getFurthestVertexDistance(), 0.0001f);
+        assertEquals(2, mapped.getPositions()[3], 0);
+        ByteBuffer vertices = mapped.getVertices();
+        assertEquals(2, vertices.getFloat(BinaryMesh.VERTEX_SIZE), 0);
+        assertEquals(0.5f, vertices.getFloat(BinaryMesh.VERTEX_SIZE + 12), 0);
+        assertEquals(1, vertices.getFloat(2 * BinaryMesh.VERTEX_SIZE + 32), 0);
+        assertEquals(0, vertices.getFloat(36), 0);
+        assertEquals(2, mapped.getIndex(0));
+        assertEquals(2, mapped.getIndices().getInt(0));
+        assertNull(BinaryMesh.mapIfValid(source, 0, true));
+    }
+
+    @Test
+    public void testCompressedMeshCanBeMapped() throws IOException {
+        File source = folder.newFile("triangle.obj");
+        createTriangle(source.lastModified(), true).write(BinaryMesh.getBinaryMeshFile(source, 0));
+
+        BinaryMesh mapped = BinaryMesh.mapIfValid(source, 0, true);
+        assertNotNull(mapped);
+        assertTrue(mapped.isCompressed());
+        assertTrue(mapped.isShortIndexed());
+        assertEquals(3 * BinaryMesh.COMPRESSED_VERTEX_SIZE, mapped.getVertices().remaining());
+        assertEquals(3 * Short.BYTES, mapped.getIndices().remaining());
+        assertEquals(2, mapped.getPositions()[3], 0);
+        ByteBuffer vertices = mapped.getVertices();
+        assertEquals(2, vertices.getFloat(BinaryMesh.COMPRESSED_VERTEX_SIZE), 0);
+        assertEquals(0.5f, VertexCompression.toFloat(vertices.getShort(BinaryMesh.COMPRESSED_VERTEX_SIZE + 12)), 0);
+        Vector4f normal = VertexCompression.unpackDirection(vertices.getInt(2 * BinaryMesh.COMPRESSED_VERTEX_SIZE + 16), new Vector4f());
+        assertEquals(new Vector4f(0, 0, 1, 1), normal);
+        assertEquals(2, mapped.getIndex(0));
+        assertEquals(0, mapped.getIndex(2));
+        assertArrayEquals(new int[]{2, 1, 0}, mapped.getLodIndices(0));
+        assertNull(BinaryMesh.mapIfValid(source, 0, false));
+    }
+
+    @Test
+    public void testVerticesCanBeConverted() {
+        BinaryMesh uncompressed = createTriangle(0, false);
+        BinaryMesh compressed = createTriangle(0, true);
+
+        ByteBuffer vertices = ByteBuffer.allocate(3 * BinaryMesh.COMPRESSED_VERTEX_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        uncompressed.putVertices(vertices, true);
+        vertices.flip();
+        assertEquals(compressed.getVertices(), vertices);
+        ByteBuffer indices = ByteBuffer.allocate(3 * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        uncompressed.putIndices(indices, true);
+        indices.flip();
+        assertEquals(compressed.getIndices(), indices);
+
+        vertices = ByteBuffer.allocate(3 * BinaryMesh.VERTEX_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        compressed.putVertices(vertices, false);
+        assertEquals(0.5f, vertices.getFloat(BinaryMesh.VERTEX_SIZE + 12), 0);
+        assertEquals(1, vertices.getFloat(2 * BinaryMesh.VERTEX_SIZE + 32), 0);
+        assertEquals(2, vertices.getFloat(BinaryMesh.VERTEX_SIZE), 0);
+        indices = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        compressed.putIndices(indices, false);
+        assertEquals(2, indices.getInt(0));
+    }
+
+    @Test
+    public void testLodsCanBeMapped() throws IOException {
+        File source = folder.newFile("quad.obj");
+        FloatBuffer positions = FloatBuffer.wrap(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0.5f, 0.5f, 0});
+        IntBuffer lod0 = IntBuffer.wrap(new int[]{0, 1, 4, 1, 2, 4, 2, 3, 4, 3, 0, 4});
+        IntBuffer lod1 = IntBuffer.wrap(new int[]{0, 1, 2, 0, 2, 3});
+        BinaryMesh mesh = BinaryMesh.create(positions, null, null, null, Arrays.asList(lod0, lod1), 1, source.lastModified(), false);
+        mesh.write(BinaryMesh.getBinaryMeshFile(source, 0));
+
+        BinaryMesh mapped = BinaryMesh.mapIfValid(source, 0, false);
+        assertNotNull(mapped);
+        assertEquals(2, mapped.getNumberOfLods());
+        assertEquals(18, mapped.getNumberOfIndices());
+        assertEquals(18 * Integer.BYTES, mapped.getIndices().remaining());
+        assertEquals(0, mapped.getLodFirstIndex(0));
+        assertEquals(12, mapped.getLodNumberOfIndices(0));
+        assertEquals(12, mapped.getLodFirstIndex(1));
+        assertEquals(6, mapped.getLodNumberOfIndices(1));
+        assertEquals(Float.POSITIVE_INFINITY, mapped.getLodScreenSize(0), 0);
+        assertEquals(MeshSimplifier.getDefaultScreenSize(1), mapped.getLodScreenSize(1), 0);
+        assertEquals(3, mapped.getIndex(17));
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, mapped.getLodIndices(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndex() {
+        FloatBuffer positions = FloatBuffer.wrap(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0});
+        BinaryMesh.create(positions, null, null, null, IntBuffer.wrap(new int[]{0, 1, 3}), 1, 0, true);
+    }
+
+    @Test
+    public void testOutdatedOrInvalidMeshIsIgnored() throws IOException {
+        File source = folder.newFile("triangle.obj");
+        assertNull(BinaryMesh.mapIfValid(source, 0, false));
+
+        createTriangle(source.lastModified() - 1000, false).write(BinaryMesh.getBinaryMeshFile(source, 0));
+        assertNull(BinaryMesh.mapIfValid(source, 0, false));
+
+        Files.write(BinaryMesh.getBinaryMeshFile(source, 0).toPath(), new byte[]{1, 2, 3, 4});
+        assertNull(BinaryMesh.mapIfValid(source, 0, false));
+    }
+
+    @Test
+    public void testEveryMeshOfTheModelIsLoaded() throws Exception {
+        File source = folder.newFile("twoMeshes.obj");
+        OpenGl.setBackend(new NullBackend());
+        try {
+            writeTwoMeshes(source);
+            List<StaticMesh> meshes = StaticMesh.loadModel(source);
+            assertEquals(2, meshes.size());
+            assertEquals(3, meshes.get(0).getVertexCount());
+            assertEquals(6, meshes.get(1).getVertexCount());
+            assertEquals(meshes, StaticMesh.loadModel(source));
+
+            File asyncSource = folder.newFile("twoMeshesAsync.obj");
+            writeTwoMeshes(asyncSource);
+            CompletableFuture<List<StaticMesh>> future = StaticMesh.loadModelAsync(asyncSource);
+            long start = System.currentTimeMillis();
+            while (!future.isDone()) {
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                ResourceLoader.processUploads();
+                Thread.sleep(1);
+            }
+            List<StaticMesh> asyncMeshes = future.get();
+            assertEquals(3, asyncMeshes.get(0).getVertexCount());
+            assertEquals(6, asyncMeshes.get(1).getVertexCount());
+            assertNotSame(asyncMeshes.get(0), asyncMeshes.get(1));
+            for (StaticMesh mesh : meshes) {
+                mesh.release();
+            }
+            for (StaticMesh mesh : asyncMeshes) {
+                mesh.release();
+            }
+        } finally {
+            ResourceLoader.release();
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    @Test
+    public void testReloadedMeshInvalidatesTheCaches() throws Exception {
+        File source = folder.newFile("reloadedMesh.obj");
+        OpenGl.setBackend(new NullBackend());
+        try {
+            writeTwoMeshes(source);
+            StaticMesh mesh = StaticMesh.loadModel(source).get(0);
+            mesh.setDataStorePolicy(ResourceManager.ResourceState.RAM);
+            mesh.unloadFromAction();
+            int staticShadowCasterVersion = Scene.getStaticShadowCasterVersion();
+            int environmentProbeVersion = Scene.getEnvironmentProbeVersion();
+            mesh.draw();
+            long start = System.currentTimeMillis();
+            while (mesh.getState() != ResourceManager.ResourceState.ACTION) {
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                ResourceLoader.processUploads();
+                Thread.sleep(1);
+            }
+            assertNotEquals(staticShadowCasterVersion, Scene.getStaticShadowCasterVersion());
+            assertNotEquals(environmentProbeVersion, Scene.getEnvironmentProbeVersion());
+            mesh.release();
+        } finally {
+            ResourceLoader.release();
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    @Test
+    public void testBenchmark() throws IOException {
+        File source = new File(folder.getRoot(), "sphere.obj");
+        Files.copy(new File("res/models/sphere.obj").toPath(), source.toPath());
+        boolean compressed = Settings.isVertexCompression();
+        try {
+            StaticMesh.importModel(source, compressed);
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError ex) {
+            Assume.assumeNoException(ex);
+        }
+        //warmup
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            StaticMesh.importModel(source, compressed);
+            StaticMesh.loadBinaryMeshes(source);
+        }
+
+        long importStart = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            StaticMesh.importModel(source, compressed);
+        }
+        long importTime = (System.nanoTime() - importStart) / NUMBER_OF_ITERATIONS;
+
+        long mapStart = System.nanoTime();
+        List<BinaryMesh> meshes = null;
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            meshes = StaticMesh.loadBinaryMeshes(source);
+        }
+        long mapTime = (System.nanoTime() - mapStart) / NUMBER_OF_ITERATIONS;
+
+        System.out.println("Loading " + source.getName() + ": Assimp import " + importTime / 1000
+                + " us, binary mesh " + mapTime / 1000 + " us");
+        assertEquals(1, meshes.size());
+    }
+
+    private void writeTwoMeshes(File source) throws IOException {
+        FloatBuffer positions = FloatBuffer.wrap(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0});
+        boolean compressed = Settings.isVertexCompression();
+        BinaryMesh.create(positions, null, null, null, IntBuffer.wrap(new int[]{0, 1, 2}), 2, source.lastModified(), compressed)
+                .write(BinaryMesh.getBinaryMeshFile(source, 0));
+        BinaryMesh.create(positions, null, null, null, IntBuffer.wrap(new int[]{0, 1, 2, 0, 2, 3}), 2, source.lastModified(), compressed)
+                .write(BinaryMesh.getBinaryMeshFile(source, 1));
+    }
+
+    private BinaryMesh createTriangle(long sourceLastModified, boolean compressed) {
+        FloatBuffer positions = FloatBuffer.wrap(new float[]{-1, 0, 0, 2, 2, 0, 0, 1, 0});
+        FloatBuffer uvs = FloatBuffer.wrap(new float[]{0, 0, 0, 0.5f, 1, 0, 1, 1, 0});
+        FloatBuffer normals = FloatBuffer.wrap(new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1});
+        IntBuffer indices = IntBuffer.wrap(new int[]{2, 1, 0});
+        return BinaryMesh.create(positions, uvs, normals, null, indices, 1, sourceLastModified, compressed);
+    }
+
+}
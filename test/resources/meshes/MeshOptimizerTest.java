@@ -0,0 +1,145 @@
+package resources.meshes;
+
+import java.nio.*;
+import java.util.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Checks the triangle and vertex reordering, and prints the vertex cache
+ * statistics. It doesn't need OpenGL context.
+ */
+public class MeshOptimizerTest {
+
+    private static final int RINGS = 64;
+    private static final int SEGMENTS = 128;
+
+    @Test
+    public void testVertexCacheOptimization() {
+        FloatBuffer positions = createSpherePositions();
+        IntBuffer indices = shuffleTriangles(createSphereIndices());
+        int numberOfVertices = positions.remaining() / 3;
+        List<IntBuffer> lods = MeshSimplifier.createLods(positions, indices);
+        List<IntBuffer> optimized = MeshOptimizer.optimizeTriangleOrder(positions, lods);
+        assertEquals(lods.size(), optimized.size());
+        for (int i = 0; i < lods.size(); i++) {
+            VertexCacheStatistics before = MeshOptimizer.computeStatistics(lods.get(i), numberOfVertices);
+            VertexCacheStatistics after = MeshOptimizer.computeStatistics(optimized.get(i), numberOfVertices);
+            System.out.println("LOD " + i + " with " + before.getNumberOfTriangles() + " triangles: ACMR "
+                    + before.getAcmr() + " -> " + after.getAcmr() + ", ATVR " + before.getAtvr() + " -> " + after.getAtvr());
+            assertEquals(getTriangles(lods.get(i)), getTriangles(optimized.get(i)));
+            assertTrue(after.getAcmr() < before.getAcmr());
+            assertTrue(after.getAtvr() >= 1);
+        }
+        VertexCacheStatistics statistics = MeshOptimizer.computeStatistics(optimized.get(0), numberOfVertices);
+        assertTrue(statistics.getAcmr() < 0.8f);
+        assertTrue(statistics.getAtvr() < 1.6f);
+    }
+
+    @Test
+    public void testVertexFetchOptimization() {
+        FloatBuffer positions = createSpherePositions();
+        IntBuffer indices = shuffleTriangles(createSphereIndices());
+        int numberOfVertices = positions.remaining() / 3;
+        List<IntBuffer> lods = MeshOptimizer.optimizeTriangleOrder(positions, MeshSimplifier.createLods(positions, indices));
+        IntBuffer original = IntBuffer.wrap(toArray(lods.get(0)));
+        int[] remap = MeshOptimizer.optimizeVertexFetch(lods, numberOfVertices);
+        FloatBuffer remapped = MeshOptimizer.remapVertices(positions, remap);
+        int nextVertex = 0;
+        IntBuffer lod = lods.get(0);
+        for (int i = 0; i < lod.remaining(); i++) {
+            int vertex = lod.get(i);
+            //the vertices are in the order of their first use
+            assertTrue(vertex <= nextVertex);
+            if (vertex == nextVertex) {
+                nextVertex++;
+            }
+            for (int j = 0; j < 3; j++) {
+                assertEquals(positions.get(original.get(i) * 3 + j), remapped.get(vertex * 3 + j), 0);
+            }
+        }
+        assertEquals(numberOfVertices, nextVertex);
+        assertNull(MeshOptimizer.remapVertices(null, remap));
+    }
+
+    @Test
+    public void testEmptyMesh() {
+        assertEquals(0, MeshOptimizer.optimizeVertexCache(new int[0], 0).length);
+        assertEquals(0, MeshOptimizer.computeStatistics(IntBuffer.allocate(0), 0).getAcmr(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndices() {
+        MeshOptimizer.optimizeVertexCache(new int[]{0, 1, 3}, 3);
+    }
+
+    private List<String> getTriangles(IntBuffer indices) {
+        List<String> triangles = new ArrayList<>();
+        for (int i = indices.position(); i < indices.limit(); i += 3) {
+            triangles.add(indices.get(i) + " " + indices.get(i + 1) + " " + indices.get(i + 2));
+        }
+        Collections.sort(triangles);
+        return triangles;
+    }
+
+    private int[] toArray(IntBuffer buffer) {
+        int[] array = new int[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    private IntBuffer shuffleTriangles(IntBuffer indices) {
+        int[] array = toArray(indices);
+        Random random = new Random(42);
+        for (int i = array.length / 3 - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            for (int k = 0; k < 3; k++) {
+                int temp = array[i * 3 + k];
+                array[i * 3 + k] = array[j * 3 + k];
+                array[j * 3 + k] = temp;
+            }
+        }
+        return IntBuffer.wrap(array);
+    }
+
+    private FloatBuffer createSpherePositions() {
+        FloatBuffer positions = FloatBuffer.allocate((2 + (RINGS - 1) * SEGMENTS) * 3);
+        positions.put(0).put(1).put(0);
+        for (int i = 1; i < RINGS; i++) {
+            double theta = java.lang.Math.PI * i / RINGS;
+            for (int j = 0; j < SEGMENTS; j++) {
+                double phi = 2 * java.lang.Math.PI * j / SEGMENTS;
+                positions.put((float) (java.lang.Math.sin(theta) * java.lang.Math.cos(phi)));
+                positions.put((float) java.lang.Math.cos(theta));
+                positions.put((float) (java.lang.Math.sin(theta) * java.lang.Math.sin(phi)));
+            }
+        }
+        positions.put(0).put(-1).put(0);
+        positions.flip();
+        return positions;
+    }
+
+    private IntBuffer createSphereIndices() {
+        int bottom = 1 + (RINGS - 1) * SEGMENTS;
+        IntBuffer indices = IntBuffer.allocate(SEGMENTS * (RINGS - 1) * 6);
+        for (int j = 0; j < SEGMENTS; j++) {
+            int next = (j + 1) % SEGMENTS;
+            indices.put(0).put(1 + next).put(1 + j);
+            indices.put(bottom).put(bottom - SEGMENTS + j).put(bottom - SEGMENTS + next);
+        }
+        for (int i = 0; i < RINGS - 2; i++) {
+            for (int j = 0; j < SEGMENTS; j++) {
+                int next = (j + 1) % SEGMENTS;
+                int a = 1 + i * SEGMENTS + j;
+                int b = 1 + i * SEGMENTS + next;
+                int c = 1 + (i + 1) * SEGMENTS + j;
+                int d = 1 + (i + 1) * SEGMENTS + next;
+                indices.put(a).put(b).put(c);
+                indices.put(b).put(d).put(c);
+            }
+        }
+        indices.flip();
+        return indices;
+    }
+
+}
@@ -0,0 +1,163 @@
+package resources.meshes;
+
+import java.nio.*;
+import java.util.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Checks the mesh simplification and the levels of detail. It doesn't need
+ * OpenGL context.
+ */
+public class MeshSimplifierTest {
+
+    private static final int RINGS = 32;
+    private static final int SEGMENTS = 64;
+    private static final int GRID_SIZE = 20;
+
+    @Test
+    public void testSphereLods() {
+        FloatBuffer positions = createSpherePositions();
+        IntBuffer indices = createSphereIndices();
+        List<IntBuffer> lods = MeshSimplifier.createLods(positions, indices);
+        assertTrue(lods.size() > 1);
+        assertTrue(lods.size() <= MeshSimplifier.MAX_NUMBER_OF_LODS);
+        assertEquals(indices.remaining(), lods.get(0).remaining());
+        for (int i = 1; i < lods.size(); i++) {
+            IntBuffer lod = lods.get(i);
+            assertTrue(lod.remaining() <= lods.get(i - 1).remaining() * 0.75f);
+            for (int j = 0; j < lod.remaining(); j += 3) {
+                Vector3f a = getPosition(positions, lod.get(j));
+                Vector3f b = getPosition(positions, lod.get(j + 1));
+                Vector3f c = getPosition(positions, lod.get(j + 2));
+                Vector3f normal = new Vector3f(b).sub(a).cross(new Vector3f(c).sub(a));
+                Vector3f center = new Vector3f(a).add(b).add(c).div(3);
+                //not degenerate, facing outwards and close to the surface
+                assertTrue(normal.length() > 0);
+                assertTrue(normal.dot(center) > 0);
+                assertTrue(center.length() > 0.8f);
+            }
+        }
+    }
+
+    @Test
+    public void testBordersAreKept() {
+        FloatBuffer positions = createGridPositions();
+        IntBuffer indices = createGridIndices();
+        IntBuffer simplified = MeshSimplifier.simplify(positions, indices, 0, 0.001f);
+        assertTrue(simplified.remaining() < indices.remaining() / 4);
+        float area = 0;
+        for (int i = 0; i < simplified.remaining(); i += 3) {
+            Vector3f a = getPosition(positions, simplified.get(i));
+            Vector3f b = getPosition(positions, simplified.get(i + 1));
+            Vector3f c = getPosition(positions, simplified.get(i + 2));
+            Vector3f normal = new Vector3f(b).sub(a).cross(new Vector3f(c).sub(a));
+            assertTrue(normal.y > 0);
+            area += normal.length() / 2;
+        }
+        assertEquals(GRID_SIZE * GRID_SIZE, area, 0.001f);
+        Set<Integer> vertices = new HashSet<>();
+        for (int i = 0; i < simplified.remaining(); i++) {
+            vertices.add(simplified.get(i));
+        }
+        for (int i = 0; i <= GRID_SIZE; i++) {
+            assertTrue(vertices.contains(i));
+            assertTrue(vertices.contains(GRID_SIZE * (GRID_SIZE + 1) + i));
+            assertTrue(vertices.contains(i * (GRID_SIZE + 1)));
+            assertTrue(vertices.contains(i * (GRID_SIZE + 1) + GRID_SIZE));
+        }
+    }
+
+    @Test
+    public void testErrorLimit() {
+        FloatBuffer positions = createSpherePositions();
+        IntBuffer indices = createSphereIndices();
+        assertEquals(indices.remaining(), MeshSimplifier.simplify(positions, indices, 0, 0).remaining());
+    }
+
+    @Test
+    public void testDefaultScreenSizes() {
+        assertEquals(Float.POSITIVE_INFINITY, MeshSimplifier.getDefaultScreenSize(0), 0);
+        for (int i = 1; i < MeshSimplifier.MAX_NUMBER_OF_LODS; i++) {
+            assertTrue(MeshSimplifier.getDefaultScreenSize(i) < MeshSimplifier.getDefaultScreenSize(i - 1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndices() {
+        MeshSimplifier.simplify(FloatBuffer.wrap(new float[9]), IntBuffer.wrap(new int[]{0, 1, 3}), 0, 1);
+    }
+
+    private Vector3f getPosition(FloatBuffer positions, int index) {
+        return new Vector3f(positions.get(index * 3), positions.get(index * 3 + 1), positions.get(index * 3 + 2));
+    }
+
+    private FloatBuffer createSpherePositions() {
+        FloatBuffer positions = FloatBuffer.allocate((2 + (RINGS - 1) * SEGMENTS) * 3);
+        positions.put(0).put(1).put(0);
+        for (int i = 1; i < RINGS; i++) {
+            double theta = java.lang.Math.PI * i / RINGS;
+            for (int j = 0; j < SEGMENTS; j++) {
+                double phi = 2 * java.lang.Math.PI * j / SEGMENTS;
+                positions.put((float) (java.lang.Math.sin(theta) * java.lang.Math.cos(phi)));
+                positions.put((float) java.lang.Math.cos(theta));
+                positions.put((float) (java.lang.Math.sin(theta) * java.lang.Math.sin(phi)));
+            }
+        }
+        positions.put(0).put(-1).put(0);
+        positions.flip();
+        return positions;
+    }
+
+    private IntBuffer createSphereIndices() {
+        int bottom = 1 + (RINGS - 1) * SEGMENTS;
+        IntBuffer indices = IntBuffer.allocate(SEGMENTS * (RINGS - 1) * 6);
+        for (int j = 0; j < SEGMENTS; j++) {
+            int next = (j + 1) % SEGMENTS;
+            indices.put(0).put(1 + next).put(1 + j);
+            indices.put(bottom).put(bottom - SEGMENTS + j).put(bottom - SEGMENTS + next);
+        }
+        for (int i = 0; i < RINGS - 2; i++) {
+            for (int j = 0; j < SEGMENTS; j++) {
+                int next = (j + 1) % SEGMENTS;
+                int a = 1 + i * SEGMENTS + j;
+                int b = 1 + i * SEGMENTS + next;
+                int c = 1 + (i + 1) * SEGMENTS + j;
+                int d = 1 + (i + 1) * SEGMENTS + next;
+                indices.put(a).put(b).put(c);
+                indices.put(b).put(d).put(c);
+            }
+        }
+        indices.flip();
+        return indices;
+    }
+
+    private FloatBuffer createGridPositions() {
+        FloatBuffer positions = FloatBuffer.allocate((GRID_SIZE + 1) * (GRID_SIZE + 1) * 3);
+        for (int i = 0; i <= GRID_SIZE; i++) {
+            for (int j = 0; j <= GRID_SIZE; j++) {
+                positions.put(j).put(0).put(i);
+            }
+        }
+        positions.flip();
+        return positions;
+    }
+
+    private IntBuffer createGridIndices() {
+        IntBuffer indices = IntBuffer.allocate(GRID_SIZE * GRID_SIZE * 6);
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                int a = i * (GRID_SIZE + 1) + j;
+                int b = a + 1;
+                int c = a + GRID_SIZE + 1;
+                int d = c + 1;
+                indices.put(a).put(c).put(b);
+                indices.put(b).put(c).put(d);
+            }
+        }
+        indices.flip();
+        return indices;
+    }
+
+}
@@ -0,0 +1,141 @@
+package resources.meshes;
+
+import core.*;
+import java.io.*;
+import java.nio.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.junit.rules.*;
+import resources.*;
+import toolbox.*;
+import toolbox.backend.*;
+
+/**
+ * Checks the compressed vertex formats, and compares the compressed and the
+ * uncompressed upload. It doesn't need OpenGL context.
+ */
+public class VertexCompressionTest {
+
+    private static final int GRID_SIZE = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHalfFloats() {
+        float[] values = {0, 1, -1, 0.5f, 2.25f, 1024, 65504, 0.00006103515625f};
+        for (float value : values) {
+            assertEquals(value, VertexCompression.toFloat(VertexCompression.toHalfFloat(value)), 0);
+        }
+        assertEquals(0.1f, VertexCompression.toFloat(VertexCompression.toHalfFloat(0.1f)), 0.0001f);
+        assertEquals(3.3f, VertexCompression.toFloat(VertexCompression.toHalfFloat(3.3f)), 0.002f);
+        assertEquals(5.96e-8f, VertexCompression.toFloat(VertexCompression.toHalfFloat(5.96e-8f)), 1e-9f);
+        assertEquals(Float.POSITIVE_INFINITY, VertexCompression.toFloat(VertexCompression.toHalfFloat(1e6f)), 0);
+        assertEquals(Float.NEGATIVE_INFINITY, VertexCompression.toFloat(VertexCompression.toHalfFloat(Float.NEGATIVE_INFINITY)), 0);
+        assertTrue(Float.isNaN(VertexCompression.toFloat(VertexCompression.toHalfFloat(Float.NaN))));
+    }
+
+    @Test
+    public void testPackedDirections() {
+        Vector4f result = new Vector4f();
+        Vector3f direction = new Vector3f();
+        for (int i = 0; i < 100; i++) {
+            direction.set((float) java.lang.Math.sin(i), (float) java.lang.Math.cos(i * 0.7f), (float) java.lang.Math.sin(i * 1.3f)).normalize();
+            VertexCompression.unpackDirection(VertexCompression.packDirection(direction.x, direction.y, direction.z, 1), result);
+            assertEquals(direction.x, result.x, 0.001f);
+            assertEquals(direction.y, result.y, 0.001f);
+            assertEquals(direction.z, result.z, 0.001f);
+            assertEquals(1, result.w, 0);
+        }
+        VertexCompression.unpackDirection(VertexCompression.packDirection(-1, 1, 0, -1), result);
+        assertEquals(new Vector4f(-1, 1, 0, -1), result);
+    }
+
+    @Test
+    public void testShortIndexable() {
+        assertTrue(VertexCompression.isShortIndexable(65536));
+        assertFalse(VertexCompression.isShortIndexable(65537));
+    }
+
+    @Test
+    public void testCompressedUploadIsSmaller() throws IOException {
+        RecordingBackend backend = new RecordingBackend();
+        OpenGl.setBackend(backend);
+        boolean vertexCompression = Settings.isVertexCompression();
+        try {
+            Settings.setVertexCompression(false);
+            StaticMesh uncompressed = load("uncompressed.obj");
+            long uncompressedBytes = backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD);
+            backend.reset();
+            Settings.setVertexCompression(true);
+            StaticMesh compressed = load("compressed.obj");
+            long compressedBytes = backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD);
+            System.out.println("Uploading a mesh with " + (GRID_SIZE + 1) * (GRID_SIZE + 1) + " vertices: "
+                    + uncompressedBytes + " bytes, compressed " + compressedBytes + " bytes");
+            assertTrue(compressedBytes * 2 <= uncompressedBytes);
+            assertEquals(uncompressedBytes, uncompressed.getDataSizeInAction());
+            assertEquals(compressedBytes, compressed.getDataSizeInAction());
+            uncompressed.release();
+            compressed.release();
+        } finally {
+            Settings.setVertexCompression(vertexCompression);
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    @Test
+    public void testVerticesAreConvertedAfterTheSettingChanged() throws IOException {
+        RecordingBackend backend = new RecordingBackend();
+        OpenGl.setBackend(backend);
+        boolean vertexCompression = Settings.isVertexCompression();
+        try {
+            Settings.setVertexCompression(true);
+            StaticMesh mesh = load("converted.obj");
+            long compressedBytes = mesh.getDataSizeInAction();
+            mesh.setDataStorePolicy(ResourceManager.ResourceState.RAM);
+            mesh.unloadFromAction();
+            assertEquals(ResourceManager.ResourceState.RAM, mesh.getState());
+
+            Settings.setVertexCompression(false);
+            backend.reset();
+            mesh.setDataStorePolicy(ResourceManager.ResourceState.ACTION);
+            long uncompressedBytes = backend.getNumberOfBytes(RecordingBackend.CommandType.UPLOAD);
+            assertEquals(ResourceManager.ResourceState.ACTION, mesh.getState());
+            assertEquals(uncompressedBytes, mesh.getDataSizeInAction());
+            assertEquals(compressedBytes * 2, uncompressedBytes);
+            mesh.release();
+        } finally {
+            Settings.setVertexCompression(vertexCompression);
+            OpenGl.setBackend(new LwjglBackend());
+        }
+    }
+
+    private StaticMesh load(String name) throws IOException {
+        File source = folder.newFile(name);
+        int size = (GRID_SIZE + 1) * (GRID_SIZE + 1) * 3;
+        FloatBuffer positions = FloatBuffer.allocate(size);
+        FloatBuffer normals = FloatBuffer.allocate(size);
+        for (int i = 0; i <= GRID_SIZE; i++) {
+            for (int j = 0; j <= GRID_SIZE; j++) {
+                positions.put(j).put(0).put(i);
+                normals.put(0).put(1).put(0);
+            }
+        }
+        positions.flip();
+        normals.flip();
+        IntBuffer indices = IntBuffer.allocate(GRID_SIZE * GRID_SIZE * 6);
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                int a = i * (GRID_SIZE + 1) + j;
+                indices.put(a).put(a + GRID_SIZE + 1).put(a + 1);
+                indices.put(a + 1).put(a + GRID_SIZE + 1).put(a + GRID_SIZE + 2);
+            }
+        }
+        indices.flip();
+        BinaryMesh.create(positions, positions, normals, normals, indices, 1, source.lastModified(), Settings.isVertexCompression())
+                .write(BinaryMesh.getBinaryMeshFile(source, 0));
+        return StaticMesh.loadModel(source).get(0);
+    }
+
+}
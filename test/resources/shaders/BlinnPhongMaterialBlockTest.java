@@ -0,0 +1,92 @@
+package resources.shaders;
+
+import java.nio.*;
+import materials.*;
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.lwjgl.*;
+import rendering.geometry.*;
+import toolbox.*;
+
+/**
+ * Checks the std140 layout of the BlinnPhongShader's Material block. It doesn't
+ * need OpenGL context.
+ */
+public class BlinnPhongMaterialBlockTest {
+
+    private ByteBuffer data;
+    private Std140Writer writer;
+
+    @Before
+    public void beforeEachTest() {
+        data = BufferUtils.createByteBuffer(BlinnPhongMaterialBlock.SIZE);
+        writer = new Std140Writer();
+        writer.begin(data, 0);
+    }
+
+    @Test
+    public void testStd140Alignment() {
+        writer.putFloat(1);
+        writer.putVector3(2, 3, 4);
+        assertEquals(28, writer.getOffset());
+        writer.putFloat(5);
+        writer.putVector2(6, 7);
+        assertEquals(40, writer.getOffset());
+        writer.putMatrix3(new Matrix3f());
+        assertEquals(96, writer.getOffset());
+        assertEquals(2, data.getFloat(16), 0);
+        assertEquals(5, data.getFloat(28), 0);
+        assertEquals(6, data.getFloat(32), 0);
+        assertEquals(1, data.getFloat(48), 0);
+        assertEquals(0, data.getFloat(60), 0);
+        assertEquals(1, data.getFloat(68), 0);
+    }
+
+    @Test
+    public void testEmptyMaterialUsesDefaults() {
+        BlinnPhongMaterialBlock.store(new Material(BlinnPhongRenderer.class), writer);
+        assertEquals(BlinnPhongMaterialBlock.SIZE, writer.getOffset());
+        assertEquals(0.5f, data.getFloat(0), 0);
+        assertEquals(0.5f, data.getFloat(28), 0);
+        assertEquals(1, data.getFloat(32), 0);
+        assertEquals(1, data.getFloat(48), 0);
+        assertEquals(0, data.getFloat(56), 0);
+        assertEquals(0.1f, data.getFloat(112), 0);
+        assertEquals(1f / 1.33f, data.getFloat(124), 0);
+        for (int offset = 128; offset < BlinnPhongMaterialBlock.SIZE; offset += 4) {
+            assertEquals(0, data.getInt(offset));
+        }
+    }
+
+    @Test
+    public void testMaterialValues() {
+        Material material = new Material(BlinnPhongRenderer.class);
+        material.setSlot(Material.DIFFUSE, new MaterialSlot(new Vector4f(0.1f, 0.2f, 0.3f, 1)));
+        MaterialSlot specular = new MaterialSlot(new Vector4f(0.4f, 0.5f, 0.6f, 0.7f));
+        specular.setTextureTile(new Vector2f(2, 3));
+        specular.setTextureOffset(new Vector2f(0.25f, 0.75f));
+        material.setSlot(Material.SPECULAR, specular);
+        material.setFloatParameter(Material.PARAM_POM_MAX_LAYERS_F, 64f);
+        BlinnPhongMaterialBlock.store(material, writer);
+        assertEquals(0.2f, data.getFloat(4), 0);
+        assertEquals(0.7f, data.getFloat(28), 0);
+        assertEquals(2, data.getFloat(64), 0);
+        assertEquals(3, data.getFloat(68), 0);
+        assertEquals(0.75f, data.getFloat(76), 0);
+        assertEquals(64, data.getFloat(120), 0);
+        assertEquals(0, data.getInt(132));
+    }
+
+    @Test
+    public void testInactiveSlotUsesDefaults() {
+        Material material = new Material(BlinnPhongRenderer.class);
+        MaterialSlot diffuse = new MaterialSlot(new Vector4f(1, 0, 0, 1));
+        diffuse.setActive(false);
+        material.setSlot(Material.DIFFUSE, diffuse);
+        BlinnPhongMaterialBlock.store(material, writer);
+        assertEquals(0.5f, data.getFloat(0), 0);
+        assertEquals(0.5f, data.getFloat(4), 0);
+    }
+
+}
@@ -0,0 +1,175 @@
+package toolbox;
+
+import org.joml.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+import toolbox.ShadowCascades.SplitScheme;
+
+public class ShadowCascadesTest {
+
+    private static final float FOV = 45;
+    private static final float ASPECT_RATIO = 16f / 9;
+    private static final float NEAR = 0.1f;
+    private static final float FAR = 200;
+    private static final int RESOLUTION = 1024;
+
+    private ShadowCascades cascades;
+    private Matrix4f projectionMatrix;
+    private Matrix4f lightViewMatrix;
+
+    @Before
+    public void beforeEachTest() {
+        cascades = new ShadowCascades();
+        cascades.setNumberOfCascades(4);
+        cascades.setResolution(RESOLUTION);
+        projectionMatrix = new Matrix4f().setPerspective((float) java.lang.Math.toRadians(FOV), ASPECT_RATIO, NEAR, FAR);
+        lightViewMatrix = new Matrix4f().setLookAlong(new Vector3f(-1, -2, -0.5f).normalize(), new Vector3f(0, 1, 0));
+    }
+
+    private Matrix4f createViewMatrix(Vector3f position, float yaw) {
+        return new Matrix4f().rotateY((float) java.lang.Math.toRadians(yaw)).translate(-position.x, -position.y, -position.z);
+    }
+
+    @Test
+    public void testUniformSplits() {
+        float[] splits = new float[5];
+        ShadowCascades.computeSplitDistances(1, 101, 4, SplitScheme.UNIFORM, 0.5f, splits);
+        assertArrayEquals(new float[]{1, 26, 51, 76, 101}, splits, 0.0001f);
+    }
+
+    @Test
+    public void testLogarithmicSplits() {
+        float[] splits = new float[4];
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.LOGARITHMIC, 0.5f, splits);
+        assertArrayEquals(new float[]{1, 10, 100, 1000}, splits, 0.001f);
+    }
+
+    @Test
+    public void testPracticalSplits() {
+        float[] uniform = new float[4];
+        float[] logarithmic = new float[4];
+        float[] practical = new float[4];
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.UNIFORM, 0.3f, uniform);
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.LOGARITHMIC, 0.3f, logarithmic);
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.PRACTICAL, 0.3f, practical);
+        for (int i = 0; i < practical.length; i++) {
+            assertEquals(0.3f * logarithmic[i] + 0.7f * uniform[i], practical[i], 0.001f);
+        }
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.PRACTICAL, 0, practical);
+        assertArrayEquals(uniform, practical, 0.001f);
+        ShadowCascades.computeSplitDistances(1, 1000, 3, SplitScheme.PRACTICAL, 1, practical);
+        assertArrayEquals(logarithmic, practical, 0.001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNear() {
+        ShadowCascades.computeSplitDistances(0, 100, 2, SplitScheme.LOGARITHMIC, 0.5f, new float[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortResult() {
+        ShadowCascades.computeSplitDistances(1, 100, 2, SplitScheme.UNIFORM, 0.5f, new float[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyCascades() {
+        cascades.setNumberOfCascades(ShadowCascades.MAX_NUMBER_OF_CASCADES + 1);
+    }
+
+    @Test
+    public void testSplitsFollowTheCamera() {
+        cascades.update(createViewMatrix(new Vector3f(3, 4, 5), 30), projectionMatrix, lightViewMatrix);
+        assertEquals(NEAR, cascades.getSplitDistance(0), 0.001f);
+        assertEquals(FAR, cascades.getSplitDistance(4), 0.01f);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cascades.getSplitDistance(i) < cascades.getSplitDistance(i + 1));
+        }
+    }
+
+    @Test
+    public void testSlicesAreInsideTheCascades() {
+        Matrix4f viewMatrix = createViewMatrix(new Vector3f(10, 5, -20), 70);
+        Matrix4f inverseViewMatrix = new Matrix4f(viewMatrix).invertAffine();
+        cascades.update(viewMatrix, projectionMatrix, lightViewMatrix);
+        float tan = (float) java.lang.Math.tan(java.lang.Math.toRadians(FOV / 2));
+        Vector3f point = new Vector3f();
+        for (int i = 0; i < cascades.getNumberOfCascades(); i++) {
+            for (int j = 0; j <= 10; j++) {
+                float depth = cascades.getSplitDistance(i) + (cascades.getSplitDistance(i + 1) - cascades.getSplitDistance(i)) * j / 10;
+                for (int x = -1; x <= 1; x++) {
+                    for (int y = -1; y <= 1; y++) {
+                        point.set(x * depth * tan * ASPECT_RATIO, y * depth * tan, -depth);
+                        inverseViewMatrix.transformPosition(point);
+                        cascades.getProjectionViewMatrix(i).transformProject(point);
+                        assertTrue(java.lang.Math.abs(point.x) <= 1);
+                        assertTrue(java.lang.Math.abs(point.y) <= 1);
+                        assertTrue(java.lang.Math.abs(point.z) <= 1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTexelSizeDoesNotDependOnRotation() {
+        cascades.update(createViewMatrix(new Vector3f(), 0), projectionMatrix, lightViewMatrix);
+        float[] texelSizes = new float[4];
+        for (int i = 0; i < 4; i++) {
+            texelSizes[i] = cascades.getTexelSize(i);
+            assertTrue(i == 0 || texelSizes[i - 1] < texelSizes[i]);
+        }
+        for (int yaw = 0; yaw < 360; yaw += 17) {
+            cascades.update(createViewMatrix(new Vector3f(), yaw), projectionMatrix, lightViewMatrix);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(texelSizes[i], cascades.getTexelSize(i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCascadesAreSnappedToTexels() {
+        Vector3f worldPoint = new Vector3f(1.5f, 0.25f, -3);
+        float[] fractions = new float[8];
+        cascades.update(createViewMatrix(new Vector3f(), 20), projectionMatrix, lightViewMatrix);
+        computeTexelFractions(worldPoint, fractions);
+        float[] movedFractions = new float[8];
+        for (int i = 1; i < 10; i++) {
+            cascades.update(createViewMatrix(new Vector3f(i * 0.37f, i * 0.11f, i * -0.53f), 20), projectionMatrix, lightViewMatrix);
+            computeTexelFractions(worldPoint, movedFractions);
+            for (int j = 0; j < fractions.length; j++) {
+                float difference = java.lang.Math.abs(fractions[j] - movedFractions[j]);
+                assertTrue(difference < 0.01f || difference > 0.99f);
+            }
+        }
+    }
+
+    @Test
+    public void testMatricesDoNotChangeInsideATexel() {
+        cascades.update(createViewMatrix(new Vector3f(2, 1, 3), 40), projectionMatrix, lightViewMatrix);
+        Matrix4f farthestCascade = new Matrix4f(cascades.getProjectionViewMatrix(3));
+        cascades.update(createViewMatrix(new Vector3f(2.001f, 1, 3.001f), 40), projectionMatrix, lightViewMatrix);
+        assertEquals(farthestCascade, cascades.getProjectionViewMatrix(3));
+    }
+
+    private void computeTexelFractions(Vector3f worldPoint, float[] result) {
+        Vector3f point = new Vector3f();
+        for (int i = 0; i < 4; i++) {
+            cascades.getProjectionViewMatrix(i).transformProject(worldPoint, point);
+            float x = (point.x * 0.5f + 0.5f) * RESOLUTION;
+            float y = (point.y * 0.5f + 0.5f) * RESOLUTION;
+            result[i * 2] = x - (float) java.lang.Math.floor(x);
+            result[i * 2 + 1] = y - (float) java.lang.Math.floor(y);
+        }
+    }
+
+    @Test
+    public void testAtlas() {
+        assertEquals(new Vector2i(1024, 1024), ShadowCascades.getAtlasSize(1024, 1, new Vector2i()));
+        assertEquals(new Vector2i(2048, 1024), ShadowCascades.getAtlasSize(1024, 2, new Vector2i()));
+        assertEquals(new Vector2i(2048, 2048), ShadowCascades.getAtlasSize(1024, 3, new Vector2i()));
+        assertEquals(new Vector2i(2048, 2048), ShadowCascades.getAtlasSize(1024, 4, new Vector2i()));
+        assertEquals(new Vector2i(RESOLUTION, RESOLUTION), cascades.getAtlasOffset(3, new Vector2i()));
+        assertEquals(new Vector2i(0, RESOLUTION), cascades.getAtlasOffset(2, new Vector2i()));
+    }
+
+}
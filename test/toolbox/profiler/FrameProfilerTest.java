@@ -0,0 +1,170 @@
+package toolbox.profiler;
+
+import java.io.*;
+import java.util.*;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Checks the FrameProfiler with a fake clock and a fake GpuTimer. It doesn't
+ * need OpenGL context.
+ */
+public class FrameProfilerTest {
+
+    private long time;
+    private FrameProfiler profiler;
+
+    @Before
+    public void beforeEachTest() {
+        time = 0;
+        profiler = new FrameProfiler(4, () -> time);
+    }
+
+    @Test
+    public void testScopesAreHierarchical() {
+        recordFrame(10, 20);
+        FrameProfiler.ProfiledFrame frame = profiler.getFrame(0);
+        assertEquals(4, frame.getNumberOfScopes());
+        assertEquals(FrameProfiler.FRAME_SCOPE, frame.getName(0));
+        assertEquals(0, frame.getDepth(0));
+        assertEquals("Update", frame.getName(1));
+        assertEquals(1, frame.getDepth(1));
+        assertEquals("Render", frame.getName(2));
+        assertEquals("Renderer", frame.getName(3));
+        assertEquals(2, frame.getDepth(3));
+        assertEquals(10, frame.getCpuDuration(1));
+        assertEquals(20, frame.getCpuDuration(3));
+        assertEquals(30, frame.getCpuDuration(0));
+    }
+
+    @Test
+    public void testRingBufferKeepsLastFrames() {
+        for (int i = 1; i <= 6; i++) {
+            recordFrame(i, 0);
+        }
+        assertEquals(4, profiler.getNumberOfFrames());
+        assertEquals(2, profiler.getFrame(0).getFrameIndex());
+        assertEquals(5, profiler.getFrame(3).getFrameIndex());
+        assertEquals(3, profiler.getFrame(0).getCpuDuration(1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        profiler = new FrameProfiler(100, () -> time);
+        for (int i = 1; i <= 100; i++) {
+            recordFrame(i, 0);
+        }
+        assertEquals(50, profiler.getCpuPercentile("Update", 50));
+        assertEquals(99, profiler.getCpuPercentile("Update", 99));
+        assertEquals(100, profiler.getCpuPercentile("Update", 100));
+        assertEquals(1, profiler.getCpuPercentile("Update", 0));
+        assertEquals(-1, profiler.getCpuPercentile("Missing", 50));
+        assertEquals(-1, profiler.getGpuPercentile("Update", 50));
+    }
+
+    @Test
+    public void testGpuTimestampsAreResolvedLater() {
+        TestGpuTimer gpuTimer = new TestGpuTimer();
+        profiler.setGpuTimer(gpuTimer);
+        recordFrame(10, 20);
+        assertFalse(profiler.getFrame(0).isGpuTimeAvailable());
+        gpuTimer.available = true;
+        recordFrame(10, 20);
+        FrameProfiler.ProfiledFrame frame = profiler.getFrame(0);
+        assertTrue(frame.isGpuTimeAvailable());
+        assertEquals(7000, frame.getGpuDuration(0));
+        assertEquals(1000, frame.getGpuDuration(1));
+        assertEquals(1000, frame.getGpuStart(1));
+        profiler.release();
+        assertEquals(0, gpuTimer.issued.size());
+    }
+
+    @Test
+    public void testChromeTraceAndPercentilesExport() throws IOException {
+        recordFrame(10, 20);
+        recordFrame(15, 25);
+        StringWriter trace = new StringWriter();
+        profiler.writeChromeTrace(trace);
+        String json = trace.toString();
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.trim().endsWith("]}"));
+        assertEquals(8, json.split("\"ph\":\"X\"", -1).length - 1);
+        assertTrue(json.contains("{\"name\":\"Renderer\",\"ph\":\"X\",\"pid\":1,\"tid\":1,\"ts\":0.045,\"dur\":0.025,\"args\":{\"frame\":1}}"));
+
+        StringWriter percentiles = new StringWriter();
+        profiler.writePercentiles(percentiles);
+        String[] lines = percentiles.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("Update,0.000,0.000,0.000,0.000,,,,", lines[2]);
+    }
+
+    @Test
+    public void testCountersArePerFrame() throws IOException {
+        profiler.beginFrame();
+        profiler.setCounter("Draw calls", 10);
+        profiler.setCounter("Draw calls", 12);
+        profiler.endFrame();
+        profiler.beginFrame();
+        profiler.endFrame();
+        assertEquals(1, profiler.getFrame(0).getNumberOfCounters());
+        assertEquals("Draw calls", profiler.getFrame(0).getCounterName(0));
+        assertEquals(12, profiler.getFrame(0).getCounterValue(0));
+        assertEquals(0, profiler.getFrame(1).getNumberOfCounters());
+        StringWriter trace = new StringWriter();
+        profiler.writeChromeTrace(trace);
+        assertTrue(trace.toString().contains("{\"name\":\"Draw calls\",\"ph\":\"C\",\"pid\":1,\"ts\":0.000,\"args\":{\"value\":12}}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbalancedScopesAreRejected() {
+        profiler.beginFrame();
+        profiler.begin("Update");
+        profiler.endFrame();
+    }
+
+    private void recordFrame(long updateTime, long renderTime) {
+        profiler.beginFrame();
+        profiler.begin("Update");
+        time += updateTime;
+        profiler.end();
+        profiler.begin("Render");
+        profiler.begin("Renderer");
+        time += renderTime;
+        profiler.end();
+        profiler.end();
+        profiler.endFrame();
+    }
+
+    private static class TestGpuTimer implements GpuTimer {
+
+        private final Set<Integer> issued = new HashSet<>();
+        private int nextHandle;
+        private boolean available;
+
+        @Override
+        public int issueTimestamp() {
+            issued.add(nextHandle);
+            return nextHandle++;
+        }
+
+        @Override
+        public boolean isAvailable(int handle) {
+            return available;
+        }
+
+        @Override
+        public long getTimestamp(int handle) {
+            return handle * 1000L;
+        }
+
+        @Override
+        public void releaseTimestamp(int handle) {
+            assertTrue(issued.remove(handle));
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+}